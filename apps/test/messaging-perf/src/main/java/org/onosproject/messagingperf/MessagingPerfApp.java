@@ -30,9 +30,11 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.apache.felix.scr.annotations.Activate;
@@ -47,6 +49,7 @@ import org.onlab.util.BoundedThreadPool;
 import org.onlab.util.KryoNamespace;
 import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.cluster.ClusterService;
+import org.onosproject.cluster.ControllerNode;
 import org.onosproject.cluster.NodeId;
 import org.onosproject.core.CoreService;
 import org.onosproject.store.cluster.messaging.ClusterCommunicationService;
@@ -107,6 +110,10 @@ public class MessagingPerfApp {
             label = "Set this to true to handle message on IO thread")
     private boolean receiveOnIOLoopThread = false;
 
+    @Property(name = "unicastOn", boolValue = false,
+            label = "Set this to true to send one way unicast messages instead of request/reply")
+    private boolean unicastOn = false;
+
     protected int reportIntervalSeconds = 1;
 
     private Executor messageReceivingExecutor;
@@ -179,6 +186,7 @@ public class MessagingPerfApp {
             totalReceiverThreads = DEFAULT_RECEIVER_THREAD_POOL_SIZE;
             serializationOn = true;
             receiveOnIOLoopThread = false;
+            unicastOn = false;
             return;
         }
 
@@ -188,6 +196,7 @@ public class MessagingPerfApp {
         int newTotalReceiverThreads = totalReceiverThreads;
         boolean newSerializationOn = serializationOn;
         boolean newReceiveOnIOLoopThread = receiveOnIOLoopThread;
+        boolean newUnicastOn = unicastOn;
         try {
             String s = get(properties, "totalSenderThreads");
             newTotalSenderThreads = isNullOrEmpty(s)
@@ -205,6 +214,10 @@ public class MessagingPerfApp {
             newReceiveOnIOLoopThread = isNullOrEmpty(s)
                     ? receiveOnIOLoopThread : Boolean.parseBoolean(s.trim());
 
+            s = get(properties, "unicastOn");
+            newUnicastOn = isNullOrEmpty(s)
+                    ? unicastOn : Boolean.parseBoolean(s.trim());
+
         } catch (NumberFormatException | ClassCastException e) {
             return;
         }
@@ -212,7 +225,8 @@ public class MessagingPerfApp {
         boolean modified = newTotalSenderThreads != totalSenderThreads ||
                 newTotalReceiverThreads != totalReceiverThreads ||
                 newSerializationOn != serializationOn ||
-                newReceiveOnIOLoopThread != receiveOnIOLoopThread;
+                newReceiveOnIOLoopThread != receiveOnIOLoopThread ||
+                newUnicastOn != unicastOn;
 
         // If nothing has changed, simply return.
         if (!modified) {
@@ -226,6 +240,7 @@ public class MessagingPerfApp {
             ((ExecutorService) messageReceivingExecutor).shutdown();
         }
         receiveOnIOLoopThread = newReceiveOnIOLoopThread;
+        unicastOn = newUnicastOn;
 
         // restart test.
 
@@ -251,12 +266,13 @@ public class MessagingPerfApp {
 
     private void logConfig(String prefix) {
         log.info("{} with senderThreadPoolSize = {}; receivingThreadPoolSize = {}"
-                + " serializationOn = {}, receiveOnIOLoopThread = {}",
+                + " serializationOn = {}, receiveOnIOLoopThread = {}, unicastOn = {}",
                  prefix,
                  totalSenderThreads,
                  totalReceiverThreads,
                  serializationOn,
-                 receiveOnIOLoopThread);
+                 receiveOnIOLoopThread,
+                 unicastOn);
     }
 
     private void setupCodecs() {
@@ -285,7 +301,11 @@ public class MessagingPerfApp {
     }
 
     private void startTest() {
-        IntStream.range(0, totalSenderThreads).forEach(i -> requestReply());
+        if (unicastOn) {
+            IntStream.range(0, totalSenderThreads).forEach(i -> messageSendingExecutor.submit(this::unicast));
+        } else {
+            IntStream.range(0, totalSenderThreads).forEach(i -> requestReply());
+        }
     }
 
     private void stopTest() {
@@ -341,16 +361,22 @@ public class MessagingPerfApp {
     }
 
     private NodeId randomPeer() {
-        return clusterService.getNodes()
+        List<NodeId> peers = clusterService.getNodes()
                     .stream()
-                    .filter(node -> clusterService.getLocalNode().equals(node))
-                    .findAny()
-                    .get()
-                    .id();
+                    .filter(node -> !clusterService.getLocalNode().equals(node))
+                    .map(ControllerNode::id)
+                    .collect(Collectors.toList());
+        // fall back to the local node on a single node cluster
+        return peers.isEmpty() ? clusterService.getLocalNode().id()
+                : peers.get(ThreadLocalRandom.current().nextInt(peers.size()));
     }
 
     private void reportPerformance() {
-        log.info("Attempted: {} Completed: {}", attempted.getAndSet(0), completed.getAndSet(0));
+        if (unicastOn) {
+            log.info("Sent: {} Received: {}", sent.getAndSet(0), received.getAndSet(0));
+        } else {
+            log.info("Attempted: {} Completed: {}", attempted.getAndSet(0), completed.getAndSet(0));
+        }
     }
 
     private static class Data {
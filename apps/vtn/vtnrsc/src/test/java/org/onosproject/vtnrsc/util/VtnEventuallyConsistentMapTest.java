@@ -234,6 +234,11 @@ public final class VtnEventuallyConsistentMapTest<K, V> extends VtnEventuallyCon
             return this;
         }
 
+        @Override
+        public EventuallyConsistentMapBuilder<K, V> withFullDigestAntiEntropy() {
+            return this;
+        }
+
         @Override
         public EventuallyConsistentMap<K, V> build() {
             if (name == null) {
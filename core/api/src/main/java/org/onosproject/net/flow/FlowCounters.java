@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.flow;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Counters of the flow entries reported by a device in one round of flow
+ * statistics, kept in primitive arrays.
+ * <p>
+ * Each reported flow is identified by its flow id, table and priority; the
+ * complete flow entry is only decoded on demand, for the flows which do not
+ * match an already known flow entry.
+ * </p>
+ */
+public final class FlowCounters {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final IntFunction<FlowEntry> decoder;
+
+    private long[] flowIds;
+    private int[] tableIds;
+    private int[] priorities;
+    private long[] lives;
+    private long[] packets;
+    private long[] bytes;
+    private FlowEntry[] entries;
+    private int size;
+
+    /**
+     * Creates an empty set of flow counters.
+     *
+     * @param expectedSize expected number of flows
+     * @param decoder      function decoding the complete flow entry of the
+     *                     flow at the given index
+     */
+    public FlowCounters(int expectedSize, IntFunction<FlowEntry> decoder) {
+        this.decoder = checkNotNull(decoder);
+        int capacity = Math.max(expectedSize, DEFAULT_CAPACITY);
+        flowIds = new long[capacity];
+        tableIds = new int[capacity];
+        priorities = new int[capacity];
+        lives = new long[capacity];
+        packets = new long[capacity];
+        bytes = new long[capacity];
+    }
+
+    /**
+     * Adds the counters of a flow.
+     *
+     * @param flowId      flow id
+     * @param tableId     table id
+     * @param priority    flow priority
+     * @param lifeNanos   time the flow has been alive, in nanoseconds
+     * @param packetCount number of packets matched by the flow
+     * @param byteCount   number of bytes matched by the flow
+     */
+    public void add(long flowId, int tableId, int priority,
+                    long lifeNanos, long packetCount, long byteCount) {
+        if (size == flowIds.length) {
+            grow();
+        }
+        flowIds[size] = flowId;
+        tableIds[size] = tableId;
+        priorities[size] = priority;
+        lives[size] = lifeNanos;
+        packets[size] = packetCount;
+        bytes[size] = byteCount;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = flowIds.length * 2;
+        flowIds = Arrays.copyOf(flowIds, capacity);
+        tableIds = Arrays.copyOf(tableIds, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        lives = Arrays.copyOf(lives, capacity);
+        packets = Arrays.copyOf(packets, capacity);
+        bytes = Arrays.copyOf(bytes, capacity);
+    }
+
+    /**
+     * Returns the number of flows.
+     *
+     * @return number of flows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the flow id of the flow at the given index.
+     *
+     * @param index flow index
+     * @return flow id value
+     */
+    public long flowId(int index) {
+        return flowIds[checkElementIndex(index, size)];
+    }
+
+    /**
+     * Returns the table id of the flow at the given index.
+     *
+     * @param index flow index
+     * @return table id
+     */
+    public int tableId(int index) {
+        return tableIds[checkElementIndex(index, size)];
+    }
+
+    /**
+     * Returns the priority of the flow at the given index.
+     *
+     * @param index flow index
+     * @return flow priority
+     */
+    public int priority(int index) {
+        return priorities[checkElementIndex(index, size)];
+    }
+
+    /**
+     * Returns the time the flow at the given index has been alive.
+     *
+     * @param index flow index
+     * @param unit  time unit
+     * @return time the flow has been alive, in the given unit
+     */
+    public long life(int index, TimeUnit unit) {
+        return unit.convert(lives[checkElementIndex(index, size)], NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of packets matched by the flow at the given index.
+     *
+     * @param index flow index
+     * @return number of packets
+     */
+    public long packets(int index) {
+        return packets[checkElementIndex(index, size)];
+    }
+
+    /**
+     * Returns the number of bytes matched by the flow at the given index.
+     *
+     * @param index flow index
+     * @return number of bytes
+     */
+    public long bytes(int index) {
+        return bytes[checkElementIndex(index, size)];
+    }
+
+    /**
+     * Returns whether the flow at the given index has the same flow id,
+     * table and priority as the given flow rule.
+     *
+     * @param index flow index
+     * @param rule  flow rule
+     * @return true if the flow identifies the given rule
+     */
+    public boolean matches(int index, FlowRule rule) {
+        checkElementIndex(index, size);
+        return rule.id().value() == flowIds[index]
+                && rule.tableId() == tableIds[index]
+                && rule.priority() == priorities[index];
+    }
+
+    /**
+     * Returns the complete flow entry of the flow at the given index,
+     * decoding it on first use.
+     *
+     * @param index flow index
+     * @return flow entry
+     */
+    public FlowEntry entry(int index) {
+        checkElementIndex(index, size);
+        if (entries == null) {
+            entries = new FlowEntry[size];
+        } else if (entries.length < size) {
+            entries = Arrays.copyOf(entries, size);
+        }
+        FlowEntry entry = entries[index];
+        if (entry == null) {
+            entry = decoder.apply(index);
+            entries[index] = entry;
+        }
+        return entry;
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.onosproject.net.flow;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.onosproject.net.DeviceId;
@@ -51,6 +52,29 @@ public interface FlowRuleProviderService extends ProviderService<FlowRuleProvide
      */
     void pushFlowMetricsWithoutFlowMissing(DeviceId deviceId, Iterable<FlowEntry> flowEntries);
 
+    /**
+     * Pushes the counters of the flow entries currently applied on the given
+     * device. Complete flow entries are only decoded for the flows which
+     * do not match a known flow entry.
+     *
+     * @param deviceId device identifier
+     * @param counters counters of the flow entries
+     * @param useMissingFlow whether flow entries missing from the device
+     *                       should be processed
+     */
+    default void pushFlowCounters(DeviceId deviceId, FlowCounters counters,
+                                  boolean useMissingFlow) {
+        List<FlowEntry> flowEntries = new ArrayList<>(counters.size());
+        for (int i = 0; i < counters.size(); i++) {
+            flowEntries.add(counters.entry(i));
+        }
+        if (useMissingFlow) {
+            pushFlowMetrics(deviceId, flowEntries);
+        } else {
+            pushFlowMetricsWithoutFlowMissing(deviceId, flowEntries);
+        }
+    }
+
     /**
      * Pushes the collection of table statistics entries currently extracted
      * from the given device.
@@ -16,6 +16,12 @@
 package org.onosproject.net.flow;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import com.google.common.collect.Lists;
 
 import org.onosproject.net.DeviceId;
 import org.onosproject.store.Store;
@@ -48,6 +54,33 @@ public interface FlowRuleStore extends Store<FlowRuleBatchEvent, FlowRuleStoreDe
      */
     Iterable<FlowEntry> getFlowEntries(DeviceId deviceId);
 
+    /**
+     * Returns the flow entries of a device with the given flow id.
+     *
+     * @param deviceId the device ID
+     * @param flowId   the flow ID
+     * @return the flow entries
+     */
+    default Iterable<FlowEntry> getFlowEntries(DeviceId deviceId, FlowId flowId) {
+        return StreamSupport.stream(getFlowEntries(deviceId).spliterator(), false)
+                .filter(entry -> entry.id().equals(flowId))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the ids of the flow entries associated with a device. Stores
+     * which keep the flow entries serialized return them without decoding
+     * the entries.
+     *
+     * @param deviceId the device ID
+     * @return the flow IDs
+     */
+    default Set<FlowId> getFlowIds(DeviceId deviceId) {
+        return StreamSupport.stream(getFlowEntries(deviceId).spliterator(), false)
+                .map(FlowEntry::id)
+                .collect(Collectors.toSet());
+    }
+
     /**
      * // TODO: Better description of method behavior.
      * Stores a new flow rule without generating events.
@@ -90,6 +123,39 @@ public interface FlowRuleStore extends Store<FlowRuleBatchEvent, FlowRuleStoreDe
      */
     FlowRuleEvent addOrUpdateFlowRule(FlowEntry rule);
 
+    /**
+     * Updates the life of a stored flow entry whose state and counters did
+     * not change. No event is generated.
+     *
+     * @param rule the stored flow entry
+     * @param life time the flow entry has been alive
+     * @param unit unit of the life
+     */
+    default void refreshFlowRule(FlowEntry rule, long life, TimeUnit unit) {
+        addOrUpdateFlowRule(new DefaultFlowEntry(rule, rule.state(), life, unit, rule.packets(), rule.bytes()));
+    }
+
+    /**
+     * Updates the life of the only flow entry of a device with the given
+     * flow id, whose counters did not change, if it is added. No event is
+     * generated. Stores which keep the flow entries serialized update the
+     * entry without decoding it.
+     *
+     * @param deviceId the device ID
+     * @param flowId   the flow ID
+     * @param life     time the flow entry has been alive
+     * @param unit     unit of the life
+     * @return true if the flow id identifies a single added flow entry
+     */
+    default boolean refreshFlowRule(DeviceId deviceId, FlowId flowId, long life, TimeUnit unit) {
+        List<FlowEntry> entries = Lists.newArrayList(getFlowEntries(deviceId, flowId));
+        if (entries.size() != 1 || entries.get(0).state() != FlowEntry.FlowEntryState.ADDED) {
+            return false;
+        }
+        refreshFlowRule(entries.get(0), life, unit);
+        return true;
+    }
+
     /**
      * @param rule the flow entry to remove
      * @return flow_removed event, or null if nothing removed
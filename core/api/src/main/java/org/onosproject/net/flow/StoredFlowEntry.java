@@ -25,6 +25,12 @@ public interface StoredFlowEntry extends FlowEntry {
      */
     void setLastSeen();
 
+    /**
+     * Sets the last active epoch time to the given time.
+     * @param lastSeen epoch time in millis
+     */
+    void setLastSeen(long lastSeen);
+
     /**
      * Sets the new state for this entry.
      * @param newState new flow entry state.
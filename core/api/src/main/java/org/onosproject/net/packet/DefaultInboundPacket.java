@@ -16,7 +16,9 @@
 package org.onosproject.net.packet;
 
 import org.onosproject.net.ConnectPoint;
+import org.onlab.packet.DeserializationException;
 import org.onlab.packet.Ethernet;
+import org.onlab.packet.EthernetView;
 
 import java.nio.ByteBuffer;
 import java.util.Objects;
@@ -30,10 +32,15 @@ import static com.google.common.base.MoreObjects.toStringHelper;
 public final class DefaultInboundPacket implements InboundPacket {
 
     private final ConnectPoint receivedFrom;
-    private final Ethernet parsed;
     private final ByteBuffer unparsed;
     private final Optional<Long> cookie;
 
+    // Parsed frame given at creation; when absent, the frame is parsed on
+    // demand through the view
+    private final Ethernet parsed;
+    private final boolean parseOnDemand;
+    private final EthernetView view;
+
     /**
      * Creates an immutable inbound packet.
      *
@@ -56,10 +63,38 @@ public final class DefaultInboundPacket implements InboundPacket {
      */
     public DefaultInboundPacket(ConnectPoint receivedFrom, Ethernet parsed,
             ByteBuffer unparsed, Optional<Long> cookie) {
+        this(receivedFrom, parsed, false, unparsed, cookie);
+    }
+
+    /**
+     * Creates an immutable inbound packet with cookie, whose raw bytes are
+     * decoded only as their fields are accessed.
+     *
+     * @param receivedFrom connection point where received
+     * @param unparsed     unparsed raw bytes
+     * @param cookie       cookie
+     */
+    public DefaultInboundPacket(ConnectPoint receivedFrom, ByteBuffer unparsed,
+                                Optional<Long> cookie) {
+        this(receivedFrom, null, true, unparsed, cookie);
+    }
+
+    private DefaultInboundPacket(ConnectPoint receivedFrom, Ethernet parsed, boolean parseOnDemand,
+                                 ByteBuffer unparsed, Optional<Long> cookie) {
         this.receivedFrom = receivedFrom;
         this.parsed = parsed;
+        this.parseOnDemand = parseOnDemand;
         this.unparsed = unparsed;
         this.cookie = cookie;
+        this.view = createView(unparsed);
+    }
+
+    private static EthernetView createView(ByteBuffer unparsed) {
+        try {
+            return unparsed != null ? EthernetView.of(unparsed) : null;
+        } catch (DeserializationException e) {
+            return null;
+        }
     }
 
     @Override
@@ -69,9 +104,17 @@ public final class DefaultInboundPacket implements InboundPacket {
 
     @Override
     public Ethernet parsed() {
+        if (parseOnDemand) {
+            return view != null ? view.parsed() : null;
+        }
         return parsed;
     }
 
+    @Override
+    public EthernetView view() {
+        return view;
+    }
+
     @Override
     public ByteBuffer unparsed() {
         // FIXME: figure out immutability here
@@ -85,7 +128,7 @@ public final class DefaultInboundPacket implements InboundPacket {
 
     @Override
     public int hashCode() {
-        return Objects.hash(receivedFrom, parsed, unparsed);
+        return Objects.hash(receivedFrom, unparsed);
     }
 
     @Override
@@ -96,8 +139,8 @@ public final class DefaultInboundPacket implements InboundPacket {
         if (obj instanceof InboundPacket) {
             final DefaultInboundPacket other = (DefaultInboundPacket) obj;
             return Objects.equals(this.receivedFrom, other.receivedFrom) &&
-                    Objects.equals(this.parsed, other.parsed) &&
-                    Objects.equals(this.unparsed, other.unparsed);
+                    Objects.equals(this.unparsed, other.unparsed) &&
+                    Objects.equals(this.parsed(), other.parsed());
         }
         return false;
     }
@@ -106,7 +149,7 @@ public final class DefaultInboundPacket implements InboundPacket {
     public String toString() {
         return toStringHelper(this)
                 .add("receivedFrom", receivedFrom)
-                .add("parsed", parsed)
+                .add("parsed", parsed())
                 .toString();
     }
 }
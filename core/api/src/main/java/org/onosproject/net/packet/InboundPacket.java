@@ -16,7 +16,9 @@
 package org.onosproject.net.packet;
 
 import org.onosproject.net.ConnectPoint;
+import org.onlab.packet.DeserializationException;
 import org.onlab.packet.Ethernet;
+import org.onlab.packet.EthernetView;
 
 import java.nio.ByteBuffer;
 import java.util.Optional;
@@ -41,6 +43,27 @@ public interface InboundPacket {
      */
     Ethernet parsed();
 
+    /**
+     * Returns a view of the packet which decodes header fields on demand
+     * from the unparsed bytes. Processors needing only a few header fields,
+     * such as the ether type or addresses, should prefer this to
+     * {@link #parsed()}, which deserializes the whole packet.
+     *
+     * @return Ethernet frame view; null if the packet is too short to be an
+     * Ethernet frame
+     */
+    default EthernetView view() {
+        ByteBuffer data = unparsed();
+        if (data == null) {
+            return null;
+        }
+        try {
+            return EthernetView.of(data);
+        } catch (DeserializationException e) {
+            return null;
+        }
+    }
+
     /**
      * Unparsed packet data.
      *
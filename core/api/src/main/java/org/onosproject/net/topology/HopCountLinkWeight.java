@@ -22,7 +22,7 @@ import static org.onosproject.net.Link.Type.INDIRECT;
  * Link weight for measuring link cost as hop count with indirect links
  * being as expensive as traversing the entire graph to assume the worst.
  */
-public class HopCountLinkWeight implements LinkWeight {
+public class HopCountLinkWeight implements LinkOnlyWeight {
     private final int indirectLinkCost;
 
     /**
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.topology;
+
+/**
+ * Link weight deriving the cost of a link solely from the link itself, i.e.
+ * its end-points, type, state, provider and annotations.
+ * <p>
+ * Shortest paths computed with such a weight remain valid for as long as the
+ * links they traverse are unchanged, which allows them to be carried over
+ * from one topology to the next. Weights consulting anything else, such as
+ * the devices at either end, must not implement this interface.
+ * </p>
+ */
+public interface LinkOnlyWeight extends LinkWeight {
+}
@@ -21,7 +21,7 @@ import org.onosproject.net.AnnotationKeys;
 /**
  * Link weight for measuring link cost using the link metric annotation.
  */
-public class MetricLinkWeight implements LinkWeight {
+public class MetricLinkWeight implements LinkOnlyWeight {
 
     @Override
     public double weight(TopologyEdge edge) {
@@ -190,6 +190,20 @@ public interface EventuallyConsistentMapBuilder<K, V> {
      */
     EventuallyConsistentMapBuilder<K, V> withPersistence();
 
+    /**
+     * Configures the map to exchange a digest of every entry in each
+     * anti-entropy round.
+     * <p>
+     * The default behavior is to first compare hashes over buckets of keys
+     * with the peer and to exchange digests only for the buckets that differ.
+     * Full digests are still used when a map is first created and when the
+     * peer does not support bucket hashes.
+     * </p>
+     *
+     * @return this EventuallyConsistentMapBuilder
+     */
+    EventuallyConsistentMapBuilder<K, V> withFullDigestAntiEntropy();
+
     /**
      * Builds an eventually consistent map based on the configuration options
      * supplied to this builder.
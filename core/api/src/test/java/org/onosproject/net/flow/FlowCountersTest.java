@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.flow;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.onosproject.net.intent.IntentTestsMocks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Unit tests for the flow counters class.
+ */
+public class FlowCountersTest {
+
+    final FlowRule rule = new IntentTestsMocks.MockFlowRule(7);
+
+    /**
+     * Checks that counters are kept past the initial capacity.
+     */
+    @Test
+    public void testAdd() {
+        FlowCounters counters = new FlowCounters(1, index -> null);
+        for (int i = 0; i < 100; i++) {
+            counters.add(i, i % 4, i % 3, SECONDS.toNanos(i), i * 10, i * 100);
+        }
+        assertThat(counters.size(), is(100));
+        assertThat(counters.flowId(42), is(42L));
+        assertThat(counters.tableId(42), is(2));
+        assertThat(counters.priority(42), is(0));
+        assertThat(counters.life(42, MILLISECONDS), is(42000L));
+        assertThat(counters.packets(42), is(420L));
+        assertThat(counters.bytes(42), is(4200L));
+    }
+
+    /**
+     * Checks matching of counters against flow rules.
+     */
+    @Test
+    public void testMatches() {
+        FlowCounters counters = new FlowCounters(3, index -> null);
+        counters.add(rule.id().value(), rule.tableId(), rule.priority(), 0, 0, 0);
+        counters.add(rule.id().value(), rule.tableId(), rule.priority() + 1, 0, 0, 0);
+        counters.add(rule.id().value() + 1, rule.tableId(), rule.priority(), 0, 0, 0);
+        assertThat(counters.matches(0, rule), is(true));
+        assertThat(counters.matches(1, rule), is(false));
+        assertThat(counters.matches(2, rule), is(false));
+    }
+
+    /**
+     * Checks that flow entries are decoded once, on demand.
+     */
+    @Test
+    public void testEntry() {
+        AtomicInteger decoded = new AtomicInteger();
+        FlowCounters counters = new FlowCounters(2, index -> {
+            decoded.incrementAndGet();
+            return new DefaultFlowEntry(rule, FlowEntry.FlowEntryState.ADDED, index, 0, 0);
+        });
+        counters.add(rule.id().value(), rule.tableId(), rule.priority(), 0, 0, 0);
+        counters.add(rule.id().value(), rule.tableId(), rule.priority(), 0, 0, 0);
+        assertThat(decoded.get(), is(0));
+
+        FlowEntry entry = counters.entry(1);
+        assertThat(entry.life(), is(1L));
+        assertThat(counters.entry(1), sameInstance(entry));
+        assertThat(decoded.get(), is(1));
+    }
+
+    /**
+     * Checks that indexes past the added counters are rejected.
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        FlowCounters counters = new FlowCounters(16, index -> null);
+        counters.add(1, 0, 0, 0, 0, 0);
+        counters.packets(1);
+    }
+}
@@ -27,6 +27,7 @@ import com.google.common.testing.EqualsTester;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.onlab.junit.ImmutableClassChecker.assertThatClassIsImmutable;
 import static org.onosproject.net.NetTestTools.connectPoint;
 
@@ -87,4 +88,18 @@ public class DefaultInboundPacketTest {
         assertThat(packet1.unparsed(), notNullValue());
         assertThat(packet1.cookie(), equalTo(Optional.of(1L)));
     }
+
+    /**
+     * Tests the creation of a packet parsed on demand.
+     */
+    @Test
+    public void testParseOnDemand() {
+        DefaultInboundPacket packet =
+                new DefaultInboundPacket(connectPoint("d1", 1), byteBuffer, Optional.of(1L));
+        assertThat(packet.view().destinationMac(), equalTo(MacAddress.BROADCAST));
+        assertThat(packet.view().etherType(), equalTo(eth.getEtherType()));
+        assertThat(packet.parsed().getSourceMAC(), equalTo(MacAddress.BROADCAST));
+        assertThat(packet.parsed(), sameInstance(packet.parsed()));
+        assertThat(packet1.view().sourceMac(), equalTo(MacAddress.BROADCAST));
+    }
 }
@@ -22,14 +22,12 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.ImmutableSetMultimap.Builder;
-import org.onlab.graph.DijkstraGraphSearch;
+import org.onlab.graph.CompactDijkstraGraphSearch;
 import org.onlab.graph.DisjointPathPair;
 import org.onlab.graph.GraphPathSearch;
 import org.onlab.graph.GraphPathSearch.Result;
 import org.onlab.graph.SrlgGraphSearch;
 import org.onlab.graph.SuurballeGraphSearch;
-import org.onlab.graph.TarjanGraphSearch;
-import org.onlab.graph.TarjanGraphSearch.SccResult;
 import org.onosproject.net.AbstractModel;
 import org.onosproject.net.ConnectPoint;
 import org.onosproject.net.DefaultDisjointPath;
@@ -45,6 +43,7 @@ import org.onosproject.net.topology.DefaultTopologyCluster;
 import org.onosproject.net.topology.DefaultTopologyVertex;
 import org.onosproject.net.topology.GraphDescription;
 import org.onosproject.net.topology.HopCountLinkWeight;
+import org.onosproject.net.topology.LinkOnlyWeight;
 import org.onosproject.net.topology.LinkWeight;
 import org.onosproject.net.topology.Topology;
 import org.onosproject.net.topology.TopologyCluster;
@@ -76,10 +75,14 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
     private static final Logger log = LoggerFactory.getLogger(DefaultTopology.class);
 
-    private static final DijkstraGraphSearch<TopologyVertex, TopologyEdge> DIJKSTRA = new DijkstraGraphSearch<>();
-    private static final TarjanGraphSearch<TopologyVertex, TopologyEdge> TARJAN = new TarjanGraphSearch<>();
+    private static final CompactDijkstraGraphSearch<TopologyVertex, TopologyEdge> DIJKSTRA =
+            new CompactDijkstraGraphSearch<>();
+    private static final LinkWeight NO_INDIRECT_LINKS = new NoIndirectLinksWeight();
     private static final SuurballeGraphSearch<TopologyVertex, TopologyEdge> SUURBALLE = new SuurballeGraphSearch<>();
 
+    // Stands in for the per-topology hop-count weight in path cache keys
+    private static final Object HOP_COUNT_WEIGHT = new Object();
+
     private static LinkWeight defaultLinkWeight = null;
     private static GraphPathSearch<TopologyVertex, TopologyEdge> defaultGraphPathSearch = null;
 
@@ -90,12 +93,17 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
     private final LinkWeight hopCountWeight;
 
-    private final Supplier<SccResult<TopologyVertex, TopologyEdge>> clusterResults;
+    private final Supplier<IncrementalClusterSearch.Result> clusterResults;
     private final Supplier<ImmutableMap<ClusterId, TopologyCluster>> clusters;
     private final Supplier<ImmutableSet<ConnectPoint>> infrastructurePoints;
     private final Supplier<ImmutableSetMultimap<ClusterId, ConnectPoint>> broadcastSets;
     private final Function<ConnectPoint, Boolean> broadcastFunction;
     private final Supplier<ClusterIndexes> clusterIndexes;
+    private final PathCache pathCache;
+
+    // Results of the previous topology, used until clusters and broadcast
+    // sets have been computed incrementally from them
+    private volatile Baseline baseline;
 
     /**
      * Sets the default link-weight to be used when computing paths. If null is
@@ -130,6 +138,29 @@ public class DefaultTopology extends AbstractModel implements Topology {
      */
     public DefaultTopology(ProviderId providerId, GraphDescription description,
                            Function<ConnectPoint, Boolean> broadcastFunction) {
+        this(providerId, description, broadcastFunction, null);
+    }
+
+    /**
+     * Creates a topology descriptor attributed to the specified provider,
+     * computing clusters and broadcast sets incrementally from the previous
+     * topology.
+     * <p>
+     * Only the clusters affected by the device and link changes since the
+     * previous topology are searched again; the others, along with their
+     * broadcast sets, are carried over, as are the cached shortest paths
+     * not traversing any removed link, provided they were computed with a
+     * {@link LinkOnlyWeight} or the default hop-count weight.
+     * </p>
+     *
+     * @param providerId        identity of the provider
+     * @param description       data describing the new topology
+     * @param broadcastFunction broadcast point function
+     * @param previous          previous topology; null to compute from scratch
+     */
+    public DefaultTopology(ProviderId providerId, GraphDescription description,
+                           Function<ConnectPoint, Boolean> broadcastFunction,
+                           DefaultTopology previous) {
         super(providerId);
         this.broadcastFunction = broadcastFunction;
         this.time = description.timestamp();
@@ -138,6 +169,7 @@ public class DefaultTopology extends AbstractModel implements Topology {
         // Build the graph
         this.graph = new DefaultTopologyGraph(description.vertexes(),
                                               description.edges());
+        this.baseline = previous != null ? new Baseline(previous) : null;
 
         this.clusterResults = Suppliers.memoize(() -> searchForClusters());
         this.clusters = Suppliers.memoize(() -> buildTopologyClusters());
@@ -147,6 +179,16 @@ public class DefaultTopology extends AbstractModel implements Topology {
         this.hopCountWeight = new HopCountLinkWeight(graph.getVertexes().size());
         this.broadcastSets = Suppliers.memoize(() -> buildBroadcastSets());
         this.infrastructurePoints = Suppliers.memoize(() -> findInfrastructurePoints());
+
+        // Only results of weights depending on the link alone are carried
+        // over; the indirect link cost of the default hop-count weight also
+        // depends on the device count
+        boolean sameDevices = previous != null &&
+                previous.graph.getVertexes().size() == graph.getVertexes().size();
+        this.pathCache = previous != null ?
+                previous.pathCache.derive(previous.graph, graph,
+                                          w -> w == HOP_COUNT_WEIGHT ? sameDevices : w instanceof LinkOnlyWeight) :
+                new PathCache(PathCache.DEFAULT_MAX_ENTRIES);
         this.computeCost = Math.max(0, System.nanoTime() - time);
     }
 
@@ -330,7 +372,8 @@ public class DefaultTopology extends AbstractModel implements Topology {
 
     /**
      * Computes on-demand the set of shortest paths between source and
-     * destination devices.
+     * destination devices. Results are cached per link weight function
+     * instance.
      *
      * @param src    source device
      * @param dst    destination device
@@ -346,13 +389,27 @@ public class DefaultTopology extends AbstractModel implements Topology {
             return ImmutableSet.of();
         }
 
-        GraphPathSearch.Result<TopologyVertex, TopologyEdge> result =
-                graphPathSearch().search(graph, srcV, dstV, weight, ALL_PATHS);
-        ImmutableSet.Builder<Path> builder = ImmutableSet.builder();
-        for (org.onlab.graph.Path<TopologyVertex, TopologyEdge> path : result.paths()) {
-            builder.add(networkPath(path));
-        }
-        return builder.build();
+        GraphPathSearch<TopologyVertex, TopologyEdge> search = graphPathSearch();
+        Object weightKey = weight == hopCountWeight ? HOP_COUNT_WEIGHT : weight;
+        return pathCache.getPaths(src, dst, weightKey, search, () -> {
+            GraphPathSearch.Result<TopologyVertex, TopologyEdge> result =
+                    search.search(graph, srcV, dstV, weight, ALL_PATHS);
+            ImmutableSet.Builder<Path> builder = ImmutableSet.builder();
+            for (org.onlab.graph.Path<TopologyVertex, TopologyEdge> path : result.paths()) {
+                builder.add(networkPath(path));
+            }
+            return builder.build();
+        });
+    }
+
+    /**
+     * Returns the cache of shortest-path results computed against this
+     * topology.
+     *
+     * @return path cache
+     */
+    public PathCache pathCache() {
+        return pathCache;
     }
 
     /**
@@ -502,15 +559,21 @@ public class DefaultTopology extends AbstractModel implements Topology {
     }
 
     // Searches for SCC clusters in the network topology graph using Tarjan
-    // algorithm.
-    private SccResult<TopologyVertex, TopologyEdge> searchForClusters() {
-        return TARJAN.search(graph, new NoIndirectLinksWeight());
+    // algorithm, restricted to the clusters changed since the previous
+    // topology if there is one.
+    private IncrementalClusterSearch.Result searchForClusters() {
+        Baseline base = baseline;
+        if (base == null) {
+            return IncrementalClusterSearch.search(graph, NO_INDIRECT_LINKS);
+        }
+        return IncrementalClusterSearch.search(base.graph, base.clusterResults, graph, NO_INDIRECT_LINKS);
     }
 
     // Builds the topology clusters and returns the id-cluster bindings.
     private ImmutableMap<ClusterId, TopologyCluster> buildTopologyClusters() {
         ImmutableMap.Builder<ClusterId, TopologyCluster> clusterBuilder = ImmutableMap.builder();
-        SccResult<TopologyVertex, TopologyEdge> results = clusterResults.get();
+        IncrementalClusterSearch.Result results = clusterResults.get();
+        Baseline base = baseline;
 
         // Extract both vertexes and edges from the results; the lists form
         // pairs along the same index.
@@ -523,6 +586,14 @@ public class DefaultTopology extends AbstractModel implements Topology {
             Set<TopologyEdge> edgeSet = clusterEdges.get(i);
 
             ClusterId cid = ClusterId.clusterId(i);
+            Integer previous = results.retained().get(i);
+            if (base != null && previous != null) {
+                // Carry over the unchanged cluster from the previous topology
+                TopologyCluster carried = base.clusters.get(ClusterId.clusterId(previous));
+                clusterBuilder.put(cid, previous == i ? carried :
+                        new DefaultTopologyCluster(cid, carried.deviceCount(), carried.linkCount(), carried.root()));
+                continue;
+            }
             DefaultTopologyCluster cluster = new DefaultTopologyCluster(cid,
                                                                         vertexSet.size(),
                                                                         edgeSet.size(),
@@ -548,9 +619,18 @@ public class DefaultTopology extends AbstractModel implements Topology {
     // Processes a map of broadcast sets for each cluster.
     private ImmutableSetMultimap<ClusterId, ConnectPoint> buildBroadcastSets() {
         Builder<ClusterId, ConnectPoint> builder = ImmutableSetMultimap.builder();
+        Map<Integer, Integer> retained = clusterResults.get().retained();
+        Baseline base = baseline;
         for (TopologyCluster cluster : clusters.get().values()) {
-            addClusterBroadcastSet(cluster, builder);
+            Integer previous = retained.get(cluster.id().index());
+            if (base != null && previous != null && base.sameBroadcastSet(previous)) {
+                builder.putAll(cluster.id(), base.broadcastSets.get(ClusterId.clusterId(previous)));
+            } else {
+                addClusterBroadcastSet(cluster, builder);
+            }
         }
+        // The previous topology is no longer needed
+        baseline = null;
         return builder.build();
     }
 
@@ -647,6 +727,32 @@ public class DefaultTopology extends AbstractModel implements Topology {
         }
     }
 
+    // Results of the previous topology needed to compute the clusters and
+    // broadcast sets of the new one incrementally.
+    private final class Baseline {
+        final TopologyGraph graph;
+        final IncrementalClusterSearch.Result clusterResults;
+        final ImmutableMap<ClusterId, TopologyCluster> clusters;
+        final ImmutableSetMultimap<ClusterId, ConnectPoint> broadcastSets;
+        final int vertexCount;
+
+        Baseline(DefaultTopology previous) {
+            this.graph = previous.graph;
+            this.clusterResults = previous.clusterResults.get();
+            this.clusters = previous.clusters.get();
+            this.broadcastSets = previous.broadcastSets.get();
+            this.vertexCount = previous.graph.getVertexes().size();
+        }
+
+        // Indicates whether the broadcast set of an unchanged cluster is
+        // still valid; the cost of indirect links depends on the device count.
+        boolean sameBroadcastSet(int previous) {
+            return vertexCount == DefaultTopology.this.graph.getVertexes().size() ||
+                    clusterResults.clusterEdges().get(previous).stream()
+                            .noneMatch(edge -> edge.link().type() == INDIRECT);
+        }
+    }
+
     static final class ClusterIndexes {
         final ImmutableMap<DeviceId, TopologyCluster> clustersByDevice;
         final ImmutableSetMultimap<TopologyCluster, DeviceId> devicesByCluster;
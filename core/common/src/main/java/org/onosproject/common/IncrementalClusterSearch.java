@@ -0,0 +1,366 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.common;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.onlab.graph.EdgeWeight;
+import org.onlab.graph.TarjanGraphSearch;
+import org.onlab.graph.TarjanGraphSearch.SccResult;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyGraph;
+import org.onosproject.net.topology.TopologyVertex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Search for the strongly connected clusters of a topology graph, which
+ * reuses the clusters of the previous graph where the changes between the two
+ * graphs cannot have affected them.
+ * <p>
+ * A previous cluster is searched again only if it lost a device, if it lost
+ * a link without which its devices are no longer connected, or if it may lie
+ * on a new cycle formed by links added between clusters. Only the devices of
+ * those clusters, and any new devices, are searched with the Tarjan
+ * algorithm; all other clusters are carried over, with their links collected
+ * again from the new graph if any of them changed.
+ * </p>
+ */
+final class IncrementalClusterSearch {
+
+    private static final TarjanGraphSearch<TopologyVertex, TopologyEdge> TARJAN = new TarjanGraphSearch<>();
+
+    // Share of devices to search again beyond which a full search is used
+    private static final double MAX_SEARCH_RATIO = 0.5;
+
+    private IncrementalClusterSearch() {
+    }
+
+    /**
+     * Searches the whole graph for its clusters.
+     *
+     * @param graph  topology graph
+     * @param weight link weight; links with negative weight do not connect
+     * @return clusters
+     */
+    static Result search(TopologyGraph graph, EdgeWeight<TopologyVertex, TopologyEdge> weight) {
+        SccResult<TopologyVertex, TopologyEdge> scc = TARJAN.search(graph, weight);
+        return new Result(scc.clusterVertexes(), scc.clusterEdges(), ImmutableMap.of());
+    }
+
+    /**
+     * Searches the graph for its clusters, starting from the clusters of the
+     * previous graph.
+     *
+     * @param previousGraph    previous topology graph
+     * @param previousClusters clusters of the previous graph
+     * @param graph            topology graph
+     * @param weight           link weight; links with negative weight do not
+     *                         connect
+     * @return clusters
+     */
+    static Result search(TopologyGraph previousGraph, Result previousClusters,
+                         TopologyGraph graph, EdgeWeight<TopologyVertex, TopologyEdge> weight) {
+        // Index the previous clusters by device
+        Map<TopologyVertex, Integer> previousIndex = new HashMap<>();
+        for (int i = 0; i < previousClusters.clusterCount(); i++) {
+            for (TopologyVertex vertex : previousClusters.clusterVertexes().get(i)) {
+                previousIndex.put(vertex, i);
+            }
+        }
+
+        BitSet dirty = new BitSet(previousClusters.clusterCount());
+        BitSet touched = new BitSet(previousClusters.clusterCount());
+        Set<TopologyVertex> added = new HashSet<>();
+
+        for (TopologyVertex vertex : previousGraph.getVertexes()) {
+            if (!graph.getVertexes().contains(vertex)) {
+                dirty.set(previousIndex.get(vertex));
+            }
+        }
+        for (TopologyVertex vertex : graph.getVertexes()) {
+            if (!previousIndex.containsKey(vertex)) {
+                added.add(vertex);
+            }
+        }
+
+        // Links no longer connecting devices of the same cluster split it,
+        // unless the devices are still connected within the cluster.
+        List<TopologyEdge> removedLinks = new ArrayList<>();
+        for (TopologyEdge edge : previousGraph.getEdges()) {
+            TopologyEdge current = find(graph, edge);
+            if (current == null || !PathCache.isSame(edge.link(), current.link())) {
+                touch(touched, previousIndex, edge);
+            }
+            if (connects(edge, weight) && (current == null || !connects(current, weight))) {
+                removedLinks.add(edge);
+            }
+        }
+        for (TopologyEdge edge : removedLinks) {
+            Integer cluster = previousIndex.get(edge.src());
+            if (cluster != null && cluster.equals(previousIndex.get(edge.dst())) && !dirty.get(cluster)
+                    && !reachable(graph, edge.src(), edge.dst(),
+                                  previousClusters.clusterVertexes().get(cluster), weight)) {
+                dirty.set(cluster);
+            }
+        }
+
+        // Links connecting devices of different clusters merge all clusters
+        // on the cycles they close.
+        List<TopologyEdge> addedLinks = new ArrayList<>();
+        for (TopologyEdge edge : graph.getEdges()) {
+            TopologyEdge previous = find(previousGraph, edge);
+            if (previous == null || !PathCache.isSame(edge.link(), previous.link())) {
+                touch(touched, previousIndex, edge);
+            }
+            if (connects(edge, weight) && (previous == null || !connects(previous, weight))) {
+                Integer srcCluster = previousIndex.get(edge.src());
+                if (srcCluster == null || !srcCluster.equals(previousIndex.get(edge.dst()))) {
+                    addedLinks.add(edge);
+                }
+            }
+        }
+        // Any new cycle runs from the far end of an added link back to the
+        // near end of one; the devices reachable from the far ends which in
+        // turn reach a near end cover all such cycles. Two traversals, the
+        // second within the devices reached by the first, cover all added
+        // links at once.
+        if (!addedLinks.isEmpty()) {
+            Set<TopologyVertex> dsts = new HashSet<>();
+            Set<TopologyVertex> srcs = new HashSet<>();
+            addedLinks.forEach(edge -> {
+                dsts.add(edge.dst());
+                srcs.add(edge.src());
+            });
+            Set<TopologyVertex> reached = reach(graph, dsts, weight, true, null);
+            srcs.retainAll(reached);
+            for (TopologyVertex vertex : reach(graph, srcs, weight, false, reached)) {
+                Integer cluster = previousIndex.get(vertex);
+                if (cluster != null) {
+                    dirty.set(cluster);
+                }
+            }
+        }
+
+        // Collect the devices to search again
+        Set<TopologyVertex> searched = new HashSet<>(added);
+        dirty.stream().forEach(i -> previousClusters.clusterVertexes().get(i).stream()
+                .filter(graph.getVertexes()::contains)
+                .forEach(searched::add));
+        if (searched.size() > graph.getVertexes().size() * MAX_SEARCH_RATIO) {
+            return search(graph, weight);
+        }
+
+        Set<TopologyEdge> searchedEdges = new HashSet<>();
+        for (TopologyVertex vertex : searched) {
+            for (TopologyEdge edge : graph.getEdgesFrom(vertex)) {
+                if (searched.contains(edge.dst())) {
+                    searchedEdges.add(edge);
+                }
+            }
+        }
+        SccResult<TopologyVertex, TopologyEdge> scc =
+                TARJAN.search(new DefaultTopologyGraph(searched, searchedEdges), weight);
+
+        // Carried over clusters keep their index where possible; all other
+        // clusters take the free indexes so that they remain contiguous.
+        int count = previousClusters.clusterCount() - dirty.cardinality() + scc.clusterCount();
+        List<Set<TopologyVertex>> vertexes = new ArrayList<>(Collections.nCopies(count, null));
+        List<Set<TopologyEdge>> edges = new ArrayList<>(Collections.nCopies(count, null));
+        Map<Integer, Integer> retained = new HashMap<>();
+        List<Integer> moved = new ArrayList<>();
+        for (int i = dirty.nextClearBit(0); i < previousClusters.clusterCount(); i = dirty.nextClearBit(i + 1)) {
+            if (i < count) {
+                carryOver(previousClusters, i, i, touched, graph, vertexes, edges, retained);
+            } else {
+                moved.add(i);
+            }
+        }
+        int free = 0;
+        for (int i : moved) {
+            free = nextFree(vertexes, free);
+            carryOver(previousClusters, i, free, touched, graph, vertexes, edges, retained);
+        }
+        for (int i = 0; i < scc.clusterCount(); i++) {
+            free = nextFree(vertexes, free);
+            vertexes.set(free, scc.clusterVertexes().get(i));
+            edges.set(free, scc.clusterEdges().get(i));
+        }
+        return new Result(vertexes, edges, retained);
+    }
+
+    // Places a previous cluster at the given index, searching its links
+    // again if any of them changed.
+    private static void carryOver(Result previousClusters, int previous, int index, BitSet touched,
+                                  TopologyGraph graph, List<Set<TopologyVertex>> vertexes,
+                                  List<Set<TopologyEdge>> edges, Map<Integer, Integer> retained) {
+        Set<TopologyVertex> clusterVertexes = previousClusters.clusterVertexes().get(previous);
+        vertexes.set(index, clusterVertexes);
+        if (!touched.get(previous)) {
+            edges.set(index, previousClusters.clusterEdges().get(previous));
+            retained.put(index, previous);
+            return;
+        }
+        Set<TopologyEdge> clusterEdges = new HashSet<>();
+        for (TopologyVertex vertex : clusterVertexes) {
+            for (TopologyEdge edge : graph.getEdgesFrom(vertex)) {
+                if (clusterVertexes.contains(edge.dst())) {
+                    clusterEdges.add(edge);
+                }
+            }
+        }
+        edges.set(index, Collections.unmodifiableSet(clusterEdges));
+    }
+
+    private static int nextFree(List<?> list, int from) {
+        int i = from;
+        while (list.get(i) != null) {
+            i++;
+        }
+        return i;
+    }
+
+    // Marks the clusters of both ends of a changed link as touched
+    private static void touch(BitSet touched, Map<TopologyVertex, Integer> index, TopologyEdge edge) {
+        Integer src = index.get(edge.src());
+        Integer dst = index.get(edge.dst());
+        if (src != null) {
+            touched.set(src);
+        }
+        if (dst != null) {
+            touched.set(dst);
+        }
+    }
+
+    // Finds the edge equal to the given one in a graph
+    private static TopologyEdge find(TopologyGraph graph, TopologyEdge edge) {
+        for (TopologyEdge candidate : graph.getEdgesFrom(edge.src())) {
+            if (candidate.equals(edge)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static boolean connects(TopologyEdge edge, EdgeWeight<TopologyVertex, TopologyEdge> weight) {
+        return weight.weight(edge) >= 0;
+    }
+
+    // Indicates whether dst can be reached from src through the given devices
+    private static boolean reachable(TopologyGraph graph, TopologyVertex src, TopologyVertex dst,
+                                     Set<TopologyVertex> within,
+                                     EdgeWeight<TopologyVertex, TopologyEdge> weight) {
+        Set<TopologyVertex> seen = new HashSet<>();
+        Deque<TopologyVertex> pending = new ArrayDeque<>();
+        seen.add(src);
+        pending.add(src);
+        while (!pending.isEmpty()) {
+            for (TopologyEdge edge : graph.getEdgesFrom(pending.poll())) {
+                TopologyVertex next = edge.dst();
+                if (!connects(edge, weight) || !within.contains(next) || !seen.add(next)) {
+                    continue;
+                }
+                if (next.equals(dst)) {
+                    return true;
+                }
+                pending.add(next);
+            }
+        }
+        return false;
+    }
+
+    // Returns the devices reachable from, or if not forward reaching, any of
+    // the given devices, through the given devices only unless null.
+    private static Set<TopologyVertex> reach(TopologyGraph graph, Set<TopologyVertex> vertexes,
+                                             EdgeWeight<TopologyVertex, TopologyEdge> weight,
+                                             boolean forward, Set<TopologyVertex> within) {
+        Set<TopologyVertex> seen = new HashSet<>(vertexes);
+        Deque<TopologyVertex> pending = new ArrayDeque<>(vertexes);
+        while (!pending.isEmpty()) {
+            TopologyVertex current = pending.poll();
+            for (TopologyEdge edge : forward ? graph.getEdgesFrom(current) : graph.getEdgesTo(current)) {
+                TopologyVertex next = forward ? edge.dst() : edge.src();
+                if (connects(edge, weight) && (within == null || within.contains(next)) && seen.add(next)) {
+                    pending.add(next);
+                }
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * Clusters of a topology graph.
+     */
+    static final class Result {
+        private final List<Set<TopologyVertex>> clusterVertexes;
+        private final List<Set<TopologyEdge>> clusterEdges;
+        private final Map<Integer, Integer> retained;
+
+        private Result(List<Set<TopologyVertex>> clusterVertexes,
+                       List<Set<TopologyEdge>> clusterEdges,
+                       Map<Integer, Integer> retained) {
+            this.clusterVertexes = ImmutableList.copyOf(clusterVertexes);
+            this.clusterEdges = ImmutableList.copyOf(clusterEdges);
+            this.retained = ImmutableMap.copyOf(retained);
+        }
+
+        /**
+         * Returns the number of clusters.
+         *
+         * @return cluster count
+         */
+        int clusterCount() {
+            return clusterVertexes.size();
+        }
+
+        /**
+         * Returns the devices of each cluster, indexed by cluster.
+         *
+         * @return cluster vertexes
+         */
+        List<Set<TopologyVertex>> clusterVertexes() {
+            return clusterVertexes;
+        }
+
+        /**
+         * Returns the links of each cluster, indexed by cluster.
+         *
+         * @return cluster edges
+         */
+        List<Set<TopologyEdge>> clusterEdges() {
+            return clusterEdges;
+        }
+
+        /**
+         * Returns the clusters carried over unchanged from the previous graph,
+         * mapping their index to their index in the previous graph.
+         *
+         * @return retained cluster indexes
+         */
+        Map<Integer, Integer> retained() {
+            return retained;
+        }
+    }
+}
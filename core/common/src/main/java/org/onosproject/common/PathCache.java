@@ -0,0 +1,302 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.common;
+
+import com.google.common.collect.Maps;
+import org.onosproject.net.AnnotationsUtil;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Link;
+import org.onosproject.net.LinkKey;
+import org.onosproject.net.Path;
+import org.onosproject.net.topology.TopologyEdge;
+import org.onosproject.net.topology.TopologyGraph;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static org.onosproject.net.LinkKey.linkKey;
+
+/**
+ * Bounded cache of shortest-path results computed against one topology.
+ * <p>
+ * Results are keyed by source, destination, link weight function and path
+ * search algorithm, the latter two by identity, and are reverse-indexed by
+ * the links they traverse. When the next topology is built, the cache is
+ * carried over with only the results traversing removed links evicted;
+ * shortest paths avoiding a removed link remain shortest. Added or changed
+ * links may create shorter paths anywhere and so discard all results.
+ * </p>
+ * <p>
+ * Carried-over results are only valid as long as the link weight functions
+ * used derive the cost of a link solely from the link itself; the results
+ * of any other weight must be excluded from the derived cache.
+ * </p>
+ */
+public final class PathCache {
+
+    /**
+     * Default maximum number of results held by the cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final int maxEntries;
+    private final Counters counters;
+
+    // Results in least-recently-used order, and the results traversing
+    // each link; both guarded by this
+    private final LinkedHashMap<Key, Set<Path>> entries;
+    private final Map<LinkKey, Set<Key>> index = new HashMap<>();
+
+    /**
+     * Creates an empty path cache.
+     *
+     * @param maxEntries maximum number of results held
+     */
+    PathCache(int maxEntries) {
+        this(maxEntries, new Counters());
+    }
+
+    private PathCache(int maxEntries, Counters counters) {
+        this.maxEntries = maxEntries;
+        this.counters = counters;
+        this.entries = new LinkedHashMap<Key, Set<Path>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Set<Path>> eldest) {
+                if (size() <= PathCache.this.maxEntries) {
+                    return false;
+                }
+                unindex(eldest.getKey(), eldest.getValue());
+                PathCache.this.counters.evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached shortest paths between the given devices, computing
+     * and caching them if absent.
+     *
+     * @param src     source device
+     * @param dst     destination device
+     * @param weight  link weight function or a stand-in for it
+     * @param search  path search algorithm
+     * @param compute computes the paths on a miss
+     * @return set of shortest paths
+     */
+    Set<Path> getPaths(DeviceId src, DeviceId dst, Object weight, Object search,
+                       Supplier<Set<Path>> compute) {
+        Key key = new Key(src, dst, weight, search);
+        synchronized (this) {
+            Set<Path> paths = entries.get(key);
+            if (paths != null) {
+                counters.hits.incrementAndGet();
+                return paths;
+            }
+        }
+        counters.misses.incrementAndGet();
+
+        // Compute outside of the lock; concurrent misses on the same key
+        // yield the same result
+        Set<Path> paths = compute.get();
+        synchronized (this) {
+            if (!entries.containsKey(key)) {
+                entries.put(key, paths);
+                paths.forEach(path -> path.links().forEach(
+                        link -> index.computeIfAbsent(linkKey(link), k -> new HashSet<>()).add(key)));
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Derives the cache for the next topology, retaining the results which
+     * remain valid in view of the link changes between the two graphs.
+     *
+     * @param previous           graph this cache was populated against
+     * @param next               graph of the next topology
+     * @param retainedWeightKeys predicate selecting the weights whose results
+     *                           may be retained at all
+     * @return cache for the next topology
+     */
+    PathCache derive(TopologyGraph previous, TopologyGraph next,
+                     Predicate<Object> retainedWeightKeys) {
+        PathCache derived = new PathCache(maxEntries, counters);
+        if (size() == 0) {
+            return derived;
+        }
+        Map<LinkKey, Link> removed = Maps.newHashMapWithExpectedSize(previous.getEdges().size());
+        for (TopologyEdge edge : previous.getEdges()) {
+            removed.put(linkKey(edge.link()), edge.link());
+        }
+        for (TopologyEdge edge : next.getEdges()) {
+            Link link = removed.remove(linkKey(edge.link()));
+            if (link == null || !isSame(link, edge.link())) {
+                // New or changed link; nothing can be retained
+                counters.invalidations.addAndGet(size());
+                return derived;
+            }
+        }
+
+        synchronized (this) {
+            Set<Key> evicted = new HashSet<>();
+            removed.keySet().forEach(key -> evicted.addAll(index.getOrDefault(key, Collections.emptySet())));
+            entries.forEach((key, paths) -> {
+                if (!evicted.contains(key) && retainedWeightKeys.test(key.weight)) {
+                    derived.entries.put(key, paths);
+                    paths.forEach(path -> path.links().forEach(
+                            link -> derived.index.computeIfAbsent(linkKey(link),
+                                                                  k -> new HashSet<>()).add(key)));
+                }
+            });
+            counters.invalidations.addAndGet(entries.size() - derived.entries.size());
+        }
+        return derived;
+    }
+
+    /**
+     * Indicates whether a link is unchanged in all respects a link weight
+     * function may consider, i.e. including its state, durability, provider
+     * and annotations rather than only its end-points and type.
+     *
+     * @param a link
+     * @param b other link
+     * @return true if the links are the same in all respects
+     */
+    static boolean isSame(Link a, Link b) {
+        return a.equals(b) && a.state() == b.state() && a.isDurable() == b.isDurable() &&
+                Objects.equals(a.providerId(), b.providerId()) &&
+                AnnotationsUtil.isEqual(a.annotations(), b.annotations());
+    }
+
+    private void unindex(Key key, Set<Path> paths) {
+        paths.forEach(path -> path.links().forEach(link -> {
+            Set<Key> keys = index.get(linkKey(link));
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                index.remove(linkKey(link));
+            }
+        }));
+    }
+
+    /**
+     * Returns the number of results currently held.
+     *
+     * @return number of cached results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups answered from this cache and the caches
+     * it was derived from.
+     *
+     * @return cumulative hit count
+     */
+    public long hitCount() {
+        return counters.hits.get();
+    }
+
+    /**
+     * Returns the number of lookups which required a path search, across
+     * this cache and the caches it was derived from.
+     *
+     * @return cumulative miss count
+     */
+    public long missCount() {
+        return counters.misses.get();
+    }
+
+    /**
+     * Returns the number of results evicted to keep within the size bound,
+     * across this cache and the caches it was derived from.
+     *
+     * @return cumulative eviction count
+     */
+    public long evictionCount() {
+        return counters.evictions.get();
+    }
+
+    /**
+     * Returns the number of results discarded due to topology changes,
+     * across this cache and the caches it was derived from.
+     *
+     * @return cumulative invalidation count
+     */
+    public long invalidationCount() {
+        return counters.invalidations.get();
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("size", size())
+                .add("hits", hitCount())
+                .add("misses", missCount())
+                .add("evictions", evictionCount())
+                .add("invalidations", invalidationCount())
+                .toString();
+    }
+
+    // Counters shared along a chain of derived caches
+    private static final class Counters {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong evictions = new AtomicLong();
+        final AtomicLong invalidations = new AtomicLong();
+    }
+
+    // Cache key; weight and search algorithm are compared by identity
+    private static final class Key {
+        final DeviceId src;
+        final DeviceId dst;
+        final Object weight;
+        final Object search;
+
+        Key(DeviceId src, DeviceId dst, Object weight, Object search) {
+            this.src = src;
+            this.dst = dst;
+            this.weight = weight;
+            this.search = search;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(src, dst, System.identityHashCode(weight), System.identityHashCode(search));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof Key) {
+                Key other = (Key) obj;
+                return weight == other.weight && search == other.search &&
+                        src.equals(other.src) && dst.equals(other.dst);
+            }
+            return false;
+        }
+    }
+}
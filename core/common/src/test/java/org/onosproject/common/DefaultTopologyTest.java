@@ -18,7 +18,9 @@ package org.onosproject.common;
 import org.junit.Before;
 import org.junit.Test;
 import org.onlab.packet.ChassisId;
+import org.onosproject.net.AnnotationKeys;
 import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultAnnotations;
 import org.onosproject.net.DefaultDevice;
 import org.onosproject.net.DefaultLink;
 import org.onosproject.net.Device;
@@ -31,10 +33,14 @@ import org.onosproject.net.topology.ClusterId;
 import org.onosproject.net.topology.DefaultGraphDescription;
 import org.onosproject.net.topology.DefaultTopologyVertex;
 import org.onosproject.net.topology.GraphDescription;
+import org.onosproject.net.topology.LinkOnlyWeight;
 import org.onosproject.net.topology.LinkWeight;
 import org.onosproject.net.topology.TopologyCluster;
 import org.onosproject.net.topology.TopologyVertex;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 
 import static com.google.common.collect.ImmutableSet.of;
@@ -61,7 +67,7 @@ public class DefaultTopologyTest {
     public static final PortNumber P1 = portNumber(1);
     public static final PortNumber P2 = portNumber(2);
 
-    public static final LinkWeight WEIGHT = edge ->
+    public static final LinkOnlyWeight WEIGHT = edge ->
             edge.src().deviceId().equals(D4) || edge.dst().deviceId().equals(D4)
                     ? 2.0 : 1.0;
 
@@ -129,6 +135,189 @@ public class DefaultTopologyTest {
         assertFalse("cluster should not contain D5", devs.contains(D5));
     }
 
+    @Test
+    public void cachedPaths() {
+        Set<Path> paths = dt.getPaths(D1, D3, WEIGHT);
+        assertSame("paths should be cached", paths, dt.getPaths(D1, D3, WEIGHT));
+        assertEquals("incorrect hit count", 1, dt.pathCache().hitCount());
+        assertEquals("incorrect miss count", 1, dt.pathCache().missCount());
+        Set<Path> defaultPaths = dt.getPaths(D1, D2);
+
+        // Removing a link off the cached paths retains them.
+        DefaultTopology next = incremental(dt, devices(), links(link("3", 4, "4", 4)));
+        assertSame("paths should be retained", paths, next.getPaths(D1, D3, WEIGHT));
+        assertSame("paths should be retained", defaultPaths, next.getPaths(D1, D2));
+
+        // Removing a link on the cached paths evicts them.
+        next = incremental(next, devices(), links(link("3", 4, "4", 4), link("1", 1, "2", 1)));
+        assertEquals("incorrect cache size", 0, next.pathCache().size());
+        paths = next.getPaths(D1, D3, WEIGHT);
+        assertEquals("incorrect path count", 1, paths.size());
+        assertEquals("incorrect path length", 2, paths.iterator().next().links().size());
+        assertEquals("incorrect path cost", 4.0, paths.iterator().next().cost(), 0.01);
+
+        // Adding a link discards all cached paths.
+        next = incremental(next, devices(), links(link("3", 4, "4", 4)));
+        assertEquals("incorrect cache size", 0, next.pathCache().size());
+        assertEquals("incorrect path cost", 2.0, next.getPaths(D1, D3, WEIGHT).iterator().next().cost(), 0.01);
+        assertEquals("incorrect hit count", 3, next.pathCache().hitCount());
+    }
+
+    @Test
+    public void pathsOfOtherWeightsDiscarded() {
+        // A weight not known to depend on the link alone, e.g. on device
+        // locations, may change its costs without any link changing.
+        LinkWeight weight = edge -> 1.0;
+        Set<Path> paths = dt.getPaths(D1, D3, weight);
+        Set<Path> linkOnlyPaths = dt.getPaths(D1, D3, WEIGHT);
+
+        DefaultTopology next = incremental(dt, devices(), links(link("3", 4, "4", 4)));
+        assertEquals("incorrect cache size", 1, next.pathCache().size());
+        assertSame("paths should be retained", linkOnlyPaths, next.getPaths(D1, D3, WEIGHT));
+        assertNotSame("paths should be recomputed", paths, next.getPaths(D1, D3, weight));
+    }
+
+    @Test
+    public void incrementalLinkChanges() {
+        // Removing one direction of a bidirectional link leaves the cluster
+        // connected through the other devices.
+        DefaultTopology next = incremental(dt, devices(), links(link("1", 1, "2", 1)));
+        assertEquals("incorrect cluster count", 2, next.clusterCount());
+        assertSameClusters(next);
+        assertEquals("cluster should be carried over", dt.getCluster(D5), next.getCluster(D5));
+
+        // Removing both directions of links splits the cluster.
+        next = incremental(next, devices(), links(link("1", 1, "2", 1), link("2", 1, "1", 1),
+                                                  link("1", 3, "4", 3), link("4", 3, "1", 3)));
+        assertEquals("incorrect cluster count", 3, next.clusterCount());
+        assertSameClusters(next);
+
+        // Connecting the isolated device merges it back in.
+        Set<Link> links = links();
+        links.add(link("5", 1, "3", 5));
+        links.add(link("3", 5, "5", 1));
+        next = incremental(next, devices(), links);
+        assertEquals("incorrect cluster count", 1, next.clusterCount());
+        assertSameClusters(next);
+        assertEquals("incorrect broadcast set size", 8, next.broadcastSetSize(C0));
+    }
+
+    @Test
+    public void incrementalAnnotationChanges() {
+        // Links equal but for their annotations replace those of the cluster.
+        Link annotated = DefaultLink.builder().providerId(PID)
+                .src(new ConnectPoint(did("1"), portNumber(1)))
+                .dst(new ConnectPoint(did("2"), portNumber(1)))
+                .type(Link.Type.DIRECT)
+                .annotations(DefaultAnnotations.builder().set(AnnotationKeys.METRIC, "5").build())
+                .build();
+        Set<Link> links = links(annotated);
+        links.add(annotated);
+        DefaultTopology next = incremental(dt, devices(), links);
+        assertSameClusters(next);
+        Link link = next.getClusterLinks(next.getCluster(D1)).stream()
+                .filter(annotated::equals).findFirst().get();
+        assertEquals("incorrect link annotation", "5", link.annotations().value(AnnotationKeys.METRIC));
+    }
+
+    @Test
+    public void incrementalDeviceChanges() {
+        Set<Device> devices = devices();
+        devices.remove(device("4"));
+        DefaultTopology next = incremental(dt, devices, links(link("1", 3, "4", 3), link("4", 3, "1", 3),
+                                                               link("3", 4, "4", 4), link("4", 4, "3", 4)));
+        assertEquals("incorrect cluster count", 2, next.clusterCount());
+        assertSameClusters(next);
+
+        devices.add(device("6"));
+        next = incremental(next, devices, links(link("1", 3, "4", 3), link("4", 3, "1", 3),
+                                                 link("3", 4, "4", 4), link("4", 4, "3", 4)));
+        assertEquals("incorrect cluster count", 3, next.clusterCount());
+        assertSameClusters(next);
+    }
+
+    @Test
+    public void incrementalRandomChanges() {
+        Random random = new Random(42);
+        Set<Device> devices = new HashSet<>();
+        for (int i = 1; i <= 40; i++) {
+            devices.add(device(Integer.toString(i)));
+        }
+        Set<Link> links = new HashSet<>();
+        DefaultTopology topology = null;
+        for (int round = 0; round < 200; round++) {
+            for (int change = random.nextInt(4); change >= 0; change--) {
+                String src = Integer.toString(1 + random.nextInt(40));
+                String dst = Integer.toString(1 + random.nextInt(40));
+                Link link = link(src, 1 + random.nextInt(3), dst, 1 + random.nextInt(3));
+                if (!links.remove(link)) {
+                    links.add(link);
+                }
+            }
+            topology = new DefaultTopology(PID, new DefaultGraphDescription(round, round, devices, links),
+                                           null, topology);
+            assertSameClusters(topology);
+        }
+    }
+
+    // Computes the next topology incrementally from the given one
+    private DefaultTopology incremental(DefaultTopology previous, Set<Device> devices, Set<Link> links) {
+        GraphDescription description =
+                new DefaultGraphDescription(System.nanoTime(), System.currentTimeMillis(), devices, links);
+        return new DefaultTopology(PID, description, null, previous);
+    }
+
+    // Verifies that the topology has the same clusters as one computed from
+    // scratch.
+    private void assertSameClusters(DefaultTopology topology) {
+        Set<Device> devices = new HashSet<>();
+        topology.getGraph().getVertexes().forEach(v -> devices.add(device(v.deviceId().toString().substring(3))));
+        Set<Link> links = new HashSet<>();
+        topology.getGraph().getEdges().forEach(e -> links.add(e.link()));
+        DefaultTopology full = new DefaultTopology(PID, new DefaultGraphDescription(0, 0, devices, links));
+
+        assertEquals("incorrect cluster count", full.clusterCount(), topology.clusterCount());
+        Set<Set<DeviceId>> expected = new HashSet<>();
+        full.getClusters().forEach(c -> expected.add(full.getClusterDevices(c)));
+        Set<Set<DeviceId>> actual = new HashSet<>();
+        for (TopologyCluster cluster : topology.getClusters()) {
+            actual.add(topology.getClusterDevices(cluster));
+            assertEquals("incorrect cluster links", full.getClusterLinks(full.getCluster(cluster.root().deviceId())),
+                         topology.getClusterLinks(cluster));
+            assertBroadcastTree(topology, cluster);
+        }
+        assertEquals("incorrect clusters", expected, actual);
+    }
+
+    // Verifies that the cluster broadcast points span all cluster devices;
+    // spanning trees are not unique, so their size may differ.
+    private void assertBroadcastTree(DefaultTopology topology, TopologyCluster cluster) {
+        Set<DeviceId> devices = new HashSet<>();
+        for (Link link : topology.getClusterLinks(cluster)) {
+            if (topology.isBroadcastPoint(link.src()) && topology.isBroadcastPoint(link.dst())) {
+                devices.add(link.src().deviceId());
+                devices.add(link.dst().deviceId());
+            }
+        }
+        if (cluster.deviceCount() > 1) {
+            assertEquals("incorrect broadcast tree", topology.getClusterDevices(cluster), devices);
+        }
+    }
+
+        private static Set<Device> devices() {
+        return new HashSet<>(of(device("1"), device("2"), device("3"), device("4"), device("5")));
+    }
+
+    // Returns the links of the test topology, except the given ones
+    private static Set<Link> links(Link... except) {
+        Set<Link> links = new HashSet<>(of(link("1", 1, "2", 1), link("2", 1, "1", 1),
+                                           link("3", 2, "2", 2), link("2", 2, "3", 2),
+                                           link("1", 3, "4", 3), link("4", 3, "1", 3),
+                                           link("3", 4, "4", 4), link("4", 4, "3", 4)));
+        links.removeAll(Arrays.asList(except));
+        return links;
+    }
+
     // Short-hand for creating a link.
     public static Link link(String src, int sp, String dst, int dp) {
         return DefaultLink.builder().providerId(PID)
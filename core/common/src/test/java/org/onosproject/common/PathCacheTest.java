@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.common;
+
+import org.junit.Test;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.Path;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.onosproject.net.DeviceId.deviceId;
+
+/**
+ * Tests of the path cache.
+ */
+public class PathCacheTest {
+
+    private static final DeviceId D1 = deviceId("of:1");
+    private static final DeviceId D2 = deviceId("of:2");
+    private static final DeviceId D3 = deviceId("of:3");
+    private static final Object WEIGHT = new Object();
+    private static final Object SEARCH = new Object();
+
+    @Test
+    public void keyedByIdentity() {
+        PathCache cache = new PathCache(10);
+        Set<Path> paths = cache.getPaths(D1, D2, WEIGHT, SEARCH, HashSet::new);
+        assertSame("paths should be cached", paths, cache.getPaths(D1, D2, WEIGHT, SEARCH, HashSet::new));
+        cache.getPaths(D1, D2, new Object(), SEARCH, HashSet::new);
+        cache.getPaths(D1, D2, WEIGHT, new Object(), HashSet::new);
+        cache.getPaths(D2, D1, WEIGHT, SEARCH, HashSet::new);
+        assertEquals("incorrect size", 4, cache.size());
+        assertEquals("incorrect hit count", 1, cache.hitCount());
+        assertEquals("incorrect miss count", 4, cache.missCount());
+    }
+
+    @Test
+    public void bounded() {
+        PathCache cache = new PathCache(2);
+        Set<Path> paths = cache.getPaths(D1, D2, WEIGHT, SEARCH, HashSet::new);
+        cache.getPaths(D1, D3, WEIGHT, SEARCH, HashSet::new);
+        cache.getPaths(D1, D2, WEIGHT, SEARCH, HashSet::new);
+        cache.getPaths(D2, D3, WEIGHT, SEARCH, HashSet::new);
+        assertEquals("incorrect size", 2, cache.size());
+        assertEquals("incorrect eviction count", 1, cache.evictionCount());
+
+        // Least recently used entry is the one evicted
+        assertSame("paths should be cached", paths, cache.getPaths(D1, D2, WEIGHT, SEARCH, HashSet::new));
+        assertNotSame("paths should have been evicted", paths,
+                      cache.getPaths(D1, D3, WEIGHT, SEARCH, HashSet::new));
+    }
+}
@@ -171,7 +171,7 @@ public class SimpleFlowRuleStore
         return flowEntries.computeIfAbsent(deviceId, k -> new ConcurrentHashMap<>());
     }
 
-    private List<StoredFlowEntry> getFlowEntries(DeviceId deviceId, FlowId flowId) {
+    private List<StoredFlowEntry> getFlowEntriesInternal(DeviceId deviceId, FlowId flowId) {
         final ConcurrentMap<FlowId, List<StoredFlowEntry>> flowTable = getFlowTable(deviceId);
         List<StoredFlowEntry> r = flowTable.get(flowId);
         if (r == null) {
@@ -186,7 +186,7 @@ public class SimpleFlowRuleStore
     }
 
     private FlowEntry getFlowEntryInternal(DeviceId deviceId, FlowRule rule) {
-        List<StoredFlowEntry> fes = getFlowEntries(deviceId, rule.id());
+        List<StoredFlowEntry> fes = getFlowEntriesInternal(deviceId, rule.id());
         for (StoredFlowEntry fe : fes) {
             if (fe.equals(rule)) {
                 return fe;
@@ -216,7 +216,7 @@ public class SimpleFlowRuleStore
         StoredFlowEntry f = new DefaultFlowEntry(rule);
         final DeviceId did = f.deviceId();
         final FlowId fid = f.id();
-        List<StoredFlowEntry> existing = getFlowEntries(did, fid);
+        List<StoredFlowEntry> existing = getFlowEntriesInternal(did, fid);
         synchronized (existing) {
             for (StoredFlowEntry fe : existing) {
                 if (fe.equals(rule)) {
@@ -232,7 +232,7 @@ public class SimpleFlowRuleStore
     @Override
     public void deleteFlowRule(FlowRule rule) {
 
-        List<StoredFlowEntry> entries = getFlowEntries(rule.deviceId(), rule.id());
+        List<StoredFlowEntry> entries = getFlowEntriesInternal(rule.deviceId(), rule.id());
 
         synchronized (entries) {
             for (StoredFlowEntry entry : entries) {
@@ -251,7 +251,7 @@ public class SimpleFlowRuleStore
     @Override
     public FlowRuleEvent addOrUpdateFlowRule(FlowEntry rule) {
         // check if this new rule is an update to an existing entry
-        List<StoredFlowEntry> entries = getFlowEntries(rule.deviceId(), rule.id());
+        List<StoredFlowEntry> entries = getFlowEntriesInternal(rule.deviceId(), rule.id());
         synchronized (entries) {
             for (StoredFlowEntry stored : entries) {
                 if (stored.equals(rule)) {
@@ -279,12 +279,31 @@ public class SimpleFlowRuleStore
         return null;
     }
 
+    @Override
+    public boolean refreshFlowRule(DeviceId deviceId, FlowId flowId, long life, TimeUnit unit) {
+        List<StoredFlowEntry> entries = getFlowEntriesInternal(deviceId, flowId);
+        synchronized (entries) {
+            if (entries.size() != 1) {
+                return false;
+            }
+            StoredFlowEntry stored = entries.get(0);
+            synchronized (stored) {
+                if (stored.state() != FlowEntryState.ADDED) {
+                    return false;
+                }
+                stored.setLife(life, unit);
+                stored.setLastSeen();
+                return true;
+            }
+        }
+    }
+
     @Override
     public FlowRuleEvent removeFlowRule(FlowEntry rule) {
         // This is where one could mark a rule as removed and still keep it in the store.
         final DeviceId did = rule.deviceId();
 
-        List<StoredFlowEntry> entries = getFlowEntries(did, rule.id());
+        List<StoredFlowEntry> entries = getFlowEntriesInternal(did, rule.id());
         synchronized (entries) {
             if (entries.remove(rule)) {
                 return new FlowRuleEvent(RULE_REMOVED, rule);
@@ -295,7 +314,7 @@ public class SimpleFlowRuleStore
 
     @Override
     public FlowRuleEvent pendingFlowRule(FlowEntry rule) {
-        List<StoredFlowEntry> entries = getFlowEntries(rule.deviceId(), rule.id());
+        List<StoredFlowEntry> entries = getFlowEntriesInternal(rule.deviceId(), rule.id());
         synchronized (entries) {
             for (StoredFlowEntry entry : entries) {
                 if (entry.equals(rule) &&
@@ -324,12 +343,12 @@ public class SimpleFlowRuleStore
         for (FlowRuleBatchEntry entry : operation.getOperations()) {
             final FlowRule flowRule = entry.target();
             if (entry.operator().equals(FlowRuleOperation.ADD)) {
-                if (!getFlowEntries(flowRule.deviceId(), flowRule.id()).contains(flowRule)) {
+                if (!getFlowEntriesInternal(flowRule.deviceId(), flowRule.id()).contains(flowRule)) {
                     storeFlowRule(flowRule);
                     toAdd.add(entry);
                 }
             } else if (entry.operator().equals(FlowRuleOperation.REMOVE)) {
-                if (getFlowEntries(flowRule.deviceId(), flowRule.id()).contains(flowRule)) {
+                if (getFlowEntriesInternal(flowRule.deviceId(), flowRule.id()).contains(flowRule)) {
                     deleteFlowRule(flowRule);
                     toRemove.add(entry);
                 }
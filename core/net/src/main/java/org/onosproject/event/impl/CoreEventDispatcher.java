@@ -15,29 +15,38 @@
  */
 package org.onosproject.event.impl;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onlab.util.SharedExecutors;
-import org.onosproject.event.AbstractEvent;
 import org.onosproject.event.DefaultEventSinkRegistry;
 import org.onosproject.event.Event;
 import org.onosproject.event.EventDeliveryService;
 import org.onosproject.event.EventSink;
 import org.slf4j.Logger;
 
-import com.google.common.base.Stopwatch;
-
+import java.util.Map;
+import java.util.Queue;
 import java.util.TimerTask;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.security.AppGuard.checkPermission;
 import static org.onosproject.security.AppPermission.Type.EVENT_READ;
@@ -45,6 +54,14 @@ import static org.onosproject.security.AppPermission.Type.EVENT_WRITE;
 import static org.slf4j.LoggerFactory.getLogger;
 /**
  * Simple implementation of an event dispatching service.
+ * <p>
+ * Events are partitioned by event class, i.e. by sink. Each partition has its
+ * own queue, which is drained by one of a bounded pool of dispatch threads at
+ * a time, so that events are delivered to a sink in the order they were posted
+ * while a slow sink only holds up its own events. A sink exceeding the time
+ * limit is left behind on its thread; its partition moves on to a dispatch
+ * thread added in its place.
+ * </p>
  */
 @Component(immediate = true)
 @Service
@@ -53,41 +70,56 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
 
     private final Logger log = getLogger(getClass());
 
-    private boolean executionTimeLimit = false;
-
     // Default number of millis a sink can take to process an event.
     private static final long DEFAULT_EXECUTE_MS = 5_000; // ms
     private static final long WATCHDOG_MS = 250; // ms
 
-    private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+    // Number of dispatch threads shared by all partitions
+    private static final int DISPATCH_THREADS = 4;
+
+    // Number of events a partition dispatches before yielding its thread
+    private static final int DISPATCH_BATCH = 64;
+
+    // Start times of a dispatch run that is between events or abandoned
+    private static final long IDLE = 0;
+    private static final long ABANDONED = -1;
 
-    private final ExecutorService executor =
-            newSingleThreadExecutor(groupedThreads("onos/event", "dispatch-%d", log));
+    private static final String METRICS_COMPONENT = "CoreEventDispatcher";
+    private static final String QUEUE_DEPTH = "queueDepth";
+    private static final String LATENCY = "latencyMicros";
 
-    @SuppressWarnings("unchecked")
-    private static final Event KILL_PILL = new AbstractEvent(null, 0) {
-    };
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY)
+    protected MetricsService metricsService;
+
+    private final Map<Class<? extends Event>, Partition> partitions = new ConcurrentHashMap<>();
+
+    private volatile ThreadPoolExecutor executor;
+    private MetricsComponent metricsComponent;
 
-    private volatile DispatchLoop dispatchLoop;
     private long maxProcessMillis = DEFAULT_EXECUTE_MS;
 
     // Means to detect long-running sinks
     private TimerTask watchdog;
-    private volatile EventSink lastSink;
-    private final Stopwatch stopwatch = Stopwatch.createUnstarted();
-    private volatile Future<?> dispatchFuture;
 
     @Override
     public void post(Event event) {
-        if (!events.add(event)) {
-            log.error("Unable to post event {}", event);
-        }
+        Partition partition = partitions.computeIfAbsent(event.getClass(), Partition::new);
+        partition.add(event);
     }
 
     @Activate
     public void activate() {
-        dispatchLoop = new DispatchLoop();
-        dispatchFuture = executor.submit(dispatchLoop);
+        executor = new ThreadPoolExecutor(DISPATCH_THREADS, DISPATCH_THREADS, 0L, TimeUnit.MILLISECONDS,
+                                          new LinkedBlockingQueue<>(),
+                                          groupedThreads("onos/event", "dispatch-%d", log));
+        if (metricsService != null) {
+            metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+        }
+        // Dispatch anything posted before activation
+        partitions.values().forEach(partition -> {
+            partition.registerMetrics();
+            partition.schedule();
+        });
 
         if (maxProcessMillis != 0) {
             startWatchdog();
@@ -98,9 +130,11 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
 
     @Deactivate
     public void deactivate() {
-        dispatchLoop.stop();
         stopWatchdog();
-        post(KILL_PILL);
+        executor.shutdownNow();
+        partitions.values().forEach(Partition::removeMetrics);
+        partitions.clear();
+        metricsComponent = null;
         log.info("Stopped");
     }
 
@@ -138,48 +172,195 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
         return maxProcessMillis;
     }
 
-    // Auxiliary event dispatching loop that feeds off the events queue.
-    private class DispatchLoop implements Runnable {
-        private volatile boolean stopped;
+    // Queue of the events of one event class, dispatched by at most one
+    // thread at a time to preserve the order of delivery to the sink.
+    private final class Partition {
+        private final Class<? extends Event> eventClass;
+        private final Queue<PostedEvent> events = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
 
-        @Override
-        public void run() {
-            stopped = false;
-            log.info("Dispatch loop initiated");
-            while (!stopped) {
+        // Run currently draining the partition; watched for long-running sinks
+        private volatile DispatchRun run;
+
+        private MetricsFeature metricsFeature;
+        private Histogram latency;
+
+        private Partition(Class<? extends Event> eventClass) {
+            this.eventClass = eventClass;
+            registerMetrics();
+        }
+
+        private void add(Event event) {
+            events.add(new PostedEvent(event));
+            depth.incrementAndGet();
+            schedule();
+        }
+
+        // Submits the partition for dispatching unless it already is
+        private void schedule() {
+            ThreadPoolExecutor dispatchExecutor = executor;
+            if (dispatchExecutor == null || events.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            DispatchRun dispatchRun = new DispatchRun();
+            run = dispatchRun;
+            try {
+                dispatchExecutor.execute(dispatchRun);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                log.debug("Dispatcher is stopped; {} events left undelivered", eventClass.getName());
+            }
+        }
+
+        // Lets the partition continue on another thread after its run was
+        // abandoned; the stuck thread is left to the sink.
+        private void restart() {
+            scheduled.set(false);
+            schedule();
+        }
+
+        private void registerMetrics() {
+            if (metricsComponent == null || metricsFeature != null) {
+                return;
+            }
+            metricsFeature = metricsComponent.registerFeature(eventClass.getSimpleName());
+            metricsService.registerMetric(metricsComponent, metricsFeature, QUEUE_DEPTH,
+                                          (Gauge<Integer>) depth::get);
+            latency = metricsService.createHistogram(metricsComponent, metricsFeature, LATENCY);
+        }
+
+        private void removeMetrics() {
+            if (metricsFeature == null) {
+                return;
+            }
+            metricsService.removeMetric(metricsComponent, metricsFeature, QUEUE_DEPTH);
+            metricsService.removeMetric(metricsComponent, metricsFeature, LATENCY);
+            metricsFeature = null;
+            latency = null;
+        }
+
+        // One turn of a dispatch thread on the partition. The watchdog
+        // abandons it by swapping its start time for ABANDONED, which only
+        // succeeds while a sink is processing an event; the run then stops
+        // as soon as the sink returns, without touching the partition.
+        private final class DispatchRun implements Runnable {
+            private final AtomicLong startNanos = new AtomicLong(IDLE);
+            private volatile EventSink sink;
+            private Thread thread; // guarded by this
+
+            @Override
+            public void run() {
+                synchronized (this) {
+                    thread = Thread.currentThread();
+                }
                 try {
-                    // Fetch the next event and if it is the kill-pill, bail
-                    Event event = events.take();
-                    if (event == KILL_PILL) {
-                        break;
+                    for (int i = 0; i < DISPATCH_BATCH; i++) {
+                        PostedEvent posted = events.poll();
+                        if (posted == null) {
+                            break;
+                        }
+                        depth.decrementAndGet();
+                        if (!process(posted.event)) {
+                            return;
+                        }
+                        if (latency != null) {
+                            latency.update(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - posted.nanos));
+                        }
+                    }
+                } finally {
+                    synchronized (this) {
+                        thread = null;
                     }
-                    process(event);
-                } catch (InterruptedException e) {
-                    log.warn("Dispatch loop interrupted");
+                    if (startNanos.get() == ABANDONED) {
+                        // Clear the interrupt left by the watchdog and give
+                        // back the thread added in place of this one
+                        Thread.interrupted();
+                        releaseDispatchThread();
+                    } else {
+                        scheduled.set(false);
+                        schedule();
+                    }
+                }
+            }
+
+            // Locate the sink for the event class and use it to process the
+            // event; returns false if the run was abandoned meanwhile
+            @SuppressWarnings("unchecked")
+            private boolean process(Event event) {
+                EventSink eventSink = getSink(event.getClass());
+                if (eventSink == null) {
+                    log.warn("No sink registered for event class {}",
+                             event.getClass().getName());
+                    return true;
+                }
+                sink = eventSink;
+                long start = startedNanos();
+                startNanos.set(start);
+                try {
+                    eventSink.process(event);
                 } catch (Exception | Error e) {
                     log.warn("Error encountered while dispatching event:", e);
                 }
+                return startNanos.compareAndSet(start, IDLE);
+            }
+
+            // Returns the time the current event has been processed for
+            private long elapsedMillis(long start) {
+                return start == IDLE || start == ABANDONED ? 0 :
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
             }
-            log.info("Dispatch loop terminated");
-        }
 
-        // Locate the sink for the event class and use it to process the event
-        @SuppressWarnings("unchecked")
-        private void process(Event event) {
-            EventSink sink = getSink(event.getClass());
-            if (sink != null) {
-                lastSink = sink;
-                stopwatch.start();
-                sink.process(event);
-                stopwatch.reset();
-            } else {
-                log.warn("No sink registered for event class {}",
-                         event.getClass().getName());
+            // Marks the run as abandoned unless the sink has returned already
+            private boolean abandon(long start) {
+                return start != IDLE && start != ABANDONED &&
+                        startNanos.compareAndSet(start, ABANDONED);
+            }
+
+            // Interrupts the sink unless the run has left its thread already
+            private synchronized void interrupt() {
+                if (thread != null) {
+                    thread.interrupt();
+                }
             }
         }
+    }
 
-        void stop() {
-            stopped = true;
+    // Returns the current time, avoiding the values reserved for run states
+    private static long startedNanos() {
+        long now = System.nanoTime();
+        return now == IDLE || now == ABANDONED ? now + 2 : now;
+    }
+
+    // Adds a dispatch thread in place of one held by a stuck sink
+    private synchronized void addDispatchThread() {
+        ThreadPoolExecutor dispatchExecutor = executor;
+        if (dispatchExecutor == null || dispatchExecutor.isShutdown()) {
+            return;
+        }
+        int size = dispatchExecutor.getCorePoolSize() + 1;
+        dispatchExecutor.setMaximumPoolSize(size);
+        dispatchExecutor.setCorePoolSize(size);
+    }
+
+    // Removes the thread added for a stuck sink once that sink has returned
+    private synchronized void releaseDispatchThread() {
+        ThreadPoolExecutor dispatchExecutor = executor;
+        if (dispatchExecutor == null || dispatchExecutor.isShutdown()) {
+            return;
+        }
+        int size = Math.max(DISPATCH_THREADS, dispatchExecutor.getCorePoolSize() - 1);
+        dispatchExecutor.setCorePoolSize(size);
+        dispatchExecutor.setMaximumPoolSize(size);
+    }
+
+    // Event waiting in a partition queue, with the time it was posted
+    private static final class PostedEvent {
+        private final Event event;
+        private final long nanos = System.nanoTime();
+
+        private PostedEvent(Event event) {
+            this.event = event;
         }
     }
 
@@ -187,21 +368,28 @@ public class CoreEventDispatcher extends DefaultEventSinkRegistry
     private class Watchdog extends TimerTask {
         @Override
         public void run() {
-            long elapsedTimeMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
-            if (elapsedTimeMillis > maxProcessMillis) {
-                stopwatch.reset();
-                log.warn("Event sink {} exceeded execution time limit: {} ms; spawning new dispatch loop",
-                          lastSink.getClass().getName(), elapsedTimeMillis);
-
-                // Notify the sink that it has exceeded its time limit.
-                lastSink.onProcessLimit();
-
-                // Cancel the old dispatch loop and submit a new one.
-                dispatchLoop.stop();
-                dispatchLoop = new DispatchLoop();
-                dispatchFuture.cancel(true);
-                dispatchFuture = executor.submit(dispatchLoop);
-            }
+            partitions.values().forEach(partition -> {
+                Partition.DispatchRun run = partition.run;
+                if (run == null) {
+                    return;
+                }
+                long start = run.startNanos.get();
+                long elapsedTimeMillis = run.elapsedMillis(start);
+                if (elapsedTimeMillis > maxProcessMillis && run.abandon(start)) {
+                    EventSink sink = run.sink;
+                    log.warn("Event sink {} exceeded execution time limit: {} ms; spawning new dispatch thread",
+                             sink.getClass().getName(), elapsedTimeMillis);
+
+                    // Notify the sink that it has exceeded its time limit.
+                    sink.onProcessLimit();
+
+                    // Interrupt the stuck sink and move the partition on to
+                    // a fresh thread, whether or not the sink gives up.
+                    run.interrupt();
+                    addDispatchThread();
+                    partition.restart();
+                }
+            });
         }
     }
 }
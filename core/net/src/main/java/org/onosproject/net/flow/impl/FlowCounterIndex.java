@@ -0,0 +1,239 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.flow.impl;
+
+import org.onosproject.net.flow.FlowCounters;
+import org.onosproject.net.flow.FlowEntry;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Counters and liveness of the flows reported by a device in one round of
+ * flow statistics, kept in primitive arrays indexed by flow id.
+ * <p>
+ * The attributes of the stored rule of a flow are only kept while its flow
+ * id identifies a single stored rule; the counters of such a flow are
+ * checked, and its liveness decided, without reading the rule from the
+ * flow rule store. Each round builds a new index, carrying over the state
+ * of the flows still reported from the index of the previous round.
+ * </p>
+ */
+final class FlowCounterIndex {
+
+    static final int NONE = -1;
+
+    private static final long UNKNOWN = -1;
+
+    private final long[] flowIds;
+    private final boolean[] ruled;      // whether the rule attributes are known
+    private final int[] tableIds;
+    private final int[] priorities;
+    private final boolean[] permanent;
+    private final int[] timeouts;       // seconds
+    private final int[] hardTimeouts;   // seconds
+    private final long[] packets;
+    private final long[] bytes;
+    private final long[] firstSeen;     // epoch millis, or UNKNOWN
+    private final long[] lastSeen;      // epoch millis, or UNKNOWN
+    private int size;
+
+    // Open addressing table of the slots, by flow id
+    private final int[] slots;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param capacity maximum number of flows
+     */
+    FlowCounterIndex(int capacity) {
+        flowIds = new long[capacity];
+        ruled = new boolean[capacity];
+        tableIds = new int[capacity];
+        priorities = new int[capacity];
+        permanent = new boolean[capacity];
+        timeouts = new int[capacity];
+        hardTimeouts = new int[capacity];
+        packets = new long[capacity];
+        bytes = new long[capacity];
+        firstSeen = new long[capacity];
+        lastSeen = new long[capacity];
+        slots = new int[Integer.highestOneBit(Math.max(capacity, 1)) * 4];
+        Arrays.fill(slots, NONE);
+    }
+
+    private int hash(long flowId) {
+        long hash = flowId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (slots.length - 1);
+    }
+
+    /**
+     * Returns the number of flows.
+     *
+     * @return number of flows
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the slot of the flow with the given flow id.
+     *
+     * @param flowId flow id
+     * @return slot of the flow, or NONE
+     */
+    int find(long flowId) {
+        for (int i = hash(flowId); slots[i] != NONE; i = (i + 1) & (slots.length - 1)) {
+            if (flowIds[slots[i]] == flowId) {
+                return slots[i];
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Adds the flow with the given flow id, carrying over its state from the
+     * index of the previous round.
+     *
+     * @param flowId   flow id
+     * @param previous index of the previous round
+     * @return slot of the flow
+     */
+    int add(long flowId, FlowCounterIndex previous) {
+        int i = hash(flowId);
+        for (; slots[i] != NONE; i = (i + 1) & (slots.length - 1)) {
+            if (flowIds[slots[i]] == flowId) {
+                return slots[i];
+            }
+        }
+        checkState(size < flowIds.length, "Flow counter index is full");
+        int slot = size++;
+        slots[i] = slot;
+        flowIds[slot] = flowId;
+        int from = previous.find(flowId);
+        if (from == NONE) {
+            clearRule(slot);
+            return slot;
+        }
+        ruled[slot] = previous.ruled[from];
+        tableIds[slot] = previous.tableIds[from];
+        priorities[slot] = previous.priorities[from];
+        permanent[slot] = previous.permanent[from];
+        timeouts[slot] = previous.timeouts[from];
+        hardTimeouts[slot] = previous.hardTimeouts[from];
+        packets[slot] = previous.packets[from];
+        bytes[slot] = previous.bytes[from];
+        firstSeen[slot] = previous.firstSeen[from];
+        lastSeen[slot] = previous.lastSeen[from];
+        return slot;
+    }
+
+    /**
+     * Records the stored rule of a flow, with its stored counters.
+     *
+     * @param slot       slot of the flow
+     * @param storedRule the only stored rule with the flow id
+     */
+    void setRule(int slot, FlowEntry storedRule) {
+        if (!ruled[slot] || tableIds[slot] != storedRule.tableId()
+                || priorities[slot] != storedRule.priority()) {
+            firstSeen[slot] = UNKNOWN;
+            lastSeen[slot] = UNKNOWN;
+        }
+        ruled[slot] = true;
+        tableIds[slot] = storedRule.tableId();
+        priorities[slot] = storedRule.priority();
+        permanent[slot] = storedRule.isPermanent();
+        timeouts[slot] = storedRule.timeout();
+        hardTimeouts[slot] = storedRule.hardTimeout();
+        packets[slot] = storedRule.packets();
+        bytes[slot] = storedRule.bytes();
+    }
+
+    /**
+     * Forgets the stored rule of a flow, so that it is read again from the
+     * flow rule store in the next round.
+     *
+     * @param slot slot of the flow
+     */
+    void clearRule(int slot) {
+        ruled[slot] = false;
+        firstSeen[slot] = UNKNOWN;
+        lastSeen[slot] = UNKNOWN;
+    }
+
+    /**
+     * Records the counters written to the stored rule of a flow.
+     *
+     * @param slot        slot of the flow
+     * @param packetCount number of packets matched by the flow
+     * @param byteCount   number of bytes matched by the flow
+     */
+    void setCounters(int slot, long packetCount, long byteCount) {
+        packets[slot] = packetCount;
+        bytes[slot] = byteCount;
+    }
+
+    /**
+     * Returns whether the reported flow at the given index matches the
+     * stored rule of a flow, with the same counters.
+     *
+     * @param slot     slot of the flow
+     * @param counters reported flow counters
+     * @param index    index of the reported flow
+     * @return true if the stored rule is known and its counters did not change
+     */
+    boolean matches(int slot, FlowCounters counters, int index) {
+        return ruled[slot]
+                && tableIds[slot] == counters.tableId(index)
+                && priorities[slot] == counters.priority(index)
+                && packets[slot] == counters.packets(index)
+                && bytes[slot] == counters.bytes(index);
+    }
+
+    /**
+     * Checks whether the stored rule of a flow is still live, as
+     * FlowRuleManager checks the liveness of a stored rule.
+     *
+     * @param slot         slot of the flow
+     * @param packetCount  number of packets reported for the flow
+     * @param ruleLastSeen time the stored rule was last seen, in epoch millis
+     * @param now          current time, in epoch millis
+     * @return true if the rule has not timed out
+     */
+    boolean isLive(int slot, long packetCount, long ruleLastSeen, long now) {
+        checkState(ruled[slot], "Flow rule is not known");
+        if (permanent[slot]) {
+            return true;
+        }
+        if (hardTimeouts[slot] != 0) {
+            if (firstSeen[slot] == UNKNOWN) {
+                firstSeen[slot] = now;
+            } else if (now - firstSeen[slot] > hardTimeouts[slot] * 1000L) {
+                return false;
+            }
+        }
+        if (packets[slot] != packetCount) {
+            lastSeen[slot] = now;
+            return true;
+        }
+        if (lastSeen[slot] == UNKNOWN) {
+            lastSeen[slot] = ruleLastSeen;
+        }
+        return now - lastSeen[slot] <= timeouts[slot] * 1000L;
+    }
+}
@@ -16,6 +16,7 @@
 package org.onosproject.net.flow.impl;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -43,7 +44,9 @@ import org.onosproject.net.device.DeviceListener;
 import org.onosproject.net.device.DeviceService;
 import org.onosproject.net.flow.CompletedBatchOperation;
 import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.FlowCounters;
 import org.onosproject.net.flow.FlowEntry;
+import org.onosproject.net.flow.FlowId;
 import org.onosproject.net.flow.FlowRule;
 import org.onosproject.net.flow.FlowRuleBatchEntry;
 import org.onosproject.net.flow.FlowRuleBatchEvent;
@@ -77,6 +80,7 @@ import java.util.concurrent.Executors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.onlab.util.Tools.get;
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.net.flow.FlowRuleEvent.Type.RULE_ADD_REQUESTED;
@@ -103,6 +107,11 @@ public class FlowRuleManager
     public static final String FLOW_RULE_NULL = "FlowRule cannot be null";
     private static final boolean ALLOW_EXTRANEOUS_RULES = false;
 
+    // Each flow reported through its counters is compared in full with the
+    // stored rule once every this many rounds of flow statistics
+    private static final int EXACT_MATCH_ROUNDS = 10;
+    private static final FlowCounterIndex NO_FLOW_COUNTERS = new FlowCounterIndex(0);
+
     @Property(name = "allowExtraneousRules", boolValue = ALLOW_EXTRANEOUS_RULES,
             label = "Allow flow rules in switch not installed by ONOS")
     private boolean allowExtraneousRules = ALLOW_EXTRANEOUS_RULES;
@@ -131,6 +140,11 @@ public class FlowRuleManager
 
     private final Map<Long, FlowOperationsProcessor> pendingFlowOperations = new ConcurrentHashMap<>();
 
+    // Rounds of flow counters reported by each device
+    private final Map<DeviceId, Integer> counterRounds = new ConcurrentHashMap<>();
+    // Counters of the flows of each device, as of its last round
+    private final Map<DeviceId, FlowCounterIndex> flowCounters = new ConcurrentHashMap<>();
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected FlowRuleStore store;
 
@@ -403,7 +417,7 @@ public class FlowRuleManager
             checkNotNull(flowEntry, FLOW_RULE_NULL);
             checkValidity();
 
-            if (checkRuleLiveness(flowEntry, store.getFlowEntry(flowEntry))) {
+            if (checkRuleLiveness(flowEntry.packets(), store.getFlowEntry(flowEntry))) {
                 FlowRuleEvent event = store.addOrUpdateFlowRule(flowEntry);
                 if (event == null) {
                     log.debug("No flow store event generated.");
@@ -417,7 +431,7 @@ public class FlowRuleManager
             }
         }
 
-        private boolean checkRuleLiveness(FlowEntry swRule, FlowEntry storedRule) {
+        private boolean checkRuleLiveness(long swPackets, FlowEntry storedRule) {
             if (storedRule == null) {
                 return false;
             }
@@ -442,7 +456,7 @@ public class FlowRuleManager
                 }
             }
 
-            if (storedRule.packets() != swRule.packets()) {
+            if (storedRule.packets() != swPackets) {
                 lastSeen.put(storedRule, currentTime);
                 return true;
             }
@@ -475,31 +489,114 @@ public class FlowRuleManager
 
             for (FlowEntry rule : flowEntries) {
                 try {
-                    FlowEntry storedRule = storedRules.remove(rule);
+                    flowReported(rule, storedRules.remove(rule));
+                } catch (Exception e) {
+                    log.debug("Can't process added or extra rule {}", e.getMessage());
+                }
+            }
+
+            // DO NOT reinstall
+            if (useMissingFlow) {
+                for (FlowEntry rule : storedRules.keySet()) {
+                    try {
+                        // there are rules in the store that aren't on the switch
+                        log.debug("Adding rule in store, but not on switch {}", rule);
+                        flowMissing(rule);
+                    } catch (Exception e) {
+                        log.debug("Can't add missing flow rule:", e);
+                    }
+                }
+            }
+        }
+
+        private void flowReported(FlowEntry rule, FlowEntry storedRule) {
+            if (storedRule != null) {
+                if (storedRule.exactMatch(rule)) {
+                    // we both have the rule, let's update some info then.
+                    flowAdded(rule);
+                } else {
+                    // the two rules are not an exact match - remove the
+                    // switch's rule and install our rule
+                    extraneousFlow(rule);
+                    flowMissing(storedRule);
+                }
+            } else {
+                // the device has a rule the store does not have
+                if (!allowExtraneousRules) {
+                    extraneousFlow(rule);
+                }
+            }
+        }
+
+        @Override
+        public void pushFlowCounters(DeviceId deviceId, FlowCounters counters,
+                                     boolean useMissingFlow) {
+            // The counters of each flow are kept across rounds, with the
+            // attributes of its stored rule while its flow id identifies a
+            // single stored rule; a flow whose counters did not change is
+            // checked and refreshed without reading its rule from the store.
+            // The few rules sharing a flow id with another one are compared
+            // as complete entries. One in EXACT_MATCH_ROUNDS of the flows, a
+            // different share in each round, is read again and compared as
+            // complete entries, so that a rule changed on the device is
+            // eventually replaced.
+            int round = counterRounds.merge(deviceId, 1, Integer::sum);
+            long now = System.currentTimeMillis();
+            FlowCounterIndex previous = flowCounters.getOrDefault(deviceId, NO_FLOW_COUNTERS);
+            FlowCounterIndex index = new FlowCounterIndex(counters.size());
+
+            // stored rules read in this round, and those reported by the device
+            Map<FlowId, List<FlowEntry>> readRules = Maps.newHashMap();
+            Set<FlowEntry> reportedRules = Sets.newIdentityHashSet();
+            for (int i = 0; i < counters.size(); i++) {
+                try {
+                    long flowId = counters.flowId(i);
+                    int slot = index.add(flowId, previous);
+                    boolean exactMatch = exactMatchRound(flowId, round);
+                    if (!exactMatch && index.matches(slot, counters, i)
+                            && countersUnchanged(deviceId, index, slot, counters, i, now)) {
+                        continue;
+                    }
+                    List<FlowEntry> entries = readRules.computeIfAbsent(
+                            FlowId.valueOf(flowId), id -> ImmutableList.copyOf(store.getFlowEntries(deviceId, id)));
+                    if (!exactMatch && entries.size() == 1 && counters.matches(i, entries.get(0))) {
+                        reportedRules.add(entries.get(0));
+                        countersReported(index, slot, entries.get(0), counters, i, now);
+                        continue;
+                    }
+                    // only decode the rules the store does not know as is
+                    FlowEntry rule = counters.entry(i);
+                    int match = indexOf(entries, rule);
+                    FlowEntry storedRule = match < 0 ? null : entries.get(match);
                     if (storedRule != null) {
-                        if (storedRule.exactMatch(rule)) {
-                            // we both have the rule, let's update some info then.
-                            flowAdded(rule);
-                        } else {
-                            // the two rules are not an exact match - remove the
-                            // switch's rule and install our rule
-                            extraneousFlow(rule);
-                            flowMissing(storedRule);
-                        }
+                        reportedRules.add(storedRule);
+                    }
+                    if (storedRule != null && storedRule.exactMatch(rule) && entries.size() == 1) {
+                        countersReported(index, slot, storedRule, counters, i, now);
+                    } else if (storedRule != null && storedRule.exactMatch(rule)) {
+                        index.clearRule(slot);
+                        countersReported(storedRule, counters, i);
                     } else {
-                        // the device has a rule the store does not have
-                        if (!allowExtraneousRules) {
-                            extraneousFlow(rule);
-                        }
+                        index.clearRule(slot);
+                        flowReported(rule, storedRule);
                     }
                 } catch (Exception e) {
                     log.debug("Can't process added or extra rule {}", e.getMessage());
                 }
             }
+            flowCounters.put(deviceId, index);
 
             // DO NOT reinstall
             if (useMissingFlow) {
-                for (FlowEntry rule : storedRules.keySet()) {
+                for (FlowId id : store.getFlowIds(deviceId)) {
+                    if (index.find(id.value()) == FlowCounterIndex.NONE) {
+                        readRules.put(id, ImmutableList.copyOf(store.getFlowEntries(deviceId, id)));
+                    }
+                }
+                for (FlowEntry rule : Iterables.concat(readRules.values())) {
+                    if (reportedRules.contains(rule)) {
+                        continue;
+                    }
                     try {
                         // there are rules in the store that aren't on the switch
                         log.debug("Adding rule in store, but not on switch {}", rule);
@@ -511,6 +608,85 @@ public class FlowRuleManager
             }
         }
 
+        // Returns the index of the stored rule equal to the reported one,
+        // preferring one which matches it exactly, or -1 if there is none
+        private int indexOf(List<FlowEntry> storedRules, FlowEntry rule) {
+            int match = -1;
+            for (int i = 0; i < storedRules.size(); i++) {
+                if (storedRules.get(i).exactMatch(rule)) {
+                    return i;
+                } else if (match < 0 && storedRules.get(i).equals(rule)) {
+                    match = i;
+                }
+            }
+            return match;
+        }
+
+        private boolean exactMatchRound(long flowId, int round) {
+            return Math.floorMod(flowId + round, EXACT_MATCH_ROUNDS) == 0;
+        }
+
+        // Checks and refreshes the only stored rule of a flow whose counters
+        // did not change, without reading the rule; returns false if the
+        // stored rule has to be read
+        private boolean countersUnchanged(DeviceId deviceId, FlowCounterIndex index, int slot,
+                                          FlowCounters counters, int i, long now) {
+            checkValidity();
+            if (!index.isLive(slot, counters.packets(i), now, now)) {
+                return false;
+            }
+            return store.refreshFlowRule(deviceId, FlowId.valueOf(counters.flowId(i)),
+                                         counters.life(i, NANOSECONDS), NANOSECONDS);
+        }
+
+        // Writes the counters of a flow to its only stored rule, recording
+        // the rule in the index
+        private void countersReported(FlowCounterIndex index, int slot, FlowEntry storedRule,
+                                      FlowCounters counters, int i, long now) {
+            checkValidity();
+            long packets = counters.packets(i);
+            index.setRule(slot, storedRule);
+            if (!index.isLive(slot, packets, storedRule.lastSeen(), now)) {
+                log.debug("Removing flow rules....");
+                removeFlowRules(storedRule);
+                return;
+            }
+            updateCounters(storedRule, counters, i);
+            index.setCounters(slot, packets, counters.bytes(i));
+        }
+
+        // Writes the counters of a flow to one of the stored rules sharing its flow id
+        private void countersReported(FlowEntry storedRule, FlowCounters counters, int i) {
+            checkValidity();
+            if (!checkRuleLiveness(counters.packets(i), storedRule)) {
+                log.debug("Removing flow rules....");
+                removeFlowRules(storedRule);
+                return;
+            }
+            updateCounters(storedRule, counters, i);
+        }
+
+        private void updateCounters(FlowEntry storedRule, FlowCounters counters, int i) {
+            long packets = counters.packets(i);
+            long bytes = counters.bytes(i);
+            if (storedRule.state() == FlowEntry.FlowEntryState.ADDED
+                    && storedRule.packets() == packets && storedRule.bytes() == bytes) {
+                // nothing but the life of the rule changed
+                store.refreshFlowRule(storedRule, counters.life(i, NANOSECONDS), NANOSECONDS);
+                return;
+            }
+            FlowEntry flowEntry = new DefaultFlowEntry(storedRule, FlowEntry.FlowEntryState.ADDED,
+                                                       counters.life(i, NANOSECONDS),
+                                                       NANOSECONDS, packets, bytes);
+            FlowRuleEvent event = store.addOrUpdateFlowRule(flowEntry);
+            if (event == null) {
+                log.debug("No flow store event generated.");
+            } else {
+                log.trace("Flow {} {}", flowEntry, event.type());
+                post(event);
+            }
+        }
+
         @Override
         public void batchOperationCompleted(long batchId, CompletedBatchOperation operation) {
             store.batchOperationComplete(FlowRuleBatchEvent.completed(
@@ -686,6 +862,8 @@ public class FlowRuleManager
                 case DEVICE_AVAILABILITY_CHANGED:
                     DeviceId deviceId = event.subject().id();
                     if (!deviceService.isAvailable(deviceId)) {
+                        counterRounds.remove(deviceId);
+                        flowCounters.remove(deviceId);
                         if (purgeOnDisconnection) {
                             store.purgeFlowRule(deviceId);
                         }
@@ -15,12 +15,18 @@
  */
 package org.onosproject.net.topology.impl;
 
+import com.codahale.metrics.Gauge;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onosproject.common.DefaultTopology;
+import org.onosproject.common.PathCache;
 import org.onosproject.net.DisjointPath;
 import org.onosproject.net.ElementId;
 import org.onosproject.net.Link;
@@ -28,12 +34,14 @@ import org.onosproject.net.Path;
 import org.onosproject.net.host.HostService;
 import org.onosproject.net.topology.LinkWeight;
 import org.onosproject.net.topology.PathService;
+import org.onosproject.net.topology.Topology;
 import org.onosproject.net.topology.TopologyService;
 import org.onosproject.net.topology.AbstractPathService;
 import org.slf4j.Logger;
 
 import java.util.Set;
 import java.util.Map;
+import java.util.function.ToLongFunction;
 
 
 import static org.slf4j.LoggerFactory.getLogger;
@@ -43,7 +51,8 @@ import static org.onosproject.security.AppPermission.Type.*;
 
 /**
  * Provides implementation of a path selection service atop the current
- * topology and host services.
+ * topology and host services. Statistics of the current topology's path
+ * cache are published as metrics when a metrics service is available.
  */
 @Component(immediate = true)
 @Service
@@ -51,25 +60,74 @@ public class PathManager extends AbstractPathService implements PathService {
 
     private final Logger log = getLogger(getClass());
 
+    private static final String METRICS_COMPONENT = "PathManager";
+    private static final String METRICS_FEATURE = "pathCache";
+    private static final String HITS = "hits";
+    private static final String MISSES = "misses";
+    private static final String SIZE = "size";
+    private static final String EVICTIONS = "evictions";
+    private static final String INVALIDATIONS = "invalidations";
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected TopologyService topologyService;
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected HostService hostService;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY)
+    protected MetricsService metricsService;
+
+    private MetricsComponent metricsComponent;
+    private MetricsFeature metricsFeature;
+
     @Activate
     public void activate() {
         // initialize AbstractPathService
         super.topologyService = this.topologyService;
         super.hostService = this.hostService;
+        registerMetrics();
         log.info("Started");
     }
 
     @Deactivate
     public void deactivate() {
+        removeMetrics();
         log.info("Stopped");
     }
 
+    // Publishes the statistics of the current topology's path cache
+    private void registerMetrics() {
+        if (metricsService == null) {
+            return;
+        }
+        metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+        metricsFeature = metricsComponent.registerFeature(METRICS_FEATURE);
+        registerGauge(HITS, PathCache::hitCount);
+        registerGauge(MISSES, PathCache::missCount);
+        registerGauge(SIZE, PathCache::size);
+        registerGauge(EVICTIONS, PathCache::evictionCount);
+        registerGauge(INVALIDATIONS, PathCache::invalidationCount);
+    }
+
+    private void registerGauge(String name, ToLongFunction<PathCache> statistic) {
+        metricsService.registerMetric(metricsComponent, metricsFeature, name, (Gauge<Long>) () -> {
+            Topology topology = topologyService.currentTopology();
+            return topology instanceof DefaultTopology ?
+                    statistic.applyAsLong(((DefaultTopology) topology).pathCache()) : 0L;
+        });
+    }
+
+    private void removeMetrics() {
+        if (metricsFeature == null) {
+            return;
+        }
+        for (String name : new String[]{HITS, MISSES, SIZE, EVICTIONS, INVALIDATIONS}) {
+            metricsService.removeMetric(metricsComponent, metricsFeature, name);
+        }
+        metricsFeature = null;
+        metricsComponent = null;
+    }
+
     @Override
     public Set<Path> getPaths(ElementId src, ElementId dst) {
         checkPermission(TOPOLOGY_READ);
@@ -15,18 +15,20 @@
  */
 package org.onosproject.event.impl;
 
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.onosproject.event.AbstractEvent;
 import org.onosproject.event.EventSink;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test of the event dispatcher mechanism.
@@ -76,6 +78,57 @@ public class CoreEventDispatcherTest {
         validate(prickleSink);
     }
 
+    @Test
+    public void postPreservesOrderPerSink() throws Exception {
+        int count = 500;
+        String[] expected = new String[count];
+        prickleSink.latch = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            expected[i] = "yo" + i;
+            dispatcher.post(new Prickle(expected[i]));
+        }
+        assertTrue(prickleSink.latch.await(1000, TimeUnit.MILLISECONDS));
+        validate(prickleSink, expected);
+    }
+
+    @Test
+    public void slowSinkDoesNotBlockOtherSinks() throws Exception {
+        SlowSink slowSink = new SlowSink();
+        dispatcher.addSink(Slow.class, slowSink);
+        try {
+            dispatcher.post(new Slow("zzz"));
+            assertTrue(slowSink.started.await(100, TimeUnit.MILLISECONDS));
+
+            prickleSink.latch = new CountDownLatch(1);
+            dispatcher.post(new Prickle("yo"));
+            assertTrue(prickleSink.latch.await(100, TimeUnit.MILLISECONDS));
+            validate(prickleSink, "yo");
+        } finally {
+            slowSink.release.countDown();
+            dispatcher.removeSink(Slow.class);
+        }
+    }
+
+    @Test
+    public void stuckSinkIsLeftBehind() throws Exception {
+        StuckSink stuckSink = new StuckSink();
+        dispatcher.addSink(Stuck.class, stuckSink);
+        dispatcher.setDispatchTimeLimit(250);
+        try {
+            dispatcher.post(new Stuck("zzz"));
+            assertTrue(stuckSink.started.await(100, TimeUnit.MILLISECONDS));
+
+            // Events of the stuck sink are delivered on another thread,
+            // although the stuck one ignores the interrupt
+            dispatcher.post(new Stuck("yo"));
+            assertTrue(stuckSink.delivered.await(2000, TimeUnit.MILLISECONDS));
+            assertTrue(stuckSink.limited);
+        } finally {
+            stuckSink.release.countDown();
+            dispatcher.removeSink(Stuck.class);
+        }
+    }
+
     private void validate(Sink sink, String... strings) {
         int i = 0;
         assertEquals("incorrect event count", strings.length, sink.subjects.size());
@@ -104,8 +157,20 @@ public class CoreEventDispatcherTest {
         }
     }
 
+    private static class Slow extends Thing {
+        protected Slow(String subject) {
+            super(subject);
+        }
+    }
+
+    private static class Stuck extends Thing {
+        protected Stuck(String subject) {
+            super(subject);
+        }
+    }
+
     private static class Sink {
-        final List<String> subjects = new ArrayList<>();
+        final List<String> subjects = new CopyOnWriteArrayList<>();
         CountDownLatch latch;
 
         protected void process(String subject) {
@@ -129,4 +194,41 @@ public class CoreEventDispatcherTest {
         }
     }
 
+    private static class SlowSink implements EventSink<Slow> {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void process(Slow event) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Blocks on its first event and ignores interrupts
+    private static class StuckSink implements EventSink<Stuck> {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch delivered = new CountDownLatch(1);
+        volatile boolean limited;
+
+        @Override
+        public void process(Stuck event) {
+            if (event.subject().equals("zzz")) {
+                started.countDown();
+                Uninterruptibles.awaitUninterruptibly(release);
+            } else {
+                delivered.countDown();
+            }
+        }
+
+        @Override
+        public void onProcessLimit() {
+            limited = true;
+        }
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.net.flow.impl;
+
+import org.junit.Test;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowCounters;
+import org.onosproject.net.flow.FlowEntry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.net.NetTestTools.did;
+import static org.onosproject.net.flow.FlowEntry.FlowEntryState.ADDED;
+
+/**
+ * Unit tests for the flow counter index.
+ */
+public class FlowCounterIndexTest {
+
+    private static FlowEntry entry(long cookie, int timeout, long packets) {
+        return new DefaultFlowEntry(DefaultFlowRule.builder()
+                .forDevice(did("dev1"))
+                .withSelector(DefaultTrafficSelector.emptySelector())
+                .withTreatment(DefaultTrafficTreatment.emptyTreatment())
+                .withPriority(10)
+                .withCookie(cookie)
+                .makeTemporary(timeout)
+                .build(), ADDED, 0, packets, packets * 100);
+    }
+
+    private static FlowCounters counters(FlowEntry... entries) {
+        FlowCounters counters = new FlowCounters(entries.length, index -> entries[index]);
+        for (FlowEntry entry : entries) {
+            counters.add(entry.id().value(), entry.tableId(), entry.priority(),
+                         entry.life(), entry.packets(), entry.bytes());
+        }
+        return counters;
+    }
+
+    /**
+     * Tests that the state of the flows is carried over to the next round.
+     */
+    @Test
+    public void carryOver() {
+        FlowEntry entry1 = entry(1, 10, 5);
+        FlowEntry entry2 = entry(2, 10, 5);
+        FlowCounterIndex previous = new FlowCounterIndex(2);
+        previous.setRule(previous.add(1, new FlowCounterIndex(0)), entry1);
+        previous.add(2, new FlowCounterIndex(0));
+
+        FlowCounterIndex index = new FlowCounterIndex(3);
+        FlowCounters counters = counters(entry1, entry2, entry(3, 10, 5));
+        for (int i = 0; i < counters.size(); i++) {
+            index.add(counters.flowId(i), previous);
+        }
+        assertEquals(3, index.size());
+        assertEquals(FlowCounterIndex.NONE, index.find(4));
+        assertTrue(index.matches(index.find(1), counters, 0));
+        assertFalse(index.matches(index.find(2), counters, 1));
+        assertFalse(index.matches(index.find(3), counters, 2));
+
+        assertFalse(index.matches(index.find(1), counters(entry(1, 10, 6)), 0));
+        index.clearRule(index.find(1));
+        assertFalse(index.matches(index.find(1), counters, 0));
+    }
+
+    /**
+     * Tests the idle timeout of a flow.
+     */
+    @Test
+    public void liveness() {
+        FlowCounterIndex index = new FlowCounterIndex(1);
+        int slot = index.add(1, new FlowCounterIndex(0));
+        index.setRule(slot, entry(1, 10, 5));
+
+        assertTrue(index.isLive(slot, 5, 1000, 5000));
+        assertTrue(index.isLive(slot, 5, 1000, 11000));
+        assertFalse(index.isLive(slot, 5, 1000, 11001));
+
+        // packets seen by the flow keep it alive
+        assertTrue(index.isLive(slot, 6, 1000, 20000));
+        index.setCounters(slot, 6, 600);
+        assertTrue(index.isLive(slot, 6, 1000, 30000));
+        assertFalse(index.isLive(slot, 6, 1000, 30001));
+    }
+}
@@ -46,8 +46,10 @@ import org.onosproject.net.driver.impl.DriverManager;
 import org.onosproject.net.flow.CompletedBatchOperation;
 import org.onosproject.net.flow.DefaultFlowEntry;
 import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.FlowCounters;
 import org.onosproject.net.flow.FlowEntry;
 import org.onosproject.net.flow.FlowEntry.FlowEntryState;
+import org.onosproject.net.flow.FlowId;
 import org.onosproject.net.flow.FlowRule;
 import org.onosproject.net.flow.FlowRuleBatchOperation;
 import org.onosproject.net.flow.FlowRuleEvent;
@@ -69,6 +71,7 @@ import org.onosproject.net.provider.ProviderId;
 import org.onosproject.store.trivial.SimpleFlowRuleStore;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -82,6 +85,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static org.junit.Assert.*;
 import static org.onosproject.net.NetTestTools.injectEventDispatcher;
 import static org.onosproject.net.flow.FlowRuleEvent.Type.*;
@@ -108,6 +112,7 @@ public class FlowRuleManagerTest {
             new DefaultDevice(FOO_PID, FOO_DID, Type.SWITCH, "", "", "", "", null, ANNOTATIONS);
 
     private FlowRuleManager mgr;
+    private TestFlowRuleStore store;
 
     protected FlowRuleService service;
     protected FlowRuleProviderRegistry registry;
@@ -122,7 +127,8 @@ public class FlowRuleManagerTest {
     @Before
     public void setUp() {
         mgr = new FlowRuleManager();
-        mgr.store = new SimpleFlowRuleStore();
+        store = new TestFlowRuleStore();
+        mgr.store = store;
         injectEventDispatcher(mgr, new TestEventDispatcher());
         mgr.deviceService = new TestDeviceService();
         mgr.mastershipService = new TestMastershipService();
@@ -382,6 +388,91 @@ public class FlowRuleManagerTest {
 
     }
 
+    @Test
+    public void flowCounters() {
+        FlowRule f1 = flowRule(1, 1);
+        FlowRule f2 = flowRule(2, 2);
+        FlowRule f3 = flowRule(3, 3);
+        FlowRule f4 = flowRule(4, 4);
+
+        mgr.applyFlowRules(f1, f2, f3);
+
+        FlowCounters counters = counters(new DefaultFlowEntry(f1), new DefaultFlowEntry(f2),
+                                         new DefaultFlowEntry(f4));
+        providerService.pushFlowCounters(DID, counters, false);
+
+        assertTrue("Entries should be added.",
+                   validateState(ImmutableMap.of(
+                           f1, FlowEntryState.ADDED,
+                           f2, FlowEntryState.ADDED,
+                           f3, FlowEntryState.PENDING_ADD)));
+
+        validateEvents(RULE_ADD_REQUESTED, RULE_ADD_REQUESTED, RULE_ADD_REQUESTED,
+                       RULE_ADDED, RULE_ADDED);
+
+        // unchanged counters do not update the store
+        providerService.pushFlowCounters(DID, counters(new DefaultFlowEntry(f1)), false);
+        validateEvents();
+
+        providerService.pushFlowCounters(DID, counters(
+                new DefaultFlowEntry(f1, FlowEntryState.ADDED, 1, 10, 1000)), false);
+        validateEvents(RULE_UPDATED);
+
+        // a life-only change is written back without an event
+        providerService.pushFlowCounters(DID, counters(
+                new DefaultFlowEntry(f1, FlowEntryState.ADDED, 5, 10, 1000)), false);
+        validateEvents();
+        for (FlowEntry entry : mgr.getFlowEntries(DID)) {
+            if (entry.equals(f1)) {
+                assertEquals("life should be refreshed", 5, entry.life());
+            }
+        }
+    }
+
+    @Test
+    public void flowCountersReadStoredRulesOnce() {
+        List<FlowRule> rules = Lists.newArrayList();
+        for (int i = 1; i <= 10; i++) {
+            rules.add(DefaultFlowRule.builder()
+                              .forDevice(DID)
+                              .withSelector(new TestSelector(i))
+                              .withTreatment(new TestTreatment(i))
+                              .withPriority(10)
+                              .withCookie(i)
+                              .makeTemporary(TIMEOUT)
+                              .build());
+        }
+        mgr.applyFlowRules(rules.toArray(new FlowRule[rules.size()]));
+        FlowEntry[] entries = rules.stream().map(DefaultFlowEntry::new).toArray(FlowEntry[]::new);
+
+        providerService.pushFlowCounters(DID, counters(entries), true);
+        assertEquals("all stored rules should be read", 10, store.flowReads);
+        listener.events.clear();
+
+        // only the rule due for an exact match is read again
+        store.flowReads = 0;
+        providerService.pushFlowCounters(DID, counters(entries), true);
+        assertEquals("one stored rule should be read", 1, store.flowReads);
+        validateEvents();
+
+        // a rule no longer reported is read, besides the rule due for an exact match
+        mgr.removeFlowRules(rules.get(9));
+        store.flowReads = 0;
+        providerService.pushFlowCounters(DID, counters(Arrays.copyOf(entries, 9)), true);
+        assertEquals("two stored rules should be read", 2, store.flowReads);
+        validateEvents(RULE_REMOVE_REQUESTED, RULE_REMOVED);
+        assertEquals("rule should be removed", 9, flowCount());
+    }
+
+    private FlowCounters counters(FlowEntry... entries) {
+        FlowCounters counters = new FlowCounters(entries.length, index -> entries[index]);
+        for (FlowEntry entry : entries) {
+            counters.add(entry.id().value(), entry.tableId(), entry.priority(),
+                         entry.life(NANOSECONDS), entry.packets(), entry.bytes());
+        }
+        return counters;
+    }
+
     /*
      * Tests whether a rule that was marked for removal but no flowRemoved was received
      * is indeed removed at the next stats update.
@@ -488,6 +579,16 @@ public class FlowRuleManagerTest {
         }
     }
 
+    private static class TestFlowRuleStore extends SimpleFlowRuleStore {
+        private int flowReads;
+
+        @Override
+        public Iterable<FlowEntry> getFlowEntries(DeviceId deviceId, FlowId flowId) {
+            flowReads++;
+            return super.getFlowEntries(deviceId, flowId);
+        }
+    }
+
     private static class TestDeviceService extends DeviceServiceAdapter {
         @Override
         public int getDeviceCount() {
@@ -29,12 +29,25 @@ import org.onosproject.store.cluster.messaging.impl.InternalMessage.Status;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Decoder for inbound messages.
+ * <p>
+ * Keeps the message types interned by the encoder at the other end of the
+ * connection, so an instance must not be shared between channels. Frames in
+ * the original format, without message type ids, are decoded as well.
+ * </p>
+ * <p>
+ * The messages negotiating the interning of message types are handled here
+ * and not passed on: {@link MessageEncoder#INTERN_TYPES} is answered on the
+ * same channel, {@link MessageEncoder#INTERN_TYPES_ACK} lets the encoder of
+ * the channel start interning.
+ * </p>
  */
 public class MessageDecoder extends ReplayingDecoder<DecoderState> {
 
@@ -45,12 +58,15 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
     private long messageId;
     private int preamble;
     private Version ipVersion;
+    private boolean typeInterned;
     private IpAddress senderIp;
     private int senderPort;
+    private int messageTypeId;
     private int messageTypeLength;
     private String messageType;
     private Status status;
     private int contentLength;
+    private final Map<Integer, String> messageTypes = new HashMap<>();
 
     public MessageDecoder() {
         super(DecoderState.READ_MESSAGE_PREAMBLE);
@@ -77,7 +93,9 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
             messageId = buffer.readLong();
             checkpoint(DecoderState.READ_SENDER_IP_VERSION);
         case READ_SENDER_IP_VERSION:
-            ipVersion = buffer.readByte() == 0x0 ? Version.INET : Version.INET6;
+            byte version = buffer.readByte();
+            ipVersion = (version & 0x1) == 0x0 ? Version.INET : Version.INET6;
+            typeInterned = (version & MessageEncoder.INTERNED_TYPE_FLAG) != 0;
             checkpoint(DecoderState.READ_SENDER_IP);
         case READ_SENDER_IP:
             byte[] octets = new byte[IpAddress.byteLength(ipVersion)];
@@ -86,14 +104,27 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
             checkpoint(DecoderState.READ_SENDER_PORT);
         case READ_SENDER_PORT:
             senderPort = buffer.readInt();
+            checkpoint(DecoderState.READ_MESSAGE_TYPE_ID);
+        case READ_MESSAGE_TYPE_ID:
+            // frames of peers which do not intern types carry no id
+            messageTypeId = typeInterned ? buffer.readInt() : 0;
             checkpoint(DecoderState.READ_MESSAGE_TYPE_LENGTH);
         case READ_MESSAGE_TYPE_LENGTH:
-            messageTypeLength = buffer.readInt();
+            // type string follows only for types sent for the first time or not interned
+            messageTypeLength = messageTypeId > 0 ? 0 : buffer.readInt();
             checkpoint(DecoderState.READ_MESSAGE_TYPE);
         case READ_MESSAGE_TYPE:
-            byte[] messageTypeBytes = new byte[messageTypeLength];
-            buffer.readBytes(messageTypeBytes);
-            messageType = new String(messageTypeBytes, Charsets.UTF_8);
+            if (messageTypeId > 0) {
+                messageType = messageTypes.get(messageTypeId);
+                checkState(messageType != null, "Unknown message type id %s", messageTypeId);
+            } else {
+                byte[] messageTypeBytes = new byte[messageTypeLength];
+                buffer.readBytes(messageTypeBytes);
+                messageType = new String(messageTypeBytes, Charsets.UTF_8);
+                if (messageTypeId < 0) {
+                    messageTypes.put(-messageTypeId, messageType);
+                }
+            }
             checkpoint(DecoderState.READ_MESSAGE_STATUS);
         case READ_MESSAGE_STATUS:
             status = Status.values()[buffer.readInt()];
@@ -117,8 +148,19 @@ public class MessageDecoder extends ReplayingDecoder<DecoderState> {
                                                           messageType,
                                                           payload,
                                                           status);
-            out.add(message);
             checkpoint(DecoderState.READ_MESSAGE_PREAMBLE);
+            if (MessageEncoder.INTERN_TYPES.equals(messageType)) {
+                context.writeAndFlush(new InternalMessage(preamble,
+                                                          message.time(),
+                                                          messageId,
+                                                          message.sender(),
+                                                          MessageEncoder.INTERN_TYPES_ACK,
+                                                          new byte[0]));
+            } else if (MessageEncoder.INTERN_TYPES_ACK.equals(messageType)) {
+                context.pipeline().get(MessageEncoder.class).internTypes();
+            } else {
+                out.add(message);
+            }
             break;
          default:
             checkState(false, "Must not be here");
@@ -17,9 +17,9 @@ package org.onosproject.store.cluster.messaging.impl;
 
 import com.google.common.base.Charsets;
 import io.netty.buffer.ByteBuf;
-import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.IpAddress.Version;
 import org.onosproject.store.cluster.messaging.Endpoint;
@@ -27,73 +27,158 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Encode InternalMessage out into a byte buffer.
+ * <p>
+ * Message types are interned per connection: the first message of a type
+ * carries the type string along with a new integer id, later messages of that
+ * type carry the id only. Large payloads are not copied into the frame, they
+ * are written as a separate buffer wrapping the payload array.
+ * </p>
+ * <p>
+ * Interning is negotiated when the connection is established, so nodes
+ * running a release which does not know about it can still decode every
+ * message: the connecting side sends a {@link #INTERN_TYPES} message in the
+ * original format, and only interns message types once the other side has
+ * answered with {@link #INTERN_TYPES_ACK}. A peer which does not support
+ * interning just has no handler for the request, and keeps receiving the
+ * original format. Frames with interned types are flagged in the byte giving
+ * the IP version of the sender, so the decoder recognizes both formats.
+ * </p>
+ * <p>
+ * The encoder keeps per connection state, so an instance must not be shared
+ * between channels.
+ * </p>
  */
-@Sharable
-public class MessageEncoder extends MessageToByteEncoder<Object> {
-// Effectively MessageToByteEncoder<InternalMessage>,
+public class MessageEncoder extends MessageToMessageEncoder<Object> {
+// Effectively MessageToMessageEncoder<InternalMessage>,
 // had to specify <Object> to avoid Class Loader not being able to find some classes.
 
+    /**
+     * Maximum number of message types interned on a connection; other types are sent as strings.
+     */
+    static final int MAX_INTERNED_TYPES = 4096;
+
+    /**
+     * Type of the message asking the peer whether it decodes interned message types.
+     */
+    static final String INTERN_TYPES = "NETTY_MESSAGING_INTERN_TYPES";
+
+    /**
+     * Type of the message answering {@link #INTERN_TYPES}; the peer decodes interned message types.
+     */
+    static final String INTERN_TYPES_ACK = "NETTY_MESSAGING_INTERN_TYPES_ACK";
+
+    /**
+     * Flag set in the sender IP version byte of frames carrying a message type id.
+     */
+    static final byte INTERNED_TYPE_FLAG = 0x2;
+
+    /**
+     * Payloads of at least this many bytes are written without copying them into the frame.
+     */
+    static final int ZERO_COPY_THRESHOLD = 1024;
+
+    private static final int FIXED_HEADER_LENGTH = 4 + 8 + 8 + 8 + 1 + 4 + 4 + 4 + 4;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     private final int preamble;
+    private final Map<String, Integer> typeIds = new HashMap<>();
+    private boolean internTypes;
 
     public MessageEncoder(int preamble) {
         super();
         this.preamble = preamble;
     }
 
+    /**
+     * Starts interning message types, once the peer has acknowledged it decodes them.
+     * Must be called from the event loop of the channel.
+     */
+    void internTypes() {
+        internTypes = true;
+    }
+
 
     @Override
     protected void encode(
             ChannelHandlerContext context,
             Object rawMessage,
-            ByteBuf out) throws Exception {
+            List<Object> out) throws Exception {
 
         InternalMessage message = (InternalMessage) rawMessage;
 
-        out.writeInt(this.preamble);
+        // id of a type already sent on this connection, negated id of a newly interned type,
+        // 0 for a type which is not interned
+        Integer typeId = internTypes ? typeIds.get(message.type()) : null;
+        byte[] messageTypeBytes = null;
+        if (typeId == null) {
+            messageTypeBytes = message.type().getBytes(Charsets.UTF_8);
+            typeId = 0;
+            if (internTypes && typeIds.size() < MAX_INTERNED_TYPES) {
+                typeIds.put(message.type(), typeIds.size() + 1);
+                typeId = -typeIds.size();
+            }
+        }
+
+        byte[] payload = message.payload();
+        boolean zeroCopy = payload.length >= ZERO_COPY_THRESHOLD;
+        IpAddress senderIp = message.sender().host();
+        int headerLength = FIXED_HEADER_LENGTH - (internTypes ? 0 : 4) + IpAddress.byteLength(senderIp.version())
+                + (messageTypeBytes == null ? 0 : 4 + messageTypeBytes.length)
+                + (zeroCopy ? 0 : payload.length);
+        ByteBuf header = context.alloc().ioBuffer(headerLength);
+
+        header.writeInt(this.preamble);
 
         // write time
-        out.writeLong(message.time().logicalTime());
-        out.writeLong(message.time().logicalCounter());
+        header.writeLong(message.time().logicalTime());
+        header.writeLong(message.time().logicalCounter());
 
         // write message id
-        out.writeLong(message.id());
+        header.writeLong(message.id());
 
         Endpoint sender = message.sender();
 
-        IpAddress senderIp = sender.host();
-        if (senderIp.version() == Version.INET) {
-            out.writeByte(0);
-        } else {
-            out.writeByte(1);
-        }
-        out.writeBytes(senderIp.toOctets());
+        byte ipVersion = senderIp.version() == Version.INET ? (byte) 0 : (byte) 1;
+        header.writeByte(internTypes ? ipVersion | INTERNED_TYPE_FLAG : ipVersion);
+        header.writeBytes(senderIp.toOctets());
 
         // write sender port
-        out.writeInt(sender.port());
+        header.writeInt(sender.port());
 
-        byte[] messageTypeBytes = message.type().getBytes(Charsets.UTF_8);
+        if (internTypes) {
+            // write message type id
+            header.writeInt(typeId);
+        }
 
-        // write length of message type
-        out.writeInt(messageTypeBytes.length);
+        if (messageTypeBytes != null) {
+            // write length of message type
+            header.writeInt(messageTypeBytes.length);
 
-        // write message type bytes
-        out.writeBytes(messageTypeBytes);
+            // write message type bytes
+            header.writeBytes(messageTypeBytes);
+        }
 
         // write message status value
-        out.writeInt(message.status().ordinal());
-
-        byte[] payload = message.payload();
+        header.writeInt(message.status().ordinal());
 
         // write payload length
-        out.writeInt(payload.length);
+        header.writeInt(payload.length);
 
         // write payload.
-        out.writeBytes(payload);
+        if (zeroCopy) {
+            out.add(header);
+            out.add(Unpooled.wrappedBuffer(payload));
+        } else {
+            header.writeBytes(payload);
+            out.add(header);
+        }
     }
 
     @Override
@@ -106,7 +191,7 @@ public class MessageEncoder extends MessageToByteEncoder<Object> {
         context.close();
     }
 
-    // Effectively same result as one generated by MessageToByteEncoder<InternalMessage>
+    // Effectively same result as one generated by MessageToMessageEncoder<InternalMessage>
     @Override
     public final boolean acceptOutboundMessage(Object msg) throws Exception {
         return msg instanceof InternalMessage;
@@ -94,6 +94,7 @@ import static org.onosproject.security.AppPermission.Type.CLUSTER_WRITE;
 public class NettyMessagingManager implements MessagingService {
 
     private static final int REPLY_TIME_OUT_MILLIS = 250;
+    private static final int FLUSH_THRESHOLD_BYTES = 64 * 1024;
     private static final short MIN_KS_LENGTH = 6;
 
     private final Logger log = LoggerFactory.getLogger(getClass());
@@ -388,6 +389,13 @@ public class NettyMessagingManager implements MessagingService {
 
             f.addListener(future -> {
                 if (future.isSuccess()) {
+                    // ask the peer whether it decodes interned message types, before any other message
+                    f.channel().writeAndFlush(new InternalMessage(preamble,
+                                                                  clockService.timeNow(),
+                                                                  messageIdGenerator.incrementAndGet(),
+                                                                  localEp,
+                                                                  MessageEncoder.INTERN_TYPES,
+                                                                  new byte[0]));
                     retFuture.complete(f.channel());
                 } else {
                     retFuture.completeExceptionally(future.cause());
@@ -411,7 +419,6 @@ public class NettyMessagingManager implements MessagingService {
     private class SslServerCommunicationChannelInitializer extends ChannelInitializer<SocketChannel> {
 
         private final ChannelHandler dispatcher = new InboundMessageDispatcher();
-        private final ChannelHandler encoder = new MessageEncoder(preamble);
 
         @Override
         protected void initChannel(SocketChannel channel) throws Exception {
@@ -437,7 +444,7 @@ public class NettyMessagingManager implements MessagingService {
             serverSslEngine.setEnableSessionCreation(true);
 
             channel.pipeline().addLast("ssl", new io.netty.handler.ssl.SslHandler(serverSslEngine))
-                    .addLast("encoder", encoder)
+                    .addLast("encoder", new MessageEncoder(preamble))
                     .addLast("decoder", new MessageDecoder())
                     .addLast("handler", dispatcher);
         }
@@ -446,7 +453,6 @@ public class NettyMessagingManager implements MessagingService {
     private class SslClientCommunicationChannelInitializer extends ChannelInitializer<SocketChannel> {
 
         private final ChannelHandler dispatcher = new InboundMessageDispatcher();
-        private final ChannelHandler encoder = new MessageEncoder(preamble);
 
         @Override
         protected void initChannel(SocketChannel channel) throws Exception {
@@ -471,7 +477,7 @@ public class NettyMessagingManager implements MessagingService {
             clientSslEngine.setEnableSessionCreation(true);
 
             channel.pipeline().addLast("ssl", new io.netty.handler.ssl.SslHandler(clientSslEngine))
-                    .addLast("encoder", encoder)
+                    .addLast("encoder", new MessageEncoder(preamble))
                     .addLast("decoder", new MessageDecoder())
                     .addLast("handler", dispatcher);
         }
@@ -480,12 +486,11 @@ public class NettyMessagingManager implements MessagingService {
     private class OnosCommunicationChannelInitializer extends ChannelInitializer<SocketChannel> {
 
         private final ChannelHandler dispatcher = new InboundMessageDispatcher();
-        private final ChannelHandler encoder = new MessageEncoder(preamble);
 
         @Override
         protected void initChannel(SocketChannel channel) throws Exception {
             channel.pipeline()
-                    .addLast("encoder", encoder)
+                    .addLast("encoder", new MessageEncoder(preamble))
                     .addLast("decoder", new MessageDecoder())
                     .addLast("handler", dispatcher);
         }
@@ -598,8 +603,21 @@ public class NettyMessagingManager implements MessagingService {
             executor.execute(() -> future.completeExceptionally(error));
         }
     }
+
+    /**
+     * Connection to a remote endpoint which coalesces writes.
+     * <p>
+     * Messages are written to the channel without flushing it. The channel is
+     * flushed once per event loop tick, after all writes queued up to then,
+     * or as soon as the unflushed payload bytes reach a threshold, so a burst
+     * of messages goes out in a few system calls instead of one per message.
+     * The flush state is only accessed from the event loop of the channel.
+     * </p>
+     */
     private final class Connection {
         private final CompletableFuture<Channel> internalFuture;
+        private boolean flushScheduled;
+        private int unflushedBytes;
 
         public Connection(CompletableFuture<Channel> internalFuture) {
             this.internalFuture = internalFuture;
@@ -612,22 +630,43 @@ public class NettyMessagingManager implements MessagingService {
          * @param future a future that is completed normally or exceptionally if
          *               message sending succeeds or fails respectively
          */
-        public void send(Object message, CompletableFuture<Void> future) {
+        public void send(InternalMessage message, CompletableFuture<Void> future) {
             internalFuture.whenComplete((channel, throwable) -> {
                 if (throwable == null) {
-                    channel.writeAndFlush(message).addListener(channelFuture -> {
-                        if (!channelFuture.isSuccess()) {
-                            future.completeExceptionally(channelFuture.cause());
-                        } else {
-                            future.complete(null);
-                        }
-                    });
+                    if (channel.eventLoop().inEventLoop()) {
+                        write(channel, message, future);
+                    } else {
+                        channel.eventLoop().execute(() -> write(channel, message, future));
+                    }
                 } else {
                     future.completeExceptionally(throwable);
                 }
             });
         }
 
+        private void write(Channel channel, InternalMessage message, CompletableFuture<Void> future) {
+            channel.write(message).addListener(channelFuture -> {
+                if (!channelFuture.isSuccess()) {
+                    future.completeExceptionally(channelFuture.cause());
+                } else {
+                    future.complete(null);
+                }
+            });
+            unflushedBytes += message.payload().length;
+            if (unflushedBytes >= FLUSH_THRESHOLD_BYTES) {
+                flush(channel);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                channel.eventLoop().execute(() -> flush(channel));
+            }
+        }
+
+        private void flush(Channel channel) {
+            flushScheduled = false;
+            unflushedBytes = 0;
+            channel.flush();
+        }
+
         /**
          * Destroys a channel by closing its channel (if it exists) and
          * cancelling its future.
@@ -27,6 +27,7 @@ package org.onosproject.store.flow.impl;
  import java.util.concurrent.ScheduledExecutorService;
  import java.util.concurrent.ScheduledFuture;
  import java.util.concurrent.TimeUnit;
+ import java.util.concurrent.atomic.AtomicBoolean;
  import java.util.concurrent.atomic.AtomicInteger;
  import java.util.concurrent.atomic.AtomicReference;
  import java.util.stream.Collectors;
@@ -88,6 +89,7 @@ package org.onosproject.store.flow.impl;
 
  import com.google.common.collect.ImmutableList;
  import com.google.common.collect.Iterables;
+ import com.google.common.collect.Lists;
  import com.google.common.collect.Maps;
  import com.google.common.collect.Sets;
  import com.google.common.util.concurrent.Futures;
@@ -120,10 +122,15 @@ public class DistributedFlowRuleStore
     private static final boolean DEFAULT_BACKUP_ENABLED = true;
     private static final int DEFAULT_MAX_BACKUP_COUNT = 2;
     private static final boolean DEFAULT_PERSISTENCE_ENABLED = false;
+    private static final boolean DEFAULT_OFF_HEAP_ENABLED = false;
     private static final int DEFAULT_BACKUP_PERIOD_MILLIS = 2000;
     private static final long FLOW_RULE_STORE_TIMEOUT_MILLIS = 5000;
-    // number of devices whose flow entries will be backed up in one communication round
+    // number of devices whose complete flow tables will be backed up in one communication round
     private static final int FLOW_TABLE_BACKUP_BATCH_SIZE = 1;
+    // number of devices whose flow table changes will be backed up in one communication round
+    private static final int FLOW_TABLE_DELTA_BATCH_SIZE = 100;
+    // number of changed flow entries per device past which a full backup is sent instead
+    private static final int FLOW_CHANGE_LOG_MAX_SIZE = 100_000;
 
     @Property(name = "msgHandlerPoolSize", intValue = MESSAGE_HANDLER_THREAD_POOL_SIZE,
             label = "Number of threads in the message handler pool")
@@ -140,6 +147,10 @@ public class DistributedFlowRuleStore
             label = "Indicates whether or not changes in the flow table should be persisted to disk.")
     private boolean persistenceEnabled = DEFAULT_PERSISTENCE_ENABLED;
 
+    @Property(name = "offHeapEnabled", boolValue = DEFAULT_OFF_HEAP_ENABLED,
+            label = "Indicates whether flow tables are kept serialized in off-heap memory")
+    private volatile boolean offHeapEnabled = DEFAULT_OFF_HEAP_ENABLED;
+
     @Property(name = "backupCount", intValue = DEFAULT_MAX_BACKUP_COUNT,
             label = "Max number of backup copies for each device")
     private volatile int backupCount = DEFAULT_MAX_BACKUP_COUNT;
@@ -187,6 +198,8 @@ public class DistributedFlowRuleStore
 
     protected final Serializer serializer = Serializer.using(KryoNamespaces.API);
 
+    protected final Serializer backupSerializer = Serializer.using(KryoNamespaces.API, FlowTableBackup.class);
+
     protected final KryoNamespace.Builder serializerBuilder = KryoNamespace.newBuilder()
             .register(KryoNamespaces.API)
             .register(MastershipBasedTimestamp.class);
@@ -261,6 +274,7 @@ public class DistributedFlowRuleStore
         boolean newBackupEnabled;
         int newBackupPeriod;
         int newBackupCount;
+        boolean newOffHeapEnabled;
         try {
             String s = get(properties, "msgHandlerPoolSize");
             newPoolSize = isNullOrEmpty(s) ? msgHandlerPoolSize : Integer.parseInt(s.trim());
@@ -273,11 +287,15 @@ public class DistributedFlowRuleStore
 
             s = get(properties, "backupCount");
             newBackupCount = isNullOrEmpty(s) ? backupCount : Integer.parseInt(s.trim());
+
+            s = get(properties, "offHeapEnabled");
+            newOffHeapEnabled = isNullOrEmpty(s) ? offHeapEnabled : Boolean.parseBoolean(s.trim());
         } catch (NumberFormatException | ClassCastException e) {
             newPoolSize = MESSAGE_HANDLER_THREAD_POOL_SIZE;
             newBackupEnabled = DEFAULT_BACKUP_ENABLED;
             newBackupPeriod = DEFAULT_BACKUP_PERIOD_MILLIS;
             newBackupCount = DEFAULT_MAX_BACKUP_COUNT;
+            newOffHeapEnabled = DEFAULT_OFF_HEAP_ENABLED;
         }
 
         boolean restartBackupTask = false;
@@ -322,6 +340,10 @@ public class DistributedFlowRuleStore
         if (backupCount != newBackupCount) {
             backupCount = newBackupCount;
         }
+        if (newOffHeapEnabled != offHeapEnabled) {
+            offHeapEnabled = newOffHeapEnabled;
+            flowTable.migrateFlowTables();
+        }
         logConfig("Reconfigured");
     }
 
@@ -333,13 +355,15 @@ public class DistributedFlowRuleStore
         clusterCommunicator.addSubscriber(
                 GET_FLOW_ENTRY, serializer::decode, flowTable::getFlowEntry, serializer::encode, executor);
         clusterCommunicator.addSubscriber(
-                GET_DEVICE_FLOW_ENTRIES, serializer::decode, flowTable::getFlowEntries, serializer::encode, executor);
+                GET_DEVICE_FLOW_ENTRIES, serializer::decode,
+                (DeviceId deviceId) -> flowTable.getFlowEntries(deviceId), serializer::encode, executor);
         clusterCommunicator.addSubscriber(
                 REMOVE_FLOW_ENTRY, serializer::decode, this::removeFlowRuleInternal, serializer::encode, executor);
         clusterCommunicator.addSubscriber(
                 REMOVE_FLOW_ENTRY, serializer::decode, this::removeFlowRuleInternal, serializer::encode, executor);
         clusterCommunicator.addSubscriber(
-                FLOW_TABLE_BACKUP, serializer::decode, flowTable::onBackupReceipt, serializer::encode, executor);
+                FLOW_TABLE_BACKUP, backupSerializer::decode, flowTable::onBackupReceipt, backupSerializer::encode,
+                executor);
     }
 
     private void unregisterMessageHandlers() {
@@ -352,8 +376,9 @@ public class DistributedFlowRuleStore
     }
 
     private void logConfig(String prefix) {
-        log.info("{} with msgHandlerPoolSize = {}; backupEnabled = {}, backupPeriod = {}, backupCount = {}",
-                 prefix, msgHandlerPoolSize, backupEnabled, backupPeriod, backupCount);
+        log.info("{} with msgHandlerPoolSize = {}; backupEnabled = {}, backupPeriod = {}, backupCount = {}, " +
+                         "offHeapEnabled = {}",
+                 prefix, msgHandlerPoolSize, backupEnabled, backupPeriod, backupCount, offHeapEnabled);
     }
 
     // This is not a efficient operation on a distributed sharded
@@ -418,6 +443,22 @@ public class DistributedFlowRuleStore
                                Collections.emptyList());
     }
 
+    @Override
+    public Iterable<FlowEntry> getFlowEntries(DeviceId deviceId, FlowId flowId) {
+        if (!mastershipService.isLocalMaster(deviceId)) {
+            return FlowRuleStore.super.getFlowEntries(deviceId, flowId);
+        }
+        return flowTable.getFlowEntries(deviceId, flowId);
+    }
+
+    @Override
+    public Set<FlowId> getFlowIds(DeviceId deviceId) {
+        if (!mastershipService.isLocalMaster(deviceId)) {
+            return FlowRuleStore.super.getFlowIds(deviceId);
+        }
+        return flowTable.getFlowIds(deviceId);
+    }
+
     @Override
     public void storeFlowRule(FlowRule rule) {
         storeBatch(new FlowRuleBatchOperation(
@@ -511,6 +552,7 @@ public class DistributedFlowRuleStore
                             if (entry != null) {
                                 //FIXME modification of "stored" flow entry outside of flow table
                                 entry.setState(FlowEntryState.PENDING_REMOVE);
+                                flowTable.updated(entry);
                                 log.debug("Setting state of rule to pending remove: {}", entry);
                                 return op;
                             }
@@ -543,6 +585,7 @@ public class DistributedFlowRuleStore
             if (stored != null &&
                     stored.state() != FlowEntryState.PENDING_ADD) {
                 stored.setState(FlowEntryState.PENDING_ADD);
+                flowTable.updated(stored);
                 return new FlowRuleEvent(Type.RULE_UPDATED, rule);
             }
         }
@@ -561,10 +604,32 @@ public class DistributedFlowRuleStore
         return null;
     }
 
+    @Override
+    public void refreshFlowRule(FlowEntry rule, long life, TimeUnit unit) {
+        if (mastershipService.isLocalMaster(rule.deviceId())) {
+            StoredFlowEntry stored = flowTable.getFlowEntry(rule);
+            if (stored != null) {
+                stored.setLife(life, unit);
+                stored.setLastSeen();
+                flowTable.refreshed(stored);
+            }
+        }
+    }
+
+    @Override
+    public boolean refreshFlowRule(DeviceId deviceId, FlowId flowId, long life, TimeUnit unit) {
+        if (!mastershipService.isLocalMaster(deviceId)) {
+            return false;
+        }
+        return flowTable.refreshed(deviceId, flowId, life, unit);
+    }
+
     private FlowRuleEvent addOrUpdateFlowRuleInternal(FlowEntry rule) {
         // check if this new rule is an update to an existing entry
         StoredFlowEntry stored = flowTable.getFlowEntry(rule);
         if (stored != null) {
+            // only changes of the counters or state are worth backing up
+            boolean changed = stored.bytes() != rule.bytes() || stored.packets() != rule.packets();
             //FIXME modification of "stored" flow entry outside of flow table
             stored.setBytes(rule.bytes());
             stored.setLife(rule.life(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
@@ -572,8 +637,14 @@ public class DistributedFlowRuleStore
             stored.setLastSeen();
             if (stored.state() == FlowEntryState.PENDING_ADD) {
                 stored.setState(FlowEntryState.ADDED);
+                flowTable.updated(stored);
                 return new FlowRuleEvent(Type.RULE_ADDED, rule);
             }
+            if (changed) {
+                flowTable.updated(stored);
+            } else {
+                flowTable.refreshed(stored);
+            }
             return new FlowRuleEvent(Type.RULE_UPDATED, rule);
         }
 
@@ -696,8 +767,14 @@ public class DistributedFlowRuleStore
         private final Map<DeviceId, Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>>
                 flowEntries = Maps.newConcurrentMap();
 
-        private final Map<BackupOperation, Long> lastBackupTimes = Maps.newConcurrentMap();
-        private final Map<DeviceId, Long> lastUpdateTimes = Maps.newConcurrentMap();
+        // Changes of the flow tables of the devices, kept by their master
+        private final Map<DeviceId, FlowChangeLog> changeLogs = Maps.newConcurrentMap();
+        // Sequence numbers of the changes acknowledged by each backup node
+        private final Map<BackupOperation, Long> ackedSequences = Maps.newConcurrentMap();
+        private final Set<BackupOperation> pendingBackups = Sets.newConcurrentHashSet();
+
+        // Masters and sequence numbers of the flow tables backed up locally
+        private final Map<DeviceId, BackupVersion> backupVersions = Maps.newConcurrentMap();
 
         @Override
         public void event(ReplicaInfoEvent event) {
@@ -706,51 +783,184 @@ public class DistributedFlowRuleStore
 
         private void handleEvent(ReplicaInfoEvent event) {
             DeviceId deviceId = event.subject();
-            if (!backupEnabled || !mastershipService.isLocalMaster(deviceId)) {
+            if (!mastershipService.isLocalMaster(deviceId)) {
+                if (event.type() == MASTER_CHANGED) {
+                    // the new master takes over the change log of the device
+                    changeLogs.remove(deviceId);
+                }
                 return;
             }
             if (event.type() == MASTER_CHANGED) {
-                lastUpdateTimes.put(deviceId, System.currentTimeMillis());
+                // backup nodes need the complete flow table from the new master
+                backupVersions.remove(deviceId);
+                ackedSequences.keySet().removeIf(op -> op.deviceId.equals(deviceId));
+                changeLog(deviceId);
+            }
+            if (!backupEnabled) {
+                return;
             }
             backupSenderExecutor.schedule(this::backup, 0, TimeUnit.SECONDS);
         }
 
+        private FlowChangeLog changeLog(DeviceId deviceId) {
+            return changeLogs.computeIfAbsent(deviceId, id -> new FlowChangeLog(FLOW_CHANGE_LOG_MAX_SIZE));
+        }
+
+        /**
+         * Records a change of a flow entry made outside of the flow table.
+         *
+         * @param entry flow entry whose state or counters changed
+         */
+        public void updated(StoredFlowEntry entry) {
+            refreshed(entry);
+            changeLog(entry.deviceId()).record(entry);
+        }
+
+        /**
+         * Writes back a change of a flow entry which is not worth backing up.
+         *
+         * @param entry flow entry whose life changed
+         */
+        public void refreshed(StoredFlowEntry entry) {
+            Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> table = flowEntries.get(entry.deviceId());
+            if (table instanceof OffHeapFlowTable) {
+                // entries read from off-heap tables are copies of the stored ones
+                ((OffHeapFlowTable) table).update(entry);
+            }
+        }
+
+        /**
+         * Writes back the life of the only flow entry with the given flow id,
+         * if it is added.
+         *
+         * @param deviceId device of the flow entry
+         * @param flowId   flow id of the flow entry
+         * @param life     time the flow entry has been alive
+         * @param unit     unit of the life
+         * @return true if the flow id identifies a single added flow entry
+         */
+        public boolean refreshed(DeviceId deviceId, FlowId flowId, long life, TimeUnit unit) {
+            Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> table = getFlowTable(deviceId);
+            if (table instanceof OffHeapFlowTable) {
+                // the entry is written in place, not decoded
+                return ((OffHeapFlowTable) table).refresh(flowId.value(), unit.toNanos(life),
+                                                          System.currentTimeMillis());
+            }
+            Map<StoredFlowEntry, StoredFlowEntry> entries = table.get(flowId);
+            if (entries == null || entries.size() != 1) {
+                return false;
+            }
+            StoredFlowEntry stored = entries.values().iterator().next();
+            if (stored.state() != FlowEntryState.ADDED) {
+                return false;
+            }
+            stored.setLife(life, unit);
+            stored.setLastSeen();
+            return true;
+        }
+
+        /**
+         * Moves the flow tables to or from off-heap memory, following the
+         * configuration.
+         */
+        private void migrateFlowTables() {
+            if (persistenceEnabled) {
+                return;
+            }
+            flowEntries.keySet().forEach(deviceId -> flowEntries.computeIfPresent(deviceId, (id, table) -> {
+                if ((table instanceof OffHeapFlowTable) == offHeapEnabled) {
+                    return table;
+                }
+                Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> migrated = newFlowTable();
+                table.forEach((flowId, entries) -> {
+                    Map<StoredFlowEntry, StoredFlowEntry> copy = Maps.newConcurrentMap();
+                    copy.putAll(entries);
+                    migrated.put(flowId, copy);
+                });
+                return migrated;
+            }));
+            log.info("Moved flow tables {} off-heap memory", offHeapEnabled ? "to" : "from");
+        }
+
+        private Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> newFlowTable() {
+            if (offHeapEnabled) {
+                return new OffHeapFlowTable(serializer);
+            }
+            return Maps.newConcurrentMap();
+        }
+
         private void sendBackups(NodeId nodeId, Set<DeviceId> deviceIds) {
-            // split up the devices into smaller batches and send them separately.
-            Iterables.partition(deviceIds, FLOW_TABLE_BACKUP_BATCH_SIZE)
-                     .forEach(ids -> backupFlowEntries(nodeId, Sets.newHashSet(ids)));
+            Map<DeviceId, FlowTableBackup> fullBackups = Maps.newHashMap();
+            Map<DeviceId, FlowTableBackup> deltaBackups = Maps.newHashMap();
+            deviceIds.forEach(deviceId -> {
+                FlowTableBackup backup = getBackup(nodeId, deviceId);
+                (backup.isFull() ? fullBackups : deltaBackups).put(deviceId, backup);
+            });
+            // split up the devices into smaller batches and send them separately;
+            // complete flow tables are large, so fewer of them go in a batch
+            Iterables.partition(fullBackups.keySet(), FLOW_TABLE_BACKUP_BATCH_SIZE)
+                     .forEach(ids -> backupFlowEntries(nodeId, Maps.toMap(ids, fullBackups::get)));
+            Iterables.partition(deltaBackups.keySet(), FLOW_TABLE_DELTA_BATCH_SIZE)
+                     .forEach(ids -> backupFlowEntries(nodeId, Maps.toMap(ids, deltaBackups::get)));
+        }
+
+        // Returns the changes since the last backup acknowledged by the node,
+        // or the complete flow table if the change log does not reach back to it
+        private FlowTableBackup getBackup(NodeId nodeId, DeviceId deviceId) {
+            FlowChangeLog changeLog = changeLog(deviceId);
+            long sequence = changeLog.sequence();
+            Long acked = ackedSequences.get(new BackupOperation(nodeId, deviceId));
+            Set<StoredFlowEntry> changed = acked == null ? null : changeLog.changedSince(acked);
+            if (changed == null) {
+                return FlowTableBackup.full(local, sequence, getFlowTableCopy(deviceId));
+            }
+
+            List<StoredFlowEntry> updated = Lists.newArrayList();
+            List<StoredFlowEntry> removed = Lists.newArrayList();
+            Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> table = getFlowTable(deviceId);
+            changed.forEach(rule -> {
+                Map<StoredFlowEntry, StoredFlowEntry> entries = table.get(rule.id());
+                StoredFlowEntry entry = entries == null ? null : entries.get(rule);
+                if (entry != null) {
+                    updated.add(entry);
+                } else {
+                    removed.add(rule);
+                }
+            });
+            return FlowTableBackup.delta(local, acked, sequence, updated, removed);
         }
 
-        private void backupFlowEntries(NodeId nodeId, Set<DeviceId> deviceIds) {
-            if (deviceIds.isEmpty()) {
+        private void backupFlowEntries(NodeId nodeId, Map<DeviceId, FlowTableBackup> backups) {
+            if (backups.isEmpty()) {
                 return;
             }
-            log.debug("Sending flowEntries for devices {} to {} for backup.", deviceIds, nodeId);
-            Map<DeviceId, Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>>
-                    deviceFlowEntries = Maps.newConcurrentMap();
-            deviceIds.forEach(id -> deviceFlowEntries.put(id, getFlowTableCopy(id)));
-            clusterCommunicator.<Map<DeviceId,
-                                 Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>>,
-                                 Set<DeviceId>>
-                    sendAndReceive(deviceFlowEntries,
+            log.debug("Sending flowEntries for devices {} to {} for backup.", backups.keySet(), nodeId);
+            backups.keySet().forEach(id -> pendingBackups.add(new BackupOperation(nodeId, id)));
+            clusterCommunicator.<Map<DeviceId, FlowTableBackup>, Set<DeviceId>>
+                    sendAndReceive(backups,
                                    FLOW_TABLE_BACKUP,
-                                   serializer::encode,
-                                   serializer::decode,
+                                   backupSerializer::encode,
+                                   backupSerializer::decode,
                                    nodeId)
                     .whenComplete((backedupDevices, error) -> {
                         Set<DeviceId> devicesNotBackedup = error != null ?
-                            deviceFlowEntries.keySet() :
-                            Sets.difference(deviceFlowEntries.keySet(), backedupDevices);
+                            backups.keySet() :
+                            Sets.difference(backups.keySet(), backedupDevices);
                         if (devicesNotBackedup.size() > 0) {
                             log.warn("Failed to backup devices: {}. Reason: {}, Node: {}",
                                      devicesNotBackedup, error != null ? error.getMessage() : "none",
                                      nodeId);
                         }
-                        if (backedupDevices != null) {
-                            backedupDevices.forEach(id -> {
-                                lastBackupTimes.put(new BackupOperation(nodeId, id), System.currentTimeMillis());
-                            });
-                        }
+                        backups.forEach((id, backup) -> {
+                            BackupOperation operation = new BackupOperation(nodeId, id);
+                            if (backedupDevices != null && backedupDevices.contains(id)) {
+                                ackedSequences.put(operation, backup.sequence());
+                            } else if (error == null) {
+                                // the node could not apply the changes; send it the complete flow table
+                                ackedSequences.remove(operation);
+                            }
+                            pendingBackups.remove(operation);
+                        });
                     });
         }
 
@@ -778,7 +988,7 @@ public class DistributedFlowRuleStore
                         })
                         .build());
             } else {
-                return flowEntries.computeIfAbsent(deviceId, id -> Maps.newConcurrentMap());
+                return flowEntries.computeIfAbsent(deviceId, id -> newFlowTable());
             }
         }
 
@@ -801,7 +1011,7 @@ public class DistributedFlowRuleStore
                         })
                         .build());
             } else {
-                flowEntries.computeIfAbsent(deviceId, id -> Maps.newConcurrentMap()).forEach((k, v) -> {
+                flowEntries.computeIfAbsent(deviceId, id -> newFlowTable()).forEach((k, v) -> {
                     copy.put(k, Maps.newHashMap(v));
                 });
                 return copy;
@@ -830,6 +1040,19 @@ public class DistributedFlowRuleStore
             return getFlowEntriesInternal(deviceId);
         }
 
+        public List<FlowEntry> getFlowEntries(DeviceId deviceId, FlowId flowId) {
+            Map<StoredFlowEntry, StoredFlowEntry> entries = getFlowTable(deviceId).get(flowId);
+            return entries == null ? Collections.emptyList() : ImmutableList.copyOf(entries.values());
+        }
+
+        public Set<FlowId> getFlowIds(DeviceId deviceId) {
+            // the entries of off-heap flow tables are only counted, not decoded
+            return getFlowTable(deviceId).entrySet().stream()
+                        .filter(e -> !e.getValue().isEmpty())
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toSet());
+        }
+
         public void add(FlowEntry rule) {
             getFlowEntriesInternal(rule.deviceId(), rule.id())
                     .compute((StoredFlowEntry) rule, (k, stored) -> {
@@ -837,7 +1060,7 @@ public class DistributedFlowRuleStore
                         //TODO the key is not updated
                         return (StoredFlowEntry) rule;
                     });
-            lastUpdateTimes.put(rule.deviceId(), System.currentTimeMillis());
+            changeLog(rule.deviceId()).record((StoredFlowEntry) rule);
         }
 
         public FlowEntry remove(DeviceId deviceId, FlowEntry rule) {
@@ -861,7 +1084,7 @@ public class DistributedFlowRuleStore
                 });
 
             if (removedRule.get() != null) {
-                lastUpdateTimes.put(deviceId, System.currentTimeMillis());
+                changeLog(deviceId).record((StoredFlowEntry) removedRule.get());
                 return removedRule.get();
             } else {
                 return null;
@@ -870,6 +1093,9 @@ public class DistributedFlowRuleStore
 
         public void purgeFlowRule(DeviceId deviceId) {
             flowEntries.remove(deviceId);
+            changeLogs.remove(deviceId);
+            ackedSequences.keySet().removeIf(op -> op.deviceId.equals(deviceId));
+            backupVersions.remove(deviceId);
         }
 
         private List<NodeId> getBackupNodes(DeviceId deviceId) {
@@ -886,15 +1112,23 @@ public class DistributedFlowRuleStore
             try {
                 // compute a mapping from node to the set of devices whose flow entries it should backup
                 Map<NodeId, Set<DeviceId>> devicesToBackupByNode = Maps.newHashMap();
-                flowEntries.keySet().forEach(deviceId -> {
+                changeLogs.forEach((deviceId, changeLog) -> {
                     List<NodeId> backupNodes = getBackupNodes(deviceId);
-                    backupNodes.forEach(backupNode -> {
-                            if (lastBackupTimes.getOrDefault(new BackupOperation(backupNode, deviceId), 0L)
-                                    < lastUpdateTimes.getOrDefault(deviceId, 0L)) {
-                                devicesToBackupByNode.computeIfAbsent(backupNode,
-                                                                      nodeId -> Sets.newHashSet()).add(deviceId);
-                            }
-                    });
+                    long sequence = changeLog.sequence();
+                    long pruneTo = sequence;
+                    for (NodeId backupNode : backupNodes) {
+                        BackupOperation operation = new BackupOperation(backupNode, deviceId);
+                        Long acked = ackedSequences.get(operation);
+                        if (acked != null) {
+                            pruneTo = Math.min(pruneTo, acked);
+                        }
+                        if ((acked == null || acked < sequence) && !pendingBackups.contains(operation)) {
+                            devicesToBackupByNode.computeIfAbsent(backupNode,
+                                                                  nodeId -> Sets.newHashSet()).add(deviceId);
+                        }
+                    }
+                    // changes acknowledged by all backup nodes are no longer needed
+                    changeLog.prune(pruneTo);
                 });
                 // send the device flow entries to their respective backup nodes
                 devicesToBackupByNode.forEach(this::sendBackups);
@@ -903,18 +1137,14 @@ public class DistributedFlowRuleStore
             }
         }
 
-        private Set<DeviceId> onBackupReceipt(Map<DeviceId,
-                Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>> flowTables) {
-            log.debug("Received flowEntries for {} to backup", flowTables.keySet());
+        private Set<DeviceId> onBackupReceipt(Map<DeviceId, FlowTableBackup> backups) {
+            log.debug("Received flowEntries for {} to backup", backups.keySet());
             Set<DeviceId> backedupDevices = Sets.newHashSet();
             try {
-                flowTables.forEach((deviceId, deviceFlowTable) -> {
+                backups.forEach((deviceId, backup) -> {
                     // Only process those devices are that not managed by the local node.
-                    if (!Objects.equals(local, mastershipService.getMasterFor(deviceId))) {
-                        Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> backupFlowTable =
-                                getFlowTable(deviceId);
-                        backupFlowTable.clear();
-                        backupFlowTable.putAll(deviceFlowTable);
+                    if (!Objects.equals(local, mastershipService.getMasterFor(deviceId)) &&
+                            applyBackup(deviceId, backup)) {
                         backedupDevices.add(deviceId);
                     }
                 });
@@ -923,6 +1153,55 @@ public class DistributedFlowRuleStore
             }
             return backedupDevices;
         }
+
+        // Applies a backup to the local copy of the flow table of the device;
+        // a delta only applies on top of the backup it was computed from
+        private boolean applyBackup(DeviceId deviceId, FlowTableBackup backup) {
+            AtomicBoolean applied = new AtomicBoolean();
+            backupVersions.compute(deviceId, (id, version) -> {
+                Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> backupFlowTable = getFlowTable(deviceId);
+                if (backup.isFull()) {
+                    backupFlowTable.clear();
+                    backupFlowTable.putAll(backup.flowTable());
+                } else if (version != null && version.follows(backup)) {
+                    backup.updated().forEach(entry -> getFlowEntriesInternal(deviceId, entry.id()).put(entry, entry));
+                    backup.removed().forEach(entry -> {
+                        Map<StoredFlowEntry, StoredFlowEntry> entries = backupFlowTable.get(entry.id());
+                        if (entries != null) {
+                            entries.remove(entry);
+                        }
+                    });
+                } else {
+                    log.debug("Backup of {} from {} does not follow {}; awaiting full backup",
+                              deviceId, backup.master(), version);
+                    return version;
+                }
+                applied.set(true);
+                return new BackupVersion(backup.master(), backup.sequence());
+            });
+            return applied.get();
+        }
+    }
+
+    // Master and sequence number of a flow table backed up locally
+    private static final class BackupVersion {
+        private final NodeId master;
+        private final long sequence;
+
+        private BackupVersion(NodeId master, long sequence) {
+            this.master = master;
+            this.sequence = sequence;
+        }
+
+        // Returns whether the backup is a delta from this version
+        private boolean follows(FlowTableBackup backup) {
+            return master.equals(backup.master()) && sequence == backup.baseSequence();
+        }
+
+        @Override
+        public String toString() {
+            return master + ":" + sequence;
+        }
     }
 
     @Override
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import org.onosproject.net.flow.StoredFlowEntry;
+
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Log of the changes made to the flow table of one device, numbered by a
+ * sequence incremented on each change.
+ * <p>
+ * Only the last change of each flow entry is kept. Changes acknowledged by
+ * all backup nodes can be pruned; deltas can be computed from any sequence
+ * number since the last pruned one.
+ * </p>
+ */
+final class FlowChangeLog {
+
+    private final int maxSize;
+    private final Map<StoredFlowEntry, Long> changes = Maps.newHashMap();
+    private long sequence;
+    private long floor;
+
+    /**
+     * Creates a change log.
+     *
+     * @param maxSize number of flow entries past which the log is discarded
+     *                in favour of a full backup
+     */
+    FlowChangeLog(int maxSize) {
+        checkArgument(maxSize > 0, "Max size must be positive");
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Records a change of the given flow entry.
+     *
+     * @param entry flow entry added, updated or removed
+     * @return sequence number of the change
+     */
+    synchronized long record(StoredFlowEntry entry) {
+        changes.put(entry, ++sequence);
+        if (changes.size() > maxSize) {
+            changes.clear();
+            floor = sequence;
+        }
+        return sequence;
+    }
+
+    /**
+     * Returns the sequence number of the last change.
+     *
+     * @return sequence number
+     */
+    synchronized long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the flow entries changed after the given sequence number.
+     *
+     * @param since sequence number of a previous backup
+     * @return changed flow entries, or null if the log no longer reaches
+     * back to the given sequence number
+     */
+    synchronized Set<StoredFlowEntry> changedSince(long since) {
+        if (since < floor || since > sequence) {
+            return null;
+        }
+        ImmutableSet.Builder<StoredFlowEntry> changed = ImmutableSet.builder();
+        changes.forEach((entry, seq) -> {
+            if (seq > since) {
+                changed.add(entry);
+            }
+        });
+        return changed.build();
+    }
+
+    /**
+     * Discards the changes up to the given sequence number.
+     *
+     * @param upTo sequence number acknowledged by all backup nodes
+     */
+    synchronized void prune(long upTo) {
+        if (upTo <= floor) {
+            return;
+        }
+        changes.values().removeIf(seq -> seq <= upTo);
+        floor = Math.min(upTo, sequence);
+    }
+
+    /**
+     * Returns the number of flow entries in the log.
+     *
+     * @return number of changed flow entries
+     */
+    synchronized int size() {
+        return changes.size();
+    }
+}
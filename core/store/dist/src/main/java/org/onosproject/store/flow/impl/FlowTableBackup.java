@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import org.onosproject.cluster.NodeId;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.StoredFlowEntry;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Backup of the flow table of one device, sent by the master of the device
+ * to its backup nodes.
+ * <p>
+ * A backup is either a full copy of the flow table or the delta between the
+ * table at the last backup acknowledged by the node and the table at the
+ * given sequence number of the master's change log.
+ * </p>
+ */
+final class FlowTableBackup {
+
+    private final NodeId master;
+    private final long baseSequence;
+    private final long sequence;
+    private final Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> flowTable;
+    private final Collection<StoredFlowEntry> updated;
+    private final Collection<StoredFlowEntry> removed;
+
+    private FlowTableBackup(NodeId master, long baseSequence, long sequence,
+                            Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> flowTable,
+                            Collection<StoredFlowEntry> updated,
+                            Collection<StoredFlowEntry> removed) {
+        this.master = checkNotNull(master);
+        this.baseSequence = baseSequence;
+        this.sequence = sequence;
+        this.flowTable = flowTable;
+        this.updated = updated;
+        this.removed = removed;
+    }
+
+    /**
+     * Creates a backup carrying the complete flow table.
+     *
+     * @param master   node sending the backup
+     * @param sequence sequence number of the change log the table reflects
+     * @param flowTable flow table of the device
+     * @return full backup
+     */
+    static FlowTableBackup full(NodeId master, long sequence,
+                                Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> flowTable) {
+        return new FlowTableBackup(master, sequence, sequence, checkNotNull(flowTable), null, null);
+    }
+
+    /**
+     * Creates a backup carrying the changes since a previous backup.
+     *
+     * @param master       node sending the backup
+     * @param baseSequence sequence number of the previous backup
+     * @param sequence     sequence number of the change log the delta reaches
+     * @param updated      flow entries added or updated since the previous backup
+     * @param removed      flow entries removed since the previous backup
+     * @return delta backup
+     */
+    static FlowTableBackup delta(NodeId master, long baseSequence, long sequence,
+                                 Collection<StoredFlowEntry> updated,
+                                 Collection<StoredFlowEntry> removed) {
+        return new FlowTableBackup(master, baseSequence, sequence, null,
+                                   checkNotNull(updated), checkNotNull(removed));
+    }
+
+    /**
+     * Returns the node which sent the backup.
+     *
+     * @return master node of the device
+     */
+    NodeId master() {
+        return master;
+    }
+
+    /**
+     * Returns the sequence number of the backup the delta applies to.
+     *
+     * @return base sequence number
+     */
+    long baseSequence() {
+        return baseSequence;
+    }
+
+    /**
+     * Returns the sequence number of the change log the backup reflects.
+     *
+     * @return sequence number
+     */
+    long sequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns whether the backup carries the complete flow table.
+     *
+     * @return true for a full backup
+     */
+    boolean isFull() {
+        return flowTable != null;
+    }
+
+    /**
+     * Returns the complete flow table of a full backup.
+     *
+     * @return flow table; null for a delta
+     */
+    Map<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> flowTable() {
+        return flowTable;
+    }
+
+    /**
+     * Returns the flow entries added or updated in a delta.
+     *
+     * @return updated flow entries; null for a full backup
+     */
+    Collection<StoredFlowEntry> updated() {
+        return updated;
+    }
+
+    /**
+     * Returns the flow entries removed in a delta.
+     *
+     * @return removed flow entries; null for a full backup
+     */
+    Collection<StoredFlowEntry> removed() {
+        return removed;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("master", master)
+                .add("baseSequence", baseSequence)
+                .add("sequence", sequence)
+                .add("full", isFull())
+                .toString();
+    }
+
+    // For serializer
+    @SuppressWarnings("unused")
+    private FlowTableBackup() {
+        this.master = null;
+        this.baseSequence = 0;
+        this.sequence = 0;
+        this.flowTable = null;
+        this.updated = null;
+        this.removed = null;
+    }
+}
@@ -0,0 +1,612 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.onosproject.net.flow.FlowEntry.FlowEntryState;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.StoredFlowEntry;
+import org.onosproject.store.service.Serializer;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Flow table of one device kept in serialized form in off-heap slabs.
+ * <p>
+ * Each flow entry is stored as a record made of its counters and state,
+ * kept as primitive fields which are updated in place, followed by the
+ * serialized entry. Records are indexed by flow id; entries which share a
+ * flow id are chained. Flow entries are only materialized on read, so the
+ * entries returned are copies: changes made to them must be written back
+ * with {@link #update(StoredFlowEntry)}.
+ * </p>
+ * <p>
+ * The table is exposed as the map of flow id to flow entries used by the
+ * flow rule store for its in-memory and persistent flow tables. The flow
+ * entry maps are views over the records with the same flow id. All
+ * operations are serialized by the table; the views are snapshots for
+ * iteration.
+ * </p>
+ * <p>
+ * Slabs start small and each new slab is twice the size of the previous
+ * one, up to a maximum, so devices with few flows take little memory.
+ * </p>
+ */
+final class OffHeapFlowTable extends AbstractMap<FlowId, Map<StoredFlowEntry, StoredFlowEntry>> {
+
+    static final int INITIAL_SLAB_SIZE = 4 * 1024;
+    static final int MAX_SLAB_SIZE = 1 << 20;
+
+    // Record layout
+    private static final int LENGTH = 0;        // int: length of the serialized entry
+    private static final int NEXT = 4;          // long: next record with the same flow id
+    private static final int FLOW_ID = 12;      // long: flow id of the entry
+    private static final int STATE = 20;        // int: ordinal of the entry state
+    private static final int LIFE = 24;         // long: life in nanos
+    private static final int PACKETS = 32;      // long
+    private static final int BYTES = 40;        // long
+    private static final int LAST_SEEN = 48;    // long: epoch millis
+    private static final int HEADER = 56;
+
+    private static final long NONE = -1;
+
+    private static final FlowEntryState[] STATES = FlowEntryState.values();
+
+    private final Serializer serializer;
+    private final int initialSlabSize;
+    private final int maxSlabSize;
+
+    private final List<ByteBuffer> slabs = Lists.newArrayList();
+    private int nextSlabSize;
+    private int position;
+    private long allocatedBytes;
+    private long liveBytes;
+    private int entryCount;
+
+    private final FlowIdIndex index = new FlowIdIndex();
+
+    // Record of the entry last returned by find
+    private long found = NONE;
+
+    /**
+     * Creates an off-heap flow table with the default slab sizes.
+     *
+     * @param serializer serializer of the flow entries
+     */
+    OffHeapFlowTable(Serializer serializer) {
+        this(serializer, INITIAL_SLAB_SIZE, MAX_SLAB_SIZE);
+    }
+
+    /**
+     * Creates an off-heap flow table.
+     *
+     * @param serializer      serializer of the flow entries
+     * @param initialSlabSize size of the first off-heap slab in bytes
+     * @param maxSlabSize     maximum size of the off-heap slabs in bytes
+     */
+    OffHeapFlowTable(Serializer serializer, int initialSlabSize, int maxSlabSize) {
+        checkArgument(initialSlabSize > HEADER, "Slab size must exceed the record header");
+        checkArgument(maxSlabSize >= initialSlabSize, "Maximum slab size must not be below the initial size");
+        this.serializer = serializer;
+        this.initialSlabSize = initialSlabSize;
+        this.maxSlabSize = maxSlabSize;
+        this.nextSlabSize = initialSlabSize;
+    }
+
+    /**
+     * Writes the counters and state of a materialized flow entry back to
+     * its record.
+     *
+     * @param entry flow entry read from this table
+     * @return true if the entry is in the table
+     */
+    synchronized boolean update(StoredFlowEntry entry) {
+        if (find(entry.id().value(), entry) == null) {
+            return false;
+        }
+        writeCounters(found, entry);
+        return true;
+    }
+
+    /**
+     * Writes the life of the only flow entry with the given flow id to its
+     * record, if the entry is added, without materializing the entry.
+     *
+     * @param flowId    flow id
+     * @param lifeNanos life of the entry in nanos
+     * @param lastSeen  time the entry was last seen, in epoch millis
+     * @return true if the flow id identifies a single added entry
+     */
+    synchronized boolean refresh(long flowId, long lifeNanos, long lastSeen) {
+        long record = index.get(flowId);
+        if (record == NONE || next(record) != NONE) {
+            return false;
+        }
+        ByteBuffer slab = slab(record);
+        int offset = offset(record);
+        if (STATES[slab.getInt(offset + STATE)] != FlowEntryState.ADDED) {
+            return false;
+        }
+        slab.putLong(offset + LIFE, lifeNanos);
+        slab.putLong(offset + LAST_SEEN, lastSeen);
+        return true;
+    }
+
+    /**
+     * Returns the number of flow entries in the table.
+     *
+     * @return number of flow entries
+     */
+    synchronized int entryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Returns the off-heap memory allocated by the table.
+     *
+     * @return allocated bytes
+     */
+    synchronized long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public synchronized int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return key instanceof FlowId && index.get(((FlowId) key).value()) != NONE;
+    }
+
+    @Override
+    public synchronized Map<StoredFlowEntry, StoredFlowEntry> get(Object key) {
+        return containsKey(key) ? new FlowEntries(((FlowId) key).value()) : null;
+    }
+
+    /**
+     * Returns the view of the entries with the given flow id; entries are
+     * added to the table through the view, so it is never absent.
+     *
+     * @param key             flow id
+     * @param mappingFunction ignored
+     * @return flow entries with the flow id
+     */
+    @Override
+    public Map<StoredFlowEntry, StoredFlowEntry> computeIfAbsent(
+            FlowId key, Function<? super FlowId, ? extends Map<StoredFlowEntry, StoredFlowEntry>> mappingFunction) {
+        return new FlowEntries(key.value());
+    }
+
+    @Override
+    public synchronized Map<StoredFlowEntry, StoredFlowEntry> put(FlowId key,
+                                                                  Map<StoredFlowEntry, StoredFlowEntry> value) {
+        Map<StoredFlowEntry, StoredFlowEntry> previous = remove(key);
+        value.values().forEach(entry -> append(key.value(), entry));
+        return previous;
+    }
+
+    @Override
+    public synchronized Map<StoredFlowEntry, StoredFlowEntry> remove(Object key) {
+        if (!containsKey(key)) {
+            return null;
+        }
+        long flowId = ((FlowId) key).value();
+        Map<StoredFlowEntry, StoredFlowEntry> previous = new FlowEntries(flowId).snapshot();
+        for (long record = index.get(flowId); record != NONE; record = next(record)) {
+            free(record);
+        }
+        index.remove(flowId);
+        compactIfNeeded();
+        return previous;
+    }
+
+    @Override
+    public synchronized void clear() {
+        slabs.clear();
+        index.clear();
+        nextSlabSize = initialSlabSize;
+        position = 0;
+        allocatedBytes = 0;
+        liveBytes = 0;
+        entryCount = 0;
+    }
+
+    @Override
+    public synchronized Set<Entry<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>> entrySet() {
+        Set<Entry<FlowId, Map<StoredFlowEntry, StoredFlowEntry>>> entries =
+                Sets.newLinkedHashSetWithExpectedSize(index.size());
+        index.forEach((flowId, record) ->
+                entries.add(new SimpleImmutableEntry<>(FlowId.valueOf(flowId), new FlowEntries(flowId))));
+        return entries;
+    }
+
+    // Returns the entry with the given flow id equal to the key, noting its record
+    private StoredFlowEntry find(long flowId, Object key) {
+        for (long record = index.get(flowId); record != NONE; record = next(record)) {
+            StoredFlowEntry entry = materialize(record);
+            if (entry.equals(key)) {
+                found = record;
+                return entry;
+            }
+        }
+        found = NONE;
+        return null;
+    }
+
+    // Adds a record for the entry at the head of the chain of its flow id
+    private void append(long flowId, StoredFlowEntry entry) {
+        byte[] bytes = serializer.encode(entry);
+        long record = allocate(HEADER + bytes.length);
+        ByteBuffer slab = slab(record);
+        int offset = offset(record);
+        slab.putInt(offset + LENGTH, bytes.length);
+        slab.putLong(offset + NEXT, index.get(flowId));
+        slab.putLong(offset + FLOW_ID, flowId);
+        writeCounters(record, entry);
+        ByteBuffer data = slab.duplicate();
+        data.position(offset + HEADER);
+        data.put(bytes);
+        index.put(flowId, record);
+        liveBytes += HEADER + bytes.length;
+        entryCount++;
+    }
+
+    // Removes the record from the chain of its flow id
+    private void unlink(long flowId, long record) {
+        long previous = NONE;
+        for (long r = index.get(flowId); r != NONE; previous = r, r = next(r)) {
+            if (r == record) {
+                long next = next(r);
+                if (previous != NONE) {
+                    slab(previous).putLong(offset(previous) + NEXT, next);
+                } else if (next != NONE) {
+                    index.put(flowId, next);
+                } else {
+                    index.remove(flowId);
+                }
+                free(record);
+                compactIfNeeded();
+                return;
+            }
+        }
+    }
+
+    private void free(long record) {
+        liveBytes -= HEADER + slab(record).getInt(offset(record) + LENGTH);
+        entryCount--;
+    }
+
+    private long next(long record) {
+        return slab(record).getLong(offset(record) + NEXT);
+    }
+
+    private void writeCounters(long record, StoredFlowEntry entry) {
+        ByteBuffer slab = slab(record);
+        int offset = offset(record);
+        slab.putInt(offset + STATE, entry.state().ordinal());
+        slab.putLong(offset + LIFE, entry.life(TimeUnit.NANOSECONDS));
+        slab.putLong(offset + PACKETS, entry.packets());
+        slab.putLong(offset + BYTES, entry.bytes());
+        slab.putLong(offset + LAST_SEEN, entry.lastSeen());
+    }
+
+    private StoredFlowEntry materialize(long record) {
+        ByteBuffer slab = slab(record);
+        int offset = offset(record);
+        byte[] bytes = new byte[slab.getInt(offset + LENGTH)];
+        ByteBuffer data = slab.duplicate();
+        data.position(offset + HEADER);
+        data.get(bytes);
+        StoredFlowEntry entry = serializer.decode(bytes);
+        entry.setState(STATES[slab.getInt(offset + STATE)]);
+        entry.setLife(slab.getLong(offset + LIFE), TimeUnit.NANOSECONDS);
+        entry.setPackets(slab.getLong(offset + PACKETS));
+        entry.setBytes(slab.getLong(offset + BYTES));
+        entry.setLastSeen(slab.getLong(offset + LAST_SEEN));
+        return entry;
+    }
+
+    // Returns a record of the given size, taken from the last slab if it fits,
+    // otherwise from a new slab twice the size of the previous one
+    private long allocate(int size) {
+        if (slabs.isEmpty() || position + size > slabs.get(slabs.size() - 1).capacity()) {
+            int capacity = Math.max(nextSlabSize, size);
+            slabs.add(ByteBuffer.allocateDirect(capacity));
+            allocatedBytes += capacity;
+            nextSlabSize = (int) Math.min(maxSlabSize, 2L * nextSlabSize);
+            position = 0;
+        }
+        long record = ((long) (slabs.size() - 1) << 32) | position;
+        position += size;
+        return record;
+    }
+
+    private ByteBuffer slab(long record) {
+        return slabs.get((int) (record >>> 32));
+    }
+
+    private static int offset(long record) {
+        return (int) record;
+    }
+
+    // Copies the live records to new slabs once half of the memory is garbage;
+    // the free space left at the end of the last slab is not garbage
+    private void compactIfNeeded() {
+        if (entryCount == 0) {
+            clear();
+            return;
+        }
+        long free = slabs.get(slabs.size() - 1).capacity() - position;
+        if (allocatedBytes - free - liveBytes <= Math.max(initialSlabSize, liveBytes)) {
+            return;
+        }
+        List<ByteBuffer> oldSlabs = Lists.newArrayList(slabs);
+        FlowIdIndex oldIndex = index.copy();
+        slabs.clear();
+        index.clear();
+        // the live records fit in the first slab, within the maximum size
+        nextSlabSize = (int) Math.min(maxSlabSize, Math.max(initialSlabSize, liveBytes));
+        position = 0;
+        allocatedBytes = 0;
+        oldIndex.forEach((flowId, head) -> {
+            long record = head;
+            while (record != NONE) {
+                ByteBuffer slab = oldSlabs.get((int) (record >>> 32));
+                int offset = offset(record);
+                int size = HEADER + slab.getInt(offset + LENGTH);
+                long copy = allocate(size);
+                ByteBuffer source = slab.duplicate();
+                source.limit(offset + size).position(offset);
+                ByteBuffer target = slab(copy).duplicate();
+                target.position(offset(copy));
+                target.put(source);
+                slab(copy).putLong(offset(copy) + NEXT, index.get(flowId));
+                index.put(flowId, copy);
+                record = slab.getLong(offset + NEXT);
+            }
+        });
+    }
+
+    // Entries of the table with one flow id
+    private final class FlowEntries extends AbstractMap<StoredFlowEntry, StoredFlowEntry> {
+        private final long flowId;
+
+        private FlowEntries(long flowId) {
+            this.flowId = flowId;
+        }
+
+        @Override
+        public StoredFlowEntry get(Object key) {
+            synchronized (OffHeapFlowTable.this) {
+                return find(flowId, key);
+            }
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public StoredFlowEntry put(StoredFlowEntry key, StoredFlowEntry value) {
+            checkArgument(value.id().value() == flowId, "Flow entry has another flow id");
+            synchronized (OffHeapFlowTable.this) {
+                StoredFlowEntry previous = find(flowId, key);
+                if (previous != null) {
+                    unlink(flowId, found);
+                }
+                append(flowId, value);
+                return previous;
+            }
+        }
+
+        @Override
+        public StoredFlowEntry remove(Object key) {
+            synchronized (OffHeapFlowTable.this) {
+                StoredFlowEntry previous = find(flowId, key);
+                if (previous != null) {
+                    unlink(flowId, found);
+                }
+                return previous;
+            }
+        }
+
+        @Override
+        public StoredFlowEntry compute(StoredFlowEntry key,
+                                       BiFunction<? super StoredFlowEntry, ? super StoredFlowEntry,
+                                               ? extends StoredFlowEntry> remappingFunction) {
+            synchronized (OffHeapFlowTable.this) {
+                StoredFlowEntry previous = get(key);
+                StoredFlowEntry value = remappingFunction.apply(key, previous);
+                if (value != null && value == previous) {
+                    // the entry is kept; only its counters may have changed
+                    update(value);
+                } else if (value != null) {
+                    put(key, value);
+                } else if (previous != null) {
+                    remove(key);
+                }
+                return value;
+            }
+        }
+
+        @Override
+        public StoredFlowEntry computeIfPresent(StoredFlowEntry key,
+                                                BiFunction<? super StoredFlowEntry, ? super StoredFlowEntry,
+                                                        ? extends StoredFlowEntry> remappingFunction) {
+            synchronized (OffHeapFlowTable.this) {
+                StoredFlowEntry previous = get(key);
+                return previous == null ? null : compute(key, (k, v) -> remappingFunction.apply(k, previous));
+            }
+        }
+
+        @Override
+        public int size() {
+            synchronized (OffHeapFlowTable.this) {
+                int size = 0;
+                for (long record = index.get(flowId); record != NONE; record = next(record)) {
+                    size++;
+                }
+                return size;
+            }
+        }
+
+        @Override
+        public Set<Entry<StoredFlowEntry, StoredFlowEntry>> entrySet() {
+            return snapshot().entrySet();
+        }
+
+        // Returns a copy of the entries with the flow id
+        private Map<StoredFlowEntry, StoredFlowEntry> snapshot() {
+            synchronized (OffHeapFlowTable.this) {
+                Map<StoredFlowEntry, StoredFlowEntry> entries = Maps.newHashMap();
+                for (long record = index.get(flowId); record != NONE; record = next(record)) {
+                    StoredFlowEntry entry = materialize(record);
+                    entries.put(entry, entry);
+                }
+                return entries;
+            }
+        }
+    }
+
+    // Open addressing index of the first record of each flow id
+    private static final class FlowIdIndex {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private long[] records = newRecords(INITIAL_CAPACITY);
+        private int size;
+
+        private static long[] newRecords(int capacity) {
+            long[] records = new long[capacity];
+            Arrays.fill(records, NONE);
+            return records;
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(long key) {
+            for (int i = slot(key); records[i] != NONE; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == key) {
+                    return records[i];
+                }
+            }
+            return NONE;
+        }
+
+        void put(long key, long record) {
+            int i = slot(key);
+            for (; records[i] != NONE; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == key) {
+                    records[i] = record;
+                    return;
+                }
+            }
+            keys[i] = key;
+            records[i] = record;
+            if (++size > keys.length / 2) {
+                resize(keys.length * 2);
+            }
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key);
+            for (; records[i] != NONE; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    break;
+                }
+            }
+            if (records[i] == NONE) {
+                return;
+            }
+            // shift back the following keys of the cluster into the hole
+            int hole = i;
+            for (int j = (i + 1) & mask; records[j] != NONE; j = (j + 1) & mask) {
+                int home = slot(keys[j]);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    records[hole] = records[j];
+                    hole = j;
+                }
+            }
+            records[hole] = NONE;
+            size--;
+        }
+
+        void clear() {
+            keys = new long[INITIAL_CAPACITY];
+            records = newRecords(INITIAL_CAPACITY);
+            size = 0;
+        }
+
+        FlowIdIndex copy() {
+            FlowIdIndex copy = new FlowIdIndex();
+            copy.keys = keys.clone();
+            copy.records = records.clone();
+            copy.size = size;
+            return copy;
+        }
+
+        void forEach(RecordConsumer consumer) {
+            for (int i = 0; i < keys.length; i++) {
+                if (records[i] != NONE) {
+                    consumer.accept(keys[i], records[i]);
+                }
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            long[] oldRecords = records;
+            keys = new long[capacity];
+            records = newRecords(capacity);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldRecords[i] != NONE) {
+                    put(oldKeys[i], oldRecords[i]);
+                }
+            }
+        }
+    }
+
+    // Consumer of the flow ids and records of the index
+    @FunctionalInterface
+    private interface RecordConsumer {
+        void accept(long flowId, long record);
+    }
+}
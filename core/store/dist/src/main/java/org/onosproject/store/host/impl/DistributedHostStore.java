@@ -48,15 +48,19 @@ import org.onosproject.store.service.MapEvent;
 import org.onosproject.store.service.MapEventListener;
 import org.onosproject.store.service.Serializer;
 import org.onosproject.store.service.StorageService;
+import org.onosproject.store.service.Versioned;
 import org.slf4j.Logger;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Set;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -66,6 +70,15 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Manages the inventory of hosts using a {@code EventuallyConsistentMap}.
+ * <p>
+ * Lookups by MAC, IP, VLAN and location are served from local secondary
+ * indexes. They are updated as soon as a host is changed through this store,
+ * and by the event listener of the hosts map for changes made by other nodes.
+ * The indexes remember the version of the map entry they hold for each host,
+ * so an event delivered after a newer local change does not roll them back;
+ * a host removed here is remembered until its removal event is received, or
+ * until an event of a later version shows that no earlier event is pending.
+ * </p>
  */
 @Component(immediate = true)
 @Service
@@ -84,6 +97,27 @@ public class DistributedHostStore
     private MapEventListener<HostId, DefaultHost> hostLocationTracker =
             new HostLocationTracker();
 
+    // Version of the host held by the indexes, with a null value for a host
+    // removed by this store whose removal event is not received yet;
+    // guarded by itself, as are the index updates
+    private final Map<HostId, Versioned<DefaultHost>> indexedHosts = new HashMap<>();
+    // Hosts removed by this store by the version removed, and the highest
+    // version carried by the map events received; guarded by indexedHosts
+    private final NavigableMap<Long, HostId> removedHosts = new TreeMap<>();
+    private long eventVersion;
+
+    // Secondary indexes of the hosts
+    private final HostIndex<MacAddress> macIndex =
+            new HostIndex<>(host -> ImmutableSet.of(host.mac()));
+    private final HostIndex<IpAddress> ipIndex =
+            new HostIndex<>(Host::ipAddresses);
+    private final HostIndex<VlanId> vlanIndex =
+            new HostIndex<>(host -> ImmutableSet.of(host.vlan()));
+    private final HostIndex<ConnectPoint> locationIndex =
+            new HostIndex<>(host -> ImmutableSet.of(host.location()));
+    private final HostIndex<DeviceId> deviceIndex =
+            new HostIndex<>(host -> ImmutableSet.of(host.location().deviceId()));
+
     @Activate
     public void activate() {
         KryoNamespace.Builder hostSerializer = KryoNamespace.newBuilder()
@@ -100,12 +134,28 @@ public class DistributedHostStore
 
         hostsConsistentMap.addListener(hostLocationTracker);
 
+        // Index the hosts already in the map, reading each again so that a
+        // host removed since the key set was read is not indexed
+        ImmutableSet.copyOf(hostsConsistentMap.keySet()).forEach(hostId -> {
+            synchronized (indexedHosts) {
+                Versioned<DefaultHost> host = hostsConsistentMap.get(hostId);
+                if (host != null) {
+                    indexHost(host);
+                }
+            }
+        });
+
         log.info("Started");
     }
 
     @Deactivate
     public void deactivate() {
         hostsConsistentMap.removeListener(hostLocationTracker);
+        synchronized (indexedHosts) {
+            indexedHosts.clear();
+            removedHosts.clear();
+            clearIndexes();
+        }
 
         log.info("Stopped");
     }
@@ -152,7 +202,7 @@ public class DistributedHostStore
                                         HostId hostId,
                                         HostDescription hostDescription,
                                         boolean replaceIPs) {
-        hostsConsistentMap.computeIf(hostId,
+        Versioned<DefaultHost> host = hostsConsistentMap.computeIf(hostId,
                        existingHost -> shouldUpdate(existingHost, providerId, hostId,
                                                     hostDescription, replaceIPs),
                        (id, existingHost) -> {
@@ -182,29 +232,35 @@ public class DistributedHostStore
                                                   addresses,
                                                   annotations);
                        });
+        if (host != null) {
+            indexHost(host);
+        }
         return null;
     }
 
     // TODO No longer need to return HostEvent
     @Override
     public HostEvent removeHost(HostId hostId) {
-        hosts.remove(hostId);
+        Versioned<DefaultHost> host = hostsConsistentMap.remove(hostId);
+        if (host != null) {
+            unindexHost(hostId, host.version(), false);
+        }
         return null;
     }
 
     // TODO No longer need to return HostEvent
     @Override
     public HostEvent removeIp(HostId hostId, IpAddress ipAddress) {
-        hosts.compute(hostId, (id, existingHost) -> {
-            if (existingHost != null) {
-                checkState(Objects.equals(hostId.mac(), existingHost.mac()),
-                        "Existing and new MAC addresses differ.");
-                checkState(Objects.equals(hostId.vlanId(), existingHost.vlan()),
-                        "Existing and new VLANs differ.");
-
-                Set<IpAddress> addresses = existingHost.ipAddresses();
-                if (addresses != null && addresses.contains(ipAddress)) {
-                    addresses = new HashSet<>(existingHost.ipAddresses());
+        Versioned<DefaultHost> host = hostsConsistentMap.computeIf(hostId,
+                existingHost -> existingHost != null && existingHost.ipAddresses() != null
+                        && existingHost.ipAddresses().contains(ipAddress),
+                (id, existingHost) -> {
+                    checkState(Objects.equals(hostId.mac(), existingHost.mac()),
+                            "Existing and new MAC addresses differ.");
+                    checkState(Objects.equals(hostId.vlanId(), existingHost.vlan()),
+                            "Existing and new VLANs differ.");
+
+                    Set<IpAddress> addresses = new HashSet<>(existingHost.ipAddresses());
                     addresses.remove(ipAddress);
                     return new DefaultHost(existingHost.providerId(),
                             hostId,
@@ -213,12 +269,10 @@ public class DistributedHostStore
                             existingHost.location(),
                             ImmutableSet.copyOf(addresses),
                             existingHost.annotations());
-                } else {
-                    return existingHost;
-                }
-            }
-            return null;
-        });
+                });
+        if (host != null) {
+            indexHost(host);
+        }
         return null;
     }
 
@@ -239,53 +293,163 @@ public class DistributedHostStore
 
     @Override
     public Set<Host> getHosts(VlanId vlanId) {
-        return filter(hosts.values(), host -> Objects.equals(host.vlan(), vlanId));
+        return vlanIndex.get(vlanId);
     }
 
     @Override
     public Set<Host> getHosts(MacAddress mac) {
-        return filter(hosts.values(), host -> Objects.equals(host.mac(), mac));
+        return macIndex.get(mac);
     }
 
     @Override
     public Set<Host> getHosts(IpAddress ip) {
-        return filter(hosts.values(), host -> host.ipAddresses().contains(ip));
+        return ipIndex.get(ip);
     }
 
     @Override
     public Set<Host> getConnectedHosts(ConnectPoint connectPoint) {
-        Set<Host> filtered = hosts.entrySet().stream()
-                .filter(entry -> entry.getValue().location().equals(connectPoint))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toSet());
-        return ImmutableSet.copyOf(filtered);
+        return locationIndex.get(connectPoint);
     }
 
     @Override
     public Set<Host> getConnectedHosts(DeviceId deviceId) {
-        Set<Host> filtered = hosts.entrySet().stream()
-                .filter(entry -> entry.getValue().location().deviceId().equals(deviceId))
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toSet());
-        return ImmutableSet.copyOf(filtered);
+        return deviceIndex.get(deviceId);
+    }
+
+    // Indexes a version of a host, unless the indexes hold a newer one
+    private void indexHost(Versioned<DefaultHost> host) {
+        synchronized (indexedHosts) {
+            HostId hostId = host.value().id();
+            Versioned<DefaultHost> indexed = indexedHosts.get(hostId);
+            if (indexed != null && indexed.version() >= host.version()) {
+                return;
+            }
+            updateIndexes(Versioned.valueOrNull(indexed), host.value());
+            indexedHosts.put(hostId, host);
+            pruneRemovedHosts();
+        }
+    }
+
+    // Removes a host from the indexes, unless they hold a version newer than
+    // the removed one; a host removed by this store is remembered until its
+    // removal event or a later event is received, so that earlier events do
+    // not index it again
+    private void unindexHost(HostId hostId, long version, boolean removalEvent) {
+        synchronized (indexedHosts) {
+            Versioned<DefaultHost> indexed = indexedHosts.get(hostId);
+            if (indexed == null || indexed.version() > version) {
+                return;
+            }
+            updateIndexes(indexed.value(), null);
+            if (removalEvent) {
+                indexedHosts.remove(hostId);
+            } else {
+                indexedHosts.put(hostId, new Versioned<>(null, version));
+                removedHosts.put(version, hostId);
+            }
+            pruneRemovedHosts();
+        }
+    }
+
+    // Notes the version of a map event once it is handled
+    private void eventReceived(long version) {
+        synchronized (indexedHosts) {
+            eventVersion = Math.max(eventVersion, version);
+            pruneRemovedHosts();
+        }
+    }
+
+    // Forgets the hosts removed by this store up to the version of the last
+    // map event received: events are received in the order of their versions,
+    // so none of the events which could index them again is still pending,
+    // even if their removal event is never received
+    private void pruneRemovedHosts() {
+        NavigableMap<Long, HostId> expired = removedHosts.headMap(eventVersion, true);
+        expired.forEach((version, hostId) -> {
+            Versioned<DefaultHost> indexed = indexedHosts.get(hostId);
+            if (indexed != null && indexed.value() == null && indexed.version() == version) {
+                indexedHosts.remove(hostId);
+            }
+        });
+        expired.clear();
+    }
+
+    // Replaces the previous version of a host with its new version in all
+    // indexes; either may be null when the host is added or removed
+    private void updateIndexes(DefaultHost oldHost, DefaultHost newHost) {
+        macIndex.update(oldHost, newHost);
+        ipIndex.update(oldHost, newHost);
+        vlanIndex.update(oldHost, newHost);
+        locationIndex.update(oldHost, newHost);
+        deviceIndex.update(oldHost, newHost);
     }
 
-    private Set<Host> filter(Collection<DefaultHost> collection, Predicate<DefaultHost> predicate) {
-        return collection.stream().filter(predicate).collect(Collectors.toSet());
+    private void clearIndexes() {
+        macIndex.clear();
+        ipIndex.clear();
+        vlanIndex.clear();
+        locationIndex.clear();
+        deviceIndex.clear();
+    }
+
+    // Index of the hosts by the values of one of their attributes
+    private static final class HostIndex<K> {
+        private final Map<K, Map<HostId, DefaultHost>> index = new ConcurrentHashMap<>();
+        private final Function<Host, Collection<K>> keys;
+
+        private HostIndex(Function<Host, Collection<K>> keys) {
+            this.keys = keys;
+        }
+
+        private Set<Host> get(K key) {
+            Map<HostId, DefaultHost> indexed = index.get(key);
+            return indexed == null ? ImmutableSet.of() : ImmutableSet.copyOf(indexed.values());
+        }
+
+        private void update(DefaultHost oldHost, DefaultHost newHost) {
+            Collection<K> newKeys = newHost == null ? ImmutableSet.of() : keys.apply(newHost);
+            if (oldHost != null) {
+                keys.apply(oldHost).stream()
+                        .filter(key -> !newKeys.contains(key))
+                        .forEach(key -> remove(key, oldHost.id()));
+            }
+            newKeys.forEach(key -> add(key, newHost));
+        }
+
+        private void add(K key, DefaultHost host) {
+            index.compute(key, (k, indexed) -> {
+                Map<HostId, DefaultHost> byId = indexed == null ? new ConcurrentHashMap<>() : indexed;
+                byId.put(host.id(), host);
+                return byId;
+            });
+        }
+
+        private void remove(K key, HostId hostId) {
+            index.computeIfPresent(key, (k, indexed) -> {
+                indexed.remove(hostId);
+                return indexed.isEmpty() ? null : indexed;
+            });
+        }
+
+        private void clear() {
+            index.clear();
+        }
     }
 
     private class HostLocationTracker implements MapEventListener<HostId, DefaultHost> {
         @Override
         public void event(MapEvent<HostId, DefaultHost> event) {
-            Host host;
+            DefaultHost host;
             switch (event.type()) {
                 case INSERT:
                     host = checkNotNull(event.newValue().value());
+                    indexHost(event.newValue());
                     notifyDelegate(new HostEvent(HOST_ADDED, host));
                     break;
                 case UPDATE:
                     host = checkNotNull(event.newValue().value());
-                    Host prevHost = checkNotNull(event.oldValue().value());
+                    DefaultHost prevHost = checkNotNull(event.oldValue().value());
+                    indexHost(event.newValue());
                     if (!Objects.equals(prevHost.location(), host.location())) {
                         notifyDelegate(new HostEvent(HOST_MOVED, host, prevHost));
                     } else if (!Objects.equals(prevHost, host)) {
@@ -294,11 +458,16 @@ public class DistributedHostStore
                     break;
                 case REMOVE:
                     host = checkNotNull(event.oldValue().value());
+                    unindexHost(event.key(), event.oldValue().version(), true);
                     notifyDelegate(new HostEvent(HOST_REMOVED, host));
                     break;
                 default:
                     log.warn("Unknown map event type: {}", event.type());
             }
+            Versioned<DefaultHost> value = event.newValue() != null ? event.newValue() : event.oldValue();
+            if (value != null) {
+                eventReceived(value.version());
+            }
         }
     }
 }
@@ -276,9 +276,10 @@ public class DistributedTopologyStore
             return null;
         }
 
-        // Have the default topology construct self from the description data.
+        // Have the default topology construct self from the description data,
+        // reusing whatever the changes since the current one left intact.
         DefaultTopology newTopology =
-                new DefaultTopology(providerId, graphDescription, this::isBroadcastPoint);
+                new DefaultTopology(providerId, graphDescription, this::isBroadcastPoint, current);
         updateBroadcastPoints(newTopology);
 
         // Promote the new topology to current and return a ready-to-send event.
@@ -33,12 +33,16 @@ import org.onosproject.core.HybridLogicalTime;
 import org.onosproject.net.provider.ProviderId;
 import org.onosproject.store.cluster.messaging.Endpoint;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -154,6 +158,37 @@ public class NettyMessagingManagerTest {
         assertEquals(ep1, sender.get());
     }
 
+    /*
+     * Sends a burst of messages of a few subjects, small and large, and verifies each is received intact
+     * once the writes are coalesced and the subjects interned.
+     */
+    @Test
+    public void testSendAsyncBurst() {
+        int count = 1000;
+        int largeSize = MessageEncoder.ZERO_COPY_THRESHOLD * 4;
+        List<String> subjects = Arrays.asList(nextSubject(), nextSubject(), nextSubject());
+        Set<Integer> received = Sets.newConcurrentHashSet();
+        CountDownLatch latch = new CountDownLatch(count);
+        for (String subject : subjects) {
+            netty2.registerHandler(subject, (ep, payload) -> {
+                int i = ByteBuffer.wrap(payload).getInt();
+                if (payload.length == (i % 2 == 0 ? Integer.BYTES : largeSize)
+                        && subject.equals(subjects.get(i % subjects.size()))) {
+                    received.add(i);
+                }
+                latch.countDown();
+            }, MoreExecutors.directExecutor());
+        }
+
+        for (int i = 0; i < count; i++) {
+            byte[] payload = new byte[i % 2 == 0 ? Integer.BYTES : largeSize];
+            ByteBuffer.wrap(payload).putInt(i);
+            netty1.sendAsync(ep2, subjects.get(i % subjects.size()), payload);
+        }
+        assertTrue(Uninterruptibles.awaitUninterruptibly(latch, 10, TimeUnit.SECONDS));
+        assertEquals(count, received.size());
+    }
+
     /*
      * Supplies executors when registering a handler and calling sendAndReceive and verifies the request handling
      * and response completion occurs on the expected thread.
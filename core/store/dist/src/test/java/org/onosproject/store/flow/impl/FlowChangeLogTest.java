@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.StoredFlowEntry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.onosproject.net.NetTestTools.APP_ID;
+import static org.onosproject.net.NetTestTools.did;
+
+/**
+ * Unit tests for the flow table change log.
+ */
+public class FlowChangeLogTest {
+
+    private static final StoredFlowEntry ENTRY1 = entry(1);
+    private static final StoredFlowEntry ENTRY2 = entry(2);
+    private static final StoredFlowEntry ENTRY3 = entry(3);
+
+    private static StoredFlowEntry entry(int priority) {
+        return new DefaultFlowEntry(DefaultFlowRule.builder()
+                .forDevice(did("dev1"))
+                .withSelector(DefaultTrafficSelector.emptySelector())
+                .withTreatment(DefaultTrafficTreatment.emptyTreatment())
+                .withPriority(priority)
+                .fromApp(APP_ID)
+                .makePermanent()
+                .build());
+    }
+
+    /**
+     * Tests that only the entries changed after a sequence number are returned.
+     */
+    @Test
+    public void changedSince() {
+        FlowChangeLog changeLog = new FlowChangeLog(10);
+        assertEquals(ImmutableSet.of(), changeLog.changedSince(0));
+
+        changeLog.record(ENTRY1);
+        long first = changeLog.record(ENTRY2);
+        changeLog.record(ENTRY3);
+        long last = changeLog.record(ENTRY1);
+
+        assertEquals(4, last);
+        assertEquals(4, changeLog.sequence());
+        assertEquals(3, changeLog.size());
+        assertEquals(ImmutableSet.of(ENTRY1, ENTRY2, ENTRY3), changeLog.changedSince(0));
+        assertEquals(ImmutableSet.of(ENTRY1, ENTRY3), changeLog.changedSince(first));
+        assertEquals(ImmutableSet.of(), changeLog.changedSince(last));
+        assertNull(changeLog.changedSince(last + 1));
+    }
+
+    /**
+     * Tests that pruned changes are no longer available for deltas.
+     */
+    @Test
+    public void prune() {
+        FlowChangeLog changeLog = new FlowChangeLog(10);
+        changeLog.record(ENTRY1);
+        changeLog.record(ENTRY2);
+        changeLog.record(ENTRY3);
+
+        changeLog.prune(2);
+        assertEquals(1, changeLog.size());
+        assertNull(changeLog.changedSince(1));
+        assertEquals(ImmutableSet.of(ENTRY3), changeLog.changedSince(2));
+
+        changeLog.prune(changeLog.sequence());
+        assertEquals(0, changeLog.size());
+        assertEquals(ImmutableSet.of(), changeLog.changedSince(3));
+    }
+
+    /**
+     * Tests that the log is discarded when it grows past its maximum size.
+     */
+    @Test
+    public void overflow() {
+        FlowChangeLog changeLog = new FlowChangeLog(2);
+        changeLog.record(ENTRY1);
+        changeLog.record(ENTRY2);
+        assertEquals(ImmutableSet.of(ENTRY1, ENTRY2), changeLog.changedSince(0));
+
+        changeLog.record(ENTRY3);
+        assertEquals(0, changeLog.size());
+        assertNull(changeLog.changedSince(0));
+        assertEquals(ImmutableSet.of(), changeLog.changedSince(3));
+    }
+}
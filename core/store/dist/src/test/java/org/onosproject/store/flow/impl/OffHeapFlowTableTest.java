@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.flow.impl;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.net.flow.DefaultFlowEntry;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.FlowEntry.FlowEntryState;
+import org.onosproject.net.flow.FlowId;
+import org.onosproject.net.flow.StoredFlowEntry;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.onosproject.store.service.Serializer;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.onosproject.net.NetTestTools.did;
+
+/**
+ * Unit tests for the off-heap flow table.
+ */
+public class OffHeapFlowTableTest {
+
+    private static final Serializer SERIALIZER = Serializer.using(KryoNamespaces.API);
+
+    private OffHeapFlowTable table;
+
+    @Before
+    public void setUp() {
+        table = new OffHeapFlowTable(SERIALIZER, 1024, 4096);
+    }
+
+    private static StoredFlowEntry entry(long cookie, int priority) {
+        return new DefaultFlowEntry(DefaultFlowRule.builder()
+                .forDevice(did("dev1"))
+                .withSelector(DefaultTrafficSelector.emptySelector())
+                .withTreatment(DefaultTrafficTreatment.emptyTreatment())
+                .withPriority(priority)
+                .withCookie(cookie)
+                .makePermanent()
+                .build());
+    }
+
+    private void add(StoredFlowEntry entry) {
+        table.computeIfAbsent(entry.id(), id -> null).put(entry, entry);
+    }
+
+    private StoredFlowEntry get(StoredFlowEntry entry) {
+        Map<StoredFlowEntry, StoredFlowEntry> entries = table.get(entry.id());
+        return entries == null ? null : entries.get(entry);
+    }
+
+    /**
+     * Tests adding, reading and removing flow entries.
+     */
+    @Test
+    public void addAndRemove() {
+        StoredFlowEntry entry1 = entry(1, 10);
+        StoredFlowEntry entry2 = entry(2, 10);
+        add(entry1);
+        add(entry2);
+
+        assertEquals(2, table.size());
+        assertEquals(2, table.entryCount());
+        StoredFlowEntry read = get(entry1);
+        assertEquals(entry1, read);
+        assertNotSame(entry1, read);
+        assertEquals(((DefaultFlowEntry) entry1).created(), ((DefaultFlowEntry) read).created());
+        assertEquals(entry1.treatment(), read.treatment());
+
+        assertEquals(entry1, table.get(entry1.id()).remove(entry1));
+        assertNull(get(entry1));
+        assertFalse(table.containsKey(entry1.id()));
+        assertEquals(entry2, get(entry2));
+
+        table.clear();
+        assertTrue(table.isEmpty());
+        assertEquals(0, table.entryCount());
+    }
+
+    /**
+     * Tests entries which share a flow id.
+     */
+    @Test
+    public void sharedFlowId() {
+        StoredFlowEntry entry1 = entry(1, 10);
+        StoredFlowEntry entry2 = entry(1, 20);
+        add(entry1);
+        add(entry2);
+
+        assertEquals(1, table.size());
+        Map<StoredFlowEntry, StoredFlowEntry> entries = table.get(FlowId.valueOf(1));
+        assertEquals(2, entries.size());
+        assertEquals(ImmutableSet.of(entry1, entry2), entries.keySet());
+
+        entries.remove(entry2);
+        assertEquals(entry1, get(entry1));
+        assertNull(get(entry2));
+        assertEquals(1, entries.size());
+    }
+
+    /**
+     * Tests that changes to materialized entries are written back in place.
+     */
+    @Test
+    public void writeBack() {
+        StoredFlowEntry entry = entry(1, 10);
+        add(entry);
+
+        StoredFlowEntry read = get(entry);
+        read.setState(FlowEntryState.ADDED);
+        read.setPackets(5);
+        read.setBytes(500);
+        read.setLife(7);
+        read.setLastSeen(1234);
+        assertEquals(FlowEntryState.PENDING_ADD, get(entry).state());
+        assertTrue(table.update(read));
+
+        StoredFlowEntry updated = get(entry);
+        assertEquals(FlowEntryState.ADDED, updated.state());
+        assertEquals(5, updated.packets());
+        assertEquals(500, updated.bytes());
+        assertEquals(7, updated.life());
+        assertEquals(1234, updated.lastSeen());
+
+        assertFalse(table.update(entry(2, 10)));
+    }
+
+    /**
+     * Tests refreshing the life of an entry by its flow id.
+     */
+    @Test
+    public void refresh() {
+        StoredFlowEntry entry = entry(1, 10);
+        add(entry);
+        assertFalse(table.refresh(1, 7_000_000_000L, 1234));
+
+        StoredFlowEntry read = get(entry);
+        read.setState(FlowEntryState.ADDED);
+        table.update(read);
+        assertTrue(table.refresh(1, 7_000_000_000L, 1234));
+        StoredFlowEntry refreshed = get(entry);
+        assertEquals(7, refreshed.life());
+        assertEquals(1234, refreshed.lastSeen());
+
+        assertFalse(table.refresh(2, 7_000_000_000L, 1234));
+        add(entry(1, 20));
+        assertFalse(table.refresh(1, 8_000_000_000L, 5678));
+        assertEquals(7, get(entry).life());
+    }
+
+    /**
+     * Tests replacing an entry through the map operations of the store.
+     */
+    @Test
+    public void compute() {
+        StoredFlowEntry entry = entry(1, 10);
+        add(entry);
+        StoredFlowEntry replacement = entry(1, 10);
+        replacement.setState(FlowEntryState.ADDED);
+
+        table.get(entry.id()).compute(replacement, (k, v) -> replacement);
+        assertEquals(1, table.entryCount());
+        assertEquals(FlowEntryState.ADDED, get(entry).state());
+
+        table.get(entry.id()).computeIfPresent(entry, (k, v) -> null);
+        assertTrue(table.isEmpty());
+    }
+
+    /**
+     * Tests that slabs start small and grow geometrically up to the maximum size.
+     */
+    @Test
+    public void slabGrowth() {
+        add(entry(0, 1));
+        assertEquals(1024, table.allocatedBytes());
+
+        for (int i = 1; i < 500; i++) {
+            add(entry(i, i + 1));
+        }
+        long allocated = table.allocatedBytes();
+        // 1024 + 2048 + 4096 + 4096 + ...
+        assertEquals(0, (allocated - 1024 - 2048) % 4096);
+    }
+
+    /**
+     * Tests that memory freed by removed entries is reclaimed.
+     */
+    @Test
+    public void compaction() {
+        for (int i = 0; i < 500; i++) {
+            add(entry(i, i + 1));
+        }
+        long allocated = table.allocatedBytes();
+        assertTrue(allocated > 4096);
+
+        for (int i = 0; i < 450; i++) {
+            table.remove(FlowId.valueOf(i));
+        }
+        assertTrue(table.allocatedBytes() < allocated / 2);
+        assertEquals(50, table.entryCount());
+
+        Set<StoredFlowEntry> remaining = table.values().stream()
+                .flatMap(entries -> entries.values().stream())
+                .collect(Collectors.toSet());
+        assertEquals(50, remaining.size());
+        for (int i = 450; i < 500; i++) {
+            assertEquals(entry(i, i + 1), get(entry(i, i + 1)));
+        }
+    }
+}
@@ -15,23 +15,36 @@
  */
 package org.onosproject.store.host.impl;
 
+import com.google.common.collect.ImmutableSet;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.junit.TestUtils;
+import org.onlab.junit.TestUtils.TestUtilsException;
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.MacAddress;
+import org.onlab.packet.VlanId;
+import org.onosproject.net.ConnectPoint;
+import org.onosproject.net.DefaultHost;
+import org.onosproject.net.DeviceId;
 import org.onosproject.net.Host;
 import org.onosproject.net.HostId;
 import org.onosproject.net.HostLocation;
+import org.onosproject.net.PortNumber;
 import org.onosproject.net.host.DefaultHostDescription;
 import org.onosproject.net.host.HostDescription;
 import org.onosproject.net.provider.ProviderId;
+import org.onosproject.store.service.ConsistentMap;
+import org.onosproject.store.service.MapEventListener;
 import org.onosproject.store.service.TestStorageService;
+import org.onosproject.store.service.Versioned;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 
 /**
@@ -48,6 +61,11 @@ public class DistributedHostStoreTest {
 
     private static final ProviderId PID = new ProviderId("of", "foo");
 
+    private static final DeviceId DID1 = DeviceId.deviceId("of:1");
+    private static final DeviceId DID2 = DeviceId.deviceId("of:2");
+    private static final HostLocation LOC1 = new HostLocation(DID1, PortNumber.portNumber(1), 0L);
+    private static final HostLocation LOC2 = new HostLocation(DID2, PortNumber.portNumber(2), 0L);
+
     @Before
     public void setUp() {
         ecXHostStore = new DistributedHostStore();
@@ -82,4 +100,73 @@ public class DistributedHostStoreTest {
         assertTrue(host.ipAddresses().contains(IP2));
     }
 
+    /**
+     * Tests that the lookups by attribute follow the changes to the hosts.
+     */
+    @Test
+    public void testIndexedLookups() {
+        ecXHostStore.createOrUpdateHost(PID, HOSTID,
+                new DefaultHostDescription(HOSTID.mac(), HOSTID.vlanId(), LOC1, IP1), false);
+        Host host = ecXHostStore.getHost(HOSTID);
+
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getHosts(HOSTID.mac()));
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getHosts(HOSTID.vlanId()));
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getHosts(IP1));
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getConnectedHosts(new ConnectPoint(DID1, LOC1.port())));
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getConnectedHosts(DID1));
+        assertTrue(ecXHostStore.getHosts(IP2).isEmpty());
+        assertTrue(ecXHostStore.getHosts(VlanId.vlanId((short) 10)).isEmpty());
+
+        // Move the host and give it another address
+        ecXHostStore.createOrUpdateHost(PID, HOSTID,
+                new DefaultHostDescription(HOSTID.mac(), HOSTID.vlanId(), LOC2, IP2), false);
+        host = ecXHostStore.getHost(HOSTID);
+
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getHosts(HOSTID.mac()));
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getHosts(IP1));
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getHosts(IP2));
+        assertTrue(ecXHostStore.getConnectedHosts(LOC1).isEmpty());
+        assertTrue(ecXHostStore.getConnectedHosts(DID1).isEmpty());
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getConnectedHosts(LOC2));
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getConnectedHosts(DID2));
+
+        ecXHostStore.removeIp(HOSTID, IP1);
+        host = ecXHostStore.getHost(HOSTID);
+        assertTrue(ecXHostStore.getHosts(IP1).isEmpty());
+        assertEquals(ImmutableSet.of(host), ecXHostStore.getHosts(IP2));
+
+        ecXHostStore.removeHost(HOSTID);
+        assertTrue(ecXHostStore.getHosts(HOSTID.mac()).isEmpty());
+        assertTrue(ecXHostStore.getHosts(HOSTID.vlanId()).isEmpty());
+        assertTrue(ecXHostStore.getHosts(IP2).isEmpty());
+        assertTrue(ecXHostStore.getConnectedHosts(LOC2).isEmpty());
+        assertTrue(ecXHostStore.getConnectedHosts(DID2).isEmpty());
+    }
+
+    /**
+     * Tests that a host removed by the store is forgotten once a later map
+     * event is received, even if its own events are never received.
+     */
+    @Test
+    public void testRemovedHostForgotten() throws TestUtilsException {
+        ConsistentMap<HostId, DefaultHost> hostsMap = TestUtils.getField(ecXHostStore, "hostsConsistentMap");
+        MapEventListener<HostId, DefaultHost> tracker = TestUtils.getField(ecXHostStore, "hostLocationTracker");
+        Map<HostId, Versioned<DefaultHost>> indexedHosts = TestUtils.getField(ecXHostStore, "indexedHosts");
+
+        // The events of the host are not delivered
+        hostsMap.removeListener(tracker);
+        ecXHostStore.createOrUpdateHost(PID, HOSTID,
+                new DefaultHostDescription(HOSTID.mac(), HOSTID.vlanId(), LOC1, IP1), false);
+        ecXHostStore.removeHost(HOSTID);
+        hostsMap.addListener(tracker);
+        assertTrue(indexedHosts.containsKey(HOSTID));
+        assertTrue(ecXHostStore.getHosts(IP1).isEmpty());
+
+        HostId otherId = HostId.hostId(MacAddress.valueOf("2b:2b:2b:2b:2b:2b"));
+        ecXHostStore.createOrUpdateHost(PID, otherId,
+                new DefaultHostDescription(otherId.mac(), otherId.vlanId(), LOC2, IP2), false);
+        assertEquals(ImmutableSet.of(otherId), indexedHosts.keySet());
+        assertTrue(ecXHostStore.getHosts(IP1).isEmpty());
+    }
+
 }
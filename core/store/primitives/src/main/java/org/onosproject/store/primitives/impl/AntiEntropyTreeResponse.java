@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.primitives.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reply to a digest tree advertisement, listing the advertised nodes whose
+ * hashes differ from the receiver's.
+ */
+public class AntiEntropyTreeResponse {
+
+    private final AntiEntropyResponse status;
+    private final Set<Integer> differences;
+
+    /**
+     * Creates a new digest tree response message.
+     *
+     * @param status status of the exchange
+     * @param differences positions of the advertised nodes that differ
+     */
+    public AntiEntropyTreeResponse(AntiEntropyResponse status,
+                                   Set<Integer> differences) {
+        this.status = checkNotNull(status);
+        this.differences = ImmutableSet.copyOf(checkNotNull(differences));
+    }
+
+    /**
+     * Returns the status of the exchange.
+     *
+     * @return status
+     */
+    public AntiEntropyResponse status() {
+        return status;
+    }
+
+    /**
+     * Returns the positions of the advertised nodes that differ.
+     *
+     * @return node positions
+     */
+    public Set<Integer> differences() {
+        return differences;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("status", status)
+                .add("differences", differences.size())
+                .toString();
+    }
+}
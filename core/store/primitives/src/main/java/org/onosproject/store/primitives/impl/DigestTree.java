@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.primitives.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.onosproject.store.service.Serializer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Hash tree over the entries of an eventually consistent map, used by
+ * anti-entropy to find the key buckets in which two replicas differ without
+ * exchanging a digest for every key.
+ * <p>
+ * Keys are hashed into a fixed number of leaf buckets. The hash of a bucket is
+ * the XOR of the hashes of its entries, so it is updated in constant time when
+ * an entry changes. Keys are hashed in their serialized form rather than by
+ * {@code hashCode()}, which need not be the same on every node, so that equal
+ * entries give equal hashes on all replicas; the key hash is computed once
+ * and kept by the caller. An entry hash combines the key hash with the value
+ * timestamp, whose hash code is value-based, and the tombstone flag. The
+ * hashes of the inner nodes, each covering {@link #FANOUT} children, are
+ * computed from a snapshot of the buckets when replicas are compared.
+ * </p>
+ */
+public final class DigestTree {
+
+    /**
+     * Number of children of an inner node.
+     */
+    public static final int FANOUT = 16;
+
+    /**
+     * Number of levels below the root; the leaves are at this level.
+     */
+    public static final int DEPTH = 3;
+
+    /**
+     * Number of leaf buckets.
+     */
+    public static final int BUCKETS = 1 << (4 * DEPTH);
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final Serializer serializer;
+
+    /**
+     * Creates an empty tree.
+     *
+     * @param serializer serializer of the keys of the map
+     */
+    public DigestTree(Serializer serializer) {
+        this.serializer = checkNotNull(serializer);
+    }
+
+    /**
+     * Returns the hash of a key, from which its bucket and entry hashes are
+     * derived.
+     *
+     * @param key map key
+     * @return key hash
+     */
+    public long keyHash(Object key) {
+        return HASH_FUNCTION.hashBytes(serializer.encode(key)).asLong();
+    }
+
+    /**
+     * Returns the leaf bucket of a key.
+     *
+     * @param keyHash hash of the key
+     * @return bucket index
+     */
+    public static int bucket(long keyHash) {
+        return (int) (keyHash & (BUCKETS - 1));
+    }
+
+    /**
+     * Applies the change of the value of a key to the hash of its bucket.
+     *
+     * @param keyHash hash of the key
+     * @param oldValue previous value, null if there was none
+     * @param newValue new value, null if the entry was removed
+     */
+    public void update(long keyHash, MapValue<?> oldValue, MapValue<?> newValue) {
+        if (oldValue == newValue) {
+            return;
+        }
+        long delta = entryHash(keyHash, oldValue) ^ entryHash(keyHash, newValue);
+        if (delta == 0) {
+            return;
+        }
+        int bucket = bucket(keyHash);
+        long hash;
+        do {
+            hash = buckets.get(bucket);
+        } while (!buckets.compareAndSet(bucket, hash, hash ^ delta));
+    }
+
+    /**
+     * Returns a snapshot of the leaf bucket hashes.
+     *
+     * @return bucket hashes
+     */
+    public long[] snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the hashes of the nodes at a level of a tree.
+     *
+     * @param leaves bucket hashes of the tree
+     * @param level level, 0 for the root and {@link #DEPTH} for the leaves
+     * @return node hashes, indexed by node position in the level
+     */
+    public static long[] level(long[] leaves, int level) {
+        checkArgument(level >= 0 && level <= DEPTH, "Invalid level %s", level);
+        if (level == DEPTH) {
+            return leaves;
+        }
+        int nodes = 1 << (4 * level);
+        int span = BUCKETS / nodes;
+        long[] hashes = new long[nodes];
+        for (int node = 0; node < nodes; node++) {
+            long hash = 1;
+            for (int i = node * span; i < (node + 1) * span; i++) {
+                hash = 31 * hash + leaves[i];
+            }
+            hashes[node] = mix(hash);
+        }
+        return hashes;
+    }
+
+    private static long entryHash(long keyHash, MapValue<?> value) {
+        if (value == null) {
+            return 0;
+        }
+        long hash = 31 * keyHash + value.timestamp().hashCode();
+        return mix(31 * hash + (value.isTombstone() ? 1 : 0));
+    }
+
+    // 64 bit finalizer of MurmurHash3
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("root", level(snapshot(), 0)[0])
+                .toString();
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.onosproject.store.primitives.impl;
 
+import org.onlab.metrics.MetricsService;
 import org.onlab.util.KryoNamespace;
 import org.onosproject.cluster.ClusterService;
 import org.onosproject.cluster.NodeId;
@@ -55,7 +56,9 @@ public class EventuallyConsistentMapBuilderImpl<K, V>
     private boolean convergeFaster = false;
     private boolean persistent = false;
     private boolean persistentMap = false;
+    private boolean fullDigestAntiEntropy = false;
     private final PersistenceService persistenceService;
+    private final MetricsService metricsService;
 
     /**
      * Creates a new eventually consistent map builder.
@@ -67,7 +70,23 @@ public class EventuallyConsistentMapBuilderImpl<K, V>
     public EventuallyConsistentMapBuilderImpl(ClusterService clusterService,
                                               ClusterCommunicationService clusterCommunicator,
                                               PersistenceService persistenceService) {
+        this(clusterService, clusterCommunicator, persistenceService, null);
+    }
+
+    /**
+     * Creates a new eventually consistent map builder.
+     *
+     * @param clusterService cluster service
+     * @param clusterCommunicator cluster communication service
+     * @param persistenceService persistence service
+     * @param metricsService metrics service, null if metrics are not collected
+     */
+    public EventuallyConsistentMapBuilderImpl(ClusterService clusterService,
+                                              ClusterCommunicationService clusterCommunicator,
+                                              PersistenceService persistenceService,
+                                              MetricsService metricsService) {
         this.persistenceService = persistenceService;
+        this.metricsService = metricsService;
         this.clusterService = checkNotNull(clusterService);
         this.clusterCommunicator = checkNotNull(clusterCommunicator);
     }
@@ -151,6 +170,12 @@ public class EventuallyConsistentMapBuilderImpl<K, V>
         return this;
     }
 
+    @Override
+    public EventuallyConsistentMapBuilder<K, V> withFullDigestAntiEntropy() {
+        fullDigestAntiEntropy = true;
+        return this;
+    }
+
     @Override
     public EventuallyConsistentMap<K, V> build() {
         checkNotNull(name, "name is a mandatory parameter");
@@ -174,6 +199,8 @@ public class EventuallyConsistentMapBuilderImpl<K, V>
                                                  antiEntropyTimeUnit,
                                                  convergeFaster,
                                                  persistent,
-                                                 persistenceService);
+                                                 persistenceService,
+                                                 fullDigestAntiEntropy,
+                                                 metricsService);
     }
 }
@@ -15,13 +15,18 @@
  */
 package org.onosproject.store.primitives.impl;
 
+import com.codahale.metrics.Histogram;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.commons.lang3.tuple.Pair;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
 import org.onlab.util.AbstractAccumulator;
 import org.onlab.util.KryoNamespace;
 import org.onlab.util.SlidingWindowCounter;
@@ -57,8 +62,10 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -90,6 +97,7 @@ public class EventuallyConsistentMapImpl<K, V>
 
     private final MessageSubject updateMessageSubject;
     private final MessageSubject antiEntropyAdvertisementSubject;
+    private final MessageSubject antiEntropyTreeSubject;
     private final MessageSubject updateRequestSubject;
 
     private final Set<EventuallyConsistentMapListener<K, V>> listeners
@@ -105,6 +113,13 @@ public class EventuallyConsistentMapImpl<K, V>
     private long previousTombstonePurgeTime;
     private final Map<NodeId, Long> antiEntropyTimes = Maps.newConcurrentMap();
 
+    private final DigestTree digestTree;
+    private final boolean fullDigestAntiEntropy;
+    private final MetricsService metricsService;
+    private final MetricsComponent metricsComponent;
+    private final MetricsFeature metricsFeature;
+    private final Histogram antiEntropyBytes;
+
     private final String mapName;
 
     private volatile boolean destroyed = false;
@@ -127,6 +142,10 @@ public class EventuallyConsistentMapImpl<K, V>
 
     private static final String PERSISTENT_LOCAL_MAP_NAME = "itemsMap";
 
+    private static final String METRICS_COMPONENT = "EventuallyConsistentMap";
+    private static final String METRICS_FEATURE = "AntiEntropy";
+    private static final String ANTI_ENTROPY_BYTES = "antiEntropyBytes";
+
 
     /**
      * Creates a new eventually consistent map shared amongst multiple instances.
@@ -155,7 +174,13 @@ public class EventuallyConsistentMapImpl<K, V>
      * @param convergeFaster        make anti-entropy try to converge faster
      * @param persistent            persist data to disk
      * @param persistenceService    persistence service
+     * @param fullDigestAntiEntropy exchange the digest of every entry in each
+     *                              anti-entropy round, without maintaining a
+     *                              digest tree
+     * @param metricsService        metrics service, null if metrics are not
+     *                              collected
      */
+    // CHECKSTYLE IGNORE ParameterNumber FOR NEXT 1 LINES
     EventuallyConsistentMapImpl(String mapName,
                                 ClusterService clusterService,
                                 ClusterCommunicationService clusterCommunicator,
@@ -170,7 +195,9 @@ public class EventuallyConsistentMapImpl<K, V>
                                 TimeUnit antiEntropyTimeUnit,
                                 boolean convergeFaster,
                                 boolean persistent,
-                                PersistenceService persistenceService) {
+                                PersistenceService persistenceService,
+                                boolean fullDigestAntiEntropy,
+                                MetricsService metricsService) {
         this.mapName = mapName;
         this.serializer = createSerializer(ns);
         this.persistenceService = persistenceService;
@@ -184,6 +211,21 @@ public class EventuallyConsistentMapImpl<K, V>
         } else {
             items = Maps.newConcurrentMap();
         }
+        this.fullDigestAntiEntropy = fullDigestAntiEntropy;
+        // The digest tree is only maintained for tree-based anti-entropy
+        this.digestTree = fullDigestAntiEntropy ? null : new DigestTree(serializer);
+        items.forEach((key, value) -> updateDigestTree(key, null, value));
+        this.metricsService = metricsService;
+        if (metricsService != null) {
+            metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+            metricsFeature = metricsComponent.registerFeature(METRICS_FEATURE);
+            antiEntropyBytes = metricsService.createHistogram(metricsComponent, metricsFeature,
+                                                              mapName + "." + ANTI_ENTROPY_BYTES);
+        } else {
+            metricsComponent = null;
+            metricsFeature = null;
+            antiEntropyBytes = null;
+        }
         senderPending = Maps.newConcurrentMap();
         destroyedMessage = mapName + ERROR_DESTROYED;
 
@@ -245,6 +287,13 @@ public class EventuallyConsistentMapImpl<K, V>
                                           serializer::encode,
                                           this.backgroundExecutor);
 
+        antiEntropyTreeSubject = new MessageSubject("ecm-" + mapName + "-anti-entropy-tree");
+        clusterCommunicator.addSubscriber(antiEntropyTreeSubject,
+                                          serializer::decode,
+                                          this::handleAntiEntropyTreeAdvertisement,
+                                          serializer::encode,
+                                          this.backgroundExecutor);
+
         updateRequestSubject = new MessageSubject("ecm-" + mapName + "-update-request");
         clusterCommunicator.addSubscriber(updateRequestSubject,
                                           serializer::decode,
@@ -277,6 +326,8 @@ public class EventuallyConsistentMapImpl<K, V>
                          .register(WallClockTimestamp.class)
                          .register(AntiEntropyAdvertisement.class)
                          .register(AntiEntropyResponse.class)
+                         .register(AntiEntropyTreeAdvertisement.class)
+                         .register(AntiEntropyTreeResponse.class)
                          .register(UpdateEntry.class)
                          .register(MapValue.class)
                          .register(MapValue.Digest.class)
@@ -397,6 +448,7 @@ public class EventuallyConsistentMapImpl<K, V>
             }
             if (updated.get()) {
                 previousValue.set(existing);
+                updateDigestTree(k, existing, tombstone.orElse(null));
                 return tombstone.orElse(null);
             } else {
                 return existing;
@@ -425,7 +477,9 @@ public class EventuallyConsistentMapImpl<K, V>
                 updated.set(true);
                 // We return a copy to ensure updates to peers can be serialized.
                 // This prevents replica divergence due to serialization failures.
-                return serializer.copy(newValue);
+                MapValue<V> copy = serializer.copy(newValue);
+                updateDigestTree(k, mv, copy);
+                return copy;
             } else {
                 return mv;
             }
@@ -496,6 +550,7 @@ public class EventuallyConsistentMapImpl<K, V>
         items.compute(key, (k, existing) -> {
             if (existing == null || newValue.isNewerThan(existing)) {
                 updated.set(true);
+                updateDigestTree(k, existing, newValue);
                 return newValue;
             }
             return existing;
@@ -530,6 +585,10 @@ public class EventuallyConsistentMapImpl<K, V>
         clusterCommunicator.removeSubscriber(updateMessageSubject);
         clusterCommunicator.removeSubscriber(updateRequestSubject);
         clusterCommunicator.removeSubscriber(antiEntropyAdvertisementSubject);
+        clusterCommunicator.removeSubscriber(antiEntropyTreeSubject);
+        if (antiEntropyBytes != null) {
+            metricsService.removeMetric(metricsComponent, metricsFeature, mapName + "." + ANTI_ENTROPY_BYTES);
+        }
         return CompletableFuture.completedFuture(null);
     }
 
@@ -560,7 +619,11 @@ public class EventuallyConsistentMapImpl<K, V>
             if (underHighLoad() || destroyed) {
                 return;
             }
-            pickRandomActivePeer().ifPresent(this::sendAdvertisementToPeer);
+            if (fullDigestAntiEntropy) {
+                pickRandomActivePeer().ifPresent(this::sendAdvertisementToPeer);
+            } else {
+                pickRandomActivePeer().ifPresent(this::sendTreeAdvertisementToPeer);
+            }
         } catch (Exception e) {
             // Catch all exceptions to avoid scheduled task being suppressed.
             log.error("Exception thrown while sending advertisement", e);
@@ -579,12 +642,15 @@ public class EventuallyConsistentMapImpl<K, V>
     }
 
     private void sendAdvertisementToPeer(NodeId peer) {
-        long adCreationTime = System.currentTimeMillis();
-        AntiEntropyAdvertisement<K> ad = createAdvertisement();
+        sendAdvertisementToPeer(peer, createAdvertisement(null), System.currentTimeMillis(), new AtomicLong());
+    }
+
+    private void sendAdvertisementToPeer(NodeId peer, AntiEntropyAdvertisement<K> ad,
+                                         long adCreationTime, AtomicLong bytes) {
         clusterCommunicator.sendAndReceive(ad,
                 antiEntropyAdvertisementSubject,
-                serializer::encode,
-                serializer::decode,
+                countingEncoder(bytes),
+                this.<AntiEntropyResponse>countingDecoder(bytes),
                 peer)
                 .whenComplete((result, error) -> {
                     if (error != null) {
@@ -593,9 +659,80 @@ public class EventuallyConsistentMapImpl<K, V>
                     } else if (result == AntiEntropyResponse.PROCESSED) {
                         antiEntropyTimes.put(peer, adCreationTime);
                     }
+                    recordAntiEntropyRound(peer, bytes.get());
                 });
     }
 
+    /**
+     * Starts an anti-entropy round that compares digest tree hashes with the
+     * peer, descending from the root only into the nodes that differ, and
+     * advertises the entry digests of the differing leaf buckets.
+     *
+     * @param peer peer to reconcile with
+     */
+    private void sendTreeAdvertisementToPeer(NodeId peer) {
+        long adCreationTime = System.currentTimeMillis();
+        sendTreeAdvertisementToPeer(peer, digestTree.snapshot(), 0, ImmutableSet.of(0),
+                                    adCreationTime, new AtomicLong());
+    }
+
+    private void sendTreeAdvertisementToPeer(NodeId peer, long[] leaves, int level, Set<Integer> nodes,
+                                             long adCreationTime, AtomicLong bytes) {
+        long[] levelHashes = DigestTree.level(leaves, level);
+        Map<Integer, Long> hashes = Maps.newHashMap();
+        nodes.forEach(node -> hashes.put(node, levelHashes[node]));
+        clusterCommunicator.sendAndReceive(new AntiEntropyTreeAdvertisement(localNodeId, level, hashes),
+                antiEntropyTreeSubject,
+                countingEncoder(bytes),
+                this.<AntiEntropyTreeResponse>countingDecoder(bytes),
+                peer)
+                .whenCompleteAsync((result, error) -> {
+                    if (error != null) {
+                        log.debug("Failed to send anti-entropy tree advertisement to {}: {}; "
+                                + "falling back to full digest", peer, error.getMessage());
+                        sendAdvertisementToPeer(peer, createAdvertisement(null), adCreationTime, bytes);
+                    } else if (result.status() != AntiEntropyResponse.PROCESSED) {
+                        recordAntiEntropyRound(peer, bytes.get());
+                    } else if (result.differences().isEmpty()) {
+                        antiEntropyTimes.put(peer, adCreationTime);
+                        recordAntiEntropyRound(peer, bytes.get());
+                    } else if (level == DigestTree.DEPTH) {
+                        sendAdvertisementToPeer(peer, createAdvertisement(result.differences()),
+                                                adCreationTime, bytes);
+                    } else {
+                        Set<Integer> children = new HashSet<>();
+                        result.differences().forEach(node -> {
+                            for (int i = 0; i < DigestTree.FANOUT; i++) {
+                                children.add(node * DigestTree.FANOUT + i);
+                            }
+                        });
+                        sendTreeAdvertisementToPeer(peer, leaves, level + 1, children, adCreationTime, bytes);
+                    }
+                }, backgroundExecutor);
+    }
+
+    private <M> Function<M, byte[]> countingEncoder(AtomicLong bytes) {
+        return message -> {
+            byte[] payload = serializer.encode(message);
+            bytes.addAndGet(payload.length);
+            return payload;
+        };
+    }
+
+    private <M> Function<byte[], M> countingDecoder(AtomicLong bytes) {
+        return payload -> {
+            bytes.addAndGet(payload.length);
+            return serializer.decode(payload);
+        };
+    }
+
+    private void recordAntiEntropyRound(NodeId peer, long bytes) {
+        if (antiEntropyBytes != null) {
+            antiEntropyBytes.update(bytes);
+        }
+        log.debug("Anti-entropy round for {} with {} exchanged {} bytes", mapName, peer, bytes);
+    }
+
     private void sendUpdateRequestToPeer(NodeId peer, Set<K> keys) {
         UpdateRequest<K> request = new UpdateRequest<>(localNodeId, keys);
         clusterCommunicator.unicast(request,
@@ -610,9 +747,57 @@ public class EventuallyConsistentMapImpl<K, V>
                 });
     }
 
-    private AntiEntropyAdvertisement<K> createAdvertisement() {
-        return new AntiEntropyAdvertisement<>(localNodeId,
-                ImmutableMap.copyOf(Maps.transformValues(items, MapValue::digest)));
+    private AntiEntropyAdvertisement<K> createAdvertisement(Set<Integer> buckets) {
+        if (buckets == null) {
+            return new AntiEntropyAdvertisement<>(localNodeId,
+                    ImmutableMap.copyOf(Maps.transformValues(items, MapValue::digest)));
+        }
+        Map<K, MapValue.Digest> digest = Maps.newHashMap();
+        items.forEach((key, value) -> {
+            if (buckets.contains(DigestTree.bucket(keyHash(key, value)))) {
+                digest.put(key, value.digest());
+            }
+        });
+        return new AntiEntropyAdvertisement<>(localNodeId, digest, buckets);
+    }
+
+    // Applies the change of the value of a key to the digest tree, carrying
+    // the key hash over from the previous value
+    private void updateDigestTree(K key, MapValue<V> oldValue, MapValue<V> newValue) {
+        if (digestTree == null) {
+            return;
+        }
+        long keyHash = keyHash(key, oldValue);
+        if (newValue != null) {
+            newValue.setKeyHash(keyHash);
+        }
+        digestTree.update(keyHash, oldValue, newValue);
+    }
+
+    // Returns the digest tree hash of a key, computing it only if the value
+    // does not hold it, e.g. when read back from persistent storage
+    private long keyHash(K key, MapValue<V> value) {
+        long keyHash = value == null ? 0 : value.keyHash();
+        return keyHash != 0 ? keyHash : digestTree.keyHash(key);
+    }
+
+    private AntiEntropyTreeResponse handleAntiEntropyTreeAdvertisement(AntiEntropyTreeAdvertisement ad) {
+        if (destroyed || underHighLoad() || digestTree == null) {
+            return new AntiEntropyTreeResponse(AntiEntropyResponse.IGNORED, ImmutableSet.of());
+        }
+        try {
+            long[] hashes = DigestTree.level(digestTree.snapshot(), ad.level());
+            Set<Integer> differences = new HashSet<>();
+            ad.hashes().forEach((node, hash) -> {
+                if (hashes[node] != hash) {
+                    differences.add(node);
+                }
+            });
+            return new AntiEntropyTreeResponse(AntiEntropyResponse.PROCESSED, differences);
+        } catch (Exception e) {
+            log.warn("Error handling anti-entropy tree advertisement", e);
+            return new AntiEntropyTreeResponse(AntiEntropyResponse.FAILED, ImmutableSet.of());
+        }
     }
 
     private AntiEntropyResponse handleAntiEntropyAdvertisement(AntiEntropyAdvertisement<K> ad) {
@@ -637,6 +822,7 @@ public class EventuallyConsistentMapImpl<K, V>
      * 1. If peer has an old entry, updates peer.
      * 2. If peer indicates an entry is removed and has a more recent
      * timestamp than the local entry, update local state.
+     * Only the local entries covered by the ad are considered.
      */
     private List<EventuallyConsistentMapEvent<K, V>> antiEntropyCheckLocalItems(
             AntiEntropyAdvertisement<K> ad) {
@@ -647,8 +833,12 @@ public class EventuallyConsistentMapImpl<K, V>
         Set<K> locallyUnknown = new HashSet<>(ad.digest().keySet());
 
         items.forEach((key, localValue) -> {
-            locallyUnknown.remove(key);
             MapValue.Digest remoteValueDigest = ad.digest().get(key);
+            if (remoteValueDigest == null && ad.buckets() != null &&
+                    !ad.covers(DigestTree.bucket(keyHash(key, localValue)))) {
+                return;
+            }
+            locallyUnknown.remove(key);
             if (remoteValueDigest == null || localValue.isNewerThan(remoteValueDigest.timestamp())) {
                 // local value is more recent, push to sender
                 queueUpdate(new UpdateEntry<>(key, localValue), peers);
@@ -709,7 +899,11 @@ public class EventuallyConsistentMapImpl<K, V>
                                           .filter(e -> e.getValue().creationTime() <= currentSafeTombstonePurgeTime)
                                           .collect(Collectors.toList());
         previousTombstonePurgeTime = currentSafeTombstonePurgeTime;
-        tombStonesToDelete.forEach(entry -> items.remove(entry.getKey(), entry.getValue()));
+        tombStonesToDelete.forEach(entry -> {
+            if (items.remove(entry.getKey(), entry.getValue())) {
+                updateDigestTree(entry.getKey(), entry.getValue(), null);
+            }
+        });
     }
 
     private void processUpdates(Collection<UpdateEntry<K, V>> updates) {
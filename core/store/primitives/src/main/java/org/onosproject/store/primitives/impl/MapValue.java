@@ -31,6 +31,9 @@ public class MapValue<V> implements Comparable<MapValue<V>> {
     private final Timestamp timestamp;
     private final V value;
     private long creationTime;
+    // Digest tree hash of the key of the entry holding this value; kept
+    // locally only, 0 if not computed yet
+    private transient long keyHash;
 
     /**
      * Creates a tombstone value with the specified timestamp.
@@ -123,6 +126,24 @@ public class MapValue<V> implements Comparable<MapValue<V>> {
         return creationTime;
     }
 
+    /**
+     * Returns the digest tree hash of the key of the entry holding this value.
+     *
+     * @return key hash; 0 if not computed yet
+     */
+    long keyHash() {
+        return keyHash;
+    }
+
+    /**
+     * Sets the digest tree hash of the key of the entry holding this value.
+     *
+     * @param keyHash key hash
+     */
+    void setKeyHash(long keyHash) {
+        this.keyHash = keyHash;
+    }
+
     /**
      * Tests if this value is newer than the specified MapValue.
      *
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.store.primitives.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+import org.onlab.util.KryoNamespace;
+import org.onosproject.store.LogicalTimestamp;
+import org.onosproject.store.serializers.KryoNamespaces;
+import org.onosproject.store.service.Serializer;
+
+/**
+ * Unit tests for DigestTree.
+ */
+public class DigestTreeTest {
+
+    private final Serializer serializer = Serializer.using(KryoNamespace.newBuilder()
+            .register(KryoNamespaces.BASIC)
+            .build());
+
+    private final MapValue<String> foo1 = new MapValue<>("foo", new LogicalTimestamp(1));
+    private final MapValue<String> foo2 = new MapValue<>("foo", new LogicalTimestamp(2));
+    private final MapValue<String> bar1 = new MapValue<>("bar", new LogicalTimestamp(1));
+
+    @Test
+    public void testOrderIndependence() {
+        DigestTree tree1 = new DigestTree(serializer);
+        tree1.update(tree1.keyHash("foo"), null, foo1);
+        tree1.update(tree1.keyHash("foo"), foo1, foo2);
+        tree1.update(tree1.keyHash("bar"), null, bar1);
+
+        DigestTree tree2 = new DigestTree(serializer);
+        tree2.update(tree2.keyHash("bar"), null, bar1);
+        tree2.update(tree2.keyHash("foo"), null, foo2);
+
+        assertArrayEquals(tree1.snapshot(), tree2.snapshot());
+        assertEquals(DigestTree.level(tree1.snapshot(), 0)[0], DigestTree.level(tree2.snapshot(), 0)[0]);
+    }
+
+    @Test
+    public void testRemoval() {
+        DigestTree tree = new DigestTree(serializer);
+        long[] empty = tree.snapshot();
+        tree.update(tree.keyHash("foo"), null, foo1);
+        tree.update(tree.keyHash("foo"), foo1, MapValue.tombstone(new LogicalTimestamp(2)));
+        assertNotEquals(DigestTree.level(empty, 0)[0], DigestTree.level(tree.snapshot(), 0)[0]);
+        tree.update(tree.keyHash("foo"), MapValue.tombstone(new LogicalTimestamp(2)), null);
+        assertArrayEquals(empty, tree.snapshot());
+    }
+
+    @Test
+    public void testDifferingBucket() {
+        DigestTree tree1 = new DigestTree(serializer);
+        DigestTree tree2 = new DigestTree(serializer);
+        tree1.update(tree1.keyHash("foo"), null, foo1);
+        tree2.update(tree2.keyHash("foo"), null, foo2);
+
+        int bucket = DigestTree.bucket(tree1.keyHash("foo"));
+        long[] leaves1 = tree1.snapshot();
+        long[] leaves2 = tree2.snapshot();
+        for (int level = 0; level <= DigestTree.DEPTH; level++) {
+            long[] hashes1 = DigestTree.level(leaves1, level);
+            long[] hashes2 = DigestTree.level(leaves2, level);
+            int node = bucket >> (4 * (DigestTree.DEPTH - level));
+            for (int i = 0; i < hashes1.length; i++) {
+                if (i == node) {
+                    assertNotEquals(hashes1[i], hashes2[i]);
+                } else {
+                    assertEquals(hashes1[i], hashes2[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTombstone() {
+        DigestTree tree1 = new DigestTree(serializer);
+        DigestTree tree2 = new DigestTree(serializer);
+        tree1.update(tree1.keyHash("foo"), null, foo1);
+        tree2.update(tree2.keyHash("foo"), null, MapValue.tombstone(new LogicalTimestamp(1)));
+        assertNotEquals(DigestTree.level(tree1.snapshot(), 0)[0], DigestTree.level(tree2.snapshot(), 0)[0]);
+    }
+
+    @Test
+    public void testSerializedKeys() {
+        MapValue<String> value = new MapValue<>("foo", new LogicalTimestamp(1));
+        DigestTree tree1 = new DigestTree(serializer);
+        DigestTree tree2 = new DigestTree(serializer);
+        // equal arrays have different hash codes, but the same serialized form
+        tree1.update(tree1.keyHash(new byte[] {1, 2, 3}), null, value);
+        tree2.update(tree2.keyHash(new byte[] {1, 2, 3}), null, value);
+
+        assertEquals(tree1.keyHash(new byte[] {1, 2, 3}), tree2.keyHash(new byte[] {1, 2, 3}));
+        assertArrayEquals(tree1.snapshot(), tree2.snapshot());
+    }
+}
@@ -68,6 +68,7 @@ import org.onosproject.store.service.EventuallyConsistentMapEvent;
 import org.onosproject.store.service.EventuallyConsistentMapListener;
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.MoreExecutors;
 
@@ -88,6 +89,8 @@ public class EventuallyConsistentMapImplTest {
             = new MessageSubject("ecm-" + MAP_NAME + "-update");
     private static final MessageSubject ANTI_ENTROPY_MESSAGE_SUBJECT
             = new MessageSubject("ecm-" + MAP_NAME + "-anti-entropy");
+    private static final MessageSubject ANTI_ENTROPY_TREE_SUBJECT
+            = new MessageSubject("ecm-" + MAP_NAME + "-anti-entropy-tree");
     private static final MessageSubject UPDATE_REQUEST_SUBJECT
             = new MessageSubject("ecm-" + MAP_NAME + "-update-request");
 
@@ -102,6 +105,7 @@ public class EventuallyConsistentMapImplTest {
     private Consumer<Collection<UpdateEntry<String, String>>> updateHandler;
     private Consumer<Collection<UpdateRequest<String>>> requestHandler;
     private Function<AntiEntropyAdvertisement<String>, AntiEntropyResponse> antiEntropyHandler;
+    private Function<AntiEntropyTreeAdvertisement, AntiEntropyTreeResponse> antiEntropyTreeHandler;
 
     @Before
     public void setUp() throws Exception {
@@ -125,7 +129,7 @@ public class EventuallyConsistentMapImplTest {
                                                           anyObject(Function.class),
                                                           anyObject(Function.class),
                                                           anyObject(Executor.class));
-        expectLastCall().andDelegateTo(new TestClusterCommunicationService()).times(1);
+        expectLastCall().andDelegateTo(new TestClusterCommunicationService()).times(2);
         clusterCommunicator.<Object>addSubscriber(anyObject(MessageSubject.class),
                 anyObject(Function.class), anyObject(Consumer.class), anyObject(Executor.class));
         expectLastCall().andDelegateTo(new TestClusterCommunicationService()).times(1);
@@ -630,11 +634,46 @@ public class EventuallyConsistentMapImplTest {
         return true;
     }
 
+    @Test
+    public void testTreeAdvertisement() throws Exception {
+        long[] empty = new long[DigestTree.BUCKETS];
+        NodeId peer = new NodeId("peer");
+
+        AntiEntropyTreeResponse response = antiEntropyTreeHandler.apply(
+                new AntiEntropyTreeAdvertisement(peer, 0, ImmutableMap.of(0, DigestTree.level(empty, 0)[0])));
+        assertEquals(AntiEntropyResponse.PROCESSED, response.status());
+        assertTrue(response.differences().isEmpty());
+
+        expectPeerMessage(clusterCommunicator);
+        ecMap.put(KEY1, VALUE1);
+
+        response = antiEntropyTreeHandler.apply(
+                new AntiEntropyTreeAdvertisement(peer, 0, ImmutableMap.of(0, DigestTree.level(empty, 0)[0])));
+        assertEquals(ImmutableSet.of(0), response.differences());
+
+        Map<Integer, Long> leaves = new HashMap<>();
+        for (int i = 0; i < DigestTree.BUCKETS; i++) {
+            leaves.put(i, empty[i]);
+        }
+        response = antiEntropyTreeHandler.apply(
+                new AntiEntropyTreeAdvertisement(peer, DigestTree.DEPTH, leaves));
+        assertEquals(1, response.differences().size());
+
+        int bucket = response.differences().iterator().next();
+        leaves.clear();
+        leaves.put(bucket, empty[bucket]);
+        leaves.put(bucket ^ 1, empty[bucket ^ 1]);
+        response = antiEntropyTreeHandler.apply(
+                new AntiEntropyTreeAdvertisement(peer, DigestTree.DEPTH, leaves));
+        assertEquals(ImmutableSet.of(bucket), response.differences());
+    }
+
     @Test
     public void testDestroy() throws Exception {
         clusterCommunicator.removeSubscriber(UPDATE_MESSAGE_SUBJECT);
         clusterCommunicator.removeSubscriber(UPDATE_REQUEST_SUBJECT);
         clusterCommunicator.removeSubscriber(ANTI_ENTROPY_MESSAGE_SUBJECT);
+        clusterCommunicator.removeSubscriber(ANTI_ENTROPY_TREE_SUBJECT);
 
         replay(clusterCommunicator);
 
@@ -793,6 +832,8 @@ public class EventuallyConsistentMapImplTest {
                 Function<byte[], M> decoder, Function<M, R> handler, Function<R, byte[]> encoder, Executor executor) {
             if (subject.equals(ANTI_ENTROPY_MESSAGE_SUBJECT)) {
                 antiEntropyHandler = (Function<AntiEntropyAdvertisement<String>, AntiEntropyResponse>) handler;
+            } else if (subject.equals(ANTI_ENTROPY_TREE_SUBJECT)) {
+                antiEntropyTreeHandler = (Function<AntiEntropyTreeAdvertisement, AntiEntropyTreeResponse>) handler;
             } else {
                 throw new RuntimeException("Unexpected message subject " + subject.toString());
             }
@@ -165,6 +165,76 @@ public interface BgpCfg {
      */
     short getHoldTime();
 
+    /**
+     * Sets the interval for which outgoing UPDATE messages are held back to be packed with other routes.
+     *
+     * @param interval update flush interval in milliseconds, 0 sends updates without delay
+     */
+    void setUpdateFlushInterval(int interval);
+
+    /**
+     * Returns the interval for which outgoing UPDATE messages are held back to be packed with other routes.
+     *
+     * @return update flush interval in milliseconds
+     */
+    int getUpdateFlushInterval();
+
+    /**
+     * Sets route target constrain capability support.
+     *
+     * @param rtConstrain true if route target constrain is supported
+     */
+    void setRtConstrainCapability(boolean rtConstrain);
+
+    /**
+     * Returns route target constrain capability support.
+     *
+     * @return true if route target constrain is supported
+     */
+    boolean getRtConstrainCapability();
+
+    /**
+     * Sets graceful restart capability support.
+     *
+     * @param gracefulRestart true if graceful restart is supported
+     */
+    void setGracefulRestartCapability(boolean gracefulRestart);
+
+    /**
+     * Returns graceful restart capability support.
+     *
+     * @return true if graceful restart is supported
+     */
+    boolean getGracefulRestartCapability();
+
+    /**
+     * Sets the time peers keep the routes of this speaker after its session is lost.
+     *
+     * @param restartTime restart time in seconds
+     */
+    void setRestartTime(short restartTime);
+
+    /**
+     * Returns the time peers keep the routes of this speaker after its session is lost.
+     *
+     * @return restart time in seconds
+     */
+    short getRestartTime();
+
+    /**
+     * Sets the time stale routes of a restarted peer are kept waiting for its End-of-RIB.
+     *
+     * @param stalePathTime stale path time in seconds
+     */
+    void setStalePathTime(int stalePathTime);
+
+    /**
+     * Returns the time stale routes of a restarted peer are kept waiting for its End-of-RIB.
+     *
+     * @return stale path time in seconds
+     */
+    int getStalePathTime();
+
     /**
      * Returns the maximum number of session supported.
      *
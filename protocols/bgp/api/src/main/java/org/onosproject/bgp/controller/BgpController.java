@@ -16,9 +16,13 @@
 
 package org.onosproject.bgp.controller;
 
+import org.onlab.packet.Ip4Address;
 import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
 import org.onosproject.bgpio.protocol.BgpMessage;
+import org.onosproject.bgpio.types.BgpValueType;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -108,6 +112,20 @@ public interface BgpController {
      */
     BgpLocalRib bgpLocalRib();
 
+    /**
+     * Return BGP EVPN local RIB instance.
+     *
+     * @return BGP EVPN local RIB
+     */
+    BgpEvpnLocalRib bgpEvpnLocalRib();
+
+    /**
+     * Return BGP flow specification local RIB instance.
+     *
+     * @return BGP flow specification local RIB
+     */
+    BgpFlowSpecLocalRib bgpFlowSpecLocalRib();
+
     /**
      * Return BGP peer manager.
      *
@@ -150,4 +168,73 @@ public interface BgpController {
      */
     Set<BgpLinkListener> linkListener();
 
+    /**
+     * Register a listener for flow specification changes of the local RIB.
+     *
+     * @param listener the listener to notify
+     */
+    void addFlowSpecListener(BgpFlowSpecListener listener);
+
+    /**
+     * Unregister a flow specification listener.
+     *
+     * @param listener the listener to unregister
+     */
+    void removeFlowSpecListener(BgpFlowSpecListener listener);
+
+    /**
+     * Return BGP flow specification listeners.
+     *
+     * @return flow specification listeners
+     */
+    Set<BgpFlowSpecListener> flowSpecListener();
+
+    /**
+     * Register a listener for EVPN route changes of the local RIB.
+     *
+     * @param listener the listener to notify
+     */
+    void addEvpnListener(BgpEvpnListener listener);
+
+    /**
+     * Unregister an EVPN route listener.
+     *
+     * @param listener the listener to unregister
+     */
+    void removeEvpnListener(BgpEvpnListener listener);
+
+    /**
+     * Return BGP EVPN route listeners.
+     *
+     * @return EVPN route listeners
+     */
+    Set<BgpEvpnListener> evpnListener();
+
+    /**
+     * Returns memory footprint of the Adj-RIB-In of each connected peer, of the local RIBs and of the
+     * shared path attribute sets, per address family.
+     *
+     * @return RIB footprint entries
+     */
+    List<BgpRibFootprint> ribFootprint();
+
+    /**
+     * Returns statistics of the UPDATE processing stages, the dispatch stage on the I/O threads followed by
+     * each RIB worker.
+     *
+     * @return stage statistics
+     */
+    List<BgpUpdateStageStats> updatePipelineStats();
+
+    /**
+     * Exports locally originated EVPN routes. Routes are encoded once and sent to every connected peer
+     * importing one of their route targets.
+     *
+     * @param operType operation type
+     * @param nextHop next hop, ignored for withdrawals
+     * @param extCommunities extended communities of the routes, including their route targets
+     * @param routes EVPN routes
+     */
+    void exportEvpn(BgpPeer.OperationType operType, Ip4Address nextHop, List<BgpValueType> extCommunities,
+                    List<BgpEvpnNlri> routes);
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller;
+
+import org.onlab.packet.IpAddress;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnRouteKey;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Abstraction of an entity providing EVPN route changes of the local RIB.
+ */
+public interface BgpEvpnListener {
+
+    /**
+     * Notifies a batch of changes of the selected EVPN routes. A withdrawal of an Ethernet segment
+     * invalidating all its MAC/IP advertisement routes is notified as one batch.
+     *
+     * @param updateRoutes next hop of the best path of the routes added or updated per route key
+     * @param deleteRoutes route keys of routes removed
+     */
+    void updateEvpnRoutes(Map<BgpEvpnRouteKey, IpAddress> updateRoutes, Collection<BgpEvpnRouteKey> deleteRoutes);
+}
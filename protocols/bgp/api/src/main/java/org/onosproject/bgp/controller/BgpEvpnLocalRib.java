@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller;
+
+import org.onlab.packet.IpAddress;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnRouteKey;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.RouteTarget;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Abstraction of BGP EVPN local RIB.
+ */
+public interface BgpEvpnLocalRib {
+
+    /**
+     * Adds EVPN NLRI received from a peer and runs best path selection for its route key.
+     *
+     * @param sessionInfo session info of the advertising peer
+     * @param nlri EVPN network layer reach info
+     * @param details path attributes of the NLRI
+     * @throws BgpParseException while adding NLRI to local RIB
+     */
+    void add(BgpSessionInfo sessionInfo, BgpEvpnNlri nlri, PathAttrNlriDetails details) throws BgpParseException;
+
+    /**
+     * Removes EVPN NLRI withdrawn by a peer and runs best path selection for its route key.
+     *
+     * @param sessionInfo session info of the withdrawing peer
+     * @param nlri EVPN network layer reach info
+     * @throws BgpParseException while deleting NLRI from local RIB
+     */
+    void delete(BgpSessionInfo sessionInfo, BgpEvpnNlri nlri) throws BgpParseException;
+
+    /**
+     * Returns the next hop of the best path of every selected route.
+     *
+     * @return next hops per route key
+     */
+    Map<BgpEvpnRouteKey, IpAddress> nextHops();
+
+    /**
+     * Returns the route targets carried by the best path of a selected route.
+     *
+     * @param routeKey EVPN route key
+     * @return route targets, empty if the route is not selected
+     */
+    Set<RouteTarget> routeTargets(BgpEvpnRouteKey routeKey);
+
+    /**
+     * Returns the next hops of the provider edges attached to an Ethernet segment, as advertised by their
+     * per Ethernet segment auto-discovery routes. Traffic to the MAC/IP advertisement routes of the segment
+     * can be balanced over them.
+     *
+     * @param esi Ethernet segment identifier
+     * @return next hops attached to the segment
+     */
+    Set<IpAddress> segmentNextHops(EthernetSegmentidentifier esi);
+}
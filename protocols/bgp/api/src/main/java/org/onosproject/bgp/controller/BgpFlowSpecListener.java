@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller;
+
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecNlri;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecRouteKey;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Allows for providers interested in flow specification events to be notified.
+ */
+public interface BgpFlowSpecListener {
+
+    /**
+     * Notifies a batch of changes of the selected flow specifications. Added or updated flow
+     * specifications carry the actions of their best path.
+     *
+     * @param addFlowSpecs flow specifications added or updated per route key
+     * @param deleteFlowSpecs route keys of flow specifications removed
+     */
+    void updateFlowSpecs(Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> addFlowSpecs,
+                         Collection<BgpFlowSpecRouteKey> deleteFlowSpecs);
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller;
+
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecNlri;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecRouteKey;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
+
+import java.util.Map;
+
+/**
+ * Abstraction of BGP flow specification local RIB.
+ */
+public interface BgpFlowSpecLocalRib {
+
+    /**
+     * Adds flow specification received from a peer and runs best path selection for its route key.
+     *
+     * @param sessionInfo session info of the advertising peer
+     * @param routeKey flow specification route key
+     * @param flowSpec flow specification
+     * @param details path attributes of the flow specification
+     * @throws BgpParseException while adding flow specification to local RIB
+     */
+    void add(BgpSessionInfo sessionInfo, BgpFlowSpecRouteKey routeKey, BgpFlowSpecNlri flowSpec,
+             PathAttrNlriDetails details) throws BgpParseException;
+
+    /**
+     * Removes flow specification withdrawn by a peer and runs best path selection for its route key.
+     *
+     * @param sessionInfo session info of the withdrawing peer
+     * @param routeKey flow specification route key
+     * @throws BgpParseException while deleting flow specification from local RIB
+     */
+    void delete(BgpSessionInfo sessionInfo, BgpFlowSpecRouteKey routeKey) throws BgpParseException;
+
+    /**
+     * Returns the selected flow specifications in RFC 5575 order, highest precedence first, each carrying
+     * the actions of its best path.
+     *
+     * @return flow specifications per route key
+     */
+    Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> flowSpecs();
+}
@@ -16,6 +16,9 @@ import org.onosproject.bgpio.exceptions.BgpParseException;
 import org.onosproject.bgpio.protocol.linkstate.BgpLinkLsNlriVer4;
 import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Allows for providers interested in link events to be notified.
  */
@@ -37,4 +40,21 @@ public interface BgpLinkListener {
      * @throws BgpParseException BGP parse exception
      */
     void deleteLink(BgpLinkLsNlriVer4 linkNlri) throws BgpParseException;
+
+    /**
+     * Notifies a batch of link changes, such as the local RIB delta computed when a peer goes down.
+     *
+     * @param addLinks links added or updated with their attributes and nlri details
+     * @param deleteLinks links removed
+     * @throws BgpParseException BGP parse exception
+     */
+    default void updateLinks(Map<BgpLinkLsNlriVer4, PathAttrNlriDetails> addLinks,
+                             Collection<BgpLinkLsNlriVer4> deleteLinks) throws BgpParseException {
+        for (BgpLinkLsNlriVer4 linkNlri : deleteLinks) {
+            deleteLink(linkNlri);
+        }
+        for (Map.Entry<BgpLinkLsNlriVer4, PathAttrNlriDetails> entry : addLinks.entrySet()) {
+            addLink(entry.getKey(), entry.getValue());
+        }
+    }
 }
@@ -34,12 +34,13 @@ public interface BgpLocalRib {
     void add(BgpSessionInfo sessionInfo, BgpLSNlri nlri, PathAttrNlriDetails details) throws BgpParseException;
 
     /**
-     * Removes NLRI identifier if it exists.
+     * Removes NLRI path of the withdrawing peer and re-selects best path among remaining peers.
      *
+     * @param sessionInfo session info of the withdrawing peer
      * @param nlri info
      * @throws BgpParseException while deleting NLRI from local rib
      */
-    void delete(BgpLSNlri nlri) throws BgpParseException;
+    void delete(BgpSessionInfo sessionInfo, BgpLSNlri nlri) throws BgpParseException;
 
     /**
      * Update NLRI identifier mapped with route distinguisher if it exists in tree otherwise add NLRI infomation mapped
@@ -55,11 +56,13 @@ public interface BgpLocalRib {
                     RouteDistinguisher routeDistinguisher) throws BgpParseException;
 
     /**
-     * Removes VPN NLRI identifier mapped to route distinguisher if it exists.
+     * Removes VPN NLRI path of the withdrawing peer mapped to route distinguisher if it exists.
      *
+     * @param sessionInfo session info of the withdrawing peer
      * @param nlri info
      * @param routeDistinguisher unique for each VPN
      * @throws BgpParseException while deleting NLRI from local rib
      */
-    void delete(BgpLSNlri nlri, RouteDistinguisher routeDistinguisher) throws BgpParseException;
+    void delete(BgpSessionInfo sessionInfo, BgpLSNlri nlri, RouteDistinguisher routeDistinguisher)
+            throws BgpParseException;
 }
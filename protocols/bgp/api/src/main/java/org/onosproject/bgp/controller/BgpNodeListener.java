@@ -15,6 +15,9 @@ package org.onosproject.bgp.controller;
 import org.onosproject.bgpio.protocol.linkstate.BgpNodeLSNlriVer4;
 import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Allows for providers interested in node events to be notified.
  */
@@ -34,4 +37,16 @@ public interface BgpNodeListener {
      * @param nodeNlri node reachability info
      */
     void deleteNode(BgpNodeLSNlriVer4 nodeNlri);
+
+    /**
+     * Notifies a batch of node changes, such as the local RIB delta computed when a peer goes down.
+     *
+     * @param addNodes nodes added or updated with their attributes and nlri details
+     * @param deleteNodes nodes removed
+     */
+    default void updateNodes(Map<BgpNodeLSNlriVer4, PathAttrNlriDetails> addNodes,
+                             Collection<BgpNodeLSNlriVer4> deleteNodes) {
+        deleteNodes.forEach(this::deleteNode);
+        addNodes.forEach(this::addNode);
+    }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Memory footprint of one address family of a BGP RIB.
+ * This class is immutable.
+ */
+public final class BgpRibFootprint {
+
+    /**
+     * RIB tables reported.
+     */
+    public enum Table {
+        /** Routes received from a peer. */
+        ADJ_RIB_IN,
+        /** Selected routes. */
+        LOC_RIB,
+        /** Path attribute sets shared by the Adj-RIB-In of all peers, routes count references. */
+        ATTRIBUTE_SETS
+    }
+
+    private final Table table;
+    private final BgpId peer;
+    private final String afi;
+    private final int routes;
+    private final int attributeSets;
+    private final long keyBytes;
+    private final long attributeBytes;
+
+    /**
+     * Constructor to initialize parameters.
+     *
+     * @param table RIB table
+     * @param peer peer of an Adj-RIB-In, null for other tables
+     * @param afi address family name
+     * @param routes number of routes
+     * @param attributeSets number of distinct path attribute sets referenced by the routes
+     * @param keyBytes bytes of compact route keys, 0 for address families without compact keys
+     * @param attributeBytes encoded bytes of the distinct path attribute sets
+     */
+    public BgpRibFootprint(Table table, BgpId peer, String afi, int routes, int attributeSets,
+                           long keyBytes, long attributeBytes) {
+        this.table = table;
+        this.peer = peer;
+        this.afi = afi;
+        this.routes = routes;
+        this.attributeSets = attributeSets;
+        this.keyBytes = keyBytes;
+        this.attributeBytes = attributeBytes;
+    }
+
+    /**
+     * Returns RIB table.
+     *
+     * @return RIB table
+     */
+    public Table table() {
+        return table;
+    }
+
+    /**
+     * Returns peer of an Adj-RIB-In.
+     *
+     * @return peer id, null for other tables
+     */
+    public BgpId peer() {
+        return peer;
+    }
+
+    /**
+     * Returns address family name.
+     *
+     * @return address family name
+     */
+    public String afi() {
+        return afi;
+    }
+
+    /**
+     * Returns number of routes.
+     *
+     * @return number of routes
+     */
+    public int routes() {
+        return routes;
+    }
+
+    /**
+     * Returns number of distinct path attribute sets referenced by the routes.
+     *
+     * @return number of attribute sets
+     */
+    public int attributeSets() {
+        return attributeSets;
+    }
+
+    /**
+     * Returns bytes of compact route keys.
+     *
+     * @return key bytes
+     */
+    public long keyBytes() {
+        return keyBytes;
+    }
+
+    /**
+     * Returns encoded bytes of the distinct path attribute sets.
+     *
+     * @return attribute bytes
+     */
+    public long attributeBytes() {
+        return attributeBytes;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass()).omitNullValues()
+                .add("table", table)
+                .add("peer", peer)
+                .add("afi", afi)
+                .add("routes", routes)
+                .add("attributeSets", attributeSets)
+                .add("keyBytes", keyBytes)
+                .add("attributeBytes", attributeBytes)
+                .toString();
+    }
+}
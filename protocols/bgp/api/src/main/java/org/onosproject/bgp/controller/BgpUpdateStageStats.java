@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Statistics of a stage of the UPDATE processing pipeline.
+ * This class is immutable.
+ */
+public final class BgpUpdateStageStats {
+
+    private final String stage;
+    private final int queueDepth;
+    private final int maxQueueDepth;
+    private final long processed;
+    private final long errors;
+
+    /**
+     * Constructor to initialize parameters.
+     *
+     * @param stage stage name
+     * @param queueDepth number of tasks waiting in the stage
+     * @param maxQueueDepth highest number of tasks seen waiting in the stage
+     * @param processed number of tasks the stage completed
+     * @param errors number of tasks that failed
+     */
+    public BgpUpdateStageStats(String stage, int queueDepth, int maxQueueDepth, long processed, long errors) {
+        this.stage = stage;
+        this.queueDepth = queueDepth;
+        this.maxQueueDepth = maxQueueDepth;
+        this.processed = processed;
+        this.errors = errors;
+    }
+
+    /**
+     * Returns stage name.
+     *
+     * @return stage name
+     */
+    public String stage() {
+        return stage;
+    }
+
+    /**
+     * Returns number of tasks waiting in the stage.
+     *
+     * @return queue depth
+     */
+    public int queueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Returns highest number of tasks seen waiting in the stage.
+     *
+     * @return maximum queue depth
+     */
+    public int maxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * Returns number of tasks the stage completed.
+     *
+     * @return number of processed tasks
+     */
+    public long processed() {
+        return processed;
+    }
+
+    /**
+     * Returns number of tasks that failed.
+     *
+     * @return number of failed tasks
+     */
+    public long errors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("stage", stage)
+                .add("queueDepth", queueDepth)
+                .add("maxQueueDepth", maxQueueDepth)
+                .add("processed", processed)
+                .add("errors", errors)
+                .toString();
+    }
+}
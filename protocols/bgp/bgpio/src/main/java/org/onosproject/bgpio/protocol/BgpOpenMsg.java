@@ -167,6 +167,30 @@ public interface BgpOpenMsg extends BgpMessage {
          */
         Builder setEvpnCapabilityTlv(boolean isEvpnCapabilitySet);
 
+        /**
+         * Sets route target constrain capability and return its builder.
+         *
+         * @param isRtConstrainCapabilitySet boolean value to know whether route
+         *            target constrain capability is set or not
+         *
+         * @return builder by setting capabilities
+         */
+        Builder setRtConstrainCapabilityTlv(boolean isRtConstrainCapabilitySet);
+
+        /**
+         * Sets graceful restart capability and return its builder. The capability preserves the routes
+         * of every address family advertised in the open message.
+         *
+         * @param isGracefulRestartCapabilitySet boolean value to know whether graceful restart
+         *            capability is set or not
+         * @param restartState true if the speaker has restarted
+         * @param restartTime time in seconds the peer keeps routes after the session is lost
+         *
+         * @return builder by setting capabilities
+         */
+        Builder setGracefulRestartCapabilityTlv(boolean isGracefulRestartCapabilitySet,
+                                                boolean restartState, short restartTime);
+
         @Override
         Builder setHeader(BgpHeader bgpMsgHeader);
     }
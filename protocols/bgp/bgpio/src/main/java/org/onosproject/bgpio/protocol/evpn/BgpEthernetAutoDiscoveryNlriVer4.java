@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgpio.protocol.evpn;
+
+import java.nio.ByteBuffer;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.MplsLabel;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Implementation of Ethernet auto-discovery route type specific EVPN NLRI.
+ */
+public final class BgpEthernetAutoDiscoveryNlriVer4 extends EncodedRouteTypeSpec {
+
+    /*
+     * REFERENCE : RFC 7432 BGP MPLS-Based Ethernet VPN
+         +---------------------------------------+
+         | RD (8 octets) |
+         +---------------------------------------+
+         |Ethernet Segment Identifier (10 octets)|
+         +---------------------------------------+
+         | Ethernet Tag ID (4 octets) |
+         +---------------------------------------+
+         | MPLS Label (3 octets) |
+         +---------------------------------------+
+
+      Figure : An Ethernet Auto-Discovery route type specific EVPN NLRI
+
+     */
+
+    public static final short TYPE = 1;
+    /**
+     * Ethernet tag of the per Ethernet segment route, used for mass withdrawal.
+     */
+    public static final int MAX_ETHERNET_TAG = 0xFFFFFFFF;
+
+    private static final int ESI_OFFSET = RD_LENGTH;
+    private static final int TAG_OFFSET = ESI_OFFSET + ESI_LENGTH;
+    private static final int LABEL_OFFSET = TAG_OFFSET + TAG_LENGTH;
+    private static final int LENGTH = LABEL_OFFSET + LABEL_LENGTH;
+
+    private BgpEthernetAutoDiscoveryNlriVer4(byte[] encoded) {
+        super(encoded);
+    }
+
+    /**
+     * Constructor to initialize parameters.
+     *
+     * @param rd route distinguisher
+     * @param esi Ethernet segment identifier
+     * @param ethernetTagID Ethernet tag identifier
+     * @param mplsLabel MPLS label
+     */
+    public BgpEthernetAutoDiscoveryNlriVer4(RouteDistinguisher rd, EthernetSegmentidentifier esi,
+                                            int ethernetTagID, MplsLabel mplsLabel) {
+        super(encode(rd, esi, ethernetTagID, mplsLabel));
+    }
+
+    private static byte[] encode(RouteDistinguisher rd, EthernetSegmentidentifier esi, int ethernetTagID,
+                                 MplsLabel mplsLabel) {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH);
+        putRd(buffer, rd);
+        putEsi(buffer, esi);
+        buffer.putInt(ethernetTagID);
+        putLabel(buffer, mplsLabel);
+        return buffer.array();
+    }
+
+    /**
+     * Reads from channel buffer and parses Ethernet auto-discovery route.
+     *
+     * @param cb channel buffer holding the route type specific part
+     * @return Ethernet auto-discovery route
+     * @throws BgpParseException while parsing the route
+     */
+    public static BgpEthernetAutoDiscoveryNlriVer4 read(ChannelBuffer cb) throws BgpParseException {
+        return new BgpEthernetAutoDiscoveryNlriVer4(readEncoded(cb, LENGTH));
+    }
+
+    /**
+     * Returns whether this is the per Ethernet segment route, withdrawing it withdraws every MAC/IP
+     * advertisement route of the segment.
+     *
+     * @return true for the per Ethernet segment route
+     */
+    public boolean isPerEthernetSegment() {
+        return getEthernetTagID() == MAX_ETHERNET_TAG;
+    }
+
+    public RouteDistinguisher getRouteDistinguisher() {
+        return rdAt(0);
+    }
+
+    public EthernetSegmentidentifier getEthernetSegmentidentifier() {
+        return esiAt(ESI_OFFSET);
+    }
+
+    public int getEthernetTagID() {
+        return intAt(TAG_OFFSET);
+    }
+
+    public MplsLabel getMplsLabel() {
+        return labelAt(LABEL_OFFSET);
+    }
+
+    @Override
+    public RouteType getType() {
+        return RouteType.ETHERNET_AUTO_DISCOVERY;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("rd", getRouteDistinguisher())
+                .add("esi", getEthernetSegmentidentifier())
+                .add("ethernetTagID", getEthernetTagID())
+                .add("mplsLabel", getMplsLabel())
+                .toString();
+    }
+}
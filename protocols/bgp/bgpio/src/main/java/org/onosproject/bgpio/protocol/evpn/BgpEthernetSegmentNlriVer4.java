@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgpio.protocol.evpn;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Implementation of Ethernet segment route type specific EVPN NLRI.
+ */
+public final class BgpEthernetSegmentNlriVer4 extends EncodedRouteTypeSpec {
+
+    /*
+     * REFERENCE : RFC 7432 BGP MPLS-Based Ethernet VPN
+         +---------------------------------------+
+         | RD (8 octets) |
+         +---------------------------------------+
+         |Ethernet Segment Identifier (10 octets)|
+         +---------------------------------------+
+         | IP Address Length (1 octet) |
+         +---------------------------------------+
+         | Originating Router's IP Address |
+         | (4 or 16 octets) |
+         +---------------------------------------+
+
+      Figure : An Ethernet Segment route type specific EVPN NLRI
+
+     */
+
+    public static final short TYPE = 4;
+
+    private static final int ESI_OFFSET = RD_LENGTH;
+    private static final int IP_LENGTH_OFFSET = ESI_OFFSET + ESI_LENGTH;
+    private static final int IP_OFFSET = IP_LENGTH_OFFSET + 1;
+
+    private BgpEthernetSegmentNlriVer4(byte[] encoded) {
+        super(encoded);
+    }
+
+    /**
+     * Constructor to initialize parameters.
+     *
+     * @param rd route distinguisher
+     * @param esi Ethernet segment identifier
+     * @param originatingRouter IP address of the originating router
+     */
+    public BgpEthernetSegmentNlriVer4(RouteDistinguisher rd, EthernetSegmentidentifier esi,
+                                      InetAddress originatingRouter) {
+        super(encode(rd, esi, originatingRouter));
+    }
+
+    private static byte[] encode(RouteDistinguisher rd, EthernetSegmentidentifier esi,
+                                 InetAddress originatingRouter) {
+        byte[] address = address(originatingRouter);
+        ByteBuffer buffer = ByteBuffer.allocate(IP_OFFSET + address.length);
+        putRd(buffer, rd);
+        putEsi(buffer, esi);
+        buffer.put((byte) (address.length * Byte.SIZE));
+        buffer.put(address);
+        return buffer.array();
+    }
+
+    /**
+     * Reads from channel buffer and parses Ethernet segment route.
+     *
+     * @param cb channel buffer holding the route type specific part
+     * @return Ethernet segment route
+     * @throws BgpParseException while parsing the route
+     */
+    public static BgpEthernetSegmentNlriVer4 read(ChannelBuffer cb) throws BgpParseException {
+        BgpEthernetSegmentNlriVer4 route = new BgpEthernetSegmentNlriVer4(
+                readEncoded(cb, IP_OFFSET + IPV4_LENGTH, IP_OFFSET + IPV6_LENGTH));
+        route.checkIpLength(IP_LENGTH_OFFSET, IP_OFFSET);
+        return route;
+    }
+
+    public RouteDistinguisher getRouteDistinguisher() {
+        return rdAt(0);
+    }
+
+    public EthernetSegmentidentifier getEthernetSegmentidentifier() {
+        return esiAt(ESI_OFFSET);
+    }
+
+    public InetAddress getOriginatingRouter() {
+        return ipAt(IP_OFFSET, encoded.length - IP_OFFSET);
+    }
+
+    @Override
+    public RouteType getType() {
+        return RouteType.ETHERNET_SEGMENT;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("rd", getRouteDistinguisher())
+                .add("esi", getEthernetSegmentidentifier())
+                .add("originatingRouter", getOriginatingRouter())
+                .toString();
+    }
+}
@@ -84,25 +84,37 @@ public class BgpEvpnNlriVer4 implements BgpEvpnNlri {
         RouteTypeSpec routeTypeSpefic = null;
 
         if (cb.readableBytes() > 0) {
-            ChannelBuffer tempBuf = cb.copy();
+            ChannelBuffer tempBuf = cb.duplicate();
             byte type = cb.readByte();
-            byte length = cb.readByte();
-            log.info("=====evpn nlri type is {}", type);
+            int length = cb.readUnsignedByte();
             if (cb.readableBytes() < length) {
                 throw new BgpParseException(BgpErrorType.UPDATE_MESSAGE_ERROR,
                                             BgpErrorType.OPTIONAL_ATTRIBUTE_ERROR,
                                             tempBuf.readBytes(cb.readableBytes()
                                                     + TYPE_AND_LEN));
             }
-            ChannelBuffer tempCb = cb.readBytes(length);
+            ChannelBuffer tempCb = cb.readSlice(length);
             switch (type) {
+            case BgpEthernetAutoDiscoveryNlriVer4.TYPE:
+                routeTypeSpefic = BgpEthernetAutoDiscoveryNlriVer4.read(tempCb);
+                break;
             case BgpMacIpAdvNlriVer4.TYPE:
                 routeTypeSpefic = BgpMacIpAdvNlriVer4.read(tempCb);
                 break;
+            case BgpInclusiveMulticastNlriVer4.TYPE:
+                routeTypeSpefic = BgpInclusiveMulticastNlriVer4.read(tempCb);
+                break;
+            case BgpEthernetSegmentNlriVer4.TYPE:
+                routeTypeSpefic = BgpEthernetSegmentNlriVer4.read(tempCb);
+                break;
+            case BgpIpPrefixNlriVer4.TYPE:
+                routeTypeSpefic = BgpIpPrefixNlriVer4.read(tempCb);
+                break;
             default:
+                // unknown route types are ignored as per RFC 7432
+                log.debug("Ignoring EVPN route type {}", type);
                 break;
             }
-            log.info("=====evpn nlri routeTypeSpefic is {}", routeTypeSpefic.toString());
             return new BgpEvpnNlriVer4(type, routeTypeSpefic);
         } else {
             return new BgpEvpnNlriVer4();
@@ -126,6 +138,8 @@ public class BgpEvpnNlriVer4 implements BgpEvpnNlri {
             return RouteType.INCLUSIVE_MULTICASE_ETHERNET;
         case Constants.BGP_EVPN_ETHERNET_SEGMENT:
             return RouteType.ETHERNET_SEGMENT;
+        case Constants.BGP_EVPN_IP_PREFIX:
+            return RouteType.IP_PREFIX;
         default:
             throw new BgpParseException(BgpErrorType.UPDATE_MESSAGE_ERROR,
                                         (byte) 0, null);
@@ -150,15 +164,11 @@ public class BgpEvpnNlriVer4 implements BgpEvpnNlri {
         cb.writeByte(routeType);
         int iSpecStartIndex = cb.writerIndex();
         cb.writeByte(0);
-        switch (routeType) {
-        case BgpMacIpAdvNlriVer4.TYPE:
-            ((BgpMacIpAdvNlriVer4) routeTypeSpec).write(cb);
-            break;
-        default:
-            break;
+        if (routeTypeSpec != null) {
+            routeTypeSpec.write(cb);
         }
         cb.setByte(iSpecStartIndex,
-                   (short) (cb.writerIndex() - iSpecStartIndex + 1));
+                   (short) (cb.writerIndex() - iSpecStartIndex - 1));
         return cb.writerIndex() - iLenStartIndex;
     }
 
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgpio.protocol.evpn;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.onlab.packet.MacAddress;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Provides BGP EVPN route index, identifies a route by RD, route type, ESI,
+ * Ethernet tag, MAC and IP address as per RFC 7432, and IP prefix length for
+ * IP prefix routes.
+ * <p>
+ * The key fields are held in a single byte array laid out as route type,
+ * presence flags, RD, ESI, Ethernet tag, MAC, IP address and IP prefix
+ * length, absent fields taking no space. Keys are ordered by unsigned comparison of that encoding
+ * and field accessors decode on demand.
+ * </p>
+ */
+public final class BgpEvpnRouteKey implements Comparable<BgpEvpnRouteKey> {
+
+    private static final int FLAG_ESI = 0x01;
+    private static final int FLAG_MAC = 0x02;
+    private static final int FLAG_IP = 0x04;
+    private static final int FLAG_PREFIX_LENGTH = 0x08;
+    private static final int RD_OFFSET = 2;
+    private static final int RD_LENGTH = 8;
+    private static final int TAG_LENGTH = 4;
+
+    private final byte[] encoded;
+    private final int hash;
+
+    /**
+     * Constructor to initialize parameters.
+     *
+     * @param rd route distinguisher
+     * @param routeType EVPN route type
+     * @param esi Ethernet segment identifier, null if not part of the route
+     * @param ethernetTagId Ethernet tag identifier
+     * @param macAddress MAC address, null if not part of the route
+     * @param ipAddress IP address, null if not part of the route
+     */
+    public BgpEvpnRouteKey(RouteDistinguisher rd, byte routeType,
+                           EthernetSegmentidentifier esi, int ethernetTagId,
+                           MacAddress macAddress, InetAddress ipAddress) {
+        this(rd, routeType, esi, ethernetTagId, macAddress, ipAddress, -1);
+    }
+
+    /**
+     * Constructor to initialize parameters of an IP prefix route.
+     *
+     * @param rd route distinguisher
+     * @param routeType EVPN route type
+     * @param esi Ethernet segment identifier, null if not part of the route
+     * @param ethernetTagId Ethernet tag identifier
+     * @param macAddress MAC address, null if not part of the route
+     * @param ipAddress IP address, null if not part of the route
+     * @param ipPrefixLength IP prefix length, -1 if not part of the route
+     */
+    public BgpEvpnRouteKey(RouteDistinguisher rd, byte routeType,
+                           EthernetSegmentidentifier esi, int ethernetTagId,
+                           MacAddress macAddress, InetAddress ipAddress, int ipPrefixLength) {
+        byte[] ip = ipAddress == null ? null : ipAddress.getAddress();
+        int length = RD_OFFSET + RD_LENGTH + TAG_LENGTH
+                + (esi == null ? 0 : EthernetSegmentidentifier.ESI_LENGTH)
+                + (macAddress == null ? 0 : MacAddress.MAC_ADDRESS_LENGTH)
+                + (ip == null ? 0 : ip.length)
+                + (ipPrefixLength < 0 ? 0 : 1);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.put(routeType);
+        buffer.put((byte) ((esi == null ? 0 : FLAG_ESI) | (macAddress == null ? 0 : FLAG_MAC)
+                | (ip == null ? 0 : FLAG_IP) | (ipPrefixLength < 0 ? 0 : FLAG_PREFIX_LENGTH)));
+        buffer.putLong(rd == null ? 0 : rd.getRouteDistinguisher());
+        if (esi != null) {
+            buffer.put(Arrays.copyOf(esi.getEthernetSegmentidentifier(), EthernetSegmentidentifier.ESI_LENGTH));
+        }
+        buffer.putInt(ethernetTagId);
+        if (macAddress != null) {
+            buffer.put(macAddress.toBytes());
+        }
+        if (ip != null) {
+            buffer.put(ip);
+        }
+        if (ipPrefixLength >= 0) {
+            buffer.put((byte) ipPrefixLength);
+        }
+        this.encoded = buffer.array();
+        this.hash = Arrays.hashCode(encoded);
+    }
+
+    /**
+     * Returns the route key of the given EVPN NLRI.
+     *
+     * @param nlri EVPN NLRI
+     * @return route key, null if the route type is not supported
+     */
+    public static BgpEvpnRouteKey of(BgpEvpnNlri nlri) {
+        RouteTypeSpec spec = nlri.getRouteTypeSpec();
+        if (spec instanceof BgpMacIpAdvNlriVer4) {
+            BgpMacIpAdvNlriVer4 macIpAdv = (BgpMacIpAdvNlriVer4) spec;
+            return new BgpEvpnRouteKey(macIpAdv.getRouteDistinguisher(),
+                                       (byte) nlri.getType(),
+                                       macIpAdv.getEthernetSegmentidentifier(),
+                                       macIpAdv.getEthernetTagID(),
+                                       macIpAdv.getMacAddress(),
+                                       macIpAdv.getIpAddress());
+        } else if (spec instanceof BgpEthernetAutoDiscoveryNlriVer4) {
+            BgpEthernetAutoDiscoveryNlriVer4 autoDiscovery = (BgpEthernetAutoDiscoveryNlriVer4) spec;
+            return new BgpEvpnRouteKey(autoDiscovery.getRouteDistinguisher(), (byte) nlri.getType(),
+                                       autoDiscovery.getEthernetSegmentidentifier(),
+                                       autoDiscovery.getEthernetTagID(), null, null);
+        } else if (spec instanceof BgpInclusiveMulticastNlriVer4) {
+            BgpInclusiveMulticastNlriVer4 multicast = (BgpInclusiveMulticastNlriVer4) spec;
+            return new BgpEvpnRouteKey(multicast.getRouteDistinguisher(), (byte) nlri.getType(), null,
+                                       multicast.getEthernetTagID(), null, multicast.getOriginatingRouter());
+        } else if (spec instanceof BgpEthernetSegmentNlriVer4) {
+            BgpEthernetSegmentNlriVer4 segment = (BgpEthernetSegmentNlriVer4) spec;
+            return new BgpEvpnRouteKey(segment.getRouteDistinguisher(), (byte) nlri.getType(),
+                                       segment.getEthernetSegmentidentifier(), 0, null,
+                                       segment.getOriginatingRouter());
+        } else if (spec instanceof BgpIpPrefixNlriVer4) {
+            BgpIpPrefixNlriVer4 prefix = (BgpIpPrefixNlriVer4) spec;
+            return new BgpEvpnRouteKey(prefix.getRouteDistinguisher(), (byte) nlri.getType(), null,
+                                       prefix.getEthernetTagID(), null, prefix.getIpPrefix(),
+                                       prefix.getIpPrefixLength());
+        }
+        return null;
+    }
+
+    /**
+     * Returns route distinguisher.
+     *
+     * @return route distinguisher
+     */
+    public RouteDistinguisher routeDistinguisher() {
+        return new RouteDistinguisher(ByteBuffer.wrap(encoded, RD_OFFSET, RD_LENGTH).getLong());
+    }
+
+    /**
+     * Returns EVPN route type.
+     *
+     * @return route type
+     */
+    public byte routeType() {
+        return encoded[0];
+    }
+
+    /**
+     * Returns Ethernet segment identifier.
+     *
+     * @return Ethernet segment identifier, null if not part of the route
+     */
+    public EthernetSegmentidentifier ethernetSegmentidentifier() {
+        if (!hasField(FLAG_ESI)) {
+            return null;
+        }
+        int offset = RD_OFFSET + RD_LENGTH;
+        return new EthernetSegmentidentifier(Arrays.copyOfRange(encoded, offset,
+                                                                offset + EthernetSegmentidentifier.ESI_LENGTH));
+    }
+
+    /**
+     * Returns Ethernet tag identifier.
+     *
+     * @return Ethernet tag identifier
+     */
+    public int ethernetTagId() {
+        return ByteBuffer.wrap(encoded, tagOffset(), TAG_LENGTH).getInt();
+    }
+
+    /**
+     * Returns MAC address.
+     *
+     * @return MAC address, null if not part of the route
+     */
+    public MacAddress macAddress() {
+        if (!hasField(FLAG_MAC)) {
+            return null;
+        }
+        int offset = tagOffset() + TAG_LENGTH;
+        return MacAddress.valueOf(Arrays.copyOfRange(encoded, offset, offset + MacAddress.MAC_ADDRESS_LENGTH));
+    }
+
+    /**
+     * Returns IP address.
+     *
+     * @return IP address, null if not part of the route
+     */
+    public InetAddress ipAddress() {
+        if (!hasField(FLAG_IP)) {
+            return null;
+        }
+        int offset = tagOffset() + TAG_LENGTH + (hasField(FLAG_MAC) ? MacAddress.MAC_ADDRESS_LENGTH : 0);
+        int end = encoded.length - (hasField(FLAG_PREFIX_LENGTH) ? 1 : 0);
+        try {
+            return InetAddress.getByAddress(Arrays.copyOfRange(encoded, offset, end));
+        } catch (UnknownHostException e) {
+            // length is always 4 or 16 as taken from an InetAddress
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns IP prefix length.
+     *
+     * @return IP prefix length, -1 if not part of the route
+     */
+    public int ipPrefixLength() {
+        return hasField(FLAG_PREFIX_LENGTH) ? encoded[encoded.length - 1] & 0xFF : -1;
+    }
+
+    /**
+     * Returns number of bytes used to encode the key.
+     *
+     * @return encoded key length
+     */
+    public int encodedLength() {
+        return encoded.length;
+    }
+
+    private boolean hasField(int flag) {
+        return (encoded[1] & flag) != 0;
+    }
+
+    private int tagOffset() {
+        return RD_OFFSET + RD_LENGTH + (hasField(FLAG_ESI) ? EthernetSegmentidentifier.ESI_LENGTH : 0);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof BgpEvpnRouteKey) {
+            BgpEvpnRouteKey other = (BgpEvpnRouteKey) obj;
+            return hash == other.hash && Arrays.equals(encoded, other.encoded);
+        }
+        return false;
+    }
+
+    @Override
+    public int compareTo(BgpEvpnRouteKey o) {
+        return UnsignedBytes.lexicographicalComparator().compare(encoded, o.encoded);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass()).omitNullValues()
+                .add("rd", routeDistinguisher())
+                .add("routeType", routeType())
+                .add("esi", ethernetSegmentidentifier())
+                .add("ethernetTagId", ethernetTagId())
+                .add("macAddress", macAddress())
+                .add("ipAddress", ipAddress())
+                .add("ipPrefixLength", hasField(FLAG_PREFIX_LENGTH) ? ipPrefixLength() : null)
+                .toString();
+    }
+}
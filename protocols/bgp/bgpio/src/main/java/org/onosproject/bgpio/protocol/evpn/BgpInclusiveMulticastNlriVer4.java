@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgpio.protocol.evpn;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Implementation of inclusive multicast Ethernet tag route type specific EVPN NLRI.
+ */
+public final class BgpInclusiveMulticastNlriVer4 extends EncodedRouteTypeSpec {
+
+    /*
+     * REFERENCE : RFC 7432 BGP MPLS-Based Ethernet VPN
+         +---------------------------------------+
+         | RD (8 octets) |
+         +---------------------------------------+
+         | Ethernet Tag ID (4 octets) |
+         +---------------------------------------+
+         | IP Address Length (1 octet) |
+         +---------------------------------------+
+         | Originating Router's IP Address |
+         | (4 or 16 octets) |
+         +---------------------------------------+
+
+      Figure : An Inclusive Multicast Ethernet Tag route type specific EVPN NLRI
+
+     */
+
+    public static final short TYPE = 3;
+
+    private static final int TAG_OFFSET = RD_LENGTH;
+    private static final int IP_LENGTH_OFFSET = TAG_OFFSET + TAG_LENGTH;
+    private static final int IP_OFFSET = IP_LENGTH_OFFSET + 1;
+
+    private BgpInclusiveMulticastNlriVer4(byte[] encoded) {
+        super(encoded);
+    }
+
+    /**
+     * Constructor to initialize parameters.
+     *
+     * @param rd route distinguisher
+     * @param ethernetTagID Ethernet tag identifier
+     * @param originatingRouter IP address of the originating router
+     */
+    public BgpInclusiveMulticastNlriVer4(RouteDistinguisher rd, int ethernetTagID, InetAddress originatingRouter) {
+        super(encode(rd, ethernetTagID, originatingRouter));
+    }
+
+    private static byte[] encode(RouteDistinguisher rd, int ethernetTagID, InetAddress originatingRouter) {
+        byte[] address = address(originatingRouter);
+        ByteBuffer buffer = ByteBuffer.allocate(IP_OFFSET + address.length);
+        putRd(buffer, rd);
+        buffer.putInt(ethernetTagID);
+        buffer.put((byte) (address.length * Byte.SIZE));
+        buffer.put(address);
+        return buffer.array();
+    }
+
+    /**
+     * Reads from channel buffer and parses inclusive multicast Ethernet tag route.
+     *
+     * @param cb channel buffer holding the route type specific part
+     * @return inclusive multicast Ethernet tag route
+     * @throws BgpParseException while parsing the route
+     */
+    public static BgpInclusiveMulticastNlriVer4 read(ChannelBuffer cb) throws BgpParseException {
+        BgpInclusiveMulticastNlriVer4 route = new BgpInclusiveMulticastNlriVer4(
+                readEncoded(cb, IP_OFFSET + IPV4_LENGTH, IP_OFFSET + IPV6_LENGTH));
+        route.checkIpLength(IP_LENGTH_OFFSET, IP_OFFSET);
+        return route;
+    }
+
+    public RouteDistinguisher getRouteDistinguisher() {
+        return rdAt(0);
+    }
+
+    public int getEthernetTagID() {
+        return intAt(TAG_OFFSET);
+    }
+
+    public InetAddress getOriginatingRouter() {
+        return ipAt(IP_OFFSET, encoded.length - IP_OFFSET);
+    }
+
+    @Override
+    public RouteType getType() {
+        return RouteType.INCLUSIVE_MULTICASE_ETHERNET;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("rd", getRouteDistinguisher())
+                .add("ethernetTagID", getEthernetTagID())
+                .add("originatingRouter", getOriginatingRouter())
+                .toString();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgpio.protocol.evpn;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.types.BgpErrorType;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.MplsLabel;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Implementation of IP prefix route type specific EVPN NLRI as per RFC 9136.
+ */
+public final class BgpIpPrefixNlriVer4 extends EncodedRouteTypeSpec {
+
+    /*
+     * REFERENCE : RFC 9136 IP Prefix Advertisement in EVPN
+         +---------------------------------------+
+         | RD (8 octets) |
+         +---------------------------------------+
+         |Ethernet Segment Identifier (10 octets)|
+         +---------------------------------------+
+         | Ethernet Tag ID (4 octets) |
+         +---------------------------------------+
+         | IP Prefix Length (1 octet) |
+         +---------------------------------------+
+         | IP Prefix (4 or 16 octets) |
+         +---------------------------------------+
+         | GW IP Address (4 or 16 octets) |
+         +---------------------------------------+
+         | MPLS Label (3 octets) |
+         +---------------------------------------+
+
+      Figure : An IP Prefix route type specific EVPN NLRI
+
+     */
+
+    public static final short TYPE = 5;
+
+    private static final int ESI_OFFSET = RD_LENGTH;
+    private static final int TAG_OFFSET = ESI_OFFSET + ESI_LENGTH;
+    private static final int PREFIX_LENGTH_OFFSET = TAG_OFFSET + TAG_LENGTH;
+    private static final int PREFIX_OFFSET = PREFIX_LENGTH_OFFSET + 1;
+    private static final int FIXED_LENGTH = PREFIX_OFFSET + LABEL_LENGTH;
+
+    private BgpIpPrefixNlriVer4(byte[] encoded) {
+        super(encoded);
+    }
+
+    /**
+     * Constructor to initialize parameters.
+     *
+     * @param rd route distinguisher
+     * @param esi Ethernet segment identifier, null for none
+     * @param ethernetTagID Ethernet tag identifier
+     * @param ipPrefixLength IP prefix length in bits
+     * @param ipPrefix IP prefix
+     * @param gatewayIp gateway IP address of the same family as the prefix, null for none
+     * @param mplsLabel MPLS label
+     */
+    public BgpIpPrefixNlriVer4(RouteDistinguisher rd, EthernetSegmentidentifier esi, int ethernetTagID,
+                               byte ipPrefixLength, InetAddress ipPrefix, InetAddress gatewayIp,
+                               MplsLabel mplsLabel) {
+        super(encode(rd, esi, ethernetTagID, ipPrefixLength, ipPrefix, gatewayIp, mplsLabel));
+    }
+
+    private static byte[] encode(RouteDistinguisher rd, EthernetSegmentidentifier esi, int ethernetTagID,
+                                 byte ipPrefixLength, InetAddress ipPrefix, InetAddress gatewayIp,
+                                 MplsLabel mplsLabel) {
+        byte[] prefix = address(ipPrefix);
+        byte[] gateway = gatewayIp == null ? new byte[prefix.length] : address(gatewayIp);
+        if (gateway.length != prefix.length || (ipPrefixLength & 0xFF) > prefix.length * Byte.SIZE) {
+            throw new IllegalArgumentException("Invalid prefix " + ipPrefix + "/" + ipPrefixLength
+                                                       + " or gateway " + gatewayIp);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_LENGTH + 2 * prefix.length);
+        putRd(buffer, rd);
+        putEsi(buffer, esi);
+        buffer.putInt(ethernetTagID);
+        buffer.put(ipPrefixLength);
+        buffer.put(prefix);
+        buffer.put(gateway);
+        putLabel(buffer, mplsLabel);
+        return buffer.array();
+    }
+
+    /**
+     * Reads from channel buffer and parses IP prefix route.
+     *
+     * @param cb channel buffer holding the route type specific part
+     * @return IP prefix route
+     * @throws BgpParseException while parsing the route
+     */
+    public static BgpIpPrefixNlriVer4 read(ChannelBuffer cb) throws BgpParseException {
+        BgpIpPrefixNlriVer4 route = new BgpIpPrefixNlriVer4(
+                readEncoded(cb, FIXED_LENGTH + 2 * IPV4_LENGTH, FIXED_LENGTH + 2 * IPV6_LENGTH));
+        if (route.getIpPrefixLength() > route.addressLength() * Byte.SIZE) {
+            throw new BgpParseException(BgpErrorType.UPDATE_MESSAGE_ERROR, BgpErrorType.OPTIONAL_ATTRIBUTE_ERROR,
+                                        null);
+        }
+        return route;
+    }
+
+    private int addressLength() {
+        return (encoded.length - FIXED_LENGTH) / 2;
+    }
+
+    public RouteDistinguisher getRouteDistinguisher() {
+        return rdAt(0);
+    }
+
+    public EthernetSegmentidentifier getEthernetSegmentidentifier() {
+        return esiAt(ESI_OFFSET);
+    }
+
+    public int getEthernetTagID() {
+        return intAt(TAG_OFFSET);
+    }
+
+    public int getIpPrefixLength() {
+        return encoded[PREFIX_LENGTH_OFFSET] & 0xFF;
+    }
+
+    public InetAddress getIpPrefix() {
+        return ipAt(PREFIX_OFFSET, addressLength());
+    }
+
+    public InetAddress getGatewayIp() {
+        return ipAt(PREFIX_OFFSET + addressLength(), addressLength());
+    }
+
+    public MplsLabel getMplsLabel() {
+        return labelAt(encoded.length - LABEL_LENGTH);
+    }
+
+    @Override
+    public RouteType getType() {
+        return RouteType.IP_PREFIX;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("rd", getRouteDistinguisher())
+                .add("esi", getEthernetSegmentidentifier())
+                .add("ethernetTagID", getEthernetTagID())
+                .add("ipPrefix", getIpPrefix().getHostAddress() + "/" + getIpPrefixLength())
+                .add("gatewayIp", getGatewayIp())
+                .add("mplsLabel", getMplsLabel())
+                .toString();
+    }
+}
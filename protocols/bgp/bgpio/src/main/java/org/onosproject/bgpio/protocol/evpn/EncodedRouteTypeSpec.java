@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgpio.protocol.evpn;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.types.BgpErrorType;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.MplsLabel;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+
+/**
+ * Base of the route type specific EVPN NLRI kept in their wire encoding.
+ * <p>
+ * The route is held in a single byte array laid out as on the wire, so
+ * reading copies the NLRI once and writing is a single bulk copy. Fields are
+ * decoded on demand from their fixed offsets.
+ * </p>
+ */
+abstract class EncodedRouteTypeSpec implements RouteTypeSpec {
+
+    static final int RD_LENGTH = 8;
+    static final int ESI_LENGTH = EthernetSegmentidentifier.ESI_LENGTH;
+    static final int TAG_LENGTH = 4;
+    static final int LABEL_LENGTH = 3;
+    static final int IPV4_LENGTH = 4;
+    static final int IPV6_LENGTH = 16;
+
+    protected final byte[] encoded;
+
+    /**
+     * Creates route from its encoding.
+     *
+     * @param encoded route type specific encoding
+     */
+    EncodedRouteTypeSpec(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    /**
+     * Reads route type specific encoding of the given length.
+     *
+     * @param cb channel buffer holding the route type specific part
+     * @param validLengths lengths allowed for the route type
+     * @return encoding
+     * @throws BgpParseException if the length is not valid for the route type
+     */
+    static byte[] readEncoded(ChannelBuffer cb, int... validLengths) throws BgpParseException {
+        int length = cb.readableBytes();
+        for (int validLength : validLengths) {
+            if (length == validLength) {
+                byte[] encoded = new byte[length];
+                cb.readBytes(encoded);
+                return encoded;
+            }
+        }
+        throw new BgpParseException(BgpErrorType.UPDATE_MESSAGE_ERROR, BgpErrorType.OPTIONAL_ATTRIBUTE_ERROR, null);
+    }
+
+    /**
+     * Returns the bytes of an address, checking it is an IPv4 or IPv6 address.
+     *
+     * @param ipAddress IP address
+     * @return address bytes
+     */
+    static byte[] address(InetAddress ipAddress) {
+        byte[] address = ipAddress.getAddress();
+        if (address.length != IPV4_LENGTH && address.length != IPV6_LENGTH) {
+            throw new IllegalArgumentException("Unsupported address " + ipAddress);
+        }
+        return address;
+    }
+
+    /**
+     * Checks the IP address length field, in bits, matches the address taking the rest of the encoding.
+     *
+     * @param lengthOffset offset of the IP address length
+     * @param ipOffset offset of the IP address
+     * @throws BgpParseException if the lengths do not match
+     */
+    void checkIpLength(int lengthOffset, int ipOffset) throws BgpParseException {
+        if ((encoded[lengthOffset] & 0xFF) != (encoded.length - ipOffset) * Byte.SIZE) {
+            throw new BgpParseException(BgpErrorType.UPDATE_MESSAGE_ERROR, BgpErrorType.OPTIONAL_ATTRIBUTE_ERROR,
+                                        null);
+        }
+    }
+
+    static void putRd(ByteBuffer buffer, RouteDistinguisher rd) {
+        buffer.putLong(rd == null ? 0 : rd.getRouteDistinguisher());
+    }
+
+    static void putEsi(ByteBuffer buffer, EthernetSegmentidentifier esi) {
+        byte[] value = esi == null ? null : esi.getEthernetSegmentidentifier();
+        buffer.put(value == null ? new byte[ESI_LENGTH] : Arrays.copyOf(value, ESI_LENGTH));
+    }
+
+    static void putLabel(ByteBuffer buffer, MplsLabel label) {
+        byte[] value = label == null ? null : label.getMplsLabel();
+        buffer.put(value == null ? new byte[LABEL_LENGTH] : Arrays.copyOf(value, LABEL_LENGTH));
+    }
+
+    RouteDistinguisher rdAt(int offset) {
+        return new RouteDistinguisher(ByteBuffer.wrap(encoded, offset, RD_LENGTH).getLong());
+    }
+
+    EthernetSegmentidentifier esiAt(int offset) {
+        return new EthernetSegmentidentifier(Arrays.copyOfRange(encoded, offset, offset + ESI_LENGTH));
+    }
+
+    int intAt(int offset) {
+        return ByteBuffer.wrap(encoded, offset, TAG_LENGTH).getInt();
+    }
+
+    MplsLabel labelAt(int offset) {
+        return new MplsLabel(Arrays.copyOfRange(encoded, offset, offset + LABEL_LENGTH));
+    }
+
+    InetAddress ipAt(int offset, int length) {
+        try {
+            return InetAddress.getByAddress(Arrays.copyOfRange(encoded, offset, offset + length));
+        } catch (UnknownHostException e) {
+            // lengths are always 4 or 16 as checked when reading or constructing
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns number of bytes of the route type specific encoding.
+     *
+     * @return encoded length
+     */
+    public int encodedLength() {
+        return encoded.length;
+    }
+
+    @Override
+    public int write(ChannelBuffer cb) {
+        cb.writeBytes(encoded);
+        return encoded.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(encoded);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj != null && obj.getClass() == getClass()) {
+            return Arrays.equals(encoded, ((EncodedRouteTypeSpec) obj).encoded);
+        }
+        return false;
+    }
+}
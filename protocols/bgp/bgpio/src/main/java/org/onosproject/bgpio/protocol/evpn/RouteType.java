@@ -21,7 +21,7 @@ package org.onosproject.bgpio.protocol.evpn;
  */
 public enum RouteType {
     ETHERNET_AUTO_DISCOVERY(1), MAC_IP_ADVERTISEMENT(2),
-    INCLUSIVE_MULTICASE_ETHERNET(3), ETHERNET_SEGMENT(4);
+    INCLUSIVE_MULTICASE_ETHERNET(3), ETHERNET_SEGMENT(4), IP_PREFIX(5);
     int value;
 
     /**
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgpio.protocol.flowspec;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.bgpio.types.BgpFsDestinationPrefix;
+import org.onosproject.bgpio.types.BgpFsSourcePrefix;
+import org.onosproject.bgpio.types.BgpValueType;
+
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Orders flow specifications by precedence as per RFC 5575 section 5.1, the
+ * flow specification with higher precedence sorting first.
+ * <p>
+ * Components are compared in type order. A flow specification carrying a
+ * component type the other lacks has higher precedence. For prefix components
+ * the more specific prefix has higher precedence, otherwise the lower IP
+ * value. Other components are compared as byte strings, the longer string
+ * winning when one is a prefix of the other.
+ * </p>
+ */
+public final class BgpFlowSpecPrecedence implements Comparator<BgpFlowSpecNlri> {
+
+    private static final Comparator<byte[]> BYTES = UnsignedBytes.lexicographicalComparator();
+
+    @Override
+    public int compare(BgpFlowSpecNlri first, BgpFlowSpecNlri second) {
+        List<BgpValueType> firstComponents = sortedComponents(first);
+        List<BgpValueType> secondComponents = sortedComponents(second);
+        int count = Math.min(firstComponents.size(), secondComponents.size());
+        for (int i = 0; i < count; i++) {
+            BgpValueType a = firstComponents.get(i);
+            BgpValueType b = secondComponents.get(i);
+            if (a.getType() != b.getType()) {
+                // the flow specification having the lower component type carries a component the other lacks
+                return a.getType() < b.getType() ? -1 : 1;
+            }
+            int result = compareComponent(a, b);
+            if (result != 0) {
+                return result;
+            }
+        }
+        if (firstComponents.size() != secondComponents.size()) {
+            return firstComponents.size() > secondComponents.size() ? -1 : 1;
+        }
+        return Long.compare(routeDistinguisher(first), routeDistinguisher(second));
+    }
+
+    /**
+     * Returns flow specification components ordered by component type.
+     *
+     * @param flowSpec flow specification
+     * @return components sorted by type
+     */
+    public static List<BgpValueType> sortedComponents(BgpFlowSpecNlri flowSpec) {
+        List<BgpValueType> components = new ArrayList<>();
+        if (flowSpec.flowSpecComponents() != null) {
+            for (BgpValueType component : flowSpec.flowSpecComponents()) {
+                if (component != null) {
+                    components.add(component);
+                }
+            }
+        }
+        components.sort((a, b) -> Short.compare(a.getType(), b.getType()));
+        return components;
+    }
+
+    /**
+     * Returns the encoding of a component without its type.
+     *
+     * @param component flow specification component
+     * @return component value bytes
+     */
+    static byte[] componentValue(BgpValueType component) {
+        ChannelBuffer cb = ChannelBuffers.dynamicBuffer();
+        BgpFlowSpecNlri.writeFlowType(component, cb);
+        if (cb.readableBytes() > 0) {
+            cb.skipBytes(1);
+        }
+        byte[] value = new byte[cb.readableBytes()];
+        cb.readBytes(value);
+        return value;
+    }
+
+    private static int compareComponent(BgpValueType a, BgpValueType b) {
+        if (a instanceof BgpFsDestinationPrefix && b instanceof BgpFsDestinationPrefix) {
+            return comparePrefix(((BgpFsDestinationPrefix) a).ipPrefix(), ((BgpFsDestinationPrefix) b).ipPrefix());
+        }
+        if (a instanceof BgpFsSourcePrefix && b instanceof BgpFsSourcePrefix) {
+            return comparePrefix(((BgpFsSourcePrefix) a).ipPrefix(), ((BgpFsSourcePrefix) b).ipPrefix());
+        }
+        byte[] first = componentValue(a);
+        byte[] second = componentValue(b);
+        int common = Math.min(first.length, second.length);
+        for (int i = 0; i < common; i++) {
+            int result = UnsignedBytes.compare(first[i], second[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        // on equal common part the longer string has precedence
+        return Integer.compare(second.length, first.length);
+    }
+
+    private static int comparePrefix(IpPrefix a, IpPrefix b) {
+        if (a.prefixLength() != b.prefixLength()) {
+            IpPrefix shorter = a.prefixLength() < b.prefixLength() ? a : b;
+            IpPrefix longer = shorter == a ? b : a;
+            if (shorter.contains(longer)) {
+                // more specific prefix has precedence
+                return longer == a ? -1 : 1;
+            }
+        }
+        int result = BYTES.compare(a.address().toOctets(), b.address().toOctets());
+        return result != 0 ? result : Integer.compare(b.prefixLength(), a.prefixLength());
+    }
+
+    private static long routeDistinguisher(BgpFlowSpecNlri flowSpec) {
+        return flowSpec.routeDistinguisher() == null ? 0 : flowSpec.routeDistinguisher().getRouteDistinguisher();
+    }
+}
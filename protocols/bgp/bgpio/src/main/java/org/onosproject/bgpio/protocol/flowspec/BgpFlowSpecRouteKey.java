@@ -17,6 +17,10 @@
 package org.onosproject.bgpio.protocol.flowspec;
 
 import java.util.Objects;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.onosproject.bgpio.types.BgpValueType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +44,25 @@ public class BgpFlowSpecRouteKey implements Comparable<Object> {
         this.routeKey = routeKey;
     }
 
+    /**
+     * Returns the route key of a received flow specification, derived from its route distinguisher and
+     * its components encoded in type order so that equal flow specifications get equal keys.
+     *
+     * @param flowSpec flow specification
+     * @return route key
+     */
+    public static BgpFlowSpecRouteKey of(BgpFlowSpecNlri flowSpec) {
+        ChannelBuffer cb = ChannelBuffers.dynamicBuffer();
+        for (BgpValueType component : BgpFlowSpecPrecedence.sortedComponents(flowSpec)) {
+            BgpFlowSpecNlri.writeFlowType(component, cb);
+        }
+        String components = ChannelBuffers.hexDump(cb);
+        if (flowSpec.routeDistinguisher() == null) {
+            return new BgpFlowSpecRouteKey(components);
+        }
+        return new BgpFlowSpecRouteKey(flowSpec.routeDistinguisher().getRouteDistinguisher() + "/" + components);
+    }
+
     /**
      * Returns route key.
      *
@@ -109,7 +109,7 @@ public class BgpLinkLSIdentifier implements Comparable<Object> {
     public static NodeDescriptors parseNodeDescriptors(ChannelBuffer cb, short desType, byte protocolId)
             throws BgpParseException {
         log.debug("parse Node descriptors");
-        ChannelBuffer tempBuf = cb.copy();
+        ChannelBuffer tempBuf = cb.duplicate();
         short type = cb.readShort();
         short length = cb.readShort();
         if (cb.readableBytes() < length) {
@@ -140,7 +140,7 @@ public class BgpLinkLSIdentifier implements Comparable<Object> {
         int count = 0;
 
         while (cb.readableBytes() > 0) {
-            ChannelBuffer tempBuf = cb.copy();
+            ChannelBuffer tempBuf = cb.duplicate();
             short type = cb.readShort();
             short length = cb.readShort();
             if (cb.readableBytes() < length) {
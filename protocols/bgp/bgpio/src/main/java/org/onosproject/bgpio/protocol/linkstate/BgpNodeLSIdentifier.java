@@ -61,7 +61,7 @@ public class BgpNodeLSIdentifier implements Comparable<Object> {
     public static BgpNodeLSIdentifier parseLocalNodeDescriptors(ChannelBuffer cb, byte protocolId)
             throws BgpParseException {
         log.debug("parse Local node descriptor");
-        ChannelBuffer tempBuf = cb.copy();
+        ChannelBuffer tempBuf = cb.duplicate();
         short type = cb.readShort();
         short length = cb.readShort();
         if (cb.readableBytes() < length) {
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgpio.protocol.rtc;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.types.BgpErrorType;
+import org.onosproject.bgpio.types.RouteTarget;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Provides route target membership NLRI as per RFC 4684.
+ * <p>
+ * The NLRI is a prefix of up to 96 bits made of the origin AS followed by
+ * the 8 byte route target extended community. A zero length prefix is the
+ * default membership, asking for the routes of every route target.
+ * </p>
+ */
+public final class RouteTargetMembershipNlri {
+
+    public static final int MAX_PREFIX_LENGTH = 96;
+    private static final int ORIGIN_AS_LENGTH = 32;
+    private static final int ENCODED_LENGTH = MAX_PREFIX_LENGTH / Byte.SIZE;
+    private static final int RT_VALUE_LENGTH = 6;
+
+    private static final RouteTargetMembershipNlri DEFAULT = new RouteTargetMembershipNlri(0, new byte[0]);
+
+    private final int prefixLength;
+    private final byte[] prefix;
+
+    private RouteTargetMembershipNlri(int prefixLength, byte[] prefix) {
+        this.prefixLength = prefixLength;
+        this.prefix = prefix;
+    }
+
+    /**
+     * Creates membership of an origin AS in a route target.
+     *
+     * @param originAs AS number of the speaker importing the route target
+     * @param routeTarget route target
+     */
+    public RouteTargetMembershipNlri(int originAs, RouteTarget routeTarget) {
+        this.prefixLength = MAX_PREFIX_LENGTH;
+        this.prefix = ByteBuffer.allocate(ENCODED_LENGTH).putInt(originAs).putShort(routeTarget.getType())
+                .put(routeTarget.getRouteTarget(), 0, RT_VALUE_LENGTH).array();
+    }
+
+    /**
+     * Returns the default membership, matching every route target.
+     *
+     * @return default membership
+     */
+    public static RouteTargetMembershipNlri defaultMembership() {
+        return DEFAULT;
+    }
+
+    /**
+     * Reads route target membership NLRI from channel buffer.
+     *
+     * @param cb channel buffer
+     * @return route target membership NLRI
+     * @throws BgpParseException while parsing the NLRI
+     */
+    public static RouteTargetMembershipNlri read(ChannelBuffer cb) throws BgpParseException {
+        int prefixLength = cb.readUnsignedByte();
+        int length = (prefixLength + Byte.SIZE - 1) / Byte.SIZE;
+        if (prefixLength > MAX_PREFIX_LENGTH || (prefixLength > 0 && prefixLength < ORIGIN_AS_LENGTH)
+                || cb.readableBytes() < length) {
+            throw new BgpParseException(BgpErrorType.UPDATE_MESSAGE_ERROR, BgpErrorType.OPTIONAL_ATTRIBUTE_ERROR,
+                                        null);
+        }
+        if (prefixLength == 0) {
+            return DEFAULT;
+        }
+        byte[] prefix = new byte[length];
+        cb.readBytes(prefix);
+        return new RouteTargetMembershipNlri(prefixLength, prefix);
+    }
+
+    /**
+     * Writes the NLRI into channel buffer.
+     *
+     * @param cb channel buffer
+     * @return number of bytes written
+     */
+    public int write(ChannelBuffer cb) {
+        cb.writeByte(prefixLength);
+        cb.writeBytes(prefix);
+        return 1 + prefix.length;
+    }
+
+    /**
+     * Returns prefix length in bits.
+     *
+     * @return prefix length
+     */
+    public int prefixLength() {
+        return prefixLength;
+    }
+
+    /**
+     * Returns whether this is the default membership.
+     *
+     * @return true if every route target is asked for
+     */
+    public boolean isDefault() {
+        return prefixLength == 0;
+    }
+
+    /**
+     * Returns origin AS of the membership.
+     *
+     * @return origin AS, 0 for the default membership
+     */
+    public int originAs() {
+        return prefixLength == 0 ? 0 : ByteBuffer.wrap(prefix, 0, Integer.BYTES).getInt();
+    }
+
+    /**
+     * Returns whether routes carrying the route target are asked for by this membership.
+     *
+     * @param routeTarget route target
+     * @return true if the route target is covered by the prefix
+     */
+    public boolean matches(RouteTarget routeTarget) {
+        int bits = prefixLength - ORIGIN_AS_LENGTH;
+        if (bits <= 0) {
+            return true;
+        }
+        byte[] target = ByteBuffer.allocate(Short.BYTES + RT_VALUE_LENGTH).putShort(routeTarget.getType())
+                .put(routeTarget.getRouteTarget(), 0, RT_VALUE_LENGTH).array();
+        int offset = Integer.BYTES;
+        for (int i = 0; bits > 0; i++, bits -= Byte.SIZE) {
+            int mask = bits >= Byte.SIZE ? 0xFF : (0xFF << (Byte.SIZE - bits)) & 0xFF;
+            if (((prefix[offset + i] ^ target[i]) & mask) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * prefixLength + Arrays.hashCode(prefix);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof RouteTargetMembershipNlri) {
+            RouteTargetMembershipNlri other = (RouteTargetMembershipNlri) obj;
+            return prefixLength == other.prefixLength && Arrays.equals(prefix, other.prefix);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("prefixLength", prefixLength)
+                .add("originAs", originAs())
+                .add("prefix", Arrays.toString(prefix))
+                .toString();
+    }
+}
@@ -15,7 +15,9 @@
  */
 package org.onosproject.bgpio.protocol.ver4;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.ListIterator;
 
 import org.jboss.netty.buffer.ChannelBuffer;
@@ -29,6 +31,7 @@ import org.onosproject.bgpio.types.BgpErrorType;
 import org.onosproject.bgpio.types.BgpHeader;
 import org.onosproject.bgpio.types.BgpValueType;
 import org.onosproject.bgpio.types.FourOctetAsNumCapabilityTlv;
+import org.onosproject.bgpio.types.GracefulRestartCapabilityTlv;
 import org.onosproject.bgpio.types.MultiProtocolExtnCapabilityTlv;
 import org.onosproject.bgpio.util.Validation;
 import org.onosproject.bgpio.util.Constants;
@@ -287,6 +290,10 @@ public class BgpOpenMsgVer4 implements BgpOpenMsg {
                 byte safi = cb.readByte();
                 tlv = new MultiProtocolExtnCapabilityTlv(afi, res, safi);
 
+                break;
+            case GracefulRestartCapabilityTlv.TYPE:
+                log.debug("GracefulRestartCapabilityTlv");
+                tlv = GracefulRestartCapabilityTlv.read(cb, length);
                 break;
             default:
                 log.debug("Warning: Unsupported TLV: " + type);
@@ -319,6 +326,10 @@ public class BgpOpenMsgVer4 implements BgpOpenMsg {
         private boolean isFlowSpecRpdCapabilityTlvSet = false;
         private boolean isVpnv4CapabilityTlvSet = false;
         private boolean isEvpnCapabilityTlvSet = false;
+        private boolean isRtConstrainCapabilityTlvSet = false;
+        private boolean isGracefulRestartCapabilityTlvSet = false;
+        private boolean restartState;
+        private short restartTime;
 
         LinkedList<BgpValueType> capabilityTlv = new LinkedList<>();
 
@@ -383,12 +394,32 @@ public class BgpOpenMsgVer4 implements BgpOpenMsg {
                 this.capabilityTlv.add(tlv);
             }
 
+            if (this.isRtConstrainCapabilityTlvSet) {
+                BgpValueType tlv;
+                tlv = new MultiProtocolExtnCapabilityTlv(Constants.AFI_RT_CONSTRAIN_VALUE,
+                                                         RES, Constants.SAFI_RT_CONSTRAIN_VALUE);
+                this.capabilityTlv.add(tlv);
+            }
+
             if (this.isFlowSpecRpdCapabilityTlvSet) {
                 BgpValueType tlv;
                 tlv = new RpdCapabilityTlv(Constants.RPD_CAPABILITY_SEND_VALUE);
                 this.capabilityTlv.add(tlv);
             }
 
+            if (this.isGracefulRestartCapabilityTlvSet) {
+                // routes of every advertised address family are preserved across a restart
+                List<GracefulRestartCapabilityTlv.AfiSafi> afiSafis = new ArrayList<>();
+                for (BgpValueType tlv : this.capabilityTlv) {
+                    if (tlv instanceof MultiProtocolExtnCapabilityTlv) {
+                        MultiProtocolExtnCapabilityTlv mpTlv = (MultiProtocolExtnCapabilityTlv) tlv;
+                        afiSafis.add(new GracefulRestartCapabilityTlv.AfiSafi(mpTlv.getAfi(), mpTlv.getSafi(), true));
+                    }
+                }
+                this.capabilityTlv.add(new GracefulRestartCapabilityTlv(this.restartState, this.restartTime,
+                                                                        afiSafis));
+            }
+
 
             return new BgpOpenMsgVer4(bgpMsgHeader, PACKET_VERSION, this.asNumber, holdTime, this.bgpId,
                        this.capabilityTlv);
@@ -468,6 +499,21 @@ public class BgpOpenMsgVer4 implements BgpOpenMsg {
             this.isEvpnCapabilityTlvSet = isEvpnCapabilitySet;
             return this;
         }
+
+        @Override
+        public Builder setRtConstrainCapabilityTlv(boolean isRtConstrainCapabilitySet) {
+            this.isRtConstrainCapabilityTlvSet = isRtConstrainCapabilitySet;
+            return this;
+        }
+
+        @Override
+        public Builder setGracefulRestartCapabilityTlv(boolean isGracefulRestartCapabilitySet,
+                                                       boolean restartState, short restartTime) {
+            this.isGracefulRestartCapabilityTlvSet = isGracefulRestartCapabilitySet;
+            this.restartState = restartState;
+            this.restartTime = restartTime;
+            return this;
+        }
     }
 
     @Override
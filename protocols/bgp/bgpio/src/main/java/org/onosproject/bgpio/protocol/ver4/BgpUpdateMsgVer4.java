@@ -131,14 +131,14 @@ public class BgpUpdateMsgVer4 implements BgpUpdateMsg {
             LinkedList<IpPrefix> nlri = new LinkedList<>();
             BgpPathAttributes bgpPathAttributes = new BgpPathAttributes();
             // Reading Withdrawn Routes Length
-            Short withDrwLen = cb.readShort();
+            int withDrwLen = cb.readUnsignedShort();
 
             if (cb.readableBytes() < withDrwLen) {
                 Validation.validateLen(BgpErrorType.UPDATE_MESSAGE_ERROR,
                         BgpErrorType.MALFORMED_ATTRIBUTE_LIST,
                         cb.readableBytes());
             }
-            ChannelBuffer tempCb = cb.readBytes(withDrwLen);
+            ChannelBuffer tempCb = cb.readSlice(withDrwLen);
             if (withDrwLen != 0) {
                 // Parsing WithdrawnRoutes
                 withDrwRoutes = parseWithdrawnRoutes(tempCb);
@@ -150,7 +150,7 @@ public class BgpUpdateMsgVer4 implements BgpUpdateMsg {
             }
 
             // Reading Total Path Attribute Length
-            short totPathAttrLen = cb.readShort();
+            int totPathAttrLen = cb.readUnsignedShort();
             int len = withDrwLen + totPathAttrLen + PACKET_MINIMUM_LENGTH;
             if (len > bgpHeader.getLength()) {
                 throw new BgpParseException(BgpErrorType.UPDATE_MESSAGE_ERROR,
@@ -164,7 +164,7 @@ public class BgpUpdateMsgVer4 implements BgpUpdateMsg {
                                          BgpErrorType.MALFORMED_ATTRIBUTE_LIST,
                                          cb.readableBytes());
                 }
-                tempCb = cb.readBytes(totPathAttrLen);
+                tempCb = cb.readSlice(totPathAttrLen);
                 bgpPathAttributes = BgpPathAttributes.read(tempCb);
             }
             if (cb.readableBytes() > 0) {
@@ -175,8 +175,7 @@ public class BgpUpdateMsgVer4 implements BgpUpdateMsg {
                                                                      withDrwRoutes,
                                                                      bgpPathAttributes,
                                                                      nlri);
-            log.info("=====Receiving update message : {}=====",
-                     bgpUpdateMsgVer4.toString());
+            log.debug("=====Receiving update message : {}=====", bgpUpdateMsgVer4);
             return bgpUpdateMsgVer4;
         }
     }
@@ -270,7 +269,7 @@ public class BgpUpdateMsgVer4 implements BgpUpdateMsg {
             int length = cb.writerIndex() - startIndex;
             cb.setShort(msgLenIndex, (short) length);
             message.bgpHeader.setLength((short) length);
-            log.info("=====Writing update message : {}=====", cb.copy().array());
+            log.debug("=====Writing update message : {}=====", message);
         }
     }
 
@@ -66,7 +66,7 @@ public class BgpExtendedCommunity implements BgpValueType {
      */
     public static BgpExtendedCommunity read(ChannelBuffer cb) throws BgpParseException {
 
-        ChannelBuffer tempCb = cb.copy();
+        ChannelBuffer tempCb = cb.duplicate();
         Validation validation = Validation.parseAttributeHeader(cb);
         List<BgpValueType> bgpExtComTlvs = new LinkedList<>();
 
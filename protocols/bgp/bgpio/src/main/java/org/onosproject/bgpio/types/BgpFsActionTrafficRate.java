@@ -41,6 +41,15 @@ public class BgpFsActionTrafficRate implements BgpValueType {
         this.rate = rate;
     }
 
+    /**
+     * Returns traffic rate in bytes per second, zero to discard the traffic.
+     *
+     * @return traffic rate
+     */
+    public float rate() {
+        return rate;
+    }
+
     @Override
     public short getType() {
         return this.TYPE;
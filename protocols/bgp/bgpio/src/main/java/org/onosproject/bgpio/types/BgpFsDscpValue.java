@@ -40,6 +40,15 @@ public class BgpFsDscpValue implements BgpValueType {
         this.operatorValue = operatorValue;
     }
 
+    /**
+     * Returns flow type operator and value.
+     *
+     * @return flow type value
+     */
+    public List<BgpFsOperatorValue> operatorValue() {
+        return operatorValue;
+    }
+
     @Override
     public short getType() {
         return this.FLOW_SPEC_TYPE;
@@ -44,6 +44,7 @@ public class BgpHeader {
 
     public static final int MARKER_LENGTH = 16;
     public static final short DEFAULT_HEADER_LENGTH = 19;
+    public static final int MAXIMUM_MESSAGE_LENGTH = 4096;
 
     private byte[] marker;
     private byte type;
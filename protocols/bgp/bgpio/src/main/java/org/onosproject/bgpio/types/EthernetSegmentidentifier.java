@@ -16,9 +16,10 @@
 
 package org.onosproject.bgpio.types;
 
-import java.util.Objects;
+import java.util.Arrays;
 import org.jboss.netty.buffer.ChannelBuffer;
 import com.google.common.base.MoreObjects;
+import com.google.common.primitives.UnsignedBytes;
 
 /**
  * Implementation of EthernetSegmentidentifier.
@@ -52,7 +53,9 @@ public class EthernetSegmentidentifier
      * @return object of EthernetSegmentidentifier
      */
     public static EthernetSegmentidentifier read(ChannelBuffer cb) {
-        return new EthernetSegmentidentifier(cb.readBytes(10).array());
+        byte[] esi = new byte[ESI_LENGTH];
+        cb.readBytes(esi);
+        return new EthernetSegmentidentifier(esi);
     }
 
     /**
@@ -78,7 +81,7 @@ public class EthernetSegmentidentifier
 
     @Override
     public int hashCode() {
-        return Objects.hash(ethernetSegmentidentifier);
+        return Arrays.hashCode(ethernetSegmentidentifier);
     };
 
     @Override
@@ -89,9 +92,7 @@ public class EthernetSegmentidentifier
 
         if (obj instanceof EthernetSegmentidentifier) {
             EthernetSegmentidentifier that = (EthernetSegmentidentifier) obj;
-            if (this.ethernetSegmentidentifier == that.ethernetSegmentidentifier) {
-                return true;
-            }
+            return Arrays.equals(this.ethernetSegmentidentifier, that.ethernetSegmentidentifier);
         }
 
         return false;
@@ -105,7 +106,11 @@ public class EthernetSegmentidentifier
     }
 
     @Override
-    public int compareTo(EthernetSegmentidentifier rd) {
-        return 0;
+    public int compareTo(EthernetSegmentidentifier esi) {
+        if (this.equals(esi)) {
+            return 0;
+        }
+        return UnsignedBytes.lexicographicalComparator().compare(this.ethernetSegmentidentifier,
+                                                                 esi.ethernetSegmentidentifier);
     }
 }
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgpio.types;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+
+/**
+ * Provides implementation of graceful restart capability tlv.
+ */
+public class GracefulRestartCapabilityTlv implements BgpValueType {
+
+    /*
+        +--------------------------------------------------+
+        | Restart Flags (4 bits)                           |
+        +--------------------------------------------------+
+        | Restart Time in seconds (12 bits)                |
+        +--------------------------------------------------+
+        | Address Family Identifier (16 bits)              |
+        +--------------------------------------------------+
+        | Subsequent Address Family Identifier (8 bits)    |
+        +--------------------------------------------------+
+        | Flags for Address Family (8 bits)                |
+        +--------------------------------------------------+
+        | ...                                              |
+        +--------------------------------------------------+
+
+        Graceful Restart CAPABILITY TLV format
+        REFERENCE : RFC 4724
+     */
+
+    public static final byte TYPE = 64;
+    public static final int MIN_LENGTH = 2;
+    public static final int AFI_SAFI_LENGTH = 4;
+    public static final short MAX_RESTART_TIME = 0x0FFF;
+
+    private static final int RESTART_STATE_FLAG = 0x8000;
+    private static final byte FORWARDING_STATE_FLAG = (byte) 0x80;
+
+    private final boolean restartState;
+    private final short restartTime;
+    private final List<AfiSafi> afiSafis;
+
+    /**
+     * Constructor to initialize parameters.
+     *
+     * @param restartState true if the speaker has restarted
+     * @param restartTime time in seconds the peer keeps routes after the session is lost
+     * @param afiSafis address families whose routes are preserved across a restart
+     */
+    public GracefulRestartCapabilityTlv(boolean restartState, short restartTime, List<AfiSafi> afiSafis) {
+        this.restartState = restartState;
+        this.restartTime = (short) (restartTime & MAX_RESTART_TIME);
+        this.afiSafis = ImmutableList.copyOf(afiSafis);
+    }
+
+    /**
+     * Returns whether the speaker has restarted.
+     *
+     * @return restart state flag
+     */
+    public boolean restartState() {
+        return restartState;
+    }
+
+    /**
+     * Returns time in seconds the peer keeps routes after the session is lost.
+     *
+     * @return restart time
+     */
+    public short restartTime() {
+        return restartTime;
+    }
+
+    /**
+     * Returns address families whose routes are preserved across a restart.
+     *
+     * @return address families
+     */
+    public List<AfiSafi> afiSafis() {
+        return afiSafis;
+    }
+
+    /**
+     * Returns the address family entry for the given afi and safi.
+     *
+     * @param afi address family identifier
+     * @param safi subsequent address family identifier
+     * @return address family entry, null if the address family is not preserved
+     */
+    public AfiSafi afiSafi(short afi, byte safi) {
+        for (AfiSafi afiSafi : afiSafis) {
+            if (afiSafi.afi() == afi && afiSafi.safi() == safi) {
+                return afiSafi;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public short getType() {
+        return TYPE;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(restartState, restartTime, afiSafis);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof GracefulRestartCapabilityTlv) {
+            GracefulRestartCapabilityTlv other = (GracefulRestartCapabilityTlv) obj;
+            return restartState == other.restartState
+                    && restartTime == other.restartTime
+                    && Objects.equals(afiSafis, other.afiSafis);
+        }
+        return false;
+    }
+
+    @Override
+    public int write(ChannelBuffer cb) {
+        int iLenStartIndex = cb.writerIndex();
+        cb.writeByte(TYPE);
+        cb.writeByte(MIN_LENGTH + AFI_SAFI_LENGTH * afiSafis.size());
+        cb.writeShort((restartState ? RESTART_STATE_FLAG : 0) | restartTime);
+        for (AfiSafi afiSafi : afiSafis) {
+            cb.writeShort(afiSafi.afi());
+            cb.writeByte(afiSafi.safi());
+            cb.writeByte(afiSafi.forwardingState() ? FORWARDING_STATE_FLAG : 0);
+        }
+        return cb.writerIndex() - iLenStartIndex;
+    }
+
+    /**
+     * Reads the channel buffer and returns object of GracefulRestartCapabilityTlv.
+     *
+     * @param cb channel buffer positioned after the capability header
+     * @param length capability length
+     * @return object of GracefulRestartCapabilityTlv
+     * @throws BgpParseException if the length is invalid
+     */
+    public static GracefulRestartCapabilityTlv read(ChannelBuffer cb, int length) throws BgpParseException {
+        if (length < MIN_LENGTH || (length - MIN_LENGTH) % AFI_SAFI_LENGTH != 0 || length > cb.readableBytes()) {
+            throw new BgpParseException("Invalid length received for GracefulRestartCapabilityTlv.");
+        }
+        int flagsAndTime = cb.readUnsignedShort();
+        List<AfiSafi> afiSafis = new ArrayList<>();
+        for (int i = 0; i < (length - MIN_LENGTH) / AFI_SAFI_LENGTH; i++) {
+            short afi = cb.readShort();
+            byte safi = cb.readByte();
+            byte flags = cb.readByte();
+            afiSafis.add(new AfiSafi(afi, safi, (flags & FORWARDING_STATE_FLAG) != 0));
+        }
+        return new GracefulRestartCapabilityTlv((flagsAndTime & RESTART_STATE_FLAG) != 0,
+                                                (short) (flagsAndTime & MAX_RESTART_TIME), afiSafis);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("Type", TYPE)
+                .add("restartState", restartState)
+                .add("restartTime", restartTime)
+                .add("afiSafis", afiSafis).toString();
+    }
+
+    @Override
+    public int compareTo(Object o) {
+        if (this.equals(o)) {
+            return 0;
+        }
+        GracefulRestartCapabilityTlv other = (GracefulRestartCapabilityTlv) o;
+        return ComparisonChain.start()
+                .compareFalseFirst(restartState, other.restartState)
+                .compare(restartTime, other.restartTime)
+                .compare(afiSafis, other.afiSafis, Ordering.<AfiSafi>natural().lexicographical())
+                .result();
+    }
+
+    /**
+     * Address family preserved across a restart.
+     */
+    public static final class AfiSafi implements Comparable<AfiSafi> {
+        private final short afi;
+        private final byte safi;
+        private final boolean forwardingState;
+
+        /**
+         * Constructor to initialize parameters.
+         *
+         * @param afi address family identifier
+         * @param safi subsequent address family identifier
+         * @param forwardingState true if forwarding state was preserved across the restart
+         */
+        public AfiSafi(short afi, byte safi, boolean forwardingState) {
+            this.afi = afi;
+            this.safi = safi;
+            this.forwardingState = forwardingState;
+        }
+
+        /**
+         * Returns address family identifier.
+         *
+         * @return afi
+         */
+        public short afi() {
+            return afi;
+        }
+
+        /**
+         * Returns subsequent address family identifier.
+         *
+         * @return safi
+         */
+        public byte safi() {
+            return safi;
+        }
+
+        /**
+         * Returns whether forwarding state was preserved across the restart.
+         *
+         * @return forwarding state flag
+         */
+        public boolean forwardingState() {
+            return forwardingState;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(afi, safi, forwardingState);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof AfiSafi) {
+                AfiSafi other = (AfiSafi) obj;
+                return afi == other.afi && safi == other.safi && forwardingState == other.forwardingState;
+            }
+            return false;
+        }
+
+        @Override
+        public int compareTo(AfiSafi o) {
+            return ComparisonChain.start()
+                    .compare(Short.toUnsignedInt(afi), Short.toUnsignedInt(o.afi))
+                    .compare(Byte.toUnsignedInt(safi), Byte.toUnsignedInt(o.safi))
+                    .compareFalseFirst(forwardingState, o.forwardingState)
+                    .result();
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass())
+                    .add("afi", afi)
+                    .add("safi", safi)
+                    .add("forwardingState", forwardingState).toString();
+        }
+    }
+}
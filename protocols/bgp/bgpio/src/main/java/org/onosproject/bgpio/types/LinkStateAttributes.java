@@ -17,6 +17,8 @@ package org.onosproject.bgpio.types;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
+
 
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.onosproject.bgpio.exceptions.BgpParseException;
@@ -139,7 +141,7 @@ public class LinkStateAttributes implements BgpValueType {
     public static LinkStateAttributes read(ChannelBuffer cb)
             throws BgpParseException {
 
-        ChannelBuffer tempBuf = cb.copy();
+        ChannelBuffer tempBuf = cb.duplicate();
         Validation parseFlags = Validation.parseAttributeHeader(cb);
         int len = parseFlags.isShort() ? parseFlags.getLength() + TYPE_AND_LEN
                                       : parseFlags.getLength() + 3;
@@ -161,7 +163,7 @@ public class LinkStateAttributes implements BgpValueType {
         BgpValueType bgpLSAttrib = null;
         LinkedList<BgpValueType> linkStateAttribList;
         linkStateAttribList = new LinkedList<BgpValueType>();
-        ChannelBuffer tempCb = cb.readBytes(parseFlags.getLength());
+        ChannelBuffer tempCb = cb.readSlice(parseFlags.getLength());
         while (tempCb.readableBytes() > 0) {
             short tlvCodePoint = tempCb.readShort();
             switch (tlvCodePoint) {
@@ -300,6 +302,24 @@ public class LinkStateAttributes implements BgpValueType {
         return 0;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(isLinkStateAttribute, linkStateAttribList);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof LinkStateAttributes) {
+            LinkStateAttributes other = (LinkStateAttributes) obj;
+            return isLinkStateAttribute == other.isLinkStateAttribute
+                    && Objects.equals(linkStateAttribList, other.linkStateAttribList);
+        }
+        return false;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(getClass()).omitNullValues()
@@ -61,7 +61,7 @@ public class Med implements BgpValueType {
      */
     public static Med read(ChannelBuffer cb) throws BgpParseException {
         int med;
-        ChannelBuffer tempCb = cb.copy();
+        ChannelBuffer tempCb = cb.duplicate();
         Validation parseFlags = Validation.parseAttributeHeader(cb);
 
         if ((parseFlags.getLength() > MED_MAX_LEN) || cb.readableBytes() < parseFlags.getLength()) {
@@ -26,9 +26,9 @@ import org.onosproject.bgpio.exceptions.BgpParseException;
 import org.onosproject.bgpio.protocol.BgpEvpnNlri;
 import org.onosproject.bgpio.protocol.BgpLSNlri;
 import org.onosproject.bgpio.protocol.evpn.BgpEvpnNlriVer4;
-import org.onosproject.bgpio.protocol.evpn.BgpMacIpAdvNlriVer4;
 import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecNlri;
 import org.onosproject.bgpio.protocol.linkstate.BgpNodeLSNlriVer4;
+import org.onosproject.bgpio.protocol.rtc.RouteTargetMembershipNlri;
 import org.onosproject.bgpio.protocol.linkstate.BgpLinkLsNlriVer4;
 import org.onosproject.bgpio.protocol.linkstate.BgpPrefixIPv4LSNlriVer4;
 import org.onosproject.bgpio.util.Constants;
@@ -55,6 +55,7 @@ public class MpReachNlri implements BgpValueType {
     private final Ip4Address ipNextHop;
     private BgpFlowSpecNlri bgpFlowSpecNlri;
     private List<BgpEvpnNlri> evpnNlri;
+    private List<RouteTargetMembershipNlri> rtMembership;
 
     /**
      * Constructor to initialize parameters.
@@ -94,6 +95,24 @@ public class MpReachNlri implements BgpValueType {
         this.safi = safi;
     }
 
+    /**
+     * Constructor to initialize route target membership parameters.
+     *
+     * @param afi address family identifier
+     * @param safi subsequent address family identifier
+     * @param ipNextHop nexthop IpAddress
+     * @param rtMembership route target membership NLRIs
+     */
+    public MpReachNlri(short afi, byte safi, Ip4Address ipNextHop, List<RouteTargetMembershipNlri> rtMembership) {
+        this.bgpLSNlri = null;
+        this.length = 0;
+        this.ipNextHop = ipNextHop;
+        this.isMpReachNlri = true;
+        this.rtMembership = rtMembership;
+        this.afi = afi;
+        this.safi = safi;
+    }
+
     /**
      * Returns whether MpReachNlri is present.
      *
@@ -139,6 +158,15 @@ public class MpReachNlri implements BgpValueType {
         return this.evpnNlri;
     }
 
+    /**
+     * Returns route target membership NLRIs.
+     *
+     * @return route target membership NLRIs
+     */
+    public List<RouteTargetMembershipNlri> rtMembership() {
+        return this.rtMembership;
+    }
+
     /**
      * Returns afi.
      *
@@ -181,6 +209,11 @@ public class MpReachNlri implements BgpValueType {
             return NlriDetailsType.EVPN;
         }
 
+        if ((afi == Constants.AFI_RT_CONSTRAIN_VALUE)
+                && (safi == Constants.SAFI_RT_CONSTRAIN_VALUE)) {
+            return NlriDetailsType.RT_CONSTRAIN;
+        }
+
         return null;
     }
 
@@ -192,7 +225,7 @@ public class MpReachNlri implements BgpValueType {
      * @throws BgpParseException while parsing MpReachNlri
      */
     public static MpReachNlri read(ChannelBuffer cb) throws BgpParseException {
-        ChannelBuffer tempBuf = cb.copy();
+        ChannelBuffer tempBuf = cb.duplicate();
         Validation parseFlags = Validation.parseAttributeHeader(cb);
         int len = parseFlags.isShort() ? parseFlags.getLength() + Constants.TYPE_AND_LEN_AS_SHORT :
                   parseFlags.getLength() + Constants.TYPE_AND_LEN_AS_BYTE;
@@ -208,7 +241,7 @@ public class MpReachNlri implements BgpValueType {
 
         BgpLSNlri bgpLSNlri = null;
         List<BgpLSNlri> mpReachNlri = new LinkedList<>();
-        ChannelBuffer tempCb = cb.readBytes(parseFlags.getLength());
+        ChannelBuffer tempCb = cb.readSlice(parseFlags.getLength());
         short afi = 0;
         byte safi = 0;
         Ip4Address ipNextHop = null;
@@ -234,7 +267,7 @@ public class MpReachNlri implements BgpValueType {
                         Validation.validateLen(BgpErrorType.UPDATE_MESSAGE_ERROR,
                                         BgpErrorType.ATTRIBUTE_LENGTH_ERROR, totNlriLen);
                     }
-                    tempBuf = tempCb.readBytes(totNlriLen);
+                    tempBuf = tempCb.readSlice(totNlriLen);
                     switch (nlriType) {
                     case BgpNodeLSNlriVer4.NODE_NLRITYPE:
                         bgpLSNlri = BgpNodeLSNlriVer4.read(tempBuf, afi, safi);
@@ -288,7 +321,7 @@ public class MpReachNlri implements BgpValueType {
                             Validation.validateLen(BgpErrorType.UPDATE_MESSAGE_ERROR,
                                     BgpErrorType.ATTRIBUTE_LENGTH_ERROR, totNlriLen);
                         }
-                        tempBuf = tempCb.readBytes(totNlriLen);
+                        tempBuf = tempCb.readSlice(totNlriLen);
                         while (tempBuf.readableBytes() > 0) {
                             short type = tempBuf.readByte();
                             switch (type) {
@@ -355,10 +388,22 @@ public class MpReachNlri implements BgpValueType {
                 while (tempCb.readableBytes() > 0) {
                     BgpEvpnNlri eVpnComponent = BgpEvpnNlriVer4.read(tempCb);
                     eVpnComponents.add(eVpnComponent);
-                    log.info("=====evpn Component is {} ======", eVpnComponent);
+                    log.debug("=====evpn Component is {} ======", eVpnComponent);
                 }
 
                 return new MpReachNlri(eVpnComponents, afi, safi, ipNextHop);
+            } else if ((afi == Constants.AFI_RT_CONSTRAIN_VALUE)
+                    && (safi == Constants.SAFI_RT_CONSTRAIN_VALUE)) {
+                List<RouteTargetMembershipNlri> rtMembership = new LinkedList<>();
+
+                byte nextHopLen = tempCb.readByte();
+                ipNextHop = Ip4Address.valueOf(Validation.toInetAddress(nextHopLen, tempCb));
+                byte reserved = tempCb.readByte();
+                while (tempCb.readableBytes() > 0) {
+                    rtMembership.add(RouteTargetMembershipNlri.read(tempCb));
+                }
+
+                return new MpReachNlri(afi, safi, ipNextHop, rtMembership);
             } else {
                 throw new BgpParseException("Not Supporting afi " + afi
                         + "safi " + safi);
@@ -463,31 +508,31 @@ public class MpReachNlri implements BgpValueType {
             cb.writeByte(0);
 
             for (BgpEvpnNlri element : evpnNlri) {
-                short routeType = element.getType();
-                switch (routeType) {
-                case Constants.BGP_EVPN_MAC_IP_ADVERTISEMENT:
-                    cb.writeByte(element.getType());
-                    int iSpecStartIndex = cb.writerIndex();
-                    cb.writeByte(0);
-                    BgpMacIpAdvNlriVer4 macIpAdvNlri = (BgpMacIpAdvNlriVer4) element
-                            .getRouteTypeSpec();
-                    macIpAdvNlri.write(cb);
-                    cb.setByte(iSpecStartIndex, (byte) (cb.writerIndex()
-                            - iSpecStartIndex - 1));
-                    ChannelBuffer  temcb = cb.copy();
-                    break;
-                case Constants.BGP_EVPN_ETHERNET_AUTO_DISCOVERY:
-                    break;
-                case Constants.BGP_EVPN_INCLUSIVE_MULTICASE_ETHERNET:
-                    break;
-                case Constants.BGP_EVPN_ETHERNET_SEGMENT:
-                    break;
-                default:
-                    break;
-                }
+                element.write(cb);
             }
             int evpnNlriLen = cb.writerIndex() - mpReachDataIndx;
             cb.setShort(mpReachDataIndx, (short) (evpnNlriLen - 2));
+        } else if ((afi == Constants.AFI_RT_CONSTRAIN_VALUE)
+                && (safi == Constants.SAFI_RT_CONSTRAIN_VALUE)) {
+
+            cb.writeByte(FLAGS);
+            cb.writeByte(MPREACHNLRI_TYPE);
+
+            int mpReachDataIndx = cb.writerIndex();
+            cb.writeShort(0);
+            cb.writeShort(afi);
+            cb.writeByte(safi);
+            // ip address length
+            cb.writeByte(0x04);
+            cb.writeInt(ipNextHop.toInt());
+            //sub network points of attachment
+            cb.writeByte(0);
+
+            for (RouteTargetMembershipNlri element : rtMembership) {
+                element.write(cb);
+            }
+            int rtcNlriLen = cb.writerIndex() - mpReachDataIndx;
+            cb.setShort(mpReachDataIndx, (short) (rtcNlriLen - 2));
         }
 
         return cb.writerIndex() - iLenStartIndex;
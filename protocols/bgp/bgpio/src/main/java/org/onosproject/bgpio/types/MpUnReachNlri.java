@@ -25,11 +25,11 @@ import org.onosproject.bgpio.exceptions.BgpParseException;
 import org.onosproject.bgpio.protocol.BgpEvpnNlri;
 import org.onosproject.bgpio.protocol.BgpLSNlri;
 import org.onosproject.bgpio.protocol.evpn.BgpEvpnNlriVer4;
-import org.onosproject.bgpio.protocol.evpn.BgpMacIpAdvNlriVer4;
 import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecNlri;
 import org.onosproject.bgpio.protocol.linkstate.BgpNodeLSNlriVer4;
 import org.onosproject.bgpio.protocol.linkstate.BgpPrefixIPv4LSNlriVer4;
 import org.onosproject.bgpio.protocol.linkstate.BgpLinkLsNlriVer4;
+import org.onosproject.bgpio.protocol.rtc.RouteTargetMembershipNlri;
 import org.onosproject.bgpio.util.Constants;
 import org.onosproject.bgpio.util.Validation;
 import org.slf4j.Logger;
@@ -46,6 +46,7 @@ public class MpUnReachNlri implements BgpValueType {
     public static final byte MPUNREACHNLRI_TYPE = 15;
     public static final byte LINK_NLRITYPE = 2;
     public static final byte FLAGS = (byte) 0x90;
+    public static final short END_OF_RIB_LENGTH = 3;
     private boolean isMpUnReachNlri = false;
     private final short afi;
     private final byte safi;
@@ -53,6 +54,7 @@ public class MpUnReachNlri implements BgpValueType {
     private final int length;
     private BgpFlowSpecNlri bgpFlowSpecNlri;
     private List<BgpEvpnNlri> evpnNlri;
+    private List<RouteTargetMembershipNlri> rtMembership;
 
     /**
      * Constructor to initialize parameters.
@@ -87,6 +89,51 @@ public class MpUnReachNlri implements BgpValueType {
         this.safi = safi;
     }
 
+    /**
+     * Constructor to initialize route target membership parameters.
+     *
+     * @param afi address family identifier
+     * @param safi subsequent address family identifier
+     * @param rtMembership withdrawn route target membership NLRIs
+     */
+    public MpUnReachNlri(short afi, byte safi, List<RouteTargetMembershipNlri> rtMembership) {
+        this.isMpUnReachNlri = true;
+        this.length = 0;
+        this.rtMembership = rtMembership;
+        this.afi = afi;
+        this.safi = safi;
+    }
+
+    /**
+     * Returns End-of-RIB marker of an address family, an MP_UNREACH_NLRI without withdrawn routes
+     * as per RFC 4724.
+     *
+     * @param afi address family identifier
+     * @param safi subsequent address family identifier
+     * @return End-of-RIB marker
+     */
+    public static MpUnReachNlri endOfRib(short afi, byte safi) {
+        return new MpUnReachNlri(new LinkedList<BgpLSNlri>(), afi, safi, 0);
+    }
+
+    /**
+     * Returns whether the attribute is an End-of-RIB marker, withdrawing no route.
+     *
+     * @return true if no route is withdrawn
+     */
+    public boolean isEndOfRib() {
+        NlriDetailsType type = getNlriDetailsType();
+        if (type == NlriDetailsType.EVPN && evpnNlri != null) {
+            return evpnNlri.isEmpty();
+        }
+        if (type == NlriDetailsType.RT_CONSTRAIN && rtMembership != null) {
+            return rtMembership.isEmpty();
+        }
+        if (type == NlriDetailsType.FLOW_SPEIC && bgpFlowSpecNlri != null) {
+            return bgpFlowSpecNlri.flowSpecComponents() == null || bgpFlowSpecNlri.flowSpecComponents().isEmpty();
+        }
+        return type != null && (bgpLSNlri == null || bgpLSNlri.isEmpty());
+    }
 
     /**
      * Returns list of Link State Nlri.
@@ -115,6 +162,15 @@ public class MpUnReachNlri implements BgpValueType {
         return this.evpnNlri;
     }
 
+    /**
+     * Returns withdrawn route target membership NLRIs.
+     *
+     * @return route target membership NLRIs
+     */
+    public List<RouteTargetMembershipNlri> rtMembership() {
+        return this.rtMembership;
+    }
+
     /**
      * Returns afi.
      *
@@ -157,6 +213,11 @@ public class MpUnReachNlri implements BgpValueType {
             return NlriDetailsType.EVPN;
         }
 
+        if ((afi == Constants.AFI_RT_CONSTRAIN_VALUE)
+                && (safi == Constants.SAFI_RT_CONSTRAIN_VALUE)) {
+            return NlriDetailsType.RT_CONSTRAIN;
+        }
+
         return null;
     }
 
@@ -168,7 +229,7 @@ public class MpUnReachNlri implements BgpValueType {
      * @throws BgpParseException while parsing MpUnReachNlri
      */
     public static MpUnReachNlri read(ChannelBuffer cb) throws BgpParseException {
-        ChannelBuffer tempBuf = cb.copy();
+        ChannelBuffer tempBuf = cb.duplicate();
         Validation parseFlags = Validation.parseAttributeHeader(cb);
         int len = parseFlags.isShort() ? parseFlags.getLength() + Constants.TYPE_AND_LEN_AS_SHORT
                                       : parseFlags.getLength() + Constants.TYPE_AND_LEN_AS_BYTE;
@@ -189,7 +250,7 @@ public class MpUnReachNlri implements BgpValueType {
         BgpLSNlri bgpLSNlri = null;
         short afi = 0;
         byte safi = 0;
-        ChannelBuffer tempCb = cb.readBytes(parseFlags.getLength());
+        ChannelBuffer tempCb = cb.readSlice(parseFlags.getLength());
         while (tempCb.readableBytes() > 0) {
             afi = tempCb.readShort();
             safi = tempCb.readByte();
@@ -205,7 +266,7 @@ public class MpUnReachNlri implements BgpValueType {
                                 BgpErrorType.UPDATE_MESSAGE_ERROR,
                                 BgpErrorType.ATTRIBUTE_LENGTH_ERROR, totNlriLen);
                     }
-                    tempBuf = tempCb.readBytes(totNlriLen);
+                    tempBuf = tempCb.readSlice(totNlriLen);
                     switch (nlriType) {
                     case BgpNodeLSNlriVer4.NODE_NLRITYPE:
                         bgpLSNlri = BgpNodeLSNlriVer4.read(tempBuf, afi, safi);
@@ -250,7 +311,7 @@ public class MpUnReachNlri implements BgpValueType {
                             Validation.validateLen(BgpErrorType.UPDATE_MESSAGE_ERROR,
                                     BgpErrorType.ATTRIBUTE_LENGTH_ERROR, totNlriLen);
                         }
-                        tempBuf = tempCb.readBytes(totNlriLen);
+                        tempBuf = tempCb.readSlice(totNlriLen);
                         while (tempBuf.readableBytes() > 0) {
                             short type = tempBuf.readByte();
                             switch (type) {
@@ -311,6 +372,15 @@ public class MpUnReachNlri implements BgpValueType {
                 }
 
                 return new MpUnReachNlri(eVpnComponents, afi, safi);
+            } else if ((afi == Constants.AFI_RT_CONSTRAIN_VALUE)
+                    && (safi == Constants.SAFI_RT_CONSTRAIN_VALUE)) {
+                List<RouteTargetMembershipNlri> rtMembership = new LinkedList<>();
+
+                while (tempCb.readableBytes() > 0) {
+                    rtMembership.add(RouteTargetMembershipNlri.read(tempCb));
+                }
+
+                return new MpUnReachNlri(afi, safi, rtMembership);
             } else {
                 //TODO: check with the values got from capability
                 throw new BgpParseException("Not Supporting afi " + afi + "safi " + safi);
@@ -373,6 +443,14 @@ public class MpUnReachNlri implements BgpValueType {
     @Override
     public int write(ChannelBuffer cb) {
         int iLenStartIndex = cb.writerIndex();
+        if (isEndOfRib()) {
+            cb.writeByte(FLAGS);
+            cb.writeByte(MPUNREACHNLRI_TYPE);
+            cb.writeShort(END_OF_RIB_LENGTH);
+            cb.writeShort(afi);
+            cb.writeByte(safi);
+            return cb.writerIndex() - iLenStartIndex;
+        }
         if ((afi == Constants.AFI_FLOWSPEC_VALUE) && ((safi == Constants.SAFI_FLOWSPEC_VALUE) ||
             (safi == Constants.VPN_SAFI_FLOWSPEC_VALUE))) {
             List<BgpValueType> flowSpec = bgpFlowSpecNlri.flowSpecComponents();
@@ -421,31 +499,26 @@ public class MpUnReachNlri implements BgpValueType {
             cb.writeByte(safi);
 
             for (BgpEvpnNlri element : evpnNlri) {
-                short routeType = element.getType();
-                switch (routeType) {
-                case Constants.BGP_EVPN_MAC_IP_ADVERTISEMENT:
-                    cb.writeByte(element.getType());
-                    int iSpecStartIndex = cb.writerIndex();
-                    cb.writeByte(0);
-                    BgpMacIpAdvNlriVer4 macIpAdvNlri = (BgpMacIpAdvNlriVer4) element
-                            .getRouteTypeSpec();
-                    macIpAdvNlri.write(cb);
-                    cb.setByte(iSpecStartIndex, (short) (cb.writerIndex()
-                            - iSpecStartIndex + 1));
-                    break;
-                case Constants.BGP_EVPN_ETHERNET_AUTO_DISCOVERY:
-                    break;
-                case Constants.BGP_EVPN_INCLUSIVE_MULTICASE_ETHERNET:
-                    break;
-                case Constants.BGP_EVPN_ETHERNET_SEGMENT:
-                    break;
-                default:
-                    break;
-                }
+                element.write(cb);
             }
-
             int evpnNlriLen = cb.writerIndex() - mpReachDataIndx;
             cb.setShort(mpReachDataIndx, (short) (evpnNlriLen - 2));
+        } else if ((afi == Constants.AFI_RT_CONSTRAIN_VALUE)
+                && (safi == Constants.SAFI_RT_CONSTRAIN_VALUE)) {
+
+            cb.writeByte(FLAGS);
+            cb.writeByte(MPUNREACHNLRI_TYPE);
+
+            int mpReachDataIndx = cb.writerIndex();
+            cb.writeShort(0);
+            cb.writeShort(afi);
+            cb.writeByte(safi);
+
+            for (RouteTargetMembershipNlri element : rtMembership) {
+                element.write(cb);
+            }
+            int rtcNlriLen = cb.writerIndex() - mpReachDataIndx;
+            cb.setShort(mpReachDataIndx, (short) (rtcNlriLen - 2));
         }
         return cb.writerIndex() - iLenStartIndex;
     }
@@ -32,7 +32,9 @@ public class MplsLabel implements Comparable<MplsLabel> {
      * @return object of mpls label
      */
     public static MplsLabel read(ChannelBuffer cb) {
-        return new MplsLabel(cb.readBytes(3).array());
+        byte[] label = new byte[3];
+        cb.readBytes(label);
+        return new MplsLabel(label);
     }
 
     /**
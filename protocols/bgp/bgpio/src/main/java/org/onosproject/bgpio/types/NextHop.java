@@ -72,7 +72,7 @@ public class NextHop implements BgpValueType {
      */
     public static NextHop read(ChannelBuffer cb) throws BgpParseException {
         Ip4Address nextHop;
-        ChannelBuffer tempCb = cb.copy();
+        ChannelBuffer tempCb = cb.duplicate();
         Validation parseFlags = Validation.parseAttributeHeader(cb);
 
         if (cb.readableBytes() < parseFlags.getLength()) {
@@ -13,6 +13,10 @@ public enum NlriDetailsType {
     /**
      * Signifies Evpn Nlri.
      */
-    EVPN;
+    EVPN,
+    /**
+     * Signifies route target membership Nlri.
+     */
+    RT_CONSTRAIN;
 
 }
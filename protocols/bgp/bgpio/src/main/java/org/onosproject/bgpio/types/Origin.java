@@ -102,7 +102,7 @@ public class Origin implements BgpValueType {
      * @throws BgpParseException while parsing Origin path attribute
      */
     public static Origin read(ChannelBuffer cb) throws BgpParseException {
-        ChannelBuffer tempCb = cb.copy();
+        ChannelBuffer tempCb = cb.duplicate();
         Validation parseFlags = Validation.parseAttributeHeader(cb);
 
         int len = parseFlags.isShort() ? parseFlags.getLength() + Constants.TYPE_AND_LEN_AS_SHORT : parseFlags
@@ -17,8 +17,9 @@
 package org.onosproject.bgpio.types;
 
 import org.jboss.netty.buffer.ChannelBuffer;
+import java.util.Arrays;
+
 import com.google.common.base.MoreObjects;
-import com.google.common.base.Objects;
 
 /**
  * Implementation of RouteTarget.
@@ -105,7 +106,7 @@ public class RouteTarget implements BgpValueType {
         if (obj instanceof RouteTarget) {
             RouteTarget that = (RouteTarget) obj;
             if (this.type == that.type
-                    && this.routeTarget == that.routeTarget) {
+                    && Arrays.equals(this.routeTarget, that.routeTarget)) {
                 return true;
             }
         }
@@ -114,7 +115,7 @@ public class RouteTarget implements BgpValueType {
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(routeTarget);
+        return 31 * type + Arrays.hashCode(routeTarget);
     }
 
     @Override
@@ -43,6 +43,8 @@ public final class Constants {
     public static final byte SAFI_VPNV4_VALUE = (byte) 128;
     public static final short AFI_EVPN_VALUE = 25;
     public static final byte SAFI_EVPN_VALUE = (byte) 70;
+    public static final short AFI_RT_CONSTRAIN_VALUE = 1;
+    public static final byte SAFI_RT_CONSTRAIN_VALUE = (byte) 132;
 
     /* TODO: The Capability Code
    for this capability is to be specified by the IANA.*/
@@ -94,6 +96,7 @@ public final class Constants {
     public static final short BGP_EVPN_MAC_IP_ADVERTISEMENT = (short) 0x02;
     public static final short BGP_EVPN_INCLUSIVE_MULTICASE_ETHERNET = (short) 0x03;
     public static final short BGP_EVPN_ETHERNET_SEGMENT = (short) 0x04;
+    public static final short BGP_EVPN_IP_PREFIX = (short) 0x05;
 
     // for encapsulation in extended community
     public static final short BGP_ENCAP = (short) 0x030c;
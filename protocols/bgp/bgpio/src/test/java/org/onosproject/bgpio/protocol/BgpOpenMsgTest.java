@@ -20,6 +20,8 @@ import org.jboss.netty.buffer.ChannelBuffers;
 import org.junit.Test;
 import org.onosproject.bgpio.exceptions.BgpParseException;
 import org.onosproject.bgpio.types.BgpHeader;
+import org.onosproject.bgpio.types.GracefulRestartCapabilityTlv;
+import org.onosproject.bgpio.util.Constants;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
@@ -371,4 +373,62 @@ public class BgpOpenMsgTest {
 
         assertThat(message, instanceOf(BgpOpenMsg.class));
     }
+
+    /**
+     * This test case checks open message with graceful restart capability.
+     */
+    @Test
+    public void openMessageTest11() throws BgpParseException {
+
+        // OPEN Message with EVPN and graceful restart capabilities, restart state set, restart time 120.
+        byte[] openMsg = new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+                                     (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+                                     (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+                                     0x00, 0x2d, 0x01, 0x04, 0x00, (byte) 0xc8, 0x00, (byte) 0xb4, (byte) 0xc0,
+                                     (byte) 0xa8, 0x07, 0x35, 0x10, 0x02, 0x0e, 0x01, 0x04, 0x00, 0x19, 0x00, 0x46,
+                                     0x40, 0x06, (byte) 0x80, 0x78, 0x00, 0x19, 0x46, (byte) 0x80};
+
+        byte[] testOpenMsg;
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+        buffer.writeBytes(openMsg);
+
+        BgpMessageReader<BgpMessage> reader = BgpFactories.getGenericReader();
+        BgpMessage message;
+        BgpHeader bgpHeader = new BgpHeader();
+
+        message = reader.readFrom(buffer, bgpHeader);
+
+        assertThat(message, instanceOf(BgpOpenMsg.class));
+        GracefulRestartCapabilityTlv gr = (GracefulRestartCapabilityTlv) ((BgpOpenMsg) message)
+                .getCapabilityTlv().getLast();
+        assertThat(gr.restartState(), is(true));
+        assertThat(gr.restartTime(), is((short) 120));
+        assertThat(gr.afiSafi(Constants.AFI_EVPN_VALUE, Constants.SAFI_EVPN_VALUE).forwardingState(), is(true));
+
+        ChannelBuffer buf = ChannelBuffers.dynamicBuffer();
+        message.writeTo(buf);
+
+        int readLen = buf.writerIndex();
+        testOpenMsg = new byte[readLen];
+        buf.readBytes(testOpenMsg, 0, readLen);
+
+        assertThat(testOpenMsg, is(openMsg));
+    }
+
+    /**
+     * This test case checks graceful restart capability lists the advertised address families.
+     */
+    @Test
+    public void openMessageTest12() throws BgpParseException {
+        BgpOpenMsg message = BgpFactories.getFactory(BgpVersion.BGP_4).openMessageBuilder()
+                .setAsNumber((short) 200).setBgpId(0xc0a80735)
+                .setEvpnCapabilityTlv(true)
+                .setGracefulRestartCapabilityTlv(true, false, (short) 90).build();
+
+        GracefulRestartCapabilityTlv gr = (GracefulRestartCapabilityTlv) message.getCapabilityTlv().getLast();
+        assertThat(gr.restartState(), is(false));
+        assertThat(gr.restartTime(), is((short) 90));
+        assertThat(gr.afiSafis().size(), is(2));
+        assertThat(gr.afiSafi(Constants.AFI_EVPN_VALUE, Constants.SAFI_EVPN_VALUE).forwardingState(), is(true));
+    }
 }
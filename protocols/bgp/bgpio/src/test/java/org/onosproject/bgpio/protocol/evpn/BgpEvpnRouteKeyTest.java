@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgpio.protocol.evpn;
+
+import org.junit.Test;
+import org.onlab.packet.MacAddress;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+/**
+ * Test cases for the compact EVPN route key.
+ */
+public class BgpEvpnRouteKeyTest {
+
+    private static final RouteDistinguisher RD = new RouteDistinguisher(0x0001000a00000064L);
+    private static final EthernetSegmentidentifier ESI = new EthernetSegmentidentifier(
+            new byte[] {0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09 });
+    private static final MacAddress MAC = MacAddress.valueOf("00:11:22:33:44:55");
+
+    /**
+     * All fields are decoded back from the compact form.
+     */
+    @Test
+    public void fieldsTest() throws UnknownHostException {
+        InetAddress ip = InetAddress.getByName("2001:db8::1");
+        BgpEvpnRouteKey key = new BgpEvpnRouteKey(RD, (byte) 2, ESI, 300, MAC, ip);
+
+        assertThat(key.routeDistinguisher(), is(RD));
+        assertThat(key.routeType(), is((byte) 2));
+        assertThat(key.ethernetSegmentidentifier(), is(ESI));
+        assertThat(key.ethernetTagId(), is(300));
+        assertThat(key.macAddress(), is(MAC));
+        assertThat(key.ipAddress(), is(ip));
+        assertThat(key.encodedLength(), is(2 + 8 + 10 + 4 + 6 + 16));
+    }
+
+    /**
+     * Fields not part of the route take no space and decode as null.
+     */
+    @Test
+    public void absentFieldsTest() {
+        BgpEvpnRouteKey key = new BgpEvpnRouteKey(RD, (byte) 2, null, -1, MAC, null);
+
+        assertThat(key.ethernetSegmentidentifier(), nullValue());
+        assertThat(key.ipAddress(), nullValue());
+        assertThat(key.ethernetTagId(), is(-1));
+        assertThat(key.macAddress(), is(MAC));
+        assertThat(key.encodedLength(), is(2 + 8 + 4 + 6));
+    }
+
+    /**
+     * Keys with equal fields are equal and keys are ordered by their encoding.
+     */
+    @Test
+    public void equalityAndOrderTest() throws UnknownHostException {
+        InetAddress ip = InetAddress.getByName("10.0.0.1");
+        BgpEvpnRouteKey key = new BgpEvpnRouteKey(RD, (byte) 2, ESI, 0, MAC, ip);
+        BgpEvpnRouteKey same = new BgpEvpnRouteKey(new RouteDistinguisher(RD.getRouteDistinguisher()), (byte) 2,
+                                                   ESI, 0, MacAddress.valueOf("00:11:22:33:44:55"),
+                                                   InetAddress.getByName("10.0.0.1"));
+        BgpEvpnRouteKey higherMac = new BgpEvpnRouteKey(RD, (byte) 2, ESI, 0,
+                                                        MacAddress.valueOf("80:11:22:33:44:55"), ip);
+
+        assertThat(key.equals(same), is(true));
+        assertThat(key.hashCode(), is(same.hashCode()));
+        assertThat(key.compareTo(same), is(0));
+        assertThat(key.equals(higherMac), is(false));
+        assertThat(key.compareTo(higherMac), lessThan(0));
+        assertThat(higherMac.compareTo(key), greaterThan(0));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgpio.protocol.evpn;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Test;
+import org.onlab.packet.Ip4Address;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.MpReachNlri;
+import org.onosproject.bgpio.types.MplsLabel;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+import org.onosproject.bgpio.util.Constants;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+/**
+ * Test cases for the codecs of EVPN route types.
+ */
+public class BgpEvpnRouteTypesTest {
+
+    private static final RouteDistinguisher RD = new RouteDistinguisher(0x0001000a00000064L);
+    private static final EthernetSegmentidentifier ESI = new EthernetSegmentidentifier(
+            new byte[] {0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09 });
+    private static final MplsLabel LABEL = new MplsLabel(new byte[] {0x00, 0x01, 0x01 });
+
+    private static BgpEvpnNlriVer4 roundTrip(BgpEvpnNlriVer4 nlri, int length) throws BgpParseException {
+        ChannelBuffer cb = ChannelBuffers.dynamicBuffer();
+        assertThat(nlri.write(cb), is(length + BgpEvpnNlriVer4.TYPE_AND_LEN));
+        BgpEvpnNlriVer4 read = BgpEvpnNlriVer4.read(cb);
+        assertThat(cb.readableBytes(), is(0));
+        assertThat(read.getType(), is(nlri.getType()));
+        assertThat(read.getRouteTypeSpec(), is(nlri.getRouteTypeSpec()));
+        assertThat(BgpEvpnRouteKey.of(read), is(BgpEvpnRouteKey.of(nlri)));
+        return read;
+    }
+
+    /**
+     * Ethernet auto-discovery route is read back as written.
+     */
+    @Test
+    public void ethernetAutoDiscoveryTest() throws BgpParseException {
+        BgpEthernetAutoDiscoveryNlriVer4 spec = new BgpEthernetAutoDiscoveryNlriVer4(
+                RD, ESI, BgpEthernetAutoDiscoveryNlriVer4.MAX_ETHERNET_TAG, LABEL);
+        BgpEvpnNlriVer4 read = roundTrip(new BgpEvpnNlriVer4((byte) BgpEthernetAutoDiscoveryNlriVer4.TYPE, spec),
+                                         25);
+
+        BgpEthernetAutoDiscoveryNlriVer4 readSpec = (BgpEthernetAutoDiscoveryNlriVer4) read.getRouteTypeSpec();
+        assertThat(read.getRouteType(), is(RouteType.ETHERNET_AUTO_DISCOVERY));
+        assertThat(readSpec.getRouteDistinguisher(), is(RD));
+        assertThat(readSpec.getEthernetSegmentidentifier(), is(ESI));
+        assertThat(readSpec.isPerEthernetSegment(), is(true));
+        assertThat(readSpec.getMplsLabel().getMplsLabel(), is(LABEL.getMplsLabel()));
+    }
+
+    /**
+     * Inclusive multicast Ethernet tag route is read back as written.
+     */
+    @Test
+    public void inclusiveMulticastTest() throws BgpParseException, UnknownHostException {
+        InetAddress router = InetAddress.getByName("10.0.0.1");
+        BgpInclusiveMulticastNlriVer4 spec = new BgpInclusiveMulticastNlriVer4(RD, 100, router);
+        BgpEvpnNlriVer4 read = roundTrip(new BgpEvpnNlriVer4((byte) BgpInclusiveMulticastNlriVer4.TYPE, spec), 17);
+
+        BgpInclusiveMulticastNlriVer4 readSpec = (BgpInclusiveMulticastNlriVer4) read.getRouteTypeSpec();
+        assertThat(read.getRouteType(), is(RouteType.INCLUSIVE_MULTICASE_ETHERNET));
+        assertThat(readSpec.getEthernetTagID(), is(100));
+        assertThat(readSpec.getOriginatingRouter(), is(router));
+    }
+
+    /**
+     * Ethernet segment route with an IPv6 originating router is read back as written.
+     */
+    @Test
+    public void ethernetSegmentTest() throws BgpParseException, UnknownHostException {
+        InetAddress router = InetAddress.getByName("2001:db8::1");
+        BgpEthernetSegmentNlriVer4 spec = new BgpEthernetSegmentNlriVer4(RD, ESI, router);
+        BgpEvpnNlriVer4 read = roundTrip(new BgpEvpnNlriVer4((byte) BgpEthernetSegmentNlriVer4.TYPE, spec), 35);
+
+        BgpEthernetSegmentNlriVer4 readSpec = (BgpEthernetSegmentNlriVer4) read.getRouteTypeSpec();
+        assertThat(read.getRouteType(), is(RouteType.ETHERNET_SEGMENT));
+        assertThat(readSpec.getEthernetSegmentidentifier(), is(ESI));
+        assertThat(readSpec.getOriginatingRouter(), is(router));
+    }
+
+    /**
+     * IP prefix route is read back as written and keyed by its prefix.
+     */
+    @Test
+    public void ipPrefixTest() throws BgpParseException, UnknownHostException {
+        InetAddress prefix = InetAddress.getByName("192.168.1.0");
+        BgpIpPrefixNlriVer4 spec = new BgpIpPrefixNlriVer4(RD, null, 0, (byte) 24, prefix, null, LABEL);
+        BgpEvpnNlriVer4 read = roundTrip(new BgpEvpnNlriVer4((byte) BgpIpPrefixNlriVer4.TYPE, spec), 34);
+
+        BgpIpPrefixNlriVer4 readSpec = (BgpIpPrefixNlriVer4) read.getRouteTypeSpec();
+        assertThat(read.getRouteType(), is(RouteType.IP_PREFIX));
+        assertThat(readSpec.getIpPrefix(), is(prefix));
+        assertThat(readSpec.getIpPrefixLength(), is(24));
+        assertThat(readSpec.getGatewayIp(), is(InetAddress.getByName("0.0.0.0")));
+
+        BgpEvpnRouteKey key = BgpEvpnRouteKey.of(read);
+        assertThat(key.ipAddress(), is(prefix));
+        assertThat(key.ipPrefixLength(), is(24));
+        BgpEvpnNlriVer4 other = new BgpEvpnNlriVer4((byte) BgpIpPrefixNlriVer4.TYPE, new BgpIpPrefixNlriVer4(
+                RD, null, 0, (byte) 25, prefix, null, LABEL));
+        assertThat(BgpEvpnRouteKey.of(other).equals(key), is(false));
+    }
+
+    /**
+     * Route type specific part with a length invalid for its type is rejected.
+     */
+    @Test(expected = BgpParseException.class)
+    public void invalidLengthTest() throws BgpParseException {
+        ChannelBuffer cb = ChannelBuffers.dynamicBuffer();
+        cb.writeByte(BgpEthernetAutoDiscoveryNlriVer4.TYPE);
+        cb.writeByte(24);
+        cb.writeZero(24);
+        BgpEvpnNlriVer4.read(cb);
+    }
+
+    /**
+     * Unknown route types are skipped.
+     */
+    @Test
+    public void unknownTypeTest() throws BgpParseException {
+        ChannelBuffer cb = ChannelBuffers.dynamicBuffer();
+        cb.writeByte(9);
+        cb.writeByte(4);
+        cb.writeInt(0);
+        BgpEvpnNlriVer4 read = BgpEvpnNlriVer4.read(cb);
+        assertThat(read.getRouteTypeSpec(), nullValue());
+        assertThat(cb.readableBytes(), is(0));
+    }
+
+    /**
+     * A full MP_REACH_NLRI mixing every route type is decoded back, repeatedly through the same buffer.
+     */
+    @Test
+    public void bulkRoundTripTest() throws BgpParseException, UnknownHostException {
+        List<BgpEvpnNlri> routes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            InetAddress ip = InetAddress.getByAddress(new byte[] {10, 0, 0, (byte) i });
+            EthernetSegmentidentifier esi = new EthernetSegmentidentifier(
+                    new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) i });
+            routes.add(new BgpEvpnNlriVer4((byte) BgpEthernetAutoDiscoveryNlriVer4.TYPE,
+                                           new BgpEthernetAutoDiscoveryNlriVer4(RD, esi, i, LABEL)));
+            routes.add(new BgpEvpnNlriVer4((byte) BgpInclusiveMulticastNlriVer4.TYPE,
+                                           new BgpInclusiveMulticastNlriVer4(RD, i, ip)));
+            routes.add(new BgpEvpnNlriVer4((byte) BgpEthernetSegmentNlriVer4.TYPE,
+                                           new BgpEthernetSegmentNlriVer4(RD, esi, ip)));
+            routes.add(new BgpEvpnNlriVer4((byte) BgpIpPrefixNlriVer4.TYPE,
+                                           new BgpIpPrefixNlriVer4(RD, esi, i, (byte) 32, ip, ip, LABEL)));
+        }
+        MpReachNlri mpReach = new MpReachNlri(routes, Constants.AFI_EVPN_VALUE, Constants.SAFI_EVPN_VALUE,
+                                              Ip4Address.valueOf("10.10.10.10"));
+        ChannelBuffer cb = ChannelBuffers.dynamicBuffer();
+        for (int round = 0; round < 100; round++) {
+            cb.clear();
+            mpReach.write(cb);
+            List<BgpEvpnNlri> read = MpReachNlri.read(cb).bgpEvpnNlri();
+            assertThat(read.size(), is(routes.size()));
+            for (int i = 0; i < routes.size(); i++) {
+                assertThat(read.get(i).getRouteTypeSpec(), is(routes.get(i).getRouteTypeSpec()));
+            }
+        }
+    }
+}
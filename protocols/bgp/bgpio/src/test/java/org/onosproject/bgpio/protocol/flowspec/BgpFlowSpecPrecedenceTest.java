@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgpio.protocol.flowspec;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.bgpio.types.BgpFsDestinationPrefix;
+import org.onosproject.bgpio.types.BgpFsIpProtocol;
+import org.onosproject.bgpio.types.BgpFsOperatorValue;
+import org.onosproject.bgpio.types.BgpFsSourcePrefix;
+import org.onosproject.bgpio.types.BgpValueType;
+
+/**
+ * Test for RFC 5575 flow specification ordering.
+ */
+public class BgpFlowSpecPrecedenceTest {
+
+    private final BgpFlowSpecPrecedence precedence = new BgpFlowSpecPrecedence();
+
+    private static BgpValueType dst(String prefix) {
+        IpPrefix ipPrefix = IpPrefix.valueOf(prefix);
+        return new BgpFsDestinationPrefix((byte) ipPrefix.prefixLength(), ipPrefix);
+    }
+
+    private static BgpValueType src(String prefix) {
+        IpPrefix ipPrefix = IpPrefix.valueOf(prefix);
+        return new BgpFsSourcePrefix((byte) ipPrefix.prefixLength(), ipPrefix);
+    }
+
+    private static BgpValueType proto(int... protocols) {
+        List<BgpFsOperatorValue> operatorValue = new ArrayList<>();
+        for (int i = 0; i < protocols.length; i++) {
+            byte option = (byte) (i == protocols.length - 1 ? 0x81 : 0x01);
+            operatorValue.add(new BgpFsOperatorValue(option, new byte[] {(byte) protocols[i]}));
+        }
+        return new BgpFsIpProtocol(operatorValue);
+    }
+
+    private static BgpFlowSpecNlri flowSpec(BgpValueType... components) {
+        return new BgpFlowSpecNlri(new ArrayList<>(Arrays.asList(components)));
+    }
+
+    /**
+     * Flow specification with a lower component type the other lacks has precedence.
+     */
+    @Test
+    public void testComponentPresence() {
+        assertThat(precedence.compare(flowSpec(dst("10.0.0.0/8")), flowSpec(src("10.0.0.0/8"))), lessThan(0));
+        assertThat(precedence.compare(flowSpec(src("10.0.0.0/8"), proto(6)), flowSpec(src("10.0.0.0/8"))),
+                   lessThan(0));
+    }
+
+    /**
+     * More specific prefix has precedence, otherwise the lower address.
+     */
+    @Test
+    public void testPrefix() {
+        assertThat(precedence.compare(flowSpec(dst("10.1.0.0/16")), flowSpec(dst("10.0.0.0/8"))), lessThan(0));
+        assertThat(precedence.compare(flowSpec(dst("10.0.0.0/8")), flowSpec(dst("9.1.0.0/16"))), greaterThan(0));
+        assertThat(precedence.compare(flowSpec(dst("10.0.0.0/8")), flowSpec(dst("10.0.0.0/8"))), is(0));
+    }
+
+    /**
+     * Other components are compared as byte strings, longest string winning on equal common part.
+     */
+    @Test
+    public void testByteString() {
+        assertThat(precedence.compare(flowSpec(proto(6)), flowSpec(proto(17))), lessThan(0));
+        assertThat(precedence.compare(flowSpec(proto(6, 17)), flowSpec(proto(6))), lessThan(0));
+    }
+
+    /**
+     * Components are compared in type order regardless of their order in the NLRI.
+     */
+    @Test
+    public void testSort() {
+        BgpFlowSpecNlri first = flowSpec(proto(6), dst("10.1.0.0/16"));
+        BgpFlowSpecNlri second = flowSpec(dst("10.0.0.0/8"), proto(6));
+        BgpFlowSpecNlri third = flowSpec(src("10.0.0.0/8"));
+        List<BgpFlowSpecNlri> sorted = new ArrayList<>(Arrays.asList(third, second, first));
+        sorted.sort(precedence);
+        assertThat(sorted, contains(first, second, third));
+        assertThat(BgpFlowSpecRouteKey.of(first), is(BgpFlowSpecRouteKey.of(flowSpec(dst("10.1.0.0/16"), proto(6)))));
+    }
+}
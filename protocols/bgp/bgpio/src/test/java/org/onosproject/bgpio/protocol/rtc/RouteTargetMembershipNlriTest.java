@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgpio.protocol.rtc;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Test;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.types.MpReachNlri;
+import org.onosproject.bgpio.types.NlriDetailsType;
+import org.onosproject.bgpio.types.RouteTarget;
+import org.onosproject.bgpio.util.Constants;
+import org.onlab.packet.Ip4Address;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test cases for route target membership NLRI.
+ */
+public class RouteTargetMembershipNlriTest {
+
+    private static final RouteTarget RT1 = new RouteTarget(Constants.BGP_ROUTE_TARGET_AS,
+                                                           new byte[] {0x00, 0x64, 0x00, 0x00, 0x00, 0x01 });
+    private static final RouteTarget RT2 = new RouteTarget(Constants.BGP_ROUTE_TARGET_AS,
+                                                           new byte[] {0x00, 0x64, 0x00, 0x00, 0x00, 0x02 });
+
+    /**
+     * Membership is read back as written.
+     */
+    @Test
+    public void readWriteTest() throws BgpParseException {
+        RouteTargetMembershipNlri membership = new RouteTargetMembershipNlri(100, RT1);
+        ChannelBuffer cb = ChannelBuffers.dynamicBuffer();
+        assertThat(membership.write(cb), is(13));
+
+        RouteTargetMembershipNlri read = RouteTargetMembershipNlri.read(cb);
+        assertThat(read, is(membership));
+        assertThat(read.originAs(), is(100));
+        assertThat(read.prefixLength(), is(RouteTargetMembershipNlri.MAX_PREFIX_LENGTH));
+        assertThat(read.matches(RT1), is(true));
+        assertThat(read.matches(RT2), is(false));
+    }
+
+    /**
+     * Default membership and shorter prefixes match every route target they cover.
+     */
+    @Test
+    public void prefixMatchTest() throws BgpParseException {
+        ChannelBuffer cb = ChannelBuffers.dynamicBuffer();
+        RouteTargetMembershipNlri.defaultMembership().write(cb);
+        RouteTargetMembershipNlri read = RouteTargetMembershipNlri.read(cb);
+        assertThat(read.isDefault(), is(true));
+        assertThat(read.matches(RT2), is(true));
+
+        // origin AS 100, route target type and the AS of the route target, 80 bits
+        cb.writeByte(80);
+        cb.writeBytes(new byte[] {0x00, 0x00, 0x00, 0x64, 0x00, 0x02, 0x00, 0x64, 0x00, 0x00 });
+        read = RouteTargetMembershipNlri.read(cb);
+        assertThat(read.matches(RT1), is(true));
+        assertThat(read.matches(RT2), is(true));
+    }
+
+    /**
+     * Prefix lengths shorter than the origin AS are rejected.
+     */
+    @Test(expected = BgpParseException.class)
+    public void invalidLengthTest() throws BgpParseException {
+        ChannelBuffer cb = ChannelBuffers.dynamicBuffer();
+        cb.writeByte(16);
+        cb.writeShort(100);
+        RouteTargetMembershipNlri.read(cb);
+    }
+
+    /**
+     * Membership NLRI are carried in MP_REACH_NLRI.
+     */
+    @Test
+    public void mpReachNlriTest() throws BgpParseException {
+        MpReachNlri mpReach = new MpReachNlri(Constants.AFI_RT_CONSTRAIN_VALUE, Constants.SAFI_RT_CONSTRAIN_VALUE,
+                                              Ip4Address.valueOf("10.10.10.10"),
+                                              Arrays.asList(new RouteTargetMembershipNlri(100, RT1),
+                                                            RouteTargetMembershipNlri.defaultMembership()));
+        ChannelBuffer cb = ChannelBuffers.dynamicBuffer();
+        mpReach.write(cb);
+
+        MpReachNlri read = MpReachNlri.read(cb);
+        assertThat(read.getNlriDetailsType(), is(NlriDetailsType.RT_CONSTRAIN));
+        assertThat(read.rtMembership(), is(mpReach.rtMembership()));
+    }
+}
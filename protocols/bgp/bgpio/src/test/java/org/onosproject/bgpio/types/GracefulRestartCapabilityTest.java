@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.bgpio.types;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.core.Is.is;
+
+import org.junit.Test;
+import org.onosproject.bgpio.types.GracefulRestartCapabilityTlv.AfiSafi;
+import org.onosproject.bgpio.util.Constants;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.testing.EqualsTester;
+
+/**
+ * Test for graceful restart capability tlv.
+ */
+public class GracefulRestartCapabilityTest {
+    private final AfiSafi evpn = new AfiSafi(Constants.AFI_EVPN_VALUE, Constants.SAFI_EVPN_VALUE, true);
+    private final AfiSafi flowSpec = new AfiSafi(Constants.AFI_FLOWSPEC_VALUE, Constants.SAFI_FLOWSPEC_VALUE, false);
+    private final GracefulRestartCapabilityTlv tlv1 =
+            new GracefulRestartCapabilityTlv(false, (short) 120, ImmutableList.of(evpn));
+    private final GracefulRestartCapabilityTlv sameAsTlv1 =
+            new GracefulRestartCapabilityTlv(false, (short) 120, ImmutableList.of(evpn));
+    private final GracefulRestartCapabilityTlv tlv2 =
+            new GracefulRestartCapabilityTlv(true, (short) 120, ImmutableList.of(evpn));
+    private final GracefulRestartCapabilityTlv tlv3 =
+            new GracefulRestartCapabilityTlv(false, (short) 180, ImmutableList.of(evpn));
+    private final GracefulRestartCapabilityTlv tlv4 =
+            new GracefulRestartCapabilityTlv(false, (short) 120, ImmutableList.of(evpn, flowSpec));
+
+    @Test
+    public void testEquality() {
+        new EqualsTester()
+        .addEqualityGroup(tlv1, sameAsTlv1)
+        .addEqualityGroup(tlv2)
+        .addEqualityGroup(tlv3)
+        .addEqualityGroup(tlv4)
+        .testEquals();
+    }
+
+    @Test
+    public void testCompareTo() {
+        assertThat(tlv1.compareTo(sameAsTlv1), is(0));
+        assertThat(tlv1.compareTo(tlv2), lessThan(0));
+        assertThat(tlv2.compareTo(tlv1), greaterThan(0));
+        assertThat(tlv1.compareTo(tlv3), lessThan(0));
+        assertThat(tlv1.compareTo(tlv4), lessThan(0));
+        assertThat(tlv4.compareTo(tlv1), greaterThan(0));
+        // address families compare as unsigned values
+        AfiSafi ipv4Unicast = new AfiSafi(Constants.AFI_FLOWSPEC_VALUE, (byte) 1, false);
+        assertThat(ipv4Unicast.compareTo(flowSpec), lessThan(0));
+        assertThat(flowSpec.compareTo(evpn), lessThan(0));
+    }
+}
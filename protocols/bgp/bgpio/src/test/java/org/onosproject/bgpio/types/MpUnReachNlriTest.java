@@ -19,6 +19,9 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.core.Is.is;
 
+import java.util.LinkedList;
+import java.util.List;
+
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.junit.Test;
@@ -26,7 +29,9 @@ import org.onosproject.bgpio.exceptions.BgpParseException;
 import org.onosproject.bgpio.protocol.BgpFactories;
 import org.onosproject.bgpio.protocol.BgpMessage;
 import org.onosproject.bgpio.protocol.BgpMessageReader;
+import org.onosproject.bgpio.protocol.BgpVersion;
 import org.onosproject.bgpio.protocol.ver4.BgpUpdateMsgVer4;
+import org.onosproject.bgpio.util.Constants;
 
 /**
  * Test for MP unreach NLRI encoding and decoding.
@@ -69,4 +74,41 @@ public class MpUnReachNlriTest {
 
         assertThat(testFsMsg, is(flowSpecMsg));
     }
+
+    /**
+     * This testcase checks End-of-RIB marker encoding and decoding.
+     */
+    @Test
+    public void endOfRibTest() throws BgpParseException {
+
+        // EVPN End-of-RIB, UPDATE with an MP_UNREACH_NLRI carrying AFI 25 SAFI 70 only
+        byte[] endOfRibMsg = new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff,
+                (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+                (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+                (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+                (byte) 0xff, 0x00, 0x1e, 0x02, 0x00, 0x00, 0x00, 0x07,
+                (byte) 0x90, 0x0f, 0x00, 0x03, 0x00, 0x19, 0x46};
+
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+        buffer.writeBytes(endOfRibMsg);
+
+        BgpMessageReader<BgpMessage> reader = BgpFactories.getGenericReader();
+        BgpMessage message = reader.readFrom(buffer, new BgpHeader());
+
+        assertThat(message, instanceOf(BgpUpdateMsgVer4.class));
+        MpUnReachNlri mpUnReachNlri = (MpUnReachNlri) ((BgpUpdateMsgVer4) message).bgpPathAttributes()
+                .pathAttributes().get(0);
+        assertThat(mpUnReachNlri.isEndOfRib(), is(true));
+
+        List<BgpValueType> attributes = new LinkedList<>();
+        attributes.add(MpUnReachNlri.endOfRib(Constants.AFI_EVPN_VALUE, Constants.SAFI_EVPN_VALUE));
+        ChannelBuffer buf = ChannelBuffers.dynamicBuffer();
+        BgpFactories.getFactory(BgpVersion.BGP_4).updateMessageBuilder()
+                .setBgpPathAttributes(attributes).build().writeTo(buf);
+
+        byte[] testMsg = new byte[buf.writerIndex()];
+        buf.readBytes(testMsg, 0, testMsg.length);
+
+        assertThat(testMsg, is(endOfRibMsg));
+    }
 }
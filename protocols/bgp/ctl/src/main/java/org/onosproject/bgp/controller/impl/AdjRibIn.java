@@ -17,7 +17,7 @@
 package org.onosproject.bgp.controller.impl;
 
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.onosproject.bgpio.protocol.BgpLSNlri;
 import org.onosproject.bgpio.protocol.linkstate.BgpLinkLSIdentifier;
@@ -32,11 +32,14 @@ import com.google.common.base.MoreObjects;
 
 /**
  * Implementation of Adj-RIB-In for each peer.
+ * <p>
+ * Routes are applied by several RIB workers, each owning a share of the route keys.
+ * </p>
  */
 public class AdjRibIn {
-    private Map<BgpNodeLSIdentifier, PathAttrNlriDetails> nodeTree = new TreeMap<>();
-    private Map<BgpLinkLSIdentifier, PathAttrNlriDetails> linkTree = new TreeMap<>();
-    private Map<BgpPrefixLSIdentifier, PathAttrNlriDetails> prefixTree = new TreeMap<>();
+    private Map<BgpNodeLSIdentifier, PathAttrNlriDetails> nodeTree = new ConcurrentSkipListMap<>();
+    private Map<BgpLinkLSIdentifier, PathAttrNlriDetails> linkTree = new ConcurrentSkipListMap<>();
+    private Map<BgpPrefixLSIdentifier, PathAttrNlriDetails> prefixTree = new ConcurrentSkipListMap<>();
 
     /**
      * Returns the adjacency node.
@@ -70,54 +73,40 @@ public class AdjRibIn {
      *
      * @param nlri NLRI Info
      * @param details has pathattribute , protocolID and identifier
+     * @return details the route replaced, null if the route is new
      */
-    public void add(BgpLSNlri nlri, PathAttrNlriDetails details) {
+    public PathAttrNlriDetails add(BgpLSNlri nlri, PathAttrNlriDetails details) {
         if (nlri instanceof BgpNodeLSNlriVer4) {
             BgpNodeLSIdentifier nodeLSIdentifier = ((BgpNodeLSNlriVer4) nlri).getLocalNodeDescriptors();
-            if (nodeTree.containsKey(nodeLSIdentifier)) {
-                nodeTree.replace(nodeLSIdentifier, details);
-            } else {
-                nodeTree.put(nodeLSIdentifier, details);
-            }
+            return nodeTree.put(nodeLSIdentifier, details);
         } else if (nlri instanceof BgpLinkLsNlriVer4) {
             BgpLinkLSIdentifier linkLSIdentifier = ((BgpLinkLsNlriVer4) nlri).getLinkIdentifier();
-            if (linkTree.containsKey(linkLSIdentifier)) {
-                linkTree.replace(linkLSIdentifier, details);
-            } else {
-                linkTree.put(linkLSIdentifier, details);
-            }
+            return linkTree.put(linkLSIdentifier, details);
         } else if (nlri instanceof BgpPrefixIPv4LSNlriVer4) {
             BgpPrefixLSIdentifier prefixIdentifier = ((BgpPrefixIPv4LSNlriVer4) nlri).getPrefixIdentifier();
-            if (prefixTree.containsKey(prefixIdentifier)) {
-                prefixTree.replace(prefixIdentifier, details);
-            } else {
-                prefixTree.put(prefixIdentifier, details);
-            }
+            return prefixTree.put(prefixIdentifier, details);
         }
+        return null;
     }
 
     /**
      * Removes nlri identifier if it exists in the adjacency tree.
      *
      * @param nlri NLRI Info
+     * @return details of the removed route, null if the route does not exist
      */
-    public void remove(BgpLSNlri nlri) {
+    public PathAttrNlriDetails remove(BgpLSNlri nlri) {
         if (nlri instanceof BgpNodeLSNlriVer4) {
             BgpNodeLSIdentifier nodeLSIdentifier = ((BgpNodeLSNlriVer4) nlri).getLocalNodeDescriptors();
-            if (nodeTree.containsKey(nodeLSIdentifier)) {
-                nodeTree.remove(nodeLSIdentifier);
-            }
+            return nodeTree.remove(nodeLSIdentifier);
         } else if (nlri instanceof BgpLinkLsNlriVer4) {
             BgpLinkLSIdentifier linkLSIdentifier = ((BgpLinkLsNlriVer4) nlri).getLinkIdentifier();
-            if (linkTree.containsKey(linkLSIdentifier)) {
-                linkTree.remove(linkLSIdentifier);
-            }
+            return linkTree.remove(linkLSIdentifier);
         } else if (nlri instanceof BgpPrefixIPv4LSNlriVer4) {
             BgpPrefixLSIdentifier prefixIdentifier = ((BgpPrefixIPv4LSNlriVer4) nlri).getPrefixIdentifier();
-            if (prefixTree.containsKey(prefixIdentifier)) {
-                prefixTree.remove(prefixIdentifier);
-            }
+            return prefixTree.remove(prefixIdentifier);
         }
+        return null;
     }
 
     @Override
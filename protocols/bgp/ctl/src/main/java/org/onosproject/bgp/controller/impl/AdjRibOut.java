@@ -0,0 +1,355 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.onlab.packet.Ip4Address;
+import org.onosproject.bgp.controller.BgpPeer.OperationType;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
+import org.onosproject.bgpio.protocol.BgpMessage;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnRouteKey;
+import org.onosproject.bgpio.types.BgpHeader;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.MpReachNlri;
+import org.onosproject.bgpio.types.MpUnReachNlri;
+import org.onosproject.bgpio.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Implementation of Adj-RIB-Out for each peer.
+ * <p>
+ * Outgoing EVPN routes are grouped by their path attribute set, next hop and operation, and packed into UPDATE
+ * messages of at most 4096 bytes. Queued messages are written to the peer together when the flush interval expires,
+ * or once enough full messages are queued.
+ * </p>
+ * <p>
+ * Only the latest queued operation of a route is kept, so that routes advertised and withdrawn within one flush
+ * interval reach the peer in their final state. Messages are written in the order they are sealed.
+ * </p>
+ */
+public class AdjRibOut {
+
+    private static final Logger log = LoggerFactory.getLogger(AdjRibOut.class);
+
+    // message header, withdrawn routes length and total path attribute length
+    private static final int UPDATE_FIXED_LENGTH = BgpHeader.DEFAULT_HEADER_LENGTH + 4;
+    // flags, type, extended length, AFI, SAFI, next hop length, IPv4 next hop and reserved octet
+    private static final int MP_REACH_IPV4_OVERHEAD = 13;
+    // flags, type, extended length, AFI and SAFI
+    private static final int MP_UNREACH_OVERHEAD = 7;
+
+    // full messages queued before they are written without waiting for the flush interval
+    private static final int FLUSH_BATCH_MESSAGES = 16;
+
+    private final Consumer<List<BgpMessage>> sender;
+    private final IntSupplier flushInterval;
+    private final Timer timer;
+    private final BgpAttributeSetTable attributeSets;
+    private final Map<UpdateGroupKey, UpdateGroup> groups = new LinkedHashMap<>();
+    // open group holding the queued operation of each route
+    private final Map<BgpEvpnRouteKey, UpdateGroup> pendingRoutes = new HashMap<>();
+    private final List<BgpMessage> readyMessages = new ArrayList<>();
+    private int readyNlri;
+    private int fullMessages;
+    private final ChannelBuffer scratch = ChannelBuffers.dynamicBuffer();
+    private Timeout flushTimeout;
+    private long messagesSent;
+    private long nlriSent;
+
+    /**
+     * Constructor to initialize parameters.
+     *
+     * @param sender writes a batch of messages to the peer
+     * @param flushInterval supplies the flush interval in milliseconds
+     * @param timer timer running the delayed flushes
+     * @param attributeSets path attribute sets shared with the Adj-RIB-In
+     */
+    public AdjRibOut(Consumer<List<BgpMessage>> sender, IntSupplier flushInterval, Timer timer,
+                     BgpAttributeSetTable attributeSets) {
+        this.sender = sender;
+        this.flushInterval = flushInterval;
+        this.timer = timer;
+        this.attributeSets = attributeSets;
+    }
+
+    /**
+     * Queues EVPN routes to be advertised or withdrawn.
+     *
+     * @param operType operation type
+     * @param attributes path attributes, without MP_REACH_NLRI and MP_UNREACH_NLRI
+     * @param nextHop next hop, ignored for withdrawals
+     * @param evpnNlri EVPN routes
+     */
+    public synchronized void addEvpn(OperationType operType, List<BgpValueType> attributes, Ip4Address nextHop,
+                                     List<BgpEvpnNlri> evpnNlri) {
+        boolean withdraw = operType == OperationType.DELETE;
+        // every queued group holds a reference to its attribute set, this one only lasts for the call
+        List<BgpValueType> shared = attributeSets.intern(ImmutableList.copyOf(attributes));
+        UpdateGroupKey key = new UpdateGroupKey(withdraw, shared, withdraw ? null : nextHop);
+        UpdateGroup group = groups.get(key);
+        for (BgpEvpnNlri nlri : evpnNlri) {
+            BgpEvpnRouteKey routeKey = BgpEvpnRouteKey.of(nlri);
+            UpdateGroup pending = routeKey == null ? null : pendingRoutes.get(routeKey);
+            if (pending != null) {
+                // the route is queued with an earlier operation, replaced by this one
+                BgpEvpnNlri replaced = pending.remove(routeKey);
+                pending.length -= encodedLength(replaced);
+            }
+            int nlriLength = encodedLength(nlri);
+            if (group != null && group.length + nlriLength > BgpHeader.MAXIMUM_MESSAGE_LENGTH) {
+                seal(group);
+                fullMessages++;
+                group = null;
+            }
+            if (group == null) {
+                attributeSets.intern(shared);
+                group = new UpdateGroup(key, fixedLength(key));
+                groups.put(key, group);
+            }
+            group.add(routeKey, nlri, nlriLength);
+            if (routeKey != null) {
+                pendingRoutes.put(routeKey, group);
+            }
+        }
+        attributeSets.release(shared);
+        scheduleFlush();
+    }
+
+    /**
+     * Queues a complete UPDATE message, it is written to the peer with the next flush, after the routes queued
+     * before it.
+     *
+     * @param msg update message
+     * @param nlriCount number of routes in the message
+     */
+    public synchronized void addMessage(BgpMessage msg, int nlriCount) {
+        sealGroups();
+        readyMessages.add(msg);
+        readyNlri += nlriCount;
+        scheduleFlush();
+    }
+
+    /**
+     * Packs all queued routes and writes the queued messages to the peer.
+     */
+    public synchronized void flush() {
+        if (flushTimeout != null) {
+            flushTimeout.cancel();
+            flushTimeout = null;
+        }
+        sealGroups();
+        if (readyMessages.isEmpty()) {
+            return;
+        }
+        List<BgpMessage> batch = new ArrayList<>(readyMessages);
+        messagesSent += batch.size();
+        nlriSent += readyNlri;
+        readyMessages.clear();
+        readyNlri = 0;
+        fullMessages = 0;
+        log.debug("Flushing {} update messages", batch.size());
+        sender.accept(batch);
+    }
+
+    /**
+     * Drops all queued routes and messages, used when the session goes down.
+     */
+    public synchronized void clear() {
+        if (flushTimeout != null) {
+            flushTimeout.cancel();
+            flushTimeout = null;
+        }
+        for (UpdateGroup group : groups.values()) {
+            attributeSets.release(group.key.attributes);
+        }
+        groups.clear();
+        pendingRoutes.clear();
+        readyMessages.clear();
+        readyNlri = 0;
+        fullMessages = 0;
+    }
+
+    /**
+     * Returns the number of UPDATE messages written to the peer.
+     *
+     * @return message count
+     */
+    public synchronized long messagesSent() {
+        return messagesSent;
+    }
+
+    /**
+     * Returns the number of routes written to the peer.
+     *
+     * @return route count
+     */
+    public synchronized long nlriSent() {
+        return nlriSent;
+    }
+
+    private void scheduleFlush() {
+        int interval = flushInterval.getAsInt();
+        if (interval <= 0 || fullMessages >= FLUSH_BATCH_MESSAGES) {
+            flush();
+        } else if (flushTimeout == null) {
+            flushTimeout = timer.newTimeout(t -> flushOnTimeout(t), interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void flushOnTimeout(Timeout timeout) {
+        if (flushTimeout == timeout) {
+            flushTimeout = null;
+            flush();
+        }
+    }
+
+    private void sealGroups() {
+        for (UpdateGroup group : groups.values()) {
+            seal(group);
+        }
+        groups.clear();
+    }
+
+    private void seal(UpdateGroup group) {
+        for (BgpEvpnRouteKey routeKey : group.routeKeys) {
+            if (routeKey != null) {
+                pendingRoutes.remove(routeKey);
+            }
+        }
+        // all routes of the group may have been replaced by later operations
+        if (!group.evpnNlri.isEmpty()) {
+            readyMessages.add(group.build());
+            readyNlri += group.evpnNlri.size();
+        }
+        attributeSets.release(group.key.attributes);
+    }
+
+    private int encodedLength(BgpValueType value) {
+        scratch.clear();
+        return value.write(scratch);
+    }
+
+    private int fixedLength(UpdateGroupKey key) {
+        int length = UPDATE_FIXED_LENGTH + (key.withdraw ? MP_UNREACH_OVERHEAD : MP_REACH_IPV4_OVERHEAD);
+        for (BgpValueType attr : key.attributes) {
+            length += encodedLength(attr);
+        }
+        return length;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("pendingGroups", groups.size())
+                .add("readyMessages", readyMessages.size())
+                .add("messagesSent", messagesSent)
+                .add("nlriSent", nlriSent)
+                .toString();
+    }
+
+    /**
+     * Routes that can share one UPDATE message.
+     */
+    private static final class UpdateGroupKey {
+        private final boolean withdraw;
+        private final List<BgpValueType> attributes;
+        private final Ip4Address nextHop;
+
+        private UpdateGroupKey(boolean withdraw, List<BgpValueType> attributes, Ip4Address nextHop) {
+            this.withdraw = withdraw;
+            this.attributes = attributes;
+            this.nextHop = nextHop;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(withdraw, System.identityHashCode(attributes), nextHop);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof UpdateGroupKey) {
+                UpdateGroupKey other = (UpdateGroupKey) obj;
+                // attribute sets are interned, so identical sets are the same instance
+                return withdraw == other.withdraw && attributes == other.attributes
+                        && Objects.equals(nextHop, other.nextHop);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Routes queued for one UPDATE message.
+     */
+    private static final class UpdateGroup {
+        private final UpdateGroupKey key;
+        private final List<BgpEvpnNlri> evpnNlri = new ArrayList<>();
+        // route key of each route, null for route types without one
+        private final List<BgpEvpnRouteKey> routeKeys = new ArrayList<>();
+        private int length;
+
+        private UpdateGroup(UpdateGroupKey key, int fixedLength) {
+            this.key = key;
+            this.length = fixedLength;
+        }
+
+        private void add(BgpEvpnRouteKey routeKey, BgpEvpnNlri nlri, int nlriLength) {
+            evpnNlri.add(nlri);
+            routeKeys.add(routeKey);
+            length += nlriLength;
+        }
+
+        private BgpEvpnNlri remove(BgpEvpnRouteKey routeKey) {
+            int index = routeKeys.indexOf(routeKey);
+            routeKeys.remove(index);
+            return evpnNlri.remove(index);
+        }
+
+        private BgpMessage build() {
+            List<BgpValueType> attributes = new ArrayList<>(key.attributes.size() + 1);
+            attributes.addAll(key.attributes);
+            if (key.withdraw) {
+                attributes.add(new MpUnReachNlri(evpnNlri, Constants.AFI_EVPN_VALUE, Constants.SAFI_EVPN_VALUE));
+            } else {
+                attributes.add(new MpReachNlri(evpnNlri, Constants.AFI_EVPN_VALUE, Constants.SAFI_EVPN_VALUE,
+                                               key.nextHop));
+            }
+            return Controller.getBgpMessageFactory4().updateMessageBuilder()
+                    .setBgpPathAttributes(attributes).build();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller.impl;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.MpReachNlri;
+import org.onosproject.bgpio.types.MpUnReachNlri;
+import org.onosproject.bgpio.types.NextHop;
+import org.onosproject.bgpio.types.NlriDetailsType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Reference counted table of the path attribute sets stored in Adj-RIB-In.
+ * <p>
+ * Routes received with equal path attributes, from one UPDATE or across peers,
+ * share one immutable attribute list. The MP_REACH_NLRI and MP_UNREACH_NLRI
+ * attributes are left out, so a stored route does not keep the NLRI of the
+ * whole UPDATE it came in. The next hop of EVPN routes is kept as a NEXT_HOP
+ * attribute. Routes queued in Adj-RIB-Out for an UPDATE also reference
+ * their attribute set, so advertised and received routes share it. An
+ * attribute set leaves the table when its last route is replaced, withdrawn
+ * or written to the peer.
+ * </p>
+ */
+public class BgpAttributeSetTable {
+
+    private static final Logger log = LoggerFactory.getLogger(BgpAttributeSetTable.class);
+
+    private final ConcurrentMap<List<BgpValueType>, AttributeSet> sets = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the attributes of an UPDATE which are kept with each route, in the form used as table key.
+     *
+     * @param pathAttributes path attributes of an UPDATE message
+     * @return immutable list of path attributes without the MP NLRI attributes
+     */
+    public static List<BgpValueType> routeAttributes(List<BgpValueType> pathAttributes) {
+        ImmutableList.Builder<BgpValueType> builder = ImmutableList.builder();
+        for (BgpValueType attr : pathAttributes) {
+            if (attr instanceof MpReachNlri) {
+                MpReachNlri mpReachNlri = (MpReachNlri) attr;
+                if (mpReachNlri.getNlriDetailsType() == NlriDetailsType.EVPN && mpReachNlri.nexthop4() != null) {
+                    builder.add(new NextHop(mpReachNlri.nexthop4()));
+                }
+            } else if (!(attr instanceof MpUnReachNlri)) {
+                builder.add(attr);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Takes a reference to an attribute set, adding it to the table if it is not present.
+     *
+     * @param attributes route attributes as returned by {@link #routeAttributes(List)}
+     * @return shared instance of the attribute set
+     */
+    public List<BgpValueType> intern(List<BgpValueType> attributes) {
+        return sets.compute(attributes, (k, set) -> {
+            if (set == null) {
+                set = new AttributeSet(k);
+            }
+            set.references++;
+            return set;
+        }).attributes;
+    }
+
+    /**
+     * Drops a reference to an attribute set, removing it from the table with the last reference.
+     *
+     * @param attributes shared instance of the attribute set, ignored if null
+     */
+    public void release(List<BgpValueType> attributes) {
+        if (attributes == null) {
+            return;
+        }
+        sets.computeIfPresent(attributes, (k, set) -> --set.references > 0 ? set : null);
+    }
+
+    /**
+     * Returns number of references held to an attribute set.
+     *
+     * @param attributes attribute set
+     * @return number of references, 0 if the set is not in the table
+     */
+    public int references(List<BgpValueType> attributes) {
+        AttributeSet set = sets.get(attributes);
+        return set == null ? 0 : set.references;
+    }
+
+    /**
+     * Returns encoded length of an attribute set.
+     *
+     * @param attributes attribute set
+     * @return encoded length in bytes
+     */
+    public int encodedLength(List<BgpValueType> attributes) {
+        AttributeSet set = sets.get(attributes);
+        return set == null ? encode(attributes) : set.encodedLength;
+    }
+
+    /**
+     * Returns number of distinct attribute sets in the table.
+     *
+     * @return number of attribute sets
+     */
+    public int size() {
+        return sets.size();
+    }
+
+    /**
+     * Returns number of references held to all attribute sets of the table.
+     *
+     * @return number of references
+     */
+    public long totalReferences() {
+        long references = 0;
+        for (AttributeSet set : sets.values()) {
+            references += set.references;
+        }
+        return references;
+    }
+
+    /**
+     * Returns encoded length of all attribute sets of the table.
+     *
+     * @return encoded length in bytes
+     */
+    public long totalEncodedLength() {
+        long length = 0;
+        for (AttributeSet set : sets.values()) {
+            length += set.encodedLength;
+        }
+        return length;
+    }
+
+    /**
+     * Returns the wire length of the attributes, attributes the codec cannot write count as zero.
+     *
+     * @param attributes attribute set
+     * @return encoded length in bytes
+     */
+    private static int encode(List<BgpValueType> attributes) {
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+        int length = 0;
+        for (BgpValueType attr : attributes) {
+            try {
+                length += attr.write(buffer);
+            } catch (RuntimeException e) {
+                log.debug("Attribute {} cannot be encoded", attr.getType());
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("attributeSets", size())
+                .add("references", totalReferences())
+                .toString();
+    }
+
+    /**
+     * Attribute set with its reference count, updated under the map entry lock.
+     */
+    private static final class AttributeSet {
+        private final List<BgpValueType> attributes;
+        private final int encodedLength;
+        private volatile int references;
+
+        private AttributeSet(List<BgpValueType> attributes) {
+            this.attributes = attributes;
+            this.encodedLength = encode(attributes);
+        }
+    }
+}
@@ -23,9 +23,11 @@ import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.WriteCompletionEvent;
 import org.jboss.netty.handler.timeout.IdleStateAwareChannelHandler;
 import org.jboss.netty.handler.timeout.ReadTimeoutException;
 import org.jboss.netty.handler.timeout.ReadTimeoutHandler;
+import org.jboss.netty.util.Timer;
 import org.onlab.packet.Ip4Address;
 import org.onlab.packet.IpAddress;
 import org.onlab.packet.MacAddress;
@@ -85,6 +87,8 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
     private BgpId thisbgpId;
     private Channel channel;
     private BgpKeepAliveTimer keepAliveTimer = null;
+    private final BgpTimerStats bgpTimerStats = new BgpTimerStats();
+    private volatile long lastWriteTime;
     private short peerHoldTime = 0;
     private short negotiatedHoldTime = 0;
     private long peerAsNum;
@@ -118,6 +122,7 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
     private boolean isIbgpSession;
     private BgpSessionInfoImpl sessionInfo;
     private BgpPeerManagerImpl peerManager;
+    private Controller controller;
     private InetSocketAddress inetAddress;
     private IpAddress ipAddress;
     private SocketAddress address;
@@ -133,6 +138,7 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
     BgpChannelHandler(BgpController bgpController) {
         this.bgpController = bgpController;
         this.peerManager = (BgpPeerManagerImpl) bgpController.peerManager();
+        this.controller = ((BgpControllerImpl) bgpController).controller();
         this.state = ChannelState.IDLE;
         this.factory4 = Controller.getBgpMessageFactory4();
         this.duplicateBgpIdFound = Boolean.FALSE;
@@ -198,7 +204,7 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
                         if (h.peerHoldTime < h.bgpconfig.getHoldTime()) {
                             h.channel.getPipeline().replace("holdTime",
                                                             "holdTime",
-                                                            new ReadTimeoutHandler(BgpPipelineFactory.TIMER,
+                                                            new ReadTimeoutHandler(h.controller.timer(),
                                                                                    h.peerHoldTime));
                         }
 
@@ -253,7 +259,7 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
                         if (h.peerHoldTime < h.bgpconfig.getHoldTime()) {
                             h.channel.getPipeline().replace("holdTime",
                                                             "holdTime",
-                                                            new ReadTimeoutHandler(BgpPipelineFactory.TIMER,
+                                                            new ReadTimeoutHandler(h.controller.timer(),
                                                                                    h.peerHoldTime));
                         }
 
@@ -312,6 +318,7 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
                     if (h.negotiatedHoldTime != 0) {
                         h.keepAliveTimer = new BgpKeepAliveTimer(h,
                                                                 (h.negotiatedHoldTime / BGP_MAX_KEEPALIVE_INTERVAL));
+                        h.controller.addSessionTimerStats(h.thisbgpId, h.bgpTimerStats);
                     } else {
                         h.sendKeepAliveMessage();
                     }
@@ -326,6 +333,7 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
                     } else {
                         h.setState(ESTABLISHED);
                         h.bgpconfig.setPeerConnState(h.peerAddr, BgpPeerCfg.State.ESTABLISHED);
+                        ((BgpControllerImpl) h.bgpController).peerConnected((BgpPeerImpl) h.bgpPeer);
                     }
                 }
             }
@@ -383,8 +391,11 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
 
     //Stop keepalive timer
     private void stopKeepAliveTimer() {
-        if ((keepAliveTimer != null) && (keepAliveTimer.getKeepAliveTimer() != null)) {
-            keepAliveTimer.getKeepAliveTimer().cancel();
+        if (keepAliveTimer != null) {
+            keepAliveTimer.cancel();
+        }
+        if (thisbgpId != null) {
+            controller.removeSessionTimerStats(thisbgpId, bgpTimerStats);
         }
     }
 
@@ -467,9 +478,10 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
                 // which we obviously don't want.
                 log.debug("{}:removal called", getPeerInfoString());
                 if (bgpPeer != null) {
-                    BgpPeerImpl peer = (BgpPeerImpl) bgpPeer;
+                    // withdrawal is queued before the peer is removed, so routes of a new
+                    // session with the same peer are applied after it
+                    ((BgpControllerImpl) bgpController).peerDisconnected((BgpPeerImpl) bgpPeer);
                     peerManager.removeConnectedPeer(thisbgpId);
-                    peer.updateLocalRibOnPeerDisconnect();
                 }
 
                 // Retry connection if connection is lost to bgp speaker/peer
@@ -513,6 +525,7 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
         if (e.getCause() instanceof ReadTimeoutException) {
             // device timeout
             log.error("Disconnecting device {} due to read timeout", getPeerInfoString());
+            bgpTimerStats.addHoldTimerExpired();
             sendNotification(BgpErrorType.HOLD_TIMER_EXPIRED, (byte) 0, null);
             state = ChannelState.IDLE;
             stopKeepAliveTimer();
@@ -539,7 +552,11 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
                 data = new byte[dataLength];
                 tempCb.readBytes(data, 0, dataLength);
             }
+            log.error("Disconnecting peer {} due to error in message: {}", getPeerInfoString(),
+                      errMsg.getMessage());
             sendNotification(errorCode, errorSubCode, data);
+            stopKeepAliveTimer();
+            ctx.getChannel().close();
         } else if (e.getCause() instanceof RejectedExecutionException) {
             log.warn("Could not process message: queue full");
         } else {
@@ -554,6 +571,12 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
         return getPeerInfoString();
     }
 
+    @Override
+    public void writeComplete(ChannelHandlerContext ctx, WriteCompletionEvent e) throws Exception {
+        lastWriteTime = System.currentTimeMillis();
+        super.writeComplete(ctx, e);
+    }
+
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
         if (e.getMessage() instanceof List) {
@@ -673,6 +696,33 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
         return bgpPacketStats;
     }
 
+    /**
+     * Returns timer statistics of this session.
+     *
+     * @return timer statistics
+     */
+    public BgpTimerStats getBgpTimerStats() {
+        return bgpTimerStats;
+    }
+
+    /**
+     * Returns the time the last write to the peer completed.
+     *
+     * @return time in milliseconds, 0 if nothing was written
+     */
+    long lastWriteTime() {
+        return lastWriteTime;
+    }
+
+    /**
+     * Returns the timer of the controller which owns this session.
+     *
+     * @return session timer
+     */
+    Timer timer() {
+        return controller.timer();
+    }
+
     /**
      * Send handshake open message to the peer.
      *
@@ -706,7 +756,12 @@ class BgpChannelHandler extends IdleStateAwareChannelHandler {
                 .setVpnFlowSpecCapabilityTlv(vpnFlowSpecStatus)
                 .setFlowSpecRpdCapabilityTlv(bgpconfig.flowSpecRpdCapability())
                 .setVpnv4CapabilityTlv(vpnv4Cability)
-                .setEvpnCapabilityTlv(evpnCability).build();
+                .setEvpnCapabilityTlv(evpnCability)
+                .setRtConstrainCapabilityTlv(bgpconfig.getRtConstrainCapability())
+                .setGracefulRestartCapabilityTlv(bgpconfig.getGracefulRestartCapability(),
+                                                 ((BgpControllerImpl) bgpController).isRestarting(),
+                                                 bgpconfig.getRestartTime())
+                .build();
         log.debug("Sending open message to {}", channel.getRemoteAddress());
         channel.write(Collections.singletonList(msg));
 
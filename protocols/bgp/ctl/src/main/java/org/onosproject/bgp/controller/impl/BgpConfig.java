@@ -42,12 +42,20 @@ public class BgpConfig implements BgpCfg {
     private static final short DEFAULT_HOLD_TIMER = 120;
     private static final short DEFAULT_CONN_RETRY_TIME = 120;
     private static final short DEFAULT_CONN_RETRY_COUNT = 5;
+    private static final int DEFAULT_UPDATE_FLUSH_INTERVAL = 50;
+    private static final short DEFAULT_RESTART_TIME = 120;
+    private static final int DEFAULT_STALE_PATH_TIME = 360;
 
     private State state = State.INIT;
     private int localAs;
     private int maxSession;
     private boolean lsCapability;
     private short holdTime;
+    private volatile int updateFlushInterval;
+    private volatile boolean rtConstrain;
+    private volatile boolean gracefulRestart;
+    private volatile short restartTime;
+    private volatile int stalePathTime;
     private boolean largeAs = false;
     private int maxConnRetryTime;
     private int maxConnRetryCount;
@@ -70,6 +78,9 @@ public class BgpConfig implements BgpCfg {
         this.holdTime = DEFAULT_HOLD_TIMER;
         this.maxConnRetryTime = DEFAULT_CONN_RETRY_TIME;
         this.maxConnRetryCount = DEFAULT_CONN_RETRY_COUNT;
+        this.updateFlushInterval = DEFAULT_UPDATE_FLUSH_INTERVAL;
+        this.restartTime = DEFAULT_RESTART_TIME;
+        this.stalePathTime = DEFAULT_STALE_PATH_TIME;
     }
 
     @Override
@@ -363,6 +374,56 @@ public class BgpConfig implements BgpCfg {
         return this.holdTime;
     }
 
+    @Override
+    public void setUpdateFlushInterval(int interval) {
+        this.updateFlushInterval = interval;
+    }
+
+    @Override
+    public int getUpdateFlushInterval() {
+        return this.updateFlushInterval;
+    }
+
+    @Override
+    public void setRtConstrainCapability(boolean rtConstrain) {
+        this.rtConstrain = rtConstrain;
+    }
+
+    @Override
+    public boolean getRtConstrainCapability() {
+        return this.rtConstrain;
+    }
+
+    @Override
+    public void setGracefulRestartCapability(boolean gracefulRestart) {
+        this.gracefulRestart = gracefulRestart;
+    }
+
+    @Override
+    public boolean getGracefulRestartCapability() {
+        return this.gracefulRestart;
+    }
+
+    @Override
+    public void setRestartTime(short restartTime) {
+        this.restartTime = restartTime;
+    }
+
+    @Override
+    public short getRestartTime() {
+        return this.restartTime;
+    }
+
+    @Override
+    public void setStalePathTime(int stalePathTime) {
+        this.stalePathTime = stalePathTime;
+    }
+
+    @Override
+    public int getStalePathTime() {
+        return this.stalePathTime;
+    }
+
     @Override
     public boolean getLargeASCapability() {
         return this.largeAs;
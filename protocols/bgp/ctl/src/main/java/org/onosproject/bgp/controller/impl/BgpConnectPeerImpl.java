@@ -13,14 +13,15 @@
 package org.onosproject.bgp.controller.impl;
 
 import java.net.InetSocketAddress;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
 import org.onosproject.bgp.controller.BgpCfg;
 import org.onosproject.bgp.controller.BgpController;
 import org.onosproject.bgp.controller.BgpPeerCfg;
@@ -34,7 +35,7 @@ import org.slf4j.LoggerFactory;
 public class BgpConnectPeerImpl implements BgpConnectPeer {
     private static final Logger log = LoggerFactory.getLogger(BgpConnectPeerImpl.class);
 
-    private ScheduledExecutorService connectExecutor = null;
+    private volatile Timeout connectTimeout = null;
     private final String peerHost;
     private static final int RETRY_INTERVAL = 4;
     private final int peerPort;
@@ -43,6 +44,7 @@ public class BgpConnectPeerImpl implements BgpConnectPeer {
     private ChannelPipelineFactory pfact;
     private ClientBootstrap peerBootstrap;
     private BgpCfg bgpconfig;
+    private final Timer timer;
 
     /**
      * Initialize timer and initiate pipeline factory.
@@ -54,6 +56,7 @@ public class BgpConnectPeerImpl implements BgpConnectPeer {
     public BgpConnectPeerImpl(BgpController bgpController, String remoteHost, int remotePort) {
 
         this.bgpconfig = bgpController.getConfig();
+        this.timer = ((BgpControllerImpl) bgpController).controller().timer();
         this.pfact = new BgpPipelineFactory(bgpController, false);
         this.peerBootstrap = Controller.peerBootstrap();
         this.peerBootstrap.setPipelineFactory(pfact);
@@ -64,9 +67,10 @@ public class BgpConnectPeerImpl implements BgpConnectPeer {
 
     @Override
     public void disconnectPeer() {
-        if (connectExecutor != null) {
-            connectExecutor.shutdown();
-            connectExecutor = null;
+        Timeout timeout = connectTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+            connectTimeout = null;
         }
     }
 
@@ -81,18 +85,15 @@ public class BgpConnectPeerImpl implements BgpConnectPeer {
      * @param retryDelay retry delay
      */
     private void scheduleConnectionRetry(long retryDelay) {
-        if (this.connectExecutor == null) {
-            this.connectExecutor = Executors.newSingleThreadScheduledExecutor();
-        }
-        this.connectExecutor.schedule(new ConnectionRetry(), retryDelay, TimeUnit.MINUTES);
+        this.connectTimeout = timer.newTimeout(new ConnectionRetry(), retryDelay, TimeUnit.MINUTES);
     }
 
     /**
      * Implements BGP connection and manages connection to peer with back-off mechanism in case of failure.
      */
-    class ConnectionRetry implements Runnable {
+    class ConnectionRetry implements TimerTask {
         @Override
-        public void run() {
+        public void run(Timeout timeout) {
             log.debug("Connect to peer {}", peerHost);
 
             InetSocketAddress connectToSocket = new InetSocketAddress(peerHost, peerPort);
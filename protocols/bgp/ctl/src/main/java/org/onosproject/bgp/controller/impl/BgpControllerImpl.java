@@ -20,28 +20,37 @@ import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.packet.Ip4Address;
 import org.onosproject.bgp.controller.BgpCfg;
 import org.onosproject.bgp.controller.BgpController;
+import org.onosproject.bgp.controller.BgpEvpnListener;
+import org.onosproject.bgp.controller.BgpEvpnLocalRib;
+import org.onosproject.bgp.controller.BgpFlowSpecListener;
+import org.onosproject.bgp.controller.BgpFlowSpecLocalRib;
 import org.onosproject.bgp.controller.BgpId;
 import org.onosproject.bgp.controller.BgpLinkListener;
 import org.onosproject.bgp.controller.BgpLocalRib;
 import org.onosproject.bgp.controller.BgpNodeListener;
 import org.onosproject.bgp.controller.BgpPeer;
+import org.onosproject.bgp.controller.BgpPeer.OperationType;
 import org.onosproject.bgp.controller.BgpPeerManager;
+import org.onosproject.bgp.controller.BgpRibFootprint;
+import org.onosproject.bgp.controller.BgpUpdateStageStats;
 import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
 import org.onosproject.bgpio.protocol.BgpMessage;
 import org.onosproject.bgpio.protocol.BgpUpdateMsg;
 import org.onosproject.bgpio.types.BgpValueType;
-import org.onosproject.bgpio.types.MpReachNlri;
-import org.onosproject.bgpio.types.MpUnReachNlri;
+import org.onosproject.bgpio.types.GracefulRestartCapabilityTlv;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -57,16 +66,31 @@ public class BgpControllerImpl implements BgpController {
 
     private BgpLocalRib bgplocalRib = new BgpLocalRibImpl(this);
     private BgpLocalRib bgplocalRibVpn = new BgpLocalRibImpl(this);
+    private BgpEvpnLocalRib bgpEvpnLocalRib = new BgpEvpnLocalRibImpl(this);
+    private BgpFlowSpecLocalRib bgpFlowSpecLocalRib = new BgpFlowSpecLocalRibImpl(this);
 
     protected Set<BgpNodeListener> bgpNodeListener = new CopyOnWriteArraySet<>();
     protected Set<BgpLinkListener> bgpLinkListener = new CopyOnWriteArraySet<>();
+    protected Set<BgpFlowSpecListener> bgpFlowSpecListener = new CopyOnWriteArraySet<>();
+    protected Set<BgpEvpnListener> bgpEvpnListener = new CopyOnWriteArraySet<>();
 
     final Controller ctrl = new Controller(this);
 
     private BgpConfig bgpconfig = new BgpConfig(this);
 
+    private final UpdatePipeline updatePipeline = new UpdatePipeline();
+
+    private final EvpnRouteExporter evpnRouteExporter = new EvpnRouteExporter(this);
+
+    // routes of restarting peers, kept until the peer reconnects or its restart time expires
+    private final Map<BgpId, StaleRoutes> staleRoutes = new ConcurrentHashMap<>();
+
+    private volatile long startTime = System.currentTimeMillis();
+
     @Activate
     public void activate() {
+        startTime = System.currentTimeMillis();
+        updatePipeline.start(UpdatePipeline.defaultWorkers());
         this.ctrl.start();
         log.info("Started");
     }
@@ -76,6 +100,7 @@ public class BgpControllerImpl implements BgpController {
         // Close all connected peers
         closeConnectedPeers();
         this.ctrl.stop();
+        updatePipeline.stop();
         log.info("Stopped");
     }
 
@@ -131,48 +156,8 @@ public class BgpControllerImpl implements BgpController {
                log.debug("llPathAttr is null, cannot process update message");
                break;
             }
-            Iterator<BgpValueType> listIterator = pathAttr.iterator();
-            boolean isLinkstate = false;
-            boolean isEvpn = false;
-
-            while (listIterator.hasNext()) {
-                BgpValueType attr = listIterator.next();
-                // if (attr instanceof MpReachNlri) {
-                // MpReachNlri mpReach = (MpReachNlri) attr;
-                // if (mpReach.bgpFlowSpecNlri() == null) {
-                // isLinkstate = true;
-                // }
-                // } else if (attr instanceof MpUnReachNlri) {
-                // MpUnReachNlri mpUnReach = (MpUnReachNlri) attr;
-                // if (mpUnReach.bgpFlowSpecNlri() == null) {
-                // isLinkstate = true;
-                // }
-                // }
-                if (attr instanceof MpReachNlri) {
-                    MpReachNlri mpReach = (MpReachNlri) attr;
-                    if (mpReach.bgpLSNlri() != null) {
-                        isLinkstate = true;
-                    }
-                    if (mpReach.bgpEvpnNlri() != null) {
-                        isEvpn = true;
-                    }
-                } else if (attr instanceof MpUnReachNlri) {
-                    MpUnReachNlri mpUnReach = (MpUnReachNlri) attr;
-                    if (mpUnReach.bgpLSNlri() != null) {
-                        isLinkstate = true;
-                    }
-                    if (mpUnReach.bgpEvpnNlri() != null) {
-                        isEvpn = true;
-                    }
-                }
-            }
-            if (isLinkstate) {
-                peer.buildAdjRibIn(pathAttr);
-            }
-
-            if (isEvpn) {
-                peer.buildAdjRibIn(pathAttr);
-            }
+            // routes are split by NLRI key and applied by the RIB workers
+            updatePipeline.dispatch((BgpPeerImpl) peer, pathAttr);
             break;
         default:
             // TODO: Process other message
@@ -297,6 +282,26 @@ public class BgpControllerImpl implements BgpController {
         return bgplocalRibVpn;
     }
 
+    /**
+     * Gets the BGP EVPN local RIB.
+     *
+     * @return BGP EVPN local RIB
+     */
+    @Override
+    public BgpEvpnLocalRib bgpEvpnLocalRib() {
+        return bgpEvpnLocalRib;
+    }
+
+    /**
+     * Gets the BGP flow specification local RIB.
+     *
+     * @return BGP flow specification local RIB
+     */
+    @Override
+    public BgpFlowSpecLocalRib bgpFlowSpecLocalRib() {
+        return bgpFlowSpecLocalRib;
+    }
+
     @Override
     public void addLinkListener(BgpLinkListener listener) {
         this.bgpLinkListener.add(listener);
@@ -311,4 +316,153 @@ public class BgpControllerImpl implements BgpController {
     public Set<BgpLinkListener> linkListener() {
         return bgpLinkListener;
     }
+
+    @Override
+    public void addFlowSpecListener(BgpFlowSpecListener listener) {
+        this.bgpFlowSpecListener.add(listener);
+    }
+
+    @Override
+    public void removeFlowSpecListener(BgpFlowSpecListener listener) {
+        this.bgpFlowSpecListener.remove(listener);
+    }
+
+    @Override
+    public Set<BgpFlowSpecListener> flowSpecListener() {
+        return bgpFlowSpecListener;
+    }
+
+    @Override
+    public void addEvpnListener(BgpEvpnListener listener) {
+        this.bgpEvpnListener.add(listener);
+    }
+
+    @Override
+    public void removeEvpnListener(BgpEvpnListener listener) {
+        this.bgpEvpnListener.remove(listener);
+    }
+
+    @Override
+    public Set<BgpEvpnListener> evpnListener() {
+        return bgpEvpnListener;
+    }
+
+    /**
+     * Withdraws the routes of a disconnected peer from the local RIBs once its queued updates are applied.
+     *
+     * @param peer disconnected peer
+     */
+    void peerDisconnected(BgpPeerImpl peer) {
+        evpnRouteExporter.peerDisconnected(peer.sessionInfo().remoteBgpId());
+        updatePipeline.barrier(() -> {
+            GracefulRestartCapabilityTlv restart = peer.gracefulRestartCapability();
+            if (restart != null) {
+                retainStaleRoutes(peer, restart);
+                return;
+            }
+            try {
+                peer.updateLocalRibOnPeerDisconnect();
+            } catch (BgpParseException e) {
+                log.warn("Failed to withdraw routes of peer {}", peer, e);
+            }
+        });
+    }
+
+    /**
+     * Keeps the routes of a restarting peer as stale for the restart time the peer advertised.
+     *
+     * @param peer disconnected peer
+     * @param restart graceful restart capability received from the peer
+     */
+    private void retainStaleRoutes(BgpPeerImpl peer, GracefulRestartCapabilityTlv restart) {
+        BgpId bgpId = peer.sessionInfo().remoteBgpId();
+        StaleRoutes stale = peer.retainStaleRoutes();
+        StaleRoutes previous = staleRoutes.put(bgpId, stale);
+        if (previous != null) {
+            previous.cancel();
+            previous.sweep();
+        }
+        log.debug("Peer {} restarting, routes kept for {} seconds", bgpId, restart.restartTime());
+        stale.schedule(() -> updatePipeline.barrier(() -> {
+            if (staleRoutes.remove(bgpId, stale)) {
+                log.debug("Peer {} did not reconnect within restart time, routes withdrawn", bgpId);
+                stale.sweep();
+            }
+        }), restart.restartTime());
+    }
+
+    /**
+     * Hands the stale routes of a restarted peer over to its new session once queued updates are applied,
+     * advertises the exported routes the peer imports and sends End-of-RIB to the peer if graceful restart is
+     * negotiated.
+     *
+     * @param peer connected peer
+     */
+    void peerConnected(BgpPeerImpl peer) {
+        BgpId bgpId = peer.sessionInfo().remoteBgpId();
+        updatePipeline.barrier(() -> {
+            StaleRoutes stale = staleRoutes.remove(bgpId);
+            if (stale != null) {
+                peer.adoptStaleRoutes(stale);
+                if (peer.staleRoutes() == stale) {
+                    stale.schedule(() -> updatePipeline.barrier(() -> {
+                        if (peer.staleRoutes() == stale) {
+                            log.debug("Stale path time of peer {} expired, stale routes withdrawn", bgpId);
+                            peer.sweepStaleRoutes();
+                        }
+                    }), bgpconfig.getStalePathTime());
+                }
+            }
+        });
+        if (peer.isRtConstrainNegotiated()) {
+            peer.sendRtMembership();
+        }
+        evpnRouteExporter.refresh(peer);
+        if (peer.gracefulRestartCapability() != null) {
+            peer.sendEndOfRib();
+        }
+    }
+
+    /**
+     * Returns the export stage of locally originated EVPN routes.
+     *
+     * @return EVPN route exporter
+     */
+    public EvpnRouteExporter evpnRouteExporter() {
+        return evpnRouteExporter;
+    }
+
+    @Override
+    public void exportEvpn(OperationType operType, Ip4Address nextHop, List<BgpValueType> extCommunities,
+                           List<BgpEvpnNlri> routes) {
+        evpnRouteExporter.export(operType, nextHop, extCommunities, routes);
+    }
+
+    /**
+     * Returns whether the controller restarted within the configured restart time, so peers preserving the
+     * forwarding state of their routes are told the controller is restarting.
+     *
+     * @return true if the restart time did not expire since the controller started
+     */
+    boolean isRestarting() {
+        return System.currentTimeMillis() - startTime < TimeUnit.SECONDS.toMillis(bgpconfig.getRestartTime());
+    }
+
+    @Override
+    public List<BgpUpdateStageStats> updatePipelineStats() {
+        return updatePipeline.stats();
+    }
+
+    @Override
+    public List<BgpRibFootprint> ribFootprint() {
+        RibFootprintCollector collector = new RibFootprintCollector(ctrl.attributeSets());
+        for (BgpPeer peer : connectedPeers.values()) {
+            ((BgpPeerImpl) peer).ribFootprint(collector);
+        }
+        ((BgpLocalRibImpl) bgplocalRib).ribFootprint(collector, RibFootprintCollector.AFI_LS);
+        ((BgpLocalRibImpl) bgplocalRibVpn).ribFootprint(collector, RibFootprintCollector.AFI_LS_VPN);
+        ((BgpEvpnLocalRibImpl) bgpEvpnLocalRib).ribFootprint(collector);
+        ((BgpFlowSpecLocalRibImpl) bgpFlowSpecLocalRib).ribFootprint(collector);
+        return collector.footprints();
+    }
 }
@@ -0,0 +1,553 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
+
+import org.onlab.packet.IpAddress;
+import org.onosproject.bgp.controller.BgpController;
+import org.onosproject.bgp.controller.BgpEvpnListener;
+import org.onosproject.bgp.controller.BgpEvpnLocalRib;
+import org.onosproject.bgp.controller.BgpId;
+import org.onosproject.bgp.controller.BgpRibFootprint.Table;
+import org.onosproject.bgp.controller.BgpSessionInfo;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
+import org.onosproject.bgpio.protocol.evpn.BgpEthernetAutoDiscoveryNlriVer4;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnRouteKey;
+import org.onosproject.bgpio.protocol.evpn.BgpMacIpAdvNlriVer4;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetailsLocalRib;
+import org.onosproject.bgpio.types.BgpExtendedCommunity;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.NextHop;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+import org.onosproject.bgpio.types.RouteTarget;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Implementation of EVPN local RIB.
+ * <p>
+ * Every route key keeps the candidate paths received from each peer, so best
+ * path selection on a change only runs over the paths of that key. Selected
+ * routes are indexed by route distinguisher and route target.
+ * </p>
+ * <p>
+ * MAC/IP advertisement routes of multihomed Ethernet segments are indexed by
+ * Ethernet segment identifier. When the per Ethernet segment auto-discovery
+ * route of a provider edge is withdrawn, the paths of every MAC/IP route of
+ * that segment with the same next hop become ineligible at once, and they are
+ * eligible again when the auto-discovery route comes back. All changes caused
+ * by one update are given to the EVPN listeners in a single batch.
+ * </p>
+ * <p>
+ * Batches are queued while the RIB is locked and given to the listeners in
+ * the same order once it is released, so listeners may call back into the
+ * RIB or into other services without holding up its updates.
+ * </p>
+ */
+public class BgpEvpnLocalRibImpl implements BgpEvpnLocalRib {
+
+    private static final Logger log = LoggerFactory.getLogger(BgpEvpnLocalRibImpl.class);
+
+    private final BgpController bgpController;
+    private final CandidatePathIndex<BgpEvpnRouteKey> candidateIndex = new CandidatePathIndex<>();
+    private final Map<BgpEvpnRouteKey, PathAttrNlriDetailsLocalRib> evpnTree = new HashMap<>();
+    private final Map<BgpEvpnRouteKey, Map<BgpId, BgpEvpnNlri>> candidateNlris = new HashMap<>();
+    private final Map<BgpEvpnRouteKey, BgpEvpnNlri> evpnNlriTree = new HashMap<>();
+    private final Map<RouteDistinguisher, Set<BgpEvpnRouteKey>> rdIndex = new HashMap<>();
+    private final Map<RouteTarget, Set<BgpEvpnRouteKey>> rtIndex = new HashMap<>();
+    private final Map<EthernetSegmentidentifier, Set<BgpEvpnRouteKey>> esiIndex = new HashMap<>();
+    private final Map<EthernetSegmentidentifier, Map<BgpEvpnRouteKey, IpAddress>> segmentIndex = new HashMap<>();
+    private final Map<EthernetSegmentidentifier, Set<IpAddress>> withdrawnSegments = new HashMap<>();
+    private final Queue<Notification> notifications = new ConcurrentLinkedQueue<>();
+    private final Object notifyLock = new Object();
+
+    /**
+     * Constructor to initialize parameters.
+     *
+     * @param bgpController BGP controller notifying EVPN listeners
+     */
+    public BgpEvpnLocalRibImpl(BgpController bgpController) {
+        this.bgpController = bgpController;
+    }
+
+    @Override
+    public void add(BgpSessionInfo sessionInfo, BgpEvpnNlri nlri, PathAttrNlriDetails details)
+            throws BgpParseException {
+        checkNotNull(nlri);
+        BgpEvpnRouteKey routeKey = BgpEvpnRouteKey.of(nlri);
+        if (routeKey == null) {
+            log.debug("EVPN route type {} not supported in local RIB", nlri.getType());
+            return;
+        }
+        synchronized (this) {
+            addCandidate(sessionInfo, routeKey, nlri, details);
+        }
+        notifyListeners();
+    }
+
+    private void addCandidate(BgpSessionInfo sessionInfo, BgpEvpnRouteKey routeKey, BgpEvpnNlri nlri,
+                              PathAttrNlriDetails details) {
+
+        PathAttrNlriDetailsLocalRib detailsLocRib = new PathAttrNlriDetailsLocalRib(
+                                                               sessionInfo.remoteBgpId().ipAddress(),
+                                                               sessionInfo.remoteBgpIdentifier(),
+                                                               sessionInfo.remoteBgpASNum(),
+                                                               sessionInfo.isIbgpSession(), details);
+        candidateIndex.put(routeKey, sessionInfo.remoteBgpId(), detailsLocRib);
+        candidateNlris.computeIfAbsent(routeKey, k -> new HashMap<>()).put(sessionInfo.remoteBgpId(), nlri);
+        EthernetSegmentidentifier esi = multihomedSegment(routeKey);
+        if (esi != null) {
+            esiIndex.computeIfAbsent(esi, k -> new HashSet<>()).add(routeKey);
+        }
+        Map<BgpEvpnRouteKey, IpAddress> updated = new HashMap<>();
+        Set<BgpEvpnRouteKey> withdrawn = new LinkedHashSet<>();
+        selectBestPath(routeKey, updated, withdrawn);
+        queueNotification(updated, withdrawn);
+    }
+
+    @Override
+    public void delete(BgpSessionInfo sessionInfo, BgpEvpnNlri nlri) throws BgpParseException {
+        checkNotNull(nlri);
+        BgpEvpnRouteKey routeKey = BgpEvpnRouteKey.of(nlri);
+        if (routeKey != null) {
+            synchronized (this) {
+                Map<BgpEvpnRouteKey, IpAddress> updated = new HashMap<>();
+                Set<BgpEvpnRouteKey> withdrawn = new LinkedHashSet<>();
+                removeCandidate(sessionInfo.remoteBgpId(), routeKey, updated, withdrawn);
+                queueNotification(updated, withdrawn);
+            }
+            notifyListeners();
+        }
+    }
+
+    /**
+     * Removes all candidate paths of a peer, re-selecting best path only for the routes it advertised and
+     * notifying listeners of the resulting changes in one batch.
+     *
+     * @param sessionInfo session info of the disconnected peer
+     * @param adjRib EVPN adjacency RIB-in of the peer
+     */
+    public void localRibUpdate(BgpSessionInfo sessionInfo, EvpnAdjRibIn adjRib) {
+        log.debug("Update EVPN local RIB.");
+        synchronized (this) {
+            Map<BgpEvpnRouteKey, IpAddress> updated = new HashMap<>();
+            Set<BgpEvpnRouteKey> withdrawn = new LinkedHashSet<>();
+            for (BgpEvpnRouteKey routeKey : adjRib.evpnTree().keySet()) {
+                removeCandidate(sessionInfo.remoteBgpId(), routeKey, updated, withdrawn);
+            }
+            queueNotification(updated, withdrawn);
+        }
+        notifyListeners();
+    }
+
+    /**
+     * Removes candidate path of a peer for a route key and runs selection for it.
+     *
+     * @param bgpId peer id
+     * @param routeKey EVPN route key
+     * @param updated next hops of routes added or updated
+     * @param withdrawn routes removed
+     */
+    private void removeCandidate(BgpId bgpId, BgpEvpnRouteKey routeKey, Map<BgpEvpnRouteKey, IpAddress> updated,
+                                 Set<BgpEvpnRouteKey> withdrawn) {
+        if (candidateIndex.remove(routeKey, bgpId)) {
+            Map<BgpId, BgpEvpnNlri> nlris = candidateNlris.get(routeKey);
+            if (nlris != null && nlris.remove(bgpId) != null && nlris.isEmpty()) {
+                candidateNlris.remove(routeKey);
+            }
+            selectBestPath(routeKey, updated, withdrawn);
+        }
+    }
+
+    /**
+     * Runs best path selection over the eligible candidate paths of a route key, updates indexes and
+     * records the resulting change.
+     *
+     * @param routeKey EVPN route key
+     * @param updated next hops of routes added or updated
+     * @param withdrawn routes removed
+     */
+    private void selectBestPath(BgpEvpnRouteKey routeKey, Map<BgpEvpnRouteKey, IpAddress> updated,
+                                Set<BgpEvpnRouteKey> withdrawn) {
+        EthernetSegmentidentifier esi = multihomedSegment(routeKey);
+        Set<IpAddress> withdrawnNextHops = esi == null ? null : withdrawnSegments.get(esi);
+        PathAttrNlriDetailsLocalRib best = withdrawnNextHops == null ? candidateIndex.bestPath(routeKey)
+                : candidateIndex.bestPath(routeKey, path -> !withdrawnNextHops.contains(nextHop(path)));
+        if (!candidateIndex.keySet().contains(routeKey)) {
+            if (esi != null) {
+                unindexSegmentRoute(esi, routeKey);
+            }
+        }
+        PathAttrNlriDetailsLocalRib old = (best == null) ? evpnTree.remove(routeKey) : evpnTree.put(routeKey, best);
+        if (old == best) {
+            return;
+        }
+        // keep the NLRI of the peer whose path is selected
+        Map<BgpId, BgpEvpnNlri> nlris = best == null ? null : candidateNlris.get(routeKey);
+        BgpEvpnNlri bestNlri = nlris == null ? null : nlris.get(BgpId.bgpId(best.localRibIpAddress()));
+        if (bestNlri != null) {
+            evpnNlriTree.put(routeKey, bestNlri);
+        } else {
+            evpnNlriTree.remove(routeKey);
+        }
+        if (old != null) {
+            unindex(routeKey, old);
+        }
+        if (best != null) {
+            index(routeKey, best);
+            updated.put(routeKey, nextHop(best));
+            withdrawn.remove(routeKey);
+            log.debug("EVPN local RIB update route: {}", best);
+        } else {
+            updated.remove(routeKey);
+            withdrawn.add(routeKey);
+            log.debug("EVPN local RIB delete route: {}", routeKey);
+        }
+        if (isPerSegmentAutoDiscovery(routeKey)) {
+            segmentChanged(routeKey, old, best, updated, withdrawn);
+        }
+    }
+
+    /**
+     * Applies a change of the best path of a per Ethernet segment auto-discovery route to the MAC/IP
+     * advertisement routes of the segment.
+     *
+     * @param routeKey auto-discovery route key
+     * @param old old best path, null if the route was added
+     * @param best new best path, null if the route was removed
+     * @param updated next hops of routes added or updated
+     * @param withdrawn routes removed
+     */
+    private void segmentChanged(BgpEvpnRouteKey routeKey, PathAttrNlriDetailsLocalRib old,
+                                PathAttrNlriDetailsLocalRib best, Map<BgpEvpnRouteKey, IpAddress> updated,
+                                Set<BgpEvpnRouteKey> withdrawn) {
+        EthernetSegmentidentifier esi = routeKey.ethernetSegmentidentifier();
+        IpAddress oldNextHop = old == null ? null : nextHop(old);
+        IpAddress newNextHop = best == null ? null : nextHop(best);
+        if (Objects.equals(oldNextHop, newNextHop)) {
+            return;
+        }
+        boolean changed = false;
+        if (newNextHop != null) {
+            segmentIndex.computeIfAbsent(esi, k -> new HashMap<>()).put(routeKey, newNextHop);
+            Set<IpAddress> nextHops = withdrawnSegments.get(esi);
+            if (nextHops != null && nextHops.remove(newNextHop)) {
+                if (nextHops.isEmpty()) {
+                    withdrawnSegments.remove(esi);
+                }
+                changed = true;
+            }
+        } else {
+            Map<BgpEvpnRouteKey, IpAddress> adRoutes = segmentIndex.get(esi);
+            if (adRoutes != null && adRoutes.remove(routeKey) != null && adRoutes.isEmpty()) {
+                segmentIndex.remove(esi);
+            }
+        }
+        if (oldNextHop != null && esiIndex.containsKey(esi)) {
+            withdrawnSegments.computeIfAbsent(esi, k -> new HashSet<>()).add(oldNextHop);
+            changed = true;
+        }
+        if (!changed) {
+            return;
+        }
+        Set<BgpEvpnRouteKey> keys = esiIndex.get(esi);
+        log.debug("EVPN Ethernet segment {} next hop {} replaced by {}, reselecting {} routes", esi, oldNextHop,
+                  newNextHop, keys == null ? 0 : keys.size());
+        if (keys != null) {
+            for (BgpEvpnRouteKey key : new ArrayList<>(keys)) {
+                selectBestPath(key, updated, withdrawn);
+            }
+        }
+    }
+
+    private void unindexSegmentRoute(EthernetSegmentidentifier esi, BgpEvpnRouteKey routeKey) {
+        Set<BgpEvpnRouteKey> keys = esiIndex.get(esi);
+        if (keys != null && keys.remove(routeKey) && keys.isEmpty()) {
+            esiIndex.remove(esi);
+            withdrawnSegments.remove(esi);
+        }
+    }
+
+    /**
+     * Queues a batch of changes, called with the RIB locked so batches are queued in the order of the changes.
+     */
+    private void queueNotification(Map<BgpEvpnRouteKey, IpAddress> updated,
+                                   Collection<BgpEvpnRouteKey> withdrawn) {
+        if (!updated.isEmpty() || !withdrawn.isEmpty()) {
+            notifications.add(new Notification(updated, withdrawn));
+        }
+    }
+
+    /**
+     * Gives the queued batches to the listeners, called once the RIB is unlocked.
+     */
+    private void notifyListeners() {
+        synchronized (notifyLock) {
+            Notification notification;
+            while ((notification = notifications.poll()) != null) {
+                for (BgpEvpnListener l : bgpController.evpnListener()) {
+                    l.updateEvpnRoutes(notification.updated, notification.withdrawn);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the Ethernet segment of a MAC/IP advertisement route of a multihomed segment.
+     *
+     * @param routeKey EVPN route key
+     * @return Ethernet segment identifier, null if the route is not part of a multihomed segment
+     */
+    private static EthernetSegmentidentifier multihomedSegment(BgpEvpnRouteKey routeKey) {
+        if (routeKey.routeType() != BgpMacIpAdvNlriVer4.TYPE) {
+            return null;
+        }
+        EthernetSegmentidentifier esi = routeKey.ethernetSegmentidentifier();
+        if (esi == null) {
+            return null;
+        }
+        for (byte b : esi.getEthernetSegmentidentifier()) {
+            if (b != 0) {
+                return esi;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isPerSegmentAutoDiscovery(BgpEvpnRouteKey routeKey) {
+        return routeKey.routeType() == BgpEthernetAutoDiscoveryNlriVer4.TYPE
+                && routeKey.ethernetTagId() == BgpEthernetAutoDiscoveryNlriVer4.MAX_ETHERNET_TAG;
+    }
+
+    private void index(BgpEvpnRouteKey routeKey, PathAttrNlriDetailsLocalRib path) {
+        rdIndex.computeIfAbsent(routeKey.routeDistinguisher(), k -> new HashSet<>()).add(routeKey);
+        for (RouteTarget rt : routeTargets(path)) {
+            rtIndex.computeIfAbsent(rt, k -> new HashSet<>()).add(routeKey);
+        }
+    }
+
+    private void unindex(BgpEvpnRouteKey routeKey, PathAttrNlriDetailsLocalRib path) {
+        Set<BgpEvpnRouteKey> keys = rdIndex.get(routeKey.routeDistinguisher());
+        if (keys != null && keys.remove(routeKey) && keys.isEmpty()) {
+            rdIndex.remove(routeKey.routeDistinguisher());
+        }
+        for (RouteTarget rt : routeTargets(path)) {
+            keys = rtIndex.get(rt);
+            if (keys != null && keys.remove(routeKey) && keys.isEmpty()) {
+                rtIndex.remove(rt);
+            }
+        }
+    }
+
+    /**
+     * Returns the BGP next hop of a path, the address of the advertising peer if the path carries none.
+     *
+     * @param path local RIB path
+     * @return next hop
+     */
+    static IpAddress nextHop(PathAttrNlriDetailsLocalRib path) {
+        List<BgpValueType> pathAttributes = path.localRibNlridetails().pathAttributes();
+        if (pathAttributes != null) {
+            for (BgpValueType attr : pathAttributes) {
+                if (attr instanceof NextHop) {
+                    return ((NextHop) attr).nextHop();
+                }
+            }
+        }
+        return path.localRibIpAddress();
+    }
+
+    /**
+     * Returns route targets carried in the extended community attribute of a path.
+     *
+     * @param path local RIB path
+     * @return set of route targets
+     */
+    static Set<RouteTarget> routeTargets(PathAttrNlriDetailsLocalRib path) {
+        Set<RouteTarget> routeTargets = new HashSet<>();
+        List<BgpValueType> pathAttributes = path.localRibNlridetails().pathAttributes();
+        if (pathAttributes == null) {
+            return routeTargets;
+        }
+        for (BgpValueType attr : pathAttributes) {
+            if (attr instanceof BgpExtendedCommunity) {
+                for (BgpValueType extCom : ((BgpExtendedCommunity) attr).fsActionTlv()) {
+                    if (extCom instanceof RouteTarget) {
+                        routeTargets.add((RouteTarget) extCom);
+                    }
+                }
+            }
+        }
+        return routeTargets;
+    }
+
+    /**
+     * Returns the selected best path of a route.
+     *
+     * @param routeKey EVPN route key
+     * @return best path, null if route does not exist
+     */
+    public synchronized PathAttrNlriDetailsLocalRib bestPath(BgpEvpnRouteKey routeKey) {
+        return evpnTree.get(routeKey);
+    }
+
+    /**
+     * Returns the EVPN NLRI of a route.
+     *
+     * @param routeKey EVPN route key
+     * @return EVPN NLRI, null if route does not exist
+     */
+    public synchronized BgpEvpnNlri evpnNlri(BgpEvpnRouteKey routeKey) {
+        return evpnTree.containsKey(routeKey) ? evpnNlriTree.get(routeKey) : null;
+    }
+
+    @Override
+    public synchronized Map<BgpEvpnRouteKey, IpAddress> nextHops() {
+        Map<BgpEvpnRouteKey, IpAddress> nextHops = new HashMap<>();
+        for (Map.Entry<BgpEvpnRouteKey, PathAttrNlriDetailsLocalRib> entry : evpnTree.entrySet()) {
+            nextHops.put(entry.getKey(), nextHop(entry.getValue()));
+        }
+        return nextHops;
+    }
+
+    @Override
+    public synchronized Set<IpAddress> segmentNextHops(EthernetSegmentidentifier esi) {
+        Map<BgpEvpnRouteKey, IpAddress> adRoutes = segmentIndex.get(esi);
+        return adRoutes == null ? ImmutableSet.of() : ImmutableSet.copyOf(adRoutes.values());
+    }
+
+    /**
+     * Returns the selected MAC/IP advertisement routes of a multihomed Ethernet segment.
+     *
+     * @param esi Ethernet segment identifier
+     * @return set of route keys
+     */
+    public synchronized Set<BgpEvpnRouteKey> routesBySegment(EthernetSegmentidentifier esi) {
+        Set<BgpEvpnRouteKey> keys = esiIndex.get(esi);
+        if (keys == null) {
+            return ImmutableSet.of();
+        }
+        ImmutableSet.Builder<BgpEvpnRouteKey> builder = ImmutableSet.builder();
+        for (BgpEvpnRouteKey key : keys) {
+            if (evpnTree.containsKey(key)) {
+                builder.add(key);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns candidate paths of a route per advertising peer.
+     *
+     * @param routeKey EVPN route key
+     * @return candidate paths
+     */
+    public synchronized Map<BgpId, PathAttrNlriDetailsLocalRib> candidates(BgpEvpnRouteKey routeKey) {
+        return candidateIndex.candidates(routeKey);
+    }
+
+    /**
+     * Returns the selected routes with the given route distinguisher.
+     *
+     * @param rd route distinguisher
+     * @return set of route keys
+     */
+    public synchronized Set<BgpEvpnRouteKey> routesByRd(RouteDistinguisher rd) {
+        Set<BgpEvpnRouteKey> keys = rdIndex.get(rd);
+        return keys == null ? ImmutableSet.of() : ImmutableSet.copyOf(keys);
+    }
+
+    @Override
+    public synchronized Set<RouteTarget> routeTargets(BgpEvpnRouteKey routeKey) {
+        PathAttrNlriDetailsLocalRib path = evpnTree.get(routeKey);
+        return path == null ? ImmutableSet.of() : ImmutableSet.copyOf(routeTargets(path));
+    }
+
+    /**
+     * Returns the selected routes carrying the given route target.
+     *
+     * @param routeTarget route target
+     * @return set of route keys
+     */
+    public synchronized Set<BgpEvpnRouteKey> routesByRouteTarget(RouteTarget routeTarget) {
+        Set<BgpEvpnRouteKey> keys = rtIndex.get(routeTarget);
+        return keys == null ? ImmutableSet.of() : ImmutableSet.copyOf(keys);
+    }
+
+    /**
+     * Returns number of selected routes.
+     *
+     * @return number of routes
+     */
+    public synchronized int size() {
+        return evpnTree.size();
+    }
+
+    /**
+     * Adds memory footprint of the selected routes.
+     *
+     * @param collector footprint collector
+     */
+    synchronized void ribFootprint(RibFootprintCollector collector) {
+        long keyBytes = 0;
+        for (BgpEvpnRouteKey routeKey : evpnTree.keySet()) {
+            keyBytes += routeKey.encodedLength();
+        }
+        collector.add(Table.LOC_RIB, null, RibFootprintCollector.AFI_EVPN, evpnTree.values(),
+                      route -> route.localRibNlridetails().pathAttributes(), keyBytes);
+    }
+
+    /**
+     * Changes of the selected routes waiting to be given to the listeners.
+     */
+    private static final class Notification {
+        private final Map<BgpEvpnRouteKey, IpAddress> updated;
+        private final Collection<BgpEvpnRouteKey> withdrawn;
+
+        private Notification(Map<BgpEvpnRouteKey, IpAddress> updated, Collection<BgpEvpnRouteKey> withdrawn) {
+            this.updated = updated;
+            this.withdrawn = withdrawn;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return MoreObjects.toStringHelper(getClass()).omitNullValues()
+                .add("evpnTree", evpnTree)
+                .add("rdIndex", rdIndex.keySet())
+                .toString();
+    }
+}
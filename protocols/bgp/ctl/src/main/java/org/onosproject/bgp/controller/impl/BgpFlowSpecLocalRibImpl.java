@@ -0,0 +1,254 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+import org.onosproject.bgp.controller.BgpController;
+import org.onosproject.bgp.controller.BgpFlowSpecListener;
+import org.onosproject.bgp.controller.BgpFlowSpecLocalRib;
+import org.onosproject.bgp.controller.BgpId;
+import org.onosproject.bgp.controller.BgpRibFootprint.Table;
+import org.onosproject.bgp.controller.BgpSessionInfo;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecNlri;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecPrecedence;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecRouteKey;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetailsLocalRib;
+import org.onosproject.bgpio.types.BgpExtendedCommunity;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Implementation of flow specification local RIB.
+ * <p>
+ * Every route key keeps the candidate paths received from each peer. Selected
+ * flow specifications are kept in RFC 5575 order and carry the actions of
+ * their best path. Listeners are notified of each change, and of the changes
+ * caused by a peer going down as one batch.
+ * </p>
+ */
+public class BgpFlowSpecLocalRibImpl implements BgpFlowSpecLocalRib {
+
+    private static final Logger log = LoggerFactory.getLogger(BgpFlowSpecLocalRibImpl.class);
+
+    private final BgpController bgpController;
+    private final CandidatePathIndex<BgpFlowSpecRouteKey> candidateIndex = new CandidatePathIndex<>();
+    private final Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> receivedTree = new HashMap<>();
+    private final Map<BgpFlowSpecRouteKey, PathAttrNlriDetailsLocalRib> flowSpecTree = new HashMap<>();
+    private final Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> selectedTree = new HashMap<>();
+    private final TreeMap<BgpFlowSpecNlri, BgpFlowSpecRouteKey> precedenceTree =
+            new TreeMap<>(new BgpFlowSpecPrecedence());
+
+    /**
+     * Constructor to initialize parameters.
+     *
+     * @param bgpController BGP controller notifying flow specification listeners
+     */
+    public BgpFlowSpecLocalRibImpl(BgpController bgpController) {
+        this.bgpController = bgpController;
+    }
+
+    @Override
+    public synchronized void add(BgpSessionInfo sessionInfo, BgpFlowSpecRouteKey routeKey,
+                                 BgpFlowSpecNlri flowSpec, PathAttrNlriDetails details) {
+        checkNotNull(routeKey);
+        checkNotNull(flowSpec);
+        PathAttrNlriDetailsLocalRib detailsLocRib = new PathAttrNlriDetailsLocalRib(
+                                                               sessionInfo.remoteBgpId().ipAddress(),
+                                                               sessionInfo.remoteBgpIdentifier(),
+                                                               sessionInfo.remoteBgpASNum(),
+                                                               sessionInfo.isIbgpSession(), details);
+        candidateIndex.put(routeKey, sessionInfo.remoteBgpId(), detailsLocRib);
+        receivedTree.putIfAbsent(routeKey, flowSpec);
+        Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> added = new HashMap<>();
+        List<BgpFlowSpecRouteKey> deleted = new ArrayList<>();
+        selectBestPath(routeKey, added, deleted);
+        notifyListeners(added, deleted);
+    }
+
+    @Override
+    public synchronized void delete(BgpSessionInfo sessionInfo, BgpFlowSpecRouteKey routeKey) {
+        checkNotNull(routeKey);
+        Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> added = new HashMap<>();
+        List<BgpFlowSpecRouteKey> deleted = new ArrayList<>();
+        removeCandidate(sessionInfo.remoteBgpId(), routeKey, added, deleted);
+        notifyListeners(added, deleted);
+    }
+
+    /**
+     * Removes all candidate paths of a peer, re-selecting best path only for the routes it advertised and
+     * notifying listeners of the resulting changes in one batch.
+     *
+     * @param sessionInfo session info of the disconnected peer
+     * @param adjRib flow specification adjacency RIB-in of the peer
+     */
+    public synchronized void localRibUpdate(BgpSessionInfo sessionInfo, FlowSpecAdjRibIn adjRib) {
+        log.debug("Update flow specification local RIB.");
+        Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> added = new HashMap<>();
+        List<BgpFlowSpecRouteKey> deleted = new ArrayList<>();
+        for (BgpFlowSpecRouteKey routeKey : adjRib.flowSpecTree().keySet()) {
+            removeCandidate(sessionInfo.remoteBgpId(), routeKey, added, deleted);
+        }
+        notifyListeners(added, deleted);
+    }
+
+    private void removeCandidate(BgpId bgpId, BgpFlowSpecRouteKey routeKey,
+                                 Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> added,
+                                 List<BgpFlowSpecRouteKey> deleted) {
+        if (candidateIndex.remove(routeKey, bgpId)) {
+            selectBestPath(routeKey, added, deleted);
+        }
+    }
+
+    /**
+     * Runs best path selection over the candidate paths of a route key and records the resulting change.
+     *
+     * @param routeKey flow specification route key
+     * @param added flow specifications added or updated
+     * @param deleted route keys of flow specifications removed
+     */
+    private void selectBestPath(BgpFlowSpecRouteKey routeKey, Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> added,
+                                List<BgpFlowSpecRouteKey> deleted) {
+        PathAttrNlriDetailsLocalRib best = candidateIndex.bestPath(routeKey);
+        PathAttrNlriDetailsLocalRib old = (best == null) ? flowSpecTree.remove(routeKey)
+                                                         : flowSpecTree.put(routeKey, best);
+        if (old == best) {
+            return;
+        }
+        BgpFlowSpecNlri oldSelected = selectedTree.remove(routeKey);
+        if (oldSelected != null) {
+            precedenceTree.remove(oldSelected);
+        }
+        if (best == null) {
+            receivedTree.remove(routeKey);
+            added.remove(routeKey);
+            deleted.add(routeKey);
+            log.debug("Flow specification local RIB delete route: {}", routeKey);
+            return;
+        }
+        BgpFlowSpecNlri selected = selectedFlowSpec(receivedTree.get(routeKey), best);
+        selectedTree.put(routeKey, selected);
+        precedenceTree.put(selected, routeKey);
+        added.put(routeKey, selected);
+        log.debug("Flow specification local RIB update route: {}", best);
+    }
+
+    /**
+     * Returns a copy of a received flow specification carrying the actions of the best path.
+     *
+     * @param received received flow specification
+     * @param best best path
+     * @return selected flow specification
+     */
+    private static BgpFlowSpecNlri selectedFlowSpec(BgpFlowSpecNlri received, PathAttrNlriDetailsLocalRib best) {
+        BgpFlowSpecNlri selected = new BgpFlowSpecNlri(received.flowSpecComponents());
+        selected.setRouteDistinguiher(received.routeDistinguisher());
+        List<BgpValueType> actions = new ArrayList<>();
+        List<BgpValueType> pathAttributes = best.localRibNlridetails().pathAttributes();
+        if (pathAttributes != null) {
+            for (BgpValueType attr : pathAttributes) {
+                if (attr instanceof BgpExtendedCommunity && ((BgpExtendedCommunity) attr).fsActionTlv() != null) {
+                    actions.addAll(((BgpExtendedCommunity) attr).fsActionTlv());
+                }
+            }
+        }
+        selected.setFsActionTlv(ImmutableList.copyOf(actions));
+        return selected;
+    }
+
+    private void notifyListeners(Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> added,
+                                 Collection<BgpFlowSpecRouteKey> deleted) {
+        if (added.isEmpty() && deleted.isEmpty()) {
+            return;
+        }
+        for (BgpFlowSpecListener l : bgpController.flowSpecListener()) {
+            l.updateFlowSpecs(added, deleted);
+        }
+    }
+
+    @Override
+    public synchronized Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> flowSpecs() {
+        Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> flowSpecs = new LinkedHashMap<>();
+        for (Map.Entry<BgpFlowSpecNlri, BgpFlowSpecRouteKey> entry : precedenceTree.entrySet()) {
+            flowSpecs.put(entry.getValue(), entry.getKey());
+        }
+        return flowSpecs;
+    }
+
+    /**
+     * Returns the selected best path of a route.
+     *
+     * @param routeKey flow specification route key
+     * @return best path, null if route does not exist
+     */
+    public synchronized PathAttrNlriDetailsLocalRib bestPath(BgpFlowSpecRouteKey routeKey) {
+        return flowSpecTree.get(routeKey);
+    }
+
+    /**
+     * Returns candidate paths of a route per advertising peer.
+     *
+     * @param routeKey flow specification route key
+     * @return candidate paths
+     */
+    public synchronized Map<BgpId, PathAttrNlriDetailsLocalRib> candidates(BgpFlowSpecRouteKey routeKey) {
+        return candidateIndex.candidates(routeKey);
+    }
+
+    /**
+     * Returns number of selected routes.
+     *
+     * @return number of routes
+     */
+    public synchronized int size() {
+        return flowSpecTree.size();
+    }
+
+    /**
+     * Adds memory footprint of the selected routes.
+     *
+     * @param collector footprint collector
+     */
+    synchronized void ribFootprint(RibFootprintCollector collector) {
+        long keyBytes = 0;
+        for (BgpFlowSpecRouteKey routeKey : flowSpecTree.keySet()) {
+            keyBytes += routeKey.routeKey().length();
+        }
+        collector.add(Table.LOC_RIB, null, RibFootprintCollector.AFI_FLOWSPEC, flowSpecTree.values(),
+                      route -> route.localRibNlridetails().pathAttributes(), keyBytes);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return MoreObjects.toStringHelper(getClass()).omitNullValues()
+                .add("flowSpecTree", flowSpecTree)
+                .toString();
+    }
+}
@@ -16,57 +16,136 @@
 
 package org.onosproject.bgp.controller.impl;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Implement sending keepalive message to connected peer periodically based on negotiated holdtime.
+ * <p>
+ * The timer runs on the session timer of the controller, shared by all peers. A keepalive is skipped when another
+ * message, such as an UPDATE, was written to the peer shortly before it was due.
+ * </p>
  */
 public class BgpKeepAliveTimer {
 
-    private Timer keepAliveTimer;
-    private BgpChannelHandler handler;
     private static final Logger log = LoggerFactory.getLogger(BgpKeepAliveTimer.class);
 
+    private final Timer timer;
+    private final BgpTimerStats stats;
+    private final long intervalMillis;
+    private final LongSupplier lastWriteTime;
+    private final KeepAliveSender sender;
+    private volatile Timeout timeout;
+    private volatile boolean cancelled;
+
     /**
-     * Gets keepalive timer object.
+     * Initialize timer to send keepalive message periodically, the first keepalive is sent immediately.
      *
-     * @return keepAliveTimer keepalive timer.
+     * @param h channel handler
+     * @param seconds time interval.
      */
-    public Timer getKeepAliveTimer() {
-        return keepAliveTimer;
+    public BgpKeepAliveTimer(BgpChannelHandler h, int seconds) {
+        this(h.timer(), h.getBgpTimerStats(), TimeUnit.SECONDS.toMillis(seconds), h::lastWriteTime, () -> {
+            h.sendKeepAliveMessage();
+            h.getBgpPacketStats().addOutPacket();
+        });
     }
 
     /**
-     * Initialize timer to send keepalive message periodically.
+     * Initialize timer to send keepalive messages periodically, the first keepalive is sent immediately.
      *
-     * @param h channel handler
-     * @param seconds time interval.
+     * @param timer timer running the keepalive task
+     * @param stats timer statistics of the session
+     * @param intervalMillis keepalive interval in milliseconds
+     * @param lastWriteTime supplies the time the last write to the peer completed
+     * @param sender sends a keepalive message to the peer
      */
-    public BgpKeepAliveTimer(BgpChannelHandler h, int seconds) {
-        this.handler = h;
-        this.keepAliveTimer = new Timer();
-        this.keepAliveTimer.schedule(new SendKeepAlive(), 0, seconds * 1000);
+    public BgpKeepAliveTimer(Timer timer, BgpTimerStats stats, long intervalMillis, LongSupplier lastWriteTime,
+                             KeepAliveSender sender) {
+        this.timer = timer;
+        this.stats = stats;
+        this.intervalMillis = intervalMillis;
+        this.lastWriteTime = lastWriteTime;
+        this.sender = sender;
+        this.stats.setKeepAliveInterval(intervalMillis);
+        schedule(new SendKeepAlive(true), 0);
+    }
+
+    /**
+     * Stops sending keepalive messages.
+     */
+    public void cancel() {
+        cancelled = true;
+        Timeout t = timeout;
+        if (t != null) {
+            t.cancel();
+        }
+        stats.setKeepAliveInterval(0);
+    }
+
+    private void schedule(SendKeepAlive task, long delayMillis) {
+        if (!cancelled) {
+            timeout = timer.newTimeout(task, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends a keepalive message to the peer.
+     */
+    @FunctionalInterface
+    public interface KeepAliveSender {
+
+        /**
+         * Sends a keepalive message.
+         *
+         * @throws Exception if the message could not be sent
+         */
+        void send() throws Exception;
     }
 
     /**
      * Send keepalive message to connected peer on schedule.
      */
-    class SendKeepAlive extends TimerTask {
+    class SendKeepAlive implements TimerTask {
+        private final boolean force;
+
+        SendKeepAlive(boolean force) {
+            this.force = force;
+        }
+
         @Override
-        public void run() {
-            log.debug("Sending periodic KeepAlive");
+        public void run(Timeout t) {
+            if (t.isCancelled() || cancelled) {
+                return;
+            }
 
+            long idle = System.currentTimeMillis() - lastWriteTime.getAsLong();
+            if (!force && idle < intervalMillis / 2) {
+                /*
+                 * Another message was written recently and already refreshed the peer hold timer, check again
+                 * one interval after it. Writes older than half the interval, which include the completion of
+                 * the previous keepalive, do not suppress the keepalive.
+                 */
+                stats.addKeepAliveCoalesced();
+                schedule(new SendKeepAlive(false), intervalMillis - idle);
+                return;
+            }
+
+            log.debug("Sending periodic KeepAlive");
             try {
                 // Send keep alive message
-                handler.sendKeepAliveMessage();
-                handler.getBgpPacketStats().addOutPacket();
+                sender.send();
+                stats.addKeepAliveSent();
             } catch (Exception e) {
                 log.info("Exception occured while sending keepAlive message" + e.toString());
             }
+            schedule(new SendKeepAlive(false), intervalMillis);
         }
     }
 }
@@ -20,6 +20,7 @@ import org.onosproject.bgp.controller.BgpId;
 import org.onosproject.bgp.controller.BgpLinkListener;
 import org.onosproject.bgp.controller.BgpLocalRib;
 import org.onosproject.bgp.controller.BgpNodeListener;
+import org.onosproject.bgp.controller.BgpRibFootprint.Table;
 import org.onosproject.bgp.controller.BgpSessionInfo;
 import org.onosproject.bgpio.exceptions.BgpParseException;
 import org.onosproject.bgpio.protocol.BgpLSNlri;
@@ -35,8 +36,13 @@ import org.onosproject.bgpio.types.RouteDistinguisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -60,6 +66,10 @@ public class BgpLocalRibImpl implements BgpLocalRib {
     private Map<RouteDistinguisher, Map<BgpPrefixLSIdentifier, PathAttrNlriDetailsLocalRib>> vpnPrefixTree
                                                                                                    = new TreeMap<>();
 
+    private CandidatePathIndex<BgpNodeLSIdentifier> nodeCandidates = new CandidatePathIndex<>();
+    private CandidatePathIndex<BgpLinkLSIdentifier> linkCandidates = new CandidatePathIndex<>();
+    private CandidatePathIndex<BgpPrefixLSIdentifier> prefixCandidates = new CandidatePathIndex<>();
+
     public BgpLocalRibImpl(BgpController bgpController) {
         this.bgpController = bgpController;
     }
@@ -119,9 +129,8 @@ public class BgpLocalRibImpl implements BgpLocalRib {
     }
 
     @Override
-    public void add(BgpSessionInfo sessionInfo, BgpLSNlri nlri, PathAttrNlriDetails details) throws BgpParseException {
-        int decisionResult;
-
+    public synchronized void add(BgpSessionInfo sessionInfo, BgpLSNlri nlri, PathAttrNlriDetails details)
+            throws BgpParseException {
         log.debug("Add to local RIB {}", details.toString());
 
         PathAttrNlriDetailsLocalRib detailsLocRib = new PathAttrNlriDetailsLocalRib(
@@ -131,112 +140,82 @@ public class BgpLocalRibImpl implements BgpLocalRib {
                                                                sessionInfo.isIbgpSession(), details);
         if (nlri instanceof BgpNodeLSNlriVer4) {
             BgpNodeLSIdentifier nodeLsIdentifier = ((BgpNodeLSNlriVer4) nlri).getLocalNodeDescriptors();
-            if (nodeTree.containsKey(nodeLsIdentifier)) {
-                BgpSelectionAlgo selectionAlgo = new BgpSelectionAlgo();
-                // Compare local RIB entry with the current attribute
-                decisionResult = selectionAlgo.compare(nodeTree.get(nodeLsIdentifier), detailsLocRib);
-                if (decisionResult <= 0) {
-                    for (BgpNodeListener l : bgpController.listener()) {
-                        l.addNode((BgpNodeLSNlriVer4) nlri, details);
-                    }
-                    nodeTree.replace(nodeLsIdentifier, detailsLocRib);
-                    log.debug("Local RIB update node: {}", detailsLocRib.toString());
-                }
-            } else {
-                nodeTree.put(nodeLsIdentifier, detailsLocRib);
-                for (BgpNodeListener l : bgpController.listener()) {
-                    l.addNode((BgpNodeLSNlriVer4) nlri, details);
-                }
-                log.debug("Local RIB ad node: {}", detailsLocRib.toString());
-            }
+            nodeCandidates.put(nodeLsIdentifier, sessionInfo.remoteBgpId(), detailsLocRib);
+            selectionProcessNode(nlri, nodeLsIdentifier);
         } else if (nlri instanceof BgpLinkLsNlriVer4) {
             BgpLinkLSIdentifier linkLsIdentifier = ((BgpLinkLsNlriVer4) nlri).getLinkIdentifier();
-            if (linkTree.containsKey(linkLsIdentifier)) {
-                BgpSelectionAlgo selectionAlgo = new BgpSelectionAlgo();
-                // Compare local RIB entry with the current attribute
-                decisionResult = selectionAlgo.compare(linkTree.get(linkLsIdentifier), detailsLocRib);
-                if (decisionResult <= 0) {
-                    linkTree.replace(linkLsIdentifier, detailsLocRib);
-                    for (BgpLinkListener l : bgpController.linkListener()) {
-                        l.addLink((BgpLinkLsNlriVer4) nlri, details);
-                    }
-                    log.debug("Local RIB update link: {}", detailsLocRib.toString());
-                }
-            } else {
-                linkTree.put(linkLsIdentifier, detailsLocRib);
-                for (BgpLinkListener l : bgpController.linkListener()) {
-                    l.addLink((BgpLinkLsNlriVer4) nlri, details);
-                }
-                log.debug("Local RIB add link: {}", detailsLocRib.toString());
-            }
+            linkCandidates.put(linkLsIdentifier, sessionInfo.remoteBgpId(), detailsLocRib);
+            selectionProcessLink(nlri, linkLsIdentifier);
         } else if (nlri instanceof BgpPrefixIPv4LSNlriVer4) {
             BgpPrefixLSIdentifier prefixIdentifier = ((BgpPrefixIPv4LSNlriVer4) nlri).getPrefixIdentifier();
-            if (prefixTree.containsKey(prefixIdentifier)) {
-                BgpSelectionAlgo selectionAlgo = new BgpSelectionAlgo();
-                // Compare local RIB entry with the current attribute
-                decisionResult = selectionAlgo.compare(prefixTree.get(prefixIdentifier), detailsLocRib);
-                if (decisionResult <= 0) {
-                    prefixTree.replace(prefixIdentifier, detailsLocRib);
-                    log.debug("Local RIB update prefix: {}", detailsLocRib.toString());
-                }
-            } else {
-                prefixTree.put(prefixIdentifier, detailsLocRib);
-                log.debug("Local RIB add prefix: {}", detailsLocRib.toString());
-            }
+            prefixCandidates.put(prefixIdentifier, sessionInfo.remoteBgpId(), detailsLocRib);
+            selectionProcessPrefix(prefixIdentifier);
         }
     }
 
     @Override
-    public void delete(BgpLSNlri nlri) throws BgpParseException {
+    public synchronized void delete(BgpSessionInfo sessionInfo, BgpLSNlri nlri) throws BgpParseException {
         log.debug("Delete from local RIB.");
 
         // Update local RIB
-        decisionProcess(nlri);
+        decisionProcess(sessionInfo.remoteBgpId(), nlri);
     }
 
     /**
      * Update local RIB based on selection algorithm.
      *
+     * @param bgpId id of the peer which withdrew the NLRI
      * @param nlri NLRI to update
      * @throws BgpParseException while updating to local RIB
      */
-    public void decisionProcess(BgpLSNlri nlri) throws BgpParseException {
+    public void decisionProcess(BgpId bgpId, BgpLSNlri nlri) throws BgpParseException {
         checkNotNull(nlri);
         if (nlri instanceof BgpNodeLSNlriVer4) {
-            selectionProcessNode(nlri, false);
+            BgpNodeLSIdentifier nodeLsIdentifier = ((BgpNodeLSNlriVer4) nlri).getLocalNodeDescriptors();
+            if (nodeCandidates.remove(nodeLsIdentifier, bgpId)) {
+                selectionProcessNode(nlri, nodeLsIdentifier);
+            }
         } else if (nlri instanceof BgpLinkLsNlriVer4) {
-            selectionProcessLink(nlri, false);
+            BgpLinkLSIdentifier linkLsIdentifier = ((BgpLinkLsNlriVer4) nlri).getLinkIdentifier();
+            if (linkCandidates.remove(linkLsIdentifier, bgpId)) {
+                selectionProcessLink(nlri, linkLsIdentifier);
+            }
         } else if (nlri instanceof BgpPrefixIPv4LSNlriVer4) {
-            selectionProcessPrefix(nlri, false);
+            BgpPrefixLSIdentifier prefixIdentifier = ((BgpPrefixIPv4LSNlriVer4) nlri).getPrefixIdentifier();
+            if (prefixCandidates.remove(prefixIdentifier, bgpId)) {
+                selectionProcessPrefix(prefixIdentifier);
+            }
         }
     }
 
     /**
      * Update VPN local RIB .
      *
+     * @param bgpId id of the peer which withdrew the NLRI
      * @param nlri NLRI to update
      * @param routeDistinguisher VPN id to update
      * @throws BgpParseException BGP parse exception
      */
-    public void decisionProcess(BgpLSNlri nlri, RouteDistinguisher routeDistinguisher) throws BgpParseException {
+    public void decisionProcess(BgpId bgpId, BgpLSNlri nlri, RouteDistinguisher routeDistinguisher)
+            throws BgpParseException {
         checkNotNull(nlri);
         if (nlri instanceof BgpNodeLSNlriVer4) {
             if (vpnNodeTree.containsKey(routeDistinguisher)) {
-                selectionProcessNode(nlri, true);
+                decisionProcess(bgpId, nlri);
                 if (nodeTree.size() == 0) {
                     vpnNodeTree.remove(routeDistinguisher);
                 }
             }
         } else if (nlri instanceof BgpLinkLsNlriVer4) {
             if (vpnLinkTree.containsKey(routeDistinguisher)) {
-                selectionProcessLink(nlri, true);
+                decisionProcess(bgpId, nlri);
                 if (linkTree.size() == 0) {
                     vpnLinkTree.remove(routeDistinguisher);
                 }
             }
         } else if (nlri instanceof BgpPrefixIPv4LSNlriVer4) {
             if (vpnPrefixTree.containsKey(routeDistinguisher)) {
-                selectionProcessPrefix(nlri, true);
+                decisionProcess(bgpId, nlri);
                 if (prefixTree.size() == 0) {
                     vpnPrefixTree.remove(routeDistinguisher);
                 }
@@ -244,201 +223,109 @@ public class BgpLocalRibImpl implements BgpLocalRib {
         }
     }
 
-     /**
-     * Selection process for local RIB node.
+    /**
+     * Selection process for local RIB node, compares only the candidate paths of the node.
      *
      * @param nlri NLRI to update
-     * @param isVpnRib true if VPN  local RIB, otherwise false
-     * @throws BgpParseException throws BGP parse exception
+     * @param nodeLsIdentifier node identifier
      */
-    public void selectionProcessNode(BgpLSNlri nlri, boolean isVpnRib) throws BgpParseException {
-        BgpPeerImpl peer;
-        BgpSessionInfo sessionInfo;
-        int decisionResult;
-        boolean containsKey;
-
-        BgpNodeLSIdentifier nodeLsIdentifier = ((BgpNodeLSNlriVer4) nlri).getLocalNodeDescriptors();
-
-        if (nodeTree.containsKey(nodeLsIdentifier)) {
+    private void selectionProcessNode(BgpLSNlri nlri, BgpNodeLSIdentifier nodeLsIdentifier) {
+        PathAttrNlriDetailsLocalRib best = nodeCandidates.bestPath(nodeLsIdentifier);
+        PathAttrNlriDetailsLocalRib current = nodeTree.get(nodeLsIdentifier);
+        if (best == current) {
+            return;
+        }
+        if (best == null) {
             for (BgpNodeListener l : bgpController.listener()) {
                 l.deleteNode((BgpNodeLSNlriVer4) nlri);
             }
             log.debug("Local RIB delete node: {}", nodeLsIdentifier.toString());
             nodeTree.remove(nodeLsIdentifier);
+            return;
         }
-
-        for (BgpId bgpId : bgpController.connectedPeers().keySet()) {
-            peer = (BgpPeerImpl) (bgpController.getPeer(bgpId));
-
-            if (nodeTree.containsKey(nodeLsIdentifier)) {
-                containsKey = (!isVpnRib) ? (peer.adjacencyRib().nodeTree().containsKey(nodeLsIdentifier)) :
-                                            (peer.vpnAdjacencyRib().nodeTree().containsKey(nodeLsIdentifier));
-
-                if (!containsKey) {
-                    continue;
-                }
-                sessionInfo = peer.sessionInfo();
-                PathAttrNlriDetailsLocalRib detailsLocRib = new PathAttrNlriDetailsLocalRib(
-                                                                sessionInfo.remoteBgpId().ipAddress(),
-                                                                sessionInfo.remoteBgpIdentifier(),
-                                                                sessionInfo.remoteBgpASNum(),
-                                                                sessionInfo.isIbgpSession(),
-                                                                (!isVpnRib) ?
-                                                                (peer.adjacencyRib().nodeTree()
-                                                                                    .get(nodeLsIdentifier)) :
-                                                                (peer.vpnAdjacencyRib().nodeTree()
-                                                                                        .get(nodeLsIdentifier)));
-                BgpSelectionAlgo selectionAlgo = new BgpSelectionAlgo();
-                decisionResult = selectionAlgo.compare(nodeTree.get(nodeLsIdentifier), detailsLocRib);
-                if (decisionResult < 0) {
-                    nodeTree.replace(nodeLsIdentifier, detailsLocRib);
-                    log.debug("Local RIB node updated: {}", detailsLocRib.toString());
-                }
-            } else {
-                if (!isVpnRib) {
-                    if (peer.adjacencyRib().nodeTree().containsKey(nodeLsIdentifier)) {
-                        add(peer.sessionInfo(), nlri, peer.adjacencyRib().nodeTree().get(nodeLsIdentifier));
-                    }
-                } else {
-                    if (peer.vpnAdjacencyRib().nodeTree().containsKey(nodeLsIdentifier)) {
-                        add(peer.sessionInfo(), nlri, peer.vpnAdjacencyRib().nodeTree().get(nodeLsIdentifier));
-                    }
-                }
-            }
+        nodeTree.put(nodeLsIdentifier, best);
+        for (BgpNodeListener l : bgpController.listener()) {
+            l.addNode((BgpNodeLSNlriVer4) nlri, best.localRibNlridetails());
         }
+        log.debug("Local RIB update node: {}", best.toString());
     }
 
-     /**
-     * Selection process for local RIB link.
+    /**
+     * Selection process for local RIB link, compares only the candidate paths of the link.
      *
      * @param nlri NLRI to update
-     * @param isVpnRib true if VPN local RIB, otherwise false
+     * @param linkLsIdentifier link identifier
      * @throws BgpParseException BGP parse exception
      */
-    public void selectionProcessLink(BgpLSNlri nlri, boolean isVpnRib) throws BgpParseException {
-        BgpPeerImpl peer;
-        BgpSessionInfo sessionInfo;
-        int decisionResult;
-        boolean containsKey;
-
-        BgpLinkLSIdentifier linkLsIdentifier = ((BgpLinkLsNlriVer4) nlri).getLinkIdentifier();
-
-        if (linkTree.containsKey(linkLsIdentifier)) {
+    private void selectionProcessLink(BgpLSNlri nlri, BgpLinkLSIdentifier linkLsIdentifier)
+            throws BgpParseException {
+        PathAttrNlriDetailsLocalRib best = linkCandidates.bestPath(linkLsIdentifier);
+        PathAttrNlriDetailsLocalRib current = linkTree.get(linkLsIdentifier);
+        if (best == current) {
+            return;
+        }
+        if (best == null) {
             log.debug("Local RIB remove link: {}", linkLsIdentifier.toString());
             for (BgpLinkListener l : bgpController.linkListener()) {
                 l.deleteLink((BgpLinkLsNlriVer4) nlri);
             }
             linkTree.remove(linkLsIdentifier);
+            return;
         }
-
-        for (BgpId bgpId : bgpController.connectedPeers().keySet()) {
-            peer = (BgpPeerImpl) (bgpController.getPeer(bgpId));
-
-            if (linkTree.containsKey(linkLsIdentifier)) {
-
-                containsKey = (!isVpnRib) ? (peer.adjacencyRib().linkTree().containsKey(linkLsIdentifier)) :
-                                            (peer.vpnAdjacencyRib().linkTree().containsKey(linkLsIdentifier));
-
-                if (!containsKey) {
-                    continue;
-                }
-
-                sessionInfo = peer.sessionInfo();
-
-                PathAttrNlriDetailsLocalRib detailsLocRib = new PathAttrNlriDetailsLocalRib(
-                                                            sessionInfo.remoteBgpId().ipAddress(),
-                                                            sessionInfo.remoteBgpIdentifier(),
-                                                            sessionInfo.remoteBgpASNum(),
-                                                            sessionInfo.isIbgpSession(),
-                                                            ((!isVpnRib) ?
-                                                            (peer.adjacencyRib().linkTree().get(linkLsIdentifier)) :
-                                                            (peer.vpnAdjacencyRib().linkTree()
-                                                                                   .get(linkLsIdentifier))));
-
-                BgpSelectionAlgo selectionAlgo = new BgpSelectionAlgo();
-                decisionResult = selectionAlgo.compare(linkTree.get(linkLsIdentifier), detailsLocRib);
-                if (decisionResult < 0) {
-                    linkTree.replace(linkLsIdentifier, detailsLocRib);
-                    log.debug("Local RIB link updated: {}", detailsLocRib.toString());
-                }
-            } else {
-                if (!isVpnRib) {
-                    if (peer.adjacencyRib().linkTree().containsKey(linkLsIdentifier)) {
-                        add(peer.sessionInfo(), nlri, peer.adjacencyRib().linkTree().get(linkLsIdentifier));
-                    }
-                } else {
-                    if (peer.vpnAdjacencyRib().linkTree().containsKey(linkLsIdentifier)) {
-                        add(peer.sessionInfo(), nlri, peer.vpnAdjacencyRib().linkTree().get(linkLsIdentifier));
-                    }
-                }
-            }
+        linkTree.put(linkLsIdentifier, best);
+        for (BgpLinkListener l : bgpController.linkListener()) {
+            l.addLink((BgpLinkLsNlriVer4) nlri, best.localRibNlridetails());
         }
+        log.debug("Local RIB update link: {}", best.toString());
     }
 
-     /**
-     * Selection process for local RIB prefix.
+    /**
+     * Selection process for local RIB prefix, compares only the candidate paths of the prefix.
      *
-     * @param nlri NLRI to update
-     * @param isVpnRib true if VPN local RIB, otherwise false
-     * @throws BgpParseException BGP parse exception
+     * @param prefixIdentifier prefix identifier
      */
-    public void selectionProcessPrefix(BgpLSNlri nlri, boolean isVpnRib) throws BgpParseException {
-        BgpPeerImpl peer;
-        BgpSessionInfo sessionInfo;
-        int decisionResult;
-        boolean containsKey;
-
-        BgpPrefixLSIdentifier prefixIdentifier = ((BgpPrefixIPv4LSNlriVer4) nlri).getPrefixIdentifier();
-        if (prefixTree.containsKey(prefixIdentifier)) {
-            log.debug("Local RIB remove prefix: {}", prefixIdentifier.toString());
-            prefixTree.remove(prefixIdentifier);
+    private void selectionProcessPrefix(BgpPrefixLSIdentifier prefixIdentifier) {
+        PathAttrNlriDetailsLocalRib best = prefixCandidates.bestPath(prefixIdentifier);
+        if (best == null) {
+            if (prefixTree.remove(prefixIdentifier) != null) {
+                log.debug("Local RIB remove prefix: {}", prefixIdentifier.toString());
+            }
+            return;
         }
+        if (prefixTree.put(prefixIdentifier, best) != best) {
+            log.debug("Local RIB update prefix: {}", best.toString());
+        }
+    }
 
-        for (BgpId bgpId : bgpController.connectedPeers().keySet()) {
-            peer = (BgpPeerImpl) (bgpController.getPeer(bgpId));
+    /**
+     * Returns candidate node paths received from peers.
+     *
+     * @return node candidate path index
+     */
+    public CandidatePathIndex<BgpNodeLSIdentifier> nodeCandidates() {
+        return nodeCandidates;
+    }
 
-            if (prefixTree.containsKey(prefixIdentifier)) {
+    /**
+     * Returns candidate link paths received from peers.
+     *
+     * @return link candidate path index
+     */
+    public CandidatePathIndex<BgpLinkLSIdentifier> linkCandidates() {
+        return linkCandidates;
+    }
 
-                containsKey = (!isVpnRib) ? (peer.adjacencyRib().prefixTree().containsKey(prefixIdentifier)) :
-                                            (peer.vpnAdjacencyRib().prefixTree().containsKey(prefixIdentifier));
-                if (!containsKey) {
-                    continue;
-                }
-                sessionInfo = peer.sessionInfo();
-
-                PathAttrNlriDetailsLocalRib detailsLocRib = new PathAttrNlriDetailsLocalRib(
-                                                                sessionInfo.remoteBgpId().ipAddress(),
-                                                                sessionInfo.remoteBgpIdentifier(),
-                                                                sessionInfo.remoteBgpASNum(),
-                                                                sessionInfo.isIbgpSession(),
-                                                                ((!isVpnRib) ?
-                                                                (peer.adjacencyRib().prefixTree()
-                                                                                    .get(prefixIdentifier)) :
-                                                                (peer.vpnAdjacencyRib().prefixTree()
-                                                                                       .get(prefixIdentifier))));
-
-                BgpSelectionAlgo selectionAlgo = new BgpSelectionAlgo();
-                decisionResult = selectionAlgo.compare(prefixTree.get(prefixIdentifier), detailsLocRib);
-                if (decisionResult < 0) {
-                    prefixTree.replace(prefixIdentifier, detailsLocRib);
-                    log.debug("local RIB prefix updated: {}", detailsLocRib.toString());
-                }
-            } else {
-                    if (!isVpnRib) {
-                        if (peer.adjacencyRib().prefixTree().containsKey(prefixIdentifier)) {
-                            add(peer.sessionInfo(), nlri, peer.adjacencyRib().prefixTree().get(prefixIdentifier));
-                    } else {
-                        if (peer.vpnAdjacencyRib().prefixTree().containsKey(prefixIdentifier)) {
-                            add(peer.sessionInfo(), nlri, peer.vpnAdjacencyRib().prefixTree().get(prefixIdentifier));
-                        }
-                    }
-                }
-            }
-        }
+    /**
+     * Returns candidate prefix paths received from peers.
+     *
+     * @return prefix candidate path index
+     */
+    public CandidatePathIndex<BgpPrefixLSIdentifier> prefixCandidates() {
+        return prefixCandidates;
     }
 
     @Override
-    public void add(BgpSessionInfo sessionInfo, BgpLSNlri nlri, PathAttrNlriDetails details,
+    public synchronized void add(BgpSessionInfo sessionInfo, BgpLSNlri nlri, PathAttrNlriDetails details,
                     RouteDistinguisher routeDistinguisher) throws BgpParseException {
         add(sessionInfo, nlri, details);
         if (nlri instanceof BgpNodeLSNlriVer4) {
@@ -457,166 +344,173 @@ public class BgpLocalRibImpl implements BgpLocalRib {
     }
 
     @Override
-    public void delete(BgpLSNlri nlri, RouteDistinguisher routeDistinguisher) throws BgpParseException {
+    public synchronized void delete(BgpSessionInfo sessionInfo, BgpLSNlri nlri, RouteDistinguisher routeDistinguisher)
+            throws BgpParseException {
         // Update local RIB
-        decisionProcess(nlri, routeDistinguisher);
+        decisionProcess(sessionInfo.remoteBgpId(), nlri, routeDistinguisher);
+    }
+
+    /**
+     * Update localRIB on peer disconnect. Withdraws all paths of the peer in one pass, re-selects best path
+     * of the affected keys and notifies listeners with one batched delta.
+     *
+     * @param bgpId id of the disconnected peer
+     * @param adjRibIn adjacency RIB-in
+     * @throws BgpParseException BGP parse exception
+     */
+    public synchronized void localRibUpdate(BgpId bgpId, AdjRibIn adjRibIn) throws BgpParseException {
+        log.debug("Update local RIB.");
+
+        bulkWithdraw(bgpId, adjRibIn.nodeTree(), adjRibIn.linkTree(), adjRibIn.prefixTree(),
+                     Collections.emptyMap());
     }
 
     /**
-     * Update local RIB node based on avaliable peer adjacency RIB.
+     * Update VPN localRIB on peer disconnect. Withdraws all paths of the peer in one pass, re-selects best
+     * path of the affected keys and notifies listeners with one batched delta.
      *
-     * @param o adjacency-in/VPN adjacency-in
+     * @param bgpId id of the disconnected peer
+     * @param vpnAdjRibIn VPN adjacency RIB-in
      * @throws BgpParseException BGP parse exception
      */
-    public void localRibUpdateNode(Object o) throws BgpParseException {
+    public synchronized void localRibUpdate(BgpId bgpId, VpnAdjRibIn vpnAdjRibIn) throws BgpParseException {
+        log.debug("Update VPN local RIB.");
 
-        if (o instanceof AdjRibIn) {
-            AdjRibIn adjRib = (AdjRibIn) o;
-            log.debug("Update local RIB node.");
+        Map<Object, RouteDistinguisher> vpnKeys = new HashMap<>();
+        vpnAdjRibIn.vpnNodeTree().forEach((rd, tree) -> tree.keySet().forEach(key -> vpnKeys.put(key, rd)));
+        vpnAdjRibIn.vpnLinkTree().forEach((rd, tree) -> tree.keySet().forEach(key -> vpnKeys.put(key, rd)));
+        vpnAdjRibIn.vpnPrefixTree().forEach((rd, tree) -> tree.keySet().forEach(key -> vpnKeys.put(key, rd)));
 
-            Set<BgpNodeLSIdentifier> nodeKeys = adjRib.nodeTree().keySet();
-            for (BgpNodeLSIdentifier key : nodeKeys) {
-                PathAttrNlriDetails pathAttrNlri = adjRib.nodeTree().get(key);
+        bulkWithdraw(bgpId, vpnAdjRibIn.nodeTree(), vpnAdjRibIn.linkTree(), vpnAdjRibIn.prefixTree(), vpnKeys);
 
-                BgpNodeLSNlriVer4 nodeNlri = new BgpNodeLSNlriVer4(pathAttrNlri.identifier(), pathAttrNlri
-                                                                   .protocolID().getType(), key, false, null);
-                decisionProcess(nodeNlri);
-            }
+        if (nodeTree.isEmpty()) {
+            vpnNodeTree.keySet().removeAll(vpnKeys.values());
         }
-
-        if (o instanceof VpnAdjRibIn) {
-            VpnAdjRibIn vpnAdjRib = (VpnAdjRibIn) o;
-            log.debug("Update local RIB VPN node.");
-            Set<RouteDistinguisher> nodeKeysVpn = vpnAdjRib.vpnNodeTree().keySet();
-            Map<BgpNodeLSIdentifier, PathAttrNlriDetails> node;
-            for (RouteDistinguisher keyVpnNode : nodeKeysVpn) {
-                node = vpnAdjRib.vpnNodeTree().get(keyVpnNode);
-
-                Set<BgpNodeLSIdentifier> vpnNodeKeys = node.keySet();
-                for (BgpNodeLSIdentifier key : vpnNodeKeys) {
-                    PathAttrNlriDetails pathAttrNlri = vpnAdjRib.nodeTree().get(key);
-                    BgpNodeLSNlriVer4 nodeNlri = new BgpNodeLSNlriVer4(pathAttrNlri.identifier(),
-                                                                      pathAttrNlri.protocolID().getType(),
-                                                                      key, true, keyVpnNode);
-                    decisionProcess(nodeNlri, keyVpnNode);
-                }
-            }
+        if (linkTree.isEmpty()) {
+            vpnLinkTree.keySet().removeAll(vpnKeys.values());
+        }
+        if (prefixTree.isEmpty()) {
+            vpnPrefixTree.keySet().removeAll(vpnKeys.values());
         }
     }
 
     /**
-     * Update localRIB link based on avaliable peer adjacency RIB.
+     * Removes all paths of a peer from the candidate indexes, re-selects best path for the affected keys
+     * and notifies listeners with the resulting delta.
      *
-     * @param o adjacency-in/VPN adjacency-in
-     * @throws BgpParseException BGP parse exceptions
+     * @param bgpId id of the disconnected peer
+     * @param nodes node NLRIs advertised by the peer
+     * @param links link NLRIs advertised by the peer
+     * @param prefixes prefix NLRIs advertised by the peer
+     * @param vpnKeys route distinguisher of each VPN NLRI
+     * @throws BgpParseException BGP parse exception
      */
-    public void localRibUpdateLink(Object o) throws BgpParseException {
-
-        if (o instanceof AdjRibIn) {
-            AdjRibIn adjRib = (AdjRibIn) o;
-            log.debug("Update local RIB link.");
-
-            Set<BgpLinkLSIdentifier> linkKeys = adjRib.linkTree().keySet();
-            for (BgpLinkLSIdentifier key : linkKeys) {
-                PathAttrNlriDetails pathAttrNlri = adjRib.linkTree().get(key);
-                BgpLinkLsNlriVer4 linkNlri = new BgpLinkLsNlriVer4(pathAttrNlri.protocolID().getType(),
-                                                                   pathAttrNlri.identifier(), key, null, false);
-                decisionProcess(linkNlri);
+    private void bulkWithdraw(BgpId bgpId, Map<BgpNodeLSIdentifier, PathAttrNlriDetails> nodes,
+                              Map<BgpLinkLSIdentifier, PathAttrNlriDetails> links,
+                              Map<BgpPrefixLSIdentifier, PathAttrNlriDetails> prefixes,
+                              Map<Object, RouteDistinguisher> vpnKeys) throws BgpParseException {
+        // compute the affected key set once
+        List<BgpNodeLSIdentifier> nodeKeys = new ArrayList<>(nodes.size());
+        for (BgpNodeLSIdentifier key : nodes.keySet()) {
+            if (nodeCandidates.remove(key, bgpId)) {
+                nodeKeys.add(key);
+            }
+        }
+        List<BgpLinkLSIdentifier> linkKeys = new ArrayList<>(links.size());
+        for (BgpLinkLSIdentifier key : links.keySet()) {
+            if (linkCandidates.remove(key, bgpId)) {
+                linkKeys.add(key);
+            }
+        }
+        List<BgpPrefixLSIdentifier> prefixKeys = new ArrayList<>(prefixes.size());
+        for (BgpPrefixLSIdentifier key : prefixes.keySet()) {
+            if (prefixCandidates.remove(key, bgpId)) {
+                prefixKeys.add(key);
             }
         }
 
-        if (o instanceof VpnAdjRibIn) {
-            VpnAdjRibIn vpnAdjRib = (VpnAdjRibIn) o;
-            log.debug("Update local RIB VPN link");
-
-            Set<RouteDistinguisher> linkKeysVpn = vpnAdjRib.vpnLinkTree().keySet();
-            Map<BgpLinkLSIdentifier, PathAttrNlriDetails> link;
-            for (RouteDistinguisher keyVpnLink : linkKeysVpn) {
-                link = vpnAdjRib.vpnLinkTree().get(keyVpnLink);
-
-                Set<BgpLinkLSIdentifier> vpnLinkKeys = link.keySet();
-                for (BgpLinkLSIdentifier key : vpnLinkKeys) {
-                    PathAttrNlriDetails pathAttrNlri = vpnAdjRib.linkTree().get(key);
-                    BgpLinkLsNlriVer4 linkNlri = new BgpLinkLsNlriVer4(pathAttrNlri.protocolID().getType(),
-                                                                       pathAttrNlri.identifier(), key, keyVpnLink,
-                                                                       true);
-                    decisionProcess(linkNlri, keyVpnLink);
-                }
+        // re-select best paths of the affected keys
+        Map<BgpNodeLSIdentifier, PathAttrNlriDetailsLocalRib> nodeBest = nodeCandidates.bestPaths(nodeKeys);
+        Map<BgpLinkLSIdentifier, PathAttrNlriDetailsLocalRib> linkBest = linkCandidates.bestPaths(linkKeys);
+        Map<BgpPrefixLSIdentifier, PathAttrNlriDetailsLocalRib> prefixBest = prefixCandidates.bestPaths(prefixKeys);
+
+        Map<BgpNodeLSNlriVer4, PathAttrNlriDetails> addNodes = new LinkedHashMap<>();
+        List<BgpNodeLSNlriVer4> deleteNodes = new LinkedList<>();
+        for (BgpNodeLSIdentifier key : nodeKeys) {
+            PathAttrNlriDetailsLocalRib best = nodeBest.get(key);
+            if (best == nodeTree.get(key)) {
+                continue;
+            }
+            PathAttrNlriDetails pathAttrNlri = nodes.get(key);
+            RouteDistinguisher rd = vpnKeys.get(key);
+            BgpNodeLSNlriVer4 nodeNlri = new BgpNodeLSNlriVer4(pathAttrNlri.identifier(),
+                                                               pathAttrNlri.protocolID().getType(),
+                                                               key, rd != null, rd);
+            if (best == null) {
+                nodeTree.remove(key);
+                deleteNodes.add(nodeNlri);
+            } else {
+                nodeTree.put(key, best);
+                addNodes.put(nodeNlri, best.localRibNlridetails());
             }
         }
-    }
 
-    /**
-     * Update localRIB prefix based on avaliable peer adjacency RIB.
-     *
-     * @param o instance of adjacency-in/VPN adjacency-in
-     * @throws BgpParseException BGP parse exception
-     */
-    public void localRibUpdatePrefix(Object o) throws BgpParseException {
-
-        if (o instanceof AdjRibIn) {
-            AdjRibIn adjRib = (AdjRibIn) o;
-            log.debug("Update local RIB prefix.");
-
-            Set<BgpPrefixLSIdentifier> prefixKeys = adjRib.prefixTree().keySet();
-            for (BgpPrefixLSIdentifier key : prefixKeys) {
-                PathAttrNlriDetails pathAttrNlri = adjRib.prefixTree().get(key);
-                BgpPrefixIPv4LSNlriVer4 prefixNlri = new BgpPrefixIPv4LSNlriVer4(
-                                                                             pathAttrNlri.identifier(),
-                                                                             pathAttrNlri.protocolID().getType(),
-                                                                             key, null, false);
-                decisionProcess(prefixNlri);
+        Map<BgpLinkLsNlriVer4, PathAttrNlriDetails> addLinks = new LinkedHashMap<>();
+        List<BgpLinkLsNlriVer4> deleteLinks = new LinkedList<>();
+        for (BgpLinkLSIdentifier key : linkKeys) {
+            PathAttrNlriDetailsLocalRib best = linkBest.get(key);
+            if (best == linkTree.get(key)) {
+                continue;
+            }
+            PathAttrNlriDetails pathAttrNlri = links.get(key);
+            RouteDistinguisher rd = vpnKeys.get(key);
+            BgpLinkLsNlriVer4 linkNlri = new BgpLinkLsNlriVer4(pathAttrNlri.protocolID().getType(),
+                                                               pathAttrNlri.identifier(), key, rd, rd != null);
+            if (best == null) {
+                linkTree.remove(key);
+                deleteLinks.add(linkNlri);
+            } else {
+                linkTree.put(key, best);
+                addLinks.put(linkNlri, best.localRibNlridetails());
             }
         }
 
-        if (o instanceof VpnAdjRibIn) {
-            VpnAdjRibIn vpnAdjRib = (VpnAdjRibIn) o;
-            log.debug("Update local RIB VPN prefix.");
-
-            Set<RouteDistinguisher> prefixKeysVpn = vpnAdjRib.vpnPrefixTree().keySet();
-            Map<BgpPrefixLSIdentifier, PathAttrNlriDetails> prefix;
-            for (RouteDistinguisher keyVpnPrefix : prefixKeysVpn) {
-                prefix = vpnAdjRib.vpnPrefixTree().get(keyVpnPrefix);
-
-                Set<BgpPrefixLSIdentifier> vpnPrefixKeys = prefix.keySet();
-                for (BgpPrefixLSIdentifier key : vpnPrefixKeys) {
-                    PathAttrNlriDetails pathAttrNlri = vpnAdjRib.prefixTree().get(key);
-                    BgpPrefixIPv4LSNlriVer4 prefixNlri = new BgpPrefixIPv4LSNlriVer4(pathAttrNlri.identifier(),
-                                                                                     pathAttrNlri.protocolID()
-                                                                                             .getType(), key,
-                                                                                     keyVpnPrefix, true);
-                    decisionProcess(prefixNlri, keyVpnPrefix);
-                }
+        for (BgpPrefixLSIdentifier key : prefixKeys) {
+            PathAttrNlriDetailsLocalRib best = prefixBest.get(key);
+            if (best == null) {
+                prefixTree.remove(key);
+            } else {
+                prefixTree.put(key, best);
             }
         }
-    }
 
-    /**
-     * Update localRIB.
-     *
-     * @param adjRibIn adjacency RIB-in
-     * @throws BgpParseException BGP parse exception
-     */
-    public void localRibUpdate(AdjRibIn adjRibIn) throws BgpParseException {
-        log.debug("Update local RIB.");
+        log.debug("Local RIB withdraw of peer {}: {} nodes, {} links, {} prefixes re-selected", bgpId,
+                  nodeKeys.size(), linkKeys.size(), prefixKeys.size());
 
-        localRibUpdateNode(adjRibIn);
-        localRibUpdateLink(adjRibIn);
-        localRibUpdatePrefix(adjRibIn);
+        // emit one batched delta
+        if (!addNodes.isEmpty() || !deleteNodes.isEmpty()) {
+            for (BgpNodeListener l : bgpController.listener()) {
+                l.updateNodes(addNodes, deleteNodes);
+            }
+        }
+        if (!addLinks.isEmpty() || !deleteLinks.isEmpty()) {
+            for (BgpLinkListener l : bgpController.linkListener()) {
+                l.updateLinks(addLinks, deleteLinks);
+            }
+        }
     }
 
     /**
-     * Update localRIB.
+     * Adds memory footprint of the selected routes.
      *
-     * @param vpnAdjRibIn VPN adjacency RIB-in
-     * @throws BgpParseException BGP parse exception
+     * @param collector footprint collector
+     * @param afi address family name of the local RIB
      */
-    public void localRibUpdate(VpnAdjRibIn vpnAdjRibIn) throws BgpParseException {
-        log.debug("Update VPN local RIB.");
-
-        localRibUpdateNode(vpnAdjRibIn);
-        localRibUpdateLink(vpnAdjRibIn);
-        localRibUpdatePrefix(vpnAdjRibIn);
+    synchronized void ribFootprint(RibFootprintCollector collector, String afi) {
+        List<PathAttrNlriDetailsLocalRib> routes = new ArrayList<>(nodeTree.values());
+        routes.addAll(linkTree.values());
+        routes.addAll(prefixTree.values());
+        collector.add(Table.LOC_RIB, null, afi, routes, route -> route.localRibNlridetails().pathAttributes(), 0);
     }
 
     @Override
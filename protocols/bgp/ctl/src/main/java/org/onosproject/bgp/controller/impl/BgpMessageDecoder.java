@@ -15,28 +15,37 @@
  */
 package org.onosproject.bgp.controller.impl;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.handler.codec.frame.FrameDecoder;
+import org.onosproject.bgpio.exceptions.BgpParseException;
 import org.onosproject.bgpio.protocol.BgpMessage;
-import org.onlab.util.HexDump;
 import org.onosproject.bgpio.protocol.BgpFactories;
 import org.onosproject.bgpio.protocol.BgpMessageReader;
+import org.onosproject.bgpio.types.BgpErrorType;
 import org.onosproject.bgpio.types.BgpHeader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Decode an bgp message from a Channel, for use in a netty pipeline.
+ * <p>
+ * Frames are delimited using the length field of the common header, a message is only parsed once all of its
+ * bytes are received. Each frame is handed to the reader as a slice of the cumulation buffer, without copying.
+ * </p>
  */
 public class BgpMessageDecoder extends FrameDecoder {
 
     protected static final Logger log = LoggerFactory.getLogger(BgpMessageDecoder.class);
 
+    private static final int LENGTH_FIELD_OFFSET = BgpHeader.MARKER_LENGTH;
+    private static final int LENGTH_FIELD_SIZE = 2;
+
     @Override
     protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) throws Exception {
         log.debug("MESSAGE IS RECEIVED.");
@@ -45,30 +54,48 @@ public class BgpMessageDecoder extends FrameDecoder {
             return null;
         }
 
-        HexDump.dump(buffer);
-
         BgpMessageReader<BgpMessage> reader = BgpFactories.getGenericReader();
-        List<BgpMessage> msgList = (List<BgpMessage>) ctx.getAttachment();
+        List<BgpMessage> msgList = null;
 
-        if (msgList == null) {
-            msgList = new LinkedList<>();
-        }
+        while (buffer.readableBytes() >= BgpHeader.DEFAULT_HEADER_LENGTH) {
+            int frameStart = buffer.readerIndex();
+            int length = buffer.getUnsignedShort(frameStart + LENGTH_FIELD_OFFSET);
+
+            if (length < BgpHeader.DEFAULT_HEADER_LENGTH || length > BgpHeader.MAXIMUM_MESSAGE_LENGTH) {
+                if (msgList != null) {
+                    // deliver the messages decoded so far, the error is raised on the next call
+                    return msgList;
+                }
+                log.debug("Bgp message with bad length {} received", length);
+                ChannelBuffer data = ChannelBuffers.buffer(LENGTH_FIELD_SIZE);
+                data.writeShort(length);
+                // stream is out of sync, nothing after this point can be framed
+                buffer.skipBytes(buffer.readableBytes());
+                throw new BgpParseException(BgpErrorType.MESSAGE_HEADER_ERROR, BgpErrorType.BAD_MESSAGE_LENGTH, data);
+            }
+
+            if (buffer.readableBytes() < length) {
+                // wait for the rest of the frame
+                break;
+            }
+
+            ChannelBuffer frame = buffer.readSlice(length);
+            BgpMessage message;
+            try {
+                message = reader.readFrom(frame, new BgpHeader());
+            } catch (BgpParseException e) {
+                if (msgList != null) {
+                    buffer.readerIndex(frameStart);
+                    return msgList;
+                }
+                throw e;
+            }
 
-        try {
-            while (buffer.readableBytes() > 0) {
-                buffer.markReaderIndex();
-                BgpHeader bgpHeader = new BgpHeader();
-                BgpMessage message = reader.readFrom(buffer, bgpHeader);
-                msgList.add(message);
+            if (msgList == null) {
+                msgList = new ArrayList<>();
             }
-            ctx.setAttachment(null);
-            return msgList;
-        } catch (Exception e) {
-            log.debug("Bgp protocol message decode error");
-            buffer.resetReaderIndex();
-            buffer.discardReadBytes();
-            ctx.setAttachment(msgList);
+            msgList.add(message);
         }
-        return null;
+        return msgList;
     }
-}
\ No newline at end of file
+}
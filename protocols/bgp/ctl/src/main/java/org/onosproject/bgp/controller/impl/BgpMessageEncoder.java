@@ -53,7 +53,9 @@ public class BgpMessageEncoder extends OneToOneEncoder {
             pm.writeTo(buf);
         }
 
-        HexDump.dump(buf);
+        if (log.isDebugEnabled()) {
+            HexDump.dump(buf);
+        }
 
         return buf;
     }
@@ -18,13 +18,20 @@ package org.onosproject.bgp.controller.impl;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 
 import org.jboss.netty.channel.Channel;
 import org.onlab.packet.Ip4Address;
 import org.onlab.packet.IpAddress;
+import org.onosproject.bgp.controller.BgpCfg;
 import org.onosproject.bgp.controller.BgpController;
+import org.onosproject.bgp.controller.BgpEvpnLocalRib;
+import org.onosproject.bgp.controller.BgpFlowSpecLocalRib;
+import org.onosproject.bgp.controller.BgpId;
 import org.onosproject.bgp.controller.BgpLocalRib;
 import org.onosproject.bgp.controller.BgpPeer;
+import org.onosproject.bgp.controller.BgpRibFootprint.Table;
 import org.onosproject.bgp.controller.BgpSessionInfo;
 import org.onosproject.bgpio.exceptions.BgpParseException;
 import org.onosproject.bgpio.protocol.BgpEvpnNlri;
@@ -32,22 +39,27 @@ import org.onosproject.bgpio.protocol.BgpFactories;
 import org.onosproject.bgpio.protocol.BgpFactory;
 import org.onosproject.bgpio.protocol.BgpLSNlri;
 import org.onosproject.bgpio.protocol.BgpMessage;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnRouteKey;
 import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecNlri;
 import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecRouteKey;
 import org.onosproject.bgpio.protocol.linkstate.BgpLinkLsNlriVer4;
 import org.onosproject.bgpio.protocol.linkstate.BgpNodeLSNlriVer4;
 import org.onosproject.bgpio.protocol.linkstate.BgpPrefixIPv4LSNlriVer4;
 import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
+import org.onosproject.bgpio.protocol.rtc.RouteTargetMembershipNlri;
 import org.onosproject.bgpio.types.AsPath;
 import org.onosproject.bgpio.types.As4Path;
 import org.onosproject.bgpio.types.BgpExtendedCommunity;
 import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.GracefulRestartCapabilityTlv;
 import org.onosproject.bgpio.types.LocalPref;
 import org.onosproject.bgpio.types.Med;
 import org.onosproject.bgpio.types.MpReachNlri;
 import org.onosproject.bgpio.types.MpUnReachNlri;
 import org.onosproject.bgpio.types.MultiProtocolExtnCapabilityTlv;
 import org.onosproject.bgpio.types.Origin;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+import org.onosproject.bgpio.types.RouteTarget;
 import org.onosproject.bgpio.types.attr.WideCommunity;
 import org.onosproject.bgpio.types.RpdCapabilityTlv;
 import org.onosproject.bgpio.util.Constants;
@@ -57,10 +69,13 @@ import org.slf4j.LoggerFactory;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionException;
 
 /**
@@ -82,8 +97,20 @@ public class BgpPeerImpl implements BgpPeer {
     private BgpPacketStatsImpl pktStats;
     private BgpLocalRib bgplocalRib;
     private BgpLocalRib bgplocalRibVpn;
+    private BgpEvpnLocalRib bgpEvpnLocalRib;
+    private BgpFlowSpecLocalRib bgpFlowSpecLocalRib;
     private AdjRibIn adjRib;
     private VpnAdjRibIn vpnAdjRib;
+    private EvpnAdjRibIn evpnAdjRib;
+    private FlowSpecAdjRibIn flowSpecAdjRib;
+    private AdjRibOut adjRibOut;
+    private final BgpAttributeSetTable attributeSets;
+    private volatile StaleRoutes staleRoutes;
+    private final Set<RouteTargetMembershipNlri> rtMembership = ConcurrentHashMap.newKeySet();
+    private List<BgpValueType> evpnBaseAttributes;
+    private List<BgpValueType> flowSpecBaseAttributes;
+    private int baseAttributesAsNumber;
+    private boolean baseAttributesLargeAs;
 
     /**
      * Return the adjacency RIB-IN.
@@ -103,6 +130,33 @@ public class BgpPeerImpl implements BgpPeer {
         return vpnAdjRib;
     }
 
+    /**
+     * Return the adjacency RIB-IN with EVPN.
+     *
+     * @return evpnAdjRib the adjacency RIB-IN with EVPN
+     */
+    public EvpnAdjRibIn evpnAdjacencyRib() {
+        return evpnAdjRib;
+    }
+
+    /**
+     * Return the adjacency RIB-IN with flow specification.
+     *
+     * @return flowSpecAdjRib the adjacency RIB-IN with flow specification
+     */
+    public FlowSpecAdjRibIn flowSpecAdjacencyRib() {
+        return flowSpecAdjRib;
+    }
+
+    /**
+     * Return the adjacency RIB-OUT.
+     *
+     * @return adjRibOut the adjacency RIB-OUT
+     */
+    public AdjRibOut adjacencyRibOut() {
+        return adjRibOut;
+    }
+
     @Override
     public BgpSessionInfo sessionInfo() {
         return sessionInfo;
@@ -122,8 +176,68 @@ public class BgpPeerImpl implements BgpPeer {
         this.pktStats = pktStats;
         this.bgplocalRib = bgpController.bgpLocalRib();
         this.bgplocalRibVpn = bgpController.bgpLocalRibVpn();
+        this.bgpEvpnLocalRib = bgpController.bgpEvpnLocalRib();
+        this.bgpFlowSpecLocalRib = bgpController.bgpFlowSpecLocalRib();
         this.adjRib = new AdjRibIn();
         this.vpnAdjRib = new VpnAdjRibIn();
+        this.evpnAdjRib = new EvpnAdjRibIn();
+        this.flowSpecAdjRib = new FlowSpecAdjRibIn();
+        Controller controller = ((BgpControllerImpl) bgpController).controller();
+        this.attributeSets = controller.attributeSets();
+        this.adjRibOut = new AdjRibOut(this::sendMessage,
+                                       () -> bgpController.getConfig().getUpdateFlushInterval(),
+                                       controller.timer(), attributeSets);
+    }
+
+    /**
+     * Returns the ORIGIN, AS_PATH and for flow specification MED and LOCAL_PREF attributes sent to this peer.
+     * They only depend on the session type and the local AS configuration, so they are built once.
+     *
+     * @param flowSpec true for flow specification routes, false for EVPN routes
+     * @return base path attributes
+     */
+    private synchronized List<BgpValueType> baseAttributes(boolean flowSpec) {
+        int asNumber = bgpController.getConfig().getAsNumber();
+        boolean largeAs = bgpController.getConfig().getLargeASCapability();
+        if (evpnBaseAttributes == null || asNumber != baseAttributesAsNumber || largeAs != baseAttributesLargeAs) {
+            List<BgpValueType> attributes = new ArrayList<>();
+            attributes.add(new Origin((byte) 0));
+
+            if (!sessionInfo.isIbgpSession()) {
+                // EBGP
+                if (!largeAs) {
+                    List<Short> aspathSet = new ArrayList<>();
+                    List<Short> aspathSeq = new ArrayList<>();
+                    aspathSeq.add((short) asNumber);
+                    attributes.add(new AsPath(aspathSet, aspathSeq));
+                } else {
+                    List<Integer> aspathSet = new ArrayList<>();
+                    List<Integer> aspathSeq = new ArrayList<>();
+                    aspathSeq.add(asNumber);
+                    attributes.add(new As4Path(aspathSet, aspathSeq));
+                }
+                evpnBaseAttributes = ImmutableList.copyOf(attributes);
+                attributes.add(new Med(0));
+            } else {
+                attributes.add(new AsPath());
+                evpnBaseAttributes = ImmutableList.copyOf(attributes);
+                attributes.add(new Med(0));
+                attributes.add(new LocalPref(100));
+            }
+            flowSpecBaseAttributes = ImmutableList.copyOf(attributes);
+            baseAttributesAsNumber = asNumber;
+            baseAttributesLargeAs = largeAs;
+        }
+        return flowSpec ? flowSpecBaseAttributes : evpnBaseAttributes;
+    }
+
+    /**
+     * Returns the ORIGIN and AS_PATH attributes of EVPN routes sent to this peer.
+     *
+     * @return base path attributes
+     */
+    List<BgpValueType> evpnBaseAttributes() {
+        return baseAttributes(false);
     }
 
     /**
@@ -173,8 +287,6 @@ public class BgpPeerImpl implements BgpPeer {
                                                       BgpFlowSpecNlri flowSpec,
                                                       WideCommunity wideCommunity) {
 
-        List<BgpValueType> attributesList = new LinkedList<>();
-        byte sessionType = sessionInfo.isIbgpSession() ? (byte) 0 : (byte) 1;
         byte sAfi = Constants.SAFI_FLOWSPEC_VALUE;
 
         boolean isFsCapabilitySet = isCapabilitySupported(MultiProtocolExtnCapabilityTlv.TYPE,
@@ -205,32 +317,8 @@ public class BgpPeerImpl implements BgpPeer {
         } else if (isVpnRpdCapabilitySet) {
             sAfi = Constants.VPN_SAFI_FLOWSPEC_RDP_VALUE;
         }
-        attributesList.add(new Origin((byte) 0));
-
-        if (sessionType != 0) {
-            // EBGP
-            if (!bgpController.getConfig().getLargeASCapability()) {
-                List<Short> aspathSet = new ArrayList<>();
-                List<Short> aspathSeq = new ArrayList<>();
-                aspathSeq.add((short) bgpController.getConfig().getAsNumber());
-
-                AsPath asPath = new AsPath(aspathSet, aspathSeq);
-                attributesList.add(asPath);
-            } else {
-                List<Integer> aspathSet = new ArrayList<>();
-                List<Integer> aspathSeq = new ArrayList<>();
-                aspathSeq.add(bgpController.getConfig().getAsNumber());
-
-                As4Path as4Path = new As4Path(aspathSet, aspathSeq);
-                attributesList.add(as4Path);
-            }
-            attributesList.add(new Med(0));
-        } else {
-            attributesList.add(new AsPath());
-            attributesList.add(new Med(0));
-            attributesList.add(new LocalPref(100));
-        }
 
+        List<BgpValueType> attributesList = new ArrayList<>(baseAttributes(true));
         attributesList.add(new BgpExtendedCommunity(flowSpec.fsActionTlv()));
         if (wideCommunity != null) {
             attributesList.add(wideCommunity);
@@ -250,9 +338,10 @@ public class BgpPeerImpl implements BgpPeer {
                 .updateMessageBuilder().setBgpPathAttributes(attributesList)
                 .build();
 
-        log.debug("Sending Flow spec Update message to {}",
+        log.debug("Queue Flow spec Update message to {}",
                   channel.getRemoteAddress());
-        channel.write(Collections.singletonList(msg));
+        // one flow specification per message, queued messages are written to the peer together
+        adjRibOut.addMessage(msg, 1);
     }
 
     @Override
@@ -288,8 +377,6 @@ public class BgpPeerImpl implements BgpPeer {
                                              Ip4Address nextHop,
                                              List<BgpValueType> extCommunit,
                                              List<BgpEvpnNlri> eVpnComponents) {
-        List<BgpValueType> attributesList = new LinkedList<>();
-        byte sessionType = sessionInfo.isIbgpSession() ? (byte) 0 : (byte) 1;
         short afi = Constants.AFI_EVPN_VALUE;
         byte safi = Constants.SAFI_EVPN_VALUE;
         boolean isEvpnCapabilitySet = isCapabilitySupported(MultiProtocolExtnCapabilityTlv.TYPE,
@@ -300,46 +387,18 @@ public class BgpPeerImpl implements BgpPeer {
                       channel.getRemoteAddress());
             return;
         }
-        attributesList.add(new Origin((byte) 0));
-
-        if (sessionType != 0) {
-            // EBGP
-            if (!bgpController.getConfig().getLargeASCapability()) {
-                List<Short> aspathSet = new ArrayList<>();
-                List<Short> aspathSeq = new ArrayList<>();
-                aspathSeq.add((short) bgpController.getConfig().getAsNumber());
-
-                AsPath asPath = new AsPath(aspathSet, aspathSeq);
-                attributesList.add(asPath);
-            } else {
-                List<Integer> aspathSet = new ArrayList<>();
-                List<Integer> aspathSeq = new ArrayList<>();
-                aspathSeq.add(bgpController.getConfig().getAsNumber());
-
-                As4Path as4Path = new As4Path(aspathSet, aspathSeq);
-                attributesList.add(as4Path);
-            }
-        } else {
-            attributesList.add(new AsPath());
-        }
 
+        List<BgpValueType> attributesList = new ArrayList<>(baseAttributes(false));
         attributesList.add(new BgpExtendedCommunity(extCommunit));
-        if (operType == OperationType.ADD) {
-            attributesList
-                    .add(new MpReachNlri(eVpnComponents, afi, safi, nextHop));
-        } else if (operType == OperationType.DELETE) {
-            attributesList.add(new MpUnReachNlri(eVpnComponents, afi, safi));
-        }
 
-        BgpMessage msg = Controller.getBgpMessageFactory4()
-                .updateMessageBuilder().setBgpPathAttributes(attributesList)
-                .build();
-        channel.write(Collections.singletonList(msg));
+        // routes with the same attribute set are packed into shared UPDATE messages
+        adjRibOut.addEvpn(operType, attributesList, nextHop, eVpnComponents);
     }
 
     @Override
     public void buildAdjRibIn(List<BgpValueType> pathAttr)
             throws BgpParseException {
+        List<BgpValueType> routeAttributes = null;
         ListIterator<BgpValueType> iterator = pathAttr.listIterator();
         while (iterator.hasNext()) {
             BgpValueType attr = iterator.next();
@@ -348,19 +407,32 @@ public class BgpPeerImpl implements BgpPeer {
                 switch (mpReachNlri.getNlriDetailsType()) {
                 case LINK_STATE:
                     List<BgpLSNlri> lsNlri = ((MpReachNlri) attr).bgpLSNlri();
-                    callAdd(this, lsNlri, pathAttr);
+                    routeAttributes = routeAttributes == null
+                            ? BgpAttributeSetTable.routeAttributes(pathAttr) : routeAttributes;
+                    callAdd(this, lsNlri, routeAttributes);
                     break;
                 case EVPN:
                     List<BgpEvpnNlri> evpnNlri = ((MpReachNlri) attr)
                             .bgpEvpnNlri();
+                    routeAttributes = routeAttributes == null
+                            ? BgpAttributeSetTable.routeAttributes(pathAttr) : routeAttributes;
+                    callAddEvpn(evpnNlri, routeAttributes);
+                    break;
+                case FLOW_SPEIC:
+                    routeAttributes = routeAttributes == null
+                            ? BgpAttributeSetTable.routeAttributes(pathAttr) : routeAttributes;
+                    callAddFlowSpec(mpReachNlri.bgpFlowSpecNlri(), routeAttributes);
+                    break;
+                case RT_CONSTRAIN:
+                    updateRtMembership(mpReachNlri.rtMembership(), Collections.emptyList());
                     break;
                 default:
                     break;
                 }
 
             }
-            if (attr instanceof MpUnReachNlri) {
-                MpReachNlri mpUnReachNlri = (MpReachNlri) attr;
+            if (attr instanceof MpUnReachNlri && !((MpUnReachNlri) attr).isEndOfRib()) {
+                MpUnReachNlri mpUnReachNlri = (MpUnReachNlri) attr;
                 switch (mpUnReachNlri.getNlriDetailsType()) {
                 case LINK_STATE:
                     List<BgpLSNlri> lsNlri = ((MpUnReachNlri) attr).bgpLSNlri();
@@ -369,6 +441,13 @@ public class BgpPeerImpl implements BgpPeer {
                 case EVPN:
                     List<BgpEvpnNlri> evpnNlri = ((MpUnReachNlri) attr)
                             .bgpEvpnNlri();
+                    callRemoveEvpn(evpnNlri);
+                    break;
+                case FLOW_SPEIC:
+                    callRemoveFlowSpec(mpUnReachNlri.bgpFlowSpecNlri());
+                    break;
+                case RT_CONSTRAIN:
+                    updateRtMembership(Collections.emptyList(), mpUnReachNlri.rtMembership());
                     break;
                 default:
                     break;
@@ -396,43 +475,49 @@ public class BgpPeerImpl implements BgpPeer {
                 PathAttrNlriDetails details = setPathAttrDetails(nlriInfo,
                                                                  pathAttr);
                 if (!((BgpNodeLSNlriVer4) nlriInfo).isVpnPresent()) {
-                    adjRib.add(nlriInfo, details);
+                    releaseAttributes(adjRib.add(nlriInfo, details));
+                    refreshStale(nlriInfo, null);
                     bgplocalRib.add(sessionInfo(), nlriInfo, details);
                 } else {
-                    vpnAdjRib.addVpn(nlriInfo, details,
+                    releaseAttributes(vpnAdjRib.addVpn(nlriInfo, details,
                                      ((BgpNodeLSNlriVer4) nlriInfo)
-                                             .getRouteDistinguisher());
+                                             .getRouteDistinguisher()));
                     bgplocalRibVpn.add(sessionInfo(), nlriInfo, details,
                                        ((BgpNodeLSNlriVer4) nlriInfo)
                                                .getRouteDistinguisher());
+                    refreshStale(nlriInfo, ((BgpNodeLSNlriVer4) nlriInfo).getRouteDistinguisher());
                 }
             } else if (nlriInfo instanceof BgpLinkLsNlriVer4) {
                 PathAttrNlriDetails details = setPathAttrDetails(nlriInfo,
                                                                  pathAttr);
                 if (!((BgpLinkLsNlriVer4) nlriInfo).isVpnPresent()) {
-                    adjRib.add(nlriInfo, details);
+                    releaseAttributes(adjRib.add(nlriInfo, details));
+                    refreshStale(nlriInfo, null);
                     bgplocalRib.add(sessionInfo(), nlriInfo, details);
                 } else {
-                    vpnAdjRib.addVpn(nlriInfo, details,
+                    releaseAttributes(vpnAdjRib.addVpn(nlriInfo, details,
                                      ((BgpLinkLsNlriVer4) nlriInfo)
-                                             .getRouteDistinguisher());
+                                             .getRouteDistinguisher()));
                     bgplocalRibVpn.add(sessionInfo(), nlriInfo, details,
                                        ((BgpLinkLsNlriVer4) nlriInfo)
                                                .getRouteDistinguisher());
+                    refreshStale(nlriInfo, ((BgpLinkLsNlriVer4) nlriInfo).getRouteDistinguisher());
                 }
             } else if (nlriInfo instanceof BgpPrefixIPv4LSNlriVer4) {
                 PathAttrNlriDetails details = setPathAttrDetails(nlriInfo,
                                                                  pathAttr);
                 if (!((BgpPrefixIPv4LSNlriVer4) nlriInfo).isVpnPresent()) {
-                    adjRib.add(nlriInfo, details);
+                    releaseAttributes(adjRib.add(nlriInfo, details));
+                    refreshStale(nlriInfo, null);
                     bgplocalRib.add(sessionInfo(), nlriInfo, details);
                 } else {
-                    vpnAdjRib.addVpn(nlriInfo, details,
+                    releaseAttributes(vpnAdjRib.addVpn(nlriInfo, details,
                                      ((BgpPrefixIPv4LSNlriVer4) nlriInfo)
-                                             .getRouteDistinguisher());
+                                             .getRouteDistinguisher()));
                     bgplocalRibVpn.add(sessionInfo(), nlriInfo, details,
                                        ((BgpPrefixIPv4LSNlriVer4) nlriInfo)
                                                .getRouteDistinguisher());
+                    refreshStale(nlriInfo, ((BgpPrefixIPv4LSNlriVer4) nlriInfo).getRouteDistinguisher());
                 }
             }
         }
@@ -452,10 +537,58 @@ public class BgpPeerImpl implements BgpPeer {
         PathAttrNlriDetails details = new PathAttrNlriDetails();
         details.setProtocolID(nlriInfo.getProtocolId());
         details.setIdentifier(nlriInfo.getIdentifier());
-        details.setPathAttribute(pathAttr);
+        details.setPathAttribute(attributeSets.intern(pathAttr));
         return details;
     }
 
+    /**
+     * Drops the attribute set reference of a route replaced or removed from Adj-RIB-In.
+     *
+     * @param details details of the route, ignored if null
+     */
+    private void releaseAttributes(PathAttrNlriDetails details) {
+        if (details != null) {
+            attributeSets.release(details.pathAttributes());
+        }
+    }
+
+    /**
+     * Drops a link state route received again after a graceful restart from the stale routes.
+     *
+     * @param nlri link state NLRI
+     * @param rd route distinguisher, null for routes without VPN
+     */
+    private void refreshStale(BgpLSNlri nlri, RouteDistinguisher rd) {
+        StaleRoutes stale = staleRoutes;
+        if (stale != null) {
+            releaseAttributes(stale.removeLinkState(nlri, rd));
+        }
+    }
+
+    /**
+     * Drops an EVPN route received again after a graceful restart from the stale routes.
+     *
+     * @param routeKey EVPN route key
+     */
+    private void refreshStale(BgpEvpnRouteKey routeKey) {
+        StaleRoutes stale = staleRoutes;
+        if (stale != null) {
+            releaseAttributes(stale.removeEvpn(routeKey));
+        }
+    }
+
+    /**
+     * Drops a flow specification route received again after a graceful restart from the stale routes.
+     *
+     * @param routeKey flow specification route key
+     */
+    private void refreshStale(BgpFlowSpecRouteKey routeKey) {
+        StaleRoutes stale = staleRoutes;
+        if (stale != null) {
+            releaseAttributes(stale.removeFlowSpec(routeKey));
+        }
+    }
+
     /**
      * Removes NLRI identifier node in a tree separately based on afi and safi.
      *
@@ -470,42 +603,130 @@ public class BgpPeerImpl implements BgpPeer {
             BgpLSNlri nlriInfo = listIterator.next();
             if (nlriInfo instanceof BgpNodeLSNlriVer4) {
                 if (!((BgpNodeLSNlriVer4) nlriInfo).isVpnPresent()) {
-                    adjRib.remove(nlriInfo);
-                    bgplocalRib.delete(nlriInfo);
+                    releaseAttributes(adjRib.remove(nlriInfo));
+                    refreshStale(nlriInfo, null);
+                    bgplocalRib.delete(sessionInfo(), nlriInfo);
                 } else {
-                    vpnAdjRib.removeVpn(nlriInfo, ((BgpNodeLSNlriVer4) nlriInfo)
-                            .getRouteDistinguisher());
-                    bgplocalRibVpn.delete(nlriInfo,
+                    releaseAttributes(vpnAdjRib.removeVpn(nlriInfo, ((BgpNodeLSNlriVer4) nlriInfo)
+                            .getRouteDistinguisher()));
+                    bgplocalRibVpn.delete(sessionInfo(), nlriInfo,
                                           ((BgpNodeLSNlriVer4) nlriInfo)
                                                   .getRouteDistinguisher());
+                    refreshStale(nlriInfo, ((BgpNodeLSNlriVer4) nlriInfo).getRouteDistinguisher());
                 }
             } else if (nlriInfo instanceof BgpLinkLsNlriVer4) {
                 if (!((BgpLinkLsNlriVer4) nlriInfo).isVpnPresent()) {
-                    adjRib.remove(nlriInfo);
-                    bgplocalRib.delete(nlriInfo);
+                    releaseAttributes(adjRib.remove(nlriInfo));
+                    refreshStale(nlriInfo, null);
+                    bgplocalRib.delete(sessionInfo(), nlriInfo);
                 } else {
-                    vpnAdjRib.removeVpn(nlriInfo, ((BgpLinkLsNlriVer4) nlriInfo)
-                            .getRouteDistinguisher());
-                    bgplocalRibVpn.delete(nlriInfo,
+                    releaseAttributes(vpnAdjRib.removeVpn(nlriInfo, ((BgpLinkLsNlriVer4) nlriInfo)
+                            .getRouteDistinguisher()));
+                    bgplocalRibVpn.delete(sessionInfo(), nlriInfo,
                                           ((BgpLinkLsNlriVer4) nlriInfo)
                                                   .getRouteDistinguisher());
+                    refreshStale(nlriInfo, ((BgpLinkLsNlriVer4) nlriInfo).getRouteDistinguisher());
                 }
             } else if (nlriInfo instanceof BgpPrefixIPv4LSNlriVer4) {
                 if (!((BgpPrefixIPv4LSNlriVer4) nlriInfo).isVpnPresent()) {
-                    adjRib.remove(nlriInfo);
-                    bgplocalRib.delete(nlriInfo);
+                    releaseAttributes(adjRib.remove(nlriInfo));
+                    refreshStale(nlriInfo, null);
+                    bgplocalRib.delete(sessionInfo(), nlriInfo);
                 } else {
-                    vpnAdjRib.removeVpn(nlriInfo,
-                                        ((BgpPrefixIPv4LSNlriVer4) nlriInfo)
-                                                .getRouteDistinguisher());
-                    bgplocalRibVpn.delete(nlriInfo,
+                    releaseAttributes(vpnAdjRib.removeVpn(nlriInfo,
+                                                          ((BgpPrefixIPv4LSNlriVer4) nlriInfo)
+                                                                  .getRouteDistinguisher()));
+                    bgplocalRibVpn.delete(sessionInfo(), nlriInfo,
                                           ((BgpPrefixIPv4LSNlriVer4) nlriInfo)
                                                   .getRouteDistinguisher());
+                    refreshStale(nlriInfo, ((BgpPrefixIPv4LSNlriVer4) nlriInfo).getRouteDistinguisher());
                 }
             }
         }
     }
 
+    /**
+     * Updates EVPN routes in Adj-RIB-In and local RIB.
+     *
+     * @param nlri list of EVPN NLRI
+     * @param pathAttr list of BGP path attributes
+     * @throws BgpParseException throws exception
+     */
+    public void callAddEvpn(List<BgpEvpnNlri> nlri, List<BgpValueType> pathAttr)
+            throws BgpParseException {
+        PathAttrNlriDetails details = null;
+        for (BgpEvpnNlri nlriInfo : nlri) {
+            BgpEvpnRouteKey routeKey = BgpEvpnRouteKey.of(nlriInfo);
+            if (routeKey == null) {
+                log.debug("EVPN route type not supported: {}", nlriInfo.getType());
+                continue;
+            }
+            if (details == null) {
+                details = new PathAttrNlriDetails();
+                details.setPathAttribute(attributeSets.intern(pathAttr));
+            } else {
+                attributeSets.intern(details.pathAttributes());
+            }
+            releaseAttributes(evpnAdjRib.add(routeKey, nlriInfo, details));
+            refreshStale(routeKey);
+            bgpEvpnLocalRib.add(sessionInfo(), nlriInfo, details);
+        }
+    }
+
+    /**
+     * Removes EVPN routes from Adj-RIB-In and local RIB.
+     *
+     * @param nlri list of EVPN NLRI
+     * @throws BgpParseException throws exception
+     */
+    public void callRemoveEvpn(List<BgpEvpnNlri> nlri) throws BgpParseException {
+        for (BgpEvpnNlri nlriInfo : nlri) {
+            BgpEvpnRouteKey routeKey = BgpEvpnRouteKey.of(nlriInfo);
+            if (routeKey == null) {
+                continue;
+            }
+            releaseAttributes(evpnAdjRib.remove(routeKey));
+            refreshStale(routeKey);
+            bgpEvpnLocalRib.delete(sessionInfo(), nlriInfo);
+        }
+    }
+
+    /**
+     * Updates a flow specification route in Adj-RIB-In and local RIB.
+     *
+     * @param flowSpec flow specification, ignored if null or without components
+     * @param pathAttr list of BGP path attributes
+     * @throws BgpParseException throws exception
+     */
+    public void callAddFlowSpec(BgpFlowSpecNlri flowSpec, List<BgpValueType> pathAttr)
+            throws BgpParseException {
+        if (flowSpec == null || flowSpec.flowSpecComponents() == null || flowSpec.flowSpecComponents().isEmpty()) {
+            return;
+        }
+        BgpFlowSpecRouteKey routeKey = BgpFlowSpecRouteKey.of(flowSpec);
+        PathAttrNlriDetails details = new PathAttrNlriDetails();
+        details.setPathAttribute(attributeSets.intern(pathAttr));
+        releaseAttributes(flowSpecAdjRib.add(routeKey, details));
+        refreshStale(routeKey);
+        bgpFlowSpecLocalRib.add(sessionInfo(), routeKey, flowSpec, details);
+    }
+
+    /**
+     * Removes a flow specification route from Adj-RIB-In and local RIB.
+     *
+     * @param flowSpec flow specification, ignored if null or without components
+     * @throws BgpParseException throws exception
+     */
+    public void callRemoveFlowSpec(BgpFlowSpecNlri flowSpec) throws BgpParseException {
+        if (flowSpec == null || flowSpec.flowSpecComponents() == null || flowSpec.flowSpecComponents().isEmpty()) {
+            return;
+        }
+        BgpFlowSpecRouteKey routeKey = BgpFlowSpecRouteKey.of(flowSpec);
+        releaseAttributes(flowSpecAdjRib.remove(routeKey));
+        refreshStale(routeKey);
+        bgpFlowSpecLocalRib.delete(sessionInfo(), routeKey);
+    }
+
     /**
      * Return the adjacency RIB-IN.
      *
@@ -533,8 +754,250 @@ public class BgpPeerImpl implements BgpPeer {
         BgpLocalRibImpl localRib = (BgpLocalRibImpl) bgplocalRib;
         BgpLocalRibImpl localRibVpn = (BgpLocalRibImpl) bgplocalRibVpn;
 
-        localRib.localRibUpdate(adjacencyRib());
-        localRibVpn.localRibUpdate(vpnAdjacencyRib());
+        localRib.localRibUpdate(sessionInfo().remoteBgpId(), adjacencyRib());
+        localRibVpn.localRibUpdate(sessionInfo().remoteBgpId(), vpnAdjacencyRib());
+        ((BgpEvpnLocalRibImpl) bgpEvpnLocalRib).localRibUpdate(sessionInfo(), evpnAdjacencyRib());
+        ((BgpFlowSpecLocalRibImpl) bgpFlowSpecLocalRib).localRibUpdate(sessionInfo(), flowSpecAdjacencyRib());
+        adjRibOut.clear();
+
+        // per RD trees of the VPN Adj-RIB-In share its node, link and prefix trees
+        for (PathAttrNlriDetails details : Iterables.concat(adjRib.nodeTree().values(), adjRib.linkTree().values(),
+                                                            adjRib.prefixTree().values(),
+                                                            vpnAdjRib.nodeTree().values(),
+                                                            vpnAdjRib.linkTree().values(),
+                                                            vpnAdjRib.prefixTree().values(),
+                                                            evpnAdjRib.evpnTree().values(),
+                                                            flowSpecAdjRib.flowSpecTree().values())) {
+            releaseAttributes(details);
+        }
+        adjRib = new AdjRibIn();
+        vpnAdjRib = new VpnAdjRibIn();
+        evpnAdjRib = new EvpnAdjRibIn();
+        flowSpecAdjRib = new FlowSpecAdjRibIn();
+    }
+
+    /**
+     * Returns the graceful restart capability of the session, if both the peer and the local configuration
+     * enable graceful restart.
+     *
+     * @return graceful restart capability received from the peer, null if graceful restart is not negotiated
+     */
+    public GracefulRestartCapabilityTlv gracefulRestartCapability() {
+        if (!bgpController.getConfig().getGracefulRestartCapability()) {
+            return null;
+        }
+        for (BgpValueType tlv : sessionInfo.remoteBgpCapability()) {
+            if (tlv instanceof GracefulRestartCapabilityTlv) {
+                return (GracefulRestartCapabilityTlv) tlv;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Keeps the routes of the session as stale routes on disconnect instead of withdrawing them. Routes still
+     * stale from a previous restart of the peer were not advertised again by this session and are swept.
+     *
+     * @return stale routes of the session
+     */
+    public StaleRoutes retainStaleRoutes() {
+        StaleRoutes previous = staleRoutes;
+        if (previous != null) {
+            previous.sweep();
+            staleRoutes = null;
+        }
+        adjRibOut.clear();
+        StaleRoutes stale = new StaleRoutes(bgpController, sessionInfo, adjRib, vpnAdjRib, evpnAdjRib,
+                                            flowSpecAdjRib);
+        adjRib = new AdjRibIn();
+        vpnAdjRib = new VpnAdjRibIn();
+        evpnAdjRib = new EvpnAdjRibIn();
+        flowSpecAdjRib = new FlowSpecAdjRibIn();
+        return stale;
+    }
+
+    /**
+     * Takes over the stale routes of the previous session of the peer. Tables of address families the peer
+     * did not preserve forwarding state for are swept right away.
+     *
+     * @param stale stale routes of the previous session
+     */
+    public void adoptStaleRoutes(StaleRoutes stale) {
+        stale.cancel();
+        stale.retainPreserved(gracefulRestartCapability());
+        staleRoutes = stale.isEmpty() ? null : stale;
+    }
+
+    /**
+     * Returns the stale routes of the previous session of the peer still waiting to be refreshed.
+     *
+     * @return stale routes, null if none
+     */
+    public StaleRoutes staleRoutes() {
+        return staleRoutes;
+    }
+
+    /**
+     * Handles End-of-RIB received for an address family, sweeping the stale routes not refreshed by the peer.
+     *
+     * @param afi address family identifier
+     * @param safi subsequent address family identifier
+     */
+    public void endOfRib(short afi, byte safi) {
+        StaleRoutes stale = staleRoutes;
+        if (stale != null) {
+            stale.endOfRib(afi, safi);
+            if (stale.isEmpty()) {
+                staleRoutes = null;
+            }
+        }
+    }
+
+    /**
+     * Sweeps all stale routes of the previous session of the peer.
+     */
+    public void sweepStaleRoutes() {
+        StaleRoutes stale = staleRoutes;
+        if (stale != null) {
+            stale.sweep();
+            staleRoutes = null;
+        }
+    }
+
+    /**
+     * Returns whether route target constrain is negotiated with the peer.
+     *
+     * @return true if both the peer and the local configuration enable route target constrain
+     */
+    public boolean isRtConstrainNegotiated() {
+        return bgpController.getConfig().getRtConstrainCapability()
+                && isCapabilitySupported(MultiProtocolExtnCapabilityTlv.TYPE, Constants.AFI_RT_CONSTRAIN_VALUE,
+                                         Constants.SAFI_RT_CONSTRAIN_VALUE);
+    }
+
+    /**
+     * Returns whether the peer imports any of the given route targets. Without route target constrain the
+     * peer imports every route.
+     *
+     * @param routeTargets route targets of a route
+     * @return true if routes carrying the route targets are to be sent to the peer
+     */
+    public boolean importsRouteTargets(Collection<RouteTarget> routeTargets) {
+        if (!isRtConstrainNegotiated()) {
+            return true;
+        }
+        for (RouteTargetMembershipNlri membership : rtMembership) {
+            if (membership.isDefault()) {
+                return true;
+            }
+            for (RouteTarget routeTarget : routeTargets) {
+                if (membership.matches(routeTarget)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Updates the route target membership received from the peer and re-exports local EVPN routes to it.
+     *
+     * @param added advertised memberships
+     * @param removed withdrawn memberships
+     */
+    public void updateRtMembership(List<RouteTargetMembershipNlri> added, List<RouteTargetMembershipNlri> removed) {
+        boolean changed = rtMembership.addAll(added);
+        changed |= rtMembership.removeAll(removed);
+        if (changed) {
+            ((BgpControllerImpl) bgpController).evpnRouteExporter().refresh(this);
+        }
+    }
+
+    /**
+     * Asks the peer for the routes of every route target, with the default route target membership.
+     */
+    void sendRtMembership() {
+        Ip4Address nextHop = Ip4Address.valueOf(bgpController.getConfig().getRouterId());
+        MpReachNlri membership = new MpReachNlri(Constants.AFI_RT_CONSTRAIN_VALUE,
+                                                 Constants.SAFI_RT_CONSTRAIN_VALUE, nextHop,
+                                                 ImmutableList.of(RouteTargetMembershipNlri.defaultMembership()));
+        List<BgpValueType> attributes = new ArrayList<>(baseAttributes(false));
+        attributes.add(membership);
+        adjRibOut.addMessage(Controller.getBgpMessageFactory4().updateMessageBuilder()
+                .setBgpPathAttributes(attributes).build(), 1);
+    }
+
+    /**
+     * Sends End-of-RIB for the address families negotiated with the peer, once the initial routes are queued.
+     */
+    void sendEndOfRib() {
+        for (BgpValueType tlv : sessionInfo.remoteBgpCapability()) {
+            if (tlv instanceof MultiProtocolExtnCapabilityTlv) {
+                MultiProtocolExtnCapabilityTlv family = (MultiProtocolExtnCapabilityTlv) tlv;
+                if (isLocalFamily(family.getAfi(), family.getSafi())) {
+                    adjRibOut.addMessage(Controller.getBgpMessageFactory4().updateMessageBuilder()
+                            .setBgpPathAttributes(ImmutableList.of(MpUnReachNlri.endOfRib(family.getAfi(),
+                                                                                          family.getSafi())))
+                            .build(), 0);
+                }
+            }
+        }
+    }
+
+    private boolean isLocalFamily(short afi, byte safi) {
+        BgpCfg config = bgpController.getConfig();
+        int family = StaleRoutes.family(afi, safi);
+        if (family == StaleRoutes.LS || family == StaleRoutes.LS_VPN) {
+            return config.getLsCapability();
+        } else if (family == StaleRoutes.EVPN) {
+            return config.evpnCapability();
+        } else if (family == StaleRoutes.FLOWSPEC || family == StaleRoutes.FLOWSPEC_VPN) {
+            return config.flowSpecCapability() != BgpCfg.FlowSpec.NONE;
+        } else if (family == StaleRoutes.family(Constants.AFI_RT_CONSTRAIN_VALUE,
+                                                Constants.SAFI_RT_CONSTRAIN_VALUE)) {
+            return config.getRtConstrainCapability();
+        }
+        return false;
+    }
+
+    /**
+     * Adds memory footprint of the Adj-RIB-In of the peer per address family.
+     *
+     * @param collector footprint collector
+     */
+    void ribFootprint(RibFootprintCollector collector) {
+        BgpId bgpId = sessionInfo().remoteBgpId();
+        collector.add(Table.ADJ_RIB_IN, bgpId, RibFootprintCollector.AFI_LS,
+                      lsRoutes(adjRib.nodeTree(), adjRib.linkTree(), adjRib.prefixTree()),
+                      PathAttrNlriDetails::pathAttributes, 0);
+        collector.add(Table.ADJ_RIB_IN, bgpId, RibFootprintCollector.AFI_LS_VPN,
+                      lsRoutes(vpnAdjRib.nodeTree(), vpnAdjRib.linkTree(), vpnAdjRib.prefixTree()),
+                      PathAttrNlriDetails::pathAttributes, 0);
+        EvpnAdjRibIn evpnRib = evpnAdjRib;
+        long keyBytes = 0;
+        for (BgpEvpnRouteKey routeKey : RibFootprintCollector.snapshot(evpnRib.evpnTree().keySet())) {
+            keyBytes += routeKey.encodedLength();
+        }
+        collector.add(Table.ADJ_RIB_IN, bgpId, RibFootprintCollector.AFI_EVPN,
+                      RibFootprintCollector.snapshot(evpnRib.evpnTree().values()),
+                      PathAttrNlriDetails::pathAttributes, keyBytes);
+        FlowSpecAdjRibIn flowSpecRib = flowSpecAdjRib;
+        keyBytes = 0;
+        for (BgpFlowSpecRouteKey routeKey : RibFootprintCollector.snapshot(flowSpecRib.flowSpecTree().keySet())) {
+            keyBytes += routeKey.routeKey().length();
+        }
+        collector.add(Table.ADJ_RIB_IN, bgpId, RibFootprintCollector.AFI_FLOWSPEC,
+                      RibFootprintCollector.snapshot(flowSpecRib.flowSpecTree().values()),
+                      PathAttrNlriDetails::pathAttributes, keyBytes);
+    }
+
+    private static List<PathAttrNlriDetails> lsRoutes(Map<?, PathAttrNlriDetails> nodes,
+                                                      Map<?, PathAttrNlriDetails> links,
+                                                      Map<?, PathAttrNlriDetails> prefixes) {
+        List<PathAttrNlriDetails> routes = new ArrayList<>(RibFootprintCollector.snapshot(nodes.values()));
+        routes.addAll(RibFootprintCollector.snapshot(links.values()));
+        routes.addAll(RibFootprintCollector.snapshot(prefixes.values()));
+        return routes;
     }
 
     // ************************
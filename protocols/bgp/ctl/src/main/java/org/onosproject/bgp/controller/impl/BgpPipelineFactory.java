@@ -21,8 +21,6 @@ import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.Channels;
 import org.jboss.netty.handler.timeout.ReadTimeoutHandler;
 import org.jboss.netty.util.ExternalResourceReleasable;
-import org.jboss.netty.util.HashedWheelTimer;
-import org.jboss.netty.util.Timer;
 import org.onosproject.bgp.controller.BgpController;
 
 /**
@@ -31,7 +29,6 @@ import org.onosproject.bgp.controller.BgpController;
 public class BgpPipelineFactory
     implements ChannelPipelineFactory, ExternalResourceReleasable {
 
-    static final Timer TIMER = new HashedWheelTimer();
     protected ReadTimeoutHandler readTimeoutHandler;
     private boolean isBgpServ;
     private BgpController bgpController;
@@ -47,7 +44,8 @@ public class BgpPipelineFactory
         this.isBgpServ = isBgpServ;
         this.bgpController = bgpController;
         /* hold time */
-        this.readTimeoutHandler = new ReadTimeoutHandler(TIMER, bgpController.getConfig().getHoldTime());
+        this.readTimeoutHandler = new ReadTimeoutHandler(((BgpControllerImpl) bgpController).controller().timer(),
+                                                         bgpController.getConfig().getHoldTime());
     }
 
     @Override
@@ -69,6 +67,6 @@ public class BgpPipelineFactory
 
     @Override
     public void releaseExternalResources() {
-        TIMER.stop();
+        // hold timers run on the session timer owned by the controller, nothing to release here
     }
 }
\ No newline at end of file
@@ -200,6 +200,15 @@ public final class BgpSelectionAlgo implements Comparator<PathAttrNlriDetailsLoc
      * @param listIteratorObj2 list iterator of object2
      */
     void storeAttr(ListIterator<BgpValueType> listIteratorObj1, ListIterator<BgpValueType> listIteratorObj2) {
+         // reset attributes stored by previous comparison, so that the instance can be reused
+         obj1LocPref = null;
+         obj1Aspath = null;
+         obj1Origin = null;
+         obj1Med = null;
+         obj2LocPref = null;
+         obj2Aspath = null;
+         obj2Origin = null;
+         obj2Med = null;
          while (listIteratorObj1.hasNext()) {
              BgpValueType pathAttributeObj1 = listIteratorObj1.next();
              switch (pathAttributeObj1.getType()) {
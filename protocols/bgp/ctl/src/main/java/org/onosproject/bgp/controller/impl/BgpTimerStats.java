@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Timer statistics of a BGP session.
+ */
+public class BgpTimerStats {
+
+    private final AtomicLong keepAliveSent = new AtomicLong();
+    private final AtomicLong keepAliveCoalesced = new AtomicLong();
+    private final AtomicLong holdTimerExpired = new AtomicLong();
+    private volatile long keepAliveIntervalMillis;
+    private volatile long lastKeepAliveTime;
+
+    /**
+     * Returns the number of keepalive messages sent by the keepalive timer.
+     *
+     * @return keepalive count
+     */
+    public long keepAliveSent() {
+        return keepAliveSent.get();
+    }
+
+    /**
+     * Returns the number of keepalive messages skipped because another message was sent within the interval.
+     *
+     * @return coalesced keepalive count
+     */
+    public long keepAliveCoalesced() {
+        return keepAliveCoalesced.get();
+    }
+
+    /**
+     * Returns the number of hold timer expiries.
+     *
+     * @return hold timer expiry count
+     */
+    public long holdTimerExpired() {
+        return holdTimerExpired.get();
+    }
+
+    /**
+     * Returns the keepalive interval.
+     *
+     * @return keepalive interval in milliseconds, 0 if keepalive timer is not running
+     */
+    public long keepAliveIntervalMillis() {
+        return keepAliveIntervalMillis;
+    }
+
+    /**
+     * Returns the time the last keepalive message was sent by the keepalive timer.
+     *
+     * @return time in milliseconds, 0 if none was sent
+     */
+    public long lastKeepAliveTime() {
+        return lastKeepAliveTime;
+    }
+
+    /**
+     * Sets the keepalive interval.
+     *
+     * @param intervalMillis keepalive interval in milliseconds
+     */
+    void setKeepAliveInterval(long intervalMillis) {
+        this.keepAliveIntervalMillis = intervalMillis;
+    }
+
+    /**
+     * Increments the sent keepalive counter.
+     */
+    void addKeepAliveSent() {
+        keepAliveSent.incrementAndGet();
+        lastKeepAliveTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Increments the coalesced keepalive counter.
+     */
+    void addKeepAliveCoalesced() {
+        keepAliveCoalesced.incrementAndGet();
+    }
+
+    /**
+     * Increments the hold timer expiry counter.
+     */
+    void addHoldTimerExpired() {
+        holdTimerExpired.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("keepAliveIntervalMillis", keepAliveIntervalMillis)
+                .add("keepAliveSent", keepAliveSent)
+                .add("keepAliveCoalesced", keepAliveCoalesced)
+                .add("holdTimerExpired", holdTimerExpired)
+                .add("lastKeepAliveTime", lastKeepAliveTime)
+                .toString();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableMap;
+
+import org.onosproject.bgp.controller.BgpId;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetailsLocalRib;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Index of candidate paths received from each peer for a local RIB key.
+ * <p>
+ * The index is updated along with the peer Adj-RIB-In, so best path selection for a key
+ * only compares the paths of that key instead of probing the Adj-RIB-In of every peer.
+ * </p>
+ *
+ * @param <K> local RIB key type
+ */
+public final class CandidatePathIndex<K> {
+
+    private final Map<K, Map<BgpId, PathAttrNlriDetailsLocalRib>> candidates = new HashMap<>();
+    private static final ThreadLocal<BgpSelectionAlgo> SELECTION_ALGO = ThreadLocal.withInitial(BgpSelectionAlgo::new);
+
+    /**
+     * Adds or replaces candidate path of a peer.
+     *
+     * @param key local RIB key
+     * @param bgpId peer id
+     * @param path path received from peer
+     */
+    public void put(K key, BgpId bgpId, PathAttrNlriDetailsLocalRib path) {
+        candidates.computeIfAbsent(key, k -> new HashMap<>()).put(bgpId, path);
+    }
+
+    /**
+     * Removes candidate path of a peer.
+     *
+     * @param key local RIB key
+     * @param bgpId peer id
+     * @return true if a path was removed, otherwise false
+     */
+    public boolean remove(K key, BgpId bgpId) {
+        Map<BgpId, PathAttrNlriDetailsLocalRib> paths = candidates.get(key);
+        if (paths == null || paths.remove(bgpId) == null) {
+            return false;
+        }
+        if (paths.isEmpty()) {
+            candidates.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * Runs best path selection over the candidate paths of a key.
+     *
+     * @param key local RIB key
+     * @return best path, null if there is no candidate path
+     */
+    public PathAttrNlriDetailsLocalRib bestPath(K key) {
+        return bestPath(key, path -> true);
+    }
+
+    /**
+     * Runs best path selection over the eligible candidate paths of a key.
+     *
+     * @param key local RIB key
+     * @param eligible predicate accepting the paths which take part in the selection
+     * @return best path, null if there is no eligible candidate path
+     */
+    public PathAttrNlriDetailsLocalRib bestPath(K key, Predicate<PathAttrNlriDetailsLocalRib> eligible) {
+        Map<BgpId, PathAttrNlriDetailsLocalRib> paths = candidates.get(key);
+        if (paths == null) {
+            return null;
+        }
+        BgpSelectionAlgo selectionAlgo = SELECTION_ALGO.get();
+        PathAttrNlriDetailsLocalRib best = null;
+        for (PathAttrNlriDetailsLocalRib path : paths.values()) {
+            if (!eligible.test(path)) {
+                continue;
+            }
+            if (best == null || selectionAlgo.compare(best, path) < 0) {
+                best = path;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Runs best path selection for a set of keys.
+     *
+     * @param keys local RIB keys
+     * @return best path of each key which still has a candidate path
+     */
+    public Map<K, PathAttrNlriDetailsLocalRib> bestPaths(Collection<K> keys) {
+        Map<K, PathAttrNlriDetailsLocalRib> bestPaths = new HashMap<>(keys.size());
+        for (K key : keys) {
+            PathAttrNlriDetailsLocalRib best = bestPath(key);
+            if (best != null) {
+                bestPaths.put(key, best);
+            }
+        }
+        return bestPaths;
+    }
+
+    /**
+     * Returns candidate paths of a key per peer.
+     *
+     * @param key local RIB key
+     * @return candidate paths
+     */
+    public Map<BgpId, PathAttrNlriDetailsLocalRib> candidates(K key) {
+        Map<BgpId, PathAttrNlriDetailsLocalRib> paths = candidates.get(key);
+        return paths == null ? ImmutableMap.of() : ImmutableMap.copyOf(paths);
+    }
+
+    /**
+     * Returns keys which have at least one candidate path.
+     *
+     * @return set of keys
+     */
+    public Set<K> keySet() {
+        return candidates.keySet();
+    }
+
+    /**
+     * Returns number of keys which have at least one candidate path.
+     *
+     * @return number of keys
+     */
+    public int size() {
+        return candidates.size();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("candidates", candidates)
+                .toString();
+    }
+}
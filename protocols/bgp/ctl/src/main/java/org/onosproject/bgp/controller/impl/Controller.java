@@ -22,7 +22,10 @@ import java.lang.management.RuntimeMXBean;
 import java.net.InetSocketAddress;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.bootstrap.ServerBootstrap;
@@ -32,6 +35,9 @@ import org.jboss.netty.channel.group.ChannelGroup;
 import org.jboss.netty.channel.group.DefaultChannelGroup;
 import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timer;
+import org.onosproject.bgp.controller.BgpId;
 import org.onosproject.bgp.controller.BgpController;
 import org.onosproject.bgpio.protocol.BgpFactories;
 import org.onosproject.bgpio.protocol.BgpFactory;
@@ -39,6 +45,8 @@ import org.onosproject.bgpio.protocol.BgpVersion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.ImmutableMap;
+
 /**
  * The main controller class. Handles all setup and network listeners - Distributed ownership control of bgp peer
  * through IControllerRegistryService
@@ -72,6 +80,18 @@ public class Controller {
     // Perf. related configuration
     private static final int SEND_BUFFER_SIZE = 4 * 1024 * 1024;
 
+    /*
+     * Hold, keepalive and connect retry timers of all sessions run on one hashed wheel. BGP timers have a
+     * granularity of seconds, so a coarse tick keeps the wheel cheap with hundreds of peers.
+     */
+    private static final long TIMER_TICK_MILLIS = 100;
+    private static final int TIMER_TICKS_PER_WHEEL = 512;
+    private final Timer timer = new HashedWheelTimer(groupedThreads("onos/bgp", "timer-%d"),
+                                                     TIMER_TICK_MILLIS, TimeUnit.MILLISECONDS,
+                                                     TIMER_TICKS_PER_WHEEL);
+    private final ConcurrentMap<BgpId, BgpTimerStats> timerStats = new ConcurrentHashMap<>();
+    private final BgpAttributeSetTable attributeSets = new BgpAttributeSetTable();
+
     /**
      * Constructor to initialize the values.
      *
@@ -90,6 +110,53 @@ public class Controller {
         return FACTORY4;
     }
 
+    /**
+     * Returns the timer shared by all BGP session timers.
+     *
+     * @return shared session timer
+     */
+    Timer timer() {
+        return timer;
+    }
+
+    /**
+     * Returns the path attribute sets shared by the Adj-RIB-In and Adj-RIB-Out of all peers.
+     *
+     * @return attribute set table
+     */
+    BgpAttributeSetTable attributeSets() {
+        return attributeSets;
+    }
+
+    /**
+     * Registers timer statistics of an established session.
+     *
+     * @param bgpId peer id
+     * @param stats timer statistics of the session
+     */
+    void addSessionTimerStats(BgpId bgpId, BgpTimerStats stats) {
+        timerStats.put(bgpId, stats);
+    }
+
+    /**
+     * Unregisters timer statistics of a session, if they are still the registered ones.
+     *
+     * @param bgpId peer id
+     * @param stats timer statistics of the session
+     */
+    void removeSessionTimerStats(BgpId bgpId, BgpTimerStats stats) {
+        timerStats.remove(bgpId, stats);
+    }
+
+    /**
+     * Returns timer statistics of all established sessions.
+     *
+     * @return map of peer id to session timer statistics
+     */
+    public Map<BgpId, BgpTimerStats> sessionTimerStats() {
+        return ImmutableMap.copyOf(timerStats);
+    }
+
     /**
      * To get system start time.
      *
@@ -238,6 +305,8 @@ public class Controller {
         serverExecFactory.shutdown();
         peerExecFactory.shutdown();
         cg.close();
+        timer.stop();
+        timerStats.clear();
     }
 
     /**
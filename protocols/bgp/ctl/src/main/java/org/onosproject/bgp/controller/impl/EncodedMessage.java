@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller.impl;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpMessage;
+import org.onosproject.bgpio.protocol.BgpType;
+import org.onosproject.bgpio.protocol.BgpVersion;
+import org.onosproject.bgpio.types.BgpHeader;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * BGP message encoded once and written as is to any number of peers.
+ */
+final class EncodedMessage implements BgpMessage {
+
+    private final BgpMessage message;
+    private final byte[] encoded;
+
+    private EncodedMessage(BgpMessage message, byte[] encoded) {
+        this.message = message;
+        this.encoded = encoded;
+    }
+
+    /**
+     * Encodes a message.
+     *
+     * @param message message to encode
+     * @return encoded message
+     * @throws BgpParseException while encoding the message
+     */
+    static EncodedMessage of(BgpMessage message) throws BgpParseException {
+        ChannelBuffer cb = ChannelBuffers.dynamicBuffer();
+        message.writeTo(cb);
+        byte[] encoded = new byte[cb.readableBytes()];
+        cb.readBytes(encoded);
+        return new EncodedMessage(message, encoded);
+    }
+
+    /**
+     * Returns the message before encoding.
+     *
+     * @return message
+     */
+    BgpMessage message() {
+        return message;
+    }
+
+    /**
+     * Returns encoded length of the message.
+     *
+     * @return length in bytes
+     */
+    int length() {
+        return encoded.length;
+    }
+
+    @Override
+    public BgpHeader getHeader() {
+        return message.getHeader();
+    }
+
+    @Override
+    public BgpVersion getVersion() {
+        return message.getVersion();
+    }
+
+    @Override
+    public BgpType getType() {
+        return message.getType();
+    }
+
+    @Override
+    public void writeTo(ChannelBuffer cb) {
+        cb.writeBytes(encoded);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("type", getType())
+                .add("length", encoded.length)
+                .toString();
+    }
+}
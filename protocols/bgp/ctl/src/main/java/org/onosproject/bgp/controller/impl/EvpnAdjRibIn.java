@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnRouteKey;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Implementation of EVPN Adj-RIB-In for each peer.
+ */
+public class EvpnAdjRibIn {
+    private Map<BgpEvpnRouteKey, PathAttrNlriDetails> evpnTree = new ConcurrentSkipListMap<>();
+    private Map<BgpEvpnRouteKey, BgpEvpnNlri> evpnNlriTree = new ConcurrentSkipListMap<>();
+
+    /**
+     * Returns the adjacency EVPN routes.
+     *
+     * @return EVPN adjacency RIB routes
+     */
+    public Map<BgpEvpnRouteKey, PathAttrNlriDetails> evpnTree() {
+        return evpnTree;
+    }
+
+    /**
+     * Returns the EVPN NLRI received for each route key.
+     *
+     * @return EVPN NLRI per route key
+     */
+    public Map<BgpEvpnRouteKey, BgpEvpnNlri> evpnNlriTree() {
+        return evpnNlriTree;
+    }
+
+    /**
+     * Update EVPN route into the tree if it exists in tree otherwise add this to the tree.
+     *
+     * @param routeKey EVPN route key
+     * @param nlri EVPN NLRI
+     * @param details has path attributes of the route
+     * @return details the route replaced, null if the route is new
+     */
+    public PathAttrNlriDetails add(BgpEvpnRouteKey routeKey, BgpEvpnNlri nlri, PathAttrNlriDetails details) {
+        evpnNlriTree.put(routeKey, nlri);
+        return evpnTree.put(routeKey, details);
+    }
+
+    /**
+     * Removes EVPN route if it exists in the adjacency tree.
+     *
+     * @param routeKey EVPN route key
+     * @return details of the removed route, null if the route does not exist
+     */
+    public PathAttrNlriDetails remove(BgpEvpnRouteKey routeKey) {
+        evpnNlriTree.remove(routeKey);
+        return evpnTree.remove(routeKey);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .omitNullValues()
+                .add("evpnTree", evpnTree)
+                .toString();
+    }
+}
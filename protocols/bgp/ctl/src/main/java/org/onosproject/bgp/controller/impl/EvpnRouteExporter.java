@@ -0,0 +1,340 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.jboss.netty.util.Timer;
+import org.onlab.packet.Ip4Address;
+import org.onosproject.bgp.controller.BgpController;
+import org.onosproject.bgp.controller.BgpId;
+import org.onosproject.bgp.controller.BgpPeer;
+import org.onosproject.bgp.controller.BgpPeer.OperationType;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
+import org.onosproject.bgpio.protocol.BgpMessage;
+import org.onosproject.bgpio.protocol.BgpUpdateMsg;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnRouteKey;
+import org.onosproject.bgpio.types.BgpExtendedCommunity;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.MpReachNlri;
+import org.onosproject.bgpio.types.MpUnReachNlri;
+import org.onosproject.bgpio.types.MultiProtocolExtnCapabilityTlv;
+import org.onosproject.bgpio.types.RouteTarget;
+import org.onosproject.bgpio.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Export stage of locally originated EVPN routes.
+ * <p>
+ * Exported routes are kept in an export RIB. A change is packed into UPDATE
+ * messages and encoded once per session type, the encoded messages are then
+ * queued to every peer importing a route target of the routes as per RFC
+ * 4684. Peers that did not negotiate route target constrain import all
+ * routes. When the route target membership of a peer changes or a peer
+ * connects, the routes it newly imports are advertised to it and the ones it
+ * no longer imports are withdrawn.
+ * </p>
+ */
+public class EvpnRouteExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(EvpnRouteExporter.class);
+
+    private final BgpController bgpController;
+    private final Timer timer;
+    private final BgpAttributeSetTable attributeSets;
+    private final Map<BgpEvpnRouteKey, ExportedRoute> routes = new LinkedHashMap<>();
+    private final Map<BgpId, Set<BgpEvpnRouteKey>> advertised = new HashMap<>();
+    private long encodedMessages;
+
+    /**
+     * Creates export stage.
+     *
+     * @param bgpController controller instance
+     */
+    public EvpnRouteExporter(BgpController bgpController) {
+        this.bgpController = bgpController;
+        Controller controller = ((BgpControllerImpl) bgpController).controller();
+        this.timer = controller.timer();
+        this.attributeSets = controller.attributeSets();
+    }
+
+    /**
+     * Adds or withdraws exported EVPN routes and sends the change to the peers importing them.
+     *
+     * @param operType operation type
+     * @param nextHop next hop, ignored for withdrawals
+     * @param extCommunities extended communities of the routes, including their route targets
+     * @param nlris EVPN routes
+     */
+    public synchronized void export(OperationType operType, Ip4Address nextHop, List<BgpValueType> extCommunities,
+                                    List<BgpEvpnNlri> nlris) {
+        Map<BgpEvpnRouteKey, BgpEvpnNlri> changed = new LinkedHashMap<>();
+        for (BgpEvpnNlri nlri : nlris) {
+            BgpEvpnRouteKey routeKey = BgpEvpnRouteKey.of(nlri);
+            if (routeKey == null) {
+                log.debug("EVPN route type {} not supported for export", nlri.getType());
+                continue;
+            }
+            changed.put(routeKey, nlri);
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        List<BgpPeerImpl> peers = evpnPeers();
+        if (operType == OperationType.DELETE) {
+            routes.keySet().removeAll(changed.keySet());
+            withdraw(changed, peers);
+            return;
+        }
+
+        ExportedRoute template = new ExportedRoute(null, nextHop, extCommunities);
+        for (Map.Entry<BgpEvpnRouteKey, BgpEvpnNlri> entry : changed.entrySet()) {
+            routes.put(entry.getKey(), new ExportedRoute(entry.getValue(), nextHop, template.extCommunities));
+        }
+
+        // routes exported together share their route targets, so they go to the same peers
+        List<BgpPeerImpl> importing = new ArrayList<>();
+        List<BgpPeerImpl> notImporting = new ArrayList<>();
+        for (BgpPeerImpl peer : peers) {
+            if (peer.importsRouteTargets(template.routeTargets)) {
+                advertised(peer).addAll(changed.keySet());
+                importing.add(peer);
+            } else {
+                notImporting.add(peer);
+            }
+        }
+        advertise(importing, nextHop, template.extCommunities, new ArrayList<>(changed.values()));
+        // peers that imported the previous route targets of updated routes
+        withdraw(changed, notImporting);
+    }
+
+    /**
+     * Brings the routes advertised to a peer in line with the route targets it imports, used when the peer
+     * connects and when its route target membership changes.
+     *
+     * @param peer peer
+     */
+    public synchronized void refresh(BgpPeerImpl peer) {
+        if (!isEvpnPeer(peer)) {
+            return;
+        }
+        Set<BgpEvpnRouteKey> sent = advertised(peer);
+        Map<ExportedRoute, List<BgpEvpnNlri>> added = new LinkedHashMap<>();
+        Map<BgpEvpnRouteKey, BgpEvpnNlri> removed = new LinkedHashMap<>();
+        for (Map.Entry<BgpEvpnRouteKey, ExportedRoute> entry : routes.entrySet()) {
+            ExportedRoute route = entry.getValue();
+            if (peer.importsRouteTargets(route.routeTargets)) {
+                if (sent.add(entry.getKey())) {
+                    added.computeIfAbsent(route, r -> new ArrayList<>()).add(route.nlri);
+                }
+            } else if (sent.contains(entry.getKey())) {
+                removed.put(entry.getKey(), route.nlri);
+            }
+        }
+        List<BgpPeerImpl> receivers = ImmutableList.of(peer);
+        added.forEach((route, nlris) -> advertise(receivers, route.nextHop, route.extCommunities, nlris));
+        withdraw(removed, receivers);
+    }
+
+    /**
+     * Forgets the routes advertised to a disconnected peer.
+     *
+     * @param bgpId id of the peer
+     */
+    public synchronized void peerDisconnected(BgpId bgpId) {
+        advertised.remove(bgpId);
+    }
+
+    /**
+     * Returns the number of exported routes.
+     *
+     * @return number of routes
+     */
+    public synchronized int size() {
+        return routes.size();
+    }
+
+    /**
+     * Returns the number of UPDATE messages encoded by the export stage, each of them is shared by all its
+     * receivers.
+     *
+     * @return number of encoded messages
+     */
+    public synchronized long encodedMessages() {
+        return encodedMessages;
+    }
+
+    private Set<BgpEvpnRouteKey> advertised(BgpPeerImpl peer) {
+        return advertised.computeIfAbsent(peer.sessionInfo().remoteBgpId(), k -> new HashSet<>());
+    }
+
+    private List<BgpPeerImpl> evpnPeers() {
+        List<BgpPeerImpl> peers = new ArrayList<>();
+        for (BgpPeer peer : bgpController.getPeers()) {
+            if (isEvpnPeer(peer)) {
+                peers.add((BgpPeerImpl) peer);
+            }
+        }
+        return peers;
+    }
+
+    private static boolean isEvpnPeer(BgpPeer peer) {
+        return peer instanceof BgpPeerImpl
+                && ((BgpPeerImpl) peer).isCapabilitySupported(MultiProtocolExtnCapabilityTlv.TYPE,
+                                                              Constants.AFI_EVPN_VALUE,
+                                                              Constants.SAFI_EVPN_VALUE);
+    }
+
+    /**
+     * Advertises routes to peers, encoding the messages once per session type.
+     */
+    private void advertise(List<BgpPeerImpl> peers, Ip4Address nextHop, List<BgpValueType> extCommunities,
+                           List<BgpEvpnNlri> nlris) {
+        Map<Boolean, List<BgpPeerImpl>> bySessionType = new HashMap<>();
+        for (BgpPeerImpl peer : peers) {
+            bySessionType.computeIfAbsent(peer.sessionInfo().isIbgpSession(), k -> new ArrayList<>()).add(peer);
+        }
+        for (List<BgpPeerImpl> receivers : bySessionType.values()) {
+            // base attributes only depend on the session type
+            List<BgpValueType> attributes = new ArrayList<>(receivers.get(0).evpnBaseAttributes());
+            attributes.add(new BgpExtendedCommunity(extCommunities));
+            send(receivers, OperationType.ADD, attributes, nextHop, nlris);
+        }
+    }
+
+    /**
+     * Withdraws routes from the peers they were advertised to, encoding the messages once per set of receivers.
+     */
+    private void withdraw(Map<BgpEvpnRouteKey, BgpEvpnNlri> nlris, List<BgpPeerImpl> peers) {
+        Map<Set<BgpPeerImpl>, List<BgpEvpnNlri>> byReceivers = new LinkedHashMap<>();
+        for (Map.Entry<BgpEvpnRouteKey, BgpEvpnNlri> entry : nlris.entrySet()) {
+            Set<BgpPeerImpl> receivers = new HashSet<>();
+            for (BgpPeerImpl peer : peers) {
+                Set<BgpEvpnRouteKey> sent = advertised.get(peer.sessionInfo().remoteBgpId());
+                if (sent != null && sent.remove(entry.getKey())) {
+                    receivers.add(peer);
+                }
+            }
+            if (!receivers.isEmpty()) {
+                byReceivers.computeIfAbsent(receivers, k -> new ArrayList<>()).add(entry.getValue());
+            }
+        }
+        byReceivers.forEach((receivers, withdrawn) -> send(receivers, OperationType.DELETE, ImmutableList.of(),
+                                                           null, withdrawn));
+    }
+
+    private void send(Collection<BgpPeerImpl> receivers, OperationType operType, List<BgpValueType> attributes,
+                      Ip4Address nextHop, List<BgpEvpnNlri> nlris) {
+        if (receivers.isEmpty() || nlris.isEmpty()) {
+            return;
+        }
+        List<BgpMessage> packed = new ArrayList<>();
+        // packs the routes into messages right away, as with a zero flush interval
+        new AdjRibOut(packed::addAll, () -> 0, timer, attributeSets).addEvpn(operType, attributes, nextHop, nlris);
+        for (BgpMessage message : packed) {
+            BgpMessage shared = message;
+            if (receivers.size() > 1) {
+                try {
+                    shared = EncodedMessage.of(message);
+                    encodedMessages++;
+                } catch (BgpParseException e) {
+                    log.warn("Failed to encode EVPN update", e);
+                }
+            }
+            int nlriCount = nlriCount(message);
+            for (BgpPeerImpl peer : receivers) {
+                peer.adjacencyRibOut().addMessage(shared, nlriCount);
+            }
+        }
+    }
+
+    private static int nlriCount(BgpMessage message) {
+        for (BgpValueType attr : ((BgpUpdateMsg) message).bgpPathAttributes().pathAttributes()) {
+            if (attr instanceof MpReachNlri) {
+                return ((MpReachNlri) attr).bgpEvpnNlri().size();
+            } else if (attr instanceof MpUnReachNlri) {
+                return ((MpUnReachNlri) attr).bgpEvpnNlri().size();
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("routes", routes.size())
+                .add("peers", advertised.keySet())
+                .toString();
+    }
+
+    /**
+     * Exported EVPN route. Routes exported together share next hop and extended communities, which identify
+     * the routes that can be packed into the same UPDATE message.
+     */
+    private static final class ExportedRoute {
+        private final BgpEvpnNlri nlri;
+        private final Ip4Address nextHop;
+        private final List<BgpValueType> extCommunities;
+        private final Set<RouteTarget> routeTargets;
+
+        private ExportedRoute(BgpEvpnNlri nlri, Ip4Address nextHop, List<BgpValueType> extCommunities) {
+            this.nlri = nlri;
+            this.nextHop = nextHop;
+            this.extCommunities = ImmutableList.copyOf(extCommunities);
+            ImmutableSet.Builder<RouteTarget> targets = ImmutableSet.builder();
+            for (BgpValueType extCommunity : extCommunities) {
+                if (extCommunity instanceof RouteTarget) {
+                    targets.add((RouteTarget) extCommunity);
+                }
+            }
+            this.routeTargets = targets.build();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(nextHop, System.identityHashCode(extCommunities));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof ExportedRoute) {
+                ExportedRoute other = (ExportedRoute) obj;
+                // routes exported together share the same communities instance
+                return Objects.equals(nextHop, other.nextHop) && extCommunities == other.extCommunities;
+            }
+            return false;
+        }
+    }
+}
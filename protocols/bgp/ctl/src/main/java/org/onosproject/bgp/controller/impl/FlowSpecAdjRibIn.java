@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecRouteKey;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Implementation of flow specification Adj-RIB-In for each peer.
+ */
+public class FlowSpecAdjRibIn {
+    private Map<BgpFlowSpecRouteKey, PathAttrNlriDetails> flowSpecTree = new ConcurrentSkipListMap<>();
+
+    /**
+     * Returns the adjacency flow specification routes.
+     *
+     * @return flow specification adjacency RIB routes
+     */
+    public Map<BgpFlowSpecRouteKey, PathAttrNlriDetails> flowSpecTree() {
+        return flowSpecTree;
+    }
+
+    /**
+     * Update flow specification route into the tree if it exists in tree otherwise add this to the tree.
+     *
+     * @param routeKey flow specification route key
+     * @param details has path attributes of the route
+     * @return details the route replaced, null if the route is new
+     */
+    public PathAttrNlriDetails add(BgpFlowSpecRouteKey routeKey, PathAttrNlriDetails details) {
+        return flowSpecTree.put(routeKey, details);
+    }
+
+    /**
+     * Removes flow specification route if it exists in the adjacency tree.
+     *
+     * @param routeKey flow specification route key
+     * @return details of the removed route, null if the route does not exist
+     */
+    public PathAttrNlriDetails remove(BgpFlowSpecRouteKey routeKey) {
+        return flowSpecTree.remove(routeKey);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .omitNullValues()
+                .add("flowSpecTree", flowSpecTree)
+                .toString();
+    }
+}
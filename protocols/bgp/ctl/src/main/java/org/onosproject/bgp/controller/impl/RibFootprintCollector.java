@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.onosproject.bgp.controller.BgpId;
+import org.onosproject.bgp.controller.BgpRibFootprint;
+import org.onosproject.bgp.controller.BgpRibFootprint.Table;
+import org.onosproject.bgpio.types.BgpValueType;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+/**
+ * Collects memory footprint of RIB tables per address family.
+ */
+final class RibFootprintCollector {
+
+    static final String AFI_LS = "ls";
+    static final String AFI_LS_VPN = "ls-vpn";
+    static final String AFI_EVPN = "evpn";
+    static final String AFI_FLOWSPEC = "flowspec";
+
+    private static final int SNAPSHOT_RETRIES = 3;
+
+    private final BgpAttributeSetTable attributeSets;
+    private final List<BgpRibFootprint> footprints = new ArrayList<>();
+
+    /**
+     * Constructor to initialize parameters.
+     *
+     * @param attributeSets shared path attribute sets
+     */
+    RibFootprintCollector(BgpAttributeSetTable attributeSets) {
+        this.attributeSets = attributeSets;
+    }
+
+    /**
+     * Returns a copy of a collection updated by another thread, empty if it keeps changing while copied.
+     *
+     * @param values collection to copy
+     * @param <T> element type
+     * @return copy of the collection
+     */
+    static <T> List<T> snapshot(Collection<T> values) {
+        for (int i = 0; i < SNAPSHOT_RETRIES; i++) {
+            try {
+                return new ArrayList<>(values);
+            } catch (ConcurrentModificationException e) {
+                continue;
+            }
+        }
+        return ImmutableList.of();
+    }
+
+    /**
+     * Adds footprint of the routes of one address family.
+     *
+     * @param table RIB table
+     * @param peer peer of an Adj-RIB-In, null for other tables
+     * @param afi address family name
+     * @param routes route entries
+     * @param attributes returns path attributes of a route entry
+     * @param keyBytes bytes of compact route keys
+     * @param <V> route entry type
+     */
+    <V> void add(Table table, BgpId peer, String afi, Collection<V> routes,
+                 Function<V, List<BgpValueType>> attributes, long keyBytes) {
+        Set<List<BgpValueType>> distinct = Sets.newIdentityHashSet();
+        long attributeBytes = 0;
+        for (V route : routes) {
+            List<BgpValueType> attrs = attributes.apply(route);
+            if (attrs != null && distinct.add(attrs)) {
+                attributeBytes += attributeSets.encodedLength(attrs);
+            }
+        }
+        footprints.add(new BgpRibFootprint(table, peer, afi, routes.size(), distinct.size(), keyBytes,
+                                           attributeBytes));
+    }
+
+    /**
+     * Returns collected footprints followed by the one of the shared path attribute sets.
+     *
+     * @return RIB footprint entries
+     */
+    List<BgpRibFootprint> footprints() {
+        return ImmutableList.<BgpRibFootprint>builder()
+                .addAll(footprints)
+                .add(new BgpRibFootprint(Table.ATTRIBUTE_SETS, null, null,
+                                         (int) Math.min(Integer.MAX_VALUE, attributeSets.totalReferences()),
+                                         attributeSets.size(), 0, attributeSets.totalEncodedLength()))
+                .build();
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Iterables;
+
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.onosproject.bgp.controller.BgpController;
+import org.onosproject.bgp.controller.BgpSessionInfo;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpLSNlri;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnRouteKey;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecRouteKey;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
+import org.onosproject.bgpio.types.GracefulRestartCapabilityTlv;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+import org.onosproject.bgpio.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes of a peer retained across a graceful restart of its session as per RFC 4724.
+ * <p>
+ * When the session of a restart capable peer goes down its Adj-RIBs-In are
+ * kept here and its paths stay in the local RIBs, so the restart causes no
+ * churn. Routes the peer advertises or withdraws again are dropped from the
+ * stale set by the new session. Remaining stale routes of a table are swept
+ * once the peer sent End-of-RIB for the address families of the table, or
+ * when the restart or stale path timer expires.
+ * </p>
+ * <p>
+ * Sweeps and refreshes run on the RIB workers, sweeps through a pipeline
+ * barrier, so a table is never swept while a refresh is applied.
+ * </p>
+ */
+public final class StaleRoutes {
+
+    private static final Logger log = LoggerFactory.getLogger(StaleRoutes.class);
+
+    static final int LS = family(Constants.AFI_VALUE, Constants.SAFI_VALUE);
+    static final int LS_VPN = family(Constants.AFI_VALUE, Constants.VPN_SAFI_VALUE);
+    static final int EVPN = family(Constants.AFI_EVPN_VALUE, Constants.SAFI_EVPN_VALUE);
+    static final int FLOWSPEC = family(Constants.AFI_FLOWSPEC_VALUE, Constants.SAFI_FLOWSPEC_VALUE);
+    static final int FLOWSPEC_VPN = family(Constants.AFI_FLOWSPEC_VALUE, Constants.VPN_SAFI_FLOWSPEC_VALUE);
+
+    private final BgpController bgpController;
+    private final Timer timer;
+    private final BgpAttributeSetTable attributeSets;
+    private final BgpSessionInfo sessionInfo;
+    private final Set<Integer> pendingFamilies = new HashSet<>();
+    private volatile AdjRibIn adjRib;
+    private volatile VpnAdjRibIn vpnAdjRib;
+    private volatile EvpnAdjRibIn evpnAdjRib;
+    private volatile FlowSpecAdjRibIn flowSpecAdjRib;
+    private Timeout timeout;
+
+    /**
+     * Creates stale routes of a session, every table waiting for End-of-RIB.
+     *
+     * @param bgpController controller instance
+     * @param sessionInfo info of the session the routes were received on
+     * @param adjRib link state adjacency RIB-in
+     * @param vpnAdjRib link state VPN adjacency RIB-in
+     * @param evpnAdjRib EVPN adjacency RIB-in
+     * @param flowSpecAdjRib flow specification adjacency RIB-in
+     */
+    StaleRoutes(BgpController bgpController, BgpSessionInfo sessionInfo, AdjRibIn adjRib, VpnAdjRibIn vpnAdjRib,
+                EvpnAdjRibIn evpnAdjRib, FlowSpecAdjRibIn flowSpecAdjRib) {
+        this.bgpController = bgpController;
+        Controller controller = ((BgpControllerImpl) bgpController).controller();
+        this.timer = controller.timer();
+        this.attributeSets = controller.attributeSets();
+        this.sessionInfo = sessionInfo;
+        this.adjRib = adjRib;
+        this.vpnAdjRib = vpnAdjRib;
+        this.evpnAdjRib = evpnAdjRib;
+        this.flowSpecAdjRib = flowSpecAdjRib;
+        pendingFamilies.add(LS);
+        pendingFamilies.add(LS_VPN);
+        pendingFamilies.add(EVPN);
+        pendingFamilies.add(FLOWSPEC);
+        pendingFamilies.add(FLOWSPEC_VPN);
+    }
+
+    /**
+     * Returns the key of an address family.
+     *
+     * @param afi address family identifier
+     * @param safi subsequent address family identifier
+     * @return address family key
+     */
+    static int family(short afi, byte safi) {
+        return ((afi & 0xFFFF) << 8) | (safi & 0xFF);
+    }
+
+    /**
+     * Drops a refreshed link state route from the stale set.
+     *
+     * @param nlri link state NLRI
+     * @param rd route distinguisher, null for routes without VPN
+     * @return details of the stale route, null if it was not stale
+     */
+    PathAttrNlriDetails removeLinkState(BgpLSNlri nlri, RouteDistinguisher rd) {
+        if (rd == null) {
+            AdjRibIn rib = adjRib;
+            return rib == null ? null : rib.remove(nlri);
+        }
+        VpnAdjRibIn rib = vpnAdjRib;
+        return rib == null ? null : rib.removeVpn(nlri, rd);
+    }
+
+    /**
+     * Drops a refreshed EVPN route from the stale set.
+     *
+     * @param routeKey EVPN route key
+     * @return details of the stale route, null if it was not stale
+     */
+    PathAttrNlriDetails removeEvpn(BgpEvpnRouteKey routeKey) {
+        EvpnAdjRibIn rib = evpnAdjRib;
+        return rib == null ? null : rib.remove(routeKey);
+    }
+
+    /**
+     * Drops a refreshed flow specification route from the stale set.
+     *
+     * @param routeKey flow specification route key
+     * @return details of the stale route, null if it was not stale
+     */
+    PathAttrNlriDetails removeFlowSpec(BgpFlowSpecRouteKey routeKey) {
+        FlowSpecAdjRibIn rib = flowSpecAdjRib;
+        return rib == null ? null : rib.remove(routeKey);
+    }
+
+    /**
+     * Keeps waiting only for the address families the restarted peer preserved forwarding state for and
+     * sweeps the tables of the other families.
+     *
+     * @param capability graceful restart capability received from the peer, null if not received
+     */
+    void retainPreserved(GracefulRestartCapabilityTlv capability) {
+        Set<Integer> preserved = new HashSet<>();
+        if (capability != null) {
+            for (GracefulRestartCapabilityTlv.AfiSafi afiSafi : capability.afiSafis()) {
+                if (afiSafi.forwardingState()) {
+                    preserved.add(family(afiSafi.afi(), afiSafi.safi()));
+                }
+            }
+        }
+        synchronized (this) {
+            pendingFamilies.retainAll(preserved);
+        }
+        sweepCompleted();
+    }
+
+    /**
+     * Stops waiting for an address family and sweeps its table if no other family of it is pending.
+     *
+     * @param afi address family identifier
+     * @param safi subsequent address family identifier
+     */
+    void endOfRib(short afi, byte safi) {
+        synchronized (this) {
+            pendingFamilies.remove(family(afi, safi));
+        }
+        sweepCompleted();
+    }
+
+    /**
+     * Sweeps all remaining stale routes.
+     */
+    void sweep() {
+        synchronized (this) {
+            pendingFamilies.clear();
+        }
+        sweepCompleted();
+    }
+
+    /**
+     * Returns whether all stale routes are swept.
+     *
+     * @return true if no table is left
+     */
+    public boolean isEmpty() {
+        return adjRib == null && vpnAdjRib == null && evpnAdjRib == null && flowSpecAdjRib == null;
+    }
+
+    /**
+     * Schedules a task on the shared BGP timer, replacing the previously scheduled one.
+     *
+     * @param task task to run
+     * @param delaySeconds delay in seconds
+     */
+    synchronized void schedule(Runnable task, int delaySeconds) {
+        cancel();
+        try {
+            timeout = timer.newTimeout(t -> task.run(), delaySeconds, TimeUnit.SECONDS);
+        } catch (IllegalStateException e) {
+            // timer stopped, the controller is going down together with its RIBs
+            log.debug("Stale route timer not scheduled for {}", sessionInfo.remoteBgpId());
+        }
+    }
+
+    /**
+     * Cancels the scheduled task.
+     */
+    synchronized void cancel() {
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
+    }
+
+    private synchronized boolean isPending(int... families) {
+        for (int family : families) {
+            if (pendingFamilies.contains(family)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void sweepCompleted() {
+        try {
+            if (adjRib != null && !isPending(LS)) {
+                AdjRibIn rib = adjRib;
+                adjRib = null;
+                ((BgpLocalRibImpl) bgpController.bgpLocalRib()).localRibUpdate(sessionInfo.remoteBgpId(), rib);
+                release(Iterables.concat(rib.nodeTree().values(), rib.linkTree().values(),
+                                         rib.prefixTree().values()));
+            }
+            if (vpnAdjRib != null && !isPending(LS_VPN)) {
+                VpnAdjRibIn rib = vpnAdjRib;
+                vpnAdjRib = null;
+                ((BgpLocalRibImpl) bgpController.bgpLocalRibVpn()).localRibUpdate(sessionInfo.remoteBgpId(), rib);
+                // per RD trees share the node, link and prefix trees
+                release(Iterables.concat(rib.nodeTree().values(), rib.linkTree().values(),
+                                         rib.prefixTree().values()));
+            }
+        } catch (BgpParseException e) {
+            log.error("Exception occurred while sweeping stale routes of {}", sessionInfo.remoteBgpId(), e);
+        }
+        if (evpnAdjRib != null && !isPending(EVPN)) {
+            EvpnAdjRibIn rib = evpnAdjRib;
+            evpnAdjRib = null;
+            ((BgpEvpnLocalRibImpl) bgpController.bgpEvpnLocalRib()).localRibUpdate(sessionInfo, rib);
+            release(rib.evpnTree().values());
+        }
+        if (flowSpecAdjRib != null && !isPending(FLOWSPEC, FLOWSPEC_VPN)) {
+            FlowSpecAdjRibIn rib = flowSpecAdjRib;
+            flowSpecAdjRib = null;
+            ((BgpFlowSpecLocalRibImpl) bgpController.bgpFlowSpecLocalRib()).localRibUpdate(sessionInfo, rib);
+            release(rib.flowSpecTree().values());
+        }
+        if (isEmpty()) {
+            cancel();
+        }
+    }
+
+    private void release(Iterable<PathAttrNlriDetails> routes) {
+        for (PathAttrNlriDetails details : routes) {
+            attributeSets.release(details.pathAttributes());
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return MoreObjects.toStringHelper(getClass())
+                .add("peer", sessionInfo.remoteBgpId())
+                .add("pendingFamilies", pendingFamilies)
+                .toString();
+    }
+}
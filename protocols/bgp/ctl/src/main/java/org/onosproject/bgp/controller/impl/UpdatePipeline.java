@@ -0,0 +1,505 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.controller.impl;
+
+import static org.onlab.util.Tools.groupedThreads;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.Channels;
+import org.onosproject.bgp.controller.BgpUpdateStageStats;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
+import org.onosproject.bgpio.protocol.BgpLSNlri;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnRouteKey;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecNlri;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecRouteKey;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.MpReachNlri;
+import org.onosproject.bgpio.types.MpUnReachNlri;
+import org.onosproject.bgpio.types.NlriDetailsType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * Pipeline applying received UPDATE messages to the RIBs.
+ * <p>
+ * Messages are decoded and split on the channel I/O thread. The routes of an
+ * UPDATE are then grouped by the hash of their NLRI key and each group is
+ * queued to the RIB worker owning that hash, so updates of one route are
+ * applied in the order received while different routes proceed in parallel.
+ * Link-state routes are all owned by the first worker, as links and prefixes
+ * refer to the nodes they connect. Until the pipeline is started, routes are
+ * applied on the calling thread.
+ * </p>
+ * <p>
+ * Reading from a peer is suspended while a worker queue is deep and resumed
+ * once the worker caught up. Routes a worker fails to apply are reported to
+ * the channel of the peer, which answers with a NOTIFICATION and closes the
+ * session.
+ * </p>
+ */
+public class UpdatePipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(UpdatePipeline.class);
+
+    static final String DISPATCH_STAGE = "dispatch";
+    static final String WORKER_STAGE = "rib-worker-";
+
+    private static final int MAX_WORKERS = 8;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+    private static final int LINK_STATE_WORKER = 0;
+
+    // tasks queued per worker, a task holds the routes of one UPDATE
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final int READ_SUSPEND_DEPTH = 1024;
+    private static final int READ_RESUME_DEPTH = 256;
+
+    private final Stage dispatchStage = new Stage(DISPATCH_STAGE);
+    private final Object barrierLock = new Object();
+    private volatile Worker[] workers = new Worker[0];
+
+    /**
+     * Returns default number of RIB workers.
+     *
+     * @return number of workers
+     */
+    static int defaultWorkers() {
+        return Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Starts RIB workers.
+     *
+     * @param count number of workers
+     */
+    public synchronized void start(int count) {
+        if (workers.length > 0) {
+            return;
+        }
+        Worker[] started = new Worker[count];
+        for (int i = 0; i < count; i++) {
+            started[i] = new Worker(i);
+        }
+        workers = started;
+    }
+
+    /**
+     * Stops RIB workers once the queued routes are applied, later routes are applied on the calling thread.
+     */
+    public synchronized void stop() {
+        Worker[] stopped = workers;
+        workers = new Worker[0];
+        for (Worker worker : stopped) {
+            worker.executor.shutdown();
+        }
+        for (Worker worker : stopped) {
+            try {
+                if (!worker.executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    worker.executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                worker.executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            worker.resumeAll();
+        }
+    }
+
+    /**
+     * Splits the routes of an UPDATE by RIB worker and queues them.
+     *
+     * @param peer peer the UPDATE was received from
+     * @param pathAttr path attributes of the UPDATE
+     * @throws BgpParseException while applying routes on the calling thread
+     */
+    public void dispatch(BgpPeerImpl peer, List<BgpValueType> pathAttr) throws BgpParseException {
+        Worker[] current = workers;
+        dispatchStage.processed.incrementAndGet();
+        if (current.length == 0) {
+            peer.buildAdjRibIn(pathAttr);
+            endOfRib(peer, pathAttr);
+            return;
+        }
+
+        RouteBatch[] batches = new RouteBatch[current.length];
+        List<BgpValueType> routeAttributes = null;
+        boolean reachSeen = false;
+        boolean withdrawFirst = false;
+        for (BgpValueType attr : pathAttr) {
+            NlriDetailsType type = nlriType(attr);
+            if (type == null || isEndOfRib(attr)) {
+                continue;
+            }
+            if (attr instanceof MpReachNlri) {
+                MpReachNlri mpReachNlri = (MpReachNlri) attr;
+                reachSeen = true;
+                switch (type) {
+                case LINK_STATE:
+                    routeAttributes = routeAttributes == null
+                            ? BgpAttributeSetTable.routeAttributes(pathAttr) : routeAttributes;
+                    batch(batches, LINK_STATE_WORKER).lsAdd.addAll(mpReachNlri.bgpLSNlri());
+                    break;
+                case EVPN:
+                    routeAttributes = routeAttributes == null
+                            ? BgpAttributeSetTable.routeAttributes(pathAttr) : routeAttributes;
+                    for (BgpEvpnNlri nlri : mpReachNlri.bgpEvpnNlri()) {
+                        batch(batches, BgpEvpnRouteKey.of(nlri)).evpnAdd.add(nlri);
+                    }
+                    break;
+                case FLOW_SPEIC:
+                    routeAttributes = routeAttributes == null
+                            ? BgpAttributeSetTable.routeAttributes(pathAttr) : routeAttributes;
+                    if (hasComponents(mpReachNlri.bgpFlowSpecNlri())) {
+                        BgpFlowSpecNlri flowSpec = mpReachNlri.bgpFlowSpecNlri();
+                        batch(batches, BgpFlowSpecRouteKey.of(flowSpec)).flowSpecAdd.add(flowSpec);
+                    }
+                    break;
+                case RT_CONSTRAIN:
+                    // membership only filters exported routes, it is applied on the calling thread
+                    peer.updateRtMembership(mpReachNlri.rtMembership(), Collections.emptyList());
+                    break;
+                default:
+                    break;
+                }
+            } else if (attr instanceof MpUnReachNlri) {
+                MpUnReachNlri mpUnReachNlri = (MpUnReachNlri) attr;
+                withdrawFirst = !reachSeen;
+                switch (type) {
+                case LINK_STATE:
+                    batch(batches, LINK_STATE_WORKER).lsRemove.addAll(mpUnReachNlri.bgpLSNlri());
+                    break;
+                case EVPN:
+                    for (BgpEvpnNlri nlri : mpUnReachNlri.bgpEvpnNlri()) {
+                        batch(batches, BgpEvpnRouteKey.of(nlri)).evpnRemove.add(nlri);
+                    }
+                    break;
+                case FLOW_SPEIC:
+                    if (hasComponents(mpUnReachNlri.bgpFlowSpecNlri())) {
+                        BgpFlowSpecNlri flowSpec = mpUnReachNlri.bgpFlowSpecNlri();
+                        batch(batches, BgpFlowSpecRouteKey.of(flowSpec)).flowSpecRemove.add(flowSpec);
+                    }
+                    break;
+                case RT_CONSTRAIN:
+                    peer.updateRtMembership(Collections.emptyList(), mpUnReachNlri.rtMembership());
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+
+        int queued = 0;
+        for (int i = 0; i < batches.length; i++) {
+            RouteBatch batch = batches[i];
+            if (batch != null) {
+                batch.routeAttributes = routeAttributes;
+                batch.withdrawFirst = withdrawFirst;
+                queued += current[i].submit(peer, () -> batch.apply(peer));
+            }
+        }
+        dispatchStage.observe(queued);
+        endOfRib(peer, pathAttr);
+    }
+
+    /**
+     * Handles the End-of-RIB markers of an UPDATE once the routes queued before them are applied, sweeping
+     * stale routes of a restarted peer.
+     *
+     * @param peer peer the UPDATE was received from
+     * @param pathAttr path attributes of the UPDATE
+     */
+    private void endOfRib(BgpPeerImpl peer, List<BgpValueType> pathAttr) {
+        if (peer.staleRoutes() == null) {
+            return;
+        }
+        for (BgpValueType attr : pathAttr) {
+            if (isEndOfRib(attr)) {
+                MpUnReachNlri marker = (MpUnReachNlri) attr;
+                barrier(() -> peer.endOfRib(marker.afi(), marker.safi()));
+            }
+        }
+    }
+
+    /**
+     * Runs a task once every route queued before it is applied, holding back all RIB workers until the task
+     * completes. Used to withdraw the routes of a disconnected peer without racing its queued updates.
+     *
+     * @param task task to run
+     */
+    public void barrier(Runnable task) {
+        Worker[] current = workers;
+        if (current.length == 0) {
+            task.run();
+            return;
+        }
+        AtomicInteger waiting = new AtomicInteger(current.length);
+        CountDownLatch done = new CountDownLatch(1);
+        // barriers are queued in the same order on every worker, so two barriers never wait for each other
+        synchronized (barrierLock) {
+            for (Worker worker : current) {
+                worker.execute(() -> {
+                    if (waiting.decrementAndGet() == 0) {
+                        try {
+                            task.run();
+                        } finally {
+                            done.countDown();
+                        }
+                    } else {
+                        Uninterruptibles.awaitUninterruptibly(done);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Returns statistics of the dispatch stage followed by each RIB worker.
+     *
+     * @return stage statistics
+     */
+    public List<BgpUpdateStageStats> stats() {
+        Worker[] current = workers;
+        int depth = 0;
+        for (Worker worker : current) {
+            depth += worker.depth();
+        }
+        ImmutableList.Builder<BgpUpdateStageStats> stats = ImmutableList.builder();
+        stats.add(dispatchStage.stats(depth));
+        for (Worker worker : current) {
+            stats.add(worker.stage.stats(worker.depth()));
+        }
+        return stats.build();
+    }
+
+    private static NlriDetailsType nlriType(BgpValueType attr) {
+        if (attr instanceof MpReachNlri) {
+            return ((MpReachNlri) attr).getNlriDetailsType();
+        } else if (attr instanceof MpUnReachNlri) {
+            return ((MpUnReachNlri) attr).getNlriDetailsType();
+        }
+        return null;
+    }
+
+    private static boolean isEndOfRib(BgpValueType attr) {
+        return attr instanceof MpUnReachNlri && ((MpUnReachNlri) attr).isEndOfRib();
+    }
+
+    private static boolean hasComponents(BgpFlowSpecNlri flowSpec) {
+        return flowSpec != null && flowSpec.flowSpecComponents() != null
+                && !flowSpec.flowSpecComponents().isEmpty();
+    }
+
+    private static RouteBatch batch(RouteBatch[] batches, Object key) {
+        // spread the key hash before reducing it to a worker index
+        int hash = key == null ? 0 : key.hashCode() * 0x9E3779B9;
+        return batch(batches, Math.floorMod(hash ^ (hash >>> 16), batches.length));
+    }
+
+    private static RouteBatch batch(RouteBatch[] batches, int index) {
+        if (batches[index] == null) {
+            batches[index] = new RouteBatch();
+        }
+        return batches[index];
+    }
+
+    /**
+     * Reports routes which could not be applied to the channel of the peer, it is handled on the I/O thread like
+     * an error found while decoding the UPDATE.
+     */
+    private static void reportError(BgpPeerImpl peer, BgpParseException e) {
+        Channel channel = peer.getChannel();
+        if (channel != null && channel.isConnected()) {
+            Channels.fireExceptionCaughtLater(channel, e);
+        }
+    }
+
+    /**
+     * Routes of one UPDATE owned by one RIB worker.
+     */
+    private static final class RouteBatch {
+        private final List<BgpLSNlri> lsAdd = new ArrayList<>();
+        private final List<BgpLSNlri> lsRemove = new ArrayList<>();
+        private final List<BgpEvpnNlri> evpnAdd = new ArrayList<>();
+        private final List<BgpEvpnNlri> evpnRemove = new ArrayList<>();
+        private final List<BgpFlowSpecNlri> flowSpecAdd = new ArrayList<>();
+        private final List<BgpFlowSpecNlri> flowSpecRemove = new ArrayList<>();
+        private List<BgpValueType> routeAttributes;
+        private boolean withdrawFirst;
+
+        private void apply(BgpPeerImpl peer) throws BgpParseException {
+            if (withdrawFirst) {
+                withdraw(peer);
+            }
+            if (!lsAdd.isEmpty()) {
+                peer.callAdd(peer, lsAdd, routeAttributes);
+            }
+            if (!evpnAdd.isEmpty()) {
+                peer.callAddEvpn(evpnAdd, routeAttributes);
+            }
+            for (BgpFlowSpecNlri flowSpec : flowSpecAdd) {
+                peer.callAddFlowSpec(flowSpec, routeAttributes);
+            }
+            if (!withdrawFirst) {
+                withdraw(peer);
+            }
+        }
+
+        private void withdraw(BgpPeerImpl peer) throws BgpParseException {
+            if (!lsRemove.isEmpty()) {
+                peer.callRemove(peer, lsRemove);
+            }
+            if (!evpnRemove.isEmpty()) {
+                peer.callRemoveEvpn(evpnRemove);
+            }
+            for (BgpFlowSpecNlri flowSpec : flowSpecRemove) {
+                peer.callRemoveFlowSpec(flowSpec);
+            }
+        }
+    }
+
+    /**
+     * Task applying routes on a RIB worker.
+     */
+    @FunctionalInterface
+    private interface RibTask {
+        void run() throws BgpParseException;
+    }
+
+    /**
+     * Counters of a pipeline stage.
+     */
+    private static final class Stage {
+        private final String name;
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        private void observe(int depth) {
+            maxQueueDepth.accumulateAndGet(depth, Math::max);
+        }
+
+        private BgpUpdateStageStats stats(int depth) {
+            return new BgpUpdateStageStats(name, depth, maxQueueDepth.get(), processed.get(), errors.get());
+        }
+    }
+
+    /**
+     * Single threaded RIB worker.
+     */
+    private static final class Worker {
+        private final Stage stage;
+        private final ThreadPoolExecutor executor;
+        private final Set<Channel> suspended = ConcurrentHashMap.newKeySet();
+
+        private Worker(int index) {
+            this.stage = new Stage(WORKER_STAGE + index);
+            this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                                                   new LinkedBlockingQueue<>(QUEUE_CAPACITY),
+                                                   groupedThreads("onos/bgp", "rib-worker-" + index + "-%d"),
+                                                   Worker::enqueue);
+        }
+
+        /**
+         * Waits for room in a full queue, reads are normally suspended long before the queue fills up.
+         */
+        private static void enqueue(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("RIB worker stopped");
+            }
+            Uninterruptibles.putUninterruptibly(executor.getQueue(), task);
+        }
+
+        private int depth() {
+            return executor.getQueue().size();
+        }
+
+        private int submit(BgpPeerImpl peer, RibTask task) {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                    stage.processed.incrementAndGet();
+                } catch (BgpParseException e) {
+                    stage.errors.incrementAndGet();
+                    log.warn("Failed to apply routes on {}", stage.name, e);
+                    if (peer != null) {
+                        reportError(peer, e);
+                    }
+                } catch (RuntimeException e) {
+                    stage.errors.incrementAndGet();
+                    log.warn("Failed to apply routes on {}", stage.name, e);
+                }
+                resume();
+            });
+            int depth = depth();
+            stage.observe(depth);
+            if (peer != null && depth >= READ_SUSPEND_DEPTH) {
+                suspend(peer.getChannel());
+            }
+            return depth;
+        }
+
+        private void execute(Runnable task) {
+            submit(null, task::run);
+        }
+
+        private void suspend(Channel channel) {
+            if (channel == null) {
+                return;
+            }
+            channel.setReadable(false);
+            suspended.add(channel);
+            // the worker may have caught up before the channel was recorded
+            resume();
+        }
+
+        private void resume() {
+            if (!suspended.isEmpty() && depth() <= READ_RESUME_DEPTH) {
+                resumeAll();
+            }
+        }
+
+        private void resumeAll() {
+            Iterator<Channel> channels = suspended.iterator();
+            while (channels.hasNext()) {
+                Channel channel = channels.next();
+                channels.remove();
+                channel.setReadable(true);
+            }
+        }
+    }
+}
@@ -17,7 +17,7 @@
 package org.onosproject.bgp.controller.impl;
 
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.onosproject.bgpio.protocol.BgpLSNlri;
 import org.onosproject.bgpio.protocol.linkstate.BgpLinkLSIdentifier;
@@ -35,16 +35,16 @@ import com.google.common.base.MoreObjects;
  * Implementation of Adj-RIB-In with VPN for each peer.
  */
 public class VpnAdjRibIn {
-    private Map<BgpNodeLSIdentifier, PathAttrNlriDetails> nodeTree = new TreeMap<>();
-    private Map<BgpLinkLSIdentifier, PathAttrNlriDetails> linkTree = new TreeMap<>();
-    private Map<BgpPrefixLSIdentifier, PathAttrNlriDetails> prefixTree = new TreeMap<>();
+    private Map<BgpNodeLSIdentifier, PathAttrNlriDetails> nodeTree = new ConcurrentSkipListMap<>();
+    private Map<BgpLinkLSIdentifier, PathAttrNlriDetails> linkTree = new ConcurrentSkipListMap<>();
+    private Map<BgpPrefixLSIdentifier, PathAttrNlriDetails> prefixTree = new ConcurrentSkipListMap<>();
 
     private Map<RouteDistinguisher, Map<BgpNodeLSIdentifier, PathAttrNlriDetails>> vpnNodeTree
-                                                                                                     = new TreeMap<>();
+            = new ConcurrentSkipListMap<>();
     private Map<RouteDistinguisher, Map<BgpLinkLSIdentifier, PathAttrNlriDetails>> vpnLinkTree
-                                                                                                     = new TreeMap<>();
+            = new ConcurrentSkipListMap<>();
     private Map<RouteDistinguisher, Map<BgpPrefixLSIdentifier, PathAttrNlriDetails>> vpnPrefixTree
-                                                                                                     = new TreeMap<>();
+            = new ConcurrentSkipListMap<>();
     /**
      * Returns the adjacency node.
      *
@@ -104,30 +104,20 @@ public class VpnAdjRibIn {
      *
      * @param nlri NLRI info
      * @param details has pathattribute , protocolID and identifier
+     * @return details the route replaced, null if the route is new
      */
-    public void add(BgpLSNlri nlri, PathAttrNlriDetails details) {
+    public PathAttrNlriDetails add(BgpLSNlri nlri, PathAttrNlriDetails details) {
         if (nlri instanceof BgpNodeLSNlriVer4) {
             BgpNodeLSIdentifier nodeLSIdentifier = ((BgpNodeLSNlriVer4) nlri).getLocalNodeDescriptors();
-            if (nodeTree.containsKey(nodeLSIdentifier)) {
-                nodeTree.replace(nodeLSIdentifier, details);
-            } else {
-                nodeTree.put(nodeLSIdentifier, details);
-            }
+            return nodeTree.put(nodeLSIdentifier, details);
         } else if (nlri instanceof BgpLinkLsNlriVer4) {
             BgpLinkLSIdentifier linkLSIdentifier = ((BgpLinkLsNlriVer4) nlri).getLinkIdentifier();
-            if (linkTree.containsKey(linkLSIdentifier)) {
-                linkTree.replace(linkLSIdentifier, details);
-            } else {
-                linkTree.put(linkLSIdentifier, details);
-            }
+            return linkTree.put(linkLSIdentifier, details);
         } else if (nlri instanceof BgpPrefixIPv4LSNlriVer4) {
             BgpPrefixLSIdentifier prefixIdentifier = ((BgpPrefixIPv4LSNlriVer4) nlri).getPrefixIdentifier();
-            if (prefixTree.containsKey(prefixIdentifier)) {
-                prefixTree.replace(prefixIdentifier, details);
-            } else {
-                prefixTree.put(prefixIdentifier, details);
-            }
+            return prefixTree.put(prefixIdentifier, details);
         }
+        return null;
     }
 
     /**
@@ -137,22 +127,19 @@ public class VpnAdjRibIn {
      * @param nlri NLRI info
      * @param details has pathattribute , protocolID and identifier
      * @param routeDistinguisher unique for for each vpn
+     * @return details the route replaced, null if the route is new
      */
-    public void addVpn(BgpLSNlri nlri, PathAttrNlriDetails details, RouteDistinguisher routeDistinguisher) {
-        add(nlri, details);
+    public PathAttrNlriDetails addVpn(BgpLSNlri nlri, PathAttrNlriDetails details,
+                                      RouteDistinguisher routeDistinguisher) {
+        PathAttrNlriDetails replaced = add(nlri, details);
         if (nlri instanceof BgpNodeLSNlriVer4) {
-            if (!vpnNodeTree.containsKey(routeDistinguisher)) {
-                vpnNodeTree.put(routeDistinguisher, nodeTree);
-            }
+            vpnNodeTree.putIfAbsent(routeDistinguisher, nodeTree);
         } else if (nlri instanceof BgpLinkLsNlriVer4) {
-            if (!vpnLinkTree.containsKey(routeDistinguisher)) {
-                vpnLinkTree.put(routeDistinguisher, linkTree);
-            }
+            vpnLinkTree.putIfAbsent(routeDistinguisher, linkTree);
         } else if (nlri instanceof BgpPrefixIPv4LSNlriVer4) {
-            if (!vpnPrefixTree.containsKey(routeDistinguisher)) {
-                vpnPrefixTree.put(routeDistinguisher, prefixTree);
-            }
+            vpnPrefixTree.putIfAbsent(routeDistinguisher, prefixTree);
         }
+        return replaced;
     }
 
     /**
@@ -160,14 +147,14 @@ public class VpnAdjRibIn {
      *
      * @param nlri NLRI Info
      * @param routeDistinguisher unique for for each vpn
+     * @return details of the removed route, null if the route does not exist
      */
-    public void removeVpn(BgpLSNlri nlri, RouteDistinguisher routeDistinguisher) {
+    public PathAttrNlriDetails removeVpn(BgpLSNlri nlri, RouteDistinguisher routeDistinguisher) {
+        PathAttrNlriDetails removed = null;
         if (nlri instanceof BgpNodeLSNlriVer4) {
             if (vpnNodeTree.containsKey(routeDistinguisher)) {
                 BgpNodeLSIdentifier nodeLSIdentifier = ((BgpNodeLSNlriVer4) nlri).getLocalNodeDescriptors();
-                if (nodeTree.containsKey(nodeLSIdentifier)) {
-                    nodeTree.remove(nodeLSIdentifier);
-                }
+                removed = nodeTree.remove(nodeLSIdentifier);
                 if ((vpnNodeTree.get(routeDistinguisher)).isEmpty()) {
                     vpnNodeTree.remove(routeDistinguisher);
                 }
@@ -175,9 +162,7 @@ public class VpnAdjRibIn {
         } else if (nlri instanceof BgpLinkLsNlriVer4) {
             if (vpnLinkTree.containsKey(routeDistinguisher)) {
                 BgpLinkLSIdentifier linkLSIdentifier = ((BgpLinkLsNlriVer4) nlri).getLinkIdentifier();
-                if (linkTree.containsKey(linkLSIdentifier)) {
-                    linkTree.remove(linkLSIdentifier);
-                }
+                removed = linkTree.remove(linkLSIdentifier);
                 if ((vpnLinkTree.get(routeDistinguisher)).isEmpty()) {
                     vpnLinkTree.remove(routeDistinguisher);
                 }
@@ -185,14 +170,13 @@ public class VpnAdjRibIn {
         } else if (nlri instanceof BgpPrefixIPv4LSNlriVer4) {
             if (vpnPrefixTree.containsKey(routeDistinguisher)) {
                 BgpPrefixLSIdentifier prefixIdentifier = ((BgpPrefixIPv4LSNlriVer4) nlri).getPrefixIdentifier();
-                if (prefixTree.containsKey(prefixIdentifier)) {
-                    prefixTree.remove(prefixIdentifier);
-                }
+                removed = prefixTree.remove(prefixIdentifier);
                 if ((vpnPrefixTree.get(routeDistinguisher)).isEmpty()) {
                     vpnPrefixTree.remove(routeDistinguisher);
                 }
             }
         }
+        return removed;
     }
 
     @Override
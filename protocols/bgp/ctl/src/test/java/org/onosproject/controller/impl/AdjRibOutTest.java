@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.controller.impl;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.MacAddress;
+import org.onosproject.bgp.controller.BgpPeer.OperationType;
+import org.onosproject.bgp.controller.impl.AdjRibOut;
+import org.onosproject.bgp.controller.impl.BgpAttributeSetTable;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
+import org.onosproject.bgpio.protocol.BgpFactories;
+import org.onosproject.bgpio.protocol.BgpMessage;
+import org.onosproject.bgpio.protocol.BgpUpdateMsg;
+import org.onosproject.bgpio.protocol.BgpVersion;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnNlriVer4;
+import org.onosproject.bgpio.protocol.evpn.BgpMacIpAdvNlriVer4;
+import org.onosproject.bgpio.types.AsPath;
+import org.onosproject.bgpio.types.BgpExtendedCommunity;
+import org.onosproject.bgpio.types.BgpHeader;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.MpReachNlri;
+import org.onosproject.bgpio.types.MpUnReachNlri;
+import org.onosproject.bgpio.types.MplsLabel;
+import org.onosproject.bgpio.types.Origin;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+import org.onosproject.bgpio.types.RouteTarget;
+import org.onosproject.bgpio.util.Constants;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+
+/**
+ * Test cases for packing of outgoing EVPN routes.
+ */
+public class AdjRibOutTest {
+
+    private static final RouteDistinguisher RD = new RouteDistinguisher(100);
+    private static final Ip4Address NEXT_HOP = Ip4Address.valueOf("10.10.10.10");
+
+    private final List<BgpMessage> sent = new ArrayList<>();
+    private int batches;
+    private AdjRibOut adjRibOut;
+    private Timer timer;
+    private BgpAttributeSetTable attributeSets;
+
+    @Before
+    public void setUp() {
+        sent.clear();
+        batches = 0;
+        timer = new HashedWheelTimer();
+        attributeSets = new BgpAttributeSetTable();
+        adjRibOut = new AdjRibOut(msgs -> {
+            batches++;
+            sent.addAll(msgs);
+        }, () -> 60000, timer, attributeSets);
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    private List<BgpValueType> attributes(int rt) {
+        List<BgpValueType> extCom = new ArrayList<>();
+        extCom.add(new RouteTarget(Constants.BGP_ROUTE_TARGET_AS, new byte[] {0x00, 0x64, 0x00, 0x00, 0x00,
+                (byte) rt }));
+        List<BgpValueType> attributes = new ArrayList<>();
+        attributes.add(new Origin((byte) 0));
+        attributes.add(new AsPath());
+        attributes.add(new BgpExtendedCommunity(extCom));
+        return attributes;
+    }
+
+    private List<BgpEvpnNlri> macRoutes(int first, int count) {
+        List<BgpEvpnNlri> routes = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            BgpMacIpAdvNlriVer4 macIpAdv = new BgpMacIpAdvNlriVer4(RD, new EthernetSegmentidentifier(new byte[10]),
+                                                                   0, MacAddress.valueOf((long) i), (byte) 0, null,
+                                                                   new MplsLabel(new byte[] {0x00, 0x01, 0x01 }),
+                                                                   null);
+            routes.add(new BgpEvpnNlriVer4((byte) BgpMacIpAdvNlriVer4.TYPE, macIpAdv));
+        }
+        return routes;
+    }
+
+    private BgpUpdateMsg reencode(BgpMessage msg) throws BgpParseException {
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+        msg.writeTo(buffer);
+        assertThat(buffer.readableBytes(), lessThanOrEqualTo(BgpHeader.MAXIMUM_MESSAGE_LENGTH));
+        return (BgpUpdateMsg) BgpFactories.getGenericReader().readFrom(buffer, new BgpHeader());
+    }
+
+    /**
+     * Queued routes hold one reference to their shared attribute set until they are written.
+     */
+    @Test
+    public void attributeSetTest() {
+        adjRibOut.addEvpn(OperationType.ADD, attributes(1), NEXT_HOP, macRoutes(0, 10));
+        adjRibOut.addEvpn(OperationType.ADD, attributes(1), NEXT_HOP, macRoutes(10, 10));
+        adjRibOut.addEvpn(OperationType.DELETE, attributes(1), NEXT_HOP, macRoutes(20, 10));
+        assertThat(attributeSets.size(), is(1));
+        assertThat(attributeSets.references(attributes(1)), is(2));
+
+        List<BgpValueType> received = attributeSets.intern(ImmutableList.copyOf(attributes(1)));
+        adjRibOut.flush();
+        assertThat(attributeSets.references(received), is(1));
+        assertThat(attributeSets.intern(received), sameInstance(received));
+    }
+
+    /**
+     * Routes with the same attributes are packed into full messages and written in one batch.
+     */
+    @Test
+    public void packingTest() throws BgpParseException {
+        for (int i = 0; i < 1000; i++) {
+            adjRibOut.addEvpn(OperationType.ADD, attributes(1), NEXT_HOP, macRoutes(i, 1));
+        }
+        adjRibOut.flush();
+
+        int routes = 0;
+        for (BgpMessage msg : sent) {
+            BgpUpdateMsg update = reencode(msg);
+            for (BgpValueType attr : update.bgpPathAttributes().pathAttributes()) {
+                if (attr instanceof MpReachNlri) {
+                    routes += ((MpReachNlri) attr).bgpEvpnNlri().size();
+                }
+            }
+        }
+        assertThat(routes, is(1000));
+        assertThat(sent.size() < 20, is(true));
+        assertThat(adjRibOut.nlriSent(), is(1000L));
+        assertThat(adjRibOut.messagesSent(), is((long) sent.size()));
+    }
+
+    /**
+     * Routes with different attributes or operations are not packed together.
+     */
+    @Test
+    public void groupingTest() throws BgpParseException {
+        adjRibOut.addEvpn(OperationType.ADD, attributes(1), NEXT_HOP, macRoutes(0, 10));
+        adjRibOut.addEvpn(OperationType.ADD, attributes(2), NEXT_HOP, macRoutes(10, 10));
+        adjRibOut.addEvpn(OperationType.DELETE, attributes(1), NEXT_HOP, macRoutes(20, 10));
+        adjRibOut.addEvpn(OperationType.ADD, attributes(1), NEXT_HOP, macRoutes(30, 10));
+        assertThat(sent.size(), is(0));
+        adjRibOut.flush();
+
+        assertThat(batches, is(1));
+        assertThat(sent.size(), is(3));
+        int withdrawn = 0;
+        for (BgpMessage msg : sent) {
+            for (BgpValueType attr : reencode(msg).bgpPathAttributes().pathAttributes()) {
+                if (attr instanceof MpUnReachNlri) {
+                    withdrawn += ((MpUnReachNlri) attr).bgpEvpnNlri().size();
+                }
+            }
+        }
+        assertThat(withdrawn, is(10));
+    }
+
+    /**
+     * Only the latest queued operation of a route is written to the peer.
+     */
+    @Test
+    public void latestOperationTest() throws BgpParseException {
+        adjRibOut.addEvpn(OperationType.ADD, attributes(1), NEXT_HOP, macRoutes(0, 2));
+        adjRibOut.addEvpn(OperationType.DELETE, attributes(1), NEXT_HOP, macRoutes(0, 1));
+        adjRibOut.addEvpn(OperationType.ADD, attributes(2), NEXT_HOP, macRoutes(0, 1));
+        adjRibOut.flush();
+
+        int advertised = 0;
+        for (BgpMessage msg : sent) {
+            for (BgpValueType attr : reencode(msg).bgpPathAttributes().pathAttributes()) {
+                assertThat(attr instanceof MpUnReachNlri, is(false));
+                if (attr instanceof MpReachNlri) {
+                    advertised += ((MpReachNlri) attr).bgpEvpnNlri().size();
+                }
+            }
+        }
+        assertThat(sent.size(), is(2));
+        assertThat(advertised, is(2));
+        assertThat(attributeSets.size(), is(0));
+
+        // the route advertised last carries the attributes it was advertised last with
+        BgpUpdateMsg last = reencode(sent.get(1));
+        assertThat(last.bgpPathAttributes().pathAttributes().contains(attributes(2).get(2)), is(true));
+    }
+
+    /**
+     * Complete messages are written after the routes queued before them.
+     */
+    @Test
+    public void messageOrderTest() throws BgpParseException {
+        adjRibOut.addEvpn(OperationType.ADD, attributes(1), NEXT_HOP, macRoutes(0, 1));
+        BgpMessage withdrawal = BgpFactories.getFactory(BgpVersion.BGP_4).updateMessageBuilder()
+                .setBgpPathAttributes(ImmutableList.of(new MpUnReachNlri(macRoutes(0, 1), Constants.AFI_EVPN_VALUE,
+                                                                          Constants.SAFI_EVPN_VALUE)))
+                .build();
+        adjRibOut.addMessage(withdrawal, 1);
+        adjRibOut.flush();
+
+        assertThat(sent.size(), is(2));
+        assertThat(sent.get(1), sameInstance(withdrawal));
+    }
+}
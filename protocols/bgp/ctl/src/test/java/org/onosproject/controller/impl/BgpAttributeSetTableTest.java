@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.controller.impl;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.Ip4Address;
+import org.onosproject.bgp.controller.impl.BgpAttributeSetTable;
+import org.onosproject.bgpio.types.AsPath;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.MpReachNlri;
+import org.onosproject.bgpio.types.Origin;
+import org.onosproject.bgpio.util.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+
+/**
+ * Test cases for the reference counted path attribute set table.
+ */
+public class BgpAttributeSetTableTest {
+
+    private BgpAttributeSetTable table;
+
+    @Before
+    public void setUp() {
+        table = new BgpAttributeSetTable();
+    }
+
+    private List<BgpValueType> updateAttributes(byte origin) {
+        List<BgpValueType> attributes = new ArrayList<>();
+        attributes.add(new Origin(origin));
+        attributes.add(new AsPath(new ArrayList<>(), new ArrayList<>(Arrays.asList((short) 100))));
+        attributes.add(new MpReachNlri(new ArrayList<>(), Constants.AFI_VALUE, Constants.SAFI_VALUE,
+                                       Ip4Address.valueOf("10.10.10.10"), 0));
+        return attributes;
+    }
+
+    /**
+     * MP NLRI attributes are not kept with the routes.
+     */
+    @Test
+    public void routeAttributesTest() {
+        List<BgpValueType> attributes = BgpAttributeSetTable.routeAttributes(updateAttributes((byte) 0));
+        assertThat(attributes.size(), is(2));
+        assertThat(attributes.get(0) instanceof Origin, is(true));
+        assertThat(attributes.get(1) instanceof AsPath, is(true));
+    }
+
+    /**
+     * Equal attribute sets share one instance until the last reference is released.
+     */
+    @Test
+    public void referenceCountTest() {
+        List<BgpValueType> first = table.intern(BgpAttributeSetTable.routeAttributes(updateAttributes((byte) 0)));
+        List<BgpValueType> second = table.intern(BgpAttributeSetTable.routeAttributes(updateAttributes((byte) 0)));
+        List<BgpValueType> other = table.intern(BgpAttributeSetTable.routeAttributes(updateAttributes((byte) 1)));
+
+        assertThat(second, sameInstance(first));
+        assertThat(table.size(), is(2));
+        assertThat(table.references(first), is(2));
+        assertThat(table.totalReferences(), is(3L));
+
+        table.release(first);
+        assertThat(table.references(first), is(1));
+        table.release(second);
+        assertThat(table.references(first), is(0));
+        assertThat(table.size(), is(1));
+
+        table.release(other);
+        table.release(other);
+        table.release(null);
+        assertThat(table.size(), is(0));
+        assertThat(table.totalReferences(), is(0L));
+    }
+
+    /**
+     * Encoded length of an attribute set matches its wire encoding.
+     */
+    @Test
+    public void encodedLengthTest() {
+        List<BgpValueType> attributes = table.intern(BgpAttributeSetTable.routeAttributes(
+                updateAttributes((byte) 0)));
+        ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+        for (BgpValueType attr : attributes) {
+            attr.write(buffer);
+        }
+        assertThat(table.encodedLength(attributes), is(buffer.readableBytes()));
+        assertThat(table.totalEncodedLength(), is((long) buffer.readableBytes()));
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.controller.impl;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.MacAddress;
+import org.onosproject.bgp.controller.BgpId;
+import org.onosproject.bgp.controller.BgpSessionInfo;
+import org.onosproject.bgp.controller.impl.BgpControllerImpl;
+import org.onosproject.bgp.controller.impl.BgpEvpnLocalRibImpl;
+import org.onosproject.bgp.controller.impl.BgpSessionInfoImpl;
+import org.onosproject.bgp.controller.impl.EvpnAdjRibIn;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
+import org.onosproject.bgpio.protocol.BgpVersion;
+import org.onosproject.bgpio.protocol.evpn.BgpEthernetAutoDiscoveryNlriVer4;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnNlriVer4;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnRouteKey;
+import org.onosproject.bgpio.protocol.evpn.BgpMacIpAdvNlriVer4;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
+import org.onosproject.bgpio.types.AsPath;
+import org.onosproject.bgpio.types.BgpExtendedCommunity;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.LocalPref;
+import org.onosproject.bgpio.types.MplsLabel;
+import org.onosproject.bgpio.types.NextHop;
+import org.onosproject.bgpio.types.Origin;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+import org.onosproject.bgpio.types.RouteTarget;
+import org.onosproject.bgpio.util.Constants;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test cases for BGP EVPN local RIB.
+ */
+public class BgpEvpnLocalRibTest {
+
+    private static final RouteDistinguisher RD = new RouteDistinguisher(100);
+    private static final RouteTarget RT = new RouteTarget(Constants.BGP_ROUTE_TARGET_AS,
+                                                          new byte[] {0x00, 0x64, 0x00, 0x00, 0x00, 0x01 });
+
+    private static final EthernetSegmentidentifier ESI = new EthernetSegmentidentifier(
+            new byte[] {0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09 });
+    private static final Ip4Address NEXT_HOP1 = Ip4Address.valueOf("1.1.1.1");
+    private static final Ip4Address NEXT_HOP2 = Ip4Address.valueOf("2.2.2.2");
+
+    private BgpEvpnLocalRibImpl localRib;
+    private BgpSessionInfo peer1;
+    private BgpSessionInfo peer2;
+    private final List<Map<BgpEvpnRouteKey, IpAddress>> updateBatches = new ArrayList<>();
+    private final List<Collection<BgpEvpnRouteKey>> deleteBatches = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        BgpControllerImpl controller = new BgpControllerImpl();
+        controller.addEvpnListener((updateRoutes, deleteRoutes) -> {
+            assertThat(Thread.holdsLock(localRib), is(false));
+            updateBatches.add(new HashMap<>(updateRoutes));
+            deleteBatches.add(new ArrayList<>(deleteRoutes));
+        });
+        localRib = new BgpEvpnLocalRibImpl(controller);
+        peer1 = sessionInfo("10.10.10.10", 168430090);
+        peer2 = sessionInfo("11.11.11.11", 185273099);
+    }
+
+    private BgpSessionInfo sessionInfo(String ip, int identifier) {
+        return new BgpSessionInfoImpl(BgpId.bgpId(IpAddress.valueOf(ip)), BgpVersion.BGP_4, 100,
+                                      (short) 180, identifier, (short) 180, true, new LinkedList<>());
+    }
+
+    private BgpEvpnNlri macRoute(String mac) {
+        BgpMacIpAdvNlriVer4 macIpAdv = new BgpMacIpAdvNlriVer4(RD, new EthernetSegmentidentifier(new byte[10]), 0,
+                                                               MacAddress.valueOf(mac), (byte) 0, null,
+                                                               new MplsLabel(new byte[] {0x00, 0x01, 0x01 }),
+                                                               null);
+        return new BgpEvpnNlriVer4((byte) BgpMacIpAdvNlriVer4.TYPE, macIpAdv);
+    }
+
+    private BgpEvpnNlri segmentMacRoute(String mac) {
+        BgpMacIpAdvNlriVer4 macIpAdv = new BgpMacIpAdvNlriVer4(RD, ESI, 0, MacAddress.valueOf(mac), (byte) 0, null,
+                                                               new MplsLabel(new byte[] {0x00, 0x01, 0x01 }),
+                                                               null);
+        return new BgpEvpnNlriVer4((byte) BgpMacIpAdvNlriVer4.TYPE, macIpAdv);
+    }
+
+    private BgpEvpnNlri segmentRoute(long rd) {
+        BgpEthernetAutoDiscoveryNlriVer4 autoDiscovery = new BgpEthernetAutoDiscoveryNlriVer4(
+                new RouteDistinguisher(rd), ESI, BgpEthernetAutoDiscoveryNlriVer4.MAX_ETHERNET_TAG,
+                new MplsLabel(new byte[] {0x00, 0x00, 0x00 }));
+        return new BgpEvpnNlriVer4((byte) BgpEthernetAutoDiscoveryNlriVer4.TYPE, autoDiscovery);
+    }
+
+    private PathAttrNlriDetails details(int localPref, Ip4Address nextHop) {
+        PathAttrNlriDetails details = details(localPref);
+        details.pathAttributes().add(new NextHop(nextHop));
+        return details;
+    }
+
+    private PathAttrNlriDetails details(int localPref) {
+        List<BgpValueType> pathAttributes = new LinkedList<>();
+        pathAttributes.add(new Origin((byte) 0));
+        pathAttributes.add(new AsPath());
+        pathAttributes.add(new LocalPref(localPref));
+        List<BgpValueType> extCommunity = new LinkedList<>();
+        extCommunity.add(RT);
+        pathAttributes.add(new BgpExtendedCommunity(extCommunity));
+        PathAttrNlriDetails details = new PathAttrNlriDetails();
+        details.setPathAttribute(pathAttributes);
+        return details;
+    }
+
+    /**
+     * Route with higher local preference is selected and withdrawal falls back to the other path.
+     */
+    @Test
+    public void bestPathSelectionTest() throws BgpParseException {
+        BgpEvpnNlri nlri = macRoute("00:00:00:00:00:01");
+        BgpEvpnRouteKey routeKey = BgpEvpnRouteKey.of(nlri);
+        PathAttrNlriDetails details1 = details(100);
+        PathAttrNlriDetails details2 = details(200);
+
+        localRib.add(peer1, nlri, details1);
+        assertThat(localRib.bestPath(routeKey).localRibNlridetails(), is(details1));
+
+        localRib.add(peer2, macRoute("00:00:00:00:00:01"), details2);
+        assertThat(localRib.bestPath(routeKey).localRibNlridetails(), is(details2));
+        assertThat(localRib.candidates(routeKey).size(), is(2));
+
+        localRib.delete(peer2, nlri);
+        assertThat(localRib.bestPath(routeKey).localRibNlridetails(), is(details1));
+
+        localRib.delete(peer1, nlri);
+        assertThat(localRib.bestPath(routeKey), is(nullValue()));
+        assertThat(localRib.size(), is(0));
+    }
+
+    /**
+     * The NLRI of a route follows the selected best path when the best path moves to another peer.
+     */
+    @Test
+    public void bestPathNlriTest() throws BgpParseException {
+        BgpEvpnNlri nlri1 = macRoute("00:00:00:00:00:01");
+        BgpMacIpAdvNlriVer4 macIpAdv = new BgpMacIpAdvNlriVer4(RD, new EthernetSegmentidentifier(new byte[10]), 0,
+                                                               MacAddress.valueOf("00:00:00:00:00:01"), (byte) 0,
+                                                               null, new MplsLabel(new byte[] {0x00, 0x02, 0x01 }),
+                                                               null);
+        BgpEvpnNlri nlri2 = new BgpEvpnNlriVer4((byte) BgpMacIpAdvNlriVer4.TYPE, macIpAdv);
+        BgpEvpnRouteKey routeKey = BgpEvpnRouteKey.of(nlri1);
+
+        localRib.add(peer1, nlri1, details(100));
+        localRib.add(peer2, nlri2, details(200));
+        assertThat(localRib.evpnNlri(routeKey), is(sameInstance(nlri2)));
+
+        localRib.delete(peer2, nlri2);
+        assertThat(localRib.evpnNlri(routeKey), is(sameInstance(nlri1)));
+
+        localRib.add(peer2, nlri2, details(50));
+        assertThat(localRib.evpnNlri(routeKey), is(sameInstance(nlri1)));
+
+        localRib.delete(peer1, nlri1);
+        assertThat(localRib.evpnNlri(routeKey), is(sameInstance(nlri2)));
+    }
+
+    /**
+     * Selected routes are indexed by route distinguisher and route target.
+     */
+    @Test
+    public void routeIndexTest() throws BgpParseException {
+        BgpEvpnNlri nlri1 = macRoute("00:00:00:00:00:01");
+        BgpEvpnNlri nlri2 = macRoute("00:00:00:00:00:02");
+        localRib.add(peer1, nlri1, details(100));
+        localRib.add(peer1, nlri2, details(100));
+
+        assertThat(localRib.routesByRd(RD).size(), is(2));
+        assertThat(localRib.routesByRouteTarget(new RouteTarget(Constants.BGP_ROUTE_TARGET_AS,
+                new byte[] {0x00, 0x64, 0x00, 0x00, 0x00, 0x01 })).size(), is(2));
+
+        assertThat(localRib.routeTargets(BgpEvpnRouteKey.of(nlri1)), contains(RT));
+
+        localRib.delete(peer1, nlri1);
+        assertThat(localRib.routesByRd(RD).size(), is(1));
+        assertThat(localRib.routesByRouteTarget(RT).size(), is(1));
+        assertThat(localRib.routeTargets(BgpEvpnRouteKey.of(nlri1)).isEmpty(), is(true));
+    }
+
+    /**
+     * Peer disconnect removes only the paths advertised by that peer.
+     */
+    @Test
+    public void peerDisconnectTest() throws BgpParseException {
+        BgpEvpnNlri nlri1 = macRoute("00:00:00:00:00:01");
+        BgpEvpnNlri nlri2 = macRoute("00:00:00:00:00:02");
+        EvpnAdjRibIn adjRib = new EvpnAdjRibIn();
+        adjRib.add(BgpEvpnRouteKey.of(nlri1), nlri1, details(100));
+
+        localRib.add(peer1, nlri1, details(100));
+        localRib.add(peer2, nlri2, details(100));
+        localRib.localRibUpdate(peer1, adjRib);
+
+        assertThat(localRib.bestPath(BgpEvpnRouteKey.of(nlri1)), is(nullValue()));
+        assertThat(localRib.size(), is(1));
+    }
+
+    /**
+     * Withdrawal of a per Ethernet segment auto-discovery route invalidates every MAC route of the segment
+     * behind that next hop in one listener batch, and its re-advertisement restores them.
+     */
+    @Test
+    public void massWithdrawalTest() throws BgpParseException {
+        String[] macs = {"00:00:00:00:00:01", "00:00:00:00:00:02", "00:00:00:00:00:03" };
+        localRib.add(peer1, segmentRoute(1), details(100, NEXT_HOP1));
+        localRib.add(peer2, segmentRoute(2), details(100, NEXT_HOP2));
+        for (String mac : macs) {
+            localRib.add(peer1, segmentMacRoute(mac), details(200, NEXT_HOP1));
+            localRib.add(peer2, segmentMacRoute(mac), details(100, NEXT_HOP2));
+        }
+        assertThat(localRib.routesBySegment(ESI).size(), is(3));
+        assertThat(localRib.segmentNextHops(ESI), is(ImmutableSet.of(NEXT_HOP1, NEXT_HOP2)));
+        assertThat(localRib.nextHops().get(BgpEvpnRouteKey.of(segmentMacRoute(macs[0]))), is(NEXT_HOP1));
+
+        updateBatches.clear();
+        deleteBatches.clear();
+        localRib.delete(peer1, segmentRoute(1));
+        assertThat(updateBatches.size(), is(1));
+        assertThat(updateBatches.get(0).size(), is(3));
+        for (String mac : macs) {
+            assertThat(updateBatches.get(0).get(BgpEvpnRouteKey.of(segmentMacRoute(mac))), is(NEXT_HOP2));
+        }
+        assertThat(deleteBatches.get(0), is(Collections.singletonList(BgpEvpnRouteKey.of(segmentRoute(1)))));
+        assertThat(localRib.segmentNextHops(ESI), is(ImmutableSet.of(NEXT_HOP2)));
+
+        updateBatches.clear();
+        deleteBatches.clear();
+        localRib.delete(peer2, segmentRoute(2));
+        assertThat(deleteBatches.size(), is(1));
+        assertThat(deleteBatches.get(0).size(), is(4));
+        assertThat(updateBatches.get(0).isEmpty(), is(true));
+        assertThat(localRib.routesBySegment(ESI).isEmpty(), is(true));
+        assertThat(localRib.size(), is(0));
+
+        updateBatches.clear();
+        localRib.add(peer1, segmentRoute(1), details(100, NEXT_HOP1));
+        assertThat(updateBatches.size(), is(1));
+        assertThat(updateBatches.get(0).size(), is(4));
+        assertThat(localRib.nextHops().get(BgpEvpnRouteKey.of(segmentMacRoute(macs[2]))), is(NEXT_HOP1));
+        assertThat(localRib.evpnNlri(BgpEvpnRouteKey.of(segmentMacRoute(macs[2]))), is(notNullValue()));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.controller.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.bgp.controller.BgpFlowSpecListener;
+import org.onosproject.bgp.controller.BgpId;
+import org.onosproject.bgp.controller.BgpSessionInfo;
+import org.onosproject.bgp.controller.impl.BgpControllerImpl;
+import org.onosproject.bgp.controller.impl.BgpFlowSpecLocalRibImpl;
+import org.onosproject.bgp.controller.impl.BgpSessionInfoImpl;
+import org.onosproject.bgp.controller.impl.FlowSpecAdjRibIn;
+import org.onosproject.bgpio.protocol.BgpVersion;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecNlri;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecRouteKey;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
+import org.onosproject.bgpio.types.AsPath;
+import org.onosproject.bgpio.types.BgpExtendedCommunity;
+import org.onosproject.bgpio.types.BgpFsActionTrafficRate;
+import org.onosproject.bgpio.types.BgpFsDestinationPrefix;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.LocalPref;
+import org.onosproject.bgpio.types.Origin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test cases for BGP flow specification local RIB.
+ */
+public class BgpFlowSpecLocalRibTest {
+
+    private BgpControllerImpl controller;
+    private BgpFlowSpecLocalRibImpl localRib;
+    private BgpSessionInfo peer1;
+    private BgpSessionInfo peer2;
+    private final List<BgpFlowSpecRouteKey> added = new ArrayList<>();
+    private final List<BgpFlowSpecRouteKey> deleted = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        controller = new BgpControllerImpl();
+        controller.addFlowSpecListener(new BgpFlowSpecListener() {
+            @Override
+            public void updateFlowSpecs(Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> addFlowSpecs,
+                                        Collection<BgpFlowSpecRouteKey> deleteFlowSpecs) {
+                added.addAll(addFlowSpecs.keySet());
+                deleted.addAll(deleteFlowSpecs);
+            }
+        });
+        localRib = (BgpFlowSpecLocalRibImpl) controller.bgpFlowSpecLocalRib();
+        peer1 = sessionInfo("10.10.10.10", 168430090);
+        peer2 = sessionInfo("11.11.11.11", 185273099);
+    }
+
+    private BgpSessionInfo sessionInfo(String ip, int identifier) {
+        return new BgpSessionInfoImpl(BgpId.bgpId(IpAddress.valueOf(ip)), BgpVersion.BGP_4, 100,
+                                      (short) 180, identifier, (short) 180, true, new LinkedList<>());
+    }
+
+    private BgpFlowSpecNlri flowSpec(String dstPrefix) {
+        IpPrefix prefix = IpPrefix.valueOf(dstPrefix);
+        List<BgpValueType> components = new ArrayList<>();
+        components.add(new BgpFsDestinationPrefix((byte) prefix.prefixLength(), prefix));
+        return new BgpFlowSpecNlri(components);
+    }
+
+    private PathAttrNlriDetails details(int localPref, float rate) {
+        List<BgpValueType> pathAttributes = new LinkedList<>();
+        pathAttributes.add(new Origin((byte) 0));
+        pathAttributes.add(new AsPath());
+        pathAttributes.add(new LocalPref(localPref));
+        List<BgpValueType> actions = new LinkedList<>();
+        actions.add(new BgpFsActionTrafficRate((short) 100, rate));
+        pathAttributes.add(new BgpExtendedCommunity(actions));
+        PathAttrNlriDetails details = new PathAttrNlriDetails();
+        details.setPathAttribute(pathAttributes);
+        return details;
+    }
+
+    private float rate(BgpFlowSpecRouteKey routeKey) {
+        BgpFlowSpecNlri selected = localRib.flowSpecs().get(routeKey);
+        return ((BgpFsActionTrafficRate) selected.fsActionTlv().get(0)).rate();
+    }
+
+    /**
+     * Selected flow specification carries the actions of the best path.
+     */
+    @Test
+    public void bestPathSelectionTest() {
+        BgpFlowSpecNlri flowSpec = flowSpec("10.1.0.0/16");
+        BgpFlowSpecRouteKey routeKey = BgpFlowSpecRouteKey.of(flowSpec);
+
+        localRib.add(peer1, routeKey, flowSpec, details(100, 0));
+        assertThat(rate(routeKey), is(0f));
+
+        localRib.add(peer2, routeKey, flowSpec("10.1.0.0/16"), details(200, 1000));
+        assertThat(rate(routeKey), is(1000f));
+        assertThat(localRib.candidates(routeKey).size(), is(2));
+
+        localRib.delete(peer2, routeKey);
+        assertThat(rate(routeKey), is(0f));
+
+        localRib.delete(peer1, routeKey);
+        assertThat(localRib.bestPath(routeKey), is(nullValue()));
+        assertThat(localRib.size(), is(0));
+        assertThat(added.size(), is(3));
+        assertThat(deleted, contains(routeKey));
+    }
+
+    /**
+     * Selected flow specifications are returned in RFC 5575 order.
+     */
+    @Test
+    public void precedenceOrderTest() {
+        BgpFlowSpecRouteKey wide = BgpFlowSpecRouteKey.of(flowSpec("10.0.0.0/8"));
+        BgpFlowSpecRouteKey narrow = BgpFlowSpecRouteKey.of(flowSpec("10.1.0.0/16"));
+        BgpFlowSpecRouteKey other = BgpFlowSpecRouteKey.of(flowSpec("9.0.0.0/8"));
+        localRib.add(peer1, wide, flowSpec("10.0.0.0/8"), details(100, 0));
+        localRib.add(peer1, narrow, flowSpec("10.1.0.0/16"), details(100, 0));
+        localRib.add(peer1, other, flowSpec("9.0.0.0/8"), details(100, 0));
+
+        assertThat(localRib.flowSpecs().keySet(), contains(other, narrow, wide));
+    }
+
+    /**
+     * Peer going down withdraws its flow specifications in one notification.
+     */
+    @Test
+    public void peerDownTest() {
+        FlowSpecAdjRibIn adjRib = new FlowSpecAdjRibIn();
+        for (int i = 1; i <= 3; i++) {
+            BgpFlowSpecNlri flowSpec = flowSpec("10." + i + ".0.0/16");
+            BgpFlowSpecRouteKey routeKey = BgpFlowSpecRouteKey.of(flowSpec);
+            PathAttrNlriDetails details = details(100, 0);
+            adjRib.add(routeKey, details);
+            localRib.add(peer1, routeKey, flowSpec, details);
+        }
+        localRib.localRibUpdate(peer1, adjRib);
+        assertThat(localRib.size(), is(0));
+        assertThat(deleted.size(), is(3));
+    }
+}
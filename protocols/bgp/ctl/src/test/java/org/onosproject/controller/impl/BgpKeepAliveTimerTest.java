@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.controller.impl;
+
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.bgp.controller.impl.BgpKeepAliveTimer;
+import org.onosproject.bgp.controller.impl.BgpTimerStats;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test cases for the keepalive timer of a BGP session.
+ */
+public class BgpKeepAliveTimerTest {
+
+    private static final long INTERVAL_MILLIS = 100;
+    private static final long WAIT_MILLIS = 5000;
+
+    private Timer timer;
+    private BgpTimerStats stats;
+
+    @Before
+    public void setUp() {
+        timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS);
+        stats = new BgpTimerStats();
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    /**
+     * Keepalive messages are sent every interval while nothing else is written to the peer.
+     */
+    @Test
+    public void rescheduleTest() throws InterruptedException {
+        // the statistics count a keepalive after it was sent, so wait for the one after the third
+        CountDownLatch keepAlives = new CountDownLatch(4);
+        BgpKeepAliveTimer keepAliveTimer = new BgpKeepAliveTimer(timer, stats, INTERVAL_MILLIS, () -> 0L,
+                                                                 keepAlives::countDown);
+
+        assertThat(keepAlives.await(WAIT_MILLIS, TimeUnit.MILLISECONDS), is(true));
+        keepAliveTimer.cancel();
+        assertThat(stats.keepAliveSent(), greaterThanOrEqualTo(3L));
+        assertThat(stats.keepAliveCoalesced(), is(0L));
+        assertThat(stats.keepAliveIntervalMillis(), is(0L));
+    }
+
+    /**
+     * Keepalive messages are skipped while other messages are written to the peer, except the first one.
+     */
+    @Test
+    public void coalesceTest() throws InterruptedException {
+        AtomicInteger keepAlives = new AtomicInteger();
+        BgpKeepAliveTimer keepAliveTimer = new BgpKeepAliveTimer(timer, stats, INTERVAL_MILLIS,
+                                                                 System::currentTimeMillis,
+                                                                 keepAlives::incrementAndGet);
+
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (stats.keepAliveCoalesced() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(INTERVAL_MILLIS / 2);
+        }
+        keepAliveTimer.cancel();
+        assertThat(stats.keepAliveCoalesced(), greaterThanOrEqualTo(2L));
+        assertThat(keepAlives.get(), is(1));
+        assertThat(stats.keepAliveSent(), is(1L));
+    }
+
+    /**
+     * No keepalive message is sent once the timer is cancelled.
+     */
+    @Test
+    public void cancelTest() throws InterruptedException {
+        CountDownLatch first = new CountDownLatch(1);
+        AtomicInteger keepAlives = new AtomicInteger();
+        BgpKeepAliveTimer keepAliveTimer = new BgpKeepAliveTimer(timer, stats, INTERVAL_MILLIS, () -> 0L, () -> {
+            keepAlives.incrementAndGet();
+            first.countDown();
+        });
+
+        assertThat(first.await(WAIT_MILLIS, TimeUnit.MILLISECONDS), is(true));
+        keepAliveTimer.cancel();
+        int sent = keepAlives.get();
+        Thread.sleep(3 * INTERVAL_MILLIS);
+        assertThat(keepAlives.get(), is(sent));
+    }
+}
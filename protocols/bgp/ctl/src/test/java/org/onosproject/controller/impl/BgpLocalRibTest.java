@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.controller.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.bgp.controller.BgpId;
+import org.onosproject.bgp.controller.BgpNodeListener;
+import org.onosproject.bgp.controller.BgpSessionInfo;
+import org.onosproject.bgp.controller.impl.AdjRibIn;
+import org.onosproject.bgp.controller.impl.BgpControllerImpl;
+import org.onosproject.bgp.controller.impl.BgpLocalRibImpl;
+import org.onosproject.bgp.controller.impl.BgpSessionInfoImpl;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpVersion;
+import org.onosproject.bgpio.protocol.linkstate.BgpNodeLSIdentifier;
+import org.onosproject.bgpio.protocol.linkstate.BgpNodeLSNlriVer4;
+import org.onosproject.bgpio.protocol.linkstate.NodeDescriptors;
+import org.onosproject.bgpio.protocol.linkstate.PathAttrNlriDetails;
+import org.onosproject.bgpio.types.AsPath;
+import org.onosproject.bgpio.types.AutonomousSystemTlv;
+import org.onosproject.bgpio.types.BgpLSIdentifierTlv;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.LocalPref;
+import org.onosproject.bgpio.types.Origin;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test cases for BGP local RIB best path selection.
+ */
+public class BgpLocalRibTest {
+
+    private BgpLocalRibImpl localRib;
+    private BgpSessionInfo peer1;
+    private BgpSessionInfo peer2;
+    private BgpNodeLSIdentifier nodeKey;
+    private BgpNodeLSNlriVer4 nodeNlri;
+    private int addCount;
+    private int deleteCount;
+    private int batchCount;
+
+    @Before
+    public void setUp() {
+        BgpControllerImpl controller = new BgpControllerImpl();
+        controller.addListener(new BgpNodeListener() {
+            @Override
+            public void addNode(BgpNodeLSNlriVer4 nodeNlri, PathAttrNlriDetails details) {
+                addCount++;
+            }
+
+            @Override
+            public void deleteNode(BgpNodeLSNlriVer4 nodeNlri) {
+                deleteCount++;
+            }
+
+            @Override
+            public void updateNodes(Map<BgpNodeLSNlriVer4, PathAttrNlriDetails> addNodes,
+                                    Collection<BgpNodeLSNlriVer4> deleteNodes) {
+                batchCount++;
+                deleteCount += deleteNodes.size();
+            }
+        });
+        localRib = new BgpLocalRibImpl(controller);
+        peer1 = sessionInfo("10.10.10.10", 168430090);
+        peer2 = sessionInfo("11.11.11.11", 185273099);
+
+        List<BgpValueType> subTlvs = new LinkedList<>();
+        subTlvs.add(AutonomousSystemTlv.of(2478));
+        subTlvs.add(BgpLSIdentifierTlv.of(33686018));
+        nodeKey = new BgpNodeLSIdentifier(new NodeDescriptors(subTlvs, (short) 0x10, (short) 256));
+        nodeNlri = new BgpNodeLSNlriVer4(0, (byte) 2, nodeKey, false, null);
+    }
+
+    private BgpSessionInfo sessionInfo(String ip, int identifier) {
+        return new BgpSessionInfoImpl(BgpId.bgpId(IpAddress.valueOf(ip)), BgpVersion.BGP_4, 100,
+                                      (short) 180, identifier, (short) 180, true, new LinkedList<>());
+    }
+
+    private PathAttrNlriDetails details(int localPref) {
+        List<BgpValueType> pathAttributes = new LinkedList<>();
+        pathAttributes.add(new Origin((byte) 0));
+        pathAttributes.add(new AsPath());
+        pathAttributes.add(new LocalPref(localPref));
+        PathAttrNlriDetails details = new PathAttrNlriDetails();
+        details.setPathAttribute(pathAttributes);
+        details.setProtocolID(BgpNodeLSNlriVer4.ProtocolType.OSPF_V2);
+        details.setIdentifier(0);
+        return details;
+    }
+
+    /**
+     * Better path replaces the selected node path and withdrawal falls back to the remaining path.
+     */
+    @Test
+    public void nodeSelectionTest() throws BgpParseException {
+        PathAttrNlriDetails details1 = details(200);
+        PathAttrNlriDetails details2 = details(100);
+
+        localRib.add(peer1, nodeNlri, details1);
+        assertThat(localRib.nodeTree().get(nodeKey).localRibNlridetails(), is(details1));
+        assertThat(addCount, is(1));
+
+        // worse path from second peer does not change the selection
+        localRib.add(peer2, nodeNlri, details2);
+        assertThat(localRib.nodeTree().get(nodeKey).localRibNlridetails(), is(details1));
+        assertThat(localRib.nodeCandidates().candidates(nodeKey).size(), is(2));
+        assertThat(addCount, is(1));
+
+        localRib.delete(peer1, nodeNlri);
+        assertThat(localRib.nodeTree().get(nodeKey).localRibNlridetails(), is(details2));
+        assertThat(addCount, is(2));
+        assertThat(deleteCount, is(0));
+
+        localRib.delete(peer2, nodeNlri);
+        assertThat(localRib.nodeTree().containsKey(nodeKey), is(false));
+        assertThat(deleteCount, is(1));
+    }
+
+    /**
+     * Peer disconnect withdraws all paths of the peer and notifies one batched delta.
+     */
+    @Test
+    public void peerDisconnectTest() throws BgpParseException {
+        PathAttrNlriDetails details1 = details(200);
+        AdjRibIn adjRib = new AdjRibIn();
+        adjRib.add(nodeNlri, details1);
+        localRib.add(peer1, nodeNlri, details1);
+
+        localRib.localRibUpdate(peer1.remoteBgpId(), adjRib);
+        assertThat(localRib.nodeTree().containsKey(nodeKey), is(false));
+        assertThat(localRib.nodeCandidates().size(), is(0));
+        assertThat(batchCount, is(1));
+        assertThat(deleteCount, is(1));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.controller.impl;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.CodecEmbedderException;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.bgp.controller.impl.BgpMessageDecoder;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpKeepaliveMsg;
+import org.onosproject.bgpio.protocol.BgpMessage;
+import org.onosproject.bgpio.types.BgpErrorType;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+/**
+ * Test cases for BGP message framing.
+ */
+public class BgpMessageDecoderTest {
+
+    private static final byte[] KEEPALIVE = new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+            (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+            (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x00, 0x13, 0x04};
+
+    private DecoderEmbedder<List<BgpMessage>> decoder;
+
+    @Before
+    public void setUp() {
+        decoder = new DecoderEmbedder<>(new BgpMessageDecoder());
+    }
+
+    /**
+     * Multiple messages in one read are decoded together.
+     */
+    @Test
+    public void multipleFramesTest() {
+        decoder.offer(ChannelBuffers.wrappedBuffer(KEEPALIVE, KEEPALIVE, KEEPALIVE));
+        List<BgpMessage> msgList = decoder.poll();
+        assertThat(msgList.size(), is(3));
+        assertThat(msgList.get(0), instanceOf(BgpKeepaliveMsg.class));
+        assertThat(decoder.poll(), nullValue());
+    }
+
+    /**
+     * A message split across reads is decoded once it is complete.
+     */
+    @Test
+    public void partialFrameTest() {
+        ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(KEEPALIVE, KEEPALIVE);
+        decoder.offer(buffer.readSlice(10));
+        assertThat(decoder.poll(), nullValue());
+        decoder.offer(buffer.readSlice(20));
+        assertThat(decoder.poll().size(), is(1));
+        decoder.offer(buffer.readSlice(buffer.readableBytes()));
+        assertThat(decoder.poll().size(), is(1));
+    }
+
+    /**
+     * A header with a bad length field is reported as a message header error.
+     */
+    @Test
+    public void badLengthTest() {
+        byte[] bad = KEEPALIVE.clone();
+        bad[17] = 0x10;
+        try {
+            decoder.offer(ChannelBuffers.wrappedBuffer(bad));
+        } catch (CodecEmbedderException e) {
+            BgpParseException cause = (BgpParseException) e.getCause();
+            assertThat(cause.getErrorCode(), is(BgpErrorType.MESSAGE_HEADER_ERROR));
+            assertThat(cause.getErrorSubCode(), is(BgpErrorType.BAD_MESSAGE_LENGTH));
+            return;
+        }
+        throw new AssertionError("Bad length not reported");
+    }
+}
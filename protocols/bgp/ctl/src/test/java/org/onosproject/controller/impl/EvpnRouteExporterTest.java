@@ -0,0 +1,211 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.controller.impl;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelDownstreamHandler;
+import org.jboss.netty.channel.local.DefaultLocalClientChannelFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.MacAddress;
+import org.onosproject.bgp.controller.BgpId;
+import org.onosproject.bgp.controller.BgpPeer.OperationType;
+import org.onosproject.bgp.controller.impl.BgpControllerImpl;
+import org.onosproject.bgp.controller.impl.BgpPacketStatsImpl;
+import org.onosproject.bgp.controller.impl.BgpPeerImpl;
+import org.onosproject.bgp.controller.impl.BgpSessionInfoImpl;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
+import org.onosproject.bgpio.protocol.BgpMessage;
+import org.onosproject.bgpio.protocol.BgpVersion;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnNlriVer4;
+import org.onosproject.bgpio.protocol.evpn.BgpMacIpAdvNlriVer4;
+import org.onosproject.bgpio.protocol.rtc.RouteTargetMembershipNlri;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.MplsLabel;
+import org.onosproject.bgpio.types.MultiProtocolExtnCapabilityTlv;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+import org.onosproject.bgpio.types.RouteTarget;
+import org.onosproject.bgpio.util.Constants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+
+/**
+ * Test cases for the export stage of EVPN routes.
+ */
+public class EvpnRouteExporterTest {
+
+    private static final int ROUTES = 10;
+    private static final RouteDistinguisher RD = new RouteDistinguisher(100);
+    private static final Ip4Address NEXT_HOP = Ip4Address.valueOf("10.10.10.1");
+    private static final RouteTarget RT1 = new RouteTarget(Constants.BGP_ROUTE_TARGET_AS,
+                                                           new byte[] {0x00, 0x64, 0x00, 0x00, 0x00, 0x01 });
+    private static final RouteTarget RT2 = new RouteTarget(Constants.BGP_ROUTE_TARGET_AS,
+                                                           new byte[] {0x00, 0x64, 0x00, 0x00, 0x00, 0x02 });
+
+    private BgpControllerImpl controller;
+
+    @Before
+    public void setUp() {
+        controller = new BgpControllerImpl();
+        controller.getConfig().setUpdateFlushInterval(0);
+        controller.getConfig().setRtConstrainCapability(true);
+    }
+
+    /**
+     * Connects a peer whose written messages are collected in the given list.
+     */
+    private BgpPeerImpl peer(String ip, boolean rtConstrain, List<BgpMessage> written) {
+        List<BgpValueType> capability = new LinkedList<>();
+        capability.add(new MultiProtocolExtnCapabilityTlv(Constants.AFI_EVPN_VALUE, (byte) 0,
+                                                          Constants.SAFI_EVPN_VALUE));
+        if (rtConstrain) {
+            capability.add(new MultiProtocolExtnCapabilityTlv(Constants.AFI_RT_CONSTRAIN_VALUE, (byte) 0,
+                                                              Constants.SAFI_RT_CONSTRAIN_VALUE));
+        }
+        BgpId bgpId = BgpId.bgpId(IpAddress.valueOf(ip));
+        BgpPeerImpl peer = new BgpPeerImpl(controller, new BgpSessionInfoImpl(bgpId, BgpVersion.BGP_4, 100,
+                                                                              (short) 180, 168430090, (short) 180,
+                                                                              true, capability),
+                                           new BgpPacketStatsImpl());
+        peer.setChannel(channel(written));
+        controller.peerManager().addConnectedPeer(bgpId, peer);
+        return peer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Channel channel(List<BgpMessage> written) {
+        return new DefaultLocalClientChannelFactory().newChannel(Channels.pipeline(
+                new SimpleChannelDownstreamHandler() {
+                    @Override
+                    public void writeRequested(ChannelHandlerContext ctx, MessageEvent e) {
+                        written.addAll((List<BgpMessage>) e.getMessage());
+                    }
+                }));
+    }
+
+    private List<BgpEvpnNlri> routes(int count) {
+        List<BgpEvpnNlri> routes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BgpMacIpAdvNlriVer4 macIpAdv = new BgpMacIpAdvNlriVer4(RD, new EthernetSegmentidentifier(new byte[10]),
+                                                                   0, MacAddress.valueOf((long) i), (byte) 0, null,
+                                                                   new MplsLabel(new byte[] {0x00, 0x01, 0x01 }),
+                                                                   null);
+            routes.add(new BgpEvpnNlriVer4((byte) BgpMacIpAdvNlriVer4.TYPE, macIpAdv));
+        }
+        return routes;
+    }
+
+    private static List<BgpValueType> extCommunities(RouteTarget rt) {
+        List<BgpValueType> extCom = new ArrayList<>();
+        extCom.add(rt);
+        return extCom;
+    }
+
+    private static List<RouteTargetMembershipNlri> membership(RouteTarget rt) {
+        return Collections.singletonList(new RouteTargetMembershipNlri(100, rt));
+    }
+
+    /**
+     * Routes are encoded once and the same message is written to every peer.
+     */
+    @Test
+    public void sharedEncodingTest() {
+        List<BgpMessage> written1 = new ArrayList<>();
+        List<BgpMessage> written2 = new ArrayList<>();
+        List<BgpMessage> written3 = new ArrayList<>();
+        peer("10.10.10.10", false, written1);
+        peer("10.10.10.11", false, written2);
+        peer("10.10.10.12", false, written3);
+
+        controller.exportEvpn(OperationType.ADD, NEXT_HOP, extCommunities(RT1), routes(ROUTES));
+
+        assertThat(controller.evpnRouteExporter().size(), is(ROUTES));
+        assertThat(controller.evpnRouteExporter().encodedMessages(), is(1L));
+        assertThat(written1.size(), is(1));
+        assertThat(written2.get(0), sameInstance(written1.get(0)));
+        assertThat(written3.get(0), sameInstance(written1.get(0)));
+
+        controller.exportEvpn(OperationType.DELETE, null, extCommunities(RT1), routes(ROUTES));
+        assertThat(controller.evpnRouteExporter().size(), is(0));
+        assertThat(written1.size(), is(2));
+        assertThat(written2.get(1), sameInstance(written1.get(1)));
+    }
+
+    /**
+     * Routes are only sent to the peers importing their route targets and follow membership changes.
+     */
+    @Test
+    public void rtConstrainTest() {
+        List<BgpMessage> written1 = new ArrayList<>();
+        List<BgpMessage> written2 = new ArrayList<>();
+        BgpPeerImpl peer1 = peer("10.10.10.10", true, written1);
+        BgpPeerImpl peer2 = peer("10.10.10.11", true, written2);
+        peer1.updateRtMembership(membership(RT1), Collections.emptyList());
+        peer2.updateRtMembership(membership(RT2), Collections.emptyList());
+
+        controller.exportEvpn(OperationType.ADD, NEXT_HOP, extCommunities(RT1), routes(ROUTES));
+        assertThat(written1.size(), is(1));
+        assertThat(written2.size(), is(0));
+        assertThat(controller.evpnRouteExporter().encodedMessages(), is(0L));
+
+        // peer 2 starts importing the route target and receives the routes
+        peer2.updateRtMembership(membership(RT1), Collections.emptyList());
+        assertThat(written2.size(), is(1));
+
+        // peer 1 stops importing the route target and the routes are withdrawn
+        peer1.updateRtMembership(Collections.emptyList(), membership(RT1));
+        assertThat(written1.size(), is(2));
+
+        // only peer 2 still has the routes to withdraw
+        controller.exportEvpn(OperationType.DELETE, null, extCommunities(RT1), routes(ROUTES));
+        assertThat(written1.size(), is(2));
+        assertThat(written2.size(), is(2));
+    }
+
+    /**
+     * Routes whose route targets changed are withdrawn from the peers no longer importing them.
+     */
+    @Test
+    public void routeTargetChangeTest() {
+        List<BgpMessage> written1 = new ArrayList<>();
+        List<BgpMessage> written2 = new ArrayList<>();
+        BgpPeerImpl peer1 = peer("10.10.10.10", true, written1);
+        BgpPeerImpl peer2 = peer("10.10.10.11", true, written2);
+        peer1.updateRtMembership(membership(RT1), Collections.emptyList());
+        peer2.updateRtMembership(membership(RT2), Collections.emptyList());
+
+        controller.exportEvpn(OperationType.ADD, NEXT_HOP, extCommunities(RT1), routes(ROUTES));
+        controller.exportEvpn(OperationType.ADD, NEXT_HOP, extCommunities(RT2), routes(ROUTES));
+
+        assertThat(written1.size(), is(2));
+        assertThat(written2.size(), is(1));
+        assertThat(controller.evpnRouteExporter().size(), is(ROUTES));
+    }
+}
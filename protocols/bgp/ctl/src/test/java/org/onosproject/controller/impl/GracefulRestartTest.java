@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.controller.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.MacAddress;
+import org.onosproject.bgp.controller.BgpId;
+import org.onosproject.bgp.controller.impl.BgpControllerImpl;
+import org.onosproject.bgp.controller.impl.BgpEvpnLocalRibImpl;
+import org.onosproject.bgp.controller.impl.BgpPacketStatsImpl;
+import org.onosproject.bgp.controller.impl.BgpPeerImpl;
+import org.onosproject.bgp.controller.impl.BgpSessionInfoImpl;
+import org.onosproject.bgp.controller.impl.StaleRoutes;
+import org.onosproject.bgp.controller.impl.UpdatePipeline;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
+import org.onosproject.bgpio.protocol.BgpVersion;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnNlriVer4;
+import org.onosproject.bgpio.protocol.evpn.BgpMacIpAdvNlriVer4;
+import org.onosproject.bgpio.types.AsPath;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.GracefulRestartCapabilityTlv;
+import org.onosproject.bgpio.types.MpReachNlri;
+import org.onosproject.bgpio.types.MpUnReachNlri;
+import org.onosproject.bgpio.types.MplsLabel;
+import org.onosproject.bgpio.types.Origin;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+import org.onosproject.bgpio.util.Constants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+/**
+ * Test cases for retaining routes of a restarting peer as stale.
+ */
+public class GracefulRestartTest {
+
+    private static final int ROUTES = 10;
+    private static final RouteDistinguisher RD = new RouteDistinguisher(100);
+
+    private UpdatePipeline pipeline;
+    private BgpControllerImpl controller;
+
+    @Before
+    public void setUp() {
+        controller = new BgpControllerImpl();
+        controller.getConfig().setGracefulRestartCapability(true);
+        pipeline = new UpdatePipeline();
+        pipeline.start(2);
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.stop();
+    }
+
+    private BgpPeerImpl peer(boolean forwardingState) {
+        List<BgpValueType> capability = new LinkedList<>();
+        List<GracefulRestartCapabilityTlv.AfiSafi> afiSafis = Collections.singletonList(
+                new GracefulRestartCapabilityTlv.AfiSafi(Constants.AFI_EVPN_VALUE, Constants.SAFI_EVPN_VALUE,
+                                                         forwardingState));
+        capability.add(new GracefulRestartCapabilityTlv(true, (short) 120, afiSafis));
+        return new BgpPeerImpl(controller, new BgpSessionInfoImpl(BgpId.bgpId(IpAddress.valueOf("10.10.10.10")),
+                                                                  BgpVersion.BGP_4, 100, (short) 180, 168430090,
+                                                                  (short) 180, true, capability),
+                               new BgpPacketStatsImpl());
+    }
+
+    private List<BgpEvpnNlri> routes(int first, int count) {
+        List<BgpEvpnNlri> routes = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            BgpMacIpAdvNlriVer4 macIpAdv = new BgpMacIpAdvNlriVer4(RD, new EthernetSegmentidentifier(new byte[10]),
+                                                                   0, MacAddress.valueOf((long) i), (byte) 0, null,
+                                                                   new MplsLabel(new byte[] {0x00, 0x01, 0x01 }),
+                                                                   null);
+            routes.add(new BgpEvpnNlriVer4((byte) BgpMacIpAdvNlriVer4.TYPE, macIpAdv));
+        }
+        return routes;
+    }
+
+    private List<BgpValueType> advertise(List<BgpEvpnNlri> routes) {
+        List<BgpValueType> attributes = new ArrayList<>();
+        attributes.add(new Origin((byte) 0));
+        attributes.add(new AsPath());
+        attributes.add(new MpReachNlri(routes, Constants.AFI_EVPN_VALUE, Constants.SAFI_EVPN_VALUE,
+                                       Ip4Address.valueOf("10.10.10.10")));
+        return attributes;
+    }
+
+    private List<BgpValueType> endOfRib() {
+        List<BgpValueType> attributes = new ArrayList<>();
+        attributes.add(MpUnReachNlri.endOfRib(Constants.AFI_EVPN_VALUE, Constants.SAFI_EVPN_VALUE));
+        return attributes;
+    }
+
+    private void drain() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        pipeline.barrier(done::countDown);
+        assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+    }
+
+    private int localRibSize() {
+        return ((BgpEvpnLocalRibImpl) controller.bgpEvpnLocalRib()).size();
+    }
+
+    /**
+     * Routes of a restarting peer stay in the local RIB and the ones not advertised again are swept on
+     * End-of-RIB.
+     */
+    @Test
+    public void endOfRibSweepTest() throws BgpParseException, InterruptedException {
+        BgpPeerImpl peer = peer(true);
+        pipeline.dispatch(peer, advertise(routes(0, ROUTES)));
+        drain();
+
+        StaleRoutes stale = peer.retainStaleRoutes();
+        assertThat(localRibSize(), is(ROUTES));
+
+        BgpPeerImpl restarted = peer(true);
+        restarted.adoptStaleRoutes(stale);
+        assertThat(localRibSize(), is(ROUTES));
+
+        pipeline.dispatch(restarted, advertise(routes(0, ROUTES / 2)));
+        drain();
+        assertThat(localRibSize(), is(ROUTES));
+
+        pipeline.dispatch(restarted, endOfRib());
+        drain();
+        assertThat(localRibSize(), is(ROUTES / 2));
+        assertThat(restarted.evpnAdjacencyRib().evpnTree().size(), is(ROUTES / 2));
+        assertThat(restarted.staleRoutes(), nullValue());
+        assertThat(stale.isEmpty(), is(true));
+    }
+
+    /**
+     * Routes of address families the restarted peer did not preserve forwarding state for are swept right away.
+     */
+    @Test
+    public void forwardingStateLostTest() throws BgpParseException, InterruptedException {
+        BgpPeerImpl peer = peer(true);
+        pipeline.dispatch(peer, advertise(routes(0, ROUTES)));
+        drain();
+
+        StaleRoutes stale = peer.retainStaleRoutes();
+        BgpPeerImpl restarted = peer(false);
+        restarted.adoptStaleRoutes(stale);
+
+        assertThat(localRibSize(), is(0));
+        assertThat(restarted.staleRoutes(), nullValue());
+    }
+
+    /**
+     * Stale routes left when the stale path time expires are withdrawn.
+     */
+    @Test
+    public void stalePathTimeTest() throws BgpParseException, InterruptedException {
+        BgpPeerImpl peer = peer(true);
+        pipeline.dispatch(peer, advertise(routes(0, ROUTES)));
+        drain();
+
+        BgpPeerImpl restarted = peer(true);
+        restarted.adoptStaleRoutes(peer.retainStaleRoutes());
+        pipeline.dispatch(restarted, advertise(routes(0, 1)));
+        drain();
+
+        restarted.sweepStaleRoutes();
+        assertThat(localRibSize(), is(1));
+        assertThat(restarted.staleRoutes(), nullValue());
+    }
+}
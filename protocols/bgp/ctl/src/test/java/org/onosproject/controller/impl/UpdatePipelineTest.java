@@ -0,0 +1,231 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.controller.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.Ip4Address;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.MacAddress;
+import org.onosproject.bgp.controller.BgpId;
+import org.onosproject.bgp.controller.BgpUpdateStageStats;
+import org.onosproject.bgp.controller.impl.BgpControllerImpl;
+import org.onosproject.bgp.controller.impl.BgpEvpnLocalRibImpl;
+import org.onosproject.bgp.controller.impl.BgpPacketStatsImpl;
+import org.onosproject.bgp.controller.impl.BgpPeerImpl;
+import org.onosproject.bgp.controller.impl.BgpSessionInfoImpl;
+import org.onosproject.bgp.controller.impl.UpdatePipeline;
+import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
+import org.onosproject.bgpio.protocol.BgpLSNlri;
+import org.onosproject.bgpio.protocol.BgpVersion;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnNlriVer4;
+import org.onosproject.bgpio.protocol.evpn.BgpMacIpAdvNlriVer4;
+import org.onosproject.bgpio.protocol.linkstate.BgpNodeLSIdentifier;
+import org.onosproject.bgpio.protocol.linkstate.BgpNodeLSNlriVer4;
+import org.onosproject.bgpio.protocol.linkstate.NodeDescriptors;
+import org.onosproject.bgpio.types.AsPath;
+import org.onosproject.bgpio.types.AutonomousSystemTlv;
+import org.onosproject.bgpio.types.BgpLSIdentifierTlv;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.bgpio.types.EthernetSegmentidentifier;
+import org.onosproject.bgpio.types.MpReachNlri;
+import org.onosproject.bgpio.types.MpUnReachNlri;
+import org.onosproject.bgpio.types.MplsLabel;
+import org.onosproject.bgpio.types.Origin;
+import org.onosproject.bgpio.types.RouteDistinguisher;
+import org.onosproject.bgpio.util.Constants;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test cases for the UPDATE processing pipeline.
+ */
+public class UpdatePipelineTest {
+
+    private static final int WORKERS = 4;
+    private static final int ROUTES = 200;
+    private static final RouteDistinguisher RD = new RouteDistinguisher(100);
+
+    private UpdatePipeline pipeline;
+    private BgpControllerImpl controller;
+    private BgpPeerImpl peer;
+
+    @Before
+    public void setUp() {
+        controller = new BgpControllerImpl();
+        peer = new BgpPeerImpl(controller, new BgpSessionInfoImpl(BgpId.bgpId(IpAddress.valueOf("10.10.10.10")),
+                                                                  BgpVersion.BGP_4, 100, (short) 180, 168430090,
+                                                                  (short) 180, true, new LinkedList<>()),
+                               new BgpPacketStatsImpl());
+        pipeline = new UpdatePipeline();
+        pipeline.start(WORKERS);
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.stop();
+    }
+
+    private List<BgpEvpnNlri> routes(int first, int count) {
+        List<BgpEvpnNlri> routes = new ArrayList<>();
+        for (int i = first; i < first + count; i++) {
+            BgpMacIpAdvNlriVer4 macIpAdv = new BgpMacIpAdvNlriVer4(RD, new EthernetSegmentidentifier(new byte[10]),
+                                                                   0, MacAddress.valueOf((long) i), (byte) 0, null,
+                                                                   new MplsLabel(new byte[] {0x00, 0x01, 0x01 }),
+                                                                   null);
+            routes.add(new BgpEvpnNlriVer4((byte) BgpMacIpAdvNlriVer4.TYPE, macIpAdv));
+        }
+        return routes;
+    }
+
+    private List<BgpValueType> advertise(List<BgpEvpnNlri> routes) {
+        List<BgpValueType> attributes = new ArrayList<>();
+        attributes.add(new Origin((byte) 0));
+        attributes.add(new AsPath());
+        attributes.add(new MpReachNlri(routes, Constants.AFI_EVPN_VALUE, Constants.SAFI_EVPN_VALUE,
+                                       Ip4Address.valueOf("10.10.10.10")));
+        return attributes;
+    }
+
+    private List<BgpValueType> withdraw(List<BgpEvpnNlri> routes) {
+        List<BgpValueType> attributes = new ArrayList<>();
+        attributes.add(new MpUnReachNlri(routes, Constants.AFI_EVPN_VALUE, Constants.SAFI_EVPN_VALUE));
+        return attributes;
+    }
+
+    private void drain() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        pipeline.barrier(done::countDown);
+        assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+    }
+
+    private int localRibSize() {
+        return ((BgpEvpnLocalRibImpl) controller.bgpEvpnLocalRib()).size();
+    }
+
+    /**
+     * Routes of one UPDATE are spread over the workers and all reach both RIBs.
+     */
+    @Test
+    public void dispatchTest() throws BgpParseException, InterruptedException {
+        pipeline.dispatch(peer, advertise(routes(0, ROUTES)));
+        drain();
+
+        assertThat(peer.evpnAdjacencyRib().evpnTree().size(), is(ROUTES));
+        assertThat(localRibSize(), is(ROUTES));
+
+        List<BgpUpdateStageStats> stats = pipeline.stats();
+        assertThat(stats.size(), is(WORKERS + 1));
+        assertThat(stats.get(0).processed(), is(1L));
+        for (BgpUpdateStageStats stage : stats.subList(1, stats.size())) {
+            // every worker got a share of the routes, barrier tasks may still be accounting
+            assertThat(stage.processed() >= 1, is(true));
+            assertThat(stage.errors(), is(0L));
+        }
+    }
+
+    /**
+     * Updates of the same route are applied in the order they were received.
+     */
+    @Test
+    public void orderingTest() throws BgpParseException, InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            pipeline.dispatch(peer, advertise(routes(0, ROUTES)));
+            pipeline.dispatch(peer, withdraw(routes(0, ROUTES)));
+        }
+        pipeline.dispatch(peer, advertise(routes(0, ROUTES / 2)));
+        drain();
+
+        assertThat(peer.evpnAdjacencyRib().evpnTree().size(), is(ROUTES / 2));
+        assertThat(localRibSize(), is(ROUTES / 2));
+    }
+
+    /**
+     * Peer withdrawal queued behind its updates removes every route of the peer.
+     */
+    @Test
+    public void disconnectTest() throws BgpParseException, InterruptedException {
+        pipeline.dispatch(peer, advertise(routes(0, ROUTES)));
+        CountDownLatch done = new CountDownLatch(1);
+        pipeline.barrier(() -> {
+            try {
+                peer.updateLocalRibOnPeerDisconnect();
+            } catch (BgpParseException e) {
+                throw new IllegalStateException(e);
+            }
+            done.countDown();
+        });
+        assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+
+        assertThat(localRibSize(), is(0));
+        assertThat(peer.evpnAdjacencyRib().evpnTree().isEmpty(), is(true));
+    }
+
+    /**
+     * Link-state routes are applied by one worker, in the order they were received.
+     */
+    @Test
+    public void linkStateTest() throws BgpParseException, InterruptedException {
+        List<BgpLSNlri> nodes = new ArrayList<>();
+        for (int i = 0; i < ROUTES; i++) {
+            List<BgpValueType> subTlvs = new LinkedList<>();
+            subTlvs.add(AutonomousSystemTlv.of(2478 + i));
+            subTlvs.add(BgpLSIdentifierTlv.of(33686018));
+            nodes.add(new BgpNodeLSNlriVer4(0, (byte) 2,
+                                            new BgpNodeLSIdentifier(new NodeDescriptors(subTlvs, (short) 0x10,
+                                                                                        (short) 256)),
+                                            false, null));
+        }
+        List<BgpValueType> attributes = new ArrayList<>();
+        attributes.add(new Origin((byte) 0));
+        attributes.add(new AsPath());
+        attributes.add(new MpReachNlri(nodes, Constants.AFI_VALUE, Constants.SAFI_VALUE,
+                                       Ip4Address.valueOf("10.10.10.10"), 0));
+        pipeline.dispatch(peer, attributes);
+        drain();
+
+        assertThat(peer.adjacencyRib().nodeTree().size(), is(ROUTES));
+        // every worker runs one part of the barrier, only one of them also applied routes
+        List<BgpUpdateStageStats> workers = pipeline.stats().subList(1, WORKERS + 1);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (workers.stream().mapToLong(BgpUpdateStageStats::processed).sum() < WORKERS + 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            workers = pipeline.stats().subList(1, WORKERS + 1);
+        }
+        assertThat(workers.stream().filter(stage -> stage.processed() == 2).count(), is(1L));
+    }
+
+    /**
+     * Without started workers routes are applied on the calling thread.
+     */
+    @Test
+    public void inlineTest() throws BgpParseException {
+        pipeline.stop();
+        pipeline.dispatch(peer, advertise(routes(0, ROUTES)));
+        assertThat(localRibSize(), is(ROUTES));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Base implementation of a queue of work dispatched on a shared executor.
+ * The queue is drained by at most one thread at a time, so that its items
+ * are processed in order, and a bounded batch of items at a time, so that
+ * the queues sharing the executor take turns on its threads.
+ */
+abstract class AbstractSerialDispatcher implements Runnable {
+
+    private final Logger log = LoggerFactory.getLogger(AbstractSerialDispatcher.class);
+
+    private final int batchSize;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * Creates a dispatcher which processes up to the given number of items
+     * before yielding its thread.
+     *
+     * @param batchSize maximum number of items processed per turn
+     */
+    AbstractSerialDispatcher(int batchSize) {
+        checkArgument(batchSize > 0, "Batch size must be positive");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns the executor on which the queue is drained.
+     *
+     * @return executor; null if the queue is not to be drained yet
+     */
+    protected abstract Executor executor();
+
+    /**
+     * Indicates whether items are waiting to be processed.
+     *
+     * @return true if the queue is not empty
+     */
+    protected abstract boolean isPending();
+
+    /**
+     * Removes the next item from the queue and processes it.
+     *
+     * @return false if the queue was empty
+     */
+    protected abstract boolean processNext();
+
+    /**
+     * Submits the queue for draining unless it is empty or already
+     * submitted.
+     */
+    void schedule() {
+        Executor executor = executor();
+        if (executor == null || !isPending() || !scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+            rejected();
+        }
+    }
+
+    /**
+     * Processes one batch of items. Subclasses may override this to set up
+     * state around the batch, calling the parent implementation.
+     */
+    protected void processBatch() {
+        for (int i = 0; i < batchSize; i++) {
+            if (!processNext()) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Notifies that the executor refused the queue, as it is shut down.
+     * The items are left in the queue.
+     */
+    protected void rejected() {
+        log.debug("Executor is stopped; {} left unprocessed", this);
+    }
+
+    @Override
+    public final void run() {
+        try {
+            processBatch();
+        } finally {
+            scheduled.set(false);
+            schedule();
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.onosproject.openflow.controller.impl;
 
+import com.codahale.metrics.Gauge;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
@@ -26,6 +27,13 @@ import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onlab.packet.DeserializationException;
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.EthernetView;
+import org.onlab.util.Tools;
 import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.CoreService;
 import org.onosproject.net.device.DeviceEvent;
@@ -74,6 +82,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Dictionary;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
@@ -85,6 +94,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
 
 import static org.onlab.util.Tools.groupedThreads;
 import static org.onosproject.openflow.controller.Dpid.dpid;
@@ -95,6 +105,16 @@ public class OpenFlowControllerImpl implements OpenFlowController {
     private static final String APP_ID = "org.onosproject.openflow-base";
     private static final String DEFAULT_OFPORT = "6633,6653";
     private static final int DEFAULT_WORKER_THREADS = 0;
+    private static final int DEFAULT_PACKET_IN_THREADS = 4;
+    private static final int DEFAULT_PACKET_IN_QUEUE_SIZE = 1000;
+    private static final boolean DEFAULT_PACKET_IN_DROP_OLDEST = false;
+    private static final boolean DEFAULT_PACKET_IN_PRIORITIZE_DISCOVERY = true;
+
+    private static final String METRICS_COMPONENT = "OpenFlowController";
+    private static final String METRICS_FEATURE = "packetIn";
+    private static final String QUEUE_DEPTH = "queueDepth";
+    private static final String MAX_QUEUE_DEPTH = "maxDeviceQueueDepth";
+    private static final String DROPPED = "dropped";
 
     private static final Logger log =
             LoggerFactory.getLogger(OpenFlowControllerImpl.class);
@@ -115,6 +135,9 @@ public class OpenFlowControllerImpl implements OpenFlowController {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected DeviceService deviceService;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY)
+    protected MetricsService metricsService;
+
 
     @Property(name = "openflowPorts", value = DEFAULT_OFPORT,
             label = "Port numbers (comma separated) used by OpenFlow protocol; default is 6633,6653")
@@ -124,6 +147,28 @@ public class OpenFlowControllerImpl implements OpenFlowController {
             label = "Number of controller worker threads")
     private int workerThreads = DEFAULT_WORKER_THREADS;
 
+    @Property(name = "packetInThreads", intValue = DEFAULT_PACKET_IN_THREADS,
+            label = "Number of threads processing packet-ins; 0 processes them on the I/O threads")
+    private int packetInThreads = DEFAULT_PACKET_IN_THREADS;
+
+    @Property(name = "packetInQueueSize", intValue = DEFAULT_PACKET_IN_QUEUE_SIZE,
+            label = "Maximum number of packet-ins queued per device and priority")
+    private int packetInQueueSize = DEFAULT_PACKET_IN_QUEUE_SIZE;
+
+    @Property(name = "packetInDropOldest", boolValue = DEFAULT_PACKET_IN_DROP_OLDEST,
+            label = "Drop the oldest queued packet-in rather than the new one when a queue is full")
+    private boolean packetInDropOldest = DEFAULT_PACKET_IN_DROP_OLDEST;
+
+    @Property(name = "packetInPrioritizeDiscovery", boolValue = DEFAULT_PACKET_IN_PRIORITIZE_DISCOVERY,
+            label = "Process LLDP and BDDP packet-ins ahead of the other packet-ins of a device")
+    private boolean packetInPrioritizeDiscovery = DEFAULT_PACKET_IN_PRIORITIZE_DISCOVERY;
+
+    // Processes packet-ins off the I/O threads; null to process them inline
+    private volatile PacketInDispatcher<Dpid> packetInDispatcher;
+    private int dispatcherThreads;
+    private MetricsComponent metricsComponent;
+    private MetricsFeature metricsFeature;
+
     protected ExecutorService executorMsgs =
         Executors.newFixedThreadPool(32, groupedThreads("onos/of", "event-stats-%d", log));
 
@@ -178,8 +223,11 @@ public class OpenFlowControllerImpl implements OpenFlowController {
         coreService.registerApplication(APP_ID, this::cleanup);
         cfgService.registerProperties(getClass());
         deviceService.addListener(listener);
-        ctrl.setConfigParams(context.getProperties());
+        Dictionary<?, ?> properties = context.getProperties();
+        readPacketInConfiguration(properties);
+        ctrl.setConfigParams(properties);
         ctrl.start(agent, driverService);
+        registerMetrics();
     }
 
     private void cleanup() {
@@ -196,16 +244,101 @@ public class OpenFlowControllerImpl implements OpenFlowController {
     public void deactivate() {
         deviceService.removeListener(listener);
         cleanup();
+        removeMetrics();
+        setPacketInDispatcher(null);
         cfgService.unregisterProperties(getClass(), false);
     }
 
     @Modified
     public void modified(ComponentContext context) {
+        Dictionary<?, ?> properties = context.getProperties();
+        readPacketInConfiguration(properties);
         ctrl.stop();
-        ctrl.setConfigParams(context.getProperties());
+        ctrl.setConfigParams(properties);
         ctrl.start(agent, driverService);
     }
 
+    private void readPacketInConfiguration(Dictionary<?, ?> properties) {
+        Integer newThreads = Tools.getIntegerProperty(properties, "packetInThreads");
+        if (newThreads != null && newThreads >= 0) {
+            packetInThreads = newThreads;
+        }
+        Integer newQueueSize = Tools.getIntegerProperty(properties, "packetInQueueSize");
+        if (newQueueSize != null && newQueueSize > 0) {
+            packetInQueueSize = newQueueSize;
+        }
+        Boolean flag = Tools.isPropertyEnabled(properties, "packetInDropOldest");
+        if (flag != null) {
+            packetInDropOldest = flag;
+        }
+        flag = Tools.isPropertyEnabled(properties, "packetInPrioritizeDiscovery");
+        if (flag != null) {
+            packetInPrioritizeDiscovery = flag;
+        }
+
+        PacketInDispatcher<Dpid> dispatcher = packetInDispatcher;
+        if (packetInThreads == 0) {
+            setPacketInDispatcher(null);
+        } else if (dispatcher == null || packetInThreads != dispatcherThreads) {
+            setPacketInDispatcher(new PacketInDispatcher<>(
+                    packetInThreads, packetInQueueSize, packetInDropOldest,
+                    groupedThreads("onos/of", "packet-in-%d", log)));
+        } else {
+            dispatcher.configure(packetInQueueSize, packetInDropOldest);
+        }
+        log.info("Settings: packetInThreads={}, packetInQueueSize={}, packetInDropOldest={}, "
+                         + "packetInPrioritizeDiscovery={}", packetInThreads, packetInQueueSize,
+                 packetInDropOldest, packetInPrioritizeDiscovery);
+    }
+
+    private void setPacketInDispatcher(PacketInDispatcher<Dpid> dispatcher) {
+        PacketInDispatcher<Dpid> old = packetInDispatcher;
+        packetInDispatcher = dispatcher;
+        dispatcherThreads = dispatcher == null ? 0 : packetInThreads;
+        if (dispatcher != null) {
+            connectedSwitches.keySet().forEach(dpid -> {
+                dispatcher.add(dpid);
+                // The switch may have disconnected meanwhile
+                if (!connectedSwitches.containsKey(dpid)) {
+                    dispatcher.remove(dpid);
+                }
+            });
+        }
+        if (old != null) {
+            old.shutdown();
+        }
+    }
+
+    // Publishes the state of the packet-in queues
+    private void registerMetrics() {
+        if (metricsService == null) {
+            return;
+        }
+        metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+        metricsFeature = metricsComponent.registerFeature(METRICS_FEATURE);
+        registerGauge(QUEUE_DEPTH, PacketInDispatcher::depth);
+        registerGauge(MAX_QUEUE_DEPTH, PacketInDispatcher::maxDepth);
+        registerGauge(DROPPED, PacketInDispatcher::dropped);
+    }
+
+    private void registerGauge(String name, ToLongFunction<PacketInDispatcher<Dpid>> statistic) {
+        metricsService.registerMetric(metricsComponent, metricsFeature, name, (Gauge<Long>) () -> {
+            PacketInDispatcher<Dpid> dispatcher = packetInDispatcher;
+            return dispatcher == null ? 0L : statistic.applyAsLong(dispatcher);
+        });
+    }
+
+    private void removeMetrics() {
+        if (metricsFeature == null) {
+            return;
+        }
+        for (String name : new String[]{QUEUE_DEPTH, MAX_QUEUE_DEPTH, DROPPED}) {
+            metricsService.removeMetric(metricsComponent, metricsFeature, name);
+        }
+        metricsFeature = null;
+        metricsComponent = null;
+    }
+
     @Override
     public Iterable<OpenFlowSwitch> getSwitches() {
         return connectedSwitches.values();
@@ -283,6 +416,25 @@ public class OpenFlowControllerImpl implements OpenFlowController {
         this.getSwitch(dpid).sendMsg(msg);
     }
 
+    private void handlePacketIn(OpenFlowSwitch sw, OFPacketIn packetIn) {
+        OpenFlowPacketContext pktCtx = DefaultOpenFlowPacketContext
+                .packetContextFromPacketIn(sw, packetIn);
+        for (PacketListener p : ofPacketListener.values()) {
+            p.handlePacket(pktCtx);
+        }
+    }
+
+    // Returns whether the packet-in carries an LLDP or BDDP frame
+    private static boolean isDiscovery(OFPacketIn packetIn) {
+        byte[] data = packetIn.getData();
+        try {
+            short etherType = EthernetView.of(data, 0, data.length).etherType();
+            return etherType == Ethernet.TYPE_LLDP || etherType == Ethernet.TYPE_BSN;
+        } catch (DeserializationException e) {
+            return false;
+        }
+    }
+
     @Override
     public void processPacket(Dpid dpid, OFMessage msg) {
         Collection<OFFlowStatsEntry> flowStats;
@@ -309,10 +461,13 @@ public class OpenFlowControllerImpl implements OpenFlowController {
                 log.error("Switch {} is not found", dpid);
                 break;
             }
-            OpenFlowPacketContext pktCtx = DefaultOpenFlowPacketContext
-            .packetContextFromPacketIn(sw, (OFPacketIn) msg);
-            for (PacketListener p : ofPacketListener.values()) {
-                p.handlePacket(pktCtx);
+            PacketInDispatcher<Dpid> dispatcher = packetInDispatcher;
+            if (dispatcher == null) {
+                handlePacketIn(sw, (OFPacketIn) msg);
+            } else {
+                OFPacketIn packetIn = (OFPacketIn) msg;
+                dispatcher.dispatch(dpid, packetInPrioritizeDiscovery && isDiscovery(packetIn),
+                                    () -> handlePacketIn(sw, packetIn));
             }
             break;
         // TODO: Consider using separate threadpool for sensitive messages.
@@ -594,6 +749,10 @@ public class OpenFlowControllerImpl implements OpenFlowController {
             } else {
                 log.info("Added switch {}", dpid);
                 connectedSwitches.put(dpid, sw);
+                PacketInDispatcher<Dpid> dispatcher = packetInDispatcher;
+                if (dispatcher != null) {
+                    dispatcher.add(dpid);
+                }
                 for (OpenFlowSwitchListener l : ofSwitchListener) {
                     l.switchAdded(dpid);
                 }
@@ -703,6 +862,10 @@ public class OpenFlowControllerImpl implements OpenFlowController {
         @Override
         public void removeConnectedSwitch(Dpid dpid) {
             connectedSwitches.remove(dpid);
+            PacketInDispatcher<Dpid> dispatcher = packetInDispatcher;
+            if (dispatcher != null) {
+                dispatcher.remove(dpid);
+            }
             OpenFlowSwitch sw = activeMasterSwitches.remove(dpid);
             if (sw == null) {
                 log.debug("sw was null for {}", dpid);
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.impl;
+
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Dispatches packet-in processing off the I/O threads.
+ * <p>
+ * Each connected device has its own bounded queue, processed by at most one
+ * thread at a time so that its packets are handled in order; the packets of
+ * devices which are not connected are dropped. Devices with pending
+ * packets take turns on a shared pool of threads, a batch of packets at a
+ * time, so that a chatty device cannot starve the others. Priority packets,
+ * such as discovery frames, are held apart from and handled ahead of the
+ * other packets of their device. A full queue drops either the newest or
+ * the oldest packet.
+ * </p>
+ *
+ * @param <K> type of the device key
+ */
+final class PacketInDispatcher<K> {
+
+    private static final Logger log = getLogger(PacketInDispatcher.class);
+
+    // Number of packets a device dispatches before yielding its thread
+    private static final int DISPATCH_BATCH = 32;
+
+    private final Map<K, DeviceQueue> queues = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile int queueSize;
+    private volatile boolean dropOldest;
+
+    /**
+     * Creates a packet-in dispatcher.
+     *
+     * @param threads       number of dispatch threads
+     * @param queueSize     maximum number of packets queued per device and
+     *                      priority
+     * @param dropOldest    true to drop the oldest queued packet of a full
+     *                      queue rather than the new one
+     * @param threadFactory factory of the dispatch threads
+     */
+    PacketInDispatcher(int threads, int queueSize, boolean dropOldest,
+                       ThreadFactory threadFactory) {
+        checkArgument(threads > 0, "Number of threads must be positive");
+        executor = newFixedThreadPool(threads, threadFactory);
+        configure(queueSize, dropOldest);
+    }
+
+    /**
+     * Changes the queuing policy.
+     *
+     * @param newQueueSize  maximum number of packets queued per device and
+     *                      priority
+     * @param newDropOldest true to drop the oldest queued packet of a full
+     *                      queue rather than the new one
+     */
+    void configure(int newQueueSize, boolean newDropOldest) {
+        checkArgument(newQueueSize > 0, "Queue size must be positive");
+        queueSize = newQueueSize;
+        dropOldest = newDropOldest;
+    }
+
+    /**
+     * Sets up the queue of a newly connected device.
+     *
+     * @param key device key
+     */
+    void add(K key) {
+        queues.computeIfAbsent(key, DeviceQueue::new);
+    }
+
+    /**
+     * Queues the processing of a packet of the given device. The packet is
+     * dropped if the device is not connected.
+     *
+     * @param key      device key
+     * @param priority true if the packet is to be handled ahead of the
+     *                 other packets of the device
+     * @param task     packet processing
+     */
+    void dispatch(K key, boolean priority, Runnable task) {
+        DeviceQueue queue = queues.get(key);
+        if (queue == null) {
+            dropped.incrementAndGet();
+            log.trace("Device {} is not connected; dropping packet", key);
+            return;
+        }
+        queue.add(priority, task);
+        queue.schedule();
+    }
+
+    /**
+     * Discards the queue of a disconnected device and its packets.
+     *
+     * @param key device key
+     */
+    void remove(K key) {
+        DeviceQueue queue = queues.remove(key);
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    /**
+     * Returns the number of packets queued for all devices.
+     *
+     * @return number of queued packets
+     */
+    int depth() {
+        return depth.get();
+    }
+
+    /**
+     * Returns the number of packets queued for the given device.
+     *
+     * @param key device key
+     * @return number of queued packets
+     */
+    int depth(K key) {
+        DeviceQueue queue = queues.get(key);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Returns the largest number of packets queued for a single device.
+     *
+     * @return number of queued packets
+     */
+    int maxDepth() {
+        int max = 0;
+        for (DeviceQueue queue : queues.values()) {
+            max = Math.max(max, queue.size());
+        }
+        return max;
+    }
+
+    /**
+     * Returns the number of packets dropped because of full queues or
+     * disconnected devices.
+     *
+     * @return number of dropped packets
+     */
+    long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops the dispatch threads; the packets still queued are discarded.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+        queues.values().forEach(DeviceQueue::clear);
+        queues.clear();
+    }
+
+    // Packet queues of one device, dispatched by at most one thread at a time
+    private final class DeviceQueue extends AbstractSerialDispatcher {
+        private final K key;
+        private final Queue<Runnable> priorityTasks = new ArrayDeque<>();
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        private DeviceQueue(K key) {
+            super(DISPATCH_BATCH);
+            this.key = key;
+        }
+
+        private synchronized void add(boolean priority, Runnable task) {
+            Queue<Runnable> queue = priority ? priorityTasks : tasks;
+            if (queue.size() >= queueSize) {
+                dropped.incrementAndGet();
+                if (!dropOldest) {
+                    log.trace("Packet-in queue of {} is full; dropping packet", key);
+                    return;
+                }
+                queue.poll();
+                depth.decrementAndGet();
+                log.trace("Packet-in queue of {} is full; dropping oldest packet", key);
+            }
+            queue.add(task);
+            depth.incrementAndGet();
+        }
+
+        private synchronized Runnable poll() {
+            Runnable task = priorityTasks.poll();
+            if (task == null) {
+                task = tasks.poll();
+            }
+            if (task != null) {
+                depth.decrementAndGet();
+            }
+            return task;
+        }
+
+        private synchronized int size() {
+            return priorityTasks.size() + tasks.size();
+        }
+
+        private synchronized void clear() {
+            depth.addAndGet(-size());
+            priorityTasks.clear();
+            tasks.clear();
+        }
+
+        @Override
+        protected Executor executor() {
+            return executor;
+        }
+
+        @Override
+        protected boolean isPending() {
+            return size() > 0;
+        }
+
+        @Override
+        protected boolean processNext() {
+            Runnable task = poll();
+            if (task == null) {
+                return false;
+            }
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.warn("Error processing packet-in of {}", key, e);
+            }
+            return true;
+        }
+
+        @Override
+        protected void rejected() {
+            log.debug("Dispatcher is stopped; packets of {} left unprocessed", key);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for AbstractSerialDispatcher.
+ */
+public class AbstractSerialDispatcherTest {
+
+    private final Queue<Runnable> submitted = new ArrayDeque<>();
+    private Executor executor = submitted::add;
+
+    private final class TestDispatcher extends AbstractSerialDispatcher {
+        private final Queue<String> items = new ArrayDeque<>();
+        private final List<String> processed = new ArrayList<>();
+        private int rejections;
+
+        private TestDispatcher() {
+            super(2);
+        }
+
+        private void add(String item) {
+            items.add(item);
+            schedule();
+        }
+
+        @Override
+        protected Executor executor() {
+            return executor;
+        }
+
+        @Override
+        protected boolean isPending() {
+            return !items.isEmpty();
+        }
+
+        @Override
+        protected boolean processNext() {
+            String item = items.poll();
+            if (item == null) {
+                return false;
+            }
+            processed.add(item);
+            return true;
+        }
+
+        @Override
+        protected void rejected() {
+            rejections++;
+        }
+    }
+
+    @Test
+    public void testBatches() {
+        TestDispatcher dispatcher = new TestDispatcher();
+        dispatcher.add("a");
+        dispatcher.add("b");
+        dispatcher.add("c");
+        assertEquals("queue should be submitted once", 1, submitted.size());
+
+        submitted.poll().run();
+        assertEquals("a batch should be processed", 2, dispatcher.processed.size());
+        assertEquals("queue should be resubmitted", 1, submitted.size());
+
+        submitted.poll().run();
+        assertEquals(3, dispatcher.processed.size());
+        assertTrue("drained queue should not be resubmitted", submitted.isEmpty());
+    }
+
+    @Test
+    public void testNoExecutor() {
+        executor = null;
+        TestDispatcher dispatcher = new TestDispatcher();
+        dispatcher.add("a");
+        assertTrue(submitted.isEmpty());
+
+        executor = submitted::add;
+        dispatcher.schedule();
+        submitted.poll().run();
+        assertEquals(1, dispatcher.processed.size());
+    }
+
+    @Test
+    public void testRejected() {
+        executor = task -> {
+            throw new RejectedExecutionException();
+        };
+        TestDispatcher dispatcher = new TestDispatcher();
+        dispatcher.add("a");
+        dispatcher.add("b");
+        assertEquals(2, dispatcher.rejections);
+        assertEquals("items should be left queued", 2, dispatcher.items.size());
+    }
+}
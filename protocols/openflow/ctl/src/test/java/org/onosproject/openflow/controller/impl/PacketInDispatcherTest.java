@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.openflow.controller.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the packet-in dispatcher.
+ */
+public class PacketInDispatcherTest {
+
+    private PacketInDispatcher<String> dispatcher;
+    private final List<String> handled = new CopyOnWriteArrayList<>();
+    private final CountDownLatch blocked = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        dispatcher = new PacketInDispatcher<>(1, 2, false, Executors.defaultThreadFactory());
+        for (String device : new String[] {"blocker", "drain", "of:1", "of:2"}) {
+            dispatcher.add(device);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    // Occupies the single dispatch thread until released
+    private void block() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        dispatcher.dispatch("blocker", false, () -> {
+            running.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+    }
+
+    private void dispatch(String device, boolean priority, String packet) {
+        dispatcher.dispatch(device, priority, () -> handled.add(packet));
+    }
+
+    // Releases the dispatch thread and waits for the queues to drain
+    private void drain() throws InterruptedException {
+        blocked.countDown();
+        CountDownLatch done = new CountDownLatch(1);
+        dispatcher.dispatch("drain", false, done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Checks that priority packets are handled first and in order.
+     */
+    @Test
+    public void testPriority() throws InterruptedException {
+        block();
+        dispatch("of:1", false, "a");
+        dispatch("of:1", true, "lldp1");
+        dispatch("of:1", false, "b");
+        dispatch("of:1", true, "lldp2");
+        assertThat(dispatcher.depth(), is(4));
+        assertThat(dispatcher.depth("of:1"), is(4));
+        drain();
+        assertThat(handled, contains("lldp1", "lldp2", "a", "b"));
+        assertThat(dispatcher.depth(), is(0));
+    }
+
+    /**
+     * Checks that a full queue drops the new packets.
+     */
+    @Test
+    public void testDropNewest() throws InterruptedException {
+        block();
+        dispatch("of:1", false, "a");
+        dispatch("of:1", false, "b");
+        dispatch("of:1", false, "c");
+        dispatch("of:1", true, "lldp");
+        assertThat(dispatcher.dropped(), is(1L));
+        assertThat(dispatcher.maxDepth(), is(3));
+        drain();
+        assertThat(handled, contains("lldp", "a", "b"));
+    }
+
+    /**
+     * Checks that a full queue can drop the oldest packets instead.
+     */
+    @Test
+    public void testDropOldest() throws InterruptedException {
+        dispatcher.configure(2, true);
+        block();
+        dispatch("of:1", false, "a");
+        dispatch("of:1", false, "b");
+        dispatch("of:1", false, "c");
+        assertThat(dispatcher.dropped(), is(1L));
+        drain();
+        assertThat(handled, contains("b", "c"));
+    }
+
+    /**
+     * Checks that devices take turns on the dispatch thread.
+     */
+    @Test
+    public void testFairness() throws InterruptedException {
+        dispatcher.configure(1000, false);
+        block();
+        for (int i = 0; i < 100; i++) {
+            dispatch("of:1", false, "of:1");
+        }
+        dispatch("of:2", false, "of:2");
+        drain();
+        assertThat(handled.size(), is(101));
+        assertTrue("of:2 waited for all of of:1", handled.indexOf("of:2") < 100);
+    }
+
+    /**
+     * Checks that the packets of a removed device are discarded.
+     */
+    @Test
+    public void testRemove() throws InterruptedException {
+        block();
+        dispatch("of:1", false, "a");
+        dispatch("of:2", false, "b");
+        dispatcher.remove("of:1");
+        assertThat(dispatcher.depth(), is(1));
+        drain();
+        assertThat(handled, contains("b"));
+    }
+
+    /**
+     * Checks that the packets of devices which are not connected are dropped.
+     */
+    @Test
+    public void testDisconnected() throws InterruptedException {
+        dispatcher.remove("of:1");
+        dispatch("of:1", false, "a");
+        dispatch("of:3", false, "b");
+        dispatch("of:2", false, "c");
+        assertThat(dispatcher.dropped(), is(2L));
+        drain();
+        assertThat(handled, contains("c"));
+        assertThat(dispatcher.depth("of:1"), is(0));
+    }
+}
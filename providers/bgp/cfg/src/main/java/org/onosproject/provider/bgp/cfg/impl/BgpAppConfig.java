@@ -51,6 +51,11 @@ public class BgpAppConfig extends Config<ApplicationId> {
     public static final String FLOW_SPEC_RPD_CAPABILITY = "flowSpecRpdCapability";
     public static final String VPNV4_CAPABILITY = "vpnv4Capability";
     public static final String EVPN_CAPABILITY = "evpnCapability";
+    public static final String UPDATE_FLUSH_INTERVAL = "updateFlushInterval";
+    public static final String RT_CONSTRAIN_CAPABILITY = "rtConstrainCapability";
+    public static final String GRACEFUL_RESTART_CAPABILITY = "gracefulRestartCapability";
+    public static final String RESTART_TIME = "restartTime";
+    public static final String STALE_PATH_TIME = "stalePathTime";
 
     public static final String BGP_PEER = "bgpPeer";
     public static final String PEER_IP = "peerIp";
@@ -69,6 +74,18 @@ public class BgpAppConfig extends Config<ApplicationId> {
     static final int MIN_HOLDTIME = 0;
     static final long MAX_HOLDTIME = 65535;
 
+    static final int MIN_UPDATE_FLUSH_INTERVAL = 0;
+    static final long MAX_UPDATE_FLUSH_INTERVAL = 1000;
+    static final int DEFAULT_UPDATE_FLUSH_INTERVAL = 50;
+
+    static final int MIN_RESTART_TIME = 0;
+    static final long MAX_RESTART_TIME = 4095;
+    static final int DEFAULT_RESTART_TIME = 120;
+
+    static final int MIN_STALE_PATH_TIME = 1;
+    static final long MAX_STALE_PATH_TIME = 3600;
+    static final int DEFAULT_STALE_PATH_TIME = 360;
+
     @Override
     public boolean isValid() {
         boolean fields = false;
@@ -80,7 +97,9 @@ public class BgpAppConfig extends Config<ApplicationId> {
         fields = hasOnlyFields(ROUTER_ID, LOCAL_AS, MAX_SESSION, LS_CAPABILITY,
                                HOLD_TIME, LARGE_AS_CAPABILITY,
                                FLOW_SPEC_CAPABILITY, FLOW_SPEC_RPD_CAPABILITY,
-                               VPNV4_CAPABILITY, EVPN_CAPABILITY, BGP_PEER)
+                               VPNV4_CAPABILITY, EVPN_CAPABILITY, UPDATE_FLUSH_INTERVAL,
+                               RT_CONSTRAIN_CAPABILITY, GRACEFUL_RESTART_CAPABILITY, RESTART_TIME, STALE_PATH_TIME,
+                               BGP_PEER)
                 && isIpAddress(ROUTER_ID, MANDATORY)
                 && isNumber(LOCAL_AS, MANDATORY)
                 && isNumber(MAX_SESSION, OPTIONAL, MIN_SESSION_NUMBER,
@@ -91,7 +110,12 @@ public class BgpAppConfig extends Config<ApplicationId> {
                 && isString(FLOW_SPEC_CAPABILITY, OPTIONAL)
                 && isBoolean(FLOW_SPEC_RPD_CAPABILITY, OPTIONAL)
                 && isBoolean(VPNV4_CAPABILITY, OPTIONAL)
-                && isBoolean(EVPN_CAPABILITY, OPTIONAL);
+                && isBoolean(EVPN_CAPABILITY, OPTIONAL)
+                && isNumber(UPDATE_FLUSH_INTERVAL, OPTIONAL, MIN_UPDATE_FLUSH_INTERVAL, MAX_UPDATE_FLUSH_INTERVAL)
+                && isBoolean(RT_CONSTRAIN_CAPABILITY, OPTIONAL)
+                && isBoolean(GRACEFUL_RESTART_CAPABILITY, OPTIONAL)
+                && isNumber(RESTART_TIME, OPTIONAL, MIN_RESTART_TIME, MAX_RESTART_TIME)
+                && isNumber(STALE_PATH_TIME, OPTIONAL, MIN_STALE_PATH_TIME, MAX_STALE_PATH_TIME);
 
         if (!fields) {
             return fields;
@@ -183,6 +207,51 @@ public class BgpAppConfig extends Config<ApplicationId> {
         return Boolean.parseBoolean(get(EVPN_CAPABILITY, null));
     }
 
+    /**
+     * Returns the interval outgoing UPDATE messages are held back for packing.
+     *
+     * @return update flush interval in milliseconds
+     */
+    public int updateFlushInterval() {
+        return get(UPDATE_FLUSH_INTERVAL, DEFAULT_UPDATE_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Returns route target constrain capability support from the configuration.
+     *
+     * @return route target constrain capability
+     */
+    public boolean rtConstrainCapability() {
+        return Boolean.parseBoolean(get(RT_CONSTRAIN_CAPABILITY, null));
+    }
+
+    /**
+     * Returns graceful restart capability support from the configuration.
+     *
+     * @return graceful restart capability
+     */
+    public boolean gracefulRestartCapability() {
+        return Boolean.parseBoolean(get(GRACEFUL_RESTART_CAPABILITY, null));
+    }
+
+    /**
+     * Returns the time peers keep the routes of the controller while it restarts.
+     *
+     * @return restart time in seconds
+     */
+    public short restartTime() {
+        return (short) get(RESTART_TIME, DEFAULT_RESTART_TIME);
+    }
+
+    /**
+     * Returns the time stale routes of a restarted peer are kept waiting for its End-of-RIB.
+     *
+     * @return stale path time in seconds
+     */
+    public int stalePathTime() {
+        return get(STALE_PATH_TIME, DEFAULT_STALE_PATH_TIME);
+    }
+
     /**
      * Returns holdTime of the local node from the configuration.
      *
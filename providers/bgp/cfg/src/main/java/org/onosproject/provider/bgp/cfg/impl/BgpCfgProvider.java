@@ -129,6 +129,11 @@ public class BgpCfgProvider extends AbstractProvider {
         bgpConfig.setLargeASCapability(config.largeAsCapability());
         bgpConfig.setVpnv4Capability(config.vpnv4Capability());
         bgpConfig.setEvpnCapability(config.evpnCapability());
+        bgpConfig.setUpdateFlushInterval(config.updateFlushInterval());
+        bgpConfig.setRtConstrainCapability(config.rtConstrainCapability());
+        bgpConfig.setGracefulRestartCapability(config.gracefulRestartCapability());
+        bgpConfig.setRestartTime(config.restartTime());
+        bgpConfig.setStalePathTime(config.stalePathTime());
 
         if (config.flowSpecCapability().equals("IPV4")) {
             bgpConfig.setFlowSpecCapability(BgpCfg.FlowSpec.IPV4);
@@ -181,6 +186,11 @@ public class BgpCfgProvider extends AbstractProvider {
         bgpConfig.setLargeASCapability(config.largeAsCapability());
         bgpConfig.setVpnv4Capability(config.vpnv4Capability());
         bgpConfig.setEvpnCapability(config.evpnCapability());
+        bgpConfig.setUpdateFlushInterval(config.updateFlushInterval());
+        bgpConfig.setRtConstrainCapability(config.rtConstrainCapability());
+        bgpConfig.setGracefulRestartCapability(config.gracefulRestartCapability());
+        bgpConfig.setRestartTime(config.restartTime());
+        bgpConfig.setStalePathTime(config.stalePathTime());
 
         if (config.flowSpecCapability().equals("IPV4")) {
             bgpConfig.setFlowSpecCapability(BgpCfg.FlowSpec.IPV4);
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.cli;
+
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.bgp.controller.BgpController;
+import org.onosproject.bgp.controller.BgpRibFootprint;
+import org.onosproject.cli.AbstractShellCommand;
+
+/**
+ * Lists memory footprint of the BGP RIBs per peer and address family.
+ */
+@Command(scope = "onos", name = "bgp-rib-memory",
+        description = "Lists memory footprint of the BGP RIBs per peer and address family")
+public class BgpRibMemoryCommand extends AbstractShellCommand {
+
+    private static final String FORMAT = "table=%s, peer=%s, afi=%s, routes=%d, attributeSets=%d, "
+            + "keyBytes=%d, attributeBytes=%d";
+    private static final String ATTRIBUTE_SETS_FORMAT = "attributeSets=%d, references=%d, attributeBytes=%d";
+    private static final String NONE = "-";
+
+    @Override
+    protected void execute() {
+        BgpController controller = get(BgpController.class);
+        for (BgpRibFootprint footprint : controller.ribFootprint()) {
+            if (footprint.table() == BgpRibFootprint.Table.ATTRIBUTE_SETS) {
+                print(ATTRIBUTE_SETS_FORMAT, footprint.attributeSets(), footprint.routes(),
+                      footprint.attributeBytes());
+                continue;
+            }
+            print(FORMAT, footprint.table(),
+                  footprint.peer() == null ? NONE : footprint.peer().ipAddress(),
+                  footprint.afi(), footprint.routes(), footprint.attributeSets(),
+                  footprint.keyBytes(), footprint.attributeBytes());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.bgp.cli;
+
+import org.apache.karaf.shell.commands.Command;
+import org.onosproject.bgp.controller.BgpController;
+import org.onosproject.bgp.controller.BgpUpdateStageStats;
+import org.onosproject.cli.AbstractShellCommand;
+
+/**
+ * Lists queue depth and task counters of the BGP UPDATE processing stages.
+ */
+@Command(scope = "onos", name = "bgp-update-pipeline",
+        description = "Lists queue depth and task counters of the BGP UPDATE processing stages")
+public class BgpUpdatePipelineCommand extends AbstractShellCommand {
+
+    private static final String FORMAT = "stage=%s, queueDepth=%d, maxQueueDepth=%d, processed=%d, errors=%d";
+
+    @Override
+    protected void execute() {
+        BgpController controller = get(BgpController.class);
+        for (BgpUpdateStageStats stats : controller.updatePipelineStats()) {
+            print(FORMAT, stats.stage(), stats.queueDepth(), stats.maxQueueDepth(), stats.processed(),
+                  stats.errors());
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.provider.bgp.route.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Timer;
+
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.onlab.util.AbstractAccumulator;
+import org.onlab.util.Accumulator;
+import org.onosproject.bgp.controller.BgpController;
+import org.onosproject.bgp.controller.BgpFlowSpecListener;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecNlri;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecRouteKey;
+import org.onosproject.core.ApplicationId;
+import org.onosproject.core.CoreService;
+import org.onosproject.net.Device;
+import org.onosproject.net.DeviceId;
+import org.onosproject.net.device.DeviceEvent;
+import org.onosproject.net.device.DeviceListener;
+import org.onosproject.net.device.DeviceService;
+import org.onosproject.net.flow.DefaultFlowRule;
+import org.onosproject.net.flow.FlowRule;
+import org.onosproject.net.flow.FlowRuleOperations;
+import org.onosproject.net.flow.FlowRuleOperationsContext;
+import org.onosproject.net.flow.FlowRuleService;
+import org.onosproject.net.flow.TrafficSelector;
+import org.onosproject.net.flow.TrafficTreatment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+import static org.onosproject.net.device.DeviceEvent.Type.DEVICE_ADDED;
+import static org.onosproject.net.device.DeviceEvent.Type.DEVICE_AVAILABILITY_CHANGED;
+
+/**
+ * Provider which installs the flow specifications selected by the BGP controller
+ * as flow rules on the available switches.
+ * <p>
+ * Changes of the flow specification local RIB are accumulated and applied as
+ * one staged {@link FlowRuleOperations} batch, removals first, so bursts of
+ * flow specifications reach the devices together. Rule priorities follow
+ * RFC 5575 flow specification order.
+ * </p>
+ */
+@Component(immediate = true)
+public class BgpFlowSpecProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(BgpFlowSpecProvider.class);
+
+    private static final String APP_NAME = "org.onosproject.bgp.flowspec";
+    private static final int MAX_EVENTS = 1000;
+    private static final int MAX_BATCH_MS = 50;
+    private static final int MAX_IDLE_MS = 10;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected BgpController controller;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected FlowRuleService flowRuleService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected DeviceService deviceService;
+
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected CoreService coreService;
+
+    private final FlowSpecCompiler compiler = new FlowSpecCompiler();
+    private final FlowSpecPriorities priorities = new FlowSpecPriorities();
+    private final Map<BgpFlowSpecRouteKey, InstalledFlowSpec> installed = new LinkedHashMap<>();
+    private final BgpFlowSpecListener flowSpecListener = new InternalFlowSpecListener();
+    private final DeviceListener deviceListener = new InternalDeviceListener();
+
+    private ApplicationId appId;
+    private Timer timer;
+    private Accumulator<FlowSpecChange> accumulator;
+    private boolean stopped;
+
+    @Activate
+    public void activate() {
+        appId = coreService.registerApplication(APP_NAME);
+        synchronized (this) {
+            stopped = false;
+        }
+        timer = new Timer("onos-bgp-flowspec-batching");
+        accumulator = new FlowSpecAccumulator();
+        deviceService.addListener(deviceListener);
+        controller.addFlowSpecListener(flowSpecListener);
+        // routes selected before the listener was registered
+        flowSpecListener.updateFlowSpecs(controller.bgpFlowSpecLocalRib().flowSpecs(), ImmutableList.of());
+        log.info("Started");
+    }
+
+    @Deactivate
+    public void deactivate() {
+        controller.removeFlowSpecListener(flowSpecListener);
+        deviceService.removeListener(deviceListener);
+        // changes still pending in the accumulator are dropped with the timer
+        timer.cancel();
+        synchronized (this) {
+            stopped = true;
+            installed.clear();
+        }
+        flowRuleService.removeFlowRulesById(appId);
+        log.info("Stopped");
+    }
+
+    /**
+     * Applies a batch of flow specification changes as one staged flow rule operation.
+     *
+     * @param changes flow specification changes in the order they were notified
+     */
+    synchronized void processChanges(List<FlowSpecChange> changes) {
+        if (stopped) {
+            return;
+        }
+        Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> latest = new LinkedHashMap<>();
+        for (FlowSpecChange change : changes) {
+            latest.put(change.routeKey, change.flowSpec);
+        }
+
+        FlowRuleOperations.Builder removals = FlowRuleOperations.builder();
+        List<FlowRule> additions = new ArrayList<>();
+        Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> added = new LinkedHashMap<>();
+        for (Map.Entry<BgpFlowSpecRouteKey, BgpFlowSpecNlri> entry : latest.entrySet()) {
+            if (entry.getValue() != null) {
+                added.put(entry.getKey(), entry.getValue());
+                continue;
+            }
+            priorities.remove(entry.getKey());
+            compiler.invalidate(entry.getKey());
+            InstalledFlowSpec old = installed.remove(entry.getKey());
+            if (old != null) {
+                old.rules.forEach(removals::remove);
+            }
+        }
+
+        Set<BgpFlowSpecRouteKey> reprioritized = priorities.assign(added);
+        List<Device> devices = ImmutableList.copyOf(deviceService.getAvailableDevices(Device.Type.SWITCH));
+        for (BgpFlowSpecRouteKey routeKey : Sets.union(added.keySet(), reprioritized)) {
+            InstalledFlowSpec old = installed.get(routeKey);
+            BgpFlowSpecNlri flowSpec = added.containsKey(routeKey) ? added.get(routeKey) : old.flowSpec;
+            int priority = priorities.priority(routeKey);
+            TrafficTreatment treatment = FlowSpecCompiler.treatment(flowSpec);
+            if (old != null && old.priority == priority && Objects.equals(old.treatment, treatment)) {
+                old.flowSpec = flowSpec;
+                continue;
+            }
+            if (old != null) {
+                old.rules.forEach(removals::remove);
+            }
+            InstalledFlowSpec flowSpecRules = new InstalledFlowSpec(flowSpec, priority, treatment);
+            for (Device device : devices) {
+                flowSpecRules.rules.addAll(rules(routeKey, flowSpecRules, device.id()));
+            }
+            installed.put(routeKey, flowSpecRules);
+            additions.addAll(flowSpecRules.rules);
+        }
+
+        apply(removals, additions);
+        log.debug("Applied {} flow specification changes, {} rules added", latest.size(), additions.size());
+    }
+
+    /**
+     * Installs the rules of every selected flow specification on a device which became available.
+     *
+     * @param deviceId device identifier
+     */
+    synchronized void deviceAvailable(DeviceId deviceId) {
+        List<FlowRule> additions = new ArrayList<>();
+        for (Map.Entry<BgpFlowSpecRouteKey, InstalledFlowSpec> entry : installed.entrySet()) {
+            InstalledFlowSpec flowSpecRules = entry.getValue();
+            if (flowSpecRules.rules.stream().anyMatch(rule -> rule.deviceId().equals(deviceId))) {
+                continue;
+            }
+            List<FlowRule> rules = rules(entry.getKey(), flowSpecRules, deviceId);
+            flowSpecRules.rules.addAll(rules);
+            additions.addAll(rules);
+        }
+        apply(FlowRuleOperations.builder(), additions);
+    }
+
+    private List<FlowRule> rules(BgpFlowSpecRouteKey routeKey, InstalledFlowSpec flowSpecRules, DeviceId deviceId) {
+        if (flowSpecRules.treatment == null) {
+            return ImmutableList.of();
+        }
+        List<FlowRule> rules = new ArrayList<>();
+        for (TrafficSelector selector : compiler.selectors(routeKey, flowSpecRules.flowSpec)) {
+            rules.add(DefaultFlowRule.builder()
+                              .forDevice(deviceId)
+                              .withSelector(selector)
+                              .withTreatment(flowSpecRules.treatment)
+                              .withPriority(flowSpecRules.priority)
+                              .fromApp(appId)
+                              .makePermanent()
+                              .build());
+        }
+        return rules;
+    }
+
+    private void apply(FlowRuleOperations.Builder removals, List<FlowRule> additions) {
+        FlowRuleOperations.Builder ops = removals.newStage();
+        additions.forEach(ops::add);
+        FlowRuleOperations operations = ops.build(new FlowRuleOperationsContext() {
+            @Override
+            public void onError(FlowRuleOperations failed) {
+                log.warn("Failed to apply flow specification rules {}", failed);
+            }
+        });
+        if (operations.stages().stream().anyMatch(stage -> !stage.isEmpty())) {
+            flowRuleService.apply(operations);
+        }
+    }
+
+    /**
+     * Rules installed for one flow specification.
+     */
+    private static final class InstalledFlowSpec {
+        private BgpFlowSpecNlri flowSpec;
+        private final int priority;
+        private final TrafficTreatment treatment;
+        private final List<FlowRule> rules = new ArrayList<>();
+
+        private InstalledFlowSpec(BgpFlowSpecNlri flowSpec, int priority, TrafficTreatment treatment) {
+            this.flowSpec = flowSpec;
+            this.priority = priority;
+            this.treatment = treatment;
+        }
+    }
+
+    /**
+     * Change of one flow specification, withdrawn if the flow specification is null.
+     */
+    static final class FlowSpecChange {
+        private final BgpFlowSpecRouteKey routeKey;
+        private final BgpFlowSpecNlri flowSpec;
+
+        FlowSpecChange(BgpFlowSpecRouteKey routeKey, BgpFlowSpecNlri flowSpec) {
+            this.routeKey = routeKey;
+            this.flowSpec = flowSpec;
+        }
+    }
+
+    // Accumulates flow specification changes into batches of flow rule operations.
+    private class FlowSpecAccumulator extends AbstractAccumulator<FlowSpecChange> {
+        FlowSpecAccumulator() {
+            super(timer, MAX_EVENTS, MAX_BATCH_MS, MAX_IDLE_MS);
+        }
+
+        @Override
+        public void processItems(List<FlowSpecChange> items) {
+            try {
+                processChanges(items);
+            } catch (RuntimeException e) {
+                log.warn("Unable to apply flow specification changes", e);
+            }
+        }
+    }
+
+    private class InternalFlowSpecListener implements BgpFlowSpecListener {
+        @Override
+        public void updateFlowSpecs(Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> addFlowSpecs,
+                                    Collection<BgpFlowSpecRouteKey> deleteFlowSpecs) {
+            for (BgpFlowSpecRouteKey routeKey : deleteFlowSpecs) {
+                accumulator.add(new FlowSpecChange(routeKey, null));
+            }
+            for (Map.Entry<BgpFlowSpecRouteKey, BgpFlowSpecNlri> entry : addFlowSpecs.entrySet()) {
+                accumulator.add(new FlowSpecChange(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    private class InternalDeviceListener implements DeviceListener {
+        @Override
+        public void event(DeviceEvent event) {
+            DeviceEvent.Type type = event.type();
+            if ((type == DEVICE_ADDED || type == DEVICE_AVAILABILITY_CHANGED)
+                    && event.subject().type() == Device.Type.SWITCH
+                    && deviceService.isAvailable(event.subject().id())) {
+                deviceAvailable(event.subject().id());
+            }
+        }
+    }
+}
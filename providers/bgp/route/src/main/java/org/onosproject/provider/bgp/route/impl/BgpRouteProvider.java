@@ -13,22 +13,37 @@
 
 package org.onosproject.provider.bgp.route.impl;
 
-import java.io.IOException;
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Modified;
+import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.onlab.packet.Ip4Address;
-import org.onlab.packet.MacAddress;
+import org.onlab.packet.IpAddress;
+import org.onlab.packet.IpPrefix;
+import org.onlab.util.Tools;
 import org.onosproject.bgp.controller.BgpController;
+import org.onosproject.bgp.controller.BgpEvpnListener;
 import org.onosproject.bgp.controller.BgpPeer.OperationType;
-import org.onosproject.bgpio.exceptions.BgpParseException;
 import org.onosproject.bgpio.protocol.BgpEvpnNlri;
 import org.onosproject.bgpio.protocol.evpn.BgpEvpnNlriVer4;
+import org.onosproject.bgpio.protocol.evpn.BgpEvpnRouteKey;
+import org.onosproject.bgpio.protocol.evpn.BgpIpPrefixNlriVer4;
 import org.onosproject.bgpio.protocol.evpn.BgpMacIpAdvNlriVer4;
 import org.onosproject.bgpio.protocol.evpn.RouteType;
 import org.onosproject.bgpio.types.BgpEncap;
@@ -37,17 +52,43 @@ import org.onosproject.bgpio.types.EthernetSegmentidentifier;
 import org.onosproject.bgpio.types.MplsLabel;
 import org.onosproject.bgpio.types.RouteDistinguisher;
 import org.onosproject.bgpio.types.RouteTarget;
+import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.CoreService;
+import org.onosproject.incubator.net.routing.ResolvedRoute;
+import org.onosproject.incubator.net.routing.Route;
+import org.onosproject.incubator.net.routing.RouteAdminService;
+import org.onosproject.incubator.net.routing.RouteEvent;
+import org.onosproject.incubator.net.routing.RouteListener;
 import org.onosproject.incubator.net.routing.RouteService;
 import org.onosproject.mastership.MastershipService;
 import org.onosproject.net.provider.AbstractProvider;
 import org.onosproject.net.provider.ProviderId;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+
 /**
- * Provider which uses an BGP controller to detect network infrastructure
- * topology.
+ * Provider which exports the routes of the route service to BGP peers as EVPN
+ * routes.
+ * <p>
+ * Resolved IPv4 host routes are advertised as MAC/IP advertisement routes
+ * carrying the MAC address of their next hop, other IPv4 routes as IP prefix
+ * routes. Each route event is converted once and handed to the controller,
+ * which encodes it once and sends it to the peers importing the configured
+ * route targets.
+ * </p>
+ * <p>
+ * In the other direction, the next hops of EVPN MAC/IP advertisement routes
+ * carrying an IP address and of IP prefix routes selected in the EVPN local
+ * RIB are installed in the route service, if they carry one of the configured
+ * route targets. When routes of several route distinguishers reach the same
+ * prefix, the lowest next hop is installed. Each change of the local RIB,
+ * including the mass withdrawal of an Ethernet segment, is applied as one
+ * update batch and one withdraw batch.
+ * </p>
  */
 @Component(immediate = true)
 public class BgpRouteProvider extends AbstractProvider {
@@ -62,9 +103,15 @@ public class BgpRouteProvider extends AbstractProvider {
     private static final Logger log = LoggerFactory
             .getLogger(BgpRouteProvider.class);
 
+    private static final int HOST_PREFIX_LENGTH = 32;
+    private static final String DEFAULT_ASSIGNED_NUMBER = ":1";
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected RouteService routeservice;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected RouteAdminService routeAdminService;
+
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected BgpController controller;
 
@@ -74,49 +121,331 @@ public class BgpRouteProvider extends AbstractProvider {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected MastershipService mastershipService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected ComponentConfigService cfgService;
+
+    @Property(name = "routeDistinguisher", value = "",
+            label = "Route distinguisher of exported EVPN routes as <as>:<number>; default is <local as>:1")
+    private String routeDistinguisher = "";
+
+    @Property(name = "routeTargets", value = "",
+            label = "Comma separated route targets of exported EVPN routes as <as>:<number>;"
+                    + " default is <local as>:1")
+    private String routeTargets = "";
+
+    @Property(name = "mplsLabel", intValue = 0,
+            label = "MPLS label of exported EVPN routes")
+    private int mplsLabel = 0;
+
+    private final RouteListener routeListener = new InternalRouteListener();
+    private final Map<IpPrefix, ExportedRoute> exported = new ConcurrentHashMap<>();
+    private final BgpEvpnListener evpnListener = new InternalEvpnListener();
+    private final Map<IpPrefix, Map<BgpEvpnRouteKey, IpAddress>> learned = new ConcurrentHashMap<>();
+
     @Activate
-    public void activate() {
-        log.debug("BgpTopologyProvider activate");
+    public void activate(ComponentContext context) {
+        cfgService.registerProperties(getClass());
+        readComponentConfiguration(context);
+        controller.addEvpnListener(evpnListener);
+        importRoutes(controller.bgpEvpnLocalRib().nextHops(), ImmutableList.of());
+        routeservice.addListener(routeListener);
+        log.debug("BgpRouteProvider activate");
     }
 
     @Deactivate
     public void deactivate() {
-        log.debug("BgpTopologyProvider deactivate");
+        cfgService.unregisterProperties(getClass(), false);
+        routeservice.removeListener(routeListener);
+        controller.removeEvpnListener(evpnListener);
+        withdrawImportedRoutes();
+        exported.clear();
+        log.debug("BgpRouteProvider deactivate");
+    }
+
+    @Modified
+    public synchronized void modified(ComponentContext context) {
+        List<ResolvedRoute> routes = new ArrayList<>();
+        for (IpPrefix prefix : ImmutableList.copyOf(exported.keySet())) {
+            ExportedRoute old = exported.get(prefix);
+            routes.add(old.route);
+            withdrawRoute(prefix);
+        }
+        readComponentConfiguration(context);
+        importRoutes(controller.bgpEvpnLocalRib().nextHops(), ImmutableList.of());
+        routes.forEach(this::exportRoute);
+    }
+
+    /**
+     * Extracts properties from the component configuration context.
+     *
+     * @param context the component context
+     */
+    private void readComponentConfiguration(ComponentContext context) {
+        if (context == null) {
+            return;
+        }
+        Dictionary<?, ?> properties = context.getProperties();
+        String s = Tools.get(properties, "routeDistinguisher");
+        routeDistinguisher = Strings.isNullOrEmpty(s) ? "" : s.trim();
+        s = Tools.get(properties, "routeTargets");
+        routeTargets = Strings.isNullOrEmpty(s) ? "" : s.trim();
+        s = Tools.get(properties, "mplsLabel");
+        try {
+            mplsLabel = Strings.isNullOrEmpty(s) ? 0 : Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid mplsLabel {}, using {}", s, mplsLabel);
+        }
+        log.info("Exporting EVPN routes with route distinguisher {}, route targets {}, label {}",
+                 routeDistinguisher, routeTargets, mplsLabel);
+    }
+
+    /**
+     * Advertises a resolved route, withdrawing its previous advertisement when the route key changed.
+     *
+     * @param route resolved route
+     */
+    private synchronized void exportRoute(ResolvedRoute route) {
+        if (learned.containsKey(route.prefix())) {
+            log.debug("Route {} learned from BGP, not exported", route);
+            return;
+        }
+        if (!route.prefix().isIp4() || !route.nextHop().isIp4()) {
+            log.debug("Only IPv4 routes are exported, ignoring {}", route);
+            return;
+        }
+        RouteDistinguisher rd = stringToRD(orDefault(routeDistinguisher));
+        List<BgpValueType> extCom = new ArrayList<>(configuredRouteTargets());
+        if (rd == null || extCom.isEmpty()) {
+            log.warn("Invalid route distinguisher {} or route targets {}, {} not exported",
+                     routeDistinguisher, routeTargets, route);
+            return;
+        }
+        extCom.add(new BgpEncap(0, (short) 0x08));
 
+        BgpEvpnNlri nlri = evpnNlri(route, rd);
+        ExportedRoute old = exported.get(route.prefix());
+        if (old != null && (nlri == null || !BgpEvpnRouteKey.of(old.nlri).equals(BgpEvpnRouteKey.of(nlri)))) {
+            withdrawRoute(route.prefix());
+        }
+        if (nlri == null) {
+            log.debug("Next hop of {} not resolved, not exported", route);
+            return;
+        }
+        Ip4Address nextHop = route.nextHop().getIp4Address();
+        controller.exportEvpn(OperationType.ADD, nextHop, extCom, ImmutableList.of(nlri));
+        exported.put(route.prefix(), new ExportedRoute(route, nlri, nextHop, extCom));
     }
 
-    private void sendUpdateMessage(OperationType operationType, String rdString,
-                                   String rtString, Ip4Address nextHop,
-                                   MacAddress macAddress, int labelInt)
-            throws IOException, BgpParseException {
+    /**
+     * Returns the configured route targets, used both to export and to import routes.
+     *
+     * @return route targets
+     */
+    private Set<RouteTarget> configuredRouteTargets() {
+        Set<RouteTarget> rts = new HashSet<>();
+        for (String rt : orDefault(routeTargets).split(",")) {
+            RouteTarget routeTarget = stringToRT(rt.trim());
+            if (routeTarget != null) {
+                rts.add(routeTarget);
+            }
+        }
+        return rts;
+    }
 
-        List<BgpEvpnNlri> eVpnComponents = new ArrayList<BgpEvpnNlri>();
-        RouteDistinguisher rd = stringToRD(rdString);
+    /**
+     * Converts a route to an EVPN route. Host routes become MAC/IP advertisement routes carrying the MAC of
+     * their next hop, other routes become IP prefix routes with their next hop as gateway.
+     *
+     * @param route resolved route
+     * @param rd route distinguisher
+     * @return EVPN route, null if the next hop MAC of a host route is not resolved
+     */
+    private BgpEvpnNlri evpnNlri(ResolvedRoute route, RouteDistinguisher rd) {
         EthernetSegmentidentifier esi = new EthernetSegmentidentifier(new byte[10]);
-        int ethernetTagID = 0;
-        byte ipAddressLength = 0;
-        InetAddress ipAddress = null;
-        MplsLabel mplsLabel1 = intToLabel(labelInt);
-        MplsLabel mplsLabel2 = null;
-        BgpMacIpAdvNlriVer4 routeTypeSpec = new BgpMacIpAdvNlriVer4(rd, esi,
-                                                                    ethernetTagID,
-                                                                    macAddress,
-                                                                    ipAddressLength,
-                                                                    ipAddress,
-                                                                    mplsLabel1,
-                                                                    mplsLabel2);
-        BgpEvpnNlri nlri = new BgpEvpnNlriVer4(RouteType.MAC_IP_ADVERTISEMENT
-                .getType(), routeTypeSpec);
-        eVpnComponents.add(nlri);
-
-        List<BgpValueType> extCom = new ArrayList<BgpValueType>();
-        RouteTarget rTarget = stringToRT(rtString);
-        extCom.add(rTarget);
-        BgpEncap enc = new BgpEncap(0, (short) 0x08);
-        extCom.add(enc);
-        controller.getPeers().forEach(peer -> {
-            peer.updateEvpn(operationType, nextHop, extCom, eVpnComponents);
-        });
+        if (route.prefix().prefixLength() != HOST_PREFIX_LENGTH) {
+            BgpIpPrefixNlriVer4 ipPrefix = new BgpIpPrefixNlriVer4(rd, esi, 0,
+                                                                   (byte) route.prefix().prefixLength(),
+                                                                   route.prefix().address().toInetAddress(),
+                                                                   route.nextHop().toInetAddress(),
+                                                                   intToLabel(mplsLabel));
+            return new BgpEvpnNlriVer4(RouteType.IP_PREFIX.getType(), ipPrefix);
+        }
+        if (route.nextHopMac() == null) {
+            return null;
+        }
+        BgpMacIpAdvNlriVer4 routeTypeSpec = new BgpMacIpAdvNlriVer4(rd,
+                                                                    esi,
+                                                                    0,
+                                                                    route.nextHopMac(),
+                                                                    (byte) HOST_PREFIX_LENGTH,
+                                                                    route.prefix().address().toInetAddress(),
+                                                                    intToLabel(mplsLabel),
+                                                                    null);
+        return new BgpEvpnNlriVer4(RouteType.MAC_IP_ADVERTISEMENT.getType(), routeTypeSpec);
+    }
+
+    /**
+     * Withdraws the advertisement of a route.
+     *
+     * @param prefix route prefix
+     */
+    private synchronized void withdrawRoute(IpPrefix prefix) {
+        ExportedRoute old = exported.remove(prefix);
+        if (old != null) {
+            controller.exportEvpn(OperationType.DELETE, old.nextHop, old.extCommunities,
+                                  ImmutableList.of(old.nlri));
+        }
+    }
+
+    /**
+     * Installs the next hops of EVPN routes in the route service, as one update batch and one withdraw batch.
+     * Updated routes which do not carry any of the configured route targets are handled as removed.
+     *
+     * @param updateRoutes next hops of routes added or updated
+     * @param deleteRoutes routes removed
+     */
+    private synchronized void importRoutes(Map<BgpEvpnRouteKey, IpAddress> updateRoutes,
+                                           Collection<BgpEvpnRouteKey> deleteRoutes) {
+        Map<IpPrefix, Route> update = new LinkedHashMap<>();
+        Map<IpPrefix, Route> withdraw = new LinkedHashMap<>();
+        for (BgpEvpnRouteKey routeKey : deleteRoutes) {
+            forget(routeKey, update, withdraw);
+        }
+        Set<RouteTarget> importTargets = configuredRouteTargets();
+        for (Map.Entry<BgpEvpnRouteKey, IpAddress> entry : updateRoutes.entrySet()) {
+            IpPrefix prefix = prefix(entry.getKey());
+            IpAddress nextHop = entry.getValue();
+            if (prefix == null || nextHop == null || prefix.version() != nextHop.version()) {
+                continue;
+            }
+            if (Collections.disjoint(importTargets, controller.bgpEvpnLocalRib().routeTargets(entry.getKey()))) {
+                forget(entry.getKey(), update, withdraw);
+                continue;
+            }
+            Map<BgpEvpnRouteKey, IpAddress> nextHops = learned.computeIfAbsent(prefix, k -> new HashMap<>());
+            nextHops.put(entry.getKey(), nextHop);
+            withdraw.remove(prefix);
+            update.put(prefix, new Route(Route.Source.BGP, prefix, Collections.min(nextHops.values())));
+        }
+        if (!withdraw.isEmpty()) {
+            routeAdminService.withdraw(withdraw.values());
+        }
+        if (!update.isEmpty()) {
+            routeAdminService.update(update.values());
+        }
+        log.debug("Imported {} EVPN routes, withdrew {}", update.size(), withdraw.size());
+    }
+
+    /**
+     * Removes an EVPN route from the installed routes, withdrawing its prefix when no other route reaches it or
+     * installing the next hop of the remaining routes otherwise.
+     *
+     * @param routeKey EVPN route key
+     * @param update routes to update, per prefix
+     * @param withdraw routes to withdraw, per prefix
+     */
+    private void forget(BgpEvpnRouteKey routeKey, Map<IpPrefix, Route> update, Map<IpPrefix, Route> withdraw) {
+        IpPrefix prefix = prefix(routeKey);
+        Map<BgpEvpnRouteKey, IpAddress> nextHops = prefix == null ? null : learned.get(prefix);
+        if (nextHops == null || !nextHops.containsKey(routeKey)) {
+            return;
+        }
+        IpAddress nextHop = nextHops.remove(routeKey);
+        if (nextHops.isEmpty()) {
+            learned.remove(prefix);
+            update.remove(prefix);
+            withdraw.put(prefix, new Route(Route.Source.BGP, prefix, nextHop));
+        } else {
+            update.put(prefix, new Route(Route.Source.BGP, prefix, Collections.min(nextHops.values())));
+        }
+    }
+
+    /**
+     * Withdraws every route installed from the EVPN local RIB.
+     */
+    private synchronized void withdrawImportedRoutes() {
+        List<Route> routes = new ArrayList<>();
+        for (Map.Entry<IpPrefix, Map<BgpEvpnRouteKey, IpAddress>> entry : learned.entrySet()) {
+            routes.add(new Route(Route.Source.BGP, entry.getKey(), Collections.min(entry.getValue().values())));
+        }
+        learned.clear();
+        if (!routes.isEmpty()) {
+            routeAdminService.withdraw(routes);
+        }
+    }
+
+    /**
+     * Returns the IP prefix reached through an EVPN route.
+     *
+     * @param routeKey EVPN route key
+     * @return IP prefix, null if the route does not carry one
+     */
+    private static IpPrefix prefix(BgpEvpnRouteKey routeKey) {
+        InetAddress address = routeKey.ipAddress();
+        if (address == null) {
+            return null;
+        }
+        IpAddress ip = IpAddress.valueOf(address);
+        if (routeKey.routeType() == BgpMacIpAdvNlriVer4.TYPE) {
+            return IpPrefix.valueOf(ip, ip.isIp4() ? IpPrefix.MAX_INET_MASK_LENGTH : IpPrefix.MAX_INET6_MASK_LENGTH);
+        }
+        if (routeKey.routeType() == BgpIpPrefixNlriVer4.TYPE) {
+            return IpPrefix.valueOf(ip, routeKey.ipPrefixLength());
+        }
+        return null;
+    }
+
+    private String orDefault(String value) {
+        return value.isEmpty() ? controller.getConfig().getAsNumber() + DEFAULT_ASSIGNED_NUMBER : value;
+    }
+
+    /**
+     * Advertisement of a route.
+     */
+    private static final class ExportedRoute {
+        private final ResolvedRoute route;
+        private final BgpEvpnNlri nlri;
+        private final Ip4Address nextHop;
+        private final List<BgpValueType> extCommunities;
+
+        private ExportedRoute(ResolvedRoute route, BgpEvpnNlri nlri, Ip4Address nextHop,
+                              List<BgpValueType> extCommunities) {
+            this.route = route;
+            this.nlri = nlri;
+            this.nextHop = nextHop;
+            this.extCommunities = extCommunities;
+        }
+    }
+
+    /**
+     * Listener for route events of the route service.
+     */
+    private class InternalRouteListener implements RouteListener {
+        @Override
+        public void event(RouteEvent event) {
+            switch (event.type()) {
+            case ROUTE_ADDED:
+            case ROUTE_UPDATED:
+                exportRoute(event.subject());
+                break;
+            case ROUTE_REMOVED:
+                withdrawRoute(event.subject().prefix());
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    /**
+     * Listener for changes of the routes selected in the EVPN local RIB.
+     */
+    private class InternalEvpnListener implements BgpEvpnListener {
+        @Override
+        public void updateEvpnRoutes(Map<BgpEvpnRouteKey, IpAddress> updateRoutes,
+                                     Collection<BgpEvpnRouteKey> deleteRoutes) {
+            importRoutes(updateRoutes, deleteRoutes);
+        }
     }
 
     private static RouteDistinguisher stringToRD(String rdString) {
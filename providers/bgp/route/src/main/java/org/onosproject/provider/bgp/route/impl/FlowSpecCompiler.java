@@ -0,0 +1,421 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.provider.bgp.route.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.onlab.packet.Ethernet;
+import org.onlab.packet.IPv4;
+import org.onlab.packet.IpPrefix;
+import org.onlab.packet.TpPort;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecNlri;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecPrecedence;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecRouteKey;
+import org.onosproject.bgpio.types.BgpFsActionTrafficRate;
+import org.onosproject.bgpio.types.BgpFsDestinationPortNum;
+import org.onosproject.bgpio.types.BgpFsDestinationPrefix;
+import org.onosproject.bgpio.types.BgpFsDscpValue;
+import org.onosproject.bgpio.types.BgpFsIcmpCode;
+import org.onosproject.bgpio.types.BgpFsIcmpType;
+import org.onosproject.bgpio.types.BgpFsIpProtocol;
+import org.onosproject.bgpio.types.BgpFsOperatorValue;
+import org.onosproject.bgpio.types.BgpFsPortNum;
+import org.onosproject.bgpio.types.BgpFsSourcePortNum;
+import org.onosproject.bgpio.types.BgpFsSourcePrefix;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.net.flow.DefaultTrafficSelector;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.TrafficSelector;
+import org.onosproject.net.flow.TrafficTreatment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+
+/**
+ * Compiles flow specification components into traffic selectors.
+ * <p>
+ * Numeric operator lists are evaluated to the set of matching values, which
+ * is expanded into one selector per value as OpenFlow matches single values
+ * only. Flow specifications expanding to more than {@link #MAX_SELECTORS}
+ * selectors, or using components without an OpenFlow match such as TCP flags,
+ * packet length and fragment, are not compiled. Selectors only depend on the
+ * components, so they are cached per route key until the route is withdrawn.
+ * </p>
+ */
+final class FlowSpecCompiler {
+
+    private static final Logger log = LoggerFactory.getLogger(FlowSpecCompiler.class);
+
+    static final int MAX_SELECTORS = 64;
+
+    private static final int OPERATOR_AND = 0x40;
+    private static final int OPERATOR_LT = 0x04;
+    private static final int OPERATOR_GT = 0x02;
+    private static final int OPERATOR_EQ = 0x01;
+    private static final int MAX_PORT = 0xFFFF;
+    private static final int MAX_BYTE = 0xFF;
+    private static final int MAX_DSCP = 0x3F;
+
+    private final Map<BgpFlowSpecRouteKey, List<TrafficSelector>> selectorCache = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the selectors of a flow specification, compiling them on first use.
+     *
+     * @param routeKey flow specification route key
+     * @param flowSpec flow specification
+     * @return selectors, empty if the flow specification can not be compiled
+     */
+    List<TrafficSelector> selectors(BgpFlowSpecRouteKey routeKey, BgpFlowSpecNlri flowSpec) {
+        return selectorCache.computeIfAbsent(routeKey, k -> compile(flowSpec));
+    }
+
+    /**
+     * Drops the cached selectors of a withdrawn flow specification.
+     *
+     * @param routeKey flow specification route key
+     */
+    void invalidate(BgpFlowSpecRouteKey routeKey) {
+        selectorCache.remove(routeKey);
+    }
+
+    /**
+     * Returns number of cached flow specifications.
+     *
+     * @return cache size
+     */
+    int cacheSize() {
+        return selectorCache.size();
+    }
+
+    /**
+     * Returns the treatment applying the actions of a flow specification. A zero traffic rate drops the
+     * traffic. Other actions have no equivalent in the treatment model and are ignored.
+     *
+     * @param flowSpec flow specification
+     * @return treatment, null if the traffic is accepted unchanged
+     */
+    static TrafficTreatment treatment(BgpFlowSpecNlri flowSpec) {
+        if (flowSpec.fsActionTlv() == null) {
+            return null;
+        }
+        for (BgpValueType action : flowSpec.fsActionTlv()) {
+            if (action instanceof BgpFsActionTrafficRate && ((BgpFsActionTrafficRate) action).rate() == 0) {
+                return DefaultTrafficTreatment.builder().drop().build();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compiles flow specification components into selectors.
+     *
+     * @param flowSpec flow specification
+     * @return selectors, empty if the flow specification can not be compiled
+     */
+    static List<TrafficSelector> compile(BgpFlowSpecNlri flowSpec) {
+        List<Match> matches = new ArrayList<>();
+        matches.add(new Match());
+        for (BgpValueType component : BgpFlowSpecPrecedence.sortedComponents(flowSpec)) {
+            if (component instanceof BgpFsDestinationPrefix) {
+                IpPrefix prefix = ((BgpFsDestinationPrefix) component).ipPrefix();
+                if (!prefix.isIp4()) {
+                    return unsupported(flowSpec, component);
+                }
+                matches.forEach(match -> match.dst = prefix);
+            } else if (component instanceof BgpFsSourcePrefix) {
+                IpPrefix prefix = ((BgpFsSourcePrefix) component).ipPrefix();
+                if (!prefix.isIp4()) {
+                    return unsupported(flowSpec, component);
+                }
+                matches.forEach(match -> match.src = prefix);
+            } else if (component instanceof BgpFsIpProtocol) {
+                matches = expand(matches, ((BgpFsIpProtocol) component).operatorValue(), MAX_BYTE,
+                                 (match, value) -> match.protocol(value));
+            } else if (component instanceof BgpFsPortNum) {
+                List<BgpFsOperatorValue> operators = ((BgpFsPortNum) component).operatorValue();
+                // port matches either source or destination port
+                List<Match> source = expand(matches, operators, MAX_PORT, (match, value) -> match.srcPort(value));
+                List<Match> destination = expand(matches, operators, MAX_PORT,
+                                                 (match, value) -> match.dstPort(value));
+                if (source == null || destination == null) {
+                    matches = null;
+                } else {
+                    source.addAll(destination);
+                    matches = source;
+                }
+            } else if (component instanceof BgpFsDestinationPortNum) {
+                matches = expand(matches, ((BgpFsDestinationPortNum) component).operatorValue(), MAX_PORT,
+                                 (match, value) -> match.dstPort(value));
+            } else if (component instanceof BgpFsSourcePortNum) {
+                matches = expand(matches, ((BgpFsSourcePortNum) component).operatorValue(), MAX_PORT,
+                                 (match, value) -> match.srcPort(value));
+            } else if (component instanceof BgpFsIcmpType) {
+                matches = expand(matches, ((BgpFsIcmpType) component).operatorValue(), MAX_BYTE,
+                                 (match, value) -> match.icmpType(value));
+            } else if (component instanceof BgpFsIcmpCode) {
+                matches = expand(matches, ((BgpFsIcmpCode) component).operatorValue(), MAX_BYTE,
+                                 (match, value) -> match.icmpCode(value));
+            } else if (component instanceof BgpFsDscpValue) {
+                matches = expand(matches, ((BgpFsDscpValue) component).operatorValue(), MAX_DSCP,
+                                 (match, value) -> match.dscp(value));
+            } else {
+                return unsupported(flowSpec, component);
+            }
+            if (matches == null) {
+                log.warn("Flow specification {} expands to more than {} rules", flowSpec, MAX_SELECTORS);
+                return ImmutableList.of();
+            }
+        }
+
+        List<TrafficSelector> selectors = new ArrayList<>();
+        for (Match match : matches) {
+            if ((match.srcPort != null || match.dstPort != null) && match.protocol == null) {
+                // ports without protocol match both TCP and UDP
+                addSelector(selectors, match.copy().protocol(IPv4.PROTOCOL_TCP));
+                addSelector(selectors, match.copy().protocol(IPv4.PROTOCOL_UDP));
+            } else {
+                addSelector(selectors, match);
+            }
+        }
+        if (selectors.size() > MAX_SELECTORS) {
+            log.warn("Flow specification {} expands to more than {} rules", flowSpec, MAX_SELECTORS);
+            return ImmutableList.of();
+        }
+        return ImmutableList.copyOf(selectors);
+    }
+
+    private static List<TrafficSelector> unsupported(BgpFlowSpecNlri flowSpec, BgpValueType component) {
+        log.warn("Flow specification {} not compiled, component {} not supported", flowSpec, component);
+        return ImmutableList.of();
+    }
+
+    private static void addSelector(List<TrafficSelector> selectors, Match match) {
+        if (match != null && match.isConsistent()) {
+            selectors.add(match.selector());
+        }
+    }
+
+    /**
+     * Returns the matches refined by each value satisfying an operator list, null if there are too many.
+     */
+    private static List<Match> expand(List<Match> matches, List<BgpFsOperatorValue> operators, int max,
+                                      Refinement refinement) {
+        if (matches == null) {
+            return null;
+        }
+        RangeSet<Integer> values = values(operators, max);
+        List<Match> expanded = new ArrayList<>();
+        for (Range<Integer> range : values.asRanges()) {
+            for (int value : ContiguousSet.create(range, DiscreteDomain.integers())) {
+                for (Match match : matches) {
+                    Match refined = refinement.refine(match.copy(), value);
+                    if (refined != null) {
+                        if (expanded.size() == MAX_SELECTORS) {
+                            return null;
+                        }
+                        expanded.add(refined);
+                    }
+                }
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * Evaluates a numeric operator list as per RFC 5575 section 4, terms joined with the and bit
+     * binding before terms joined by or.
+     *
+     * @param operators operator and value list
+     * @param max largest value of the component
+     * @return matching values
+     */
+    static RangeSet<Integer> values(List<BgpFsOperatorValue> operators, int max) {
+        RangeSet<Integer> result = TreeRangeSet.create();
+        RangeSet<Integer> conjunction = null;
+        for (BgpFsOperatorValue operator : operators) {
+            RangeSet<Integer> term = term(operator.option(), value(operator.value()), max);
+            if (conjunction != null && (operator.option() & OPERATOR_AND) != 0) {
+                conjunction.removeAll(term.complement());
+            } else {
+                if (conjunction != null) {
+                    result.addAll(conjunction);
+                }
+                conjunction = term;
+            }
+        }
+        if (conjunction != null) {
+            result.addAll(conjunction);
+        }
+        return result;
+    }
+
+    private static RangeSet<Integer> term(byte option, int value, int max) {
+        RangeSet<Integer> term = TreeRangeSet.create();
+        if ((option & OPERATOR_EQ) != 0 && value <= max) {
+            term.add(Range.singleton(value));
+        }
+        if ((option & OPERATOR_LT) != 0 && value > 0) {
+            term.add(Range.closed(0, Math.min(value - 1, max)));
+        }
+        if ((option & OPERATOR_GT) != 0 && value < max) {
+            term.add(Range.closed(value + 1, max));
+        }
+        return term;
+    }
+
+    private static int value(byte[] bytes) {
+        int value = 0;
+        for (byte b : bytes) {
+            value = (value << Byte.SIZE) | (b & MAX_BYTE);
+        }
+        return value;
+    }
+
+    /**
+     * Refines a match with a component value.
+     */
+    @FunctionalInterface
+    private interface Refinement {
+        /**
+         * Returns the match refined with a value, null if the value contradicts the match.
+         */
+        Match refine(Match match, int value);
+    }
+
+    /**
+     * Fields of one OpenFlow match being built.
+     */
+    private static final class Match {
+        private IpPrefix dst;
+        private IpPrefix src;
+        private Byte protocol;
+        private Integer srcPort;
+        private Integer dstPort;
+        private Byte icmpType;
+        private Byte icmpCode;
+        private Byte dscp;
+
+        private Match copy() {
+            Match match = new Match();
+            match.dst = dst;
+            match.src = src;
+            match.protocol = protocol;
+            match.srcPort = srcPort;
+            match.dstPort = dstPort;
+            match.icmpType = icmpType;
+            match.icmpCode = icmpCode;
+            match.dscp = dscp;
+            return match;
+        }
+
+        private Match protocol(int value) {
+            if (protocol != null && protocol != (byte) value) {
+                return null;
+            }
+            protocol = (byte) value;
+            return this;
+        }
+
+        private Match srcPort(int value) {
+            if (srcPort != null && srcPort != value) {
+                return null;
+            }
+            srcPort = value;
+            return this;
+        }
+
+        private Match dstPort(int value) {
+            if (dstPort != null && dstPort != value) {
+                return null;
+            }
+            dstPort = value;
+            return this;
+        }
+
+        private Match icmpType(int value) {
+            icmpType = (byte) value;
+            return protocol(IPv4.PROTOCOL_ICMP);
+        }
+
+        private Match icmpCode(int value) {
+            icmpCode = (byte) value;
+            return protocol(IPv4.PROTOCOL_ICMP);
+        }
+
+        private Match dscp(int value) {
+            dscp = (byte) value;
+            return this;
+        }
+
+        /**
+         * Returns whether port matches are on TCP or UDP and ICMP matches are not combined with ports.
+         */
+        private boolean isConsistent() {
+            boolean ports = srcPort != null || dstPort != null;
+            boolean icmp = icmpType != null || icmpCode != null;
+            return !ports || !icmp && protocol != null
+                    && (protocol == IPv4.PROTOCOL_TCP || protocol == IPv4.PROTOCOL_UDP);
+        }
+
+        private TrafficSelector selector() {
+            TrafficSelector.Builder builder = DefaultTrafficSelector.builder().matchEthType(Ethernet.TYPE_IPV4);
+            if (dst != null) {
+                builder.matchIPDst(dst);
+            }
+            if (src != null) {
+                builder.matchIPSrc(src);
+            }
+            if (protocol != null) {
+                builder.matchIPProtocol(protocol);
+            }
+            if (dscp != null) {
+                builder.matchIPDscp(dscp);
+            }
+            if (protocol != null && protocol == IPv4.PROTOCOL_TCP) {
+                if (srcPort != null) {
+                    builder.matchTcpSrc(TpPort.tpPort(srcPort));
+                }
+                if (dstPort != null) {
+                    builder.matchTcpDst(TpPort.tpPort(dstPort));
+                }
+            } else if (protocol != null && protocol == IPv4.PROTOCOL_UDP) {
+                if (srcPort != null) {
+                    builder.matchUdpSrc(TpPort.tpPort(srcPort));
+                }
+                if (dstPort != null) {
+                    builder.matchUdpDst(TpPort.tpPort(dstPort));
+                }
+            }
+            if (icmpType != null) {
+                builder.matchIcmpType(icmpType);
+            }
+            if (icmpCode != null) {
+                builder.matchIcmpCode(icmpCode);
+            }
+            return builder.build();
+        }
+    }
+}
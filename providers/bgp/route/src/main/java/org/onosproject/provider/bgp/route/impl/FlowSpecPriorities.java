@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.provider.bgp.route.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecNlri;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecPrecedence;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecRouteKey;
+
+/**
+ * Assigns flow rule priorities following RFC 5575 flow specification order,
+ * the flow specification with higher precedence getting the higher priority.
+ * <p>
+ * New flow specifications take priorities in the gap between their
+ * neighbours, so installed rules keep their priority. Only when a gap is
+ * exhausted all flow specifications are spread over the priority range again.
+ * </p>
+ */
+final class FlowSpecPriorities {
+
+    static final int MIN_PRIORITY = 1000;
+    static final int MAX_PRIORITY = 60000;
+
+    // gap left between flow specifications added next to the ends of the range
+    private static final int SPACING = 16;
+    private static final int UNASSIGNED = -1;
+
+    private final TreeMap<BgpFlowSpecNlri, Slot> slots = new TreeMap<>(new BgpFlowSpecPrecedence());
+    private final Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> flowSpecs = new HashMap<>();
+
+    /**
+     * Returns the priority of a flow specification.
+     *
+     * @param routeKey flow specification route key
+     * @return priority, null if no priority is assigned
+     */
+    Integer priority(BgpFlowSpecRouteKey routeKey) {
+        BgpFlowSpecNlri flowSpec = flowSpecs.get(routeKey);
+        return flowSpec == null ? null : slots.get(flowSpec).priority;
+    }
+
+    /**
+     * Returns number of flow specifications with a priority.
+     *
+     * @return number of flow specifications
+     */
+    int size() {
+        return flowSpecs.size();
+    }
+
+    /**
+     * Releases the priority of a flow specification.
+     *
+     * @param routeKey flow specification route key
+     */
+    void remove(BgpFlowSpecRouteKey routeKey) {
+        BgpFlowSpecNlri flowSpec = flowSpecs.remove(routeKey);
+        if (flowSpec != null) {
+            slots.remove(flowSpec);
+        }
+    }
+
+    /**
+     * Assigns priorities to a batch of flow specifications.
+     *
+     * @param added flow specifications per route key, those already known keep their priority
+     * @return route keys whose priority was assigned or changed
+     */
+    Set<BgpFlowSpecRouteKey> assign(Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> added) {
+        Set<BgpFlowSpecRouteKey> changed = new HashSet<>();
+        for (Map.Entry<BgpFlowSpecRouteKey, BgpFlowSpecNlri> entry : added.entrySet()) {
+            if (!flowSpecs.containsKey(entry.getKey())) {
+                flowSpecs.put(entry.getKey(), entry.getValue());
+                slots.put(entry.getValue(), new Slot(entry.getKey()));
+                changed.add(entry.getKey());
+            }
+        }
+        if (changed.isEmpty()) {
+            return changed;
+        }
+
+        // walk from highest precedence, filling each run of new entries into the gap above the next entry
+        int upper = MAX_PRIORITY + 1;
+        List<Slot> run = new ArrayList<>();
+        for (Slot slot : slots.values()) {
+            if (slot.priority == UNASSIGNED) {
+                run.add(slot);
+                continue;
+            }
+            if (!fill(run, upper, slot.priority)) {
+                return renumber(changed);
+            }
+            upper = slot.priority;
+            run.clear();
+        }
+        if (!fill(run, upper, MIN_PRIORITY - 1)) {
+            return renumber(changed);
+        }
+        return changed;
+    }
+
+    /**
+     * Assigns priorities strictly between two bounds to a run of entries.
+     *
+     * @return false if the run does not fit
+     */
+    private static boolean fill(List<Slot> run, int upper, int lower) {
+        if (run.isEmpty()) {
+            return true;
+        }
+        int step = (upper - lower) / (run.size() + 1);
+        if (step < 1) {
+            return false;
+        }
+        boolean top = upper > MAX_PRIORITY;
+        boolean bottom = lower < MIN_PRIORITY;
+        if (top != bottom) {
+            // next to an end of the range keep close to the neighbour to leave room for later additions
+            step = Math.min(step, SPACING);
+        }
+        for (int i = 0; i < run.size(); i++) {
+            run.get(i).priority = top && !bottom ? lower + step * (run.size() - i) : upper - step * (i + 1);
+        }
+        return true;
+    }
+
+    private Set<BgpFlowSpecRouteKey> renumber(Set<BgpFlowSpecRouteKey> changed) {
+        int step = Math.max(1, (MAX_PRIORITY - MIN_PRIORITY + 1) / (slots.size() + 1));
+        int priority = MAX_PRIORITY;
+        for (Slot slot : slots.values()) {
+            priority = Math.max(MIN_PRIORITY, priority - step);
+            if (slot.priority != priority) {
+                slot.priority = priority;
+                changed.add(slot.routeKey);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Priority of one flow specification.
+     */
+    private static final class Slot {
+        private final BgpFlowSpecRouteKey routeKey;
+        private int priority = UNASSIGNED;
+
+        private Slot(BgpFlowSpecRouteKey routeKey) {
+            this.routeKey = routeKey;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.provider.bgp.route.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecNlri;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecRouteKey;
+import org.onosproject.bgpio.types.BgpFsActionTrafficRate;
+import org.onosproject.bgpio.types.BgpFsDestinationPortNum;
+import org.onosproject.bgpio.types.BgpFsDestinationPrefix;
+import org.onosproject.bgpio.types.BgpFsIpProtocol;
+import org.onosproject.bgpio.types.BgpFsOperatorValue;
+import org.onosproject.bgpio.types.BgpValueType;
+import org.onosproject.net.flow.DefaultTrafficTreatment;
+import org.onosproject.net.flow.TrafficSelector;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+
+/**
+ * Test for flow specification compilation.
+ */
+public class FlowSpecCompilerTest {
+
+    private static final byte END = (byte) 0x80;
+    private static final byte AND = 0x40;
+    private static final byte LT = 0x04;
+    private static final byte GT = 0x02;
+    private static final byte EQ = 0x01;
+
+    private static BgpFsOperatorValue op(int option, int value) {
+        return new BgpFsOperatorValue((byte) option, new byte[] {(byte) (value >> 8), (byte) value});
+    }
+
+    private static BgpFlowSpecNlri flowSpec(BgpValueType... components) {
+        return new BgpFlowSpecNlri(new ArrayList<>(Arrays.asList(components)));
+    }
+
+    private static BgpValueType dst(String prefix) {
+        IpPrefix ipPrefix = IpPrefix.valueOf(prefix);
+        return new BgpFsDestinationPrefix((byte) ipPrefix.prefixLength(), ipPrefix);
+    }
+
+    /**
+     * Terms joined by the and bit bind before terms joined by or.
+     */
+    @Test
+    public void testValues() {
+        // port > 10 && port < 13 || port == 80
+        List<BgpFsOperatorValue> operators = ImmutableList.of(op(GT, 10), op(AND | LT, 13), op(END | EQ, 80));
+        RangeSet<Integer> expected = TreeRangeSet.create();
+        expected.add(Range.closed(11, 12));
+        expected.add(Range.closed(80, 80));
+        assertThat(FlowSpecCompiler.values(operators, 0xFFFF), is(expected));
+    }
+
+    /**
+     * Ports without protocol expand to TCP and UDP selectors.
+     */
+    @Test
+    public void testPortExpansion() {
+        BgpFlowSpecNlri flowSpec = flowSpec(dst("10.0.0.0/8"),
+                                            new BgpFsDestinationPortNum(ImmutableList.of(op(END | EQ, 80))));
+        List<TrafficSelector> selectors = FlowSpecCompiler.compile(flowSpec);
+        assertThat(selectors, hasSize(2));
+
+        BgpFlowSpecNlri tcpOnly = flowSpec(dst("10.0.0.0/8"),
+                                           new BgpFsIpProtocol(ImmutableList.of(op(END | EQ, 6))),
+                                           new BgpFsDestinationPortNum(ImmutableList.of(op(GT, 10),
+                                                                                        op(END | AND | LT, 13))));
+        assertThat(FlowSpecCompiler.compile(tcpOnly), hasSize(2));
+    }
+
+    /**
+     * Flow specifications expanding beyond the selector limit are not compiled.
+     */
+    @Test
+    public void testSelectorLimit() {
+        BgpFlowSpecNlri flowSpec = flowSpec(new BgpFsDestinationPortNum(ImmutableList.of(op(END | LT, 1000))));
+        assertThat(FlowSpecCompiler.compile(flowSpec), hasSize(0));
+    }
+
+    /**
+     * Selectors are cached per route key until invalidated.
+     */
+    @Test
+    public void testCache() {
+        FlowSpecCompiler compiler = new FlowSpecCompiler();
+        BgpFlowSpecNlri flowSpec = flowSpec(dst("10.0.0.0/8"));
+        BgpFlowSpecRouteKey routeKey = BgpFlowSpecRouteKey.of(flowSpec);
+        List<TrafficSelector> selectors = compiler.selectors(routeKey, flowSpec);
+        assertThat(selectors, hasSize(1));
+        assertThat(compiler.selectors(routeKey, flowSpec), sameInstance(selectors));
+        compiler.invalidate(routeKey);
+        assertThat(compiler.cacheSize(), is(0));
+    }
+
+    /**
+     * Zero traffic rate drops, no action accepts.
+     */
+    @Test
+    public void testTreatment() {
+        BgpFlowSpecNlri flowSpec = flowSpec(dst("10.0.0.0/8"));
+        assertThat(FlowSpecCompiler.treatment(flowSpec), nullValue());
+        flowSpec.setFsActionTlv(ImmutableList.of(new BgpFsActionTrafficRate((short) 1, 0)));
+        assertThat(FlowSpecCompiler.treatment(flowSpec), is(DefaultTrafficTreatment.builder().drop().build()));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.onosproject.provider.bgp.route.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.onlab.packet.IpPrefix;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecNlri;
+import org.onosproject.bgpio.protocol.flowspec.BgpFlowSpecRouteKey;
+import org.onosproject.bgpio.types.BgpFsDestinationPrefix;
+import org.onosproject.bgpio.types.BgpValueType;
+
+/**
+ * Test for flow specification priority assignment.
+ */
+public class FlowSpecPrioritiesTest {
+
+    private final FlowSpecPriorities priorities = new FlowSpecPriorities();
+
+    private static BgpFlowSpecNlri flowSpec(String prefix) {
+        IpPrefix ipPrefix = IpPrefix.valueOf(prefix);
+        BgpValueType component = new BgpFsDestinationPrefix((byte) ipPrefix.prefixLength(), ipPrefix);
+        return new BgpFlowSpecNlri(new ArrayList<>(Arrays.asList(component)));
+    }
+
+    private Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> add(String... prefixes) {
+        Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> added = new LinkedHashMap<>();
+        for (String prefix : prefixes) {
+            BgpFlowSpecNlri flowSpec = flowSpec(prefix);
+            added.put(BgpFlowSpecRouteKey.of(flowSpec), flowSpec);
+        }
+        return added;
+    }
+
+    private int priority(String prefix) {
+        return priorities.priority(BgpFlowSpecRouteKey.of(flowSpec(prefix)));
+    }
+
+    /**
+     * More specific flow specifications get higher priorities.
+     */
+    @Test
+    public void testOrder() {
+        Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> added = add("10.0.0.0/8", "10.1.0.0/16", "10.1.1.0/24");
+        assertThat(priorities.assign(added), is(added.keySet()));
+        assertThat(priority("10.1.1.0/24"), greaterThan(priority("10.1.0.0/16")));
+        assertThat(priority("10.1.0.0/16"), greaterThan(priority("10.0.0.0/8")));
+        assertThat(priority("10.1.1.0/24"), lessThanOrEqualTo(FlowSpecPriorities.MAX_PRIORITY));
+        assertThat(priorities.size(), is(3));
+    }
+
+    /**
+     * Adding into a gap keeps the priorities of installed flow specifications.
+     */
+    @Test
+    public void testGapPreserved() {
+        priorities.assign(add("10.0.0.0/8", "10.1.1.0/24"));
+        int low = priority("10.0.0.0/8");
+        int high = priority("10.1.1.0/24");
+        Map<BgpFlowSpecRouteKey, BgpFlowSpecNlri> added = add("10.1.0.0/16");
+        assertThat(priorities.assign(added), is(added.keySet()));
+        assertThat(priorities.assign(added), is(empty()));
+        assertThat(priority("10.0.0.0/8"), is(low));
+        assertThat(priority("10.1.1.0/24"), is(high));
+        assertThat(priority("10.1.0.0/16"), greaterThan(low));
+        assertThat(high, greaterThan(priority("10.1.0.0/16")));
+
+        priorities.remove(BgpFlowSpecRouteKey.of(flowSpec("10.1.0.0/16")));
+        assertThat(priorities.priority(BgpFlowSpecRouteKey.of(flowSpec("10.1.0.0/16"))), nullValue());
+        assertThat(priorities.size(), is(2));
+    }
+}
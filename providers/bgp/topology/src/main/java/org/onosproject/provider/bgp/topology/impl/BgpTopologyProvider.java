@@ -21,7 +21,10 @@ import static org.onosproject.incubator.net.resource.label.LabelResourceId.label
 import static java.util.stream.Collectors.toList;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.HashMap;
 
@@ -291,6 +294,18 @@ public class BgpTopologyProvider extends AbstractProvider implements DeviceProvi
             deviceProviderService.deviceDisconnected(deviceId);
         }
 
+        @Override
+        public void updateNodes(Map<BgpNodeLSNlriVer4, PathAttrNlriDetails> addNodes,
+                                Collection<BgpNodeLSNlriVer4> deleteNodes) {
+            log.debug("Update nodes: {} added, {} deleted", addNodes.size(), deleteNodes.size());
+
+            if (deviceProviderService == null) {
+                return;
+            }
+            deleteNodes.forEach(this::deleteNode);
+            addNodes.forEach(this::addNode);
+        }
+
         private List<PortDescription> buildPortDescriptions(DeviceId deviceId,
                                                             PortNumber portNumber) {
 
@@ -339,6 +354,42 @@ public class BgpTopologyProvider extends AbstractProvider implements DeviceProvi
             linkProviderService.linkDetected(linkDes);
         }
 
+        @Override
+        public void updateLinks(Map<BgpLinkLsNlriVer4, PathAttrNlriDetails> addLinks,
+                                Collection<BgpLinkLsNlriVer4> deleteLinks) throws BgpParseException {
+            log.debug("Update links: {} added, {} deleted", addLinks.size(), deleteLinks.size());
+
+            if (linkProviderService == null) {
+                return;
+            }
+            for (BgpLinkLsNlriVer4 linkNlri : deleteLinks) {
+                deleteLink(linkNlri);
+            }
+
+            // Collect the ports of the added links so that each device has its ports updated once
+            List<LinkDescription> detected = new ArrayList<>(addLinks.size());
+            Set<DeviceId> updatedDevices = new LinkedHashSet<>();
+            for (Map.Entry<BgpLinkLsNlriVer4, PathAttrNlriDetails> entry : addLinks.entrySet()) {
+                LinkDescription linkDes = buildLinkDes(entry.getKey(), entry.getValue(), true);
+                if (linkService.getLink(linkDes.src(), linkDes.dst()) != null) {
+                    continue;
+                }
+                if (mastershipService.isLocalMaster(linkDes.src().deviceId())) {
+                    registerBandwidth(linkDes, entry.getValue());
+                }
+                buildPortDescriptions(linkDes.src().deviceId(), linkDes.src().port());
+                buildPortDescriptions(linkDes.dst().deviceId(), linkDes.dst().port());
+                updatedDevices.add(linkDes.src().deviceId());
+                updatedDevices.add(linkDes.dst().deviceId());
+                detected.add(linkDes);
+            }
+
+            for (DeviceId deviceId : updatedDevices) {
+                deviceProviderService.updatePorts(deviceId, portMap.get(deviceId));
+            }
+            detected.forEach(linkProviderService::linkDetected);
+        }
+
         //Build link description.
         private LinkDescription buildLinkDes(BgpLinkLsNlriVer4 linkNlri, PathAttrNlriDetails details, boolean isAddLink)
                 throws BgpParseException {
@@ -15,17 +15,27 @@
  */
 package org.onosproject.provider.bgp.topology.impl;
 
+import org.onlab.packet.Ip4Address;
 import org.onosproject.bgp.controller.BgpCfg;
 import org.onosproject.bgp.controller.BgpController;
+import org.onosproject.bgp.controller.BgpEvpnListener;
+import org.onosproject.bgp.controller.BgpEvpnLocalRib;
+import org.onosproject.bgp.controller.BgpFlowSpecListener;
+import org.onosproject.bgp.controller.BgpFlowSpecLocalRib;
 import org.onosproject.bgp.controller.BgpId;
 import org.onosproject.bgp.controller.BgpLinkListener;
 import org.onosproject.bgp.controller.BgpLocalRib;
 import org.onosproject.bgp.controller.BgpNodeListener;
 import org.onosproject.bgp.controller.BgpPeer;
 import org.onosproject.bgp.controller.BgpPeerManager;
+import org.onosproject.bgp.controller.BgpRibFootprint;
+import org.onosproject.bgp.controller.BgpUpdateStageStats;
 import org.onosproject.bgpio.exceptions.BgpParseException;
+import org.onosproject.bgpio.protocol.BgpEvpnNlri;
 import org.onosproject.bgpio.protocol.BgpMessage;
+import org.onosproject.bgpio.types.BgpValueType;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -84,6 +94,16 @@ public class BgpControllerAdapter implements BgpController {
         return null;
     }
 
+    @Override
+    public BgpEvpnLocalRib bgpEvpnLocalRib() {
+        return null;
+    }
+
+    @Override
+    public BgpFlowSpecLocalRib bgpFlowSpecLocalRib() {
+        return null;
+    }
+
     @Override
     public BgpPeerManager peerManager() {
         // TODO Auto-generated method stub
@@ -127,4 +147,45 @@ public class BgpControllerAdapter implements BgpController {
     public void removeLinkListener(BgpLinkListener listener) {
         // TODO Auto-generated method stub
     }
+
+    @Override
+    public void addFlowSpecListener(BgpFlowSpecListener listener) {
+    }
+
+    @Override
+    public void removeFlowSpecListener(BgpFlowSpecListener listener) {
+    }
+
+    @Override
+    public Set<BgpFlowSpecListener> flowSpecListener() {
+        return null;
+    }
+
+    @Override
+    public void addEvpnListener(BgpEvpnListener listener) {
+    }
+
+    @Override
+    public void removeEvpnListener(BgpEvpnListener listener) {
+    }
+
+    @Override
+    public Set<BgpEvpnListener> evpnListener() {
+        return null;
+    }
+
+    @Override
+    public List<BgpRibFootprint> ribFootprint() {
+        return null;
+    }
+
+    @Override
+    public List<BgpUpdateStageStats> updatePipelineStats() {
+        return null;
+    }
+
+    @Override
+    public void exportEvpn(BgpPeer.OperationType operType, Ip4Address nextHop, List<BgpValueType> extCommunities,
+                           List<BgpEvpnNlri> routes) {
+    }
 }
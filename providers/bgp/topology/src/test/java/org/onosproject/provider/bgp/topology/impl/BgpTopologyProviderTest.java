@@ -20,8 +20,10 @@ import static org.onosproject.net.MastershipRole.MASTER;
 import static org.hamcrest.Matchers.nullValue;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -724,6 +726,70 @@ public class BgpTopologyProviderTest {
         }
     }
 
+    /**
+     * Add and delete nodes and links in batches.
+     *
+     * @throws BgpParseException while adding or removing the links
+     */
+    @Test
+    public void bgpTopologyProviderTestUpdateBatch() throws BgpParseException {
+        LinkedList<BgpValueType> localTlvs = new LinkedList<>();
+        LinkedList<BgpValueType> remoteTlvs = new LinkedList<>();
+        BgpValueType tlv = new AutonomousSystemTlv(10);
+        short deslength = AutonomousSystemTlv.LENGTH;
+        short desType = AutonomousSystemTlv.TYPE;
+
+        localTlvs.add(tlv);
+        remoteTlvs.add(tlv);
+        tlv = IsIsNonPseudonode.of(new byte[] {20, 20, 20, 20, 00, 20});
+        localTlvs.add(tlv);
+        tlv = IsIsNonPseudonode.of(new byte[] {30, 30, 30, 30, 00, 30});
+        remoteTlvs.add(tlv);
+        NodeDescriptors localNode = new NodeDescriptors(localTlvs, deslength, desType);
+        NodeDescriptors remoteNode = new NodeDescriptors(remoteTlvs, deslength, desType);
+        BgpNodeLSNlriVer4 nodeNlri = new BgpNodeLSNlriVer4(0, (byte) Constants.DIRECT,
+                                                           new BgpNodeLSIdentifier(localNode), false,
+                                                           new RouteDistinguisher());
+        BgpNodeLSNlriVer4 remNodeNlri = new BgpNodeLSNlriVer4(0, (byte) Constants.DIRECT,
+                                                              new BgpNodeLSIdentifier(remoteNode), false,
+                                                              new RouteDistinguisher());
+
+        PathAttrNlriDetails details = new PathAttrNlriDetails();
+        details.setIdentifier(0);
+        details.setProtocolID(ProtocolType.DIRECT);
+        details.setPathAttribute(new LinkedList<>());
+
+        Map<BgpLinkLsNlriVer4, PathAttrNlriDetails> links = new LinkedHashMap<>();
+        for (int i = 0; i < 2; i++) {
+            LinkedList<BgpValueType> linkdes = new LinkedList<>();
+            linkdes.add(LinkLocalRemoteIdentifiersTlv.of(99 + 2 * i, 100 + 2 * i));
+            BgpLinkLSIdentifier linkId = new BgpLinkLSIdentifier(localNode, remoteNode, linkdes);
+            links.put(new BgpLinkLsNlriVer4((byte) Constants.DIRECT, 0, linkId, new RouteDistinguisher(), false),
+                      details);
+        }
+
+        Map<BgpNodeLSNlriVer4, PathAttrNlriDetails> nodes = new LinkedHashMap<>();
+        nodes.put(nodeNlri, details);
+        nodes.put(remNodeNlri, details);
+        for (BgpNodeListener l : controller.nodeListener) {
+            l.updateNodes(nodes, Collections.emptyList());
+            assertThat(nodeRegistry.connected.size(), is(2));
+        }
+        for (BgpLinkListener l : controller.linkListener) {
+            l.updateLinks(links, Collections.emptyList());
+            assertThat(linkRegistry.links.size(), is(2));
+            for (List<PortDescription> ports : nodeRegistry.portUpdated.values()) {
+                assertThat(ports.size(), is(2));
+            }
+            l.updateLinks(Collections.emptyMap(), links.keySet());
+            assertThat(linkRegistry.links.size(), is(0));
+        }
+        for (BgpNodeListener l : controller.nodeListener) {
+            l.updateNodes(Collections.emptyMap(), Collections.singletonList(nodeNlri));
+            assertThat(nodeRegistry.connected.size(), is(1));
+        }
+    }
+
     /**
      * Add a link and delete a link with registering/unregistering bandwidth.
      *
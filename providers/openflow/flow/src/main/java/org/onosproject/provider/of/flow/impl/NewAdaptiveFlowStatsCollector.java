@@ -22,6 +22,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.onosproject.net.driver.DriverService;
 import org.onosproject.net.flow.DefaultTypedFlowEntry;
+import org.onosproject.net.flow.FlowCounters;
 import org.onosproject.net.flow.FlowEntry;
 import org.onosproject.net.flow.FlowId;
 import org.onosproject.net.flow.FlowRule;
@@ -423,42 +424,8 @@ public class NewAdaptiveFlowStatsCollector implements SwitchDataCollector {
             TypedStoredFlowEntry stored = deviceFlowTable.getFlowEntry(fe);
 
             if (stored != null) {
-                // duplicated flow entry is collected!, just skip
-                if (fe.bytes() == stored.bytes() && fe.packets() == stored.packets()
-                        && fe.life() == stored.life()) {
-                    if (log.isTraceEnabled()) {
-                        log.trace("addOrUpdateFlows({}): flowId={},is DUPLICATED stats collection, just skip.",
-                                sw.getStringId(), fe.id());
-                    }
-
-                    //FIXME modification of "stored" flow entry outside of store
-                    stored.setLastSeen();
-                    continue;
-                } else if (fe.life() < stored.life()) {
-                    // Invalid updates the stats values, i.e., bytes, packets, durations ...
-                    if (log.isDebugEnabled()) {
-                        log.debug(ADD_INVALID_LOG, fe.id(), stored.id(), fe.bytes(),
-                                stored.bytes(), fe.life(), stored.life(),
-                                fe.lastSeen(), stored.lastSeen());
-                    }
-                    // go next
-                    //FIXME modification of "stored" flow entry outside of store
-                    stored.setLastSeen();
-                    continue;
-                }
-
-                // update now
-                //FIXME modification of "stored" flow entry outside of store
-                stored.setLife(fe.life(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
-                stored.setPackets(fe.packets());
-                stored.setBytes(fe.bytes());
-                stored.setLastSeen();
-                if (stored.state() == FlowEntry.FlowEntryState.PENDING_ADD) {
-                    // flow is really RULE_ADDED
-                    stored.setState(FlowEntry.FlowEntryState.ADDED);
-                }
-                // flow is RULE_UPDATED, skip adding and just updating flow live table
-                //deviceFlowTable.calAndSetFlowLiveType(stored);
+                updateFlow(stored, fe.id(), fe.life(TimeUnit.NANOSECONDS),
+                           fe.packets(), fe.bytes(), fe.lastSeen());
                 continue;
             }
 
@@ -469,6 +436,69 @@ public class NewAdaptiveFlowStatsCollector implements SwitchDataCollector {
         }
     }
 
+    /**
+     * Updates the typed flow entries of the internal flow table in place from
+     * the given flow counters; complete flow entries are only decoded for the
+     * flows unknown to the table.
+     *
+     * @param counters the flow counters
+     */
+    public synchronized void pushFlowCounters(FlowCounters counters) {
+        for (int i = 0; i < counters.size(); i++) {
+            TypedStoredFlowEntry stored = deviceFlowTable.getFlowEntry(counters, i);
+            if (stored != null) {
+                updateFlow(stored, FlowId.valueOf(counters.flowId(i)),
+                           counters.life(i, TimeUnit.NANOSECONDS),
+                           counters.packets(i), counters.bytes(i),
+                           System.currentTimeMillis());
+            } else {
+                addOrUpdateFlows(counters.entry(i));
+            }
+        }
+    }
+
+    // update stored flow entry with the newly collected stats
+    private void updateFlow(TypedStoredFlowEntry stored, FlowId id, long lifeNanos,
+                            long packets, long bytes, long lastSeen) {
+        long life = TimeUnit.NANOSECONDS.toSeconds(lifeNanos);
+        // duplicated flow entry is collected!, just skip
+        if (bytes == stored.bytes() && packets == stored.packets()
+                && life == stored.life()) {
+            if (log.isTraceEnabled()) {
+                log.trace("addOrUpdateFlows({}): flowId={},is DUPLICATED stats collection, just skip.",
+                        sw.getStringId(), id);
+            }
+
+            //FIXME modification of "stored" flow entry outside of store
+            stored.setLastSeen();
+            return;
+        } else if (life < stored.life()) {
+            // Invalid updates the stats values, i.e., bytes, packets, durations ...
+            if (log.isDebugEnabled()) {
+                log.debug(ADD_INVALID_LOG, id, stored.id(), bytes,
+                        stored.bytes(), life, stored.life(),
+                        lastSeen, stored.lastSeen());
+            }
+            // go next
+            //FIXME modification of "stored" flow entry outside of store
+            stored.setLastSeen();
+            return;
+        }
+
+        // update now
+        //FIXME modification of "stored" flow entry outside of store
+        stored.setLife(lifeNanos, TimeUnit.NANOSECONDS);
+        stored.setPackets(packets);
+        stored.setBytes(bytes);
+        stored.setLastSeen();
+        if (stored.state() == FlowEntry.FlowEntryState.PENDING_ADD) {
+            // flow is really RULE_ADDED
+            stored.setState(FlowEntry.FlowEntryState.ADDED);
+        }
+        // flow is RULE_UPDATED, skip adding and just updating flow live table
+        //deviceFlowTable.calAndSetFlowLiveType(stored);
+    }
+
     /**
      * Removes typed flow entry from the internal flow table.
      *
@@ -587,6 +617,31 @@ public class NewAdaptiveFlowStatsCollector implements SwitchDataCollector {
             return getFlowEntryInternal(rule);
         }
 
+        /**
+         * Gets the typed flow entry identified by the given flow counters.
+         *
+         * @param counters the flow counters
+         * @param index index of the flow in the counters
+         * @return the typed flow entry, or null if no single entry matches
+         */
+        public TypedStoredFlowEntry getFlowEntry(FlowCounters counters, int index) {
+            Set<TypedStoredFlowEntry> entries = flowEntries.get(FlowId.valueOf(counters.flowId(index)));
+            if (entries == null) {
+                return null;
+            }
+            TypedStoredFlowEntry found = null;
+            for (TypedStoredFlowEntry entry : entries) {
+                if (counters.matches(index, entry)) {
+                    if (found != null) {
+                        // ambiguous, let the complete flow entry decide
+                        return null;
+                    }
+                    found = entry;
+                }
+            }
+            return found;
+        }
+
         /**
          * Gets the all typed flow entries in flow table.
          *
@@ -37,6 +37,7 @@ import org.onosproject.net.DeviceId;
 import org.onosproject.net.driver.DriverService;
 import org.onosproject.net.flow.CompletedBatchOperation;
 import org.onosproject.net.flow.DefaultTableStatisticsEntry;
+import org.onosproject.net.flow.FlowCounters;
 import org.onosproject.net.flow.FlowEntry;
 import org.onosproject.net.flow.FlowRule;
 import org.onosproject.net.flow.FlowRuleBatchEntry;
@@ -63,6 +64,7 @@ import org.projectfloodlight.openflow.protocol.OFBarrierRequest;
 import org.projectfloodlight.openflow.protocol.OFErrorMsg;
 import org.projectfloodlight.openflow.protocol.OFFlowMod;
 import org.projectfloodlight.openflow.protocol.OFFlowRemoved;
+import org.projectfloodlight.openflow.protocol.OFFlowStatsEntry;
 import org.projectfloodlight.openflow.protocol.OFFlowStatsReply;
 import org.projectfloodlight.openflow.protocol.OFMessage;
 import org.projectfloodlight.openflow.protocol.OFPortStatus;
@@ -70,6 +72,7 @@ import org.projectfloodlight.openflow.protocol.OFStatsReply;
 import org.projectfloodlight.openflow.protocol.OFStatsType;
 import org.projectfloodlight.openflow.protocol.OFTableStatsEntry;
 import org.projectfloodlight.openflow.protocol.OFTableStatsReply;
+import org.projectfloodlight.openflow.protocol.OFVersion;
 import org.projectfloodlight.openflow.protocol.errormsg.OFBadActionErrorMsg;
 import org.projectfloodlight.openflow.protocol.errormsg.OFBadInstructionErrorMsg;
 import org.projectfloodlight.openflow.protocol.errormsg.OFBadMatchErrorMsg;
@@ -90,6 +93,7 @@ import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.onlab.util.Tools.get;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -556,9 +560,18 @@ public class OpenFlowRuleProvider extends AbstractProvider
 
             DeviceId did = DeviceId.deviceId(Dpid.uri(dpid));
 
-            List<FlowEntry> flowEntries = replies.getEntries().stream()
-                    .map(entry -> new FlowEntryBuilder(did, entry, driverService).build())
-                    .collect(Collectors.toList());
+            // decode only the counters; complete flow entries are built on demand
+            List<OFFlowStatsEntry> entries = replies.getEntries();
+            FlowCounters counters = new FlowCounters(entries.size(), index ->
+                    new FlowEntryBuilder(did, entries.get(index), driverService).build());
+            for (OFFlowStatsEntry entry : entries) {
+                counters.add(entry.getCookie().getValue(),
+                             entry.getVersion() == OFVersion.OF_10 ? 0 : entry.getTableId().getValue(),
+                             entry.getPriority(),
+                             SECONDS.toNanos(entry.getDurationSec()) + entry.getDurationNsec(),
+                             entry.getPacketCount().getValue(),
+                             entry.getByteCount().getValue());
+            }
 
             if (adaptiveFlowSampling)  {
                 NewAdaptiveFlowStatsCollector afsc = afsCollectors.get(dpid);
@@ -575,22 +588,22 @@ public class OpenFlowRuleProvider extends AbstractProvider
                         if (afsc.getFlowMissingXid() == replies.getXid()) {
                             // call entire flow stats update with flowMissing synchronization.
                             // used existing pushFlowMetrics
-                            providerService.pushFlowMetrics(did, flowEntries);
+                            providerService.pushFlowCounters(did, counters, true);
                         }
                         // reset flowMissingXid to NO_FLOW_MISSING_XID
                         afsc.setFlowMissingXid(NewAdaptiveFlowStatsCollector.NO_FLOW_MISSING_XID);
 
                     } else {
                         // call individual flow stats update
-                        providerService.pushFlowMetricsWithoutFlowMissing(did, flowEntries);
+                        providerService.pushFlowCounters(did, counters, false);
                     }
 
                     // Update TypedFlowEntry to deviceFlowEntries in NewAdaptiveFlowStatsCollector
-                    afsc.pushFlowMetrics(flowEntries);
+                    afsc.pushFlowCounters(counters);
                 }
             } else {
-                // call existing entire flow stats update with flowMissing synchronization
-                providerService.pushFlowMetrics(did, flowEntries);
+                // call entire flow stats update with flowMissing synchronization
+                providerService.pushFlowCounters(did, counters, true);
             }
         }
 
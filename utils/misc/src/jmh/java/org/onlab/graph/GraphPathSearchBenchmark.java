@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Dijkstra search over adjacency lists with the one over the
+ * compact graph form, on random graphs of average out-degree four.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GraphPathSearchBenchmark {
+
+    private static final int DEGREE = 4;
+    private static final int PAIRS = 64;
+
+    @Param({"1000", "10000"})
+    private int vertexCount;
+
+    private final GraphPathSearch<BenchVertex, BenchEdge> dijkstra = new DijkstraGraphSearch<>();
+    private final GraphPathSearch<BenchVertex, BenchEdge> compactDijkstra = new CompactDijkstraGraphSearch<>();
+    private final EdgeWeight<BenchVertex, BenchEdge> weight = BenchEdge::weight;
+
+    private Graph<BenchVertex, BenchEdge> graph;
+    private BenchVertex[] sources;
+    private BenchVertex[] destinations;
+    private int pair;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(vertexCount);
+        BenchVertex[] vertexes = new BenchVertex[vertexCount];
+        ImmutableSet.Builder<BenchEdge> edges = ImmutableSet.builder();
+        for (int i = 0; i < vertexCount; i++) {
+            vertexes[i] = new BenchVertex(i);
+        }
+        for (int i = 0; i < vertexCount; i++) {
+            // Keep the graph connected with a ring, then add random chords
+            edges.add(new BenchEdge(vertexes[i], vertexes[(i + 1) % vertexCount], 1 + random.nextInt(10)));
+            for (int d = 1; d < DEGREE; d++) {
+                edges.add(new BenchEdge(vertexes[i], vertexes[random.nextInt(vertexCount)],
+                                        1 + random.nextInt(10)));
+            }
+        }
+        graph = new AdjacencyListsGraph<>(ImmutableSet.copyOf(vertexes), edges.build());
+        CompactGraph.of(graph);
+
+        sources = new BenchVertex[PAIRS];
+        destinations = new BenchVertex[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            sources[i] = vertexes[random.nextInt(vertexCount)];
+            destinations[i] = vertexes[random.nextInt(vertexCount)];
+        }
+    }
+
+    private int nextPair() {
+        pair = (pair + 1) % PAIRS;
+        return pair;
+    }
+
+    @Benchmark
+    public GraphPathSearch.Result<BenchVertex, BenchEdge> dijkstra() {
+        int i = nextPair();
+        return dijkstra.search(graph, sources[i], destinations[i], weight, GraphPathSearch.ALL_PATHS);
+    }
+
+    @Benchmark
+    public GraphPathSearch.Result<BenchVertex, BenchEdge> compactDijkstra() {
+        int i = nextPair();
+        return compactDijkstra.search(graph, sources[i], destinations[i], weight, GraphPathSearch.ALL_PATHS);
+    }
+
+    @Benchmark
+    public CompactGraph<BenchVertex, BenchEdge> compactSnapshot() {
+        return CompactGraph.build(graph);
+    }
+
+    static final class BenchVertex implements Vertex {
+        private final int id;
+
+        BenchVertex(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof BenchVertex && ((BenchVertex) obj).id == id;
+        }
+
+        @Override
+        public String toString() {
+            return "v" + id;
+        }
+    }
+
+    static final class BenchEdge extends AbstractEdge<BenchVertex> {
+        private final double weight;
+
+        BenchEdge(BenchVertex src, BenchVertex dst, double weight) {
+            super(src, dst);
+            this.weight = weight;
+        }
+
+        double weight() {
+            return weight;
+        }
+    }
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Dijkstra shortest-path graph search algorithm capable of finding not just
+ * one, but all shortest paths between the source and destinations, working
+ * on the {@link CompactGraph compact form} of the searched graph.
+ * <p>
+ * The search state is held in primitive arrays of a per-thread workspace
+ * which is reused across searches, and the priority queue is an indexed
+ * binary heap, making each search O(E log V) with allocations limited to
+ * the produced result.
+ * </p>
+ */
+public class CompactDijkstraGraphSearch<V extends Vertex, E extends Edge<V>>
+        extends AbstractGraphPathSearch<V, E> {
+
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    @Override
+    public Result<V, E> search(Graph<V, E> graph, V src, V dst,
+                               EdgeWeight<V, E> weight, int maxPaths) {
+        checkArguments(graph, src, dst);
+        CompactGraph<V, E> compact = CompactGraph.of(graph);
+        return search(compact, compact.index(src), dst == null ? -1 : compact.index(dst),
+                      weight, null, maxPaths);
+    }
+
+    /**
+     * Searches the specified compact graph for paths between vertices using
+     * pre-computed edge weights.
+     *
+     * @param graph    compact graph to be searched
+     * @param src      source vertex
+     * @param dst      optional destination vertex; if null paths to all vertex
+     *                 destinations will be searched
+     * @param weights  edge weights indexed by edge index; negative weights
+     *                 forbid traversal of the edge
+     * @param maxPaths limit on number of paths; {@link GraphPathSearch#ALL_PATHS} if no limit
+     * @return search results
+     */
+    public Result<V, E> search(CompactGraph<V, E> graph, V src, V dst,
+                               double[] weights, int maxPaths) {
+        checkNotNull(graph, "Graph cannot be null");
+        checkNotNull(weights, "Weights cannot be null");
+        checkArgument(weights.length == graph.edgeCount(), "Weights do not match the edges");
+        int srcIndex = graph.index(checkNotNull(src, "Source cannot be null"));
+        int dstIndex = dst == null ? -1 : graph.index(dst);
+        checkArgument(srcIndex >= 0, "Source not in the graph");
+        checkArgument(dst == null || dstIndex >= 0, "Destination not in graph");
+        return search(graph, srcIndex, dstIndex, null, weights, maxPaths);
+    }
+
+    private Result<V, E> search(CompactGraph<V, E> graph, int src, int dst,
+                                EdgeWeight<V, E> weight, double[] weights, int maxPaths) {
+        Workspace ws = WORKSPACE.get();
+        ws.reset(graph.vertexCount());
+        double threshold = samenessThreshold();
+
+        ws.reach(src, 0.0);
+        ws.push(src);
+        while (ws.heapSize > 0) {
+            // Settle the nearest vertex; its cost is now final
+            int nearest = ws.pop();
+            if (nearest == dst) {
+                break;
+            }
+
+            // Relax all its egress edges; each edge is weighed only once
+            double cost = ws.cost[nearest];
+            for (int e = graph.offsets[nearest], last = graph.offsets[nearest + 1]; e < last; e++) {
+                double hopCost = weights != null ? weights[e] :
+                        weight == null ? 1.0 : weight.weight(graph.edge(e));
+                if (hopCost < 0) {
+                    continue;
+                }
+
+                int v = graph.targets[e];
+                double oldCost = ws.cost(v);
+                double newCost = cost + hopCost;
+                boolean relaxed = newCost < oldCost;
+                boolean same = Math.abs(newCost - oldCost) <= threshold;
+                if (!relaxed && !same) {
+                    continue;
+                }
+                if (oldCost == Double.MAX_VALUE) {
+                    ws.reach(v, newCost);
+                } else {
+                    ws.cost[v] = newCost;
+                }
+                ws.addParent(v, e, !same, maxPaths);
+                if (ws.heapIndex[v] == Workspace.UNQUEUED) {
+                    ws.push(v);
+                } else if (ws.heapIndex[v] >= 0) {
+                    ws.update(v);
+                }
+            }
+        }
+        return new CompactResult(graph, src, dst, maxPaths, ws);
+    }
+
+    // Result of a search over a compact graph; captures the reached vertexes
+    // along with their costs and parent edges out of the shared workspace.
+    private final class CompactResult implements Result<V, E> {
+
+        private final CompactGraph<V, E> graph;
+        private final V src;
+        private final V dst;
+        private final Set<Path<V, E>> paths = new HashSet<>();
+        private final int[] reached;
+        private final double[] costs;
+        private final int[] parentOffsets;
+        private final int[] parentEdges;
+
+        private volatile Map<V, Double> costMap;
+        private volatile Map<V, Set<E>> parentMap;
+
+        private CompactResult(CompactGraph<V, E> graph, int src, int dst, int maxPaths, Workspace ws) {
+            this.graph = graph;
+            this.src = graph.vertex(src);
+            this.dst = dst < 0 ? null : graph.vertex(dst);
+
+            reached = Arrays.copyOf(ws.reached, ws.reachedCount);
+            costs = new double[reached.length];
+            parentOffsets = new int[reached.length + 1];
+            parentEdges = new int[ws.parentTotal()];
+            int p = 0;
+            for (int i = 0; i < reached.length; i++) {
+                int v = reached[i];
+                costs[i] = ws.cost[v];
+                parentOffsets[i] = p;
+                for (int r = ws.parentHead[v]; r >= 0; r = ws.parentNext[r]) {
+                    parentEdges[p++] = ws.parentEdge[r];
+                }
+            }
+            parentOffsets[reached.length] = p;
+
+            if (dst >= 0) {
+                ws.buildPaths(graph, src, dst, maxPaths, this);
+            } else {
+                for (int i = 0; i < reached.length; i++) {
+                    if (reached[i] != src) {
+                        ws.buildPaths(graph, src, reached[i], maxPaths, this);
+                    }
+                }
+            }
+        }
+
+        // Adds the path formed by the edges in the reverse order given
+        private boolean addPath(int[] edges, int count, double cost, int maxPaths) {
+            if (maxPaths != ALL_PATHS && paths.size() >= maxPaths) {
+                return false;
+            }
+            List<E> pathEdges = new ArrayList<>(count);
+            for (int i = count - 1; i >= 0; i--) {
+                pathEdges.add(graph.edge(edges[i]));
+            }
+            paths.add(new DefaultPath<>(pathEdges, cost));
+            return maxPaths == ALL_PATHS || paths.size() < maxPaths;
+        }
+
+        @Override
+        public V src() {
+            return src;
+        }
+
+        @Override
+        public V dst() {
+            return dst;
+        }
+
+        @Override
+        public Set<Path<V, E>> paths() {
+            return paths;
+        }
+
+        @Override
+        public Map<V, Set<E>> parents() {
+            Map<V, Set<E>> map = parentMap;
+            if (map == null) {
+                ImmutableMap.Builder<V, Set<E>> builder = ImmutableMap.builder();
+                for (int i = 0; i < reached.length; i++) {
+                    if (parentOffsets[i] < parentOffsets[i + 1]) {
+                        ImmutableSet.Builder<E> edges = ImmutableSet.builder();
+                        for (int p = parentOffsets[i]; p < parentOffsets[i + 1]; p++) {
+                            edges.add(graph.edge(parentEdges[p]));
+                        }
+                        builder.put(graph.vertex(reached[i]), edges.build());
+                    }
+                }
+                map = builder.build();
+                parentMap = map;
+            }
+            return map;
+        }
+
+        @Override
+        public Map<V, Double> costs() {
+            Map<V, Double> map = costMap;
+            if (map == null) {
+                ImmutableMap.Builder<V, Double> builder = ImmutableMap.builder();
+                for (int i = 0; i < reached.length; i++) {
+                    builder.put(graph.vertex(reached[i]), costs[i]);
+                }
+                map = builder.build();
+                costMap = map;
+            }
+            return map;
+        }
+    }
+
+    // Per-thread search state, grown to the largest graph searched; vertex
+    // state is lazily reset using a generation stamp.
+    private static final class Workspace {
+
+        static final int UNQUEUED = -1;
+        static final int SETTLED = -2;
+
+        int generation;
+        int[] stamp = new int[0];
+        double[] cost = new double[0];
+        int[] heapIndex = new int[0];
+        int[] parentHead = new int[0];
+        int[] parentCount = new int[0];
+
+        int[] heap = new int[0];
+        int heapSize;
+
+        int[] reached = new int[0];
+        int reachedCount;
+
+        // Pool of parent edge records, linked per vertex
+        int[] parentEdge = new int[16];
+        int[] parentNext = new int[16];
+        int parentSize;
+
+        // Path building state
+        int[] pathEdges = new int[0];
+        int[] pathVertexes = new int[0];
+        int[] cursor = new int[0];
+        boolean[] onPath = new boolean[0];
+
+        void reset(int vertexCount) {
+            if (stamp.length < vertexCount) {
+                stamp = new int[vertexCount];
+                cost = new double[vertexCount];
+                heapIndex = new int[vertexCount];
+                parentHead = new int[vertexCount];
+                parentCount = new int[vertexCount];
+                heap = new int[vertexCount];
+                reached = new int[vertexCount];
+                pathEdges = new int[vertexCount];
+                pathVertexes = new int[vertexCount];
+                cursor = new int[vertexCount];
+                onPath = new boolean[vertexCount];
+                generation = 0;
+            }
+            if (++generation == 0) {
+                Arrays.fill(stamp, 0);
+                generation = 1;
+            }
+            heapSize = 0;
+            reachedCount = 0;
+            parentSize = 0;
+        }
+
+        double cost(int v) {
+            return stamp[v] == generation ? cost[v] : Double.MAX_VALUE;
+        }
+
+        void reach(int v, double c) {
+            stamp[v] = generation;
+            cost[v] = c;
+            heapIndex[v] = UNQUEUED;
+            parentHead[v] = -1;
+            parentCount[v] = 0;
+            reached[reachedCount++] = v;
+        }
+
+        void addParent(int v, int edge, boolean replace, int maxPaths) {
+            if (replace) {
+                parentHead[v] = -1;
+                parentCount[v] = 0;
+            }
+            if (maxPaths != ALL_PATHS && parentCount[v] >= maxPaths) {
+                return;
+            }
+            if (parentSize == parentEdge.length) {
+                parentEdge = Arrays.copyOf(parentEdge, parentSize * 2);
+                parentNext = Arrays.copyOf(parentNext, parentSize * 2);
+            }
+            parentEdge[parentSize] = edge;
+            parentNext[parentSize] = parentHead[v];
+            parentHead[v] = parentSize++;
+            parentCount[v]++;
+        }
+
+        int parentTotal() {
+            int total = 0;
+            for (int i = 0; i < reachedCount; i++) {
+                total += parentCount[reached[i]];
+            }
+            return total;
+        }
+
+        void push(int v) {
+            heap[heapSize] = v;
+            heapIndex[v] = heapSize++;
+            siftUp(heapIndex[v]);
+        }
+
+        int pop() {
+            int top = heap[0];
+            heapIndex[top] = SETTLED;
+            if (--heapSize > 0) {
+                heap[0] = heap[heapSize];
+                heapIndex[heap[0]] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        // Restores the heap order after the cost of a queued vertex changed
+        void update(int v) {
+            siftUp(heapIndex[v]);
+            siftDown(heapIndex[v]);
+        }
+
+        private void siftUp(int i) {
+            int v = heap[i];
+            double c = cost[v];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                int p = heap[parent];
+                if (cost[p] <= c) {
+                    break;
+                }
+                heap[i] = p;
+                heapIndex[p] = i;
+                i = parent;
+            }
+            heap[i] = v;
+            heapIndex[v] = i;
+        }
+
+        private void siftDown(int i) {
+            int v = heap[i];
+            double c = cost[v];
+            int half = heapSize >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < heapSize && cost[heap[right]] < cost[heap[child]]) {
+                    child = right;
+                }
+                if (c <= cost[heap[child]]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                heapIndex[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = v;
+            heapIndex[v] = i;
+        }
+
+        // Enumerates the loop-free paths from src to dst by walking the
+        // parent edges backwards from dst, depth first.
+        <V extends Vertex, E extends Edge<V>> void buildPaths(CompactGraph<V, E> graph, int src, int dst,
+                                                              int maxPaths,
+                                                              CompactDijkstraGraphSearch<V, E>.CompactResult result) {
+            if (stamp[dst] != generation || parentHead[dst] < 0) {
+                return;
+            }
+            double pathCost = cost[dst];
+            int depth = 0;
+            pathVertexes[0] = dst;
+            onPath[dst] = true;
+            cursor[0] = parentHead[dst];
+            while (depth >= 0) {
+                int record = cursor[depth];
+                if (record < 0) {
+                    onPath[pathVertexes[depth--]] = false;
+                    continue;
+                }
+                cursor[depth] = parentNext[record];
+                int edge = parentEdge[record];
+                int u = graph.sources[edge];
+                if (onPath[u]) {
+                    continue;
+                }
+                pathEdges[depth] = edge;
+                if (u == src) {
+                    if (!result.addPath(pathEdges, depth + 1, pathCost, maxPaths)) {
+                        break;
+                    }
+                } else if (stamp[u] == generation && parentHead[u] >= 0) {
+                    pathVertexes[++depth] = u;
+                    onPath[u] = true;
+                    cursor[depth] = parentHead[u];
+                }
+            }
+            // Clear the marks left by an early exit
+            for (; depth >= 0; depth--) {
+                onPath[pathVertexes[depth]] = false;
+            }
+        }
+    }
+}
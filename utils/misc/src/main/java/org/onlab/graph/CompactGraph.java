@@ -0,0 +1,211 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable snapshot of a graph in compressed sparse row form. Vertexes and
+ * edges are identified by dense integer indexes; the egress edges of vertex
+ * {@code v} are those with indexes from {@code firstEdge(v)} inclusive to
+ * {@code firstEdge(v + 1)} exclusive.
+ *
+ * @param <V> vertex type
+ * @param <E> edge type
+ */
+public final class CompactGraph<V extends Vertex, E extends Edge<V>> {
+
+    private final Map<V, Integer> indexes;
+    final Object[] vertexes;
+    final Object[] edges;
+    final int[] offsets;
+    final int[] sources;
+    final int[] targets;
+
+    private CompactGraph(Graph<V, E> graph) {
+        Set<V> vertexSet = graph.getVertexes();
+        int vertexCount = vertexSet.size();
+        int edgeCount = graph.getEdges().size();
+
+        indexes = new HashMap<>(vertexCount * 2);
+        vertexes = new Object[vertexCount];
+        for (V vertex : vertexSet) {
+            indexes.put(vertex, indexes.size());
+            vertexes[indexes.size() - 1] = vertex;
+        }
+
+        edges = new Object[edgeCount];
+        offsets = new int[vertexCount + 1];
+        sources = new int[edgeCount];
+        targets = new int[edgeCount];
+        int e = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v] = e;
+            @SuppressWarnings("unchecked")
+            V vertex = (V) vertexes[v];
+            for (E edge : graph.getEdgesFrom(vertex)) {
+                Integer target = indexes.get(edge.dst());
+                checkArgument(target != null, "Edge destination not in graph");
+                edges[e] = edge;
+                sources[e] = v;
+                targets[e] = target;
+                e++;
+            }
+        }
+        offsets[vertexCount] = e;
+        checkArgument(e == edgeCount, "Edge source not in graph");
+    }
+
+    /**
+     * Returns the compact form of the specified graph. The compact form of
+     * an immutable {@link AdjacencyListsGraph} is built once and retained by
+     * the graph.
+     *
+     * @param graph graph to compact
+     * @param <V>   vertex type
+     * @param <E>   edge type
+     * @return compact graph
+     */
+    public static <V extends Vertex, E extends Edge<V>> CompactGraph<V, E> of(Graph<V, E> graph) {
+        checkNotNull(graph, "Graph cannot be null");
+        if (graph instanceof AdjacencyListsGraph) {
+            return ((AdjacencyListsGraph<V, E>) graph).compact();
+        }
+        return build(graph);
+    }
+
+    /**
+     * Builds the compact form of the specified graph.
+     *
+     * @param graph graph to compact
+     * @param <V>   vertex type
+     * @param <E>   edge type
+     * @return compact graph
+     */
+    static <V extends Vertex, E extends Edge<V>> CompactGraph<V, E> build(Graph<V, E> graph) {
+        return new CompactGraph<>(graph);
+    }
+
+    /**
+     * Returns the number of vertexes.
+     *
+     * @return vertex count
+     */
+    public int vertexCount() {
+        return vertexes.length;
+    }
+
+    /**
+     * Returns the number of edges.
+     *
+     * @return edge count
+     */
+    public int edgeCount() {
+        return edges.length;
+    }
+
+    /**
+     * Returns the index of the specified vertex.
+     *
+     * @param vertex vertex
+     * @return vertex index; -1 if the vertex is not in the graph
+     */
+    public int index(V vertex) {
+        Integer index = indexes.get(vertex);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Returns the vertex with the specified index.
+     *
+     * @param index vertex index
+     * @return vertex
+     */
+    @SuppressWarnings("unchecked")
+    public V vertex(int index) {
+        return (V) vertexes[index];
+    }
+
+    /**
+     * Returns the edge with the specified index.
+     *
+     * @param index edge index
+     * @return edge
+     */
+    @SuppressWarnings("unchecked")
+    public E edge(int index) {
+        return (E) edges[index];
+    }
+
+    /**
+     * Returns the index of the first egress edge of the specified vertex;
+     * for the vertex count, returns the edge count.
+     *
+     * @param vertex vertex index
+     * @return edge index
+     */
+    public int firstEdge(int vertex) {
+        return offsets[vertex];
+    }
+
+    /**
+     * Returns the index of the source vertex of the specified edge.
+     *
+     * @param edge edge index
+     * @return vertex index
+     */
+    public int source(int edge) {
+        return sources[edge];
+    }
+
+    /**
+     * Returns the index of the destination vertex of the specified edge.
+     *
+     * @param edge edge index
+     * @return vertex index
+     */
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * Returns the weights of all edges, indexed by edge index.
+     *
+     * @param weight edge weight function; null for unit weights
+     * @return array of edge weights
+     */
+    public double[] weights(EdgeWeight<V, E> weight) {
+        double[] weights = new double[edges.length];
+        for (int e = 0; e < edges.length; e++) {
+            weights[e] = weight == null ? 1.0 : weight.weight(edge(e));
+        }
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("vertexCount", vertexCount())
+                .add("edgeCount", edgeCount())
+                .toString();
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.packet;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.onlab.packet.PacketUtils.checkHeaderLength;
+
+/**
+ * Read-only view of an Ethernet frame which decodes header fields on demand
+ * from the raw bytes, as an alternative to deserializing the full packet
+ * when only a few fields are of interest. The fully deserialized frame
+ * remains available through {@link #parsed()}.
+ * <p>
+ * The view does not copy the raw bytes; they must not be altered while
+ * the view is in use.
+ * </p>
+ */
+public final class EthernetView {
+
+    private static final int SOURCE_MAC_OFFSET = 6;
+    private static final int ETHER_TYPE_OFFSET = 12;
+    private static final int IPV4_MIN_HEADER_LENGTH = 20;
+    private static final int IPV6_HEADER_LENGTH = 40;
+    private static final int L4_PORTS_LENGTH = 4;
+    private static final int UNRESOLVED = -2;
+
+    private final ByteBuffer data;
+    private final int offset;
+    private final int length;
+
+    // Lazily decoded state; computed idempotently, hence benign races
+    private int payloadOffset = UNRESOLVED;
+    private int l4Offset = UNRESOLVED;
+    private volatile Ethernet parsed;
+    private volatile boolean parseAttempted;
+
+    private EthernetView(ByteBuffer data) {
+        this.data = data.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.offset = data.position();
+        this.length = data.remaining();
+    }
+
+    /**
+     * Creates a view of the Ethernet frame held in the remaining bytes of
+     * the given buffer. The buffer position and limit are left untouched.
+     *
+     * @param data raw frame bytes
+     * @return frame view
+     * @throws DeserializationException if the data is too short to hold an
+     *                                  Ethernet header
+     */
+    public static EthernetView of(ByteBuffer data) throws DeserializationException {
+        checkNotNull(data, "Data cannot be null");
+        checkHeaderLength(data.remaining(), Ethernet.ETHERNET_HEADER_LENGTH);
+        return new EthernetView(data);
+    }
+
+    /**
+     * Creates a view of the Ethernet frame held in the given bytes.
+     *
+     * @param data   raw frame bytes
+     * @param offset offset of the frame in the bytes
+     * @param length length of the frame
+     * @return frame view
+     * @throws DeserializationException if the data is too short to hold an
+     *                                  Ethernet header
+     */
+    public static EthernetView of(byte[] data, int offset, int length) throws DeserializationException {
+        PacketUtils.checkInput(data, offset, length, Ethernet.ETHERNET_HEADER_LENGTH);
+        return new EthernetView(ByteBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * Returns the destination MAC address.
+     *
+     * @return destination MAC address
+     */
+    public MacAddress destinationMac() {
+        return mac(0);
+    }
+
+    /**
+     * Returns the source MAC address.
+     *
+     * @return source MAC address
+     */
+    public MacAddress sourceMac() {
+        return mac(SOURCE_MAC_OFFSET);
+    }
+
+    /**
+     * Returns the VLAN identifier.
+     *
+     * @return VLAN identifier; {@link Ethernet#VLAN_UNTAGGED} if untagged
+     */
+    public short vlanId() {
+        return isTagged() ? (short) (u16(ETHER_TYPE_OFFSET + 2) & 0x0fff) : Ethernet.VLAN_UNTAGGED;
+    }
+
+    /**
+     * Returns the VLAN priority code point.
+     *
+     * @return priority code; 0 if untagged
+     */
+    public byte priorityCode() {
+        return isTagged() ? (byte) (u16(ETHER_TYPE_OFFSET + 2) >> 13 & 0x07) : 0;
+    }
+
+    /**
+     * Returns the ether type of the payload, following a VLAN tag if any.
+     *
+     * @return ether type
+     */
+    public short etherType() {
+        return (short) u16(payloadOffset() - 2);
+    }
+
+    /**
+     * Returns the offset of the Ethernet payload relative to the start of
+     * the frame.
+     *
+     * @return payload offset
+     */
+    public int payloadOffset() {
+        if (payloadOffset == UNRESOLVED) {
+            payloadOffset = Ethernet.ETHERNET_HEADER_LENGTH +
+                    (isTagged() ? Ethernet.VLAN_HEADER_LENGTH : 0);
+        }
+        return payloadOffset;
+    }
+
+    /**
+     * Returns the IP protocol number of the payload: the protocol of an IPv4
+     * packet or the next header of an IPv6 packet.
+     *
+     * @return IP protocol number; -1 if the payload is not an IP packet
+     */
+    public int ipProtocol() {
+        short etherType = etherType();
+        if (etherType == Ethernet.TYPE_IPV4 && has(payloadOffset(), IPV4_MIN_HEADER_LENGTH)) {
+            return u8(payloadOffset() + 9);
+        } else if (etherType == Ethernet.TYPE_IPV6 && has(payloadOffset(), IPV6_HEADER_LENGTH)) {
+            return u8(payloadOffset() + 6);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the source address of an IPv4 payload.
+     *
+     * @return IPv4 source address; null if the payload is not IPv4
+     */
+    public Ip4Address ipv4Source() {
+        return isIpv4() ? Ip4Address.valueOf(data.getInt(offset + payloadOffset() + 12)) : null;
+    }
+
+    /**
+     * Returns the destination address of an IPv4 payload.
+     *
+     * @return IPv4 destination address; null if the payload is not IPv4
+     */
+    public Ip4Address ipv4Destination() {
+        return isIpv4() ? Ip4Address.valueOf(data.getInt(offset + payloadOffset() + 16)) : null;
+    }
+
+    /**
+     * Returns the source port of a TCP or UDP segment carried over IP.
+     *
+     * @return transport source port; -1 if there is none
+     */
+    public int sourcePort() {
+        int l4 = l4Offset();
+        return l4 < 0 ? -1 : u16(l4);
+    }
+
+    /**
+     * Returns the destination port of a TCP or UDP segment carried over IP.
+     *
+     * @return transport destination port; -1 if there is none
+     */
+    public int destinationPort() {
+        int l4 = l4Offset();
+        return l4 < 0 ? -1 : u16(l4 + 2);
+    }
+
+    /**
+     * Returns the fully deserialized frame, deserializing it on first use.
+     *
+     * @return parsed Ethernet frame; null if the frame cannot be deserialized
+     */
+    public Ethernet parsed() {
+        if (!parseAttempted) {
+            synchronized (this) {
+                if (!parseAttempted) {
+                    parsed = deserialize();
+                    parseAttempted = true;
+                }
+            }
+        }
+        return parsed;
+    }
+
+    private Ethernet deserialize() {
+        try {
+            if (data.hasArray()) {
+                return Ethernet.deserializer().deserialize(data.array(), data.arrayOffset() + offset, length);
+            }
+            byte[] bytes = new byte[length];
+            ByteBuffer copy = data.duplicate();
+            copy.get(bytes);
+            return Ethernet.deserializer().deserialize(bytes, 0, length);
+        } catch (DeserializationException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private boolean isTagged() {
+        return (short) u16(ETHER_TYPE_OFFSET) == Ethernet.TYPE_VLAN &&
+                has(ETHER_TYPE_OFFSET, 2 + Ethernet.VLAN_HEADER_LENGTH);
+    }
+
+    private boolean isIpv4() {
+        return etherType() == Ethernet.TYPE_IPV4 && has(payloadOffset(), IPV4_MIN_HEADER_LENGTH);
+    }
+
+    // Resolves the offset of the transport header of an unfragmented or
+    // first-fragment TCP or UDP segment; -1 if there is none
+    private int l4Offset() {
+        if (l4Offset == UNRESOLVED) {
+            int l4 = -1;
+            int protocol = ipProtocol();
+            if (protocol == IPv4.PROTOCOL_TCP || protocol == IPv4.PROTOCOL_UDP) {
+                int l3 = payloadOffset();
+                if (etherType() == Ethernet.TYPE_IPV4) {
+                    boolean firstFragment = (u16(l3 + 6) & 0x1fff) == 0;
+                    l4 = firstFragment ? l3 + (u8(l3) & 0x0f) * 4 : -1;
+                } else {
+                    l4 = l3 + IPV6_HEADER_LENGTH;
+                }
+            }
+            l4Offset = l4 >= 0 && has(l4, L4_PORTS_LENGTH) ? l4 : -1;
+        }
+        return l4Offset;
+    }
+
+    private boolean has(int at, int count) {
+        return at + count <= length;
+    }
+
+    private int u8(int at) {
+        return data.get(offset + at) & 0xff;
+    }
+
+    private int u16(int at) {
+        return data.getShort(offset + at) & 0xffff;
+    }
+
+    private MacAddress mac(int at) {
+        long mac = ((long) u16(at) << 32) | (data.getInt(offset + at + 2) & 0xffffffffL);
+        return MacAddress.valueOf(mac);
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("dst", destinationMac())
+                .add("src", sourceMac())
+                .add("vlan", vlanId())
+                .add("etherType", String.format("0x%04x", etherType()))
+                .add("length", length)
+                .toString();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.graph;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static com.google.common.collect.ImmutableSet.of;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test of the Dijkstra algorithm over compact graphs.
+ */
+public class CompactDijkstraGraphSearchTest extends DijkstraGraphSearchTest {
+
+    @Override
+    protected AbstractGraphPathSearch<TestVertex, TestEdge> graphSearch() {
+        return new CompactDijkstraGraphSearch<>();
+    }
+
+    @Test
+    public void compactGraph() {
+        graph = new AdjacencyListsGraph<>(vertexes(), edges());
+        CompactGraph<TestVertex, TestEdge> compact = CompactGraph.of(graph);
+        assertSame("compact graph should be retained", compact, CompactGraph.of(graph));
+        assertEquals("incorrect vertex count", 8, compact.vertexCount());
+        assertEquals("incorrect edge count", 12, compact.edgeCount());
+
+        int b = compact.index(B);
+        assertEquals("incorrect egress edge count", 3, compact.firstEdge(b + 1) - compact.firstEdge(b));
+        for (int e = compact.firstEdge(b); e < compact.firstEdge(b + 1); e++) {
+            assertEquals("incorrect edge source", b, compact.source(e));
+            assertEquals("incorrect edge", B, compact.edge(e).src());
+            assertEquals("incorrect edge target", compact.edge(e).dst(), compact.vertex(compact.target(e)));
+        }
+        assertEquals("vertex should be absent", -1, compact.index(Z));
+    }
+
+    @Test
+    public void precomputedWeights() {
+        graph = new AdjacencyListsGraph<>(vertexes(), edges());
+        CompactGraph<TestVertex, TestEdge> compact = CompactGraph.of(graph);
+        CompactDijkstraGraphSearch<TestVertex, TestEdge> search = new CompactDijkstraGraphSearch<>();
+        Set<Path<TestVertex, TestEdge>> paths =
+                search.search(compact, A, H, compact.weights(weight), GraphPathSearch.ALL_PATHS).paths();
+        assertEquals("incorrect paths", search.search(graph, A, H, weight, GraphPathSearch.ALL_PATHS).paths(),
+                     paths);
+        assertEquals("incorrect path cost", 5.0, paths.iterator().next().cost(), 0.1);
+    }
+
+    @Test
+    public void sameAsDijkstra() {
+        Random random = new Random(7);
+        Set<TestVertex> vertexes = new HashSet<>();
+        for (int i = 0; i < 60; i++) {
+            vertexes.add(new TestVertex("v" + i));
+        }
+        TestVertex[] array = vertexes.toArray(new TestVertex[0]);
+        Set<TestEdge> edges = new HashSet<>();
+        for (int i = 0; i < 240; i++) {
+            edges.add(new TestEdge(array[random.nextInt(array.length)], array[random.nextInt(array.length)],
+                                   1 + random.nextInt(3)));
+        }
+        graph = new AdjacencyListsGraph<>(vertexes, edges);
+
+        GraphPathSearch<TestVertex, TestEdge> dijkstra = new DijkstraGraphSearch<>();
+        GraphPathSearch<TestVertex, TestEdge> compact = graphSearch();
+        for (int i = 0; i < 100; i++) {
+            TestVertex src = array[random.nextInt(array.length)];
+            TestVertex dst = array[random.nextInt(array.length)];
+            GraphPathSearch.Result<TestVertex, TestEdge> expected =
+                    dijkstra.search(graph, src, dst, weight, GraphPathSearch.ALL_PATHS);
+            GraphPathSearch.Result<TestVertex, TestEdge> actual =
+                    compact.search(graph, src, dst, weight, GraphPathSearch.ALL_PATHS);
+            assertEquals("incorrect paths", expected.paths(), actual.paths());
+            assertEquals("incorrect cost", expected.costs().get(dst), actual.costs().get(dst));
+            assertEquals("incorrect single path count", Math.min(1, expected.paths().size()),
+                         compact.search(graph, src, dst, weight, 1).paths().size());
+        }
+
+        TestVertex src = array[0];
+        GraphPathSearch.Result<TestVertex, TestEdge> expected =
+                dijkstra.search(graph, src, null, weight, GraphPathSearch.ALL_PATHS);
+        GraphPathSearch.Result<TestVertex, TestEdge> actual =
+                compact.search(graph, src, null, weight, GraphPathSearch.ALL_PATHS);
+        assertEquals("incorrect paths", expected.paths(), actual.paths());
+        assertEquals("incorrect costs", expected.costs(), actual.costs());
+        assertEquals("incorrect parents", expected.parents(), actual.parents());
+    }
+
+    @Test
+    public void zeroWeightLoop() {
+        graph = new AdjacencyListsGraph<>(of(A, B, C),
+                                          of(new TestEdge(A, B, 1), new TestEdge(B, C, 0),
+                                             new TestEdge(C, B, 0)));
+        Set<Path<TestVertex, TestEdge>> paths =
+                graphSearch().search(graph, A, C, weight, GraphPathSearch.ALL_PATHS).paths();
+        assertEquals("incorrect paths count", 1, paths.size());
+        assertEquals("incorrect path length", 2, paths.iterator().next().edges().size());
+    }
+}
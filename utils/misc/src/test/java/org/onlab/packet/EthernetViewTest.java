@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onlab.packet;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for the EthernetView class.
+ */
+public class EthernetViewTest {
+
+    private static final MacAddress DST_MAC = MacAddress.valueOf("00:11:22:33:44:55");
+    private static final MacAddress SRC_MAC = MacAddress.valueOf("66:77:88:99:aa:bb");
+    private static final Ip4Address SRC_IP = Ip4Address.valueOf("10.0.0.1");
+    private static final Ip4Address DST_IP = Ip4Address.valueOf("10.0.0.2");
+
+    private Ethernet ethernet(short vlan, short etherType, IPacket payload) {
+        Ethernet eth = new Ethernet();
+        eth.setDestinationMACAddress(DST_MAC);
+        eth.setSourceMACAddress(SRC_MAC);
+        eth.setVlanID(vlan);
+        eth.setPriorityCode((byte) 3);
+        eth.setEtherType(etherType);
+        eth.setPayload(payload);
+        return eth;
+    }
+
+    private IPv4 ipv4(byte protocol, IPacket payload) {
+        IPv4 ip = new IPv4();
+        ip.setSourceAddress(SRC_IP.toInt());
+        ip.setDestinationAddress(DST_IP.toInt());
+        ip.setProtocol(protocol);
+        ip.setTtl((byte) 64);
+        ip.setPayload(payload);
+        return ip;
+    }
+
+    @Test
+    public void untaggedTcp() throws Exception {
+        TCP tcp = new TCP();
+        tcp.setSourcePort(40000);
+        tcp.setDestinationPort(80);
+        Ethernet eth = ethernet(Ethernet.VLAN_UNTAGGED, Ethernet.TYPE_IPV4, ipv4(IPv4.PROTOCOL_TCP, tcp));
+        EthernetView view = EthernetView.of(ByteBuffer.wrap(eth.serialize()));
+
+        assertEquals("incorrect destination", DST_MAC, view.destinationMac());
+        assertEquals("incorrect source", SRC_MAC, view.sourceMac());
+        assertEquals("incorrect vlan", Ethernet.VLAN_UNTAGGED, view.vlanId());
+        assertEquals("incorrect ether type", Ethernet.TYPE_IPV4, view.etherType());
+        assertEquals("incorrect payload offset", Ethernet.ETHERNET_HEADER_LENGTH, view.payloadOffset());
+        assertEquals("incorrect protocol", IPv4.PROTOCOL_TCP, view.ipProtocol());
+        assertEquals("incorrect source ip", SRC_IP, view.ipv4Source());
+        assertEquals("incorrect destination ip", DST_IP, view.ipv4Destination());
+        assertEquals("incorrect source port", 40000, view.sourcePort());
+        assertEquals("incorrect destination port", 80, view.destinationPort());
+    }
+
+    @Test
+    public void taggedUdp() throws Exception {
+        UDP udp = new UDP();
+        udp.setSourcePort(5001);
+        udp.setDestinationPort(5002);
+        Ethernet eth = ethernet((short) 100, Ethernet.TYPE_IPV4, ipv4(IPv4.PROTOCOL_UDP, udp));
+        byte[] bytes = eth.serialize();
+
+        // View a frame placed in the middle of a larger buffer
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 8);
+        buffer.position(4);
+        buffer.put(bytes);
+        buffer.position(4);
+        buffer.limit(4 + bytes.length);
+        EthernetView view = EthernetView.of(buffer);
+
+        assertEquals("incorrect vlan", 100, view.vlanId());
+        assertEquals("incorrect priority", 3, view.priorityCode());
+        assertEquals("incorrect ether type", Ethernet.TYPE_IPV4, view.etherType());
+        assertEquals("incorrect payload offset",
+                     Ethernet.ETHERNET_HEADER_LENGTH + Ethernet.VLAN_HEADER_LENGTH, view.payloadOffset());
+        assertEquals("incorrect source port", 5001, view.sourcePort());
+        assertEquals("incorrect destination port", 5002, view.destinationPort());
+        assertEquals("buffer should be untouched", 4, buffer.position());
+
+        Ethernet parsed = view.parsed();
+        assertEquals("incorrect parsed frame", eth.getVlanID(), parsed.getVlanID());
+        assertEquals("incorrect parsed payload", SRC_IP.toInt(), ((IPv4) parsed.getPayload()).getSourceAddress());
+        assertSame("parsed frame should be retained", parsed, view.parsed());
+    }
+
+    @Test
+    public void nonIp() throws Exception {
+        Ethernet eth = ethernet(Ethernet.VLAN_UNTAGGED, Ethernet.TYPE_LLDP, new Data(new byte[]{1, 2, 3}));
+        EthernetView view = EthernetView.of(ByteBuffer.wrap(eth.serialize()));
+        assertEquals("incorrect ether type", Ethernet.TYPE_LLDP, view.etherType());
+        assertEquals("incorrect protocol", -1, view.ipProtocol());
+        assertNull("there should be no ip address", view.ipv4Source());
+        assertEquals("there should be no port", -1, view.sourcePort());
+    }
+
+    @Test
+    public void truncated() throws Exception {
+        TCP tcp = new TCP();
+        Ethernet eth = ethernet(Ethernet.VLAN_UNTAGGED, Ethernet.TYPE_IPV4, ipv4(IPv4.PROTOCOL_TCP, tcp));
+        byte[] bytes = eth.serialize();
+        EthernetView view = EthernetView.of(bytes, 0, Ethernet.ETHERNET_HEADER_LENGTH + 10);
+        assertEquals("incorrect ether type", Ethernet.TYPE_IPV4, view.etherType());
+        assertEquals("incorrect protocol", -1, view.ipProtocol());
+        assertEquals("there should be no port", -1, view.destinationPort());
+        assertNull("frame should not parse", view.parsed());
+    }
+
+    @Test(expected = DeserializationException.class)
+    public void tooShort() throws Exception {
+        EthernetView.of(ByteBuffer.allocate(Ethernet.ETHERNET_HEADER_LENGTH - 1));
+    }
+}